@@ -122,7 +122,8 @@ public class WingtipsApacheHttpClientInterceptor implements HttpRequestIntercept
     public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
         Tracer tracer = Tracer.getInstance();
 
-        if (surroundCallsWithSubspan) {
+        // An unsampled trace in LIGHTWEIGHT mode wouldn't get a real subspan anyway, so skip building the span name.
+        if (surroundCallsWithSubspan && !tracer.isCurrentSpanLightweight()) {
             // Will start a new trace if necessary, or a subspan if a trace is already in progress.
             Span spanToClose = tracer.startSpanInCurrentContext(getSubspanSpanName(request), Span.SpanPurpose.CLIENT);
             // Add the subspan to the HttpContext so that the response interceptor can retrieve and close it.
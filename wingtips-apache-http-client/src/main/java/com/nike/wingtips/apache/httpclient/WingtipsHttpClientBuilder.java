@@ -121,7 +121,8 @@ public class WingtipsHttpClientBuilder extends HttpClientBuilder {
 
                 Tracer tracer = Tracer.getInstance();
                 Span spanAroundCall = null;
-                if (myHttpClientSurroundCallsWithSubspan) {
+                // An unsampled trace in LIGHTWEIGHT mode wouldn't get a real subspan anyway, so skip building the span name.
+                if (myHttpClientSurroundCallsWithSubspan && !tracer.isCurrentSpanLightweight()) {
                     // Will start a new trace if necessary, or a subspan if a trace is already in progress.
                     spanAroundCall = tracer.startSpanInCurrentContext(getSubspanSpanName(request), SpanPurpose.CLIENT);
                 }
@@ -39,11 +39,13 @@ import static com.nike.wingtips.apache.httpclient.WingtipsApacheHttpClientInterc
 import static com.nike.wingtips.apache.httpclient.WingtipsApacheHttpClientInterceptor.addTracingInterceptors;
 import static com.nike.wingtips.http.HttpRequestTracingUtils.convertSampleableBooleanToExpectedB3Value;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -92,6 +94,7 @@ public class WingtipsApacheHttpClientInterceptorTest {
     private void resetTracing() {
         MDC.clear();
         Tracer.getInstance().unregisterFromThread();
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.FULL);
     }
 
     @Test
@@ -174,6 +177,27 @@ public class WingtipsApacheHttpClientInterceptorTest {
         }
     }
 
+    @Test
+    public void process_request_skips_subspan_for_unsampled_trace_in_LIGHTWEIGHT_mode() throws IOException, HttpException {
+        // given
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.LIGHTWEIGHT);
+        Span parentSpan = Tracer.getInstance().startRequestWithSpanInfo(
+            UUID.randomUUID().toString(), null, "someParentSpan", false, null, SpanPurpose.SERVER
+        );
+        WingtipsApacheHttpClientInterceptor interceptorSpy = spy(new WingtipsApacheHttpClientInterceptor(true));
+
+        // when
+        interceptorSpy.process(requestMock, httpContext);
+
+        // then
+        assertThat(httpContext.getAttribute(SPAN_TO_CLOSE_HTTP_CONTEXT_ATTR_KEY)).isNull();
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(1);
+        verify(interceptorSpy, never()).getSubspanSpanName(any(HttpRequest.class));
+        verify(requestMock).setHeader(TRACE_ID, parentSpan.getTraceId());
+        verify(requestMock).setHeader(SPAN_ID, parentSpan.getSpanId());
+        verify(requestMock).setHeader(TRACE_SAMPLED, convertSampleableBooleanToExpectedB3Value(false));
+    }
+
     @DataProvider(value = {
         "true",
         "false"
@@ -0,0 +1,105 @@
+package com.nike.wingtips.benchmarks;
+
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.util.asynchelperwrapper.ExecutorServiceWithTracing;
+import com.nike.wingtips.util.asynchelperwrapper.RunnableWithTracing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of hopping tracing state across threads with {@link RunnableWithTracing} and {@link
+ * ExecutorServiceWithTracing}, with {@link #depth} spans on the calling thread's span stack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncHandoffBenchmark {
+
+    private static final Runnable NO_OP_RUNNABLE = new Runnable() {
+        @Override
+        public void run() {
+            // Do nothing.
+        }
+    };
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private Tracer tracer;
+    private ExecutorService plainExecutor;
+    private ExecutorService tracingExecutor;
+
+    @Setup
+    public void setup() {
+        tracer = Tracer.getInstance();
+        tracer.unregisterFromThread();
+        tracer.startRequestWithRootSpan("request");
+        for (int i = 1; i < depth; i++) {
+            tracer.startSubSpan("subspan", SpanPurpose.LOCAL_ONLY);
+        }
+
+        plainExecutor = Executors.newSingleThreadExecutor();
+        tracingExecutor = new ExecutorServiceWithTracing(Executors.newSingleThreadExecutor());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracer.unregisterFromThread();
+        plainExecutor.shutdownNow();
+        tracingExecutor.shutdownNow();
+    }
+
+    /**
+     * Captures the current thread's tracing state into a {@link RunnableWithTracing} but doesn't run it.
+     */
+    @Benchmark
+    public Runnable runnableWithTracing_capture() {
+        return new RunnableWithTracing(NO_OP_RUNNABLE);
+    }
+
+    /**
+     * Captures the tracing state and runs the {@link RunnableWithTracing} on the same thread, which exercises the full
+     * link/unlink cycle without any cross-thread latency.
+     */
+    @Benchmark
+    public void runnableWithTracing_captureAndRun() {
+        new RunnableWithTracing(NO_OP_RUNNABLE).run();
+    }
+
+    /**
+     * Submits a no-op task to a plain single-threaded executor and waits for it - the baseline for {@link
+     * #executorServiceWithTracing_submitAndGet()}.
+     */
+    @Benchmark
+    public Object plainExecutorService_submitAndGet_baseline() throws ExecutionException, InterruptedException {
+        return plainExecutor.submit(NO_OP_RUNNABLE).get();
+    }
+
+    /**
+     * Submits a no-op task to an {@link ExecutorServiceWithTracing} and waits for it.
+     */
+    @Benchmark
+    public Object executorServiceWithTracing_submitAndGet() throws ExecutionException, InterruptedException {
+        return tracingExecutor.submit(NO_OP_RUNNABLE).get();
+    }
+}
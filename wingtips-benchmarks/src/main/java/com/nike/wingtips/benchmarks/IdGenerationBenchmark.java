@@ -0,0 +1,85 @@
+package com.nike.wingtips.benchmarks;
+
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+import com.nike.wingtips.idgeneration.IdGenerationStrategy;
+import com.nike.wingtips.idgeneration.SecureRandomIdGenerationStrategy;
+import com.nike.wingtips.idgeneration.ThreadLocalSplitMix64IdGenerationStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks trace and span ID generation via {@link TraceAndSpanIdGenerator} for each {@link IdGenerationStrategy}.
+ * The multi-threaded variants show how ID generation behaves when many request threads are starting spans at the same
+ * time - this is where the shared {@link SecureRandom} behind {@link SecureRandomIdGenerationStrategy} contends on its
+ * lock and the per-thread {@link ThreadLocalSplitMix64IdGenerationStrategy} doesn't.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    public enum Strategy {
+        SPLITMIX64,
+        SECURE_RANDOM_SHA1PRNG
+    }
+
+    @Param({"SPLITMIX64", "SECURE_RANDOM_SHA1PRNG"})
+    public Strategy strategy;
+
+    @Setup(Level.Trial)
+    public void setup() throws NoSuchAlgorithmException {
+        switch (strategy) {
+            case SPLITMIX64:
+                TraceAndSpanIdGenerator.setIdGenerationStrategy(new ThreadLocalSplitMix64IdGenerationStrategy());
+                break;
+            case SECURE_RANDOM_SHA1PRNG:
+                TraceAndSpanIdGenerator.setIdGenerationStrategy(
+                    new SecureRandomIdGenerationStrategy(SecureRandom.getInstance("SHA1PRNG"))
+                );
+                break;
+            default:
+                throw new IllegalStateException("Unhandled strategy: " + strategy);
+        }
+    }
+
+    @Benchmark
+    public long generate64BitRandomLong() {
+        return TraceAndSpanIdGenerator.generate64BitRandomLong();
+    }
+
+    @Benchmark
+    public String generateId() {
+        return TraceAndSpanIdGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateId_4Threads() {
+        return TraceAndSpanIdGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String generateId_16Threads() {
+        return TraceAndSpanIdGenerator.generateId();
+    }
+}
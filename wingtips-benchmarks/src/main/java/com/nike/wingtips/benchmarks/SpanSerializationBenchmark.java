@@ -0,0 +1,179 @@
+package com.nike.wingtips.benchmarks;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Span} serialization and deserialization. {@link Span#toJSON()} and {@link Span#toKeyValueString()}
+ * cache their result, so the serialization benchmarks create a fresh span for every operation to measure the uncached
+ * cost - subtract {@link #newSpan_baseline()} to get the serialization cost alone.
+ *
+ * <p>The {@code legacy_*} deserialization benchmarks run a copy of the original {@code String.split(...)} and
+ * {@code HashMap} based parsers that the current single-pass parsers replaced, against both well-formed input and
+ * malformed input (a truncated span, which both implementations reject by returning null).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpanSerializationBenchmark {
+
+    private String traceId;
+    private String parentSpanId;
+    private String spanId;
+    private long startEpochMicros;
+    private long startNanos;
+    private String json;
+    private String keyValueString;
+    private String malformedJson;
+    private String malformedKeyValueString;
+
+    @Setup
+    public void setup() {
+        traceId = TraceAndSpanIdGenerator.generateId();
+        parentSpanId = TraceAndSpanIdGenerator.generateId();
+        spanId = TraceAndSpanIdGenerator.generateId();
+        startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        startNanos = System.nanoTime();
+
+        Span template = newSpan_baseline();
+        json = template.toJSON();
+        keyValueString = template.toKeyValueString();
+        malformedJson = json.substring(0, json.length() / 2);
+        malformedKeyValueString = keyValueString.substring(0, keyValueString.indexOf(Span.SAMPLEABLE_FIELD));
+    }
+
+    @Benchmark
+    public Span newSpan_baseline() {
+        return new Span(traceId, parentSpanId, spanId, "someSpanName", true, "someUserId", SpanPurpose.SERVER,
+                        startEpochMicros, startNanos, 4242L);
+    }
+
+    @Benchmark
+    public String toJSON() {
+        return newSpan_baseline().toJSON();
+    }
+
+    @Benchmark
+    public String toKeyValueString() {
+        return newSpan_baseline().toKeyValueString();
+    }
+
+    @Benchmark
+    public Span fromJSON() {
+        return Span.fromJSON(json);
+    }
+
+    @Benchmark
+    public Span fromKeyValueString() {
+        return Span.fromKeyValueString(keyValueString);
+    }
+
+    @Benchmark
+    public Span legacy_fromJSON() {
+        return legacyFromJSON(json);
+    }
+
+    @Benchmark
+    public Span legacy_fromKeyValueString() {
+        return legacyFromKeyValueString(keyValueString);
+    }
+
+    @Benchmark
+    public Span fromJSON_malformed() {
+        return Span.fromJSON(malformedJson);
+    }
+
+    @Benchmark
+    public Span fromKeyValueString_malformed() {
+        return Span.fromKeyValueString(malformedKeyValueString);
+    }
+
+    @Benchmark
+    public Span legacy_fromJSON_malformed() {
+        return legacyFromJSON(malformedJson);
+    }
+
+    @Benchmark
+    public Span legacy_fromKeyValueString_malformed() {
+        return legacyFromKeyValueString(malformedKeyValueString);
+    }
+
+    // ========== Copy of the original split/HashMap based parsers, for comparison ==========
+
+    private static Span legacyFromJSON(String json) {
+        try {
+            Map<String, String> map = new HashMap<>();
+            String innerJsonCore = json.substring(2, json.length() - 2);
+            String[] fieldPairs = innerJsonCore.split("\",\"");
+            for (String fieldPair : fieldPairs) {
+                String[] keyVal = fieldPair.split("\":\"");
+                map.put(keyVal[0], keyVal[1]);
+            }
+
+            return legacyFromKeyValueMap(map);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Span legacyFromKeyValueString(String keyValueStr) {
+        try {
+            Map<String, String> map = new HashMap<>();
+            String[] fieldPairs = keyValueStr.split(",");
+            for (String fieldPair : fieldPairs) {
+                String[] keyVal = fieldPair.split("=");
+                map.put(keyVal[0], keyVal[1]);
+            }
+
+            return legacyFromKeyValueMap(map);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Span legacyFromKeyValueMap(Map<String, String> map) {
+        String traceId = legacyGetString(map, Span.TRACE_ID_FIELD);
+        String spanId = legacyGetString(map, Span.SPAN_ID_FIELD);
+        String parentSpanId = legacyGetString(map, Span.PARENT_SPAN_ID_FIELD);
+        String spanName = legacyGetString(map, Span.SPAN_NAME_FIELD);
+        String sampleable = legacyGetString(map, Span.SAMPLEABLE_FIELD);
+        if (sampleable == null)
+            throw new IllegalStateException("Unable to parse " + Span.SAMPLEABLE_FIELD);
+        String userId = legacyGetString(map, Span.USER_ID_FIELD);
+        String startTimeEpochMicros = legacyGetString(map, Span.START_TIME_EPOCH_MICROS_FIELD);
+        if (startTimeEpochMicros == null)
+            throw new IllegalStateException("Unable to parse " + Span.START_TIME_EPOCH_MICROS_FIELD);
+        String durationNanos = legacyGetString(map, Span.DURATION_NANOS_FIELD);
+        String spanPurpose = legacyGetString(map, Span.SPAN_PURPOSE_FIELD);
+        return new Span(traceId, parentSpanId, spanId, spanName, Boolean.parseBoolean(sampleable), userId,
+                        (spanPurpose == null) ? null : SpanPurpose.valueOf(spanPurpose), Long.parseLong(startTimeEpochMicros),
+                        null, (durationNanos == null) ? null : Long.parseLong(durationNanos));
+    }
+
+    private static String legacyGetString(Map<String, String> map, String key) {
+        String value = map.get(key);
+        if (value == null || value.equals("null"))
+            return null;
+
+        return value;
+    }
+}
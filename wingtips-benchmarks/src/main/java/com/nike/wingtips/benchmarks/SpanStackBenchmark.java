@@ -0,0 +1,105 @@
+package com.nike.wingtips.benchmarks;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.util.SpanStack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the array-backed {@link SpanStack} that {@link com.nike.wingtips.Tracer} uses for the current thread's span
+ * stack against the {@link LinkedList} it replaced. The push/pop benchmarks mirror a request that starts and completes
+ * {@code depth} nested spans on a stack that is reused across requests, and the copy benchmarks mirror what happens
+ * every time tracing state is captured to hop threads (e.g. {@code Tracer.getCurrentSpanStackCopy()} when a {@code
+ * RunnableWithTracing} is created).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpanStackBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private Span[] spans;
+    private Deque<Span> linkedList;
+    private SpanStack spanStack;
+    private Deque<Span> populatedLinkedList;
+    private SpanStack populatedSpanStack;
+
+    @Setup
+    public void setup() {
+        spans = new Span[depth];
+        for (int i = 0; i < depth; i++) {
+            spans[i] = Span.newBuilder("span-" + i, SpanPurpose.LOCAL_ONLY).build();
+        }
+
+        linkedList = new LinkedList<>();
+        spanStack = new SpanStack();
+        populatedLinkedList = new LinkedList<>();
+        populatedSpanStack = new SpanStack();
+        for (Span span : spans) {
+            populatedLinkedList.push(span);
+            populatedSpanStack.push(span);
+        }
+    }
+
+    @Benchmark
+    public void linkedList_pushThenPop(Blackhole bh) {
+        pushThenPop(linkedList, bh);
+    }
+
+    @Benchmark
+    public void spanStack_pushThenPop(Blackhole bh) {
+        pushThenPop(spanStack, bh);
+    }
+
+    private void pushThenPop(Deque<Span> stack, Blackhole bh) {
+        for (Span span : spans) {
+            stack.push(span);
+            bh.consume(stack.peek());
+        }
+        while (!stack.isEmpty()) {
+            bh.consume(stack.pop());
+        }
+    }
+
+    @Benchmark
+    public Deque<Span> linkedList_copy() {
+        return new LinkedList<>(populatedLinkedList);
+    }
+
+    @Benchmark
+    public Deque<Span> spanStack_snapshot() {
+        return populatedSpanStack.snapshot();
+    }
+
+    @Benchmark
+    public Span linkedList_copyThenPeek() {
+        // Copy then read the current span - the typical async hand-off where the other thread only reads the stack.
+        return new LinkedList<>(populatedLinkedList).peek();
+    }
+
+    @Benchmark
+    public Span spanStack_snapshotThenPeek() {
+        return populatedSpanStack.snapshot().peek();
+    }
+}
@@ -0,0 +1,113 @@
+package com.nike.wingtips.benchmarks;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.Tracer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link Tracer} request lifecycle: starting and completing the overall request span, and starting and
+ * completing nested sub-spans inside a request at various depths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracerBenchmark {
+
+    private Tracer tracer;
+
+    @State(Scope.Thread)
+    public static class NestingDepth {
+        @Param({"1", "2", "4", "8", "16"})
+        public int depth;
+    }
+
+    @State(Scope.Thread)
+    public static class UnsampledMode {
+        @Param({"FULL", "LIGHTWEIGHT"})
+        public Tracer.UnsampledSpanMode mode;
+
+        @Setup
+        public void setup() {
+            Tracer.getInstance().setUnsampledSpanMode(mode);
+        }
+
+        @TearDown
+        public void tearDown() {
+            Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.FULL);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        tracer = Tracer.getInstance();
+        tracer.unregisterFromThread();
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracer.unregisterFromThread();
+    }
+
+    /**
+     * {@link Tracer#startRequestWithRootSpan(String)} followed by {@link Tracer#completeRequestSpan()}.
+     */
+    @Benchmark
+    public Span rootSpan_startAndComplete() {
+        Span span = tracer.startRequestWithRootSpan("request");
+        tracer.completeRequestSpan();
+        return span;
+    }
+
+    /**
+     * Starts a root span, then {@link NestingDepth#depth} nested sub-spans, then completes them all in reverse order.
+     * Subtract {@link #rootSpan_startAndComplete()} to get the cost of the sub-spans alone.
+     */
+    @Benchmark
+    public Span nestedSubSpans_startAndComplete(NestingDepth nestingDepth) {
+        int depth = nestingDepth.depth;
+        Span root = tracer.startRequestWithRootSpan("request");
+        for (int i = 0; i < depth; i++) {
+            tracer.startSubSpan("subspan", SpanPurpose.LOCAL_ONLY);
+        }
+        for (int i = 0; i < depth; i++) {
+            tracer.completeSubSpan();
+        }
+        tracer.completeRequestSpan();
+        return root;
+    }
+
+    /**
+     * Same as {@link #nestedSubSpans_startAndComplete(NestingDepth)} but for an unsampled trace, in each {@link Tracer.UnsampledSpanMode}.
+     */
+    @Benchmark
+    public Span unsampledNestedSubSpans_startAndComplete(NestingDepth nestingDepth, UnsampledMode unsampledMode) {
+        int depth = nestingDepth.depth;
+        Span root = tracer.startRequestWithSpanInfo(null, null, "request", false, null, SpanPurpose.SERVER);
+        for (int i = 0; i < depth; i++) {
+            tracer.startSubSpan("subspan", SpanPurpose.LOCAL_ONLY);
+        }
+        for (int i = 0; i < depth; i++) {
+            tracer.completeSubSpan();
+        }
+        tracer.completeRequestSpan();
+        return root;
+    }
+}
@@ -1,12 +1,16 @@
 package com.nike.wingtips;
 
+import com.nike.wingtips.clock.CalibratedSpanClock;
+import com.nike.wingtips.clock.SpanClock;
 import com.nike.wingtips.util.TracerManagedSpanStatus;
+import com.nike.wingtips.util.Utf8Util;
+import com.nike.wingtips.util.VirtualThreadUtil;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
@@ -68,9 +72,26 @@ public class Span implements AutoCloseable {
     /** The name of the duration-in-nanoseconds field when serializing to JSON (see {@link #toJSON()}. Corresponds to {@link #getDurationNanos()}. */
     public static final String DURATION_NANOS_FIELD = "durationNanos";
 
-    private final String traceId;
-    private final String spanId;
-    private final String parentSpanId;
+    // Bit flags for idFlags describing which IDs are held as primitive longs.
+    private static final int NUMERIC_TRACE_ID = 1;
+    private static final int TRACE_ID_128_BIT = 1 << 1;
+    private static final int NUMERIC_SPAN_ID = 1 << 2;
+    private static final int NUMERIC_PARENT_SPAN_ID = 1 << 3;
+    private static final int TRACE_ID_FLAGS = NUMERIC_TRACE_ID | TRACE_ID_128_BIT;
+
+    // IDs are held as primitive longs whenever they are canonical lowercase hex (16 chars, or 32 chars for a 128-bit trace ID), which is always
+    //      the case for IDs generated by wingtips. The hex strings are only rendered when something asks for them (e.g. a header, the MDC, or
+    //      a log message), and are then cached in the traceId/spanId/parentSpanId fields. IDs that aren't canonical lowercase hex (e.g. received
+    //      from a caller that uses a different ID scheme) are held as-is in the string fields.
+    private final int idFlags;
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanIdLong;
+    private final long parentSpanIdLong;
+    private String traceId;
+    private String spanId;
+    private String parentSpanId;
+
     private final String spanName;
     private final boolean sampleable;
     private final String userId;
@@ -84,6 +105,22 @@ public class Span implements AutoCloseable {
 
     private String cachedKeyValueRepresentation;
 
+    // The largest StringBuilder we'll keep around for reuse by serializeToReusableStringBuilder(...) - anything bigger is thrown away after use so
+    //      an unusually large span doesn't pin a big buffer to the thread forever.
+    private static final int MAX_REUSABLE_STRING_BUILDER_CAPACITY = 16 * 1024;
+
+    /**
+     * The clock used for span start times and durations. See {@link #setSpanClock(SpanClock)}.
+     */
+    private static volatile SpanClock spanClock = new CalibratedSpanClock();
+
+    private static final ThreadLocal<StringBuilder> reusableStringBuilderThreadLocal = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(512);
+        }
+    };
+
     /**
      * Represents a span's intended purpose in the distributed trace. This is not strictly necessary for distributed tracing to work, but it
      * does help give visualizers a hint on the exact relationships between spans and can help sharpen trace analysis.
@@ -128,15 +165,57 @@ public class Span implements AutoCloseable {
     public Span(String traceId, String parentSpanId, String spanId, String spanName, boolean sampleable, String userId,
                 SpanPurpose spanPurpose, long spanStartTimeEpochMicros, Long spanStartTimeNanos, Long durationNanos
     ) {
-        if (traceId == null)
-            throw new IllegalArgumentException("traceId cannot be null");
+        this(traceId, 0, 0, parentSpanId, 0, spanId, 0, 0, spanName, sampleable, userId, spanPurpose, spanStartTimeEpochMicros,
+             spanStartTimeNanos, durationNanos);
+    }
+
+    /**
+     * The constructor that does the real work. Any ID whose bit is set in {@code idFlags} is taken from the given primitive long(s) and its string
+     * argument is treated as an already-rendered cache of the same value (or null if it hasn't been rendered yet). Any other non-null ID string is
+     * parsed into its primitive long form if it is canonical lowercase hex.
+     */
+    private Span(String traceId, long traceIdHigh, long traceIdLow, String parentSpanId, long parentSpanIdLong, String spanId, long spanIdLong,
+                 int idFlags, String spanName, boolean sampleable, String userId, SpanPurpose spanPurpose, long spanStartTimeEpochMicros,
+                 Long spanStartTimeNanos, Long durationNanos
+    ) {
+        if ((idFlags & NUMERIC_TRACE_ID) == 0) {
+            if (traceId == null)
+                throw new IllegalArgumentException("traceId cannot be null");
+
+            if (isLowerHexId(traceId, 16)) {
+                traceIdLow = TraceAndSpanIdGenerator.ZipkinHexHelpers.lowerHexToUnsignedLong(traceId, 0);
+                idFlags |= NUMERIC_TRACE_ID;
+            }
+            else if (isLowerHexId(traceId, 32)) {
+                traceIdHigh = TraceAndSpanIdGenerator.ZipkinHexHelpers.lowerHexToUnsignedLong(traceId, 0);
+                traceIdLow = TraceAndSpanIdGenerator.ZipkinHexHelpers.lowerHexToUnsignedLong(traceId, 16);
+                idFlags |= TRACE_ID_FLAGS;
+            }
+        }
+
+        if ((idFlags & NUMERIC_SPAN_ID) == 0) {
+            if (spanId == null)
+                throw new IllegalArgumentException("spanId cannot be null");
+
+            if (isLowerHexId(spanId, 16)) {
+                spanIdLong = TraceAndSpanIdGenerator.ZipkinHexHelpers.lowerHexToUnsignedLong(spanId, 0);
+                idFlags |= NUMERIC_SPAN_ID;
+            }
+        }
 
-        if (spanId == null)
-            throw new IllegalArgumentException("spanId cannot be null");
+        if ((idFlags & NUMERIC_PARENT_SPAN_ID) == 0 && isLowerHexId(parentSpanId, 16)) {
+            parentSpanIdLong = TraceAndSpanIdGenerator.ZipkinHexHelpers.lowerHexToUnsignedLong(parentSpanId, 0);
+            idFlags |= NUMERIC_PARENT_SPAN_ID;
+        }
 
         if (spanName == null)
             throw new IllegalArgumentException("spanName cannot be null");
 
+        this.idFlags = idFlags;
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanIdLong = spanIdLong;
+        this.parentSpanIdLong = parentSpanIdLong;
         this.traceId = traceId;
         this.spanId = spanId;
         this.parentSpanId = parentSpanId;
@@ -145,11 +224,12 @@ public class Span implements AutoCloseable {
         this.userId = userId;
         this.spanStartTimeEpochMicros = spanStartTimeEpochMicros;
         if (spanStartTimeNanos == null) {
-            // No start time nanos was sent. Calculate it as best we can based on spanStartTimeEpochMicros, the current epoch time, and current nano time.
-            long currentTimeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
-            long currentDurationMicros = currentTimeEpochMicros - spanStartTimeEpochMicros;
+            // No start time nanos was sent. Calculate it as best we can based on spanStartTimeEpochMicros and the current time.
+            SpanClock clock = spanClock;
+            long currentNanos = clock.nanoTime();
+            long currentDurationMicros = clock.toEpochMicros(currentNanos) - spanStartTimeEpochMicros;
             long nanoStartTimeOffset = TimeUnit.MICROSECONDS.toNanos(currentDurationMicros);
-            spanStartTimeNanos = System.nanoTime() - nanoStartTimeOffset;
+            spanStartTimeNanos = currentNanos - nanoStartTimeOffset;
         }
         this.spanStartTimeNanos = spanStartTimeNanos;
 
@@ -187,20 +267,49 @@ public class Span implements AutoCloseable {
      * @return A new uncompleted span representing a child of this instance. The returned instance's {@link #getParentSpanId()} will be this instance's
      *          {@link #getSpanId()}, its {@link #getSpanName()} will be the given value, its {@link #getSpanId()} will be randomly generated, and its
      *          {@link #getSpanStartTimeEpochMicros()} and {@link #getSpanStartTimeNanos()} values will be set to the appropriate values based on when this
-     *          method is called. It will share this instance's {@link #getTraceId()}, {@link #isSampleable()}, and {@link #getUserId()} values.
+     *          method is called. It will share this instance's {@link #getTraceId()}, {@link #isSampleable()}, and {@link #getUserId()} values. The child's
+     *          epoch start time is this span's plus the nanoseconds elapsed since this span started, so it never sorts before this span.
      */
     public Span generateChildSpan(String spanName, SpanPurpose spanPurpose) {
-        return Span.newBuilder(this)
-                   .withParentSpanId(this.spanId)
+        long childStartTimeNanos = spanClock.nanoTime();
+        long childStartTimeEpochMicros = spanStartTimeEpochMicros + TimeUnit.NANOSECONDS.toMicros(childStartTimeNanos - spanStartTimeNanos);
+
+        Builder builder = Span.newBuilder(this);
+        if ((idFlags & NUMERIC_SPAN_ID) != 0)
+            builder.withParentSpanId(spanIdLong);
+        else
+            builder.withParentSpanId(spanId);
+
+        return builder
                    .withSpanName(spanName)
-                   .withSpanId(TraceAndSpanIdGenerator.generateId())
-                   .withSpanStartTimeEpochMicros(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()))
-                   .withSpanStartTimeNanos(System.nanoTime())
+                   .withSpanId(TraceAndSpanIdGenerator.generate64BitRandomLong())
+                   .withSpanStartTimeEpochMicros(childStartTimeEpochMicros)
+                   .withSpanStartTimeNanos(childStartTimeNanos)
                    .withDurationNanos(null)
                    .withSpanPurpose(spanPurpose)
                    .build();
     }
 
+    /**
+     * Sets the {@link SpanClock} that will be used for span start times and durations from now on. This is a global setting that affects the entire JVM.
+     * The default is a {@link CalibratedSpanClock}. Tests can pass in a clock they control to get deterministic timestamps and durations.
+     *
+     * @param clock The clock to use - cannot be null.
+     */
+    public static void setSpanClock(SpanClock clock) {
+        if (clock == null)
+            throw new IllegalArgumentException("spanClock cannot be null");
+
+        spanClock = clock;
+    }
+
+    /**
+     * @return The {@link SpanClock} currently being used for span start times and durations.
+     */
+    public static SpanClock getSpanClock() {
+        return spanClock;
+    }
+
     /**
      * @param spanName The {@link Span#getSpanName()} to initialize the builder with.
      * @param spanPurpose The {@link SpanPurpose} to initialize the builder with. See the javadocs for {@link SpanPurpose} for full details on what each enum
@@ -219,6 +328,11 @@ public class Span implements AutoCloseable {
      */
     public static Builder newBuilder(Span copy) {
         Builder builder = new Builder(copy.spanName, copy.spanPurpose);
+        builder.idFlags = copy.idFlags;
+        builder.traceIdHigh = copy.traceIdHigh;
+        builder.traceIdLow = copy.traceIdLow;
+        builder.spanIdLong = copy.spanIdLong;
+        builder.parentSpanIdLong = copy.parentSpanIdLong;
         builder.traceId = copy.traceId;
         builder.spanId = copy.spanId;
         builder.parentSpanId = copy.parentSpanId;
@@ -237,7 +351,20 @@ public class Span implements AutoCloseable {
      *          (see {@link TraceAndSpanIdGenerator#generateId()} for details).
      */
     public String getTraceId() {
-        return traceId;
+        String result = traceId;
+        if (result == null) {
+            if ((idFlags & TRACE_ID_128_BIT) != 0) {
+                char[] chars = new char[32];
+                TraceAndSpanIdGenerator.writeUnsignedLowerHex(traceIdHigh, chars, 0);
+                TraceAndSpanIdGenerator.writeUnsignedLowerHex(traceIdLow, chars, 16);
+                result = new String(chars);
+            }
+            else {
+                result = TraceAndSpanIdGenerator.longToUnsignedLowerHexString(traceIdLow);
+            }
+            traceId = result;
+        }
+        return result;
     }
 
     /**
@@ -247,7 +374,12 @@ public class Span implements AutoCloseable {
      *          lowercase hex-encoded 64-bit long-integer value (see {@link TraceAndSpanIdGenerator#generateId()} for details).
      */
     public String getSpanId() {
-        return spanId;
+        String result = spanId;
+        if (result == null) {
+            result = TraceAndSpanIdGenerator.longToUnsignedLowerHexString(spanIdLong);
+            spanId = result;
+        }
+        return result;
     }
 
     /**
@@ -257,7 +389,87 @@ public class Span implements AutoCloseable {
      *          (see {@link TraceAndSpanIdGenerator#generateId()} for details).
      */
     public String getParentSpanId() {
-        return parentSpanId;
+        String result = parentSpanId;
+        if (result == null && (idFlags & NUMERIC_PARENT_SPAN_ID) != 0) {
+            result = TraceAndSpanIdGenerator.longToUnsignedLowerHexString(parentSpanIdLong);
+            parentSpanId = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return true if {@link #getTraceId()} is a 128-bit ID (32 hex characters), false if it's a 64-bit ID (16 hex characters) or in some other
+     *          format.
+     */
+    public boolean is128BitTraceId() {
+        if ((idFlags & NUMERIC_TRACE_ID) != 0)
+            return (idFlags & TRACE_ID_128_BIT) != 0;
+
+        return traceId.length() == 32;
+    }
+
+    /**
+     * @return The upper 64 bits of {@link #getTraceId()} if it's a 128-bit ID (see {@link #is128BitTraceId()}), or 0 if it's a 64-bit ID.
+     *          This does not need to parse {@link #getTraceId()} for IDs generated by wingtips or received in the canonical lowercase hex format.
+     *          A {@link NumberFormatException} will be thrown if {@link #getTraceId()} is not lowercase hex.
+     */
+    public long getTraceIdHighBits() {
+        if ((idFlags & NUMERIC_TRACE_ID) != 0)
+            return traceIdHigh;
+
+        return (traceId.length() == 32) ? TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(traceId, 0) : 0;
+    }
+
+    /**
+     * @return The lower 64 bits of {@link #getTraceId()} (i.e. the entire value for a 64-bit ID). This does not need to parse {@link #getTraceId()}
+     *          for IDs generated by wingtips or received in the canonical lowercase hex format. A {@link NumberFormatException} will be thrown if
+     *          {@link #getTraceId()} is not lowercase hex.
+     */
+    public long getTraceIdLowBits() {
+        if ((idFlags & NUMERIC_TRACE_ID) != 0)
+            return traceIdLow;
+
+        return TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(traceId);
+    }
+
+    /**
+     * @return {@link #getSpanId()} as a primitive long. This does not need to parse {@link #getSpanId()} for IDs generated by wingtips or received
+     *          in the canonical lowercase hex format. A {@link NumberFormatException} will be thrown if {@link #getSpanId()} is not lowercase hex.
+     */
+    public long getSpanIdAsLong() {
+        if ((idFlags & NUMERIC_SPAN_ID) != 0)
+            return spanIdLong;
+
+        return TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(spanId);
+    }
+
+    /**
+     * @return {@link #getParentSpanId()} as a long, or null if this span has no parent. This does not need to parse {@link #getParentSpanId()} for
+     *          IDs generated by wingtips or received in the canonical lowercase hex format. A {@link NumberFormatException} will be thrown if
+     *          {@link #getParentSpanId()} is not lowercase hex.
+     */
+    public Long getParentSpanIdAsLong() {
+        if ((idFlags & NUMERIC_PARENT_SPAN_ID) != 0)
+            return parentSpanIdLong;
+
+        return (parentSpanId == null) ? null : TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(parentSpanId);
+    }
+
+    /**
+     * @return true if the given ID is exactly {@code expectedLength} lowercase hex characters, false otherwise (including when it's null). Only IDs
+     *          in this canonical format can be stored as primitive longs, since they're the only ones that render back to exactly the same string.
+     */
+    protected static boolean isLowerHexId(String id, int expectedLength) {
+        if (id == null || id.length() != expectedLength)
+            return false;
+
+        for (int i = 0; i < expectedLength; i++) {
+            char c = id.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+                return false;
+        }
+
+        return true;
     }
 
     /**
@@ -282,17 +494,17 @@ public class Span implements AutoCloseable {
     }
 
     /**
-     * @return The start timestamp of the span in epoch microseconds (*not* milliseconds!). NOTE: Due to java limitations this currently only has millisecond
-     *          resolution (i.e. this was generated by converting {@link System#currentTimeMillis()} to microseconds), however other timestamps generated
-     *          for this span will be generated relative to this starting timestamp using microsecond resolution by utilizing {@link System#nanoTime()} to
-     *          calculate differences.
+     * @return The start timestamp of the span in epoch microseconds (*not* milliseconds!). This comes from the {@link SpanClock} (see {@link
+     *          #setSpanClock(SpanClock)}) - the default {@link CalibratedSpanClock} has microsecond resolution and stays within a millisecond of {@link
+     *          System#currentTimeMillis()}. Child spans derive theirs from their parent's using {@link SpanClock#nanoTime()} differences.
      */
     public long getSpanStartTimeEpochMicros() {
         return spanStartTimeEpochMicros;
     }
 
     /**
-     * @return The start time of the span - calculated by calling {@link System#nanoTime()} when the constructor for this instance was called. WARNING: As per the
+     * @return The start time of the span - calculated by calling {@link SpanClock#nanoTime()} (which is {@link System#nanoTime()} by default) when the
+     *          constructor for this instance was called. WARNING: As per the
      *          javadocs for {@link System#nanoTime()} this value is *NOT* an epoch value like {@link System#currentTimeMillis()} - it is only usable when
      *          comparing against other {@link System#nanoTime()} calls performed on the *same JVM*.
      */
@@ -309,7 +521,7 @@ public class Span implements AutoCloseable {
     }
 
     /**
-     * Indicates that this {@link Span} is completed/finished/finalized and sets {@link #getDurationNanos()} to be {@link System#nanoTime()} minus
+     * Indicates that this {@link Span} is completed/finished/finalized and sets {@link #getDurationNanos()} to be {@link SpanClock#nanoTime()} minus
      * {@link #getSpanStartTimeNanos()}. After this is called then {@link #isCompleted()} will return true and {@link #getDurationNanos()} will return
      * the value calculated here. An {@link IllegalStateException} will be thrown if this method is called after the span has already been completed.
      * <p/>
@@ -319,7 +531,7 @@ public class Span implements AutoCloseable {
         if (this.durationNanos != null)
             throw new IllegalStateException("This Span is already completed.");
 
-        this.durationNanos = System.nanoTime() - spanStartTimeNanos;
+        this.durationNanos = spanClock.nanoTime() - spanStartTimeNanos;
         // We need to recalculate the JSON and/or key/value representation(s) of this span now that the state of the span has been modified.
         // By setting a cached value to null it will be regenerated the next time it is requested.
         cachedJsonRepresentation = null;
@@ -378,43 +590,73 @@ public class Span implements AutoCloseable {
      * Calculates and returns the key=value representation of this span instance.
      */
     protected String calculateKeyValueString() {
-        StringBuilder builder = new StringBuilder();
+        return serializeToReusableStringBuilder(false).toString();
+    }
+
+    /**
+     * Appends the key=value representation of this span (the same output as {@link #toKeyValueString()}) to the given {@link StringBuilder}
+     * without creating any intermediate objects - IDs are written straight into the builder as hex even if they haven't been rendered to strings.
+     *
+     * @return The given {@link StringBuilder}, for chaining.
+     */
+    public StringBuilder appendKeyValueString(StringBuilder builder) {
+        String cached = cachedKeyValueRepresentation;
+        if (cached != null)
+            return builder.append(cached);
+
+        return appendKeyValueFields(builder);
+    }
 
-        builder.append(TRACE_ID_FIELD).append("=").append(traceId);
-        builder.append(",").append(PARENT_SPAN_ID_FIELD).append("=").append(parentSpanId);
-        builder.append(",").append(SPAN_ID_FIELD).append("=").append(spanId);
+    /**
+     * Writes the key=value representation of this span (the same output as {@link #toKeyValueString()}) to the given {@link Appendable}. If the
+     * {@link Appendable} is a {@link StringBuilder} this is the same as {@link #appendKeyValueString(StringBuilder)}, otherwise the span is
+     * serialized into a reusable per-thread buffer which is then appended in one call.
+     */
+    public void writeKeyValueString(Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            appendKeyValueString((StringBuilder) out);
+            return;
+        }
+
+        out.append(serializeToReusableStringBuilder(false));
+    }
+
+    /**
+     * Writes the key=value representation of this span (the same output as {@link #toKeyValueString()}) to the given {@link ByteBuffer} as UTF-8,
+     * starting at the buffer's current position. A {@link java.nio.BufferOverflowException} will be thrown if the buffer doesn't have enough room.
+     */
+    public void writeKeyValueStringUtf8(ByteBuffer dest) {
+        Utf8Util.encode(serializeToReusableStringBuilder(false), dest);
+    }
+
+    protected StringBuilder appendKeyValueFields(StringBuilder builder) {
+        builder.append(TRACE_ID_FIELD).append("=");
+        appendTraceId(builder, false);
+        builder.append(",").append(PARENT_SPAN_ID_FIELD).append("=");
+        appendParentSpanId(builder, false);
+        builder.append(",").append(SPAN_ID_FIELD).append("=");
+        appendSpanId(builder, false);
         builder.append(",").append(SPAN_NAME_FIELD).append("=").append(spanName);
         builder.append(",").append(SAMPLEABLE_FIELD).append("=").append(sampleable);
         builder.append(",").append(USER_ID_FIELD).append("=").append(userId);
         builder.append(",").append(SPAN_PURPOSE_FIELD).append("=").append(spanPurpose.name());
         builder.append(",").append(START_TIME_EPOCH_MICROS_FIELD).append("=").append(spanStartTimeEpochMicros);
         if (isCompleted()) {
-            builder.append(",").append(DURATION_NANOS_FIELD).append("=").append(durationNanos);
+            builder.append(",").append(DURATION_NANOS_FIELD).append("=").append(durationNanos.longValue());
         }
 
-        return builder.toString();
+        return builder;
     }
 
     /**
      * @return The {@link Span} represented by the given key/value string, or null if a proper span could not be deserialized from the given string.
-     *          <b>WARNING:</b> This method assumes the string you're trying to deserialize originally came from
-     *          {@link #toKeyValueString()}. This assumption allows it to be as fast as possible, not worry about syntactically-correct-but-annoying-to-deal-with whitespace,
-     *          not have to use a third party utility, etc.
+     *          The string is expected to be in the format output by {@link #toKeyValueString()}, but the fields may be in any order, unknown fields
+     *          are ignored, and values may contain commas (a comma only ends a value when it's followed by another {@code key=} pair). It's parsed in
+     *          a single pass without any intermediate map or regex splitting.
      */
     public static Span fromKeyValueString(String keyValueStr) {
         try {
-            // Create a map of keys to values.
-            Map<String, String> map = new HashMap<>();
-
-            // Split on the commas that separate the key/value pairs.
-            String[] fieldPairs = keyValueStr.split(",");
-            for (String fieldPair : fieldPairs) {
-                // Split again on the equals character that separate the field's key from its value.
-                String[] keyVal = fieldPair.split("=");
-                map.put(keyVal[0], keyVal[1]);
-            }
-
-            return fromKeyValueMap(map);
+            return SpanParser.parseKeyValueString(keyValueStr);
         } catch (Exception e) {
             logger.error("Error extracting Span from key/value string. Defaulting to null. bad_span_key_value_string={}", keyValueStr, e);
             return null;
@@ -439,105 +681,189 @@ public class Span implements AutoCloseable {
      * (e.g. Jackson) just for building a simple JSON string.
      */
     protected String calculateJson() {
-        StringBuilder builder = new StringBuilder();
+        return serializeToReusableStringBuilder(true).toString();
+    }
 
-        builder.append("{\"").append(TRACE_ID_FIELD).append("\":\"").append(traceId);
-        builder.append("\",\"").append(PARENT_SPAN_ID_FIELD).append("\":\"").append(parentSpanId);
-        builder.append("\",\"").append(SPAN_ID_FIELD).append("\":\"").append(spanId);
-        builder.append("\",\"").append(SPAN_NAME_FIELD).append("\":\"").append(spanName);
+    /**
+     * Appends the JSON representation of this span (the same output as {@link #toJSON()}) to the given {@link StringBuilder} without creating
+     * any intermediate objects - IDs are written straight into the builder as hex even if they haven't been rendered to strings.
+     *
+     * @return The given {@link StringBuilder}, for chaining.
+     */
+    public StringBuilder appendJson(StringBuilder builder) {
+        String cached = cachedJsonRepresentation;
+        if (cached != null)
+            return builder.append(cached);
+
+        return appendJsonFields(builder);
+    }
+
+    /**
+     * Writes the JSON representation of this span (the same output as {@link #toJSON()}) to the given {@link Appendable}. If the
+     * {@link Appendable} is a {@link StringBuilder} this is the same as {@link #appendJson(StringBuilder)}, otherwise the span is serialized
+     * into a reusable per-thread buffer which is then appended in one call.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            appendJson((StringBuilder) out);
+            return;
+        }
+
+        out.append(serializeToReusableStringBuilder(true));
+    }
+
+    /**
+     * Writes the JSON representation of this span (the same output as {@link #toJSON()}) to the given {@link ByteBuffer} as UTF-8, starting at
+     * the buffer's current position. A {@link java.nio.BufferOverflowException} will be thrown if the buffer doesn't have enough room.
+     */
+    public void writeJsonUtf8(ByteBuffer dest) {
+        Utf8Util.encode(serializeToReusableStringBuilder(true), dest);
+    }
+
+    /**
+     * @return This span serialized as JSON or key=value (based on the {@code json} argument) into a {@link StringBuilder} that is reused by the
+     *          current thread. The result is only valid until the next call to this method on the same thread, so it must be copied or written out
+     *          immediately. Virtual threads get a new builder every time rather than a {@link ThreadLocal} one, since they rarely live long enough to
+     *          reuse it.
+     */
+    protected StringBuilder serializeToReusableStringBuilder(boolean json) {
+        if (VirtualThreadUtil.isCurrentThreadVirtual()) {
+            StringBuilder builder = new StringBuilder(512);
+            return json ? appendJson(builder) : appendKeyValueString(builder);
+        }
+
+        StringBuilder builder = reusableStringBuilderThreadLocal.get();
+        if (builder.capacity() > MAX_REUSABLE_STRING_BUILDER_CAPACITY) {
+            builder = new StringBuilder(512);
+            reusableStringBuilderThreadLocal.set(builder);
+        }
+        builder.setLength(0);
+
+        return json ? appendJson(builder) : appendKeyValueString(builder);
+    }
+
+    protected StringBuilder appendJsonFields(StringBuilder builder) {
+        builder.append("{\"").append(TRACE_ID_FIELD).append("\":\"");
+        appendTraceId(builder, true);
+        builder.append("\",\"").append(PARENT_SPAN_ID_FIELD).append("\":\"");
+        appendParentSpanId(builder, true);
+        builder.append("\",\"").append(SPAN_ID_FIELD).append("\":\"");
+        appendSpanId(builder, true);
+        builder.append("\",\"").append(SPAN_NAME_FIELD).append("\":\"");
+        appendJsonEscaped(builder, spanName);
         builder.append("\",\"").append(SAMPLEABLE_FIELD).append("\":\"").append(sampleable);
-        builder.append("\",\"").append(USER_ID_FIELD).append("\":\"").append(userId);
+        builder.append("\",\"").append(USER_ID_FIELD).append("\":\"");
+        appendJsonEscaped(builder, userId);
         builder.append("\",\"").append(SPAN_PURPOSE_FIELD).append("\":\"").append(spanPurpose.name());
         builder.append("\",\"").append(START_TIME_EPOCH_MICROS_FIELD).append("\":\"").append(spanStartTimeEpochMicros);
         if (isCompleted()) {
-            builder.append("\",\"").append(DURATION_NANOS_FIELD).append("\":\"").append(durationNanos);
+            builder.append("\",\"").append(DURATION_NANOS_FIELD).append("\":\"").append(durationNanos.longValue());
         }
         builder.append("\"}");
 
-        return builder.toString();
+        return builder;
     }
 
     /**
-     * @return The {@link Span} represented by the given JSON string, or null if a proper span could not be deserialized from the given string.
-     *          <b>WARNING:</b> This method assumes the JSON you're trying to deserialize originally came from {@link #toJSON()}.
-     *          This assumption allows it to be as fast as possible, not have to check for malformed JSON, not worry about syntactically-correct-but-annoying-to-deal-with whitespace,
-     *          not have to use a third party utility like Jackson, etc.
+     * Appends the given value with any double quotes, backslashes, and control characters escaped so it can be embedded in a JSON string. Values
+     * that don't need escaping (the common case) are appended as-is. A null value is appended as {@code null}, which {@link #fromJSON(String)}
+     * treats as a null value.
      */
-    public static Span fromJSON(String json) {
-        try {
-            // Create a map of JSON field keys to values.
-            Map<String, String> map = new HashMap<>();
-
-            // Strip off the {" and "} at the beginning/end.
-            String innerJsonCore = json.substring(2, json.length() - 2);
-            // Split on the doublequotes-comma-doublequotes that separate the fields.
-            String[] fieldPairs = innerJsonCore.split("\",\"");
-            for (String fieldPair : fieldPairs) {
-                // Split again on the doublequotes-colon-doublequotes that separate the field's key from its value. At this point all double-quotes have been stripped off
-                // and we can just map the key to the value.
-                String[] keyVal = fieldPair.split("\":\"");
-                map.put(keyVal[0], keyVal[1]);
-            }
-
-            return fromKeyValueMap(map);
-        } catch (Exception e) {
-            logger.error("Error extracting Span from JSON. Defaulting to null. bad_span_json={}", json, e);
-            return null;
+    private static void appendJsonEscaped(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append((String) null);
+            return;
         }
-    }
 
-    private static Span fromKeyValueMap(Map<String, String> map) {
-        // Use the map to get the field values for the span.
-        String traceId = nullSafeGetString(map, TRACE_ID_FIELD);
-        String spanId = nullSafeGetString(map, SPAN_ID_FIELD);
-        String parentSpanId = nullSafeGetString(map, PARENT_SPAN_ID_FIELD);
-        String spanName = nullSafeGetString(map, SPAN_NAME_FIELD);
-        Boolean sampleable = nullSafeGetBoolean(map, SAMPLEABLE_FIELD);
-        if (sampleable == null)
-            throw new IllegalStateException("Unable to parse " + SAMPLEABLE_FIELD + " from JSON");
-        String userId = nullSafeGetString(map, USER_ID_FIELD);
-        Long startTimeEpochMicros = nullSafeGetLong(map, START_TIME_EPOCH_MICROS_FIELD);
-        if (startTimeEpochMicros == null)
-            throw new IllegalStateException("Unable to parse " + START_TIME_EPOCH_MICROS_FIELD + " from JSON");
-        Long durationNanos = nullSafeGetLong(map, DURATION_NANOS_FIELD);
-        SpanPurpose spanPurpose = nullSafeGetSpanPurpose(map, SPAN_PURPOSE_FIELD);
-        return new Span(traceId, parentSpanId, spanId, spanName, sampleable, userId, spanPurpose, startTimeEpochMicros, null, durationNanos);
-    }
-
-    private static String nullSafeGetString(Map<String, String> map, String key) {
-        String value = map.get(key);
-        if (value == null || value.equals("null"))
-            return null;
+        int length = value.length();
+        int flushedUpTo = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+
+            builder.append(value, flushedUpTo, i);
+            flushedUpTo = i + 1;
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    builder.append("\\u00");
+                    char[] hexDigits = TraceAndSpanIdGenerator.ZipkinHexHelpers.HEX_DIGITS;
+                    builder.append(hexDigits[c >> 4]).append(hexDigits[c & 0xf]);
+                    break;
+            }
+        }
 
-        return value;
+        if (flushedUpTo == 0)
+            builder.append(value);
+        else
+            builder.append(value, flushedUpTo, length);
     }
 
-    private static Long nullSafeGetLong(Map<String, String> map, String key) {
-        String value = nullSafeGetString(map, key);
-        if (value == null)
-            return null;
+    // The append*Id(...) methods write an ID's cached string if it has one (JSON-escaped if requested, since IDs that weren't generated by us
+    //      can contain anything), otherwise they write the primitive value as hex without rendering (or caching) a string.
+    private void appendTraceId(StringBuilder builder, boolean jsonEscape) {
+        String cached = traceId;
+        if (cached != null) {
+            appendIdString(builder, cached, jsonEscape);
+            return;
+        }
 
-        return Long.parseLong(value);
+        if ((idFlags & TRACE_ID_128_BIT) != 0)
+            TraceAndSpanIdGenerator.appendUnsignedLowerHex(builder, traceIdHigh);
+
+        TraceAndSpanIdGenerator.appendUnsignedLowerHex(builder, traceIdLow);
     }
 
-    private static Boolean nullSafeGetBoolean(Map<String, String> map, String key) {
-        String value = nullSafeGetString(map, key);
-        if (value == null)
-            return null;
+    private void appendSpanId(StringBuilder builder, boolean jsonEscape) {
+        String cached = spanId;
+        if (cached != null)
+            appendIdString(builder, cached, jsonEscape);
+        else
+            TraceAndSpanIdGenerator.appendUnsignedLowerHex(builder, spanIdLong);
+    }
 
-        return Boolean.parseBoolean(value);
+    private void appendParentSpanId(StringBuilder builder, boolean jsonEscape) {
+        String cached = parentSpanId;
+        if (cached != null || (idFlags & NUMERIC_PARENT_SPAN_ID) == 0)
+            appendIdString(builder, cached, jsonEscape);
+        else
+            TraceAndSpanIdGenerator.appendUnsignedLowerHex(builder, parentSpanIdLong);
     }
 
-    private static SpanPurpose nullSafeGetSpanPurpose(Map<String, String> map, String key) {
-        String value = nullSafeGetString(map, key);
-        if (value == null)
-            return null;
+    private static void appendIdString(StringBuilder builder, String id, boolean jsonEscape) {
+        if (jsonEscape)
+            appendJsonEscaped(builder, id);
+        else
+            builder.append(id);
+    }
 
+    /**
+     * @return The {@link Span} represented by the given JSON string, or null if a proper span could not be deserialized from the given string.
+     *          The JSON is expected to be a flat object with the fields output by {@link #toJSON()}, but the fields may be in any order, unknown
+     *          fields are ignored, whitespace between tokens is allowed, and string values may contain JSON escape sequences. It's parsed in a single
+     *          pass straight into a {@link Builder} without any intermediate map or regex splitting, and without having to use a third party utility
+     *          like Jackson.
+     */
+    public static Span fromJSON(String json) {
         try {
-            return SpanPurpose.valueOf(value);
-        }
-        catch(Exception ex) {
-            logger.warn("Unable to parse \"{}\" to a SpanPurpose enum. Received exception: {}", value, ex.toString());
+            return SpanParser.parseJson(json);
+        } catch (Exception e) {
+            logger.error("Error extracting Span from JSON. Defaulting to null. bad_span_json={}", json, e);
             return null;
         }
     }
@@ -592,12 +918,19 @@ public class Span implements AutoCloseable {
             return false;
         }
         Span span = (Span) o;
+        // An ID is held as primitive long(s) if and only if it's canonical lowercase hex, so two spans have equal IDs exactly when their
+        //      idFlags and primitive values match, and any IDs that aren't held as primitives have equal strings.
         return sampleable == span.sampleable &&
                spanStartTimeEpochMicros == span.spanStartTimeEpochMicros &&
                spanPurpose == span.spanPurpose &&
-               Objects.equals(traceId, span.traceId) &&
-               Objects.equals(spanId, span.spanId) &&
-               Objects.equals(parentSpanId, span.parentSpanId) &&
+               idFlags == span.idFlags &&
+               traceIdHigh == span.traceIdHigh &&
+               traceIdLow == span.traceIdLow &&
+               spanIdLong == span.spanIdLong &&
+               parentSpanIdLong == span.parentSpanIdLong &&
+               ((idFlags & NUMERIC_TRACE_ID) != 0 || Objects.equals(traceId, span.traceId)) &&
+               ((idFlags & NUMERIC_SPAN_ID) != 0 || Objects.equals(spanId, span.spanId)) &&
+               ((idFlags & NUMERIC_PARENT_SPAN_ID) != 0 || Objects.equals(parentSpanId, span.parentSpanId)) &&
                Objects.equals(spanName, span.spanName) &&
                Objects.equals(userId, span.userId) &&
                Objects.equals(durationNanos, span.durationNanos);
@@ -605,14 +938,26 @@ public class Span implements AutoCloseable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(traceId, spanId, parentSpanId, spanName, sampleable, userId, spanPurpose, spanStartTimeEpochMicros, durationNanos);
+        return Objects.hash(
+            idHashCode(NUMERIC_TRACE_ID, traceIdHigh ^ traceIdLow, traceId),
+            idHashCode(NUMERIC_SPAN_ID, spanIdLong, spanId),
+            idHashCode(NUMERIC_PARENT_SPAN_ID, parentSpanIdLong, parentSpanId),
+            spanName, sampleable, userId, spanPurpose, spanStartTimeEpochMicros, durationNanos
+        );
+    }
+
+    private int idHashCode(int numericFlag, long numericValue, String stringValue) {
+        if ((idFlags & numericFlag) != 0)
+            return (int) (numericValue ^ (numericValue >>> 32));
+
+        return (stringValue == null) ? 0 : stringValue.hashCode();
     }
 
     /**
      * Builder for creating {@link Span} objects.
      * <p/>
      * IMPORTANT NOTE: Calling {@link #build()} will choose sensible defaults for {@code traceId} and {@code spanId} if they are null when {@link #build()} is called by
-     *                 calling {@link TraceAndSpanIdGenerator#generateId()} for each, and will default {@code spanStartTimeNanos} to {@link System#nanoTime()}.
+     *                 calling {@link TraceAndSpanIdGenerator#generate64BitRandomLong()} for each, and will default {@code spanStartTimeNanos} to {@link System#nanoTime()}.
      *                 This allows you to generate a fresh "root" span by creating a new instance of this builder and immediately calling {@link #build()}
      *                 without any further parameters being set. The simplest way to generate a child span is to get your hands on the parent span and call
      *                 {@link Span#generateChildSpan(String, SpanPurpose)} rather than use this builder directly. For any other use cases you can use this
@@ -621,6 +966,12 @@ public class Span implements AutoCloseable {
     public static final class Builder {
         private static final Logger builderLogger = LoggerFactory.getLogger(Builder.class);
 
+        // IDs set via the primitive long with*(...) methods have their bit set in idFlags (see the Span fields with the same names).
+        private int idFlags;
+        private long traceIdHigh;
+        private long traceIdLow;
+        private long spanIdLong;
+        private long parentSpanIdLong;
         private String traceId;
         private String spanId;
         private String parentSpanId;
@@ -642,13 +993,45 @@ public class Span implements AutoCloseable {
          * Don't confuse this with {@link #withSpanId(String)}, which sets the ID for an individual span of work as part of the larger distributed trace.
          * <p/>
          * IMPORTANT NOTE: {@link Span}s are not allowed to have a null trace ID, so if this is null when {@link #build()} is called then the {@link Span} returned by
-         *                 {@link #build()} will have its trace ID defaulted to a new random ID using {@link TraceAndSpanIdGenerator#generateId()}.
+         *                 {@link #build()} will have its trace ID defaulted to a new random ID using {@link TraceAndSpanIdGenerator#generate64BitRandomLong()}.
          *
          * @param traceId the {@code traceId} to set
          * @return a reference to this Builder
          */
         public Builder withTraceId(String traceId) {
             this.traceId = traceId;
+            this.idFlags &= ~TRACE_ID_FLAGS;
+            return this;
+        }
+
+        /**
+         * Sets the trace ID to the given 64-bit value. This is equivalent to calling {@link #withTraceId(String)} with the value rendered by
+         * {@link TraceAndSpanIdGenerator#longToUnsignedLowerHexString(long)}, except the string is only rendered if something asks for it.
+         *
+         * @param traceId the 64-bit {@code traceId} to set
+         * @return a reference to this Builder
+         */
+        public Builder withTraceId(long traceId) {
+            return with128BitTraceId(0, traceId, false);
+        }
+
+        /**
+         * Sets the trace ID to the 128-bit value made up of the given high and low 64 bits. The resulting {@link Span#getTraceId()} will be the
+         * 32 character lowercase hex rendering of the value, but only if something asks for it.
+         *
+         * @param traceIdHigh the upper 64 bits of the {@code traceId} to set
+         * @param traceIdLow the lower 64 bits of the {@code traceId} to set
+         * @return a reference to this Builder
+         */
+        public Builder with128BitTraceId(long traceIdHigh, long traceIdLow) {
+            return with128BitTraceId(traceIdHigh, traceIdLow, true);
+        }
+
+        private Builder with128BitTraceId(long traceIdHigh, long traceIdLow, boolean is128Bit) {
+            this.traceId = null;
+            this.traceIdHigh = traceIdHigh;
+            this.traceIdLow = traceIdLow;
+            this.idFlags = (idFlags & ~TRACE_ID_FLAGS) | (is128Bit ? TRACE_ID_FLAGS : NUMERIC_TRACE_ID);
             return this;
         }
 
@@ -658,13 +1041,28 @@ public class Span implements AutoCloseable {
          * this span instance (the logical "parent" of this span).
          * <p/>
          * IMPORTANT NOTE: {@link Span}s are not allowed to have a null span ID, so if this is null when {@link #build()} is called then the {@link Span} returned by
-         *                 {@link #build()} will have its span ID defaulted to a new random ID using {@link TraceAndSpanIdGenerator#generateId()}.
+         *                 {@link #build()} will have its span ID defaulted to a new random ID using {@link TraceAndSpanIdGenerator#generate64BitRandomLong()}.
          *
          * @param spanId the {@code spanId} to set
          * @return a reference to this Builder
          */
         public Builder withSpanId(String spanId) {
             this.spanId = spanId;
+            this.idFlags &= ~NUMERIC_SPAN_ID;
+            return this;
+        }
+
+        /**
+         * Sets the span ID to the given 64-bit value. This is equivalent to calling {@link #withSpanId(String)} with the value rendered by
+         * {@link TraceAndSpanIdGenerator#longToUnsignedLowerHexString(long)}, except the string is only rendered if something asks for it.
+         *
+         * @param spanId the 64-bit {@code spanId} to set
+         * @return a reference to this Builder
+         */
+        public Builder withSpanId(long spanId) {
+            this.spanId = null;
+            this.spanIdLong = spanId;
+            this.idFlags |= NUMERIC_SPAN_ID;
             return this;
         }
 
@@ -677,6 +1075,21 @@ public class Span implements AutoCloseable {
          */
         public Builder withParentSpanId(String parentSpanId) {
             this.parentSpanId = parentSpanId;
+            this.idFlags &= ~NUMERIC_PARENT_SPAN_ID;
+            return this;
+        }
+
+        /**
+         * Sets the parent span ID to the given 64-bit value. This is equivalent to calling {@link #withParentSpanId(String)} with the value rendered by
+         * {@link TraceAndSpanIdGenerator#longToUnsignedLowerHexString(long)}, except the string is only rendered if something asks for it.
+         *
+         * @param parentSpanId the 64-bit {@code parentSpanId} to set
+         * @return a reference to this Builder
+         */
+        public Builder withParentSpanId(long parentSpanId) {
+            this.parentSpanId = null;
+            this.parentSpanIdLong = parentSpanId;
+            this.idFlags |= NUMERIC_PARENT_SPAN_ID;
             return this;
         }
 
@@ -719,8 +1132,8 @@ public class Span implements AutoCloseable {
          * Sets the start timestamp in microseconds since the epoch for this span (*not* milliseconds), or pass in null if this is a new span and
          * you want this value calculated automatically when {@link #build()} is called.
          * </p>
-         * NOTE: Since Java 7 does not have a reliable way to calculate this value accurately we generally just get as close as we can by turning
-         * {@link System#currentTimeMillis()} into microseconds. That means the start timestamp only has millisecond resolution.
+         * NOTE: When this is null {@link #build()} asks the {@link SpanClock} (see {@link Span#setSpanClock(SpanClock)}) for the current time. The
+         * default {@link CalibratedSpanClock} has microsecond resolution.
          *
          * @param spanStartTimeEpochMicros the {@code spanStartTimeEpochMicros} to set
          * @return a reference to this Builder
@@ -740,13 +1153,13 @@ public class Span implements AutoCloseable {
          *  <ol>
          *      <li>
          *          If {@link #withSpanStartTimeEpochMicros(Long)} is null - this indicates a brand new span is being created on this JVM. This value will be
-         *          set to {@link System#nanoTime()} when {@link #build()} is called. This leads to {@link #getDurationNanos()} being accurate to the
+         *          set to {@link SpanClock#nanoTime()} when {@link #build()} is called. This leads to {@link #getDurationNanos()} being accurate to the
          *          nanosecond, however it is only possible to do this when you start and complete a given span on the same JVM.
          *      </li>
          *      <li>
          *          If {@link #withSpanStartTimeEpochMicros(Long)} is *not* null - this indicates you're deserializing a span that was created on a different
          *          JVM. This nano start time value will then be inferred based on the span's starting timestamp ({@code spanStartTimeEpochMicros}),
-         *          {@link System#currentTimeMillis()}, and {@link System#nanoTime()}. You will lose a little bit of duration resolution compared with starting
+         *          and the current {@link SpanClock} time. You will lose a little bit of duration resolution compared with starting
          *          and completing a span on the same JVM, but it will be reasonable (guaranteed less than 1 millisecond of error).
          *      </li>
          *  </ol>
@@ -801,9 +1214,12 @@ public class Span implements AutoCloseable {
          *  {@link Span#getSpanStartTimeEpochMicros()}, and there are sensible defaults we can set for those values when creating a new span, so if any of them
          *  are null when this method is called it is assumed you are creating a new span and they will be set to the following:
          *  <ul>
-         *      <li>{@code traceId} is defaulted to {@link TraceAndSpanIdGenerator#generateId()}</li>
-         *      <li>{@code spanId} is defaulted to {@link TraceAndSpanIdGenerator#generateId()}</li>
-         *      <li>{@code spanStartTimeEpochMicros} is defaulted to {@link System#currentTimeMillis()} converted to microseconds</li>
+         *      <li>
+         *          {@code traceId} is defaulted to a new random ID from {@link TraceAndSpanIdGenerator#generate64BitRandomLong()} - or a 128-bit ID
+         *          made up of two random longs if {@link TraceAndSpanIdGenerator#isGenerate128BitTraceIds()} is true
+         *      </li>
+         *      <li>{@code spanId} is defaulted to a new random ID from {@link TraceAndSpanIdGenerator#generate64BitRandomLong()}</li>
+         *      <li>{@code spanStartTimeEpochMicros} is defaulted to the current {@link SpanClock} time in microseconds</li>
          *      <ul>
          *          <li>Side note - {@code spanStartTimeNanos} is calculated based on the rules described in {@link #withSpanStartTimeNanos(Long)}</li>
          *      </ul>
@@ -815,28 +1231,48 @@ public class Span implements AutoCloseable {
          * @return a {@code Span} built with parameters of this {@code Span.Builder}
          */
         public Span build() {
-            if (traceId == null)
-                traceId = TraceAndSpanIdGenerator.generateId();
+            if (traceId == null && (idFlags & NUMERIC_TRACE_ID) == 0) {
+                if (TraceAndSpanIdGenerator.isGenerate128BitTraceIds())
+                    with128BitTraceId(TraceAndSpanIdGenerator.generate64BitRandomLong(), TraceAndSpanIdGenerator.generate64BitRandomLong());
+                else
+                    withTraceId(TraceAndSpanIdGenerator.generate64BitRandomLong());
+            }
 
-            if (spanId == null)
-                spanId = TraceAndSpanIdGenerator.generateId();
+            if (spanId == null && (idFlags & NUMERIC_SPAN_ID) == 0)
+                withSpanId(TraceAndSpanIdGenerator.generate64BitRandomLong());
 
+            SpanClock clock = spanClock;
             if (spanStartTimeEpochMicros == null) {
-                spanStartTimeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
                 if (spanStartTimeNanos != null) {
                     // The nano start time was set but the start time in epoch microseconds was *not*.
                     //      This makes no sense, so we'll null out the nano start and log a warning.
                     builderLogger.warn("The builder was setup with a null spanStartTimeEpochMicros and non-null spanStartTimeNanos. This makes no sense "
                                        + "(if you have a nano start time then you should also have the epoch micros start time), so the nano start time "
                                        + "passed into this builder will be ignored and calculated fresh along with the epoch micros start timestamp.");
-                    spanStartTimeNanos = null;
                 }
+                // A single clock reading covers both start times.
+                spanStartTimeNanos = clock.nanoTime();
+                spanStartTimeEpochMicros = clock.toEpochMicros(spanStartTimeNanos);
             }
 
             if (spanStartTimeNanos == null)
-                spanStartTimeNanos = System.nanoTime();
+                spanStartTimeNanos = clock.nanoTime();
+
+            return new Span(traceId, traceIdHigh, traceIdLow, parentSpanId, parentSpanIdLong, spanId, spanIdLong, idFlags, spanName, sampleable,
+                            userId, spanPurpose, spanStartTimeEpochMicros, spanStartTimeNanos, durationNanos);
+        }
+
+        /**
+         * Builds a span that was deserialized from a different JVM (see {@link SpanParser}). Unlike {@link #build()} nothing is generated or
+         * defaulted: missing IDs or span name cause the usual {@link IllegalArgumentException}, and the nano start time is always estimated from
+         * the epoch micros start time since {@link System#nanoTime()} isn't comparable across JVMs.
+         */
+        Span buildDeserialized() {
+            if (spanStartTimeEpochMicros == null)
+                throw new IllegalStateException("spanStartTimeEpochMicros cannot be null");
 
-            return new Span(traceId, parentSpanId, spanId, spanName, sampleable, userId, spanPurpose, spanStartTimeEpochMicros, spanStartTimeNanos, durationNanos);
+            return new Span(traceId, traceIdHigh, traceIdLow, parentSpanId, parentSpanIdLong, spanId, spanIdLong, idFlags, spanName, sampleable,
+                            userId, spanPurpose, spanStartTimeEpochMicros, null, durationNanos);
         }
     }
 }
@@ -0,0 +1,485 @@
+package com.nike.wingtips;
+
+import com.nike.wingtips.Span.SpanPurpose;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.nike.wingtips.Span.DURATION_NANOS_FIELD;
+import static com.nike.wingtips.Span.PARENT_SPAN_ID_FIELD;
+import static com.nike.wingtips.Span.SAMPLEABLE_FIELD;
+import static com.nike.wingtips.Span.SPAN_ID_FIELD;
+import static com.nike.wingtips.Span.SPAN_NAME_FIELD;
+import static com.nike.wingtips.Span.SPAN_PURPOSE_FIELD;
+import static com.nike.wingtips.Span.START_TIME_EPOCH_MICROS_FIELD;
+import static com.nike.wingtips.Span.TRACE_ID_FIELD;
+import static com.nike.wingtips.Span.USER_ID_FIELD;
+
+/**
+ * Single-pass cursor parsers backing {@link Span#fromJSON(String)} and {@link Span#fromKeyValueString(String)}. Fields are read straight out
+ * of the source string into a {@link Span.Builder} - there's no intermediate map, no {@code String.split(...)} regexes, and no substrings for
+ * the IDs or numeric fields. The only strings created are for span name, user ID, and any ID that isn't canonical lowercase hex.
+ *
+ * <p>Both parsers accept the fields in any order, ignore fields they don't know about, and treat a value of {@code null} the same as a missing
+ * field. The JSON parser also accepts whitespace between tokens, unquoted values (e.g. {@code "sampleable":true}), and the standard JSON string
+ * escapes including {@code \\uXXXX}. The key/value format has no escaping, so a comma only ends a value when it is followed by another
+ * {@code key=} pair - this lets span names containing commas survive a round trip.
+ *
+ * <p>Malformed input results in an {@link IllegalArgumentException} describing where parsing failed, and input that is missing the required
+ * {@link Span#SAMPLEABLE_FIELD} or {@link Span#START_TIME_EPOCH_MICROS_FIELD} results in an {@link IllegalStateException}.
+ */
+final class SpanParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpanParser.class);
+
+    // Field identifiers returned by fieldForKey(...).
+    private static final int UNKNOWN_FIELD = -1;
+    private static final int TRACE_ID = 0;
+    private static final int PARENT_SPAN_ID = 1;
+    private static final int SPAN_ID = 2;
+    private static final int SPAN_NAME = 3;
+    private static final int SAMPLEABLE = 4;
+    private static final int USER_ID = 5;
+    private static final int SPAN_PURPOSE = 6;
+    private static final int START_TIME_EPOCH_MICROS = 7;
+    private static final int DURATION_NANOS = 8;
+
+    private static final String[] FIELD_NAMES = {
+        TRACE_ID_FIELD, PARENT_SPAN_ID_FIELD, SPAN_ID_FIELD, SPAN_NAME_FIELD, SAMPLEABLE_FIELD, USER_ID_FIELD, SPAN_PURPOSE_FIELD,
+        START_TIME_EPOCH_MICROS_FIELD, DURATION_NANOS_FIELD
+    };
+
+    // Intentionally private - all access should be via static methods.
+    private SpanParser() {
+        // Do nothing
+    }
+
+    /**
+     * @return The span represented by the given JSON.
+     * @throws IllegalArgumentException if the JSON is malformed.
+     * @throws IllegalStateException if a required field is missing.
+     */
+    static Span parseJson(String json) {
+        Span.Builder builder = Span.newBuilder(null, null);
+        int fieldsSeen = 0;
+        int length = json.length();
+
+        int pos = expect(json, skipWhitespace(json, 0), '{');
+        pos = skipWhitespace(json, pos);
+        if (pos < length && json.charAt(pos) == '}') {
+            pos++;
+        }
+        else {
+            while (true) {
+                pos = expect(json, pos, '"');
+                int keyStart = pos;
+                int keyEnd = endOfJsonString(json, keyStart);
+                int field = containsBackslash(json, keyStart, keyEnd)
+                            ? fieldForKey(unescapeJsonString(json, keyStart, keyEnd), 0, -1)
+                            : fieldForKey(json, keyStart, keyEnd);
+                pos = expect(json, skipWhitespace(json, keyEnd + 1), ':');
+                pos = skipWhitespace(json, pos);
+
+                if (pos >= length)
+                    throw malformed("JSON", pos, "expected a value");
+
+                char c = json.charAt(pos);
+                if (c == '"') {
+                    int valueStart = pos + 1;
+                    int valueEnd = endOfJsonString(json, valueStart);
+                    if (field != UNKNOWN_FIELD) {
+                        if (containsBackslash(json, valueStart, valueEnd)) {
+                            String value = unescapeJsonString(json, valueStart, valueEnd);
+                            fieldsSeen |= applyField(builder, field, value, 0, value.length());
+                        }
+                        else {
+                            fieldsSeen |= applyField(builder, field, json, valueStart, valueEnd);
+                        }
+                    }
+                    pos = valueEnd + 1;
+                }
+                else if (c == '{' || c == '[') {
+                    if (field != UNKNOWN_FIELD)
+                        throw malformed("JSON", pos, "expected a simple value for field " + FIELD_NAMES[field]);
+
+                    pos = skipJsonContainer(json, pos);
+                }
+                else {
+                    // Unquoted literal - null, true, false, or a number.
+                    int valueStart = pos;
+                    while (pos < length && !isJsonLiteralTerminator(json.charAt(pos))) {
+                        pos++;
+                    }
+                    if (pos == valueStart)
+                        throw malformed("JSON", pos, "expected a value");
+
+                    if (field != UNKNOWN_FIELD)
+                        fieldsSeen |= applyField(builder, field, json, valueStart, pos);
+                }
+
+                pos = skipWhitespace(json, pos);
+                if (pos >= length)
+                    throw malformed("JSON", pos, "expected ',' or '}'");
+
+                c = json.charAt(pos);
+                if (c == '}') {
+                    pos++;
+                    break;
+                }
+                if (c != ',')
+                    throw malformed("JSON", pos, "expected ',' or '}'");
+
+                pos = skipWhitespace(json, pos + 1);
+            }
+        }
+
+        if (skipWhitespace(json, pos) != length)
+            throw malformed("JSON", pos, "unexpected trailing content");
+
+        return finish(builder, fieldsSeen, "JSON");
+    }
+
+    /**
+     * @return The span represented by the given key/value string.
+     * @throws IllegalArgumentException if the string is malformed.
+     * @throws IllegalStateException if a required field is missing.
+     */
+    static Span parseKeyValueString(String keyValueStr) {
+        Span.Builder builder = Span.newBuilder(null, null);
+        int fieldsSeen = 0;
+        int length = keyValueStr.length();
+
+        int pos = 0;
+        while (pos < length) {
+            pos = skipWhitespace(keyValueStr, pos);
+            int keyStart = pos;
+            int keyEnd = keyStart;
+            while (keyEnd < length && keyValueStr.charAt(keyEnd) != '=') {
+                if (keyValueStr.charAt(keyEnd) == ',')
+                    throw malformed("key/value string", keyEnd, "expected '='");
+                keyEnd++;
+            }
+            if (keyEnd >= length)
+                throw malformed("key/value string", keyEnd, "expected '='");
+
+            int valueStart = keyEnd + 1;
+            int valueEnd = endOfKeyValueValue(keyValueStr, valueStart);
+            int field = fieldForKey(keyValueStr, keyStart, keyEnd);
+            if (field != UNKNOWN_FIELD)
+                fieldsSeen |= applyField(builder, field, keyValueStr, valueStart, valueEnd);
+
+            pos = valueEnd + 1;
+        }
+
+        return finish(builder, fieldsSeen, "key/value string");
+    }
+
+    private static Span finish(Span.Builder builder, int fieldsSeen, String format) {
+        if ((fieldsSeen & (1 << SAMPLEABLE)) == 0)
+            throw new IllegalStateException("Unable to parse " + SAMPLEABLE_FIELD + " from " + format);
+        if ((fieldsSeen & (1 << START_TIME_EPOCH_MICROS)) == 0)
+            throw new IllegalStateException("Unable to parse " + START_TIME_EPOCH_MICROS_FIELD + " from " + format);
+
+        return builder.buildDeserialized();
+    }
+
+    /**
+     * Applies the value found in {@code source[start, end)} to the given builder.
+     *
+     * @return The bit for the given field if it was one of the required fields and had a non-null value, otherwise 0.
+     */
+    private static int applyField(Span.Builder builder, int field, String source, int start, int end) {
+        if (isNullLiteral(source, start, end))
+            return 0;
+
+        switch (field) {
+            case TRACE_ID:
+                if (isLowerHex(source, start, end, 16))
+                    builder.withTraceId(parseLowerHex(source, start, end));
+                else if (isLowerHex(source, start, end, 32))
+                    builder.with128BitTraceId(parseLowerHex(source, start, start + 16), parseLowerHex(source, start + 16, end));
+                else
+                    builder.withTraceId(source.substring(start, end));
+                break;
+            case PARENT_SPAN_ID:
+                if (isLowerHex(source, start, end, 16))
+                    builder.withParentSpanId(parseLowerHex(source, start, end));
+                else
+                    builder.withParentSpanId(source.substring(start, end));
+                break;
+            case SPAN_ID:
+                if (isLowerHex(source, start, end, 16))
+                    builder.withSpanId(parseLowerHex(source, start, end));
+                else
+                    builder.withSpanId(source.substring(start, end));
+                break;
+            case SPAN_NAME:
+                builder.withSpanName(source.substring(start, end));
+                break;
+            case SAMPLEABLE:
+                // Matches Boolean.parseBoolean(...) - anything other than "true" (ignoring case) is false.
+                builder.withSampleable(end - start == 4 && source.regionMatches(true, start, "true", 0, 4));
+                return 1 << SAMPLEABLE;
+            case USER_ID:
+                builder.withUserId(source.substring(start, end));
+                break;
+            case SPAN_PURPOSE:
+                builder.withSpanPurpose(parseSpanPurpose(source, start, end));
+                break;
+            case START_TIME_EPOCH_MICROS:
+                builder.withSpanStartTimeEpochMicros(parseLong(source, start, end));
+                return 1 << START_TIME_EPOCH_MICROS;
+            case DURATION_NANOS:
+                builder.withDurationNanos(parseLong(source, start, end));
+                break;
+            default:
+                break;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return The field identifier for the key in {@code source[start, end)}, or {@link #UNKNOWN_FIELD}. Pass -1 for {@code end} to use the whole
+     * source string.
+     */
+    private static int fieldForKey(String source, int start, int end) {
+        if (end < 0)
+            end = source.length();
+
+        int keyLength = end - start;
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            String fieldName = FIELD_NAMES[i];
+            if (fieldName.length() == keyLength && source.regionMatches(start, fieldName, 0, keyLength))
+                return i;
+        }
+
+        return UNKNOWN_FIELD;
+    }
+
+    private static SpanPurpose parseSpanPurpose(String source, int start, int end) {
+        int length = end - start;
+        for (SpanPurpose spanPurpose : SpanPurpose.values()) {
+            String name = spanPurpose.name();
+            if (name.length() == length && source.regionMatches(start, name, 0, length))
+                return spanPurpose;
+        }
+
+        logger.warn("Unable to parse \"{}\" to a SpanPurpose enum.", source.substring(start, end));
+        return null;
+    }
+
+    private static boolean isNullLiteral(String source, int start, int end) {
+        return end - start == 4 && source.regionMatches(start, "null", 0, 4);
+    }
+
+    private static boolean isLowerHex(String source, int start, int end, int expectedLength) {
+        if (end - start != expectedLength)
+            return false;
+
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')))
+                return false;
+        }
+
+        return true;
+    }
+
+    // Assumes isLowerHex(...) has already been checked and the region is at most 16 chars.
+    private static long parseLowerHex(String source, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            result = (result << 4) | ((c <= '9') ? (c - '0') : (c - 'a' + 10));
+        }
+        return result;
+    }
+
+    /**
+     * Parses a signed decimal long from {@code source[start, end)} with the same overflow and format rules as {@link Long#parseLong(String)},
+     * but without creating a substring.
+     */
+    private static long parseLong(String source, int start, int end) {
+        if (start >= end)
+            throw new NumberFormatException("Empty numeric value");
+
+        boolean negative = false;
+        int i = start;
+        char first = source.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = (first == '-');
+            i++;
+            if (i == end)
+                throw new NumberFormatException("For input string: \"" + source.substring(start, end) + "\"");
+        }
+
+        // Accumulate negatively to handle Long.MIN_VALUE, the same as Long.parseLong(...).
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = source.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyMin)
+                throw new NumberFormatException("For input string: \"" + source.substring(start, end) + "\"");
+
+            result *= 10;
+            if (result < limit + digit)
+                throw new NumberFormatException("For input string: \"" + source.substring(start, end) + "\"");
+
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    private static int skipWhitespace(String source, int pos) {
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int expect(String json, int pos, char expected) {
+        if (pos >= json.length() || json.charAt(pos) != expected)
+            throw malformed("JSON", pos, "expected '" + expected + "'");
+
+        return pos + 1;
+    }
+
+    private static boolean isJsonLiteralTerminator(char c) {
+        return c == ',' || c == '}' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * @return The index of the closing double quote for the JSON string whose contents start at {@code start}, skipping over escaped characters.
+     */
+    private static int endOfJsonString(String json, int start) {
+        int length = json.length();
+        for (int i = start; i < length; i++) {
+            char c = json.charAt(i);
+            if (c == '"')
+                return i;
+            if (c == '\\')
+                i++;
+        }
+
+        throw malformed("JSON", length, "unterminated string");
+    }
+
+    /**
+     * @return The index just past the JSON object or array that starts at {@code start}. Used to skip over the values of unknown fields.
+     */
+    private static int skipJsonContainer(String json, int start) {
+        int depth = 0;
+        int length = json.length();
+        for (int i = start; i < length; i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                i = endOfJsonString(json, i + 1);
+            }
+            else if (c == '{' || c == '[') {
+                depth++;
+            }
+            else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0)
+                    return i + 1;
+            }
+        }
+
+        throw malformed("JSON", length, "unterminated object or array");
+    }
+
+    private static boolean containsBackslash(String source, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == '\\')
+                return true;
+        }
+        return false;
+    }
+
+    private static String unescapeJsonString(String json, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            if (++i >= end)
+                throw malformed("JSON", i, "incomplete escape sequence");
+
+            char escaped = json.charAt(i);
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(escaped);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= end)
+                        throw malformed("JSON", i, "incomplete unicode escape sequence");
+
+                    int codeUnit = 0;
+                    for (int j = i + 1; j <= i + 4; j++) {
+                        int digit = Character.digit(json.charAt(j), 16);
+                        if (digit < 0)
+                            throw malformed("JSON", j, "invalid unicode escape sequence");
+                        codeUnit = (codeUnit << 4) | digit;
+                    }
+                    sb.append((char) codeUnit);
+                    i += 4;
+                    break;
+                default:
+                    throw malformed("JSON", i, "invalid escape sequence");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The index of the comma that ends the key/value value starting at {@code start}, or the end of the string. A comma only counts if
+     * the text after it reaches an {@code =} before any other comma, i.e. it's followed by another {@code key=} pair.
+     */
+    private static int endOfKeyValueValue(String keyValueStr, int start) {
+        int length = keyValueStr.length();
+        int comma = keyValueStr.indexOf(',', start);
+        while (comma >= 0) {
+            for (int i = comma + 1; i < length; i++) {
+                char c = keyValueStr.charAt(i);
+                if (c == '=')
+                    return comma;
+                if (c == ',')
+                    break;
+            }
+            comma = keyValueStr.indexOf(',', comma + 1);
+        }
+
+        return length;
+    }
+
+    private static IllegalArgumentException malformed(String format, int pos, String problem) {
+        return new IllegalArgumentException("Malformed span " + format + " at index " + pos + ": " + problem);
+    }
+}
@@ -1,5 +1,10 @@
 package com.nike.wingtips;
 
+import com.nike.wingtips.idgeneration.IdGenerationStrategy;
+import com.nike.wingtips.idgeneration.SecureRandomIdGenerationStrategy;
+import com.nike.wingtips.idgeneration.ThreadLocalRandomIdGenerationStrategy;
+import com.nike.wingtips.idgeneration.ThreadLocalSplitMix64IdGenerationStrategy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +21,12 @@ import java.util.Random;
  * and unsigned hex encoding to conform to the ZipKin distributed tracing B3 implementation
  * (see <a href="http://zipkin.io/pages/instrumenting.html">http://zipkin.io/pages/instrumenting.html</a>).
  *
+ * <p>The random longs are generated by the {@link IdGenerationStrategy} set via {@link #setIdGenerationStrategy(IdGenerationStrategy)}. The default is a
+ * {@link ThreadLocalSplitMix64IdGenerationStrategy} which doesn't contend on any locks no matter how many threads are generating IDs. If you need the old
+ * behavior of pulling every ID from a single shared {@link SecureRandom} then you can call {@link #setIdGenerationStrategy(IdGenerationStrategy)} and pass in
+ * a {@link SecureRandomIdGenerationStrategy}. If most of your spans are created on short-lived virtual threads, use a
+ * {@link ThreadLocalRandomIdGenerationStrategy} so that each new thread doesn't need to seed its own generator.
+ *
  * @author Nic Munroe
  */
 public class TraceAndSpanIdGenerator {
@@ -23,12 +34,18 @@ public class TraceAndSpanIdGenerator {
     private static final Logger logger = LoggerFactory.getLogger(TraceAndSpanIdGenerator.class);
 
     /**
-     * The random number generator this class will use to generate random numbers. Since this is used in {@link #generateId()} and we want those numbers to span the full
-     * set of 64 bit possibilities this should be a {@link SecureRandom} if at all possible (see {@link java.util.Random#nextLong()} for details on the default
-     * Random's limitations here). And since it will be used in a multithreaded and time sensitive environment it should not be a blocking {@link SecureRandom} instance
-     * (i.e. it should be a pseudorandom number generator, not a true random number generator which might need to block for entropy data).
+     * The strategy this class will use to generate random 64-bit longs for IDs. See {@link #setIdGenerationStrategy(IdGenerationStrategy)}. The
+     * default seeds each thread's generator from a {@code SHA1PRNG} {@link SecureRandom}, which is what this class used to generate every ID before
+     * {@link IdGenerationStrategy} existed: its {@link SecureRandom#nextLong()} covers the full 64 bits, and as a pseudorandom number generator it never
+     * blocks waiting for entropy (unlike a true random number generator, which might).
+     */
+    private static volatile IdGenerationStrategy idGenerationStrategy =
+        new ThreadLocalSplitMix64IdGenerationStrategy(getRandomInstance("SHA1PRNG"));
+
+    /**
+     * Whether new trace IDs should be 128 bits instead of 64. See {@link #setGenerate128BitTraceIds(boolean)}.
      */
-    private static final Random random = getRandomInstance("SHA1PRNG");
+    private static volatile boolean generate128BitTraceIds = false;
 
     /**
      * Intentionally private constructor to force all access via static methods.
@@ -51,15 +68,66 @@ public class TraceAndSpanIdGenerator {
         return longToUnsignedLowerHexString(generate64BitRandomLong());
     }
 
+    /**
+     * @return A newly-generated random trace ID encoded as an unsigned lowercase hex String. This will be a 16 character 64-bit ID just like
+     *          {@link #generateId()}, unless {@link #setGenerate128BitTraceIds(boolean)} has been set to true in which case it will be a 32 character
+     *          128-bit ID.
+     */
+    public static String generateTraceId() {
+        if (!generate128BitTraceIds)
+            return generateId();
+
+        char[] chars = new char[32];
+        ZipkinHexHelpers.writeHexLong(chars, 0, generate64BitRandomLong());
+        ZipkinHexHelpers.writeHexLong(chars, 16, generate64BitRandomLong());
+        return new String(chars);
+    }
+
+    /**
+     * Sets whether new trace IDs (for root spans started by {@link Span.Builder#build()}, {@code Tracer}, or {@link #generateTraceId()}) should be
+     * 128 bits (32 hex characters) instead of the default 64 bits (16 hex characters). Span IDs are always 64 bits. This is a global setting that affects
+     * the entire JVM. Only turn this on if everything that receives your trace IDs (downstream services, Zipkin, log searches, etc) can handle
+     * 128-bit trace IDs.
+     */
+    public static void setGenerate128BitTraceIds(boolean generate128BitTraceIds) {
+        TraceAndSpanIdGenerator.generate128BitTraceIds = generate128BitTraceIds;
+    }
+
+    /**
+     * @return true if new trace IDs will be 128 bits, false if they will be 64 bits (the default). See {@link #setGenerate128BitTraceIds(boolean)}.
+     */
+    public static boolean isGenerate128BitTraceIds() {
+        return generate128BitTraceIds;
+    }
+
     /**
      * @return A random long pulled from the full 64-bit random search space (as opposed to the 48 bits of randomness you get from
      *          {@link java.util.Random#nextLong()}).
      */
     public static long generate64BitRandomLong() {
-        byte[] random8Bytes = new byte[8];
-        random.nextBytes(random8Bytes);
+        return idGenerationStrategy.generate64BitRandomLong();
+    }
+
+    /**
+     * Sets the {@link IdGenerationStrategy} that will be used to generate the random longs for all IDs from now on. This is a global setting that
+     * affects the entire JVM. The default is a {@link ThreadLocalSplitMix64IdGenerationStrategy}. Pass in a {@link SecureRandomIdGenerationStrategy}
+     * (e.g. {@code new SecureRandomIdGenerationStrategy(SecureRandom.getInstance("SHA1PRNG"))}) if you need IDs that are unpredictable rather than merely
+     * unique, at the cost of contending on the {@link SecureRandom}'s lock.
+     *
+     * @param strategy The strategy to use - cannot be null.
+     */
+    public static void setIdGenerationStrategy(IdGenerationStrategy strategy) {
+        if (strategy == null)
+            throw new IllegalArgumentException("IdGenerationStrategy cannot be null");
 
-        return convertBytesToLong(random8Bytes);
+        idGenerationStrategy = strategy;
+    }
+
+    /**
+     * @return The {@link IdGenerationStrategy} currently being used to generate the random longs for IDs.
+     */
+    public static IdGenerationStrategy getIdGenerationStrategy() {
+        return idGenerationStrategy;
     }
 
     /**
@@ -69,9 +137,40 @@ public class TraceAndSpanIdGenerator {
      *          {@link #unsignedLowerHexStringToLong(String)}.
      */
     public static String longToUnsignedLowerHexString(long primitiveLong) {
+        // A fresh 16 char buffer rather than a per-thread one - the String copies it anyway, and a ThreadLocal would cost a map entry on every
+        //      (possibly virtual) thread that ever renders an ID.
         return ZipkinHexHelpers.toLowerHex(primitiveLong);
     }
 
+    /**
+     * Writes the given long value as a 16 character unsigned lowercase hex string (zero padded, the same format as
+     * {@link #longToUnsignedLowerHexString(long)}) into the given char array starting at the given offset. Use this when you're building a larger string
+     * and don't need the intermediate String object.
+     *
+     * @param primitiveLong The long value to write.
+     * @param dest The array to write to - must have room for 16 chars starting at {@code offset}.
+     * @param offset The index in {@code dest} where the first hex char will be written.
+     */
+    public static void writeUnsignedLowerHex(long primitiveLong, char[] dest, int offset) {
+        if (offset < 0 || dest.length - offset < 16)
+            throw new IndexOutOfBoundsException("dest must have room for 16 chars starting at offset " + offset + ", but dest.length=" + dest.length);
+
+        ZipkinHexHelpers.writeHexLong(dest, offset, primitiveLong);
+    }
+
+    /**
+     * Appends the given long value as a 16 character unsigned lowercase hex string (zero padded, the same format as
+     * {@link #longToUnsignedLowerHexString(long)}) to the given {@link StringBuilder} without allocating an intermediate String.
+     *
+     * @param sb The {@link StringBuilder} to append to.
+     * @param primitiveLong The long value to append.
+     * @return The given {@link StringBuilder}, for chaining.
+     */
+    public static StringBuilder appendUnsignedLowerHex(StringBuilder sb, long primitiveLong) {
+        ZipkinHexHelpers.appendHexLong(sb, primitiveLong);
+        return sb;
+    }
+
     /**
      * @param hexString The lowercase hexadecimal string representing an unsigned 64-bit long that you want to convert to a Java long primitive.
      * @return The Java long primitive represented by the given lowercase hex string. If the string isn't lowercase hexadecimal encoded then a
@@ -91,20 +190,6 @@ public class TraceAndSpanIdGenerator {
         return ZipkinHexHelpers.lowerHexToUnsignedLong(hexString, index);
     }
 
-    /**
-     * Converts the given 8 bytes to a long value. Implementation for this taken from {@link java.util.UUID#UUID(byte[])}.
-     */
-    protected static long convertBytesToLong(byte[] byteArray) {
-        if (byteArray.length != 8)
-            throw new IllegalArgumentException("byteArray must be 8 bytes in length");
-
-        long longVal = 0;
-        for (int i=0; i<8; i++)
-            longVal = (longVal << 8) | (byteArray[i] & 0xff);
-
-        return longVal;
-    }
-
     /**
      * Tries to retrieve and return the {@link SecureRandom} with the given implementation using {@link SecureRandom#getInstance(String)}, and falls back to a
      * {@code new Random(System.nanoTime())} if that instance could not be found.
@@ -198,6 +283,13 @@ public class TraceAndSpanIdGenerator {
             writeHexByte(data, pos + 14, (byte)  (v & 0xff));
         }
 
+        /** Same output as {@link #writeHexLong(char[], int, long)}, but appended straight to the given builder. */
+        static void appendHexLong(StringBuilder sb, long v) {
+            for (int shift = 60; shift >= 0; shift -= 4) {
+                sb.append(HEX_DIGITS[(int) ((v >>> shift) & 0xf)]);
+            }
+        }
+
         static final char[] HEX_DIGITS =
             {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
@@ -1,9 +1,14 @@
 package com.nike.wingtips;
 
 import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.contextstorage.ThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+import com.nike.wingtips.lifecyclelistener.AsyncSpanLifecycleListener;
 import com.nike.wingtips.lifecyclelistener.SpanLifecycleListener;
 import com.nike.wingtips.sampling.RootSpanSamplingStrategy;
 import com.nike.wingtips.sampling.SampleAllTheThingsStrategy;
+import com.nike.wingtips.sampling.TraceAwareRootSpanSamplingStrategy;
+import com.nike.wingtips.util.SpanStack;
 import com.nike.wingtips.util.TracerManagedSpanStatus;
 import com.nike.wingtips.util.TracingState;
 
@@ -12,11 +17,13 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
@@ -32,13 +39,16 @@ import java.util.List;
  * </p>
  * <p>
  *     Sampling is determined using {@link #rootSpanSamplingStrategy} which defaults to sampling everything. You can override this by calling
- *     {@link #setRootSpanSamplingStrategy(RootSpanSamplingStrategy)}.
+ *     {@link #setRootSpanSamplingStrategy(RootSpanSamplingStrategy)} - see the {@code com.nike.wingtips.sampling} package for the built-in probabilistic,
+ *     rate-limiting, and per-endpoint minimum rate strategies.
  * </p>
  * <p>
  *     You can be notified of span lifecycle events (i.e. for metrics counting) by adding a listener to {@link #addSpanLifecycleListener(SpanLifecycleListener)}.
  *     NOTE: It's important that any {@link SpanLifecycleListener} you add is extremely lightweight or you risk distributed tracing becoming a major bottleneck for
  *     high throughput services. If any expensive work needs to be done in a {@link SpanLifecycleListener} then it should be done asynchronously on a thread or
- *     threadpool separate from the application worker threads.
+ *     threadpool separate from the application worker threads. Exceptions thrown by listeners are logged and never reach the caller, and you can set a latency
+ *     budget with {@link #setSpanLifecycleListenerLatencyBudget(long, TimeUnit)} so that listeners which keep going over it are quarantined - see {@link
+ *     ListenerQuarantineAction}.
  * </p>
  * <p>
  *     The format of the logging output when a span is completed is determined by {@link #spanLoggingRepresentation}, which can be set by calling
@@ -105,7 +115,10 @@ import java.util.List;
  *     <a href="http://www.slf4j.org/manual.html#mdc">MDC</a> so that all your logs can be tagged with the current span's trace ID and/or full JSON. To utilize this you
  *     would need to add {@code %X{traceId}} and/or {@code %X{spanJson}} to your log pattern (NOTE: this only works with SLF4J frameworks that support MDC, e.g. logback
  *     and log4j). This causes *all* log messages, including ones that come from third party libraries and have no knowledge of distributed tracing, to be output with the
- *     current span's tracing information.
+ *     current span's tracing information. If you don't need the span JSON in the MDC you can avoid serializing every span that becomes the current span by calling
+ *     {@link #setMdcPopulationMode(MdcPopulationMode)} with {@link MdcPopulationMode#TRACE_ID_AND_SPAN_ID} or {@link MdcPopulationMode#TRACE_ID_ONLY}. Similarly,
+ *     if nothing but sampled spans matter to you then {@link #setUnsampledSpanMode(UnsampledSpanMode)} with {@link UnsampledSpanMode#LIGHTWEIGHT} makes unsampled
+ *     traces close to free - see that enum value's javadocs for what is skipped.
  * </p>
  * <p>
  *     NOTE: Due to the thread-local nature of this class it is more effort to integrate with reactive (asynchronous non-blocking) frameworks like Netty or actor frameworks
@@ -149,6 +162,205 @@ public class Tracer {
         KEY_VALUE
     }
 
+    /**
+     * The options for what span information {@link Tracer} puts into the SLF4J MDC for the current span. To change it call {@link
+     * #setMdcPopulationMode(MdcPopulationMode)}.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public enum MdcPopulationMode {
+        /**
+         * Puts the current span's trace ID under {@link #TRACE_ID_MDC_KEY} and its {@link Span#toJSON()} under {@link #SPAN_JSON_MDC_KEY}. This is
+         * the default, and means every span that becomes the current span (every sub-span start and finish, for example) is serialized to JSON
+         * whether or not any log message ever uses it.
+         */
+        TRACE_ID_AND_SPAN_JSON,
+        /**
+         * Puts the current span's trace ID under {@link #TRACE_ID_MDC_KEY} and its span ID under {@link #SPAN_ID_MDC_KEY}. No JSON is created -
+         * use a logging framework integration that renders the current span's JSON on demand (e.g. the {@code WingtipsSpanConverter} in the
+         * wingtips-logback module, registered as {@code %spanJson}) if your log pattern needs it.
+         */
+        TRACE_ID_AND_SPAN_ID,
+        /**
+         * Puts only the current span's trace ID under {@link #TRACE_ID_MDC_KEY}.
+         */
+        TRACE_ID_ONLY
+    }
+
+    /**
+     * The options for how much work {@link Tracer} does for spans whose {@link Span#isSampleable()} is false. To change it call {@link
+     * #setUnsampledSpanMode(UnsampledSpanMode)}.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public enum UnsampledSpanMode {
+        /**
+         * Unsampled spans go through the same lifecycle as sampled ones - they just aren't logged or passed to {@link
+         * SpanLifecycleListener#spanSampled(Span)}. Every sub-span is a new {@link Span}, the MDC is populated according to the {@link
+         * MdcPopulationMode}, and listeners are told when each span starts and completes. This is the default.
+         */
+        FULL,
+        /**
+         * Unsampled traces only carry what's needed for propagating the trace downstream and for tagging log messages with the trace ID:
+         * <ul>
+         *     <li>
+         *         {@link #startSubSpan(String, SpanPurpose)} doesn't create a sub-span when the current span is unsampled. The current span is
+         *         pushed onto the stack again and returned, so anything that propagates the "sub-span" downstream sends the parent's IDs, and
+         *         {@link #completeSubSpan()} (or {@link Span#close()}) simply pops it back off again.
+         *     </li>
+         *     <li>
+         *         The MDC never holds span JSON for unsampled spans - {@link MdcPopulationMode#TRACE_ID_AND_SPAN_JSON} is treated as {@link
+         *         MdcPopulationMode#TRACE_ID_AND_SPAN_ID}.
+         *     </li>
+         *     <li>
+         *         {@link SpanLifecycleListener}s are not notified about unsampled spans at all.
+         *     </li>
+         * </ul>
+         * Instrumentation can call {@link #isCurrentSpanLightweight()} to skip building span names and other per-span work entirely. Use this
+         * mode when only sampled spans matter to your listeners (e.g. they only send sampled spans to Zipkin) and you don't need unsampled
+         * sub-span IDs in your logs.
+         */
+        LIGHTWEIGHT
+    }
+
+    /**
+     * What {@link Tracer} does with a {@link SpanLifecycleListener} that went over the latency budget (see {@link
+     * #setSpanLifecycleListenerLatencyBudget(long, TimeUnit)}) on {@link #getSpanLifecycleListenerQuarantineThreshold()} consecutive
+     * notifications. To change it call {@link #setSpanLifecycleListenerQuarantineAction(ListenerQuarantineAction)}. Quarantined listeners stay in
+     * {@link #getSpanLifecycleListeners()}, are listed by {@link #getQuarantinedSpanLifecycleListeners()}, and can be reinstated by removing and
+     * re-adding them.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public enum ListenerQuarantineAction {
+        /**
+         * The listener is no longer notified about anything. This is the default.
+         */
+        DISABLE,
+        /**
+         * The listener is wrapped in an {@link AsyncSpanLifecycleListener}, so {@link SpanLifecycleListener#spanCompleted(Span)} is delivered
+         * on a separate dispatcher thread from then on. {@link SpanLifecycleListener#spanStarted(Span)} and {@link
+         * SpanLifecycleListener#spanSampled(Span)} are still called inline, so a listener that keeps going over budget after the move (or one that
+         * was already an {@link AsyncSpanLifecycleListener}) is disabled instead.
+         */
+        ASYNC
+    }
+
+    /**
+     * The span lifecycle notifications {@link Tracer} sends to its {@link SpanLifecycleListener}s.
+     */
+    private enum SpanLifecycleEvent {
+        STARTED {
+            @Override
+            void deliver(SpanLifecycleListener listener, Span span) {
+                listener.spanStarted(span);
+            }
+        },
+        SAMPLED {
+            @Override
+            void deliver(SpanLifecycleListener listener, Span span) {
+                listener.spanSampled(span);
+            }
+        },
+        COMPLETED {
+            @Override
+            void deliver(SpanLifecycleListener listener, Span span) {
+                listener.spanCompleted(span);
+            }
+        };
+
+        abstract void deliver(SpanLifecycleListener listener, Span span);
+    }
+
+    /**
+     * A {@link SpanLifecycleListener} that was added via {@link #addSpanLifecycleListener(SpanLifecycleListener)}, along with its quarantine state.
+     */
+    private static final class ListenerRegistration {
+        /**
+         * The listener that was added.
+         */
+        final SpanLifecycleListener listener;
+        /**
+         * What notifications are actually delivered to - either {@link #listener} or the {@link AsyncSpanLifecycleListener} it was moved into.
+         */
+        volatile SpanLifecycleListener target;
+        volatile boolean disabled = false;
+        /**
+         * Set when the listener is removed, so a notification that's still running against an older snapshot of the listeners doesn't quarantine it
+         * afterward. Guarded by {@link #spanLifecycleListenersLock}.
+         */
+        boolean removed = false;
+        /**
+         * The number of notifications in a row that went over the latency budget. Only written when it changes, so listeners that stay within the
+         * budget never cause cache line contention between threads.
+         */
+        final AtomicInteger consecutiveOverBudgetCount = new AtomicInteger(0);
+
+        ListenerRegistration(SpanLifecycleListener listener) {
+            this.listener = listener;
+            this.target = listener;
+        }
+
+        boolean isQuarantined() {
+            return disabled || target != listener;
+        }
+    }
+
+    /**
+     * The argument {@link Tracer} passes to SLF4J when it logs a completed span to the {@code VALID_WINGTIPS_SPANS} or
+     * {@code INVALID_WINGTIPS_SPANS} loggers. {@link #toString()} serializes the span using the {@link SpanLoggingRepresentation} that was active
+     * when the span was completed, so nothing is serialized unless a log appender actually formats the message. Encoders that know about this
+     * class can call {@link #appendTo(StringBuilder)} instead to write the span straight into a reusable buffer without creating a String at all.
+     *
+     * <p>Instances are immutable and hold a completed span, so they're safe to hand to asynchronous appenders.
+     */
+    public static final class SpanLogMessageArg {
+        private final Tracer tracer;
+        private final Span span;
+        private final SpanLoggingRepresentation representation;
+
+        SpanLogMessageArg(Tracer tracer, Span span, SpanLoggingRepresentation representation) {
+            this.tracer = tracer;
+            this.span = span;
+            this.representation = representation;
+        }
+
+        /**
+         * @return The span being logged.
+         */
+        public Span getSpan() {
+            return span;
+        }
+
+        /**
+         * @return The representation the span will be serialized with.
+         */
+        public SpanLoggingRepresentation getRepresentation() {
+            return representation;
+        }
+
+        /**
+         * Appends the span to the given {@link StringBuilder} using {@link #getRepresentation()} without creating any intermediate Strings.
+         *
+         * @return The given {@link StringBuilder}, for chaining.
+         */
+        public StringBuilder appendTo(StringBuilder builder) {
+            switch(representation) {
+                case JSON:
+                    return span.appendJson(builder);
+                case KEY_VALUE:
+                    return span.appendKeyValueString(builder);
+                default:
+                    throw new IllegalStateException("Unknown span logging representation type: " + representation);
+            }
+        }
+
+        /**
+         * @return The span serialized via {@link Tracer#serializeSpanToDesiredStringRepresentation(Span)}.
+         */
+        @Override
+        public String toString() {
+            return tracer.serializeSpanToDesiredStringRepresentation(span, representation);
+        }
+    }
+
     private static final String VALID_WINGTIPS_SPAN_LOGGER_NAME = "VALID_WINGTIPS_SPANS";
     private static final String INVALID_WINGTIPS_SPAN_LOGGER_NAME = "INVALID_WINGTIPS_SPANS";
 
@@ -157,9 +369,79 @@ public class Tracer {
     private static final Logger invalidSpanLogger = LoggerFactory.getLogger(INVALID_WINGTIPS_SPAN_LOGGER_NAME);
 
     /**
-     * ThreadLocal that keeps track of the stack of {@link Span} objects associated with the thread. This is treated as a LIFO stack.
+     * The per-thread state kept by the {@link TracerContextStorage} - the stack of {@link Span} objects associated with the thread (treated as a LIFO stack) along with
+     * a spare {@link SpanStack} that can be recycled for the next request on the thread so that starting a request doesn't allocate a new stack every time. The span
+     * stack is usually a {@link SpanStack}, but any {@link Deque} is supported.
+     *
+     * <p>The contents are only ever touched by {@link Tracer} on the thread that owns the context. {@link TracerContextStorage} implementations just create instances
+     * and hand them back out.
      */
-    private static final ThreadLocal<Deque<Span>> currentSpanStackThreadLocal = new ThreadLocal<>();
+    public static final class SpanStackThreadContext {
+        /**
+         * The current span stack for the thread - may be null.
+         */
+        Deque<Span> spanStack;
+        /**
+         * An empty {@link SpanStack} that is no longer referenced anywhere else and can be reused the next time this thread needs a new stack - may be null.
+         */
+        SpanStack spareSpanStack;
+        /**
+         * True if {@link #publishedSpanStack} is kept up to date.
+         */
+        final boolean publishesSpanStack;
+        /**
+         * A snapshot of {@link #spanStack} taken every time it changes when {@link #publishesSpanStack} is true, so other threads can read it - may be null.
+         * It's never modified after it's published.
+         */
+        volatile SpanStack publishedSpanStack;
+
+        /**
+         * Creates a new context with no span stack.
+         */
+        public SpanStackThreadContext() {
+            this(false);
+        }
+
+        /**
+         * Creates a new context with no span stack.
+         *
+         * @param publishesSpanStack Pass in true if other threads need to see this context's spans via {@link #copyPublishedSpanStackForNewThread()}.
+         *                           {@link Tracer} then publishes a snapshot of the span stack every time it pushes or pops a span. Taking a snapshot is
+         *                           O(1), but it means the next push or pop copies the stack's backing array, so leave this off unless it's needed.
+         */
+        public SpanStackThreadContext(boolean publishesSpanStack) {
+            this.publishesSpanStack = publishesSpanStack;
+        }
+
+        /**
+         * @return A new context holding a copy of this context's span stack (and no spare stack), for a thread that should start out with the same spans as the
+         * thread that owns this context. Copying is O(1) when the stack is a {@link SpanStack}. This must be called on the thread that owns this context.
+         */
+        public SpanStackThreadContext copyForNewThread() {
+            SpanStackThreadContext copy = new SpanStackThreadContext();
+            copy.spanStack = SpanStack.copyOf(spanStack);
+            return copy;
+        }
+
+        /**
+         * @return A new context holding a copy of the span stack as of the last time this context published it (and no spare stack), or an empty context if
+         * this context doesn't publish its span stack. Unlike {@link #copyForNewThread()} this is safe to call from any thread. The copy shares the published
+         * snapshot's backing array until the new context's thread pushes or pops a span.
+         */
+        public SpanStackThreadContext copyPublishedSpanStackForNewThread() {
+            SpanStackThreadContext copy = new SpanStackThreadContext();
+            copy.spanStack = SpanStack.copyOf(publishedSpanStack);
+            return copy;
+        }
+
+        /**
+         * Publishes a snapshot of the span stack if {@link #publishesSpanStack} is true. {@link Tracer} calls this after every change to the span stack.
+         */
+        void spanStackChanged() {
+            if (publishesSpanStack)
+                publishedSpanStack = SpanStack.copyOf(spanStack);
+        }
+    }
 
     /**
      * The singleton instance for this class.
@@ -174,6 +456,11 @@ public class Tracer {
      * MDC key for storing the current span's {@link Span#getTraceId()}.
      */
     public static final String TRACE_ID_MDC_KEY = "traceId";
+    /**
+     * MDC key for storing the current span's {@link Span#getSpanId()} when the {@link MdcPopulationMode} is {@link
+     * MdcPopulationMode#TRACE_ID_AND_SPAN_ID}.
+     */
+    public static final String SPAN_ID_MDC_KEY = "spanId";
 
 
     /**
@@ -182,15 +469,56 @@ public class Tracer {
     private RootSpanSamplingStrategy rootSpanSamplingStrategy = new SampleAllTheThingsStrategy();
 
     /**
-     * The list of span lifecycle listeners that should be notified when span lifecycle events occur.
+     * The default for {@link #getSpanLifecycleListenerQuarantineThreshold()}.
      */
-    private final List<SpanLifecycleListener> spanLifecycleListeners = new ArrayList<>();
+    public static final int DEFAULT_LISTENER_QUARANTINE_THRESHOLD = 10;
+
+    /**
+     * The span lifecycle listeners that should be notified when span lifecycle events occur. This is a copy-on-write array - it's replaced (while
+     * holding {@link #spanLifecycleListenersLock}) whenever a listener is added or removed, so notifying listeners never needs a lock or an iterator.
+     */
+    private volatile ListenerRegistration[] spanLifecycleListeners = new ListenerRegistration[0];
+    private final Object spanLifecycleListenersLock = new Object();
+
+    /**
+     * How long a single listener notification may take before it counts toward quarantining the listener. 0 means listeners aren't timed. This is
+     * volatile since it's read on every notification without any other synchronization.
+     */
+    private volatile long spanLifecycleListenerLatencyBudgetNanos = 0;
+
+    /**
+     * How many notifications in a row have to go over the latency budget before a listener is quarantined.
+     */
+    private volatile int spanLifecycleListenerQuarantineThreshold = DEFAULT_LISTENER_QUARANTINE_THRESHOLD;
+
+    /**
+     * What happens to a listener when it's quarantined. Never allow this field to be set to null.
+     */
+    private volatile ListenerQuarantineAction spanLifecycleListenerQuarantineAction = ListenerQuarantineAction.DISABLE;
 
     /**
      * The span representation that should be used when logging completed spans.
      */
     private SpanLoggingRepresentation spanLoggingRepresentation = SpanLoggingRepresentation.JSON;
 
+    /**
+     * What span information should be put into the MDC for the current span. This is volatile since it's read by {@link #configureMDC(Span)}
+     * on every thread without any other synchronization.
+     */
+    private volatile MdcPopulationMode mdcPopulationMode = MdcPopulationMode.TRACE_ID_AND_SPAN_JSON;
+
+    /**
+     * How much work is done for unsampled spans. This is volatile since it's read on every span start and completion without any other
+     * synchronization.
+     */
+    private volatile UnsampledSpanMode unsampledSpanMode = UnsampledSpanMode.FULL;
+
+    /**
+     * Where each thread's {@link SpanStackThreadContext} is kept. This is volatile since it's read on every span stack access without any other synchronization.
+     * Never allow this field to be set to null.
+     */
+    private volatile TracerContextStorage contextStorage = new ThreadLocalContextStorage();
+
     private Tracer() { /* Intentionally private to enforce singleton pattern. */ }
 
     /**
@@ -203,12 +531,12 @@ public class Tracer {
     /**
      * The {@link Span} set as the "current" one for this thread.
      * <p/>
-     * NOTE: If {@link #currentSpanStackThreadLocal} is null or empty for this thread it will try to reconstitute the {@link Span} from the logging {@link org.slf4j.MDC}.
+     * NOTE: If {@link #contextStorage} is null or empty for this thread it will try to reconstitute the {@link Span} from the logging {@link org.slf4j.MDC}.
      * This is useful in some situations, for example async request processing where the thread changes but the MDC is smart enough to transfer the span anyway.
      * In any case as a caller you don't have to care - you'll just get the {@link Span} appropriate for the caller, or null if one hasn't been set up yet.
      */
     public Span getCurrentSpan() {
-        Deque<Span> spanStack = currentSpanStackThreadLocal.get();
+        Deque<Span> spanStack = contextStorage.get().spanStack;
 
         return (spanStack == null) ? null : spanStack.peek();
     }
@@ -248,9 +576,7 @@ public class Tracer {
      * @return The new span (which is now also the current one that will be returned by {@link #getCurrentSpan()}).
      */
     public Span startRequestWithRootSpan(String spanName, String userId) {
-        boolean sampleable = isNextRootSpanSampleable();
-        String traceId = TraceAndSpanIdGenerator.generateId();
-        return doNewRequestSpan(traceId, null, spanName, sampleable, userId, SpanPurpose.SERVER);
+        return startNewRequestSpan(generateRootSpan(spanName, SpanPurpose.SERVER, userId));
     }
 
     /**
@@ -316,10 +642,21 @@ public class Tracer {
      * @param spanPurpose The {@link SpanPurpose} for the new sub-span. Since this is a sub-span it should almost always be either {@link SpanPurpose#CLIENT}
      *                    (if this sub-span encompasses an outbound/downstream/out-of-process call), or {@link SpanPurpose#LOCAL_ONLY}. See the javadocs
      *                    for {@link SpanPurpose} for full details on what each enum option means.
-     * @return The new child sub-span (which is now also the current one that will be returned by {@link #getCurrentSpan()}).
+     * @return The new child sub-span (which is now also the current one that will be returned by {@link #getCurrentSpan()}). If the current
+     * span is unsampled and the {@link UnsampledSpanMode} is {@link UnsampledSpanMode#LIGHTWEIGHT} then no sub-span is created and the current
+     * span is returned instead (it's pushed onto the stack again, so you still complete it with {@link #completeSubSpan()}).
      */
     public Span startSubSpan(String spanName, SpanPurpose spanPurpose) {
         Span parentSpan = getCurrentSpan();
+        if (parentSpan != null && isLightweightUnsampledSpan(parentSpan)) {
+            // The parent stands in for the sub-span. The MDC already points at it and listeners never hear about it, so pushing it again
+            //      is all there is to do.
+            SpanStackThreadContext threadContext = contextStorage.get();
+            threadContext.spanStack.push(parentSpan);
+            threadContext.spanStackChanged();
+            return parentSpan;
+        }
+
         if (parentSpan == null) {
             classLogger.error(
                     "WINGTIPS USAGE ERROR - Expected getCurrentSpan() to return a span for use as a parent for a new child sub-span but null was returned instead. This probably " +
@@ -330,7 +667,7 @@ public class Tracer {
 
         Span childSpan = (parentSpan != null)
                 ? parentSpan.generateChildSpan(spanName, spanPurpose)
-                : Span.generateRootSpanForNewTrace(spanName, spanPurpose).withSampleable(isNextRootSpanSampleable()).build();
+                : generateRootSpan(spanName, spanPurpose, null);
 
         pushSpanOntoCurrentSpanStack(childSpan);
 
@@ -435,8 +772,7 @@ public class Tracer {
         // If the current span stack is empty, then we start a new overall request span. Otherwise we start a subspan.
         //      In either case, honor the passed-in spanPurpose.
         if (getCurrentSpanStackSize() == 0) {
-            boolean sampleable = isNextRootSpanSampleable();
-            return startRequestWithSpanInfo(null, null, spanName, sampleable, null, spanPurpose);
+            return startNewRequestSpan(generateRootSpan(spanName, spanPurpose, null));
         }
         else {
             return startSubSpan(spanName, spanPurpose);
@@ -473,9 +809,22 @@ public class Tracer {
             .withUserId(userId)
             .build();
 
+        return startNewRequestSpan(span);
+    }
+
+    /**
+     * Starts a new span stack for a fresh request with the given span as its only entry and notifies listeners that the span was started (unless it's
+     * an unsampled span in {@link UnsampledSpanMode#LIGHTWEIGHT} mode).
+     *
+     * @return The given span (which is now also the current one that will be returned by {@link #getCurrentSpan()}).
+     */
+    protected Span startNewRequestSpan(Span span) {
         // Since this is a "starting from scratch/new request" call we clear out and restart the current span stack even if it already had something in it.
         startNewSpanStack(span);
 
+        if (isLightweightUnsampledSpan(span))
+            return span;
+
         notifySpanStarted(span);
         notifyIfSpanSampled(span);
 
@@ -483,14 +832,42 @@ public class Tracer {
     }
 
     /**
-     * Helper method that starts a new span stack for a fresh request and sets it on {@link #currentSpanStackThreadLocal}. Since this is assuming a fresh request it expects
-     * {@link #currentSpanStackThreadLocal} to have a clean/empty/null stack in it right now. If it has a non-empty stack then it will log an error and clear it out
+     * Generates a new root span (new trace ID, no parent) with its sampleable flag decided by {@link #rootSpanSamplingStrategy}. If the strategy is a
+     * {@link TraceAwareRootSpanSamplingStrategy} then the trace ID is generated first so the strategy can base its decision on it and on the span
+     * name, otherwise {@link #isNextRootSpanSampleable()} is used.
+     */
+    protected Span generateRootSpan(String spanName, SpanPurpose spanPurpose, String userId) {
+        if (spanName == null)
+            throw new IllegalArgumentException("spanName cannot be null");
+
+        Span.Builder builder = Span.generateRootSpanForNewTrace(spanName, spanPurpose).withUserId(userId);
+        RootSpanSamplingStrategy strategy = rootSpanSamplingStrategy;
+        if (strategy instanceof TraceAwareRootSpanSamplingStrategy) {
+            long traceIdLow = TraceAndSpanIdGenerator.generate64BitRandomLong();
+            if (TraceAndSpanIdGenerator.isGenerate128BitTraceIds())
+                builder.with128BitTraceId(TraceAndSpanIdGenerator.generate64BitRandomLong(), traceIdLow);
+            else
+                builder.withTraceId(traceIdLow);
+
+            builder.withSampleable(((TraceAwareRootSpanSamplingStrategy) strategy).isRootSpanSampleable(traceIdLow, spanName));
+        }
+        else {
+            builder.withSampleable(isNextRootSpanSampleable());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Helper method that starts a new span stack for a fresh request and sets it on {@link #contextStorage}. Since this is assuming a fresh request it expects
+     * {@link #contextStorage} to have a clean/empty/null stack in it right now. If it has a non-empty stack then it will log an error and clear it out
      * so that the given {@code firstEntry} argument is the only thing that will be on the stack after this method call. Delegates to {@link #pushSpanOntoCurrentSpanStack(Span)}
      * to push the {@code firstEntry} onto the clean stack so it can handle the MDC and debug logging, etc.
      */
     protected void startNewSpanStack(Span firstEntry) {
         // Log an error if we don't have a null/empty existing stack.
-        Deque<Span> existingStack = currentSpanStackThreadLocal.get();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> existingStack = threadContext.spanStack;
         if (existingStack != null && !existingStack.isEmpty()) {
             boolean first = true;
             StringBuilder lostTraceIds = new StringBuilder();
@@ -508,51 +885,90 @@ public class Tracer {
 
         }
 
-        currentSpanStackThreadLocal.set(new LinkedList<Span>());
+        recycleSpanStack(threadContext, existingStack);
+        threadContext.spanStack = obtainEmptySpanStack(threadContext);
         pushSpanOntoCurrentSpanStack(firstEntry);
     }
 
+    /**
+     * @return An empty {@link SpanStack} - the given thread context's spare stack if it has one (so that no allocation is necessary), otherwise a new one.
+     */
+    protected SpanStack obtainEmptySpanStack(SpanStackThreadContext threadContext) {
+        SpanStack spare = threadContext.spareSpanStack;
+        if (spare == null)
+            return new SpanStack();
+
+        threadContext.spareSpanStack = null;
+        return spare;
+    }
+
+    /**
+     * Stores the given span stack as the given thread context's spare stack so it can be reused by {@link #obtainEmptySpanStack(SpanStackThreadContext)}. This should only
+     * be called for stacks that are no longer referenced anywhere else. Does nothing if the given stack is not a {@link SpanStack}. Any spans still in the stack will be
+     * cleared out.
+     */
+    protected void recycleSpanStack(SpanStackThreadContext threadContext, Deque<Span> noLongerUsed) {
+        if (noLongerUsed instanceof SpanStack) {
+            SpanStack recycleMe = (SpanStack) noLongerUsed;
+            // Clearing a stack that shares its array with a snapshot leaves the snapshot untouched, so this is always safe.
+            recycleMe.clear();
+            threadContext.spareSpanStack = recycleMe;
+        }
+    }
+
     /**
      * Uses {@link #spanLoggingRepresentation} to decide how to serialize the given span, and then returns the result of the serialization.
      */
     protected String serializeSpanToDesiredStringRepresentation(Span span) {
-        switch(spanLoggingRepresentation) {
+        return serializeSpanToDesiredStringRepresentation(span, spanLoggingRepresentation);
+    }
+
+    /**
+     * Serializes the given span using the given {@link SpanLoggingRepresentation}.
+     */
+    protected String serializeSpanToDesiredStringRepresentation(Span span, SpanLoggingRepresentation representation) {
+        switch(representation) {
             case JSON:
                 return span.toJSON();
             case KEY_VALUE:
                 return span.toKeyValueString();
             default:
-                throw new IllegalStateException("Unknown span logging representation type: " + spanLoggingRepresentation);
+                throw new IllegalStateException("Unknown span logging representation type: " + representation);
         }
     }
 
     /**
-     * Pushes the given span onto the {@link #currentSpanStackThreadLocal} stack. If the stack is null it will create a new one. Also pushes the span info into the logging
+     * Pushes the given span onto the {@link #contextStorage} stack. If the stack is null it will create a new one. Also pushes the span info into the logging
      * {@link org.slf4j.MDC} so it is available there.
      */
     protected void pushSpanOntoCurrentSpanStack(Span pushMe) {
-        Deque<Span> currentStack = currentSpanStackThreadLocal.get();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> currentStack = threadContext.spanStack;
         if (currentStack == null) {
-            currentStack = new LinkedList<>();
-            currentSpanStackThreadLocal.set(currentStack);
+            currentStack = obtainEmptySpanStack(threadContext);
+            threadContext.spanStack = currentStack;
         }
 
         currentStack.push(pushMe);
+        threadContext.spanStackChanged();
         configureMDC(pushMe);
-        classLogger.debug("** starting sample for span {}", serializeSpanToDesiredStringRepresentation(pushMe));
+        // LIGHTWEIGHT unsampled spans are never serialized, not even for debug logging.
+        if (classLogger.isDebugEnabled() && !isLightweightUnsampledSpan(pushMe))
+            classLogger.debug("** starting sample for span {}", new SpanLogMessageArg(this, pushMe, spanLoggingRepresentation));
     }
 
     /**
      * Completes the current span by calling {@link #completeAndLogSpan(Span, boolean)} on it, empties the MDC by calling{@link #unconfigureMDC()}, and clears out the
-     * {@link #currentSpanStackThreadLocal} stack.
+     * {@link #contextStorage} stack.
      * <p/>
      * This should be called by the overall request when the request is done. At the point this method is called there should just be one span left on the
-     * {@link #currentSpanStackThreadLocal} stack - the overall request span. If there is more than 1 then that indicates a bug with the usage of this class where
+     * {@link #contextStorage} stack - the overall request span. If there is more than 1 then that indicates a bug with the usage of this class where
      * a child span is created but not completed. If this error case is detected then and *all* spans will be logged/popped and an error message will be logged with
      * details on what went wrong.
      */
     public void completeRequestSpan() {
-        Deque<Span> currentSpanStack = currentSpanStackThreadLocal.get();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> currentSpanStack = threadContext.spanStack;
         if (currentSpanStack != null) {
             // Keep track of data as we go in case we need to output an error (we should only have 1 span in the stack)
             int originalSize = currentSpanStack.size();
@@ -572,7 +988,10 @@ public class Tracer {
                     badTraceIds.append(span.getTraceId());
                 }
 
-                completeAndLogSpan(span, isBadSpan);
+                // A span that's still on the stack underneath itself is a LIGHTWEIGHT unsampled sub-span stand-in - it gets completed once
+                //      we reach the real entry.
+                if (span != currentSpanStack.peek())
+                    completeAndLogSpan(span, isBadSpan);
             }
 
             // Output an error message if we had any bad spans.
@@ -587,7 +1006,9 @@ public class Tracer {
             }
         }
 
-        currentSpanStackThreadLocal.remove();
+        threadContext.spanStack = null;
+        threadContext.spanStackChanged();
+        recycleSpanStack(threadContext, currentSpanStack);
         unconfigureMDC();
     }
 
@@ -595,12 +1016,13 @@ public class Tracer {
      * Completes the current child sub-span by calling {@link #completeAndLogSpan(Span, boolean)} on it and then {@link #configureMDC(Span)} on the sub-span's parent
      * (which becomes the new current span).
      * <p/>
-     * <b>WARNING:</b> This only works if there are at least 2 spans in the {@link #currentSpanStackThreadLocal} stack - one for the child sub-span and one for the parent span.
+     * <b>WARNING:</b> This only works if there are at least 2 spans in the {@link #contextStorage} stack - one for the child sub-span and one for the parent span.
      * If you're trying to complete the overall request's span you should be calling {@link #completeRequestSpan()} instead. If there are 0 or 1 spans on the stack then
      * this method will log an error and do nothing.
      */
     public void completeSubSpan() {
-        Deque<Span> currentSpanStack = currentSpanStackThreadLocal.get();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> currentSpanStack = threadContext.spanStack;
         if (currentSpanStack == null || currentSpanStack.size() < 2) {
             int stackSize = (currentSpanStack == null) ? 0 : currentSpanStack.size();
             classLogger.error(
@@ -614,6 +1036,11 @@ public class Tracer {
 
         // We have at least two spans. Pop off the child sub-span and complete/log it.
         Span subSpan = currentSpanStack.pop();
+        threadContext.spanStackChanged();
+        if (subSpan == currentSpanStack.peek()) {
+            // This was a LIGHTWEIGHT unsampled sub-span stand-in for its parent, which is still current and already in the MDC.
+            return;
+        }
         completeAndLogSpan(subSpan, false);
 
         // Now configure the MDC with the new current span.
@@ -647,7 +1074,7 @@ public class Tracer {
         }
         else {
             // This is not the current span - find out if it's managed or unmanaged.
-            Deque<Span> currentSpanStack = currentSpanStackThreadLocal.get();
+            Deque<Span> currentSpanStack = contextStorage.get().spanStack;
             if (currentSpanStack != null && currentSpanStack.contains(span)) {
                 // It's on the stack, therefore it's managed. Now we just need to find out if it's the root span or not.
                 if (span.equals(currentSpanStack.peekLast())) {
@@ -758,7 +1185,8 @@ public class Tracer {
 
     /**
      * Calls {@link Span#complete()} to complete the span and logs it (but only if the span's {@link Span#isSampleable()} returns true). If the span is valid then it will
-     * be logged to {@link #validSpanLogger}, and if it is invalid then it will be logged to {@link #invalidSpanLogger}.
+     * be logged to {@link #validSpanLogger}, and if it is invalid then it will be logged to {@link #invalidSpanLogger}. Listeners are then notified, unless the span is
+     * unsampled and the {@link UnsampledSpanMode} is {@link UnsampledSpanMode#LIGHTWEIGHT}.
      *
      * @param span The span to complete and log
      * @param containsIncorrectTimingInfo Pass in true if you know the given span contains incorrect timing information (e.g. a child sub-span that wasn't completed normally
@@ -777,11 +1205,18 @@ public class Tracer {
         else
             span.complete();
 
-        // Log the span if it was sampleable.
+        // Log the span if it was sampleable. The span is passed to the logger wrapped in a SpanLogMessageArg so it's only serialized if an
+        //      appender formats the message, and encoders that know about SpanLogMessageArg can skip creating the String entirely.
         if (span.isSampleable()) {
-            String infoTag = containsIncorrectTimingInfo ? "[INCORRECT_TIMING] " : "";
             Logger loggerToUse = containsIncorrectTimingInfo ? invalidSpanLogger : validSpanLogger;
-            loggerToUse.info("{}[DISTRIBUTED_TRACING] {}", infoTag, serializeSpanToDesiredStringRepresentation(span));
+            if (loggerToUse.isInfoEnabled()) {
+                String infoTag = containsIncorrectTimingInfo ? "[INCORRECT_TIMING] " : "";
+                loggerToUse.info("{}[DISTRIBUTED_TRACING] {}", infoTag, new SpanLogMessageArg(this, span, spanLoggingRepresentation));
+            }
+        }
+        else if (unsampledSpanMode == UnsampledSpanMode.LIGHTWEIGHT) {
+            // Listeners don't hear about unsampled spans in LIGHTWEIGHT mode.
+            return;
         }
 
         // Notify listeners.
@@ -789,11 +1224,30 @@ public class Tracer {
     }
 
     /**
-     * Sets the span variables on the MDC context.
+     * Sets the span variables on the MDC context based on the current {@link MdcPopulationMode}. Keys that the current mode doesn't use are
+     * removed so nothing stale is left behind if the mode was changed. Unsampled spans never get JSON in {@link UnsampledSpanMode#LIGHTWEIGHT}
+     * mode - they get their span ID instead.
      */
     protected static void configureMDC(Span span) {
         MDC.put(TRACE_ID_MDC_KEY, span.getTraceId());
-        MDC.put(SPAN_JSON_MDC_KEY, span.toJSON());
+        MdcPopulationMode mode = INSTANCE.mdcPopulationMode;
+        if (mode == MdcPopulationMode.TRACE_ID_AND_SPAN_JSON && INSTANCE.isLightweightUnsampledSpan(span))
+            mode = MdcPopulationMode.TRACE_ID_AND_SPAN_ID;
+
+        switch (mode) {
+            case TRACE_ID_AND_SPAN_ID:
+                MDC.put(SPAN_ID_MDC_KEY, span.getSpanId());
+                MDC.remove(SPAN_JSON_MDC_KEY);
+                break;
+            case TRACE_ID_ONLY:
+                MDC.remove(SPAN_ID_MDC_KEY);
+                MDC.remove(SPAN_JSON_MDC_KEY);
+                break;
+            default:
+                MDC.put(SPAN_JSON_MDC_KEY, span.toJSON());
+                MDC.remove(SPAN_ID_MDC_KEY);
+                break;
+        }
     }
 
     /**
@@ -801,6 +1255,7 @@ public class Tracer {
      */
     protected static void unconfigureMDC() {
         MDC.remove(TRACE_ID_MDC_KEY);
+        MDC.remove(SPAN_ID_MDC_KEY);
         MDC.remove(SPAN_JSON_MDC_KEY);
     }
 
@@ -828,34 +1283,144 @@ public class Tracer {
     }
 
     /**
-     * Adds the given listener to the {@link #spanLifecycleListeners} list using {@link java.util.List#add(Object)}. This method will do nothing if you pass in null.
+     * Adds the given listener to the end of the {@link #spanLifecycleListeners} list. This method will do nothing if you pass in null.
      * <p/>
      * <b>WARNING:</b> It's important that any {@link SpanLifecycleListener} you add is extremely lightweight or you risk distributed tracing becoming a major bottleneck for
      * high throughput services. If any expensive work needs to be done in a {@link SpanLifecycleListener} then it should be done asynchronously on a thread or threadpool
-     * separate from the application worker threads.
+     * separate from the application worker threads. You can wrap expensive listeners in a
+     * {@link com.nike.wingtips.lifecyclelistener.AsyncSpanLifecycleListener} to have completed spans handed off to a bounded buffer and delivered on a
+     * separate dispatcher thread.
      */
     public void addSpanLifecycleListener(SpanLifecycleListener listener) {
-        if (listener != null)
-            this.spanLifecycleListeners.add(listener);
+        if (listener == null)
+            return;
+
+        synchronized (spanLifecycleListenersLock) {
+            ListenerRegistration[] current = spanLifecycleListeners;
+            ListenerRegistration[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = new ListenerRegistration(listener);
+            spanLifecycleListeners = updated;
+        }
     }
 
     /**
-     * Returns the value of calling {@link java.util.List#remove(Object)} on {@link #spanLifecycleListeners}.
+     * Removes the first entry in the {@link #spanLifecycleListeners} list that {@link Object#equals(Object)} the given listener. If the listener
+     * was quarantined by moving it into an {@link AsyncSpanLifecycleListener} then that wrapper is shut down.
+     *
+     * @return true if a listener was removed, false otherwise (including when you pass in null).
      */
     public boolean removeSpanLifecycleListener(SpanLifecycleListener listener) {
-        //noinspection SimplifiableIfStatement
         if (listener == null)
             return false;
 
-        return this.spanLifecycleListeners.remove(listener);
+        ListenerRegistration removedRegistration = null;
+        SpanLifecycleListener asyncWrapperToShutdown = null;
+        synchronized (spanLifecycleListenersLock) {
+            ListenerRegistration[] current = spanLifecycleListeners;
+            for (int i = 0; i < current.length; i++) {
+                if (listener.equals(current[i].listener)) {
+                    removedRegistration = current[i];
+                    removedRegistration.removed = true;
+                    ListenerRegistration[] updated = new ListenerRegistration[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    spanLifecycleListeners = updated;
+                    if (removedRegistration.target != removedRegistration.listener)
+                        asyncWrapperToShutdown = removedRegistration.target;
+                    break;
+                }
+            }
+        }
+
+        if (asyncWrapperToShutdown != null)
+            ((AsyncSpanLifecycleListener) asyncWrapperToShutdown).shutdown();
+
+        return removedRegistration != null;
     }
 
     /**
-     * @return The {@link #spanLifecycleListeners} list of span lifecycle listeners associated with this instance, wrapped in a {@link Collections#unmodifiableList(List)}
-     *          to prevent direct modification. This will never return null.
+     * @return An unmodifiable snapshot of the span lifecycle listeners associated with this instance, including quarantined ones. This will never
+     *          return null.
      */
     public List<SpanLifecycleListener> getSpanLifecycleListeners() {
-        return Collections.unmodifiableList(this.spanLifecycleListeners);
+        ListenerRegistration[] registrations = spanLifecycleListeners;
+        List<SpanLifecycleListener> listeners = new ArrayList<>(registrations.length);
+        for (ListenerRegistration registration : registrations) {
+            listeners.add(registration.listener);
+        }
+        return Collections.unmodifiableList(listeners);
+    }
+
+    /**
+     * @return An unmodifiable snapshot of the span lifecycle listeners that have been quarantined for going over the latency budget - see {@link
+     *          ListenerQuarantineAction}. This will never return null.
+     */
+    public List<SpanLifecycleListener> getQuarantinedSpanLifecycleListeners() {
+        List<SpanLifecycleListener> quarantined = new ArrayList<>();
+        for (ListenerRegistration registration : spanLifecycleListeners) {
+            if (registration.isQuarantined())
+                quarantined.add(registration.listener);
+        }
+        return Collections.unmodifiableList(quarantined);
+    }
+
+    /**
+     * @return The latency budget for a single {@link SpanLifecycleListener} notification in nanoseconds, or 0 if listeners aren't timed (the
+     *          default).
+     */
+    public long getSpanLifecycleListenerLatencyBudgetNanos() {
+        return spanLifecycleListenerLatencyBudgetNanos;
+    }
+
+    /**
+     * Sets how long a single {@link SpanLifecycleListener} notification may take. A listener that goes over it on {@link
+     * #getSpanLifecycleListenerQuarantineThreshold()} consecutive notifications is quarantined according to the {@link ListenerQuarantineAction}.
+     * Pass 0 to turn timing off, which is the default. Timing costs two {@link System#nanoTime()} calls per listener per notification.
+     */
+    public void setSpanLifecycleListenerLatencyBudget(long budget, TimeUnit timeUnit) {
+        if (budget < 0)
+            throw new IllegalArgumentException("budget cannot be negative.");
+
+        if (timeUnit == null)
+            throw new IllegalArgumentException("timeUnit cannot be null.");
+
+        this.spanLifecycleListenerLatencyBudgetNanos = timeUnit.toNanos(budget);
+    }
+
+    /**
+     * @return How many notifications in a row have to go over the latency budget before a listener is quarantined. Defaults to {@link
+     *          #DEFAULT_LISTENER_QUARANTINE_THRESHOLD}.
+     */
+    public int getSpanLifecycleListenerQuarantineThreshold() {
+        return spanLifecycleListenerQuarantineThreshold;
+    }
+
+    /**
+     * Sets how many notifications in a row have to go over the latency budget before a listener is quarantined. Requiring several in a row keeps a
+     * healthy listener from being quarantined by a single GC pause.
+     */
+    public void setSpanLifecycleListenerQuarantineThreshold(int quarantineThreshold) {
+        if (quarantineThreshold < 1)
+            throw new IllegalArgumentException("quarantineThreshold must be greater than 0.");
+
+        this.spanLifecycleListenerQuarantineThreshold = quarantineThreshold;
+    }
+
+    /**
+     * @return What happens to a listener when it's quarantined. Defaults to {@link ListenerQuarantineAction#DISABLE}.
+     */
+    public ListenerQuarantineAction getSpanLifecycleListenerQuarantineAction() {
+        return spanLifecycleListenerQuarantineAction;
+    }
+
+    /**
+     * Sets what happens to a listener when it's quarantined. Listeners that were already quarantined aren't affected.
+     */
+    public void setSpanLifecycleListenerQuarantineAction(ListenerQuarantineAction quarantineAction) {
+        if (quarantineAction == null)
+            throw new IllegalArgumentException("quarantineAction cannot be null.");
+
+        this.spanLifecycleListenerQuarantineAction = quarantineAction;
     }
 
     /**
@@ -875,14 +1440,86 @@ public class Tracer {
         this.spanLoggingRepresentation = spanLoggingRepresentation;
     }
 
+    /**
+     * @return The currently selected option for what span information is put into the MDC for the current span.
+     */
+    public MdcPopulationMode getMdcPopulationMode() {
+        return mdcPopulationMode;
+    }
+
+    /**
+     * Sets the option for what span information is put into the MDC for the current span. This takes effect the next time the current span
+     * changes on any given thread.
+     */
+    public void setMdcPopulationMode(MdcPopulationMode mdcPopulationMode) {
+        if (mdcPopulationMode == null)
+            throw new IllegalArgumentException("mdcPopulationMode cannot be null.");
+
+        this.mdcPopulationMode = mdcPopulationMode;
+    }
+
+    /**
+     * @return The {@link TracerContextStorage} that keeps each thread's span stack.
+     */
+    public TracerContextStorage getContextStorage() {
+        return contextStorage;
+    }
+
+    /**
+     * Sets the {@link TracerContextStorage} that keeps each thread's span stack. The default is a {@link ThreadLocalContextStorage}. This should be set once at
+     * startup before any spans are started - span stacks kept by the previous storage are not carried over, so any request that is in flight when this is called
+     * will lose its spans. This will throw an {@link IllegalArgumentException} if you pass in null.
+     */
+    public void setContextStorage(TracerContextStorage contextStorage) {
+        if (contextStorage == null)
+            throw new IllegalArgumentException("contextStorage cannot be null.");
+
+        this.contextStorage = contextStorage;
+    }
+
+    /**
+     * @return The currently selected option for how much work is done for unsampled spans.
+     */
+    public UnsampledSpanMode getUnsampledSpanMode() {
+        return unsampledSpanMode;
+    }
+
+    /**
+     * Sets the option for how much work is done for unsampled spans. This should be set once at startup - changing it while requests are in
+     * flight can leave listeners seeing spans complete that they never saw start (or vice versa).
+     */
+    public void setUnsampledSpanMode(UnsampledSpanMode unsampledSpanMode) {
+        if (unsampledSpanMode == null)
+            throw new IllegalArgumentException("unsampledSpanMode cannot be null.");
+
+        this.unsampledSpanMode = unsampledSpanMode;
+    }
+
+    /**
+     * Lets instrumentation skip per-span work (building span names, starting sub-spans, etc) that would be thrown away anyway. When this returns
+     * true {@link #startSubSpan(String, SpanPurpose)} would just hand back the current span, so propagating {@link #getCurrentSpan()} directly
+     * is equivalent.
+     *
+     * @return true if there's a current span, it's unsampled, and the {@link UnsampledSpanMode} is {@link UnsampledSpanMode#LIGHTWEIGHT}.
+     */
+    public boolean isCurrentSpanLightweight() {
+        Span currentSpan = getCurrentSpan();
+        return currentSpan != null && isLightweightUnsampledSpan(currentSpan);
+    }
+
+    /**
+     * @return true if the given span is unsampled and the {@link UnsampledSpanMode} is {@link UnsampledSpanMode#LIGHTWEIGHT}.
+     */
+    protected boolean isLightweightUnsampledSpan(Span span) {
+        return !span.isSampleable() && unsampledSpanMode == UnsampledSpanMode.LIGHTWEIGHT;
+    }
+
 
     /**
      * Notifies all listeners that the given span was started using {@link SpanLifecycleListener#spanStarted(Span)}
      */
     protected void notifySpanStarted(Span span) {
-        for (SpanLifecycleListener tll : spanLifecycleListeners) {
-            tll.spanStarted(span);
-        }
+        notifyListeners(SpanLifecycleEvent.STARTED, span);
     }
 
     /**
@@ -890,22 +1527,90 @@ public class Tracer {
      * method returns true!</b> If the span is not sampleable then this method does nothing.
      */
     protected void notifyIfSpanSampled(Span span) {
-        if (span.isSampleable()) {
-            for (SpanLifecycleListener tll : spanLifecycleListeners) {
-                tll.spanSampled(span);
-            }
-        }
+        if (span.isSampleable())
+            notifyListeners(SpanLifecycleEvent.SAMPLED, span);
     }
 
     /**
      * Notifies all listeners that the given span was completed using {@link SpanLifecycleListener#spanCompleted(Span)}
      */
     protected void notifySpanCompleted(Span span) {
-        for (SpanLifecycleListener tll : spanLifecycleListeners) {
-            tll.spanCompleted(span);
+        notifyListeners(SpanLifecycleEvent.COMPLETED, span);
+    }
+
+    /**
+     * Delivers the given event to every listener that isn't disabled. A listener that throws is logged and skipped, and when a latency budget is
+     * set each delivery is timed and counted toward quarantining the listener.
+     */
+    private void notifyListeners(SpanLifecycleEvent event, Span span) {
+        long budgetNanos = spanLifecycleListenerLatencyBudgetNanos;
+        for (ListenerRegistration registration : spanLifecycleListeners) {
+            if (registration.disabled)
+                continue;
+
+            SpanLifecycleListener target = registration.target;
+            long startNanos = (budgetNanos > 0) ? System.nanoTime() : 0;
+            try {
+                event.deliver(target, span);
+            }
+            catch (Throwable t) {
+                classLogger.error(
+                    "A SpanLifecycleListener threw an exception. It was caught so the exception doesn't affect the caller. "
+                    + "span_listener_error=true, listener_class={}, span_event={}, trace_id={}, span_id={}",
+                    registration.listener.getClass().getName(), event, span.getTraceId(), span.getSpanId(), t
+                );
+            }
+
+            if (budgetNanos > 0)
+                recordListenerLatency(registration, System.nanoTime() - startNanos, budgetNanos);
         }
     }
 
+    private void recordListenerLatency(ListenerRegistration registration, long elapsedNanos, long budgetNanos) {
+        if (elapsedNanos <= budgetNanos) {
+            if (registration.consecutiveOverBudgetCount.get() != 0)
+                registration.consecutiveOverBudgetCount.set(0);
+            return;
+        }
+
+        if (registration.consecutiveOverBudgetCount.incrementAndGet() >= spanLifecycleListenerQuarantineThreshold)
+            quarantineListener(registration, elapsedNanos, budgetNanos);
+    }
+
+    private void quarantineListener(ListenerRegistration registration, long elapsedNanos, long budgetNanos) {
+        SpanLifecycleListener asyncWrapperToShutdown = null;
+        synchronized (spanLifecycleListenersLock) {
+            if (registration.removed
+                || registration.disabled
+                || registration.consecutiveOverBudgetCount.get() < spanLifecycleListenerQuarantineThreshold) {
+                return;
+            }
+
+            registration.consecutiveOverBudgetCount.set(0);
+            boolean moveToAsync = spanLifecycleListenerQuarantineAction == ListenerQuarantineAction.ASYNC
+                                  && !registration.isQuarantined()
+                                  && !(registration.listener instanceof AsyncSpanLifecycleListener);
+            if (moveToAsync) {
+                registration.target = new AsyncSpanLifecycleListener(registration.listener);
+            }
+            else {
+                registration.disabled = true;
+                if (registration.target != registration.listener)
+                    asyncWrapperToShutdown = registration.target;
+            }
+
+            classLogger.warn(
+                "A SpanLifecycleListener went over its latency budget too many times in a row and has been quarantined. "
+                + "span_listener_quarantined=true, listener_class={}, quarantine_action={}, last_elapsed_nanos={}, budget_nanos={}",
+                registration.listener.getClass().getName(), (moveToAsync) ? ListenerQuarantineAction.ASYNC : ListenerQuarantineAction.DISABLE,
+                elapsedNanos, budgetNanos
+            );
+        }
+
+        if (asyncWrapperToShutdown != null)
+            ((AsyncSpanLifecycleListener) asyncWrapperToShutdown).shutdown();
+    }
+
     /**
      * @return A *copy* of the current thread's tracing information. Since this creates copies of the span stack and MDC
      * info it can have a noticeable performance impact if used too many times (i.e. tens or hundreds of times per
@@ -926,13 +1631,12 @@ public class Tracer {
      * store for later without interrupting current state).
      * <p/>
      * This method may return null or an empty stack, depending on its current state.
+     * <p/>
+     * NOTE: The copy is a copy-on-write {@link SpanStack#snapshot()}, so this method is O(1) no matter how deep the stack is, and no spans are copied unless the copy
+     * (or this thread's stack) is modified later.
      */
     public Deque<Span> getCurrentSpanStackCopy() {
-        Deque<Span> currentStack = currentSpanStackThreadLocal.get();
-        if (currentStack == null)
-            return null;
-
-        return new LinkedList<>(currentStack);
+        return SpanStack.copyOf(contextStorage.get().spanStack);
     }
 
     /**
@@ -940,7 +1644,7 @@ public class Tracer {
      * cost of {@link #getCurrentSpanStackCopy()}.
      */
     public int getCurrentSpanStackSize() {
-        Deque<Span> currentStack = currentSpanStackThreadLocal.get();
+        Deque<Span> currentStack = contextStorage.get().spanStack;
         if (currentStack == null)
             return 0;
 
@@ -962,8 +1666,10 @@ public class Tracer {
      * to a different request in the middle. In that case just use the normal start and complete span methods and ignore this method.
      */
     public Deque<Span> unregisterFromThread() {
-        Deque<Span> currentValue = currentSpanStackThreadLocal.get();
-        currentSpanStackThreadLocal.remove();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> currentValue = threadContext.spanStack;
+        threadContext.spanStack = null;
+        threadContext.spanStackChanged();
         unconfigureMDC();
         return currentValue;
     }
@@ -1018,7 +1724,8 @@ public class Tracer {
      * to a different request in the middle. In that case just use the normal start and complete span methods and ignore this method.
      */
     public void registerWithThread(Deque<Span> registerMe) {
-        Deque<Span> currentSpanStack = currentSpanStackThreadLocal.get();
+        SpanStackThreadContext threadContext = contextStorage.get();
+        Deque<Span> currentSpanStack = threadContext.spanStack;
 
         // Do nothing if the passed-in stack is functionally identical to what we already have.
         if (!containsSameSpansInSameOrder(currentSpanStack, registerMe)) {
@@ -1036,7 +1743,8 @@ public class Tracer {
                         badTraceIds.append(',');
                     badTraceIds.append(span.getTraceId());
 
-                    completeAndLogSpan(span, true);
+                    if (span != currentSpanStack.peek())
+                        completeAndLogSpan(span, true);
                 }
 
                 // Output an error message
@@ -1052,8 +1760,15 @@ public class Tracer {
             }
 
             // At this point any errors have been handled and we can register the new stack. Make sure we register a copy so that changes to the original don't affect our stack.
-            registerMe = (registerMe == null) ? null : new LinkedList<>(registerMe);
-            currentSpanStackThreadLocal.set(registerMe);
+            //      The old stack is no longer referenced anywhere, so it can be recycled to hold the copy.
+            recycleSpanStack(threadContext, currentSpanStack);
+            if (registerMe != null) {
+                SpanStack copy = obtainEmptySpanStack(threadContext);
+                copy.resetToCopyOf(registerMe);
+                registerMe = copy;
+            }
+            threadContext.spanStack = registerMe;
+            threadContext.spanStackChanged();
         }
 
         // Make sure we fix the MDC to the passed-in info.
@@ -0,0 +1,191 @@
+package com.nike.wingtips.clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default {@link SpanClock}. It reads {@link System#currentTimeMillis()} once as an anchor, and converts {@link
+ * System#nanoTime()} readings to epoch microseconds by adding the elapsed nanoseconds to that anchor. This gives
+ * microsecond resolution timestamps on Java 7, where the wall clock itself only has millisecond resolution. To make the
+ * anchor itself accurate to better than a millisecond, the first calibration waits (for at most {@link
+ * #MAX_INITIAL_CALIBRATION_WAIT_NANOS}) for {@link System#currentTimeMillis()} to tick over to the next millisecond.
+ *
+ * <p>Every wall clock reading is bracketed by {@link System#nanoTime()} readings, and is only used if they're no more
+ * than {@link #MAX_READ_SKEW_NANOS} apart. Otherwise the thread was probably descheduled in between, and the wall clock
+ * value could be paired with a nanoTime taken much later, so the reading is taken again.
+ *
+ * <p>{@link System#nanoTime()} can drift from the wall clock (e.g. when NTP adjusts it), so the clock checks itself
+ * against {@link System#currentTimeMillis()} again once the recalibration interval has passed. The real wall time is
+ * somewhere in the millisecond that {@link System#currentTimeMillis()} reports, so as long as the extrapolated time
+ * falls within that millisecond it's kept as is - timestamps only jump when the wall clock has really moved, and then
+ * only as far as needed to get back inside it. Timestamps are therefore within a millisecond (plus {@link
+ * #MAX_READ_SKEW_NANOS}) of the wall clock.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CalibratedSpanClock implements SpanClock {
+
+    /**
+     * The default time between checks against the wall clock.
+     */
+    public static final long DEFAULT_RECALIBRATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The longest the first calibration will spin waiting for the wall clock to tick over to the next millisecond. If it
+     * doesn't tick in time, the anchor is the start of the millisecond it reports plus how long it's been reporting it.
+     */
+    public static final long MAX_INITIAL_CALIBRATION_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * The furthest apart the {@link System#nanoTime()} readings on either side of a wall clock reading can be for the
+     * wall clock reading to be used.
+     */
+    public static final long MAX_READ_SKEW_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The number of times a calibration tries to get a wall clock reading within {@link #MAX_READ_SKEW_NANOS} before
+     * settling for the least skewed one it got.
+     */
+    protected static final int MAX_READ_ATTEMPTS = 10;
+
+    protected final long recalibrationIntervalNanos;
+
+    /**
+     * The current anchor - null until the first call to {@link #toEpochMicros(long)}. Replaced as a whole so readers
+     * always see a matching pair of values.
+     */
+    private volatile Calibration calibration;
+
+    /**
+     * Creates a new instance that checks itself against the wall clock every {@link
+     * #DEFAULT_RECALIBRATION_INTERVAL_NANOS}.
+     */
+    public CalibratedSpanClock() {
+        this(DEFAULT_RECALIBRATION_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param recalibrationIntervalNanos The time between checks against the wall clock - must be greater than 0.
+     */
+    public CalibratedSpanClock(long recalibrationIntervalNanos) {
+        if (recalibrationIntervalNanos < 1)
+            throw new IllegalArgumentException("recalibrationIntervalNanos must be greater than 0");
+
+        this.recalibrationIntervalNanos = recalibrationIntervalNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return systemNanoTime();
+    }
+
+    @Override
+    public long toEpochMicros(long nanoTime) {
+        Calibration current = calibration;
+        if (current == null || nanoTime - current.anchorNanos >= recalibrationIntervalNanos)
+            current = recalibrate(current);
+
+        return current.anchorEpochMicros + TimeUnit.NANOSECONDS.toMicros(nanoTime - current.anchorNanos);
+    }
+
+    private Calibration recalibrate(Calibration previous) {
+        if (previous == null)
+            return calibrateOnMillisecondTick();
+
+        // Use the first reading that isn't skewed, or the least skewed one if they all are.
+        long readNanos = 0;
+        long wallClockMillis = 0;
+        long bestSkewNanos = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS && bestSkewNanos > MAX_READ_SKEW_NANOS; attempt++) {
+            long beforeNanos = systemNanoTime();
+            long millis = systemCurrentTimeMillis();
+            long skewNanos = systemNanoTime() - beforeNanos;
+            if (skewNanos < bestSkewNanos) {
+                bestSkewNanos = skewNanos;
+                readNanos = beforeNanos;
+                wallClockMillis = millis;
+            }
+        }
+
+        long wallClockMicros = TimeUnit.MILLISECONDS.toMicros(wallClockMillis);
+        long extrapolatedMicros = previous.anchorEpochMicros + TimeUnit.NANOSECONDS.toMicros(readNanos - previous.anchorNanos);
+        // The real wall time is somewhere in the millisecond starting at wallClockMicros, so only move as far as needed to get back inside it.
+        long anchorEpochMicros = Math.min(Math.max(extrapolatedMicros, wallClockMicros), wallClockMicros + 999);
+
+        return updateCalibration(readNanos, anchorEpochMicros);
+    }
+
+    private Calibration calibrateOnMillisecondTick() {
+        long startNanos = systemNanoTime();
+        long previousBeforeNanos = startNanos;
+        long previousMillis = systemCurrentTimeMillis();
+        // The wall clock had reached the start of previousMillis by this nanoTime.
+        long millisSeenNanos = systemNanoTime();
+        long fallbackNanos = 0;
+        long fallbackEpochMicros = 0;
+        long fallbackSkewNanos = Long.MAX_VALUE;
+        int readsAfterDeadline = 0;
+        while (true) {
+            long beforeNanos = systemNanoTime();
+            long millis = systemCurrentTimeMillis();
+            long afterNanos = systemNanoTime();
+            if (millis != previousMillis) {
+                // The tick happened after the previous wall clock read and before this one, i.e. between previousBeforeNanos and afterNanos.
+                if (afterNanos - previousBeforeNanos <= MAX_READ_SKEW_NANOS)
+                    return updateCalibration(beforeNanos, TimeUnit.MILLISECONDS.toMicros(millis));
+
+                millisSeenNanos = afterNanos;
+            }
+
+            if (afterNanos - beforeNanos <= fallbackSkewNanos) {
+                // The wall clock has been in this millisecond since at least millisSeenNanos, which gives a lower bound on how far into it it is.
+                fallbackSkewNanos = afterNanos - beforeNanos;
+                fallbackNanos = beforeNanos;
+                fallbackEpochMicros = TimeUnit.MILLISECONDS.toMicros(millis)
+                                      + TimeUnit.NANOSECONDS.toMicros(Math.max(beforeNanos - millisSeenNanos, 0));
+            }
+
+            // Give up on seeing a tick after the max wait, but keep going (within reason) until there's an unskewed reading to fall back on.
+            if (afterNanos - startNanos >= MAX_INITIAL_CALIBRATION_WAIT_NANOS
+                && (fallbackSkewNanos <= MAX_READ_SKEW_NANOS || ++readsAfterDeadline >= MAX_READ_ATTEMPTS)) {
+                break;
+            }
+
+            previousBeforeNanos = beforeNanos;
+            previousMillis = millis;
+        }
+
+        return updateCalibration(fallbackNanos, fallbackEpochMicros);
+    }
+
+    private Calibration updateCalibration(long anchorNanos, long anchorEpochMicros) {
+        // Racing calibrations are harmless - they all produce an equally valid anchor.
+        Calibration updated = new Calibration(anchorNanos, anchorEpochMicros);
+        calibration = updated;
+        return updated;
+    }
+
+    /**
+     * @return The current time in nanoseconds from an arbitrary origin - {@link System#nanoTime()} by default. Protected
+     * so tests can supply their own clock.
+     */
+    protected long systemNanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @return The current wall clock time in milliseconds - {@link System#currentTimeMillis()} by default. Protected so
+     * tests can supply their own clock.
+     */
+    protected long systemCurrentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static final class Calibration {
+        final long anchorNanos;
+        final long anchorEpochMicros;
+
+        Calibration(long anchorNanos, long anchorEpochMicros) {
+            this.anchorNanos = anchorNanos;
+            this.anchorEpochMicros = anchorEpochMicros;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nike.wingtips.clock;
+
+/**
+ * Pluggable time source for {@link com.nike.wingtips.Span} start times and durations. Call {@link
+ * com.nike.wingtips.Span#setSpanClock(SpanClock)} to tell spans to use a specific clock, e.g. a fixed or manually
+ * advanced one for deterministic tests.
+ *
+ * <p>Only root spans (and spans built without a parent) ask the clock for an epoch timestamp. Child spans take a single
+ * {@link #nanoTime()} reading and derive their epoch start time from their parent's, so every span in a trace is
+ * anchored to the same epoch reading and ordered consistently with the parent.
+ *
+ * <p>Implementations must be thread safe, and since this is called for every span that is created and completed they
+ * should be fast and should not contend on a shared lock.
+ */
+public interface SpanClock {
+
+    /**
+     * @return The current value of a monotonic nanosecond timer, like {@link System#nanoTime()}. Only differences between
+     * values returned by the same clock are meaningful.
+     */
+    long nanoTime();
+
+    /**
+     * @param nanoTime A value previously returned by this clock's {@link #nanoTime()}.
+     * @return The given time converted to microseconds since the epoch.
+     */
+    long toEpochMicros(long nanoTime);
+
+}
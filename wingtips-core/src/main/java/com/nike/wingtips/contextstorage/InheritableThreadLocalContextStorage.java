@@ -0,0 +1,38 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+/**
+ * A {@link TracerContextStorage} that keeps each thread's context in an {@link InheritableThreadLocal}, so a new thread starts out with a copy of the
+ * span stack its parent thread had when the new thread was <b>constructed</b>. The child can then start sub-spans of the parent's current span without
+ * any hand-off code, and changes either thread makes to its stack afterward are not seen by the other.
+ *
+ * <p>The SLF4J MDC is not inherited by this storage, so the child thread's log messages won't have tracing info until its span stack changes (or you
+ * call {@link com.nike.wingtips.Tracer#registerWithThread(java.util.Deque)}).
+ *
+ * <p><b>WARNING:</b> Only use this when threads are created for the request they work on. Pooled threads are created whenever the pool decides to grow,
+ * so they would inherit whatever request happened to be in progress on the thread that submitted the task that triggered the growth, and keep it for
+ * later unrelated tasks. For thread pools use {@link com.nike.wingtips.util.asynchelperwrapper.ExecutorServiceWithTracing} or the other async helpers
+ * instead.
+ */
+@SuppressWarnings("WeakerAccess")
+public class InheritableThreadLocalContextStorage implements TracerContextStorage {
+
+    protected final InheritableThreadLocal<SpanStackThreadContext> threadContext = new InheritableThreadLocal<SpanStackThreadContext>() {
+        @Override
+        protected SpanStackThreadContext initialValue() {
+            return new SpanStackThreadContext();
+        }
+
+        @Override
+        protected SpanStackThreadContext childValue(SpanStackThreadContext parentValue) {
+            // The parent's context is mutable and owned by the parent thread, so the child gets its own copy.
+            return parentValue.copyForNewThread();
+        }
+    };
+
+    @Override
+    public SpanStackThreadContext get() {
+        return threadContext.get();
+    }
+}
@@ -0,0 +1,50 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+/**
+ * A {@link TracerContextStorage} that keeps the context in a plain field when the calling thread is a {@link TracerContextThread}, which avoids the {@link
+ * ThreadLocal} hash lookup that {@link ThreadLocalContextStorage} needs on every access. Any other thread falls back to the {@link TracerContextStorage}
+ * given to the constructor (a {@link ThreadLocalContextStorage} by default), so it's safe to use this storage even if only some of your threads are
+ * {@link TracerContextThread}s.
+ *
+ * <p>To get the benefit, create the threads that do your request processing with a {@link TracerContextThreadFactory}, e.g. {@code
+ * Executors.newFixedThreadPool(16, new TracerContextThreadFactory("worker"))}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ThreadFieldContextStorage implements TracerContextStorage {
+
+    protected final TracerContextStorage fallbackStorage;
+
+    /**
+     * Creates a new instance that uses a {@link ThreadLocalContextStorage} for threads that aren't {@link TracerContextThread}s.
+     */
+    public ThreadFieldContextStorage() {
+        this(new ThreadLocalContextStorage());
+    }
+
+    /**
+     * Creates a new instance that uses the given storage for threads that aren't {@link TracerContextThread}s.
+     */
+    public ThreadFieldContextStorage(TracerContextStorage fallbackStorage) {
+        if (fallbackStorage == null)
+            throw new IllegalArgumentException("fallbackStorage cannot be null");
+
+        this.fallbackStorage = fallbackStorage;
+    }
+
+    @Override
+    public SpanStackThreadContext get() {
+        Thread currentThread = Thread.currentThread();
+        if (!(currentThread instanceof TracerContextThread))
+            return fallbackStorage.get();
+
+        TracerContextThread tracerContextThread = (TracerContextThread) currentThread;
+        SpanStackThreadContext context = tracerContextThread.tracerContext;
+        if (context == null) {
+            context = new SpanStackThreadContext();
+            tracerContextThread.tracerContext = context;
+        }
+        return context;
+    }
+}
@@ -0,0 +1,23 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+/**
+ * The default {@link TracerContextStorage}, which keeps each thread's context in a {@link ThreadLocal}. This works on any thread, but costs a {@link
+ * ThreadLocal} hash lookup on every access.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ThreadLocalContextStorage implements TracerContextStorage {
+
+    protected final ThreadLocal<SpanStackThreadContext> threadContext = new ThreadLocal<SpanStackThreadContext>() {
+        @Override
+        protected SpanStackThreadContext initialValue() {
+            return new SpanStackThreadContext();
+        }
+    };
+
+    @Override
+    public SpanStackThreadContext get() {
+        return threadContext.get();
+    }
+}
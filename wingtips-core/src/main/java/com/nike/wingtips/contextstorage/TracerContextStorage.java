@@ -0,0 +1,32 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+/**
+ * Pluggable storage for the per-thread {@link SpanStackThreadContext} that {@link Tracer} keeps each thread's span stack in. Call {@link
+ * Tracer#setContextStorage(TracerContextStorage)} to tell {@link Tracer} to use a specific storage.
+ *
+ * <p>{@link #get()} is called for every span start and completion and every {@link Tracer#getCurrentSpan()}, so implementations should be as fast as
+ * possible. The available implementations are:
+ * <ul>
+ *     <li>{@link ThreadLocalContextStorage} - the default, which works on any thread.</li>
+ *     <li>
+ *         {@link ThreadFieldContextStorage} - keeps the context in a plain field on {@link TracerContextThread}s (e.g. the threads created by a
+ *         {@link TracerContextThreadFactory} for your own thread pools), which avoids the {@link ThreadLocal} hash lookup. Other threads fall back to
+ *         a {@link ThreadLocal}.
+ *     </li>
+ *     <li>
+ *         {@link InheritableThreadLocalContextStorage} - new threads start out with a copy of their parent thread's span stack.
+ *     </li>
+ * </ul>
+ */
+public interface TracerContextStorage {
+
+    /**
+     * @return The calling thread's context. This should create a new empty context the first time it's called on a given thread, and must return that
+     * same instance every time after that on that thread. Never returns null.
+     */
+    SpanStackThreadContext get();
+
+}
@@ -0,0 +1,35 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+/**
+ * A {@link Thread} with a field that {@link ThreadFieldContextStorage} keeps the thread's {@link SpanStackThreadContext} in, so looking it up is a type
+ * check and a field read instead of a {@link ThreadLocal} hash lookup. Use a {@link TracerContextThreadFactory} to create these for your thread pools, or
+ * extend this class if you already have your own {@link Thread} subclass.
+ */
+@SuppressWarnings("WeakerAccess")
+public class TracerContextThread extends Thread {
+
+    // Only ever read and written by this thread, so no synchronization is necessary.
+    SpanStackThreadContext tracerContext;
+
+    public TracerContextThread() {
+        super();
+    }
+
+    public TracerContextThread(Runnable target) {
+        super(target);
+    }
+
+    public TracerContextThread(Runnable target, String name) {
+        super(target, name);
+    }
+
+    public TracerContextThread(ThreadGroup group, Runnable target, String name) {
+        super(group, target, name);
+    }
+
+    public TracerContextThread(ThreadGroup group, Runnable target, String name, long stackSize) {
+        super(group, target, name, stackSize);
+    }
+}
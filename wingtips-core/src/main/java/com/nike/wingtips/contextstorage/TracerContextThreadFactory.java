@@ -0,0 +1,41 @@
+package com.nike.wingtips.contextstorage;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ThreadFactory} that creates {@link TracerContextThread}s, for thread pools whose threads should use the fast path of {@link
+ * ThreadFieldContextStorage}. Threads are named {@code [namePrefix]-[N]} where N counts up from 1.
+ */
+@SuppressWarnings("WeakerAccess")
+public class TracerContextThreadFactory implements ThreadFactory {
+
+    protected final String namePrefix;
+    protected final boolean daemon;
+    protected final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Creates a new instance that creates non-daemon threads with the given name prefix.
+     */
+    public TracerContextThreadFactory(String namePrefix) {
+        this(namePrefix, false);
+    }
+
+    /**
+     * Creates a new instance that creates threads with the given name prefix and daemon status.
+     */
+    public TracerContextThreadFactory(String namePrefix, boolean daemon) {
+        if (namePrefix == null)
+            throw new IllegalArgumentException("namePrefix cannot be null");
+
+        this.namePrefix = namePrefix;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new TracerContextThread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
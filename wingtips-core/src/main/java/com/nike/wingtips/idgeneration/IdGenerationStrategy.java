@@ -0,0 +1,20 @@
+package com.nike.wingtips.idgeneration;
+
+/**
+ * Pluggable strategy for {@link com.nike.wingtips.TraceAndSpanIdGenerator} that generates the random 64-bit values used
+ * for trace IDs and span IDs. Call {@link
+ * com.nike.wingtips.TraceAndSpanIdGenerator#setIdGenerationStrategy(IdGenerationStrategy)} to tell the generator to use
+ * a specific strategy.
+ *
+ * <p>Implementations must be thread safe, and since this is called for every span that is created they should be
+ * fast and should not contend on a shared lock when many threads are generating IDs at the same time.
+ */
+public interface IdGenerationStrategy {
+
+    /**
+     * @return A random long pulled from the full 64-bit random search space (as opposed to the 48 bits of randomness
+     * you get from {@link java.util.Random#nextLong()}).
+     */
+    long generate64BitRandomLong();
+
+}
@@ -0,0 +1,44 @@
+package com.nike.wingtips.idgeneration;
+
+import java.util.Random;
+
+/**
+ * {@link IdGenerationStrategy} that pulls every ID from a single shared {@link Random} (normally a {@link
+ * java.security.SecureRandom}). This was how {@link com.nike.wingtips.TraceAndSpanIdGenerator} always generated IDs
+ * before {@link IdGenerationStrategy} was introduced, and is still available if you need IDs that are unpredictable.
+ *
+ * <p><b>WARNING:</b> {@link java.security.SecureRandom} implementations are internally synchronized, so every thread
+ * generating an ID contends on the same lock. This can become a bottleneck in services with many worker threads - the
+ * default {@link ThreadLocalSplitMix64IdGenerationStrategy} doesn't have this problem.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SecureRandomIdGenerationStrategy implements IdGenerationStrategy {
+
+    protected final Random random;
+
+    /**
+     * @param random The shared random number generator to use - cannot be null. Since we want IDs that span the full set
+     * of 64-bit possibilities this should be a {@link java.security.SecureRandom} if at all possible (see {@link
+     * Random#nextLong()} for details on the default {@link Random}'s limitations here). And since it will be used in a
+     * multithreaded and time sensitive environment it should not be a blocking {@link java.security.SecureRandom}
+     * instance.
+     */
+    public SecureRandomIdGenerationStrategy(Random random) {
+        if (random == null)
+            throw new IllegalArgumentException("random cannot be null");
+
+        this.random = random;
+    }
+
+    @Override
+    public long generate64BitRandomLong() {
+        byte[] random8Bytes = new byte[8];
+        random.nextBytes(random8Bytes);
+
+        long longVal = 0;
+        for (int i = 0; i < 8; i++)
+            longVal = (longVal << 8) | (random8Bytes[i] & 0xff);
+
+        return longVal;
+    }
+}
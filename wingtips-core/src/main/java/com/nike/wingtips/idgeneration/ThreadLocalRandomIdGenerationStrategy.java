@@ -0,0 +1,24 @@
+package com.nike.wingtips.idgeneration;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link IdGenerationStrategy} that pulls every ID from {@link ThreadLocalRandom#current()}. Use this instead of the
+ * default {@link ThreadLocalSplitMix64IdGenerationStrategy} when most spans are created on short-lived virtual threads
+ * (Java 21+). On Java 8 and later {@link ThreadLocalRandom} keeps its state in fields on the {@link Thread} itself, and
+ * seeds new threads from a lock-free shared counter. A thread that generates a single ID therefore doesn't allocate a
+ * {@link ThreadLocal} map entry, and doesn't take the {@link java.security.SecureRandom} lock to seed itself. The default
+ * strategy does both once per thread, which is cheap for a pool of long-lived threads but not for one thread per task.
+ *
+ * <p>On Java 8 and later {@link ThreadLocalRandom#nextLong()} uses the same SplitMix64 output function as the default
+ * strategy and covers the full 64-bit output space. Don't use this strategy on Java 7, where {@link ThreadLocalRandom}
+ * is itself backed by a {@link ThreadLocal} and only has 48 bits of state. Like the default strategy, this is not a
+ * cryptographically secure generator - use {@link SecureRandomIdGenerationStrategy} if you need unpredictable IDs.
+ */
+public class ThreadLocalRandomIdGenerationStrategy implements IdGenerationStrategy {
+
+    @Override
+    public long generate64BitRandomLong() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+}
@@ -0,0 +1,81 @@
+package com.nike.wingtips.idgeneration;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * The default {@link IdGenerationStrategy}. Each thread gets its own SplitMix64 generator, so there is no shared state
+ * and no lock contention no matter how many threads are generating IDs. Each thread's generator is seeded with 64 bits
+ * from a {@link SecureRandom} the first time that thread generates an ID, so different threads (and different JVMs)
+ * produce independent sequences.
+ *
+ * <p>SplitMix64 (the algorithm behind {@code java.util.SplittableRandom}) passes the BigCrush statistical test suite,
+ * covers the full 64-bit output space, and never repeats a value within a single thread's sequence until 2^64 values
+ * have been generated. This is not a cryptographically secure generator, which is fine for trace and span IDs - they
+ * need to be unique and well distributed, not unpredictable. If you need unpredictable IDs use {@link
+ * SecureRandomIdGenerationStrategy} instead.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ThreadLocalSplitMix64IdGenerationStrategy implements IdGenerationStrategy {
+
+    // The odd constant SplitMix64 adds to its state for every value (2^64 divided by the golden ratio).
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    protected final Random seedSource;
+
+    protected final ThreadLocal<GeneratorState> generatorStateThreadLocal = new ThreadLocal<GeneratorState>() {
+        @Override
+        protected GeneratorState initialValue() {
+            return new GeneratorState(seedSource.nextLong());
+        }
+    };
+
+    /**
+     * Creates a new instance that seeds each thread's generator from a {@code new SecureRandom()}, i.e. the platform's
+     * default algorithm (e.g. {@code NativePRNG} on Linux, which reads {@code /dev/urandom}). {@link
+     * com.nike.wingtips.TraceAndSpanIdGenerator}'s default instance is seeded from a {@code SHA1PRNG} {@link SecureRandom}
+     * instead - use {@link #ThreadLocalSplitMix64IdGenerationStrategy(Random)} if you need a specific algorithm.
+     */
+    public ThreadLocalSplitMix64IdGenerationStrategy() {
+        this(new SecureRandom());
+    }
+
+    /**
+     * Creates a new instance that seeds each thread's generator from the given {@link Random}. This should be a {@link
+     * SecureRandom} (or at least a generator that produces full 64-bit values from {@link Random#nextLong()}) or IDs
+     * generated on different threads are more likely to collide. The given {@link Random} must be thread safe since
+     * threads will use it to seed themselves, but it is only called once per thread.
+     */
+    public ThreadLocalSplitMix64IdGenerationStrategy(Random seedSource) {
+        if (seedSource == null)
+            throw new IllegalArgumentException("seedSource cannot be null");
+
+        this.seedSource = seedSource;
+    }
+
+    @Override
+    public long generate64BitRandomLong() {
+        GeneratorState state = generatorStateThreadLocal.get();
+        long seed = state.seed + GOLDEN_GAMMA;
+        state.seed = seed;
+        return mix64(seed);
+    }
+
+    /**
+     * The SplitMix64 output function (David Stafford's "Mix13" variant of the MurmurHash3 finalizer). It's a bijection,
+     * so distinct seeds always produce distinct outputs.
+     */
+    protected static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    protected static final class GeneratorState {
+        long seed;
+
+        GeneratorState(long seed) {
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.nike.wingtips.lifecyclelistener;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.util.BoundedRingBuffer;
+import com.nike.wingtips.util.BoundedRingBuffer.OverflowPolicy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link SpanLifecycleListener} that wraps one or more delegate listeners and moves the {@link
+ * #spanCompleted(Span)} notifications off the calling thread. Completed spans are put into a bounded, lock-free
+ * {@link BoundedRingBuffer}, and a single dedicated daemon thread drains that buffer in batches and calls {@link
+ * SpanLifecycleListener#spanCompleted(Span)} on each delegate. This means a slow listener (e.g. one that exports spans
+ * to Zipkin over the network) adds no latency to the application threads that complete spans - the cost on the
+ * calling thread is a single lock-free queue insert.
+ *
+ * <p>{@link #spanStarted(Span)} and {@link #spanSampled(Span)} are still passed through to the delegates synchronously
+ * on the calling thread, since they are called while the span is still in use and delegates may rely on seeing the
+ * span in that state.
+ *
+ * <p>When the buffer is full the configured {@link OverflowPolicy} decides what happens - see the javadocs on {@link
+ * OverflowPolicy} for details. You can monitor how the buffer is doing with {@link #getQueuedSpanCount()}, {@link
+ * #getDroppedSpanCount()}, and {@link #getPendingSpanCount()}.
+ *
+ * <p>Usage is the same as any other {@link SpanLifecycleListener}:
+ * <pre>
+ *      Tracer.getInstance().addSpanLifecycleListener(
+ *          new AsyncSpanLifecycleListener(zipkinListener, 8192, OverflowPolicy.DROP_NEWEST)
+ *      );
+ * </pre>
+ *
+ * Call {@link #shutdown()} (optionally followed by {@link #awaitTermination(long, TimeUnit)}) if you need to stop the
+ * dispatcher thread - any spans still in the buffer will be delivered to the delegates before the thread exits.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AsyncSpanLifecycleListener implements SpanLifecycleListener {
+
+    /**
+     * The default capacity of the completed span buffer.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 8192;
+    /**
+     * The default max number of completed spans the dispatcher thread will pull from the buffer at a time.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    /**
+     * The name given to the dispatcher thread.
+     */
+    public static final String DISPATCHER_THREAD_NAME = "wingtips-async-span-listener-dispatcher";
+
+    // Backstop for the dispatcher thread's park - producers unpark it explicitly, but a bounded park means a missed
+    //      unpark can only ever delay delivery, never stall it.
+    private static final long DISPATCHER_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    protected final List<SpanLifecycleListener> delegates;
+    protected final BoundedRingBuffer<Span> completedSpanBuffer;
+    protected final OverflowPolicy overflowPolicy;
+    protected final long blockTimeoutNanos;
+    protected final int maxBatchSize;
+
+    protected final AtomicLong queuedSpanCount = new AtomicLong(0);
+    protected final AtomicLong droppedSpanCount = new AtomicLong(0);
+
+    protected final Thread dispatcherThread;
+    protected volatile boolean dispatcherParked = false;
+    protected volatile boolean shutdownRequested = false;
+
+    /**
+     * Convenience constructor that uses {@link #DEFAULT_BUFFER_CAPACITY} and {@link OverflowPolicy#DROP_NEWEST}.
+     *
+     * @param delegates The listeners that should receive the span lifecycle notifications - cannot be null or empty.
+     */
+    public AsyncSpanLifecycleListener(SpanLifecycleListener... delegates) {
+        this(nullSafeArrayToList(delegates), DEFAULT_BUFFER_CAPACITY, OverflowPolicy.DROP_NEWEST, 0,
+             DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Convenience constructor for a single delegate listener that uses {@link #DEFAULT_MAX_BATCH_SIZE}. If {@code
+     * overflowPolicy} is {@link OverflowPolicy#BLOCK_WITH_TIMEOUT} then a 1 millisecond timeout will be used - call
+     * {@link #AsyncSpanLifecycleListener(List, int, OverflowPolicy, long, int)} if you want a different timeout.
+     *
+     * @param delegate The listener that should receive the span lifecycle notifications - cannot be null.
+     * @param bufferCapacity The max number of completed spans that can be waiting for delivery. Will be rounded up to
+     * the next power of two.
+     * @param overflowPolicy What to do when a span is completed and the buffer is full - cannot be null.
+     */
+    public AsyncSpanLifecycleListener(SpanLifecycleListener delegate,
+                                      int bufferCapacity,
+                                      OverflowPolicy overflowPolicy) {
+        this(Collections.singletonList(delegate), bufferCapacity, overflowPolicy, TimeUnit.MILLISECONDS.toNanos(1),
+             DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new instance and starts the dispatcher thread.
+     *
+     * @param delegates The listeners that should receive the span lifecycle notifications - cannot be null or empty,
+     * and cannot contain null entries.
+     * @param bufferCapacity The max number of completed spans that can be waiting for delivery. Will be rounded up to
+     * the next power of two.
+     * @param overflowPolicy What to do when a span is completed and the buffer is full - cannot be null.
+     * @param blockTimeoutNanos The max time the calling thread will wait for room in the buffer when {@code
+     * overflowPolicy} is {@link OverflowPolicy#BLOCK_WITH_TIMEOUT}. Ignored for other policies.
+     * @param maxBatchSize The max number of completed spans the dispatcher thread will pull from the buffer at a time.
+     * Must be greater than 0.
+     */
+    public AsyncSpanLifecycleListener(List<SpanLifecycleListener> delegates,
+                                      int bufferCapacity,
+                                      OverflowPolicy overflowPolicy,
+                                      long blockTimeoutNanos,
+                                      int maxBatchSize) {
+        if (delegates == null || delegates.isEmpty())
+            throw new IllegalArgumentException("delegates cannot be null or empty");
+
+        for (SpanLifecycleListener delegate : delegates) {
+            if (delegate == null)
+                throw new IllegalArgumentException("delegates cannot contain null entries");
+        }
+
+        if (overflowPolicy == null)
+            throw new IllegalArgumentException("overflowPolicy cannot be null");
+
+        if (blockTimeoutNanos < 0)
+            throw new IllegalArgumentException("blockTimeoutNanos cannot be negative");
+
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be greater than 0");
+
+        this.delegates = Collections.unmodifiableList(new ArrayList<>(delegates));
+        this.completedSpanBuffer = new BoundedRingBuffer<>(bufferCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = blockTimeoutNanos;
+        this.maxBatchSize = maxBatchSize;
+
+        this.dispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runDispatchLoop();
+            }
+        }, DISPATCHER_THREAD_NAME);
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    private static List<SpanLifecycleListener> nullSafeArrayToList(SpanLifecycleListener[] delegates) {
+        if (delegates == null)
+            return null;
+
+        return Arrays.asList(delegates);
+    }
+
+    @Override
+    public void spanStarted(Span span) {
+        for (SpanLifecycleListener delegate : delegates) {
+            delegate.spanStarted(span);
+        }
+    }
+
+    @Override
+    public void spanSampled(Span span) {
+        for (SpanLifecycleListener delegate : delegates) {
+            delegate.spanSampled(span);
+        }
+    }
+
+    @Override
+    public void spanCompleted(Span span) {
+        if (shutdownRequested) {
+            droppedSpanCount.incrementAndGet();
+            return;
+        }
+
+        int numDropped = completedSpanBuffer.offerWithOverflowPolicy(span, overflowPolicy, blockTimeoutNanos);
+        if (numDropped > 0)
+            droppedSpanCount.addAndGet(numDropped);
+
+        // With DROP_NEWEST or BLOCK_WITH_TIMEOUT a drop means the given span was rejected. With DROP_OLDEST the given
+        //      span always makes it into the buffer.
+        boolean spanWasQueued = (numDropped == 0 || overflowPolicy == OverflowPolicy.DROP_OLDEST);
+        if (spanWasQueued) {
+            queuedSpanCount.incrementAndGet();
+            if (dispatcherParked)
+                LockSupport.unpark(dispatcherThread);
+        }
+    }
+
+    protected void runDispatchLoop() {
+        List<Span> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            int drained = completedSpanBuffer.drainTo(batch, maxBatchSize);
+            if (drained > 0) {
+                dispatchBatch(batch);
+                batch.clear();
+                continue;
+            }
+
+            if (shutdownRequested) {
+                // One last drain to catch anything that raced the shutdown request.
+                if (completedSpanBuffer.isEmpty())
+                    return;
+
+                continue;
+            }
+
+            dispatcherParked = true;
+            // Recheck after advertising that we're about to park so that a producer that just missed the flag can't
+            //      leave us sleeping on a non-empty buffer.
+            if (completedSpanBuffer.isEmpty() && !shutdownRequested)
+                LockSupport.parkNanos(this, DISPATCHER_MAX_PARK_NANOS);
+            dispatcherParked = false;
+        }
+    }
+
+    protected void dispatchBatch(List<Span> batch) {
+        for (SpanLifecycleListener delegate : delegates) {
+            for (int i = 0; i < batch.size(); i++) {
+                Span span = batch.get(i);
+                try {
+                    delegate.spanCompleted(span);
+                }
+                catch (Throwable t) {
+                    logger.error(
+                        "An error occurred while an async SpanLifecycleListener was handling a completed span. "
+                        + "async_listener_error=true, listener_class={}, trace_id={}, span_id={}",
+                        delegate.getClass().getName(), span.getTraceId(), span.getSpanId(), t
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The total number of completed spans that have been accepted into the buffer for asynchronous delivery.
+     */
+    public long getQueuedSpanCount() {
+        return queuedSpanCount.get();
+    }
+
+    /**
+     * @return The total number of completed spans that were dropped because the buffer was full (or because {@link
+     * #shutdown()} had been called) and were therefore never delivered to the delegate listeners.
+     */
+    public long getDroppedSpanCount() {
+        return droppedSpanCount.get();
+    }
+
+    /**
+     * @return The approximate number of completed spans currently in the buffer waiting to be delivered.
+     */
+    public int getPendingSpanCount() {
+        return completedSpanBuffer.size();
+    }
+
+    /**
+     * @return The max number of completed spans that can be waiting for delivery at any given time.
+     */
+    public int getBufferCapacity() {
+        return completedSpanBuffer.capacity();
+    }
+
+    /**
+     * @return The policy that is followed when a span is completed and the buffer is full.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return The (unmodifiable) list of listeners that receive the span lifecycle notifications.
+     */
+    public List<SpanLifecycleListener> getDelegates() {
+        return delegates;
+    }
+
+    /**
+     * Stops accepting completed spans (any spans completed after this call are counted as dropped) and tells the
+     * dispatcher thread to exit once it has delivered everything currently in the buffer. This method does not wait -
+     * call {@link #awaitTermination(long, TimeUnit)} if you need to wait for the remaining spans to be delivered.
+     */
+    public void shutdown() {
+        shutdownRequested = true;
+        LockSupport.unpark(dispatcherThread);
+    }
+
+    /**
+     * Waits for the dispatcher thread to finish delivering the remaining spans after {@link #shutdown()} is called.
+     *
+     * @return true if the dispatcher thread exited before the timeout, false otherwise.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        dispatcherThread.join(Math.max(1, timeUnit.toMillis(timeout)));
+        return !dispatcherThread.isAlive();
+    }
+
+    /**
+     * @return true if {@link #shutdown()} has been called, false otherwise.
+     */
+    public boolean isShutdown() {
+        return shutdownRequested;
+    }
+}
@@ -0,0 +1,228 @@
+package com.nike.wingtips.sampling;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.lifecyclelistener.SpanLifecycleListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link TraceAwareRootSpanSamplingStrategy} that periodically adjusts its sampling probability to aim for a target number of completed
+ * sampled spans per second on this node. It backs off automatically when traffic spikes, and when an optional {@link BacklogSource} (e.g. a
+ * Zipkin span sender's queue) reports that spans aren't being exported as fast as they're produced.
+ *
+ * <p>The feedback comes from {@link #spanCompleted(Span)}, so <b>this instance must also be registered as a lifecycle listener</b>:
+ * <pre>
+ *  AdaptiveSamplingStrategy adaptiveSampler = new AdaptiveSamplingStrategy(500);
+ *  Tracer.getInstance().setRootSpanSamplingStrategy(adaptiveSampler);
+ *  Tracer.getInstance().addSpanLifecycleListener(adaptiveSampler);
+ * </pre>
+ *
+ * <p>At the end of each adjustment interval the observed spans per second is compared to the target and the probability is scaled by
+ * {@code target / observed}. Decreases take effect immediately, but increases are limited to doubling the probability per interval so a quiet
+ * period doesn't swing straight back to sampling everything. If the backlog is at or above {@code maxBacklog} the probability is halved
+ * regardless of throughput, and if it's at or above half of {@code maxBacklog} the probability is not allowed to increase. The probability
+ * never goes below {@code minProbability} or above 1.0.
+ *
+ * <p>Sampling decisions are made from the trace ID the same way {@link ProbabilisticSamplingStrategy} does it. There are no locks and no
+ * background threads: the adjustment is done by whichever request thread first notices that the interval has elapsed (claimed with a
+ * compare-and-set), and every other call is an atomic read or increment. The current probability and observed throughput are available via
+ * {@link #getCurrentProbability()} and {@link #getObservedSpansPerSecond()} for reporting as metrics.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AdaptiveSamplingStrategy implements TraceAwareRootSpanSamplingStrategy, SpanLifecycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveSamplingStrategy.class);
+
+    public static final long DEFAULT_ADJUSTMENT_INTERVAL_MILLIS = 1000;
+    public static final double DEFAULT_MIN_PROBABILITY = 0.0001;
+    public static final double MAX_INCREASE_FACTOR = 2.0;
+
+    /**
+     * Reports how many spans are waiting to be exported, so {@link AdaptiveSamplingStrategy} can back off when the exporter falls behind.
+     */
+    public interface BacklogSource {
+        /**
+         * @return The number of spans currently waiting to be exported. This is called once per adjustment interval.
+         */
+        int getBacklogSize();
+    }
+
+    protected final double targetSpansPerSecond;
+    protected final double minProbability;
+    protected final long adjustmentIntervalNanos;
+    protected final BacklogSource backlogSource;
+    protected final int maxBacklog;
+
+    protected final AtomicLong completedSampledSpans = new AtomicLong(0);
+    protected final AtomicLong nextAdjustmentAtNanos;
+    // Only written by the thread that won the nextAdjustmentAtNanos compare-and-set.
+    protected volatile long lastAdjustmentAtNanos;
+    protected volatile ProbabilisticSamplingStrategy currentSampler;
+    protected volatile double observedSpansPerSecond = 0;
+
+    /**
+     * Creates an instance that starts out sampling everything, adjusts every {@link #DEFAULT_ADJUSTMENT_INTERVAL_MILLIS} milliseconds, never
+     * goes below {@link #DEFAULT_MIN_PROBABILITY}, and has no {@link BacklogSource}.
+     *
+     * @param targetSpansPerSecond The number of completed sampled spans per second to aim for - must be greater than 0.
+     */
+    public AdaptiveSamplingStrategy(double targetSpansPerSecond) {
+        this(targetSpansPerSecond, 1.0, DEFAULT_MIN_PROBABILITY, DEFAULT_ADJUSTMENT_INTERVAL_MILLIS, null, 0);
+    }
+
+    /**
+     * Kitchen-sink constructor that creates a new instance allowing you to specify all the given configuration options.
+     *
+     * @param targetSpansPerSecond The number of completed sampled spans per second to aim for - must be greater than 0.
+     * @param initialProbability The probability to use until the first adjustment - must be between {@code minProbability} and 1.0.
+     * @param minProbability The lowest probability this will ever back off to - must be greater than 0.0 and at most 1.0.
+     * @param adjustmentIntervalMillis How often the probability is adjusted - must be greater than 0.
+     * @param backlogSource The source of the exporter's backlog size, or null if backlog shouldn't be taken into account.
+     * @param maxBacklog The backlog size at which the probability is halved every interval - must be greater than 0 if {@code backlogSource}
+     *                   is not null, ignored otherwise.
+     */
+    public AdaptiveSamplingStrategy(double targetSpansPerSecond, double initialProbability, double minProbability,
+                                    long adjustmentIntervalMillis, BacklogSource backlogSource, int maxBacklog) {
+        if (!(targetSpansPerSecond > 0))
+            throw new IllegalArgumentException("targetSpansPerSecond must be greater than 0. Received: " + targetSpansPerSecond);
+
+        // A probability of zero could never climb back up, since increases are relative to the current probability.
+        if (!(minProbability > 0.0 && minProbability <= 1.0))
+            throw new IllegalArgumentException("minProbability must be greater than 0.0 and at most 1.0. Received: " + minProbability);
+
+        if (!(initialProbability >= minProbability && initialProbability <= 1.0)) {
+            throw new IllegalArgumentException(
+                "initialProbability must be between minProbability and 1.0 (inclusive). Received: " + initialProbability
+            );
+        }
+
+        if (adjustmentIntervalMillis <= 0)
+            throw new IllegalArgumentException("adjustmentIntervalMillis must be greater than 0. Received: " + adjustmentIntervalMillis);
+
+        if (backlogSource != null && maxBacklog <= 0)
+            throw new IllegalArgumentException("maxBacklog must be greater than 0 when a backlogSource is given. Received: " + maxBacklog);
+
+        this.targetSpansPerSecond = targetSpansPerSecond;
+        this.minProbability = minProbability;
+        this.adjustmentIntervalNanos = TimeUnit.MILLISECONDS.toNanos(adjustmentIntervalMillis);
+        this.backlogSource = backlogSource;
+        this.maxBacklog = maxBacklog;
+        this.currentSampler = new ProbabilisticSamplingStrategy(initialProbability);
+
+        long now = currentTimeNanos();
+        this.lastAdjustmentAtNanos = now;
+        this.nextAdjustmentAtNanos = new AtomicLong(now + adjustmentIntervalNanos);
+    }
+
+    /**
+     * @return The probability currently being used to make sampling decisions.
+     */
+    public double getCurrentProbability() {
+        return currentSampler.getProbability();
+    }
+
+    /**
+     * @return The completed sampled spans per second measured over the most recent adjustment interval.
+     */
+    public double getObservedSpansPerSecond() {
+        return observedSpansPerSecond;
+    }
+
+    public double getTargetSpansPerSecond() {
+        return targetSpansPerSecond;
+    }
+
+    @Override
+    public boolean isRootSpanSampleable(long traceIdLow, String spanName) {
+        adjustIfIntervalElapsed();
+        return currentSampler.isTraceIdSampleable(traceIdLow);
+    }
+
+    @Override
+    public boolean isNextRootSpanSampleable() {
+        adjustIfIntervalElapsed();
+        return currentSampler.isNextRootSpanSampleable();
+    }
+
+    @Override
+    public void spanStarted(Span span) {
+        // Do nothing - only completed spans are counted.
+    }
+
+    @Override
+    public void spanSampled(Span span) {
+        // Do nothing - only completed spans are counted.
+    }
+
+    @Override
+    public void spanCompleted(Span span) {
+        if (span.isSampleable())
+            completedSampledSpans.incrementAndGet();
+    }
+
+    /**
+     * Recalculates the probability if the adjustment interval has elapsed. Only one thread per interval does the work - everyone else (and
+     * every call before the interval is up) just does a single atomic read.
+     */
+    protected void adjustIfIntervalElapsed() {
+        long now = currentTimeNanos();
+        long nextAdjustmentAt = nextAdjustmentAtNanos.get();
+        if (now - nextAdjustmentAt < 0)
+            return;
+
+        if (!nextAdjustmentAtNanos.compareAndSet(nextAdjustmentAt, now + adjustmentIntervalNanos))
+            return;
+
+        long elapsedNanos = now - lastAdjustmentAtNanos;
+        lastAdjustmentAtNanos = now;
+        long spanCount = completedSampledSpans.getAndSet(0);
+        double observed = (elapsedNanos <= 0) ? 0 : (spanCount * (double) TimeUnit.SECONDS.toNanos(1)) / elapsedNanos;
+        observedSpansPerSecond = observed;
+
+        int backlog = (backlogSource == null) ? 0 : backlogSource.getBacklogSize();
+        double oldProbability = currentSampler.getProbability();
+        double newProbability = calculateNewProbability(oldProbability, observed, backlog);
+        if (newProbability != oldProbability) {
+            currentSampler = new ProbabilisticSamplingStrategy(newProbability);
+            logger.debug(
+                "Adjusted adaptive sampling probability. old_probability={}, new_probability={}, observed_spans_per_second={}, backlog={}",
+                oldProbability, newProbability, observed, backlog
+            );
+        }
+    }
+
+    /**
+     * @return The probability to use for the next interval, given the current probability, the spans per second observed during the last
+     * interval, and the current backlog size (always 0 if there's no {@link BacklogSource}). Protected so the control policy can be tuned.
+     */
+    protected double calculateNewProbability(double currentProbability, double observedSpansPerSecond, int backlog) {
+        double newProbability;
+        if (backlogSource != null && backlog >= maxBacklog) {
+            // The exporter is falling behind - back off hard no matter what the throughput looks like.
+            newProbability = currentProbability / 2;
+        }
+        else {
+            double maxProbability = currentProbability * MAX_INCREASE_FACTOR;
+            if (backlogSource != null && backlog >= maxBacklog / 2)
+                maxProbability = currentProbability;
+
+            newProbability = (observedSpansPerSecond <= 0)
+                             ? maxProbability
+                             : Math.min(currentProbability * (targetSpansPerSecond / observedSpansPerSecond), maxProbability);
+        }
+
+        return Math.max(minProbability, Math.min(1.0, newProbability));
+    }
+
+    /**
+     * @return The current time in nanoseconds from an arbitrary origin - {@link System#nanoTime()} by default. Protected so tests can supply
+     * their own clock. NOTE: This is called from the constructor, so overrides must not depend on subclass state.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,100 @@
+package com.nike.wingtips.sampling;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link TraceAwareRootSpanSamplingStrategy} that guarantees every endpoint (root span name) gets at least {@code minTracesPerSecond} traces
+ * per second sampled, and defers to a delegate strategy for everything beyond that. This keeps low traffic endpoints visible when the delegate
+ * samples a small fraction of a high traffic service's requests (e.g. a {@link ProbabilisticSamplingStrategy} at 0.1% would almost never
+ * sample an endpoint that only gets a few calls a minute).
+ *
+ * <p>Each endpoint gets its own {@link RateLimitingSamplingStrategy} "reservoir". A root span is sampled if its endpoint's reservoir has a
+ * token available, otherwise the delegate decides. The reservoirs live in a {@link ConcurrentHashMap}, so the per-request cost is a lock-free
+ * map lookup plus the reservoir's compare-and-set. To protect against unbounded memory growth when span names contain high-cardinality data
+ * (e.g. IDs in URL paths), at most {@code maxEndpoints} reservoirs are created - endpoints seen after that limit is reached only get the
+ * delegate's decision.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PerEndpointMinimumRateSamplingStrategy implements TraceAwareRootSpanSamplingStrategy {
+
+    public static final int DEFAULT_MAX_ENDPOINTS = 1000;
+
+    protected final RootSpanSamplingStrategy delegate;
+    protected final int minTracesPerSecond;
+    protected final int maxEndpoints;
+    protected final ConcurrentMap<String, RateLimitingSamplingStrategy> endpointReservoirs = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an instance that tracks up to {@link #DEFAULT_MAX_ENDPOINTS} endpoints.
+     */
+    public PerEndpointMinimumRateSamplingStrategy(RootSpanSamplingStrategy delegate, int minTracesPerSecond) {
+        this(delegate, minTracesPerSecond, DEFAULT_MAX_ENDPOINTS);
+    }
+
+    /**
+     * @param delegate The strategy that decides whether root spans beyond each endpoint's guaranteed minimum are sampled - cannot be null.
+     * @param minTracesPerSecond The number of traces per second that are always sampled for each endpoint - must not be negative.
+     * @param maxEndpoints The maximum number of distinct endpoints to track - must not be negative.
+     */
+    public PerEndpointMinimumRateSamplingStrategy(RootSpanSamplingStrategy delegate, int minTracesPerSecond, int maxEndpoints) {
+        if (delegate == null)
+            throw new IllegalArgumentException("delegate cannot be null");
+
+        if (minTracesPerSecond < 0)
+            throw new IllegalArgumentException("minTracesPerSecond cannot be negative. Received: " + minTracesPerSecond);
+
+        if (maxEndpoints < 0)
+            throw new IllegalArgumentException("maxEndpoints cannot be negative. Received: " + maxEndpoints);
+
+        this.delegate = delegate;
+        this.minTracesPerSecond = minTracesPerSecond;
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    @Override
+    public boolean isRootSpanSampleable(long traceIdLow, String spanName) {
+        RateLimitingSamplingStrategy reservoir = getReservoir(spanName);
+        if (reservoir != null && reservoir.isNextRootSpanSampleable())
+            return true;
+
+        if (delegate instanceof TraceAwareRootSpanSamplingStrategy)
+            return ((TraceAwareRootSpanSamplingStrategy) delegate).isRootSpanSampleable(traceIdLow, spanName);
+
+        return delegate.isNextRootSpanSampleable();
+    }
+
+    /**
+     * No endpoint is known, so this defers to the delegate.
+     */
+    @Override
+    public boolean isNextRootSpanSampleable() {
+        return delegate.isNextRootSpanSampleable();
+    }
+
+    /**
+     * @return The reservoir for the given endpoint, creating it if necessary. Returns null if the span name is null, the minimum rate is zero,
+     * or the endpoint isn't tracked yet and {@link #maxEndpoints} has been reached.
+     */
+    protected RateLimitingSamplingStrategy getReservoir(String spanName) {
+        if (spanName == null || minTracesPerSecond == 0)
+            return null;
+
+        RateLimitingSamplingStrategy reservoir = endpointReservoirs.get(spanName);
+        if (reservoir != null)
+            return reservoir;
+
+        // The size check is racy, so the limit may be exceeded by a few entries under contention - that's fine since it only guards against
+        //      unbounded growth.
+        if (endpointReservoirs.size() >= maxEndpoints)
+            return null;
+
+        RateLimitingSamplingStrategy newReservoir = createReservoir(minTracesPerSecond);
+        RateLimitingSamplingStrategy existing = endpointReservoirs.putIfAbsent(spanName, newReservoir);
+        return (existing != null) ? existing : newReservoir;
+    }
+
+    protected RateLimitingSamplingStrategy createReservoir(int tracesPerSecond) {
+        return new RateLimitingSamplingStrategy(tracesPerSecond);
+    }
+}
@@ -0,0 +1,57 @@
+package com.nike.wingtips.sampling;
+
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+
+/**
+ * A {@link TraceAwareRootSpanSamplingStrategy} that samples a fixed percentage of root spans. The decision is a pure function of the trace ID:
+ * a trace is sampled when the absolute value of the lower 64 bits of its trace ID falls at or below {@code probability * Long.MAX_VALUE}.
+ * Since trace IDs are random this samples the requested fraction of traces, and every service using this strategy with the same probability
+ * will make the same decision for a given trace ID without any coordination. There's no shared mutable state, so it's safe and cheap to call
+ * for every request.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ProbabilisticSamplingStrategy implements TraceAwareRootSpanSamplingStrategy {
+
+    protected final double probability;
+    protected final long boundary;
+
+    /**
+     * @param probability The fraction of root spans that should be sampled - must be between 0.0 and 1.0 (inclusive).
+     */
+    public ProbabilisticSamplingStrategy(double probability) {
+        if (!(probability >= 0.0 && probability <= 1.0))
+            throw new IllegalArgumentException("probability must be between 0.0 and 1.0 (inclusive). Received: " + probability);
+
+        this.probability = probability;
+        this.boundary = (long) (probability * Long.MAX_VALUE);
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    @Override
+    public boolean isRootSpanSampleable(long traceIdLow, String spanName) {
+        return isTraceIdSampleable(traceIdLow);
+    }
+
+    /**
+     * @return true if the trace with the given lower 64 trace ID bits should be sampled.
+     */
+    public boolean isTraceIdSampleable(long traceIdLow) {
+        if (probability == 0.0)
+            return false;
+
+        // Math.abs(Long.MIN_VALUE) is still negative, so treat it as the largest value instead.
+        long absoluteValue = (traceIdLow == Long.MIN_VALUE) ? Long.MAX_VALUE : Math.abs(traceIdLow);
+        return absoluteValue <= boundary;
+    }
+
+    /**
+     * Makes the decision for a random trace ID, since no trace ID is available.
+     */
+    @Override
+    public boolean isNextRootSpanSampleable() {
+        return isTraceIdSampleable(TraceAndSpanIdGenerator.generate64BitRandomLong());
+    }
+}
@@ -0,0 +1,71 @@
+package com.nike.wingtips.sampling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RootSpanSamplingStrategy} that samples at most a fixed number of root spans per second on this node, using a token bucket that
+ * holds up to one second's worth of tokens (so a burst of up to {@code tracesPerSecond} traces can be sampled at once after a quiet period).
+ *
+ * <p>The bucket is implemented as a single {@link AtomicLong} holding the time at which the bucket will next be full (the "theoretical arrival
+ * time" of the generic cell rate algorithm), updated with a compare-and-set loop. There are no locks and no background threads, and nothing
+ * is allocated per call, so it's safe to call for every request.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RateLimitingSamplingStrategy implements RootSpanSamplingStrategy {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    protected final int tracesPerSecond;
+    // How much time each sampled trace "costs" - 1 second divided by the rate.
+    protected final long nanosPerTrace;
+    // How far ahead of the current time the bucket's full time is allowed to get - i.e. the burst size.
+    protected final long burstToleranceNanos;
+    // The time at which the bucket will be full again. A value in the past means the bucket is full.
+    protected final AtomicLong bucketFullAtNanos;
+
+    /**
+     * @param tracesPerSecond The maximum number of root spans to sample per second - must not be negative. Zero means nothing is sampled.
+     */
+    public RateLimitingSamplingStrategy(int tracesPerSecond) {
+        if (tracesPerSecond < 0)
+            throw new IllegalArgumentException("tracesPerSecond cannot be negative. Received: " + tracesPerSecond);
+
+        this.tracesPerSecond = tracesPerSecond;
+        this.nanosPerTrace = (tracesPerSecond == 0) ? 0 : NANOS_PER_SECOND / tracesPerSecond;
+        this.burstToleranceNanos = NANOS_PER_SECOND - nanosPerTrace;
+        // Start out with a full bucket.
+        this.bucketFullAtNanos = new AtomicLong(currentTimeNanos() - NANOS_PER_SECOND);
+    }
+
+    public int getTracesPerSecond() {
+        return tracesPerSecond;
+    }
+
+    @Override
+    public boolean isNextRootSpanSampleable() {
+        if (tracesPerSecond == 0)
+            return false;
+
+        long now = currentTimeNanos();
+        while (true) {
+            long fullAt = bucketFullAtNanos.get();
+            // The bucket can't be fuller than full - if it filled up in the past then start from now.
+            long base = (fullAt - now < 0) ? now : fullAt;
+            if (base - now > burstToleranceNanos)
+                return false;
+
+            if (bucketFullAtNanos.compareAndSet(fullAt, base + nanosPerTrace))
+                return true;
+        }
+    }
+
+    /**
+     * @return The current time in nanoseconds from an arbitrary origin - {@link System#nanoTime()} by default. Only differences between values
+     * are used. Protected so tests (or unusual environments) can supply their own clock. NOTE: This is called from the constructor to start the
+     * bucket out full, so overrides must not depend on subclass state that hasn't been initialized yet.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+}
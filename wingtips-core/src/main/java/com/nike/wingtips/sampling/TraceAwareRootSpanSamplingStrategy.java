@@ -0,0 +1,21 @@
+package com.nike.wingtips.sampling;
+
+/**
+ * A {@link RootSpanSamplingStrategy} that wants to see the new root span's trace ID and span name before deciding whether it should be
+ * sampled. When {@link com.nike.wingtips.Tracer} is configured with one of these it generates the root span's trace ID first and calls
+ * {@link #isRootSpanSampleable(long, String)} instead of {@link #isNextRootSpanSampleable()}.
+ *
+ * <p>Basing the decision on the trace ID (rather than a fresh random number) means any service that sees the same trace ID and uses the same
+ * strategy settings will make the same decision, and basing it on the span name allows decisions to vary per endpoint.
+ */
+public interface TraceAwareRootSpanSamplingStrategy extends RootSpanSamplingStrategy {
+
+    /**
+     * @param traceIdLow The lower 64 bits of the new root span's trace ID (i.e. the whole trace ID when 64-bit trace IDs are used). This is
+     * expected to be randomly distributed.
+     * @param spanName The new root span's name - may be null if the name isn't known.
+     * @return true if the root span with the given trace ID and span name should be sampled, false otherwise.
+     */
+    boolean isRootSpanSampleable(long traceIdLow, String spanName);
+
+}
@@ -0,0 +1,258 @@
+package com.nike.wingtips.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, array-backed ring buffer queue intended for handing objects (usually completed spans) from many
+ * producer threads (e.g. application worker threads) to one or more consumer threads. Offering an item never takes a
+ * lock and never allocates - the backing array is allocated once up front and reused.
+ *
+ * <p>The implementation is based on Dmitry Vyukov's bounded MPMC queue: every slot has a sequence number that tells
+ * producers and consumers whether the slot is ready to be written or read, so the only contention point is a single
+ * CAS on the enqueue (or dequeue) position. Although the most common usage is multiple-producer-single-consumer, this
+ * queue is safe for multiple consumers as well, which is what allows the {@link OverflowPolicy#DROP_OLDEST} policy to
+ * evict the oldest item from a producer thread.
+ *
+ * <p>When the buffer is full the behavior is determined by the {@link OverflowPolicy} passed to {@link
+ * #offerWithOverflowPolicy(Object, OverflowPolicy, long)}. See the javadocs on each {@link OverflowPolicy} option
+ * for details.
+ *
+ * @param <E> The type of item stored in this buffer.
+ */
+@SuppressWarnings("WeakerAccess")
+public class BoundedRingBuffer<E> {
+
+    /**
+     * The options for what happens when an item is offered to a {@link BoundedRingBuffer} that is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The newly offered item is rejected and the buffer is left untouched. This is the cheapest option and never
+         * blocks the calling thread.
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest item in the buffer is evicted to make room for the newly offered item. Never blocks the calling
+         * thread, and favors recent data over old data.
+         */
+        DROP_OLDEST,
+        /**
+         * The calling thread waits (up to the given timeout) for room to become available. If there's still no room
+         * when the timeout expires then the newly offered item is rejected, just like {@link #DROP_NEWEST}.
+         * <b>WARNING:</b> This can add latency to the calling thread, so use it with care when the caller is an
+         * application worker thread.
+         */
+        BLOCK_WITH_TIMEOUT
+    }
+
+    // How long a blocked producer parks between attempts to find room in the buffer.
+    private static final long BLOCKED_PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    protected final int capacity;
+    protected final int mask;
+    protected final AtomicReferenceArray<E> buffer;
+    protected final AtomicLongArray sequences;
+    protected final AtomicLong enqueuePosition = new AtomicLong(0);
+    protected final AtomicLong dequeuePosition = new AtomicLong(0);
+
+    /**
+     * Creates a new instance with the given minimum capacity. The actual capacity will be rounded up to the next power
+     * of two so that slot indexes can be calculated with a bit mask - call {@link #capacity()} to see the final value.
+     *
+     * @param requestedCapacity The minimum capacity of the buffer. Must be greater than 0 and no larger than 2^30.
+     */
+    public BoundedRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1)
+            throw new IllegalArgumentException("requestedCapacity must be greater than 0");
+
+        if (requestedCapacity > (1 << 30))
+            throw new IllegalArgumentException("requestedCapacity cannot be larger than 2^30");
+
+        this.capacity = roundUpToPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    protected static int roundUpToPowerOfTwo(int value) {
+        int highestOneBit = Integer.highestOneBit(value);
+        return (highestOneBit == value) ? value : highestOneBit << 1;
+    }
+
+    /**
+     * @return The maximum number of items this buffer can hold.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds the given item to the buffer if there's room, otherwise returns false immediately without modifying the
+     * buffer. Equivalent to calling {@link #offerWithOverflowPolicy(Object, OverflowPolicy, long)} with {@link
+     * OverflowPolicy#DROP_NEWEST}.
+     *
+     * @param item The item to add - cannot be null.
+     * @return true if the item was added, false if the buffer was full.
+     */
+    public boolean offer(E item) {
+        if (item == null)
+            throw new NullPointerException("item cannot be null");
+
+        long pos = enqueuePosition.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long sequence = sequences.get(index);
+            long diff = sequence - pos;
+            if (diff == 0) {
+                // The slot is free for writing at this position. Try to claim it.
+                if (enqueuePosition.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, item);
+                    // A full volatile write here (rather than lazySet) guarantees consumers that check for emptiness
+                    //      and then park will not miss this item.
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = enqueuePosition.get();
+            }
+            else if (diff < 0) {
+                // The slot still contains an unconsumed item from the previous lap - the buffer is full.
+                return false;
+            }
+            else {
+                // Another producer claimed this position - reload and try again.
+                pos = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Adds the given item to the buffer, using the given {@link OverflowPolicy} to decide what to do if the buffer is
+     * full.
+     *
+     * @param item The item to add - cannot be null.
+     * @param overflowPolicy The policy to follow if the buffer is full - cannot be null.
+     * @param blockTimeoutNanos The maximum amount of time to wait for room when {@code overflowPolicy} is {@link
+     * OverflowPolicy#BLOCK_WITH_TIMEOUT}. Ignored for other policies.
+     * @return The number of items that were dropped as a result of this call - 0 if the item was added without
+     * dropping anything. For {@link OverflowPolicy#DROP_NEWEST} and {@link OverflowPolicy#BLOCK_WITH_TIMEOUT} a
+     * non-zero result means the given item was rejected, and for {@link OverflowPolicy#DROP_OLDEST} it's the number
+     * of old items that were evicted to make room (usually 1, but can be more when racing other producers).
+     */
+    public int offerWithOverflowPolicy(E item, OverflowPolicy overflowPolicy, long blockTimeoutNanos) {
+        if (offer(item))
+            return 0;
+
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                return 1;
+            case DROP_OLDEST:
+                return offerByEvictingOldest(item);
+            case BLOCK_WITH_TIMEOUT:
+                return offerByBlocking(item, blockTimeoutNanos);
+            default:
+                throw new IllegalStateException("Unhandled OverflowPolicy: " + overflowPolicy);
+        }
+    }
+
+    protected int offerByEvictingOldest(E item) {
+        int evictedCount = 0;
+        while (!offer(item)) {
+            // Racing consumers or producers may have emptied the slot we were going to free up, so only count
+            //      evictions that actually removed something.
+            if (poll() != null)
+                evictedCount++;
+        }
+        return evictedCount;
+    }
+
+    protected int offerByBlocking(E item, long blockTimeoutNanos) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (!offer(item)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted())
+                return 1;
+
+            LockSupport.parkNanos(Math.min(remaining, BLOCKED_PRODUCER_PARK_NANOS));
+        }
+        return 0;
+    }
+
+    /**
+     * @return The oldest item in the buffer after removing it, or null if the buffer is empty.
+     */
+    public E poll() {
+        long pos = dequeuePosition.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long sequence = sequences.get(index);
+            long diff = sequence - (pos + 1);
+            if (diff == 0) {
+                // The slot contains an item for this position. Try to claim it.
+                if (dequeuePosition.compareAndSet(pos, pos + 1)) {
+                    E item = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    // Mark the slot as free for the producer that will be writing the next lap.
+                    sequences.lazySet(index, pos + capacity);
+                    return item;
+                }
+                pos = dequeuePosition.get();
+            }
+            else if (diff < 0) {
+                // The slot hasn't been written for this position yet - the buffer is empty.
+                return null;
+            }
+            else {
+                // Another consumer claimed this position - reload and try again.
+                pos = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Removes up to {@code maxItems} items from this buffer (oldest first) and adds them to the given collection.
+     *
+     * @return The number of items that were moved into the given collection.
+     */
+    public int drainTo(Collection<? super E> collection, int maxItems) {
+        int drained = 0;
+        while (drained < maxItems) {
+            E item = poll();
+            if (item == null)
+                break;
+
+            collection.add(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return The approximate number of items currently in the buffer. This is exact when there are no concurrent
+     * producers or consumers, but should otherwise only be used for monitoring/heuristics.
+     */
+    public int size() {
+        // Read the dequeue position first so that the result can't go negative due to a concurrent poll.
+        long dequeue = dequeuePosition.get();
+        long enqueue = enqueuePosition.get();
+        long size = enqueue - dequeue;
+        if (size < 0)
+            return 0;
+
+        return (int) Math.min(size, capacity);
+    }
+
+    /**
+     * @return true if the buffer appears to be empty, false otherwise. See {@link #size()} for caveats.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,452 @@
+package com.nike.wingtips.util;
+
+import com.nike.wingtips.Span;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A purpose-built, array-backed span stack used by {@link com.nike.wingtips.Tracer} to track the spans for the current
+ * thread. It's a drop-in replacement for the {@code LinkedList<Span>} that was used previously: it implements {@link
+ * Deque} with the same element ordering (the "first" element is the top of the stack, i.e. the current span), and it
+ * implements {@link java.util.List} so that {@link #equals(Object)} and {@link #hashCode()} behave exactly like they
+ * do for {@code LinkedList}.
+ *
+ * <p>The differences that matter are all about performance:
+ * <ul>
+ *     <li>
+ *         Pushing and popping don't allocate anything - spans are stored in a plain array that only grows when the
+ *         stack gets deeper than it has ever been.
+ *     </li>
+ *     <li>
+ *         {@link #snapshot()} creates a copy-on-write copy in O(1) time by sharing the backing array. Whichever stack
+ *         is modified first after a snapshot copies the array at that point, so the common async hand-off case where
+ *         a snapshot is captured, registered on another thread, and read but never modified never copies any spans.
+ *     </li>
+ *     <li>
+ *         {@link #clear()} keeps the backing array so an instance can be recycled for the next request on the same
+ *         thread.
+ *     </li>
+ * </ul>
+ *
+ * <p>Like {@code LinkedList}, this class is not thread safe. Snapshots are safe to hand to other threads through the
+ * normal happens-before mechanisms (e.g. submitting a task to an executor) since neither the original nor the
+ * snapshot ever writes to a shared array.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SpanStack extends AbstractList<Span> implements Deque<Span> {
+
+    protected static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+    private static final Span[] EMPTY_ELEMENTS = new Span[0];
+
+    // The bottom of the stack (the root span) is at index 0, and the top (the current span) is at index size - 1.
+    //      This means push/pop only touch the end of the array.
+    protected Span[] elements;
+    protected int size;
+    // True when the elements array may be referenced by another SpanStack (i.e. this stack is a snapshot or has had a
+    //      snapshot taken from it). The array must be copied before it's modified when this is true.
+    protected boolean shared;
+
+    /**
+     * Creates a new empty stack.
+     */
+    public SpanStack() {
+        this.elements = new Span[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a new stack containing the given spans, in the same order as the given collection's iterator returns
+     * them (i.e. the first span returned by the collection's iterator will be the top of the stack). This matches the
+     * semantics of {@code new LinkedList<>(collection)}.
+     */
+    public SpanStack(Collection<? extends Span> collection) {
+        int collectionSize = collection.size();
+        this.elements = new Span[Math.max(collectionSize, DEFAULT_INITIAL_CAPACITY)];
+        int index = collectionSize - 1;
+        for (Span span : collection) {
+            elements[index--] = span;
+        }
+        this.size = collectionSize;
+    }
+
+    protected SpanStack(Span[] sharedElements, int size) {
+        this.elements = sharedElements;
+        this.size = size;
+        this.shared = true;
+    }
+
+    /**
+     * @return A copy of the given span stack. If the given stack is a {@link SpanStack} then this is an O(1) {@link
+     * #snapshot()}, otherwise the spans are copied into a new {@link SpanStack}. Returns null if the given stack is
+     * null.
+     */
+    public static SpanStack copyOf(Deque<Span> spanStack) {
+        if (spanStack == null)
+            return null;
+
+        if (spanStack instanceof SpanStack)
+            return ((SpanStack) spanStack).snapshot();
+
+        return new SpanStack(spanStack);
+    }
+
+    /**
+     * @return A copy of this stack that is created in O(1) time without copying any spans - the copy shares this
+     * stack's backing array until one of them is modified. Changes made to either stack after this call are not
+     * visible to the other.
+     */
+    public SpanStack snapshot() {
+        if (size == 0)
+            return new SpanStack(EMPTY_ELEMENTS, 0);
+
+        // Only write the flag if it isn't set already, so snapshotting a stack that's never modified (e.g. one published for other threads to
+        //      copy) never writes to it.
+        if (!shared)
+            shared = true;
+        return new SpanStack(elements, size);
+    }
+
+    /**
+     * Replaces the contents of this stack with a copy of the given spans, reusing this instance rather than allocating
+     * a new one. The given collection's iterator order is treated the same way as {@link #SpanStack(Collection)}. If
+     * the given collection is a {@link SpanStack} then this instance becomes an O(1) copy-on-write copy of it, the
+     * same as if it had been created with {@link #snapshot()}.
+     */
+    public void resetToCopyOf(Collection<? extends Span> spans) {
+        if (spans == this)
+            return;
+
+        if (spans instanceof SpanStack && !spans.isEmpty()) {
+            SpanStack other = (SpanStack) spans;
+            other.shared = true;
+            this.elements = other.elements;
+            this.size = other.size;
+            this.shared = true;
+            modCount++;
+            return;
+        }
+
+        clear();
+        int newSize = spans.size();
+        prepareForWrite(newSize);
+        int index = newSize - 1;
+        for (Span span : spans) {
+            elements[index--] = span;
+        }
+        size = newSize;
+    }
+
+    // Makes sure the backing array is owned by this stack and can hold at least minCapacity spans.
+    protected void prepareForWrite(int minCapacity) {
+        if (shared || minCapacity > elements.length) {
+            int newCapacity = elements.length;
+            if (newCapacity < DEFAULT_INITIAL_CAPACITY)
+                newCapacity = DEFAULT_INITIAL_CAPACITY;
+            while (newCapacity < minCapacity) {
+                newCapacity = newCapacity << 1;
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+            shared = false;
+        }
+    }
+
+    protected int arrayIndexForListIndex(int listIndex) {
+        return size - 1 - listIndex;
+    }
+
+    protected void checkListIndex(int listIndex) {
+        if (listIndex < 0 || listIndex >= size)
+            throw new IndexOutOfBoundsException("Index: " + listIndex + ", Size: " + size);
+    }
+
+    // ========== List methods ==========
+
+    @Override
+    public Span get(int index) {
+        checkListIndex(index);
+        return elements[arrayIndexForListIndex(index)];
+    }
+
+    @Override
+    public Span set(int index, Span span) {
+        checkListIndex(index);
+        prepareForWrite(size);
+        int arrayIndex = arrayIndexForListIndex(index);
+        Span old = elements[arrayIndex];
+        elements[arrayIndex] = span;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Span span) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        prepareForWrite(size + 1);
+        int arrayIndex = size - index;
+        System.arraycopy(elements, arrayIndex, elements, arrayIndex + 1, size - arrayIndex);
+        elements[arrayIndex] = span;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Span remove(int index) {
+        checkListIndex(index);
+        int arrayIndex = arrayIndexForListIndex(index);
+        Span removed = elements[arrayIndex];
+        if (arrayIndex == size - 1 && shared) {
+            // Removing the top of a shared stack doesn't need to write to the array at all.
+            size--;
+            modCount++;
+            return removed;
+        }
+
+        prepareForWrite(size);
+        System.arraycopy(elements, arrayIndex + 1, elements, arrayIndex, size - arrayIndex - 1);
+        elements[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        if (shared) {
+            // Another stack may still be using the array - start over with a fresh one rather than nulling it out.
+            elements = new Span[DEFAULT_INITIAL_CAPACITY];
+            shared = false;
+        }
+        else {
+            Arrays.fill(elements, 0, size, null);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(Span span) {
+        addLast(span);
+        return true;
+    }
+
+    /**
+     * @return A reversed copy of this stack (the bottom of this stack will be the top of the returned stack). Unlike
+     * the view returned by {@code List.reversed()} in newer JDKs, changes to the returned stack are not reflected in
+     * this one.
+     */
+    public SpanStack reversed() {
+        SpanStack result = new SpanStack();
+        for (int i = size - 1; i >= 0; i--) {
+            result.push(elements[i]);
+        }
+        return result;
+    }
+
+    // ========== Deque methods ==========
+
+    @Override
+    public void push(Span span) {
+        addFirst(span);
+    }
+
+    @Override
+    public Span pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public Span peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public void addFirst(Span span) {
+        prepareForWrite(size + 1);
+        elements[size++] = span;
+        modCount++;
+    }
+
+    @Override
+    public void addLast(Span span) {
+        add(size, span);
+    }
+
+    @Override
+    public boolean offerFirst(Span span) {
+        addFirst(span);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(Span span) {
+        addLast(span);
+        return true;
+    }
+
+    @Override
+    public Span removeFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return pollFirst();
+    }
+
+    @Override
+    public Span removeLast() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return pollLast();
+    }
+
+    @Override
+    public Span pollFirst() {
+        if (size == 0)
+            return null;
+
+        Span top = elements[size - 1];
+        if (shared) {
+            // Leave the shared array untouched - the other stack(s) sharing it still need that slot.
+            size--;
+        }
+        else {
+            elements[--size] = null;
+        }
+        modCount++;
+        return top;
+    }
+
+    @Override
+    public Span pollLast() {
+        if (size == 0)
+            return null;
+
+        return remove(size - 1);
+    }
+
+    @Override
+    public Span getFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return elements[size - 1];
+    }
+
+    @Override
+    public Span getLast() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return elements[0];
+    }
+
+    @Override
+    public Span peekFirst() {
+        return (size == 0) ? null : elements[size - 1];
+    }
+
+    @Override
+    public Span peekLast() {
+        return (size == 0) ? null : elements[0];
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        int index = lastIndexOf(o);
+        if (index < 0)
+            return false;
+
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean offer(Span span) {
+        return offerLast(span);
+    }
+
+    @Override
+    public Span remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public Span poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public Span element() {
+        return getFirst();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public Iterator<Span> descendingIterator() {
+        return new Iterator<Span>() {
+            private int nextListIndex = size - 1;
+            private int lastReturnedListIndex = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return nextListIndex >= 0;
+            }
+
+            @Override
+            public Span next() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                if (nextListIndex < 0)
+                    throw new NoSuchElementException();
+
+                lastReturnedListIndex = nextListIndex;
+                return get(nextListIndex--);
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturnedListIndex < 0)
+                    throw new IllegalStateException();
+
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                SpanStack.this.remove(lastReturnedListIndex);
+                lastReturnedListIndex = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.nike.wingtips.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free helpers for encoding character sequences as UTF-8. {@link String#getBytes(java.nio.charset.Charset)}
+ * and {@link java.nio.charset.CharsetEncoder} both need a {@link String} (or allocate intermediate buffers), which
+ * defeats the purpose when the characters are sitting in a reusable {@link StringBuilder} and the destination is a
+ * reusable {@link ByteBuffer} or an exactly-sized byte array. Unpaired surrogates are encoded as {@code '?'}, the same
+ * as {@link String#getBytes(java.nio.charset.Charset)} does.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Utf8Util {
+
+    private static final byte REPLACEMENT_BYTE = (byte) '?';
+
+    // Intentionally private - all access should be via static methods.
+    private Utf8Util() {
+        // Do nothing
+    }
+
+    /**
+     * @return The number of bytes it takes to encode the given characters as UTF-8.
+     */
+    public static int encodedLength(CharSequence chars) {
+        int length = chars.length();
+        int numBytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+
+            if (c < 0x800) {
+                numBytes += 1;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                // A surrogate pair is 2 chars and 4 bytes.
+                numBytes += 2;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate - encoded as a single replacement byte.
+            }
+            else {
+                numBytes += 2;
+            }
+        }
+        return numBytes;
+    }
+
+    /**
+     * Encodes the given characters as UTF-8 into the given buffer, starting at the buffer's current position and
+     * advancing it past the written bytes.
+     *
+     * @throws BufferOverflowException if the buffer doesn't have enough room remaining - use {@link
+     * #encodedLength(CharSequence)} if you need to size the buffer ahead of time.
+     */
+    public static void encode(CharSequence chars, ByteBuffer dest) {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                dest.put((byte) c);
+            }
+            else if (c < 0x800) {
+                dest.put((byte) (0xc0 | (c >> 6)));
+                dest.put((byte) (0x80 | (c & 0x3f)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                dest.put((byte) (0xf0 | (codePoint >> 18)));
+                dest.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                dest.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                dest.put((byte) (0x80 | (codePoint & 0x3f)));
+            }
+            else if (Character.isSurrogate(c)) {
+                dest.put(REPLACEMENT_BYTE);
+            }
+            else {
+                dest.put((byte) (0xe0 | (c >> 12)));
+                dest.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                dest.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    /**
+     * @return A new byte array of exactly the right size containing the given characters encoded as UTF-8. This is the
+     * only allocation performed.
+     */
+    public static byte[] toBytes(CharSequence chars) {
+        byte[] result = new byte[encodedLength(chars)];
+        encode(chars, ByteBuffer.wrap(result));
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nike.wingtips.util;
+
+/**
+ * Detects virtual threads (JDK 21+) without needing to be compiled against a JDK that has them. Per-thread caches like a reusable
+ * {@link StringBuilder} in a {@link ThreadLocal} pay off on long-lived platform threads, but a virtual thread usually only lives for one task,
+ * so the cache is just a {@link ThreadLocal} map entry that's thrown away with the thread. Code that keeps such a cache can use this to skip it
+ * on virtual threads and use a plain local object instead.
+ */
+@SuppressWarnings("WeakerAccess")
+public class VirtualThreadUtil {
+
+    // The common superclass of every virtual thread implementation, or null on JDKs that don't have virtual threads. Checking the class is
+    //      cheaper than calling Thread.isVirtual() reflectively.
+    private static final Class<?> VIRTUAL_THREAD_CLASS = findVirtualThreadClass();
+
+    // Intentionally private - all access should be via static methods.
+    private VirtualThreadUtil() {
+        // Do nothing
+    }
+
+    private static Class<?> findVirtualThreadClass() {
+        for (String className : new String[]{ "java.lang.BaseVirtualThread", "java.lang.VirtualThread" }) {
+            try {
+                return Class.forName(className, false, Thread.class.getClassLoader());
+            }
+            catch (ClassNotFoundException | LinkageError ex) {
+                // Not on this JDK - try the next one.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the given thread is a virtual thread, false if it's a platform thread or this JDK doesn't have virtual threads.
+     */
+    public static boolean isVirtualThread(Thread thread) {
+        return VIRTUAL_THREAD_CLASS != null && VIRTUAL_THREAD_CLASS.isInstance(thread);
+    }
+
+    /**
+     * @return true if the current thread is a virtual thread - see {@link #isVirtualThread(Thread)}.
+     */
+    public static boolean isCurrentThreadVirtual() {
+        return isVirtualThread(Thread.currentThread());
+    }
+}
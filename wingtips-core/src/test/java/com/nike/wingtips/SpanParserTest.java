@@ -0,0 +1,277 @@
+package com.nike.wingtips;
+
+import com.nike.wingtips.Span.SpanPurpose;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link SpanParser}.
+ */
+@RunWith(DataProviderRunner.class)
+public class SpanParserTest {
+
+    private static final String TRACE_ID = "0123456789abcdef";
+    private static final String SPAN_ID = "fedcba9876543210";
+    private static final String PARENT_SPAN_ID = "00000000000000ff";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Span createSpan(String spanName, String userId) {
+        return new Span(TRACE_ID, PARENT_SPAN_ID, SPAN_ID, spanName, true, userId, SpanPurpose.CLIENT, 42, null, 4242L);
+    }
+
+    private void verifySpanFields(Span span, String expectedSpanName, String expectedUserId) {
+        assertThat(span.getTraceId()).isEqualTo(TRACE_ID);
+        assertThat(span.getSpanId()).isEqualTo(SPAN_ID);
+        assertThat(span.getParentSpanId()).isEqualTo(PARENT_SPAN_ID);
+        assertThat(span.getSpanName()).isEqualTo(expectedSpanName);
+        assertThat(span.isSampleable()).isTrue();
+        assertThat(span.getUserId()).isEqualTo(expectedUserId);
+        assertThat(span.getSpanPurpose()).isEqualTo(SpanPurpose.CLIENT);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(42);
+        assertThat(span.getDurationNanos()).isEqualTo(4242L);
+    }
+
+    @Test
+    public void parseJson_handles_reordered_fields_whitespace_unquoted_values_and_unknown_fields() {
+        // given
+        String json = " {\n"
+                      + "  \"durationNanos\" : 4242,\n"
+                      + "  \"someUnknownField\" : {\"nested\": [1, 2, \"}\"]},\n"
+                      + "  \"spanPurpose\" : \"CLIENT\",\n"
+                      + "  \"sampleable\" : true,\n"
+                      + "  \"spanName\" : \"someSpan\",\n"
+                      + "  \"userId\" : null,\n"
+                      + "  \"startTimeEpochMicros\" : \"42\",\n"
+                      + "  \"spanId\" : \"" + SPAN_ID + "\",\n"
+                      + "  \"parentSpanId\" : \"" + PARENT_SPAN_ID + "\",\n"
+                      + "  \"traceId\" : \"" + TRACE_ID + "\"\n"
+                      + "} ";
+
+        // when
+        Span result = SpanParser.parseJson(json);
+
+        // then
+        verifySpanFields(result, "someSpan", null);
+    }
+
+    @Test
+    public void parseJson_decodes_escaped_characters() {
+        // given
+        String json = createSpan("placeholder", "placeholder").toJSON()
+            .replace("\"placeholder\"", "\"q\\\"b\\\\s\\/\\t\\n\\u00e9\\u6f22\"")
+            .replace("\"spanName\"", "\"span\\u004eame\"");
+
+        // when
+        Span result = SpanParser.parseJson(json);
+
+        // then
+        verifySpanFields(result, "q\"b\\s/\t\n\u00e9\u6f22", "q\"b\\s/\t\n\u00e9\u6f22");
+    }
+
+    @DataProvider(value = {
+        "sp\u00e4n with \"quotes\" and \\backslashes\\",
+        "control\tchars\nand\u0001more\u001f",
+        "\u6f22\u5b57 \ud83d\ude00"
+    }, splitBy = "\\|")
+    @Test
+    public void toJSON_escapes_values_so_parseJson_and_jackson_round_trip_them(String value) throws IOException {
+        // given
+        Span span = createSpan(value, value);
+
+        // when
+        String json = span.toJSON();
+        Span result = SpanParser.parseJson(json);
+        Map<String, String> jacksonValues = objectMapper.readValue(json, new TypeReference<Map<String, String>>() {});
+
+        // then
+        verifySpanFields(result, value, value);
+        assertThat(jacksonValues.get(Span.SPAN_NAME_FIELD)).isEqualTo(value);
+        assertThat(jacksonValues.get(Span.USER_ID_FIELD)).isEqualTo(value);
+    }
+
+    @Test
+    public void parseJson_reads_canonical_hex_ids_as_numeric_ids() {
+        // given
+        String traceId128 = "463ac35c9f6413ad48485a3953bb6124";
+        Span original = new Span(traceId128, null, SPAN_ID, "someSpan", true, null, SpanPurpose.SERVER, 42, null, null);
+
+        // when
+        Span result = SpanParser.parseJson(original.toJSON());
+
+        // then
+        assertThat(result.is128BitTraceId()).isTrue();
+        assertThat(result.getTraceIdHighBits()).isEqualTo(0x463ac35c9f6413adL);
+        assertThat(result.getTraceIdLowBits()).isEqualTo(0x48485a3953bb6124L);
+        assertThat(result.getSpanIdAsLong()).isEqualTo(0xfedcba9876543210L);
+        assertThat(result.getParentSpanId()).isNull();
+        assertThat(result).isEqualTo(original);
+    }
+
+    @Test
+    public void parseJson_keeps_non_canonical_ids_as_strings() {
+        // given
+        Span original = new Span("Not-Hex", "PARENT", "ABCDEF0123456789", "someSpan", true, null, SpanPurpose.SERVER, 42, null, null);
+
+        // when
+        Span result = SpanParser.parseJson(original.toJSON());
+
+        // then
+        assertThat(result.getTraceId()).isEqualTo("Not-Hex");
+        assertThat(result.getParentSpanId()).isEqualTo("PARENT");
+        assertThat(result.getSpanId()).isEqualTo("ABCDEF0123456789");
+        assertThat(result).isEqualTo(original);
+    }
+
+    @DataProvider(value = {
+        "",
+        "   ",
+        "garbagio",
+        "{",
+        "{\"traceId\"",
+        "{\"traceId\":",
+        "{\"traceId\":\"abc",
+        "{\"traceId\":\"abc\"",
+        "{\"traceId\":\"abc\" \"spanId\":\"def\"}",
+        "{\"traceId\":\"a\\qc\"}",
+        "{\"traceId\":\"a\\u12\"}",
+        "{\"traceId\":\"a\\u12zz\"}",
+        "{\"traceId\":{\"nested\":\"object\"}}",
+        "{\"traceId\":\"abc\"} trailing",
+        "{\"unknown\":{\"unterminated\":[}",
+        "{\"traceId\":,\"spanId\":\"def\"}"
+    }, splitBy = "\\|")
+    @Test
+    public void parseJson_throws_IllegalArgumentException_for_malformed_json(String badJson) {
+        // when
+        Throwable ex = catchThrowable(() -> SpanParser.parseJson(badJson));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @DataProvider(value = {
+        "sampleable",
+        "startTimeEpochMicros"
+    }, splitBy = "\\|")
+    @Test
+    public void parsers_throw_IllegalStateException_when_required_field_is_missing_or_null(String fieldName) {
+        // given
+        Span span = createSpan("someSpan", "someUser");
+        String json = span.toJSON().replaceAll("\"" + fieldName + "\":\"[^\"]*\"", "\"" + fieldName + "\":null");
+        String keyValueStr = span.toKeyValueString().replaceAll(fieldName + "=[^,]*,", "");
+
+        // when
+        Throwable jsonEx = catchThrowable(() -> SpanParser.parseJson(json));
+        Throwable keyValueEx = catchThrowable(() -> SpanParser.parseKeyValueString(keyValueStr));
+
+        // then
+        assertThat(jsonEx).isInstanceOf(IllegalStateException.class).hasMessageContaining(fieldName);
+        assertThat(keyValueEx).isInstanceOf(IllegalStateException.class).hasMessageContaining(fieldName);
+    }
+
+    @DataProvider(value = {
+        "abc",
+        "12a",
+        "-",
+        "9223372036854775808"
+    }, splitBy = "\\|")
+    @Test
+    public void parsers_throw_NumberFormatException_for_bad_numeric_values(String badNumber) {
+        // given
+        String json = createSpan("someSpan", null).toJSON().replace("\"42\"", "\"" + badNumber + "\"");
+
+        // when
+        Throwable ex = catchThrowable(() -> SpanParser.parseJson(json));
+
+        // then
+        assertThat(ex).isInstanceOf(NumberFormatException.class);
+    }
+
+    @DataProvider(value = {
+        "9223372036854775807",
+        "-9223372036854775808",
+        "+17",
+        "0"
+    }, splitBy = "\\|")
+    @Test
+    public void parsers_parse_numbers_the_same_as_Long_parseLong(String number) {
+        // given
+        String keyValueStr = createSpan("someSpan", null).toKeyValueString().replace("startTimeEpochMicros=42", "startTimeEpochMicros=" + number);
+
+        // when
+        Span result = SpanParser.parseKeyValueString(keyValueStr);
+
+        // then
+        assertThat(result.getSpanStartTimeEpochMicros()).isEqualTo(Long.parseLong(number));
+    }
+
+    @Test
+    public void parseKeyValueString_handles_reordered_fields_whitespace_and_unknown_fields() {
+        // given
+        String keyValueStr = "durationNanos=4242, spanPurpose=CLIENT,someUnknownField=foo,sampleable=true,spanName=someSpan,userId=null,"
+                             + "startTimeEpochMicros=42,spanId=" + SPAN_ID + ",parentSpanId=" + PARENT_SPAN_ID + ",traceId=" + TRACE_ID;
+
+        // when
+        Span result = SpanParser.parseKeyValueString(keyValueStr);
+
+        // then
+        verifySpanFields(result, "someSpan", null);
+    }
+
+    @DataProvider(value = {
+        "GET /foo?a=b,c",
+        "a,b,c",
+        "trailing,",
+        "x=y"
+    }, splitBy = "\\|")
+    @Test
+    public void parseKeyValueString_round_trips_values_containing_commas_and_equals_signs(String value) {
+        // given
+        Span span = createSpan(value, "someUser");
+
+        // when
+        Span result = SpanParser.parseKeyValueString(span.toKeyValueString());
+
+        // then
+        verifySpanFields(result, value, "someUser");
+    }
+
+    @DataProvider(value = {
+        "garbagio",
+        "traceId",
+        "traceId,spanId=abc"
+    }, splitBy = "\\|")
+    @Test
+    public void parseKeyValueString_throws_IllegalArgumentException_for_malformed_input(String badKeyValueStr) {
+        // when
+        Throwable ex = catchThrowable(() -> SpanParser.parseKeyValueString(badKeyValueStr));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void parsers_use_null_span_purpose_for_unknown_span_purpose() {
+        // given
+        String json = createSpan("someSpan", null).toJSON().replace("\"CLIENT\"", "\"NOT_A_PURPOSE\"");
+
+        // when
+        Span result = SpanParser.parseJson(json);
+
+        // then
+        assertThat(result.getSpanPurpose()).isEqualTo(SpanPurpose.UNKNOWN);
+    }
+}
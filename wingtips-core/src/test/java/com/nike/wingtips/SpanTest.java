@@ -1,6 +1,7 @@
 package com.nike.wingtips;
 
 import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.clock.SpanClock;
 import com.nike.wingtips.util.TracerManagedSpanStatus;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -17,6 +18,9 @@ import org.mockito.internal.util.reflection.Whitebox;
 import org.slf4j.MDC;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
@@ -52,6 +56,8 @@ public class SpanTest {
 
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final SpanClock DEFAULT_SPAN_CLOCK = Span.getSpanClock();
+
     @Before
     public void beforeMethod() {
         resetTracing();
@@ -60,6 +66,8 @@ public class SpanTest {
     @After
     public void afterMethod() {
         resetTracing();
+        TraceAndSpanIdGenerator.setGenerate128BitTraceIds(false);
+        Span.setSpanClock(DEFAULT_SPAN_CLOCK);
     }
 
     private void resetTracing() {
@@ -188,18 +196,15 @@ public class SpanTest {
     public void public_constructor_calculates_start_time_nanos_if_passed_null() {
         // given
         long startTimeEpochMicrosUsed = 42;
-        long nanosBeforeCall = System.nanoTime();
-        long epochMicrosBeforeCall = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        ManualSpanClock clock = new ManualSpanClock(1_000_000_000L, 5_000_000L);
+        Span.setSpanClock(clock);
 
         // when
         Span span = new Span(traceId, parentSpanId, spanId, spanName, true, userId, spanPurpose, startTimeEpochMicrosUsed, null, 41L);
-        long epochMicrosAfterCall = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
-        long nanosAfterCall = System.nanoTime();
 
         // then
-        long lowerBound = calculateNanoStartTimeFromSpecifiedEpochMicrosStartTime(startTimeEpochMicrosUsed, epochMicrosBeforeCall, nanosBeforeCall);
-        long upperBound = calculateNanoStartTimeFromSpecifiedEpochMicrosStartTime(startTimeEpochMicrosUsed, epochMicrosAfterCall, nanosAfterCall);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(lowerBound, upperBound);
+        long expected = calculateNanoStartTimeFromSpecifiedEpochMicrosStartTime(startTimeEpochMicrosUsed, 5_000_000L, 1_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(expected);
     }
 
     private long calculateNanoStartTimeFromSpecifiedEpochMicrosStartTime(long epochMicrosStartTime, long currentEpochMicros, long currentNanoTime) {
@@ -232,13 +237,10 @@ public class SpanTest {
     public void generateRootSpanForNewTrace_generates_root_span_as_expected(SpanPurpose spanPurpose) {
         // given
         String spanName = UUID.randomUUID().toString();
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
 
         // when
-        long beforeCallNanos = System.nanoTime();
-        long beforeCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Span result = Span.generateRootSpanForNewTrace(spanName, spanPurpose).build();
-        long afterCallNanos = System.nanoTime();
-        long afterCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then
         assertThat(result.getTraceId()).isNotEmpty();
@@ -248,8 +250,8 @@ public class SpanTest {
         assertThat(result.isSampleable()).isTrue();
         assertThat(result.getUserId()).isNull();
         assertThat(result.getSpanPurpose()).isEqualTo(spanPurpose);
-        assertThat(result.getSpanStartTimeEpochMicros()).isBetween(beforeCallEpochMicros, afterCallEpochMicros);
-        assertThat(result.getSpanStartTimeNanos()).isBetween(beforeCallNanos, afterCallNanos);
+        assertThat(result.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(result.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(result.isCompleted()).isFalse();
         assertThat(result.getDurationNanos()).isNull();
     }
@@ -269,10 +271,8 @@ public class SpanTest {
 
         // when: generateChildSpan is used to create a child span with a new span name
         long beforeCallNanos = System.nanoTime();
-        long beforeCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Span childSpan = parentSpan.generateChildSpan(childSpanName, childSpanPurpose);
         long afterCallNanos = System.nanoTime();
-        long afterCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: returned object contains the expected values
         //       (new span ID, expected span name, parent span ID equal to parent's span ID, start time generated during call, not completed, everything else the same as parent).
@@ -286,7 +286,10 @@ public class SpanTest {
         assertThat(childSpan.getSpanPurpose()).isEqualTo(childSpanPurpose);
         assertThat(childSpan.isSampleable()).isEqualTo(parentSpan.isSampleable());
 
-        assertThat(childSpan.getSpanStartTimeEpochMicros()).isBetween(beforeCallEpochMicros, afterCallEpochMicros);
+        assertThat(childSpan.getSpanStartTimeEpochMicros()).isEqualTo(
+            parentSpan.getSpanStartTimeEpochMicros()
+            + TimeUnit.NANOSECONDS.toMicros(childSpan.getSpanStartTimeNanos() - parentSpan.getSpanStartTimeNanos())
+        );
         assertThat(childSpan.getSpanStartTimeNanos()).isBetween(beforeCallNanos, afterCallNanos);
         assertThat(childSpan.isCompleted()).isFalse();
         assertThat(childSpan.getDurationNanos()).isNull();
@@ -307,10 +310,8 @@ public class SpanTest {
 
         // when: generateChildSpan is used to create a child span with a new span name
         long beforeCallNanos = System.nanoTime();
-        long beforeCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Span childSpan = parentSpan.generateChildSpan(childSpanName, childSpanPurpose);
         long afterCallNanos = System.nanoTime();
-        long afterCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: returned object contains the expected values
         //       (new span ID, expected span name, parent span ID equal to parent's span ID, start time generated during call, not completed, everything else the same as parent).
@@ -324,7 +325,10 @@ public class SpanTest {
         assertThat(childSpan.getSpanPurpose()).isEqualTo(childSpanPurpose);
         assertThat(childSpan.isSampleable()).isEqualTo(parentSpan.isSampleable());
 
-        assertThat(childSpan.getSpanStartTimeEpochMicros()).isBetween(beforeCallEpochMicros, afterCallEpochMicros);
+        assertThat(childSpan.getSpanStartTimeEpochMicros()).isEqualTo(
+            parentSpan.getSpanStartTimeEpochMicros()
+            + TimeUnit.NANOSECONDS.toMicros(childSpan.getSpanStartTimeNanos() - parentSpan.getSpanStartTimeNanos())
+        );
         assertThat(childSpan.getSpanStartTimeNanos()).isBetween(beforeCallNanos, afterCallNanos);
         assertThat(childSpan.isCompleted()).isFalse();
         assertThat(childSpan.getDurationNanos()).isNull();
@@ -720,6 +724,67 @@ public class SpanTest {
         verifySpanEqualsDeserializedValues(validSpan, deserializedValues);
     }
 
+    @DataProvider(value = {
+        "true",
+        "false"
+    })
+    @Test
+    public void appendJson_and_appendKeyValueString_match_toJSON_and_toKeyValueString_without_caching_id_strings(boolean completed) {
+        // given
+        Span span = Span.newBuilder(spanName, spanPurpose).withParentSpanId(42L).withUserId(userId).build();
+        if (completed)
+            span.complete();
+        StringBuilder jsonBuilder = new StringBuilder("prefix:");
+        StringBuilder keyValueBuilder = new StringBuilder("prefix:");
+
+        // when
+        StringBuilder jsonResult = span.appendJson(jsonBuilder);
+        StringBuilder keyValueResult = span.appendKeyValueString(keyValueBuilder);
+
+        // then
+        assertThat(jsonResult).isSameAs(jsonBuilder);
+        assertThat(keyValueResult).isSameAs(keyValueBuilder);
+        assertThat(Whitebox.getInternalState(span, "traceId")).isNull();
+        assertThat(Whitebox.getInternalState(span, "spanId")).isNull();
+        assertThat(Whitebox.getInternalState(span, "parentSpanId")).isNull();
+        assertThat(jsonBuilder.toString()).isEqualTo("prefix:" + span.toJSON());
+        assertThat(keyValueBuilder.toString()).isEqualTo("prefix:" + span.toKeyValueString());
+    }
+
+    @Test
+    public void writeJson_and_writeKeyValueString_write_same_output_to_non_StringBuilder_Appendable() throws IOException {
+        // given
+        Span span = createFilledOutSpan(true);
+        StringWriter jsonWriter = new StringWriter();
+        StringWriter keyValueWriter = new StringWriter();
+
+        // when
+        span.writeJson(jsonWriter);
+        span.writeKeyValueString(keyValueWriter);
+
+        // then
+        assertThat(jsonWriter.toString()).isEqualTo(span.toJSON());
+        assertThat(keyValueWriter.toString()).isEqualTo(span.toKeyValueString());
+    }
+
+    @Test
+    public void writeJsonUtf8_and_writeKeyValueStringUtf8_write_utf8_bytes_at_buffer_position() {
+        // given
+        Span span = Span.newBuilder("sp\u00e4n-\u6f22\ud83d\ude00", spanPurpose).build();
+        ByteBuffer jsonBuffer = ByteBuffer.allocate(1024);
+        ByteBuffer keyValueBuffer = ByteBuffer.allocate(1024);
+        jsonBuffer.put((byte) 'x');
+
+        // when
+        span.writeJsonUtf8(jsonBuffer);
+        span.writeKeyValueStringUtf8(keyValueBuffer);
+
+        // then
+        assertThat(new String(jsonBuffer.array(), 0, jsonBuffer.position(), StandardCharsets.UTF_8)).isEqualTo("x" + span.toJSON());
+        assertThat(new String(keyValueBuffer.array(), 0, keyValueBuffer.position(), StandardCharsets.UTF_8))
+            .isEqualTo(span.toKeyValueString());
+    }
+
     @Test
     public void fromKeyValueString_should_function_properly_when_there_are_no_null_values() {
         // given: valid span without any null values, completed (so that end time is not null) and key/value string from Span.fromKeyValueString()
@@ -907,7 +972,7 @@ public class SpanTest {
         // given
         Span fullSpan1 = createFilledOutSpan(true);
         Span fullSpan2 = createFilledOutSpan(true);
-        Whitebox.setInternalState(fullSpan2, "spanId", fullSpan1.getSpanId() + "_nope");
+        fullSpan2 = Span.newBuilder(fullSpan2).withSpanId(fullSpan1.getSpanId() + "_nope").build();
 
         // expect
         assertThat(fullSpan1.equals(fullSpan2)).isFalse();
@@ -943,7 +1008,7 @@ public class SpanTest {
         // given
         Span fullSpan1 = createFilledOutSpan(true);
         Span fullSpan2 = createFilledOutSpan(true);
-        Whitebox.setInternalState(fullSpan2, "traceId", fullSpan1.getTraceId() + "_nope");
+        fullSpan2 = Span.newBuilder(fullSpan2).withTraceId(fullSpan1.getTraceId() + "_nope").build();
 
         // expect
         assertThat(fullSpan1.equals(fullSpan2)).isFalse();
@@ -958,7 +1023,7 @@ public class SpanTest {
         List<String> badDataList = Arrays.asList(fullSpan1.getParentSpanId() + "_nope", null);
 
         for (String badData : badDataList) {
-            Whitebox.setInternalState(fullSpan2, "parentSpanId", badData);
+            fullSpan2 = Span.newBuilder(fullSpan2).withParentSpanId(badData).build();
 
             // expect
             assertThat(fullSpan1.equals(fullSpan2)).isFalse();
@@ -1041,13 +1106,10 @@ public class SpanTest {
     public void newBuilder_with_spanName_and_spanPurpose_args_returns_root_span_builder_by_default(SpanPurpose spanPurpose) {
         // given
         String spanName = UUID.randomUUID().toString();
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
 
         // when
-        long beforeCallNanos = System.nanoTime();
-        long beforeCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Span result = Span.newBuilder(spanName, spanPurpose).build();
-        long afterCallNanos = System.nanoTime();
-        long afterCallEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then
         assertThat(result.getTraceId()).isNotEmpty();
@@ -1057,8 +1119,8 @@ public class SpanTest {
         assertThat(result.isSampleable()).isTrue();
         assertThat(result.getUserId()).isNull();
         assertThat(result.getSpanPurpose()).isEqualTo(spanPurpose);
-        assertThat(result.getSpanStartTimeEpochMicros()).isBetween(beforeCallEpochMicros, afterCallEpochMicros);
-        assertThat(result.getSpanStartTimeNanos()).isBetween(beforeCallNanos, afterCallNanos);
+        assertThat(result.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(result.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(result.getDurationNanos()).isNull();
         assertThat(result.isCompleted()).isFalse();
     }
@@ -1117,6 +1179,210 @@ public class SpanTest {
         assertThat(span.getDurationNanos()).isEqualTo(durationNanosForFullyCompletedSpan);
     }
 
+    @Test
+    public void builder_primitive_id_methods_render_same_hex_strings_as_TraceAndSpanIdGenerator() {
+        // given
+        long traceIdLong = TraceAndSpanIdGenerator.generate64BitRandomLong();
+        long spanIdLong = TraceAndSpanIdGenerator.generate64BitRandomLong();
+        long parentSpanIdLong = TraceAndSpanIdGenerator.generate64BitRandomLong();
+
+        // when
+        Span span = Span.newBuilder("stuff", SpanPurpose.LOCAL_ONLY)
+                        .withTraceId(traceIdLong)
+                        .withSpanId(spanIdLong)
+                        .withParentSpanId(parentSpanIdLong)
+                        .build();
+
+        // then
+        assertThat(span.getTraceId()).isEqualTo(TraceAndSpanIdGenerator.longToUnsignedLowerHexString(traceIdLong));
+        assertThat(span.getSpanId()).isEqualTo(TraceAndSpanIdGenerator.longToUnsignedLowerHexString(spanIdLong));
+        assertThat(span.getParentSpanId()).isEqualTo(TraceAndSpanIdGenerator.longToUnsignedLowerHexString(parentSpanIdLong));
+        assertThat(span.is128BitTraceId()).isFalse();
+        assertThat(span.getTraceIdHighBits()).isEqualTo(0L);
+        assertThat(span.getTraceIdLowBits()).isEqualTo(traceIdLong);
+        assertThat(span.getSpanIdAsLong()).isEqualTo(spanIdLong);
+        assertThat(span.getParentSpanIdAsLong()).isEqualTo(parentSpanIdLong);
+    }
+
+    @Test
+    public void builder_with128BitTraceId_renders_32_char_trace_id() {
+        // when
+        Span span = Span.newBuilder("stuff", SpanPurpose.LOCAL_ONLY)
+                        .with128BitTraceId(0x463ac35c9f6413adL, 0x48485a3953bb6124L)
+                        .build();
+
+        // then
+        assertThat(span.getTraceId()).isEqualTo("463ac35c9f6413ad48485a3953bb6124");
+        assertThat(span.is128BitTraceId()).isTrue();
+        assertThat(span.getTraceIdHighBits()).isEqualTo(0x463ac35c9f6413adL);
+        assertThat(span.getTraceIdLowBits()).isEqualTo(0x48485a3953bb6124L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSpanClock_throws_IllegalArgumentException_if_passed_null() {
+        // expect
+        Span.setSpanClock(null);
+    }
+
+    @Test
+    public void spans_use_the_span_clock_for_start_times_and_durations() {
+        // given
+        ManualSpanClock clock = new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L);
+        Span.setSpanClock(clock);
+
+        // when
+        Span root = Span.newBuilder("root", SpanPurpose.SERVER).build();
+        clock.advanceNanos(2_500);
+        Span child = root.generateChildSpan("child", SpanPurpose.LOCAL_ONLY);
+        clock.advanceNanos(1_000);
+        Span grandchild = child.generateChildSpan("grandchild", SpanPurpose.LOCAL_ONLY);
+        clock.advanceNanos(7_000);
+        grandchild.complete();
+        child.complete();
+        root.complete();
+
+        // then
+        assertThat(Span.getSpanClock()).isSameAs(clock);
+        assertThat(root.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
+        assertThat(root.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(child.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_002L);
+        assertThat(grandchild.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_003L);
+        assertThat(grandchild.getDurationNanos()).isEqualTo(7_000L);
+        assertThat(child.getDurationNanos()).isEqualTo(8_000L);
+        assertThat(root.getDurationNanos()).isEqualTo(10_500L);
+        // Root spans are the only ones that ask the clock for an epoch timestamp.
+        assertThat(clock.toEpochMicrosCallCount).isEqualTo(1);
+    }
+
+    @Test
+    public void child_start_times_are_anchored_to_the_parent_even_if_the_clock_disagrees() {
+        // given
+        ManualSpanClock clock = new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L);
+        Span.setSpanClock(clock);
+        Span root = Span.newBuilder("root", SpanPurpose.SERVER).build();
+
+        // when
+        clock.jumpEpochMicros(-5_000_000L);
+        clock.advanceNanos(3_000);
+        Span child = root.generateChildSpan("child", SpanPurpose.LOCAL_ONLY);
+
+        // then
+        assertThat(child.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_003L);
+    }
+
+    private static class ManualSpanClock implements SpanClock {
+        private long nanoTime;
+        private long epochMicrosAtZeroNanos;
+        int toEpochMicrosCallCount = 0;
+
+        ManualSpanClock(long nanoTime, long epochMicros) {
+            this.nanoTime = nanoTime;
+            this.epochMicrosAtZeroNanos = epochMicros - TimeUnit.NANOSECONDS.toMicros(nanoTime);
+        }
+
+        void advanceNanos(long nanos) {
+            nanoTime += nanos;
+        }
+
+        void jumpEpochMicros(long micros) {
+            epochMicrosAtZeroNanos += micros;
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanoTime;
+        }
+
+        @Override
+        public long toEpochMicros(long nanoTime) {
+            toEpochMicrosCallCount++;
+            return epochMicrosAtZeroNanos + TimeUnit.NANOSECONDS.toMicros(nanoTime);
+        }
+    }
+
+    @Test
+    public void ids_are_not_rendered_to_strings_until_requested() {
+        // given
+        Span span = Span.newBuilder("stuff", SpanPurpose.LOCAL_ONLY).build();
+        Span child = span.generateChildSpan("child", SpanPurpose.LOCAL_ONLY);
+
+        // expect
+        assertThat(Whitebox.getInternalState(span, "traceId")).isNull();
+        assertThat(Whitebox.getInternalState(span, "spanId")).isNull();
+        assertThat(Whitebox.getInternalState(child, "parentSpanId")).isNull();
+        assertThat(child.getParentSpanIdAsLong()).isEqualTo(span.getSpanIdAsLong());
+        assertThat(child.getTraceIdLowBits()).isEqualTo(span.getTraceIdLowBits());
+
+        // and when
+        String traceIdString = span.getTraceId();
+
+        // then
+        assertThat(Whitebox.getInternalState(span, "traceId")).isSameAs(traceIdString);
+        assertThat(span.getTraceId()).isSameAs(traceIdString);
+        assertThat(child.getParentSpanId()).isEqualTo(span.getSpanId());
+    }
+
+    @DataProvider(value = {
+        "463ac35c9f6413ad                   |   true    |   false",
+        "463ac35c9f6413ad48485a3953bb6124   |   true    |   true",
+        "463AC35C9F6413AD                   |   false   |   false",
+        "63ac35c9f6413ad                    |   false   |   false",
+        "0463ac35c9f6413ad                  |   false   |   false",
+        "not-a-hex-id-at-all                |   false   |   false"
+    }, splitBy = "\\|")
+    @Test
+    public void string_ids_are_preserved_exactly_and_only_canonical_lowercase_hex_is_stored_as_primitives(
+        String traceIdString, boolean expectNumeric, boolean expect128Bit
+    ) {
+        // when
+        Span span = new Span(traceIdString, null, traceIdString.substring(0, 15) + "0", "stuff", true, null, SpanPurpose.LOCAL_ONLY,
+                             42, null, null);
+
+        // then
+        assertThat(span.getTraceId()).isSameAs(traceIdString);
+        assertThat(span.is128BitTraceId()).isEqualTo(expect128Bit);
+        assertThat(((int) Whitebox.getInternalState(span, "idFlags") & 1) != 0).isEqualTo(expectNumeric);
+        assertThat(span.getParentSpanId()).isNull();
+        assertThat(span.getParentSpanIdAsLong()).isNull();
+    }
+
+    @Test
+    public void equals_and_hashCode_match_for_spans_with_same_ids_created_from_strings_and_longs() {
+        // given
+        Span fromLongs = Span.newBuilder(spanName, spanPurpose)
+                             .withTraceId(TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(traceId))
+                             .withSpanId(TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(spanId))
+                             .withParentSpanId(TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(parentSpanId))
+                             .withSpanStartTimeEpochMicros(startTimeEpochMicrosForFullyCompleteSpan)
+                             .build();
+        Span fromStrings = Span.newBuilder(fromLongs)
+                               .withTraceId(traceId)
+                               .withSpanId(spanId)
+                               .withParentSpanId(parentSpanId)
+                               .build();
+
+        // expect
+        assertThat(fromLongs).isEqualTo(fromStrings);
+        assertThat(fromLongs.hashCode()).isEqualTo(fromStrings.hashCode());
+    }
+
+    @Test
+    public void builder_generates_128_bit_trace_id_when_TraceAndSpanIdGenerator_is_configured_to() {
+        // given
+        TraceAndSpanIdGenerator.setGenerate128BitTraceIds(true);
+
+        // when
+        Span span = Span.newBuilder("stuff", SpanPurpose.LOCAL_ONLY).build();
+        Span child = span.generateChildSpan("child", SpanPurpose.LOCAL_ONLY);
+
+        // then
+        assertThat(span.is128BitTraceId()).isTrue();
+        assertThat(span.getTraceId()).hasSize(32);
+        assertThat(span.getSpanId()).hasSize(16);
+        assertThat(child.getTraceId()).isEqualTo(span.getTraceId());
+        assertThat(child.is128BitTraceId()).isTrue();
+    }
+
     @Test
     public void builder_build_ignores_passed_in_spanStartTimeNanos_if_spanStartTimeEpochMicros_is_null() {
         // given
@@ -1124,17 +1390,14 @@ public class SpanTest {
             .newBuilder("stuff", SpanPurpose.LOCAL_ONLY)
             .withSpanStartTimeNanos(42L)
             .withSpanStartTimeEpochMicros(null);
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
 
         // when
-        long beforeNanos = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Span span = builder.build();
-        long afterNanos = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanos, afterNanos);
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
     }
 
     @Test
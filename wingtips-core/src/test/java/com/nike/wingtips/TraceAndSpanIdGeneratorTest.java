@@ -1,16 +1,20 @@
 package com.nike.wingtips;
 
+import com.nike.wingtips.idgeneration.IdGenerationStrategy;
+import com.nike.wingtips.idgeneration.SecureRandomIdGenerationStrategy;
+import com.nike.wingtips.idgeneration.ThreadLocalSplitMix64IdGenerationStrategy;
+
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 
 import org.assertj.core.api.ThrowableAssert;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.security.Security;
@@ -22,7 +26,6 @@ import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
-import static org.assertj.core.api.Assertions.fail;
 
 /**
  * Tests the functionality of {@link TraceAndSpanIdGenerator}
@@ -30,6 +33,14 @@ import static org.assertj.core.api.Assertions.fail;
 @RunWith(DataProviderRunner.class)
 public class TraceAndSpanIdGeneratorTest {
 
+    private static final IdGenerationStrategy DEFAULT_ID_GENERATION_STRATEGY = TraceAndSpanIdGenerator.getIdGenerationStrategy();
+
+    @After
+    public void afterMethod() {
+        TraceAndSpanIdGenerator.setIdGenerationStrategy(DEFAULT_ID_GENERATION_STRATEGY);
+        TraceAndSpanIdGenerator.setGenerate128BitTraceIds(false);
+    }
+
     @Test
     public void constructor_is_private() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
         Constructor<TraceAndSpanIdGenerator> defaultConstructor = TraceAndSpanIdGenerator.class.getDeclaredConstructor();
@@ -113,38 +124,6 @@ public class TraceAndSpanIdGeneratorTest {
         assertThat(randomGenerator).isNotInstanceOf(SecureRandom.class);
     }
 
-    @Test
-    public void convertBytesToLong_should_work_correctly_for_known_value() {
-        // given: byte[] that maps to known long value
-        final long EXPECTED_LONG_VALUE = 4242424242L;
-        ByteBuffer buffer = ByteBuffer.allocate(Long.SIZE / 8);
-        buffer.putLong(EXPECTED_LONG_VALUE);
-        byte[] longAsByteArray = buffer.array();
-        assertThat(longAsByteArray.length).isEqualTo(8);
-
-        // when: convertBytesToLong() is called
-        long returnVal = TraceAndSpanIdGenerator.convertBytesToLong(longAsByteArray);
-
-        // then: the return value is what we expect
-        assertThat(returnVal).isEqualTo(EXPECTED_LONG_VALUE);
-    }
-
-    @Test(expected = IllegalArgumentException.class)
-    public void convertBytesToLong_should_explode_if_byte_array_is_less_than_8_bytes() {
-        byte[] badByteArray = new byte[]{0, 0, 0, 0, 0, 0, 1};
-        assertThat(badByteArray.length).isLessThan(8);
-        TraceAndSpanIdGenerator.convertBytesToLong(badByteArray);
-        fail("Expected IllegalArgumentException but none was thrown");
-    }
-
-    @Test(expected = IllegalArgumentException.class)
-    public void convertBytesToLong_should_explode_if_byte_array_is_more_than_8_bytes() {
-        byte[] badByteArray = new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 1};
-        assertThat(badByteArray.length).isGreaterThan(8);
-        TraceAndSpanIdGenerator.convertBytesToLong(badByteArray);
-        fail("Expected IllegalArgumentException but none was thrown");
-    }
-
     @Test
     public void generateId_should_return_16_char_length_string_that_can_be_parsed_into_a_long_when_interpreted_as_a_64_bit_unsigned_hex_long() {
         Set<Character> charactersFromIds = new HashSet<>();
@@ -203,6 +182,136 @@ public class TraceAndSpanIdGeneratorTest {
         assertThat(randomLongs.size()).isEqualTo(numAttempts);
     }
 
+    @Test
+    public void default_IdGenerationStrategy_is_ThreadLocalSplitMix64IdGenerationStrategy() {
+        // expect
+        assertThat(DEFAULT_ID_GENERATION_STRATEGY).isInstanceOf(ThreadLocalSplitMix64IdGenerationStrategy.class);
+    }
+
+    @Test
+    public void setIdGenerationStrategy_changes_the_strategy_used_by_generate64BitRandomLong_and_generateId() {
+        // given
+        IdGenerationStrategy fixedStrategy = new IdGenerationStrategy() {
+            @Override
+            public long generate64BitRandomLong() {
+                return 42L;
+            }
+        };
+
+        // when
+        TraceAndSpanIdGenerator.setIdGenerationStrategy(fixedStrategy);
+
+        // then
+        assertThat(TraceAndSpanIdGenerator.getIdGenerationStrategy()).isSameAs(fixedStrategy);
+        assertThat(TraceAndSpanIdGenerator.generate64BitRandomLong()).isEqualTo(42L);
+        assertThat(TraceAndSpanIdGenerator.generateId()).isEqualTo("000000000000002a");
+    }
+
+    @Test
+    public void setIdGenerationStrategy_throws_IllegalArgumentException_if_passed_null() {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                TraceAndSpanIdGenerator.setIdGenerationStrategy(null);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+        assertThat(TraceAndSpanIdGenerator.getIdGenerationStrategy()).isSameAs(DEFAULT_ID_GENERATION_STRATEGY);
+    }
+
+    @Test
+    public void generate64BitRandomLong_should_not_generate_duplicate_ids_with_SecureRandomIdGenerationStrategy() {
+        // given
+        TraceAndSpanIdGenerator.setIdGenerationStrategy(
+            new SecureRandomIdGenerationStrategy(TraceAndSpanIdGenerator.getRandomInstance("SHA1PRNG"))
+        );
+        Set<Long> randomLongs = new HashSet<>();
+        int numAttempts = 100000;
+
+        // when
+        for (int i = 0; i < numAttempts; i++) {
+            randomLongs.add(TraceAndSpanIdGenerator.generate64BitRandomLong());
+        }
+
+        // then
+        assertThat(randomLongs.size()).isEqualTo(numAttempts);
+    }
+
+    @DataProvider(value = {
+        "false  |   16",
+        "true   |   32"
+    }, splitBy = "\\|")
+    @Test
+    public void generateTraceId_honors_generate128BitTraceIds_setting(boolean generate128BitTraceIds, int expectedLength) {
+        // given
+        TraceAndSpanIdGenerator.setGenerate128BitTraceIds(generate128BitTraceIds);
+
+        // when
+        String traceId = TraceAndSpanIdGenerator.generateTraceId();
+
+        // then
+        assertThat(TraceAndSpanIdGenerator.isGenerate128BitTraceIds()).isEqualTo(generate128BitTraceIds);
+        assertThat(traceId).hasSize(expectedLength);
+        assertThat(traceId).matches("[0-9a-f]+");
+    }
+
+    @DataProvider(value = {
+        "0",
+        "1",
+        "4"
+    })
+    @Test
+    public void writeUnsignedLowerHex_writes_same_value_as_longToUnsignedLowerHexString_at_offset(int offset) {
+        // given
+        long value = TraceAndSpanIdGenerator.generate64BitRandomLong();
+        char[] dest = new char[offset + 16];
+
+        // when
+        TraceAndSpanIdGenerator.writeUnsignedLowerHex(value, dest, offset);
+
+        // then
+        assertThat(new String(dest, offset, 16)).isEqualTo(TraceAndSpanIdGenerator.longToUnsignedLowerHexString(value));
+    }
+
+    @DataProvider(value = {
+        "-1 |   20",
+        "5  |   20",
+        "0  |   15"
+    }, splitBy = "\\|")
+    @Test
+    public void writeUnsignedLowerHex_throws_IndexOutOfBoundsException_if_dest_does_not_have_room(final int offset, int destLength) {
+        // given
+        final char[] dest = new char[destLength];
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                TraceAndSpanIdGenerator.writeUnsignedLowerHex(42L, dest, offset);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void appendUnsignedLowerHex_appends_same_value_as_longToUnsignedLowerHexString() {
+        // given
+        long value = TraceAndSpanIdGenerator.generate64BitRandomLong();
+        StringBuilder sb = new StringBuilder("traceId=");
+
+        // when
+        StringBuilder result = TraceAndSpanIdGenerator.appendUnsignedLowerHex(sb, value);
+
+        // then
+        assertThat(result).isSameAs(sb);
+        assertThat(sb.toString()).isEqualTo("traceId=" + TraceAndSpanIdGenerator.longToUnsignedLowerHexString(value));
+    }
+
     @DataProvider(value = {
         "0000000000000000   |   0",
         "0000000000000001   |   1",
@@ -222,10 +331,12 @@ public class TraceAndSpanIdGeneratorTest {
 
         // when
         String calculatedHexValue = TraceAndSpanIdGenerator.longToUnsignedLowerHexString(actualSignedPrimitive);
+        String appendedHexValue = TraceAndSpanIdGenerator.appendUnsignedLowerHex(new StringBuilder(), actualSignedPrimitive).toString();
         long calculatedPrimitiveValue = TraceAndSpanIdGenerator.unsignedLowerHexStringToLong(actualHexValue);
 
         // then
         assertThat(calculatedHexValue).isEqualTo(actualHexValue);
+        assertThat(appendedHexValue).isEqualTo(actualHexValue);
         assertThat(calculatedPrimitiveValue).isEqualTo(actualSignedPrimitive);
     }
 
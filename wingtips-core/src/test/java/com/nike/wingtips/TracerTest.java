@@ -1,9 +1,19 @@
 package com.nike.wingtips;
 
 import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.clock.SpanClock;
+import com.nike.wingtips.contextstorage.InheritableThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.ThreadFieldContextStorage;
+import com.nike.wingtips.contextstorage.ThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextThread;
+import com.nike.wingtips.Tracer.ListenerQuarantineAction;
+import com.nike.wingtips.lifecyclelistener.AsyncSpanLifecycleListener;
 import com.nike.wingtips.lifecyclelistener.SpanLifecycleListener;
 import com.nike.wingtips.sampling.RootSpanSamplingStrategy;
 import com.nike.wingtips.sampling.SampleAllTheThingsStrategy;
+import com.nike.wingtips.sampling.TraceAwareRootSpanSamplingStrategy;
+import com.nike.wingtips.util.SpanStack;
 import com.nike.wingtips.util.TracerManagedSpanStatus;
 import com.nike.wingtips.util.TracingState;
 
@@ -16,9 +26,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.internal.util.reflection.Whitebox;
+import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
-import java.lang.reflect.Field;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,15 +38,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
  * Tests the functionality of {@link Tracer}
@@ -44,13 +62,23 @@ import static org.mockito.Mockito.verify;
 @RunWith(DataProviderRunner.class)
 public class TracerTest {
 
+    private static final TracerContextStorage DEFAULT_CONTEXT_STORAGE = Tracer.getInstance().getContextStorage();
+    private static final SpanClock DEFAULT_SPAN_CLOCK = Span.getSpanClock();
+
     private void resetTracer() {
         Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setContextStorage(DEFAULT_CONTEXT_STORAGE);
         Tracer.getInstance().setRootSpanSamplingStrategy(new SampleAllTheThingsStrategy());
         for (SpanLifecycleListener listener : new ArrayList<>(Tracer.getInstance().getSpanLifecycleListeners())) {
             Tracer.getInstance().removeSpanLifecycleListener(listener);
         }
         Tracer.getInstance().setSpanLoggingRepresentation(Tracer.SpanLoggingRepresentation.JSON);
+        Tracer.getInstance().setMdcPopulationMode(Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_JSON);
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.FULL);
+        Tracer.getInstance().setSpanLifecycleListenerLatencyBudget(0, TimeUnit.NANOSECONDS);
+        Tracer.getInstance().setSpanLifecycleListenerQuarantineThreshold(Tracer.DEFAULT_LISTENER_QUARANTINE_THRESHOLD);
+        Tracer.getInstance().setSpanLifecycleListenerQuarantineAction(Tracer.ListenerQuarantineAction.DISABLE);
+        Span.setSpanClock(DEFAULT_SPAN_CLOCK);
     }
 
     @Before
@@ -63,15 +91,47 @@ public class TracerTest {
         resetTracer();
     }
 
-    private ThreadLocal<Deque<Span>> getSpanStackThreadLocal() {
-        try {
-            Field stackThreadLocalField = Tracer.class.getDeclaredField("currentSpanStackThreadLocal");
-            stackThreadLocalField.setAccessible(true);
-            //noinspection unchecked
-            return ((ThreadLocal<Deque<Span>>) stackThreadLocalField.get(Tracer.getInstance()));
+    private SpanStackAccessor getSpanStackThreadLocal() {
+        return new SpanStackAccessor(Tracer.getInstance().getContextStorage());
+    }
+
+    private static class SpanStackAccessor {
+        private final TracerContextStorage threadContext;
+
+        SpanStackAccessor(TracerContextStorage threadContext) {
+            this.threadContext = threadContext;
+        }
+
+        Deque<Span> get() {
+            return threadContext.get().spanStack;
+        }
+
+        void set(Deque<Span> spanStack) {
+            threadContext.get().spanStack = spanStack;
+        }
+    }
+
+    private static class ManualSpanClock implements SpanClock {
+        private long nanoTime;
+        private final long epochMicrosAtZeroNanos;
+
+        ManualSpanClock(long nanoTime, long epochMicros) {
+            this.nanoTime = nanoTime;
+            this.epochMicrosAtZeroNanos = epochMicros - TimeUnit.NANOSECONDS.toMicros(nanoTime);
+        }
+
+        void advanceNanos(long nanos) {
+            nanoTime += nanos;
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanoTime;
         }
-        catch (Exception ex) {
-            throw new IllegalStateException("Couldn't do necessary reflection on Tracer", ex);
+
+        @Override
+        public long toEpochMicros(long nanoTime) {
+            return epochMicrosAtZeroNanos + TimeUnit.NANOSECONDS.toMicros(nanoTime);
         }
     }
 
@@ -90,17 +150,14 @@ public class TracerTest {
     @Test
     public void startRequestWithRootSpan_should_start_valid_root_span_without_parent() {
         // given: no span started
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
         assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isNull();
         assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
         assertThat(getSpanStackSize()).isEqualTo(0);
 
         // when: Tracer.startRequestWithRootSpan(String) is called to start a span without a parent
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Tracer.getInstance().startRequestWithRootSpan("noparent");
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new span is started that has no parent but is otherwise valid, and the MDC is updated
         assertThat(getSpanStackSize()).isEqualTo(1);
@@ -108,8 +165,8 @@ public class TracerTest {
         assertThat(span).isNotNull();
         assertThat(span.getSpanName()).isEqualTo("noparent");
         assertThat(span.getParentSpanId()).isNull();
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(span.isCompleted()).isFalse();
         assertThat(span.getDurationNanos()).isNull();
         assertThat(span.getTraceId()).isNotNull();
@@ -124,17 +181,14 @@ public class TracerTest {
     @Test
     public void startRequestWithRootSpan_should_start_valid_root_span_without_parent_with_userid() {
         // given: no span started
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
         assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isNull();
         assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
         assertThat(getSpanStackSize()).isEqualTo(0);
 
         // when: Tracer.startRequestWithRootSpan(String) is called to start a span without a parent
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Tracer.getInstance().startRequestWithRootSpan("noparent", "testUserId");
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new span is started that has no parent but is otherwise valid, it has the expected user ID, and the MDC is updated
         assertThat(getSpanStackSize()).isEqualTo(1);
@@ -142,8 +196,8 @@ public class TracerTest {
         assertThat(span).isNotNull();
         assertThat(span.getSpanName()).isEqualTo("noparent");
         assertThat(span.getParentSpanId()).isNull();
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(span.isCompleted()).isFalse();
         assertThat(span.getDurationNanos()).isNull();
         assertThat(span.getTraceId()).isNotNull();
@@ -175,6 +229,7 @@ public class TracerTest {
     @Test
     public void startRequestWithChildSpan_should_start_valid_child_span_with_parent() {
         // given: no span started and a parent span exists
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         Span parentSpan = Span.generateRootSpanForNewTrace("parentspan", SpanPurpose.LOCAL_ONLY).build();
         assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
         assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isNull();
@@ -182,11 +237,7 @@ public class TracerTest {
         assertThat(getSpanStackSize()).isEqualTo(0);
 
         // when: Tracer.startRequestWithChildSpan(Span, String) is called to start a span with a parent
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Tracer.getInstance().startRequestWithChildSpan(parentSpan, "childspan");
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new span is started that has the given parent and is otherwise valid, and the MDC is updated
         assertThat(getSpanStackSize()).isEqualTo(1);
@@ -194,8 +245,8 @@ public class TracerTest {
         assertThat(span).isNotNull();
         assertThat(span.getSpanName()).isEqualTo("childspan");
         assertThat(span.getParentSpanId()).isEqualTo(parentSpan.getSpanId());
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(span.isCompleted()).isFalse();
         assertThat(span.getDurationNanos()).isNull();
         assertThat(span.getTraceId()).isEqualTo(parentSpan.getTraceId());
@@ -211,6 +262,7 @@ public class TracerTest {
     @Test
     public void startRequestWithChildSpan_should_start_valid_child_span_with_parent_and_user_id() {
         // given: no span started and a parent span exists
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         Span parentSpan = Span.generateRootSpanForNewTrace("parentspan", SpanPurpose.LOCAL_ONLY)
                               .withUserId("testUserId")
                               .build();
@@ -220,11 +272,7 @@ public class TracerTest {
         assertThat(getSpanStackSize()).isEqualTo(0);
 
         // when: Tracer.startRequestWithChildSpan(Span, String) is called to start a span with a parent
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Tracer.getInstance().startRequestWithChildSpan(parentSpan, "childspan");
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new span is started that has the given parent and is otherwise valid, has the expected user ID, and the MDC is updated
         assertThat(getSpanStackSize()).isEqualTo(1);
@@ -232,8 +280,8 @@ public class TracerTest {
         assertThat(span).isNotNull();
         assertThat(span.getSpanName()).isEqualTo("childspan");
         assertThat(span.getParentSpanId()).isEqualTo(parentSpan.getSpanId());
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(span.isCompleted()).isFalse();
         assertThat(span.getDurationNanos()).isNull();
         assertThat(span.getTraceId()).isEqualTo(parentSpan.getTraceId());
@@ -281,6 +329,7 @@ public class TracerTest {
     @Test
     public void startRequestWithSpanInfo_should_start_valid_span_with_given_data(SpanPurpose spanPurpose) {
         // given
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         String traceId = UUID.randomUUID().toString();
         String parentSpanId = UUID.randomUUID().toString();
         String spanName = UUID.randomUUID().toString();
@@ -291,12 +340,8 @@ public class TracerTest {
         assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
 
         // when
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         @SuppressWarnings("ConstantConditions")
         Span span = Tracer.getInstance().startRequestWithSpanInfo(traceId, parentSpanId, spanName, sampleable, userId, spanPurpose);
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then
         assertThat(Tracer.getInstance().getCurrentSpan()).isEqualTo(span);
@@ -310,8 +355,8 @@ public class TracerTest {
         assertThat(span.isSampleable()).isEqualTo(sampleable);
         assertThat(span.getUserId()).isEqualTo(userId);
         assertThat(span.getSpanPurpose()).isEqualTo(spanPurpose);
-        assertThat(span.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(span.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(span.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(span.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(span.isCompleted()).isFalse();
         assertThat(span.getDurationNanos()).isNull();
     }
@@ -325,17 +370,16 @@ public class TracerTest {
     @Test
     public void startSubSpan_should_start_valid_sub_span(SpanPurpose spanPurpose) {
         // given: an already-started span
+        ManualSpanClock clock = new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L);
+        Span.setSpanClock(clock);
         assertThat(getSpanStackSize()).isEqualTo(0);
         Tracer.getInstance().startRequestWithRootSpan("firstspan");
         assertThat(getSpanStackSize()).isEqualTo(1);
         Span firstSpan = Tracer.getInstance().getCurrentSpan();
 
         // when: Tracer.startSubSpan(String) is called to start a subspan
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        clock.advanceNanos(2_500);
         Tracer.getInstance().startSubSpan("subspan", spanPurpose);
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new subspan is started that uses the first span as its parent, and the MDC is updated
         assertThat(getSpanStackSize()).isEqualTo(2);
@@ -343,8 +387,8 @@ public class TracerTest {
         assertThat(subspan).isNotNull();
         assertThat(subspan.getSpanName()).isEqualTo("subspan");
         assertThat(subspan.getParentSpanId()).isEqualTo(firstSpan.getSpanId());
-        assertThat(subspan.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(subspan.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(subspan.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_002L);
+        assertThat(subspan.getSpanStartTimeNanos()).isEqualTo(1_002_500L);
         assertThat(subspan.isCompleted()).isFalse();
         assertThat(subspan.getDurationNanos()).isNull();
         assertThat(subspan.getTraceId()).isNotNull();
@@ -364,16 +408,13 @@ public class TracerTest {
     @Test
     public void startSubSpan_should_function_like_startRequestWithRootSpan_when_there_is_no_parent_span(SpanPurpose spanPurpose) {
         // given: no span started
+        Span.setSpanClock(new ManualSpanClock(1_000_000L, 1_500_000_000_000_000L));
         assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
         assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isNull();
         assertThat(getSpanStackSize()).isEqualTo(0);
 
         // when: Tracer.startSubSpan(String) is called to start a subspan
-        long beforeNanoTime = System.nanoTime();
-        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         Tracer.getInstance().startSubSpan("subspan", spanPurpose);
-        long afterNanoTime = System.nanoTime();
-        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
 
         // then: a new span is started even though there was no parent, and the MDC is updated.
         assertThat(getSpanStackSize()).isEqualTo(1);
@@ -381,8 +422,8 @@ public class TracerTest {
         assertThat(subspan).isNotNull();
         assertThat(subspan.getSpanName()).isEqualTo("subspan");
         assertThat(subspan.getParentSpanId()).isNull();
-        assertThat(subspan.getSpanStartTimeEpochMicros()).isBetween(beforeEpochMicros, afterEpochMicros);
-        assertThat(subspan.getSpanStartTimeNanos()).isBetween(beforeNanoTime, afterNanoTime);
+        assertThat(subspan.getSpanStartTimeEpochMicros()).isEqualTo(1_500_000_000_000_000L);
+        assertThat(subspan.getSpanStartTimeNanos()).isEqualTo(1_000_000L);
         assertThat(subspan.isCompleted()).isFalse();
         assertThat(subspan.getDurationNanos()).isNull();
         assertThat(subspan.getTraceId()).isNotNull();
@@ -783,6 +824,95 @@ public class TracerTest {
         verify(mockStrategy).isNextRootSpanSampleable();
     }
 
+    private enum RootSpanStarter {
+        START_REQUEST_WITH_ROOT_SPAN {
+            @Override
+            Span startRootSpan(String spanName) {
+                return Tracer.getInstance().startRequestWithRootSpan(spanName);
+            }
+        },
+        START_SUB_SPAN_WITHOUT_PARENT {
+            @Override
+            Span startRootSpan(String spanName) {
+                return Tracer.getInstance().startSubSpan(spanName, SpanPurpose.LOCAL_ONLY);
+            }
+        },
+        START_SPAN_IN_CURRENT_CONTEXT {
+            @Override
+            Span startRootSpan(String spanName) {
+                return Tracer.getInstance().startSpanInCurrentContext(spanName, SpanPurpose.LOCAL_ONLY);
+            }
+        };
+
+        abstract Span startRootSpan(String spanName);
+    }
+
+    @DataProvider(value = {
+        "START_REQUEST_WITH_ROOT_SPAN   |   true",
+        "START_REQUEST_WITH_ROOT_SPAN   |   false",
+        "START_SUB_SPAN_WITHOUT_PARENT  |   true",
+        "START_SUB_SPAN_WITHOUT_PARENT  |   false",
+        "START_SPAN_IN_CURRENT_CONTEXT  |   true",
+        "START_SPAN_IN_CURRENT_CONTEXT  |   false"
+    }, splitBy = "\\|")
+    @Test
+    public void root_spans_pass_generated_trace_id_and_span_name_to_trace_aware_strategy(
+        RootSpanStarter starter, boolean strategyResult
+    ) {
+        // given
+        TraceAwareRootSpanSamplingStrategy mockStrategy = mock(TraceAwareRootSpanSamplingStrategy.class);
+        doReturn(strategyResult).when(mockStrategy).isRootSpanSampleable(anyLong(), anyString());
+        Tracer.getInstance().setRootSpanSamplingStrategy(mockStrategy);
+
+        // when
+        Span span = starter.startRootSpan("someSpan");
+
+        // then
+        assertThat(span.isSampleable()).isEqualTo(strategyResult);
+        verify(mockStrategy).isRootSpanSampleable(span.getTraceIdLowBits(), "someSpan");
+        verify(mockStrategy, never()).isNextRootSpanSampleable();
+    }
+
+    @DataProvider(value = {
+        "START_REQUEST_WITH_ROOT_SPAN",
+        "START_SUB_SPAN_WITHOUT_PARENT",
+        "START_SPAN_IN_CURRENT_CONTEXT"
+    }, splitBy = "\\|")
+    @Test
+    public void root_spans_use_isNextRootSpanSampleable_for_non_trace_aware_strategy(RootSpanStarter starter) {
+        // given
+        RootSpanSamplingStrategy mockStrategy = mock(RootSpanSamplingStrategy.class);
+        doReturn(false).when(mockStrategy).isNextRootSpanSampleable();
+        Tracer.getInstance().setRootSpanSamplingStrategy(mockStrategy);
+
+        // when
+        Span span = starter.startRootSpan("someSpan");
+
+        // then
+        assertThat(span.isSampleable()).isFalse();
+        verify(mockStrategy).isNextRootSpanSampleable();
+    }
+
+    @Test
+    public void root_spans_pass_low_bits_of_128_bit_trace_ids_to_trace_aware_strategy() {
+        // given
+        TraceAwareRootSpanSamplingStrategy mockStrategy = mock(TraceAwareRootSpanSamplingStrategy.class);
+        Tracer.getInstance().setRootSpanSamplingStrategy(mockStrategy);
+        TraceAndSpanIdGenerator.setGenerate128BitTraceIds(true);
+
+        try {
+            // when
+            Span span = Tracer.getInstance().startRequestWithRootSpan("someSpan");
+
+            // then
+            assertThat(span.is128BitTraceId()).isTrue();
+            verify(mockStrategy).isRootSpanSampleable(span.getTraceIdLowBits(), "someSpan");
+        }
+        finally {
+            TraceAndSpanIdGenerator.setGenerate128BitTraceIds(false);
+        }
+    }
+
     @Test
     public void addSpanLifecycleListener_should_work_as_advertised() {
         // given
@@ -864,6 +994,293 @@ public class TracerTest {
         assertThat(caughtEx).isInstanceOf(UnsupportedOperationException.class);
     }
 
+    @Test
+    public void listener_exceptions_are_contained_and_do_not_stop_other_listeners() {
+        // given
+        SpanLifecycleListener badListener = mock(SpanLifecycleListener.class);
+        SpanLifecycleListener goodListener = mock(SpanLifecycleListener.class);
+        RuntimeException listenerEx = new RuntimeException("intentional test exception");
+        doThrow(listenerEx).when(badListener).spanStarted(any(Span.class));
+        doThrow(listenerEx).when(badListener).spanSampled(any(Span.class));
+        doThrow(listenerEx).when(badListener).spanCompleted(any(Span.class));
+        Tracer tracer = Tracer.getInstance();
+        tracer.addSpanLifecycleListener(badListener);
+        tracer.addSpanLifecycleListener(goodListener);
+
+        // when
+        Span span = tracer.startRequestWithRootSpan("newspan");
+        tracer.completeRequestSpan();
+
+        // then
+        verify(goodListener).spanStarted(span);
+        verify(goodListener).spanSampled(span);
+        verify(goodListener).spanCompleted(span);
+        assertThat(span.isCompleted()).isTrue();
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).isEmpty();
+    }
+
+    @Test
+    public void listener_isolation_defaults_are_as_expected() {
+        // expect
+        assertThat(Tracer.getInstance().getSpanLifecycleListenerLatencyBudgetNanos()).isEqualTo(0);
+        assertThat(Tracer.getInstance().getSpanLifecycleListenerQuarantineThreshold())
+            .isEqualTo(Tracer.DEFAULT_LISTENER_QUARANTINE_THRESHOLD);
+        assertThat(Tracer.getInstance().getSpanLifecycleListenerQuarantineAction()).isEqualTo(ListenerQuarantineAction.DISABLE);
+    }
+
+    @Test
+    public void setSpanLifecycleListenerLatencyBudget_converts_to_nanos() {
+        // when
+        Tracer.getInstance().setSpanLifecycleListenerLatencyBudget(5, TimeUnit.MILLISECONDS);
+
+        // then
+        assertThat(Tracer.getInstance().getSpanLifecycleListenerLatencyBudgetNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSpanLifecycleListenerLatencyBudget_throws_IllegalArgumentException_if_passed_negative_budget() {
+        // expect
+        Tracer.getInstance().setSpanLifecycleListenerLatencyBudget(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSpanLifecycleListenerLatencyBudget_throws_IllegalArgumentException_if_passed_null_timeUnit() {
+        // expect
+        Tracer.getInstance().setSpanLifecycleListenerLatencyBudget(1, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSpanLifecycleListenerQuarantineThreshold_throws_IllegalArgumentException_if_passed_zero() {
+        // expect
+        Tracer.getInstance().setSpanLifecycleListenerQuarantineThreshold(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSpanLifecycleListenerQuarantineAction_throws_IllegalArgumentException_if_passed_null() {
+        // expect
+        Tracer.getInstance().setSpanLifecycleListenerQuarantineAction(null);
+    }
+
+    @Test
+    public void listeners_within_latency_budget_are_never_quarantined() {
+        // given
+        CountingListener listener = new CountingListener(0);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(1, TimeUnit.MINUTES);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(1);
+        tracer.addSpanLifecycleListener(listener);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            tracer.startRequestWithRootSpan("span-" + i);
+            tracer.completeRequestSpan();
+        }
+
+        // then
+        assertThat(listener.startedCount.get()).isEqualTo(10);
+        assertThat(listener.completedCount.get()).isEqualTo(10);
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).isEmpty();
+    }
+
+    @Test
+    public void slow_listener_is_disabled_after_going_over_budget_threshold_times_in_a_row() {
+        // given
+        CountingListener slowListener = new CountingListener(2);
+        CountingListener fastListener = new CountingListener(0);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(500, TimeUnit.MICROSECONDS);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(3);
+        tracer.addSpanLifecycleListener(slowListener);
+        tracer.addSpanLifecycleListener(fastListener);
+
+        // when
+        // Started, sampled, and completed are three over-budget notifications in a row.
+        tracer.startRequestWithRootSpan("first");
+        tracer.completeRequestSpan();
+        tracer.startRequestWithRootSpan("second");
+        tracer.completeRequestSpan();
+
+        // then
+        assertThat(slowListener.startedCount.get()).isEqualTo(1);
+        assertThat(slowListener.sampledCount.get()).isEqualTo(1);
+        assertThat(slowListener.completedCount.get()).isEqualTo(1);
+        assertThat(fastListener.completedCount.get()).isEqualTo(2);
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).containsExactly(slowListener);
+        assertThat(tracer.getSpanLifecycleListeners()).containsExactly(slowListener, fastListener);
+    }
+
+    @Test
+    public void removing_and_re_adding_a_quarantined_listener_reinstates_it() {
+        // given
+        CountingListener slowListener = new CountingListener(2);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(500, TimeUnit.MICROSECONDS);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(1);
+        tracer.addSpanLifecycleListener(slowListener);
+        tracer.startRequestWithRootSpan("first");
+        tracer.completeRequestSpan();
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).containsExactly(slowListener);
+
+        // when
+        tracer.removeSpanLifecycleListener(slowListener);
+        tracer.addSpanLifecycleListener(slowListener);
+        tracer.startRequestWithRootSpan("second");
+
+        // then
+        assertThat(slowListener.startedCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void slow_listener_is_moved_to_async_dispatch_when_quarantine_action_is_ASYNC() throws InterruptedException {
+        // given
+        CountingListener slowListener = new CountingListener(2);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(500, TimeUnit.MICROSECONDS);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(2);
+        tracer.setSpanLifecycleListenerQuarantineAction(ListenerQuarantineAction.ASYNC);
+        tracer.addSpanLifecycleListener(slowListener);
+
+        // Started and sampled go over budget, which quarantines the listener before the span completes.
+        tracer.startRequestWithRootSpan("first");
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).containsExactly(slowListener);
+
+        // when
+        tracer.completeRequestSpan();
+
+        // then
+        assertThat(slowListener.completedLatch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(slowListener.completedOnThread).isNotSameAs(Thread.currentThread());
+        assertThat(slowListener.completedOnThread.getName()).isEqualTo(AsyncSpanLifecycleListener.DISPATCHER_THREAD_NAME);
+        assertThat(tracer.getSpanLifecycleListeners()).containsExactly(slowListener);
+    }
+
+    @Test
+    public void async_quarantined_listener_that_stays_over_budget_is_disabled() {
+        // given
+        CountingListener slowListener = new CountingListener(2);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(500, TimeUnit.MICROSECONDS);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(1);
+        tracer.setSpanLifecycleListenerQuarantineAction(ListenerQuarantineAction.ASYNC);
+        tracer.addSpanLifecycleListener(slowListener);
+
+        // when
+        // spanStarted is still delivered inline after the move to async, so it goes over budget again.
+        tracer.startRequestWithRootSpan("first");
+
+        // then
+        assertThat(slowListener.startedCount.get()).isEqualTo(1);
+        assertThat(slowListener.sampledCount.get()).isEqualTo(1);
+        tracer.startRequestWithRootSpan("second");
+        assertThat(slowListener.startedCount.get()).isEqualTo(1);
+        assertThat(tracer.getQuarantinedSpanLifecycleListeners()).containsExactly(slowListener);
+    }
+
+    @Test
+    public void async_listeners_are_disabled_rather_than_wrapped_again() {
+        // given
+        CountingListener slowListener = new CountingListener(2);
+        AsyncSpanLifecycleListener asyncListener = new AsyncSpanLifecycleListener(slowListener);
+        Tracer tracer = Tracer.getInstance();
+        tracer.setSpanLifecycleListenerLatencyBudget(500, TimeUnit.MICROSECONDS);
+        tracer.setSpanLifecycleListenerQuarantineThreshold(1);
+        tracer.setSpanLifecycleListenerQuarantineAction(ListenerQuarantineAction.ASYNC);
+        tracer.addSpanLifecycleListener(asyncListener);
+
+        try {
+            // when
+            tracer.startRequestWithRootSpan("first");
+
+            // then
+            assertThat(slowListener.startedCount.get()).isEqualTo(1);
+            assertThat(slowListener.sampledCount.get()).isEqualTo(0);
+        }
+        finally {
+            asyncListener.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrent_listener_registration_does_not_lose_listeners() throws InterruptedException {
+        // given
+        final Tracer tracer = Tracer.getInstance();
+        final int numThreads = 8;
+        final int listenersPerThread = 50;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int j = 0; j < listenersPerThread; j++) {
+                    tracer.addSpanLifecycleListener(new CountingListener(0));
+                    tracer.startRequestWithRootSpan("span");
+                    tracer.completeRequestSpan();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // when
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertThat(tracer.getSpanLifecycleListeners()).hasSize(numThreads * listenersPerThread);
+    }
+
+    private static class CountingListener implements SpanLifecycleListener {
+        final long sleepMillis;
+        final AtomicInteger startedCount = new AtomicInteger(0);
+        final AtomicInteger sampledCount = new AtomicInteger(0);
+        final AtomicInteger completedCount = new AtomicInteger(0);
+        final CountDownLatch completedLatch = new CountDownLatch(1);
+        volatile Thread completedOnThread;
+
+        CountingListener(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        private void sleep() {
+            if (sleepMillis <= 0)
+                return;
+
+            try {
+                Thread.sleep(sleepMillis);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void spanStarted(Span span) {
+            startedCount.incrementAndGet();
+            sleep();
+        }
+
+        @Override
+        public void spanSampled(Span span) {
+            sampledCount.incrementAndGet();
+            sleep();
+        }
+
+        @Override
+        public void spanCompleted(Span span) {
+            completedCount.incrementAndGet();
+            completedOnThread = Thread.currentThread();
+            completedLatch.countDown();
+            sleep();
+        }
+    }
+
     @Test
     public void spanLifecycleListener_spanStarted_is_called_when_new_request_span_is_started() {
         // given
@@ -1274,6 +1691,68 @@ public class TracerTest {
         assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
     }
 
+    @Test
+    public void getCurrentSpanStackCopy_returns_copy_on_write_snapshot_that_does_not_affect_Tracer_stack() {
+        // given
+        Tracer tracer = Tracer.getInstance();
+        Span rootSpan = tracer.startRequestWithRootSpan("foo");
+        Span subspan = tracer.startSubSpan("bar", SpanPurpose.LOCAL_ONLY);
+
+        // when
+        Deque<Span> copy = tracer.getCurrentSpanStackCopy();
+
+        // then
+        assertThat(copy).isInstanceOf(SpanStack.class);
+        assertThat(copy).isNotSameAs(getSpanStackFromTracer());
+        assertThat(copy).containsExactly(subspan, rootSpan);
+
+        // and when
+        copy.pop();
+        Span subspan2 = tracer.startSubSpan("baz", SpanPurpose.LOCAL_ONLY);
+
+        // then
+        assertThat(copy).containsExactly(rootSpan);
+        assertThat(getSpanStackFromTracer()).containsExactly(subspan2, subspan, rootSpan);
+    }
+
+    @Test
+    public void completeRequestSpan_recycles_span_stack_for_next_request_on_same_thread() {
+        // given
+        Tracer tracer = Tracer.getInstance();
+        tracer.startRequestWithRootSpan("first");
+        Deque<Span> firstStack = getSpanStackFromTracer();
+        Deque<Span> snapshotOfFirstStack = tracer.getCurrentSpanStackCopy();
+
+        // when
+        tracer.completeRequestSpan();
+        Span secondRootSpan = tracer.startRequestWithRootSpan("second");
+
+        // then
+        assertThat(getSpanStackFromTracer()).isSameAs(firstStack);
+        assertThat(getSpanStackFromTracer()).containsExactly(secondRootSpan);
+        assertThat(snapshotOfFirstStack).hasSize(1);
+        assertThat(snapshotOfFirstStack.peek()).isNotEqualTo(secondRootSpan);
+    }
+
+    @Test
+    public void registerWithThread_registers_snapshot_of_SpanStack_without_copying_spans() {
+        // given
+        Tracer tracer = Tracer.getInstance();
+        tracer.startRequestWithRootSpan("foo");
+        tracer.startSubSpan("bar", SpanPurpose.LOCAL_ONLY);
+        SpanStack original = (SpanStack) tracer.unregisterFromThread();
+
+        // when
+        tracer.registerWithThread(original);
+
+        // then
+        SpanStack registered = (SpanStack) getSpanStackFromTracer();
+        assertThat(registered).isNotSameAs(original);
+        assertThat(registered).isEqualTo(original);
+        assertThat(Whitebox.getInternalState(registered, "elements"))
+            .isSameAs(Whitebox.getInternalState(original, "elements"));
+    }
+
     @DataProvider
     public static Object[][] dataProviderForContainsSameSpansInSameOrder() {
         Span spanA = Span.newBuilder("span-A", SpanPurpose.LOCAL_ONLY).withTraceId("A").build();
@@ -1540,12 +2019,422 @@ public class TracerTest {
         assertThat(serializedString).isEqualTo(expectedOutput);
     }
 
+    @DataProvider(value = {
+        "JSON",
+        "KEY_VALUE"
+    }, splitBy = "\\|")
+    @Test
+    public void SpanLogMessageArg_serializes_with_the_representation_it_was_created_with(Tracer.SpanLoggingRepresentation representation) {
+        // given
+        Span span = Span.generateRootSpanForNewTrace(UUID.randomUUID().toString(), SpanPurpose.LOCAL_ONLY).build();
+        String expectedOutput = (representation == Tracer.SpanLoggingRepresentation.JSON) ? span.toJSON() : span.toKeyValueString();
+        Tracer.SpanLogMessageArg arg = new Tracer.SpanLogMessageArg(Tracer.getInstance(), span, representation);
+        // Changing the Tracer's representation after the arg is created should not affect the arg.
+        Tracer.getInstance().setSpanLoggingRepresentation(
+            (representation == Tracer.SpanLoggingRepresentation.JSON) ? Tracer.SpanLoggingRepresentation.KEY_VALUE : Tracer.SpanLoggingRepresentation.JSON
+        );
+        StringBuilder sb = new StringBuilder();
+
+        // when
+        String toStringResult = arg.toString();
+        StringBuilder appendToResult = arg.appendTo(sb);
+
+        // then
+        assertThat(arg.getSpan()).isSameAs(span);
+        assertThat(arg.getRepresentation()).isEqualTo(representation);
+        assertThat(toStringResult).isEqualTo(expectedOutput);
+        assertThat(appendToResult).isSameAs(sb);
+        assertThat(sb.toString()).isEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void completeAndLogSpan_does_not_serialize_span_when_span_logger_is_disabled() {
+        // given
+        ch.qos.logback.classic.Logger validSpanLogger =
+            (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("VALID_WINGTIPS_SPANS");
+        ch.qos.logback.classic.Level origLevel = validSpanLogger.getLevel();
+        validSpanLogger.setLevel(ch.qos.logback.classic.Level.OFF);
+        try {
+            Span span = Span.newBuilder("foo", SpanPurpose.LOCAL_ONLY).build();
+
+            // when
+            Tracer.getInstance().completeAndLogSpan(span, false);
+
+            // then
+            assertThat(span.isCompleted()).isTrue();
+            assertThat(Whitebox.getInternalState(span, "cachedJsonRepresentation")).isNull();
+            assertThat(Whitebox.getInternalState(span, "traceId")).isNull();
+        }
+        finally {
+            validSpanLogger.setLevel(origLevel);
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void setSpanLoggingRepresentation_blows_up_if_spanLoggingRepresentation_is_null() {
         // expect
         Tracer.getInstance().setSpanLoggingRepresentation(null);
     }
 
+    @Test
+    public void getMdcPopulationMode_defaults_to_TRACE_ID_AND_SPAN_JSON() {
+        // expect
+        assertThat(Tracer.getInstance().getMdcPopulationMode()).isEqualTo(Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_JSON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMdcPopulationMode_blows_up_if_mdcPopulationMode_is_null() {
+        // expect
+        Tracer.getInstance().setMdcPopulationMode(null);
+    }
+
+    @DataProvider(value = {
+        "TRACE_ID_AND_SPAN_JSON",
+        "TRACE_ID_AND_SPAN_ID",
+        "TRACE_ID_ONLY"
+    }, splitBy = "\\|")
+    @Test
+    public void configureMDC_populates_MDC_based_on_MdcPopulationMode(Tracer.MdcPopulationMode mode) {
+        // given
+        Tracer.getInstance().setMdcPopulationMode(mode);
+        Span span = Span.newBuilder("test-span", SpanPurpose.LOCAL_ONLY).build();
+
+        // when
+        Tracer.configureMDC(span);
+
+        // then
+        assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isEqualTo(span.getTraceId());
+        assertThat(MDC.get(Tracer.SPAN_ID_MDC_KEY))
+            .isEqualTo((mode == Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_ID) ? span.getSpanId() : null);
+        if (mode == Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_JSON) {
+            assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isEqualTo(span.toJSON());
+        }
+        else {
+            assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
+            assertThat(Whitebox.getInternalState(span, "cachedJsonRepresentation")).isNull();
+        }
+    }
+
+    @Test
+    public void configureMDC_removes_keys_left_over_from_a_previous_MdcPopulationMode() {
+        // given
+        Span span = Span.newBuilder("test-span", SpanPurpose.LOCAL_ONLY).build();
+        Tracer.getInstance().setMdcPopulationMode(Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_JSON);
+        Tracer.configureMDC(span);
+        Tracer.getInstance().setMdcPopulationMode(Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_ID);
+        Tracer.configureMDC(span);
+        assertThat(MDC.get(Tracer.SPAN_ID_MDC_KEY)).isEqualTo(span.getSpanId());
+        Tracer.getInstance().setMdcPopulationMode(Tracer.MdcPopulationMode.TRACE_ID_ONLY);
+
+        // when
+        Tracer.configureMDC(span);
+
+        // then
+        assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isEqualTo(span.getTraceId());
+        assertThat(MDC.get(Tracer.SPAN_ID_MDC_KEY)).isNull();
+        assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
+    }
+
+    @Test
+    public void sub_spans_do_not_serialize_json_when_MdcPopulationMode_is_TRACE_ID_AND_SPAN_ID() {
+        // given
+        ch.qos.logback.classic.Logger tracerLogger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Tracer.class);
+        ch.qos.logback.classic.Level origLevel = tracerLogger.getLevel();
+        // Tracer's debug logging of started spans would otherwise serialize them.
+        tracerLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        try {
+            Tracer.getInstance().setMdcPopulationMode(Tracer.MdcPopulationMode.TRACE_ID_AND_SPAN_ID);
+            Span rootSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+
+            // when
+            Span subSpan = Tracer.getInstance().startSubSpan("sub", SpanPurpose.LOCAL_ONLY);
+            String subSpanIdInMdc = MDC.get(Tracer.SPAN_ID_MDC_KEY);
+            Tracer.getInstance().completeSubSpan();
+
+            // then
+            assertThat(subSpanIdInMdc).isEqualTo(subSpan.getSpanId());
+            assertThat(MDC.get(Tracer.SPAN_ID_MDC_KEY)).isEqualTo(rootSpan.getSpanId());
+            assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
+            assertThat(Whitebox.getInternalState(rootSpan, "cachedJsonRepresentation")).isNull();
+        }
+        finally {
+            tracerLogger.setLevel(origLevel);
+        }
+    }
+
+    @Test
+    public void getUnsampledSpanMode_defaults_to_FULL() {
+        // expect
+        assertThat(Tracer.getInstance().getUnsampledSpanMode()).isEqualTo(Tracer.UnsampledSpanMode.FULL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setUnsampledSpanMode_blows_up_if_unsampledSpanMode_is_null() {
+        // expect
+        Tracer.getInstance().setUnsampledSpanMode(null);
+    }
+
+    @DataProvider(value = {
+        "true   |   FULL",
+        "false  |   FULL",
+        "true   |   LIGHTWEIGHT",
+        "false  |   LIGHTWEIGHT"
+    }, splitBy = "\\|")
+    @Test
+    public void isCurrentSpanLightweight_is_only_true_for_unsampled_spans_in_LIGHTWEIGHT_mode(
+        boolean sampleable, Tracer.UnsampledSpanMode mode
+    ) {
+        // given
+        Tracer.getInstance().setUnsampledSpanMode(mode);
+        assertThat(Tracer.getInstance().isCurrentSpanLightweight()).isFalse();
+        Tracer.getInstance().startRequestWithSpanInfo(
+            TraceAndSpanIdGenerator.generateId(), null, "root", sampleable, null, SpanPurpose.SERVER
+        );
+
+        // when
+        boolean result = Tracer.getInstance().isCurrentSpanLightweight();
+
+        // then
+        assertThat(result).isEqualTo(!sampleable && mode == Tracer.UnsampledSpanMode.LIGHTWEIGHT);
+    }
+
+    @Test
+    public void startSubSpan_reuses_the_unsampled_parent_in_LIGHTWEIGHT_mode() {
+        // given
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.LIGHTWEIGHT);
+        SpanLifecycleListener listener = mock(SpanLifecycleListener.class);
+        Tracer.getInstance().addSpanLifecycleListener(listener);
+        Span rootSpan = Tracer.getInstance().startRequestWithSpanInfo(
+            TraceAndSpanIdGenerator.generateId(), null, "root", false, null, SpanPurpose.SERVER
+        );
+
+        // when
+        Span subSpan = Tracer.getInstance().startSubSpan("sub", SpanPurpose.CLIENT);
+
+        // then
+        assertThat(subSpan).isSameAs(rootSpan);
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(2);
+        assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isEqualTo(rootSpan.getTraceId());
+        assertThat(MDC.get(Tracer.SPAN_ID_MDC_KEY)).isEqualTo(rootSpan.getSpanId());
+        assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
+        assertThat(Whitebox.getInternalState(rootSpan, "cachedJsonRepresentation")).isNull();
+
+        // and when
+        subSpan.close();
+
+        // then
+        assertThat(rootSpan.isCompleted()).isFalse();
+        assertThat(Tracer.getInstance().getCurrentSpan()).isSameAs(rootSpan);
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(1);
+
+        // and when
+        rootSpan.close();
+
+        // then
+        assertThat(rootSpan.isCompleted()).isTrue();
+        assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void completeRequestSpan_completes_unsampled_root_span_once_when_LIGHTWEIGHT_sub_span_was_left_open() {
+        // given
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.LIGHTWEIGHT);
+        Span rootSpan = Tracer.getInstance().startRequestWithSpanInfo(
+            TraceAndSpanIdGenerator.generateId(), null, "root", false, null, SpanPurpose.SERVER
+        );
+        Tracer.getInstance().startSubSpan("sub", SpanPurpose.CLIENT);
+        // Switch back to FULL so the listener sees every completeAndLogSpan() call.
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.FULL);
+        SpanLifecycleListener listener = mock(SpanLifecycleListener.class);
+        Tracer.getInstance().addSpanLifecycleListener(listener);
+
+        // when
+        Tracer.getInstance().completeRequestSpan();
+
+        // then
+        assertThat(rootSpan.isCompleted()).isTrue();
+        assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
+        verify(listener, times(1)).spanCompleted(rootSpan);
+    }
+
+    @Test
+    public void sampled_spans_are_unaffected_by_LIGHTWEIGHT_mode() {
+        // given
+        Tracer.getInstance().setUnsampledSpanMode(Tracer.UnsampledSpanMode.LIGHTWEIGHT);
+        SpanLifecycleListener listener = mock(SpanLifecycleListener.class);
+        Tracer.getInstance().addSpanLifecycleListener(listener);
+        Span rootSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+
+        // when
+        Span subSpan = Tracer.getInstance().startSubSpan("sub", SpanPurpose.CLIENT);
+        String spanJsonInMdc = MDC.get(Tracer.SPAN_JSON_MDC_KEY);
+        Tracer.getInstance().completeSubSpan();
+        Tracer.getInstance().completeRequestSpan();
+
+        // then
+        assertThat(subSpan).isNotSameAs(rootSpan);
+        assertThat(subSpan.getParentSpanId()).isEqualTo(rootSpan.getSpanId());
+        assertThat(spanJsonInMdc).contains(subSpan.getSpanId());
+        verify(listener).spanStarted(rootSpan);
+        verify(listener).spanStarted(subSpan);
+        verify(listener).spanCompleted(subSpan);
+        verify(listener).spanCompleted(rootSpan);
+    }
+
+    @Test
+    public void getContextStorage_defaults_to_ThreadLocalContextStorage() {
+        // expect
+        assertThat(DEFAULT_CONTEXT_STORAGE).isInstanceOf(ThreadLocalContextStorage.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setContextStorage_blows_up_if_contextStorage_is_null() {
+        // expect
+        Tracer.getInstance().setContextStorage(null);
+    }
+
+    enum ContextStorageScenario {
+        THREAD_LOCAL(new ThreadLocalContextStorage(), false),
+        THREAD_FIELD_ON_TRACER_CONTEXT_THREAD(new ThreadFieldContextStorage(), true),
+        THREAD_FIELD_ON_OTHER_THREAD(new ThreadFieldContextStorage(), false),
+        INHERITABLE_THREAD_LOCAL(new InheritableThreadLocalContextStorage(), false);
+
+        final TracerContextStorage storage;
+        final boolean useTracerContextThread;
+
+        ContextStorageScenario(TracerContextStorage storage, boolean useTracerContextThread) {
+            this.storage = storage;
+            this.useTracerContextThread = useTracerContextThread;
+        }
+    }
+
+    @DataProvider(value = {
+        "THREAD_LOCAL",
+        "THREAD_FIELD_ON_TRACER_CONTEXT_THREAD",
+        "THREAD_FIELD_ON_OTHER_THREAD",
+        "INHERITABLE_THREAD_LOCAL"
+    })
+    @Test
+    public void span_lifecycle_works_with_any_context_storage(ContextStorageScenario scenario) throws InterruptedException {
+        // given
+        Tracer.getInstance().setContextStorage(scenario.storage);
+        final List<Span> spansSeen = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+        Runnable work = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Tracer tracer = Tracer.getInstance();
+                    Span rootSpan = tracer.startRequestWithRootSpan("root");
+                    Span subSpan = tracer.startSubSpan("sub", SpanPurpose.LOCAL_ONLY);
+                    spansSeen.add(tracer.getCurrentSpan());
+                    spansSeen.add(tracer.getCurrentSpanStackCopy().peekLast());
+                    tracer.completeSubSpan();
+                    spansSeen.add(tracer.getCurrentSpan());
+                    tracer.completeRequestSpan();
+                    spansSeen.add(tracer.getCurrentSpan());
+                    spansSeen.add(subSpan);
+                    spansSeen.add(rootSpan);
+                }
+                catch (Throwable t) {
+                    errors.add(t);
+                }
+            }
+        };
+        Thread thread = (scenario.useTracerContextThread) ? new TracerContextThread(work) : new Thread(work);
+
+        // when
+        thread.start();
+        thread.join();
+
+        // then
+        assertThat(errors).isEmpty();
+        Span subSpan = spansSeen.get(4);
+        Span rootSpan = spansSeen.get(5);
+        assertThat(spansSeen.get(0)).isSameAs(subSpan);
+        assertThat(spansSeen.get(1)).isSameAs(rootSpan);
+        assertThat(spansSeen.get(2)).isSameAs(rootSpan);
+        assertThat(spansSeen.get(3)).isNull();
+        assertThat(subSpan.isCompleted()).isTrue();
+        assertThat(rootSpan.isCompleted()).isTrue();
+        // The test thread's own context is untouched.
+        assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
+    }
+
+    @Test
+    public void publishing_context_publishes_a_snapshot_every_time_the_span_stack_changes() {
+        // given
+        final Tracer.SpanStackThreadContext publishingContext = new Tracer.SpanStackThreadContext(true);
+        Tracer.getInstance().setContextStorage(new TracerContextStorage() {
+            @Override
+            public Tracer.SpanStackThreadContext get() {
+                return publishingContext;
+            }
+        });
+        Tracer tracer = Tracer.getInstance();
+
+        // when
+        Span rootSpan = tracer.startRequestWithRootSpan("root");
+        Deque<Span> afterRoot = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+        Span subSpan = tracer.startSubSpan("sub", SpanPurpose.LOCAL_ONLY);
+        Deque<Span> afterSubSpan = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+        tracer.completeSubSpan();
+        Deque<Span> afterCompleteSubSpan = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+        Deque<Span> unregistered = tracer.unregisterFromThread();
+        Deque<Span> afterUnregister = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+        tracer.registerWithThread(unregistered);
+        Deque<Span> afterRegister = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+        tracer.completeRequestSpan();
+        Deque<Span> afterCompleteRequest = publishingContext.copyPublishedSpanStackForNewThread().spanStack;
+
+        // then
+        assertThat(afterRoot).containsExactly(rootSpan);
+        assertThat(afterSubSpan).containsExactly(subSpan, rootSpan);
+        assertThat(afterCompleteSubSpan).containsExactly(rootSpan);
+        assertThat(afterUnregister).isNull();
+        assertThat(afterRegister).containsExactly(rootSpan);
+        assertThat(afterCompleteRequest).isNull();
+    }
+
+    @Test
+    public void copyPublishedSpanStackForNewThread_is_not_affected_by_later_changes_on_either_side() {
+        // given
+        final Tracer.SpanStackThreadContext publishingContext = new Tracer.SpanStackThreadContext(true);
+        Tracer.getInstance().setContextStorage(new TracerContextStorage() {
+            @Override
+            public Tracer.SpanStackThreadContext get() {
+                return publishingContext;
+            }
+        });
+        Span rootSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+
+        // when
+        Tracer.SpanStackThreadContext copy = publishingContext.copyPublishedSpanStackForNewThread();
+        Span ownerSubSpan = Tracer.getInstance().startSubSpan("owner-sub", SpanPurpose.LOCAL_ONLY);
+        copy.spanStack.push(Span.generateRootSpanForNewTrace("copy-span", SpanPurpose.LOCAL_ONLY).build());
+
+        // then
+        assertThat(copy.spanStack).hasSize(2).doesNotContain(ownerSubSpan).endsWith(rootSpan);
+        assertThat(Tracer.getInstance().getCurrentSpanStackCopy()).containsExactly(ownerSubSpan, rootSpan);
+        Tracer.getInstance().completeSubSpan();
+    }
+
+    @Test
+    public void contexts_do_not_publish_their_span_stack_by_default() {
+        // given
+        Tracer.SpanStackThreadContext context = new Tracer.SpanStackThreadContext();
+        Span rootSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+        context.spanStack = Tracer.getInstance().getCurrentSpanStackCopy();
+
+        // when
+        context.spanStackChanged();
+
+        // then
+        assertThat(context.copyPublishedSpanStackForNewThread().spanStack).isNull();
+        assertThat(context.copyForNewThread().spanStack).containsExactly(rootSpan);
+    }
+
     @Test
     public void handleSpanCloseMethod_completes_the_span_as_expected_overall_request_span() {
         // given
@@ -1749,6 +2638,9 @@ public class TracerTest {
         for (Tracer.SpanLoggingRepresentation option : Tracer.SpanLoggingRepresentation.values()) {
             assertThat(Tracer.SpanLoggingRepresentation.valueOf(option.name())).isEqualTo(option);
         }
+        for (ListenerQuarantineAction option : ListenerQuarantineAction.values()) {
+            assertThat(ListenerQuarantineAction.valueOf(option.name())).isEqualTo(option);
+        }
     }
 
 }
@@ -0,0 +1,185 @@
+package com.nike.wingtips.clock;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link CalibratedSpanClock}.
+ */
+@RunWith(DataProviderRunner.class)
+public class CalibratedSpanClockTest {
+
+    private static final long RECALIBRATION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void default_constructor_uses_default_recalibration_interval() {
+        // expect
+        assertThat(new CalibratedSpanClock().recalibrationIntervalNanos)
+            .isEqualTo(CalibratedSpanClock.DEFAULT_RECALIBRATION_INTERVAL_NANOS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_throws_IllegalArgumentException_if_recalibration_interval_is_not_positive() {
+        // expect
+        new CalibratedSpanClock(0);
+    }
+
+    @Test
+    public void real_clock_stays_within_a_millisecond_of_the_wall_clock() {
+        // given
+        CalibratedSpanClock clock = new CalibratedSpanClock();
+        long toleranceMicros = 1000 + TimeUnit.NANOSECONDS.toMicros(CalibratedSpanClock.MAX_READ_SKEW_NANOS);
+
+        // when
+        long beforeEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        long epochMicros = clock.toEpochMicros(clock.nanoTime());
+        long afterEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+        // then
+        assertThat(epochMicros).isBetween(beforeEpochMicros - toleranceMicros, afterEpochMicros + toleranceMicros);
+    }
+
+    @Test
+    public void first_calibration_anchors_to_the_start_of_the_next_wall_clock_millisecond() {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.millisReadsUntilTick = 3;
+
+        // when
+        long epochMicros = clock.toEpochMicros(2_500);
+
+        // then
+        // The wall clock ticked to 1001ms on the third read, right after nanoTime read 500.
+        assertThat(epochMicros).isEqualTo(1_001_002L);
+    }
+
+    @Test
+    public void first_calibration_gives_up_waiting_if_the_wall_clock_does_not_tick() {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.nanosPerRead = 100_000;
+
+        // when
+        long epochMicros = clock.toEpochMicros(2_600_000);
+
+        // then
+        // The last reading started at nanoTime 2100000, once MAX_INITIAL_CALIBRATION_WAIT_NANOS had run out. The wall clock had read
+        //      1000ms since nanoTime 200000, so it was at least 1900 micros into that millisecond by then, and 2400 by nanoTime 2600000.
+        assertThat(clock.nanos).isEqualTo(2_200_000L);
+        assertThat(epochMicros).isEqualTo(1_002_400L);
+    }
+
+    @Test
+    public void first_calibration_ignores_a_tick_seen_by_a_skewed_wall_clock_read() {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.millisReadsUntilTick = 2;
+        clock.millisReadsUntilStall = 2;
+        clock.stallNanos = 5_000_000;
+
+        // when
+        long epochMicros = clock.toEpochMicros(5_000_500);
+
+        // then
+        // The thread stalled for 5ms in the read that saw the tick, so that read wasn't used. Pairing it with the nanoTime from before
+        //      the stall would have put the clock 5ms ahead.
+        assertThat(epochMicros).isEqualTo(1_006_000L);
+    }
+
+    @Test
+    public void conversions_between_calibrations_have_microsecond_resolution() {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.millisReadsUntilTick = 3;
+        long anchorEpochMicros = clock.toEpochMicros(500);
+
+        // expect
+        assertThat(clock.toEpochMicros(500 + 1_500)).isEqualTo(anchorEpochMicros + 1);
+        assertThat(clock.toEpochMicros(500 + 999_999)).isEqualTo(anchorEpochMicros + 999);
+    }
+
+    @DataProvider(value = {
+        // The extrapolated time (1003500 micros) is inside the wall clock millisecond, so it's kept.
+        "1003   |   1003500",
+        // The wall clock moved ahead of the extrapolated time.
+        "1010   |   1010000",
+        // The wall clock moved behind the extrapolated time.
+        "1002   |   1002999"
+    }, splitBy = "\\|")
+    @Test
+    public void recalibration_only_moves_as_far_as_the_wall_clock_requires(long wallClockMillis, long expectedEpochMicros) {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.millisReadsUntilTick = 3;
+        clock.toEpochMicros(500);
+        long recalibrationNanos = 500 + 2_500_000;
+        clock.nanos = recalibrationNanos - clock.nanosPerRead;
+        clock.millis = wallClockMillis;
+
+        // when
+        long epochMicros = clock.toEpochMicros(recalibrationNanos);
+
+        // then
+        assertThat(epochMicros).isEqualTo(expectedEpochMicros);
+    }
+
+    @Test
+    public void recalibration_ignores_a_skewed_wall_clock_read() {
+        // given
+        ManualCalibratedSpanClock clock = new ManualCalibratedSpanClock();
+        clock.millisReadsUntilTick = 3;
+        clock.toEpochMicros(500);
+        long recalibrationNanos = 500 + 2_500_000;
+        clock.nanos = recalibrationNanos - clock.nanosPerRead;
+        clock.millis = 1003;
+        clock.millisReadsUntilStall = 1;
+        clock.stallNanos = 5_000_000;
+
+        // when
+        long epochMicros = clock.toEpochMicros(recalibrationNanos);
+
+        // then
+        // Pairing the 1008ms read after the stall with the nanoTime from before it would have jumped the clock to 1008000.
+        assertThat(epochMicros).isEqualTo(1_003_500L);
+    }
+
+    private static class ManualCalibratedSpanClock extends CalibratedSpanClock {
+        long nanos = 0;
+        long nanosPerRead = 100;
+        long millis = 1000;
+        int millisReadsUntilTick = 0;
+        int millisReadsUntilStall = 0;
+        long stallNanos = 0;
+
+        ManualCalibratedSpanClock() {
+            super(RECALIBRATION_INTERVAL_NANOS);
+        }
+
+        @Override
+        protected long systemNanoTime() {
+            nanos += nanosPerRead;
+            return nanos;
+        }
+
+        @Override
+        protected long systemCurrentTimeMillis() {
+            if (millisReadsUntilTick > 0 && --millisReadsUntilTick == 0)
+                millis++;
+
+            if (millisReadsUntilStall > 0 && --millisReadsUntilStall == 0) {
+                // The thread is descheduled while it reads the wall clock, which keeps going in the meantime.
+                nanos += stallNanos;
+                millis += TimeUnit.NANOSECONDS.toMillis(stallNanos);
+            }
+
+            return millis;
+        }
+    }
+}
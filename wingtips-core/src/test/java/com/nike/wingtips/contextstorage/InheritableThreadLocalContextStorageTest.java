@@ -0,0 +1,73 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.Tracer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link InheritableThreadLocalContextStorage}.
+ */
+public class InheritableThreadLocalContextStorageTest {
+
+    private TracerContextStorage originalStorage;
+
+    @Before
+    public void beforeMethod() {
+        originalStorage = Tracer.getInstance().getContextStorage();
+        Tracer.getInstance().setContextStorage(new InheritableThreadLocalContextStorage());
+    }
+
+    @After
+    public void afterMethod() {
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setContextStorage(originalStorage);
+    }
+
+    @Test
+    public void child_thread_starts_with_a_copy_of_the_parent_span_stack() throws InterruptedException {
+        // given
+        final Span parentSpan = Tracer.getInstance().startRequestWithRootSpan("parent");
+        final AtomicReference<Span> childCurrentSpanAtStart = new AtomicReference<>();
+        final AtomicReference<Span> childSubSpan = new AtomicReference<>();
+        Thread child = new Thread(() -> {
+            childCurrentSpanAtStart.set(Tracer.getInstance().getCurrentSpan());
+            childSubSpan.set(Tracer.getInstance().startSubSpan("child", SpanPurpose.LOCAL_ONLY));
+            Tracer.getInstance().unregisterFromThread();
+        });
+
+        // when
+        child.start();
+        child.join();
+
+        // then
+        assertThat(childCurrentSpanAtStart.get()).isSameAs(parentSpan);
+        assertThat(childSubSpan.get().getParentSpanId()).isEqualTo(parentSpan.getSpanId());
+        // The child's sub-span never showed up on the parent's stack.
+        assertThat(Tracer.getInstance().getCurrentSpan()).isSameAs(parentSpan);
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void child_thread_does_not_see_parent_changes_made_after_it_was_created() throws InterruptedException {
+        // given
+        final Span parentSpan = Tracer.getInstance().startRequestWithRootSpan("parent");
+        final AtomicReference<Span> childCurrentSpan = new AtomicReference<>();
+        Thread child = new Thread(() -> childCurrentSpan.set(Tracer.getInstance().getCurrentSpan()));
+        Tracer.getInstance().startSubSpan("parentSubSpan", SpanPurpose.LOCAL_ONLY);
+
+        // when
+        child.start();
+        child.join();
+
+        // then
+        assertThat(childCurrentSpan.get()).isSameAs(parentSpan);
+    }
+}
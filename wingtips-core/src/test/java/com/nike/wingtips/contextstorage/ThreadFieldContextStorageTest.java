@@ -0,0 +1,78 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests the functionality of {@link ThreadFieldContextStorage}.
+ */
+public class ThreadFieldContextStorageTest {
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_fallbackStorage() {
+        // when
+        Throwable ex = catchThrowable(() -> new ThreadFieldContextStorage(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void default_constructor_falls_back_to_ThreadLocalContextStorage() {
+        // when
+        ThreadFieldContextStorage storage = new ThreadFieldContextStorage();
+
+        // then
+        assertThat(storage.fallbackStorage).isInstanceOf(ThreadLocalContextStorage.class);
+    }
+
+    @Test
+    public void get_keeps_the_context_in_the_thread_field_for_TracerContextThreads() throws InterruptedException {
+        // given
+        TracerContextStorage fallbackMock = mock(TracerContextStorage.class);
+        final ThreadFieldContextStorage storage = new ThreadFieldContextStorage(fallbackMock);
+        final AtomicReference<SpanStackThreadContext> first = new AtomicReference<>();
+        final AtomicReference<SpanStackThreadContext> second = new AtomicReference<>();
+        TracerContextThread thread = new TracerContextThread(() -> {
+            first.set(storage.get());
+            second.set(storage.get());
+        });
+        assertThat(thread.tracerContext).isNull();
+
+        // when
+        thread.start();
+        thread.join();
+
+        // then
+        assertThat(first.get()).isNotNull();
+        assertThat(second.get()).isSameAs(first.get());
+        assertThat(thread.tracerContext).isSameAs(first.get());
+        verifyZeroInteractions(fallbackMock);
+    }
+
+    @Test
+    public void get_uses_the_fallback_storage_for_other_threads() {
+        // given
+        TracerContextStorage fallbackMock = mock(TracerContextStorage.class);
+        SpanStackThreadContext fallbackContext = new SpanStackThreadContext();
+        doReturn(fallbackContext).when(fallbackMock).get();
+        ThreadFieldContextStorage storage = new ThreadFieldContextStorage(fallbackMock);
+
+        // when
+        SpanStackThreadContext result = storage.get();
+
+        // then
+        assertThat(result).isSameAs(fallbackContext);
+        verify(fallbackMock).get();
+    }
+}
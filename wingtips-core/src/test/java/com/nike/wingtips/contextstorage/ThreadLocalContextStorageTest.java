@@ -0,0 +1,46 @@
+package com.nike.wingtips.contextstorage;
+
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link ThreadLocalContextStorage}.
+ */
+public class ThreadLocalContextStorageTest {
+
+    @Test
+    public void get_returns_the_same_context_every_time_on_a_thread() {
+        // given
+        ThreadLocalContextStorage storage = new ThreadLocalContextStorage();
+
+        // when
+        SpanStackThreadContext first = storage.get();
+        SpanStackThreadContext second = storage.get();
+
+        // then
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void get_returns_a_different_context_on_each_thread() throws InterruptedException {
+        // given
+        final ThreadLocalContextStorage storage = new ThreadLocalContextStorage();
+        SpanStackThreadContext mainThreadContext = storage.get();
+        final AtomicReference<SpanStackThreadContext> otherThreadContext = new AtomicReference<>();
+        Thread otherThread = new Thread(() -> otherThreadContext.set(storage.get()));
+
+        // when
+        otherThread.start();
+        otherThread.join();
+
+        // then
+        assertThat(otherThreadContext.get()).isNotNull();
+        assertThat(otherThreadContext.get()).isNotSameAs(mainThreadContext);
+    }
+}
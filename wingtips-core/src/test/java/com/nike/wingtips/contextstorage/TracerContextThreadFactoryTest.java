@@ -0,0 +1,57 @@
+package com.nike.wingtips.contextstorage;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link TracerContextThreadFactory}.
+ */
+@RunWith(DataProviderRunner.class)
+public class TracerContextThreadFactoryTest {
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_namePrefix() {
+        // when
+        Throwable ex = catchThrowable(() -> new TracerContextThreadFactory(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @DataProvider(value = {
+        "true",
+        "false"
+    })
+    @Test
+    public void newThread_creates_numbered_TracerContextThreads(boolean daemon) {
+        // given
+        TracerContextThreadFactory factory = new TracerContextThreadFactory("worker", daemon);
+        Runnable noop = () -> { };
+
+        // when
+        Thread first = factory.newThread(noop);
+        Thread second = factory.newThread(noop);
+
+        // then
+        assertThat(first).isInstanceOf(TracerContextThread.class);
+        assertThat(first.getName()).isEqualTo("worker-1");
+        assertThat(first.isDaemon()).isEqualTo(daemon);
+        assertThat(second).isInstanceOf(TracerContextThread.class);
+        assertThat(second.getName()).isEqualTo("worker-2");
+    }
+
+    @Test
+    public void single_arg_constructor_creates_non_daemon_threads() {
+        // when
+        Thread thread = new TracerContextThreadFactory("worker").newThread(() -> { });
+
+        // then
+        assertThat(thread.isDaemon()).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+package com.nike.wingtips.idgeneration;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link SecureRandomIdGenerationStrategy}.
+ */
+public class SecureRandomIdGenerationStrategyTest {
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_random() {
+        // when
+        Throwable ex = catchThrowable(() -> new SecureRandomIdGenerationStrategy(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void generate64BitRandomLong_converts_8_random_bytes_to_a_long() {
+        // given
+        final long expectedValue = 0x8badf00ddeadbeefL;
+        Random fixedBytesRandom = new Random() {
+            @Override
+            public void nextBytes(byte[] bytes) {
+                ByteBuffer.wrap(bytes).putLong(expectedValue);
+            }
+        };
+        SecureRandomIdGenerationStrategy strategy = new SecureRandomIdGenerationStrategy(fixedBytesRandom);
+
+        // when
+        long result = strategy.generate64BitRandomLong();
+
+        // then
+        assertThat(result).isEqualTo(expectedValue);
+    }
+
+    @Test
+    public void generate64BitRandomLong_does_not_generate_duplicates_over_reasonable_number_of_attempts() {
+        // given
+        SecureRandomIdGenerationStrategy strategy = new SecureRandomIdGenerationStrategy(new SecureRandom());
+        Set<Long> randomLongs = new HashSet<>();
+        int numAttempts = 100000;
+
+        // when
+        for (int i = 0; i < numAttempts; i++) {
+            randomLongs.add(strategy.generate64BitRandomLong());
+        }
+
+        // then
+        assertThat(randomLongs).hasSize(numAttempts);
+    }
+}
@@ -0,0 +1,78 @@
+package com.nike.wingtips.idgeneration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link ThreadLocalRandomIdGenerationStrategy}.
+ */
+public class ThreadLocalRandomIdGenerationStrategyTest {
+
+    @Test
+    public void generate64BitRandomLong_does_not_generate_duplicates_across_threads() throws Exception {
+        // given
+        final ThreadLocalRandomIdGenerationStrategy strategy = new ThreadLocalRandomIdGenerationStrategy();
+        int numTasks = 1000;
+        final int numPerTask = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        // when
+        try {
+            for (int t = 0; t < numTasks; t++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] results = new long[numPerTask];
+                        for (int i = 0; i < numPerTask; i++) {
+                            results[i] = strategy.generate64BitRandomLong();
+                        }
+                        return results;
+                    }
+                }));
+            }
+
+            Set<Long> allValues = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                for (long value : future.get()) {
+                    allValues.add(value);
+                }
+            }
+
+            // then
+            assertThat(allValues).hasSize(numTasks * numPerTask);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void generate64BitRandomLong_sets_every_bit_position() {
+        // given
+        ThreadLocalRandomIdGenerationStrategy strategy = new ThreadLocalRandomIdGenerationStrategy();
+        long seenOnes = 0;
+        long seenZeros = 0;
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            long value = strategy.generate64BitRandomLong();
+            seenOnes |= value;
+            seenZeros |= ~value;
+        }
+
+        // then
+        assertThat(seenOnes).isEqualTo(-1L);
+        assertThat(seenZeros).isEqualTo(-1L);
+    }
+}
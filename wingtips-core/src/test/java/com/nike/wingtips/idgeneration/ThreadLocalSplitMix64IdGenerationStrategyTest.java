@@ -0,0 +1,145 @@
+package com.nike.wingtips.idgeneration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ThreadLocalSplitMix64IdGenerationStrategy}.
+ */
+public class ThreadLocalSplitMix64IdGenerationStrategyTest {
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_seedSource() {
+        // when
+        Throwable ex = catchThrowable(() -> new ThreadLocalSplitMix64IdGenerationStrategy(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void generate64BitRandomLong_produces_the_SplitMix64_sequence_for_the_thread_seed() {
+        // given
+        long seed = 1234567L;
+        ThreadLocalSplitMix64IdGenerationStrategy strategy = new ThreadLocalSplitMix64IdGenerationStrategy(
+            fixedSeedSource(seed)
+        );
+        // Reference values from java.util.SplittableRandom, which uses the same gamma and mix function.
+        java.util.SplittableRandom reference = new java.util.SplittableRandom(seed);
+
+        // expect
+        for (int i = 0; i < 100; i++) {
+            assertThat(strategy.generate64BitRandomLong()).isEqualTo(reference.nextLong());
+        }
+    }
+
+    @Test
+    public void generate64BitRandomLong_seeds_each_thread_once_from_the_seedSource() throws Exception {
+        // given
+        final Random seedSource = new Random(42);
+        final int[] seedCalls = new int[1];
+        Random countingSeedSource = new Random() {
+            @Override
+            public synchronized long nextLong() {
+                seedCalls[0]++;
+                return seedSource.nextLong();
+            }
+        };
+        final ThreadLocalSplitMix64IdGenerationStrategy strategy =
+            new ThreadLocalSplitMix64IdGenerationStrategy(countingSeedSource);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            strategy.generate64BitRandomLong();
+        }
+        Thread otherThread = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                strategy.generate64BitRandomLong();
+            }
+        });
+        otherThread.start();
+        otherThread.join();
+
+        // then
+        assertThat(seedCalls[0]).isEqualTo(2);
+    }
+
+    @Test
+    public void generate64BitRandomLong_does_not_generate_duplicates_across_threads() throws Exception {
+        // given
+        final ThreadLocalSplitMix64IdGenerationStrategy strategy = new ThreadLocalSplitMix64IdGenerationStrategy();
+        int numThreads = 4;
+        final int numPerThread = 250000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        // when
+        try {
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] results = new long[numPerThread];
+                        for (int i = 0; i < numPerThread; i++) {
+                            results[i] = strategy.generate64BitRandomLong();
+                        }
+                        return results;
+                    }
+                }));
+            }
+
+            Set<Long> allValues = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                for (long value : future.get()) {
+                    allValues.add(value);
+                }
+            }
+
+            // then
+            assertThat(allValues).hasSize(numThreads * numPerThread);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void generate64BitRandomLong_sets_every_bit_position() {
+        // given
+        ThreadLocalSplitMix64IdGenerationStrategy strategy = new ThreadLocalSplitMix64IdGenerationStrategy();
+        long seenOnes = 0;
+        long seenZeros = 0;
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            long value = strategy.generate64BitRandomLong();
+            seenOnes |= value;
+            seenZeros |= ~value;
+        }
+
+        // then
+        assertThat(seenOnes).isEqualTo(-1L);
+        assertThat(seenZeros).isEqualTo(-1L);
+    }
+
+    private Random fixedSeedSource(final long seed) {
+        return new Random() {
+            @Override
+            public long nextLong() {
+                return seed;
+            }
+        };
+    }
+}
@@ -0,0 +1,299 @@
+package com.nike.wingtips.lifecyclelistener;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.util.BoundedRingBuffer.OverflowPolicy;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the functionality of {@link AsyncSpanLifecycleListener}.
+ */
+public class AsyncSpanLifecycleListenerTest {
+
+    private final List<AsyncSpanLifecycleListener> listenersToShutdown = new ArrayList<>();
+
+    @After
+    public void afterMethod() throws InterruptedException {
+        for (AsyncSpanLifecycleListener listener : listenersToShutdown) {
+            listener.shutdown();
+            listener.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private AsyncSpanLifecycleListener track(AsyncSpanLifecycleListener listener) {
+        listenersToShutdown.add(listener);
+        return listener;
+    }
+
+    private Span newSpan() {
+        return Span.newBuilder("someSpan", Span.SpanPurpose.LOCAL_ONLY).build();
+    }
+
+    @Test
+    public void constructor_sets_fields_and_starts_daemon_dispatcher_thread() {
+        // given
+        SpanLifecycleListener delegate = mock(SpanLifecycleListener.class);
+
+        // when
+        AsyncSpanLifecycleListener listener = track(
+            new AsyncSpanLifecycleListener(Collections.singletonList(delegate), 100, OverflowPolicy.DROP_OLDEST, 0, 10)
+        );
+
+        // then
+        assertThat(listener.getDelegates()).containsExactly(delegate);
+        assertThat(listener.getBufferCapacity()).isEqualTo(128);
+        assertThat(listener.getOverflowPolicy()).isEqualTo(OverflowPolicy.DROP_OLDEST);
+        assertThat(listener.maxBatchSize).isEqualTo(10);
+        assertThat(listener.dispatcherThread.isDaemon()).isTrue();
+        assertThat(listener.dispatcherThread.getName()).isEqualTo(AsyncSpanLifecycleListener.DISPATCHER_THREAD_NAME);
+        assertThat(listener.dispatcherThread.isAlive()).isTrue();
+    }
+
+    @Test
+    public void varargs_constructor_uses_defaults() {
+        // given
+        SpanLifecycleListener delegate1 = mock(SpanLifecycleListener.class);
+        SpanLifecycleListener delegate2 = mock(SpanLifecycleListener.class);
+
+        // when
+        AsyncSpanLifecycleListener listener = track(new AsyncSpanLifecycleListener(delegate1, delegate2));
+
+        // then
+        assertThat(listener.getDelegates()).containsExactly(delegate1, delegate2);
+        assertThat(listener.getBufferCapacity()).isEqualTo(AsyncSpanLifecycleListener.DEFAULT_BUFFER_CAPACITY);
+        assertThat(listener.getOverflowPolicy()).isEqualTo(OverflowPolicy.DROP_NEWEST);
+        assertThat(listener.maxBatchSize).isEqualTo(AsyncSpanLifecycleListener.DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_bad_args() {
+        final SpanLifecycleListener delegate = mock(SpanLifecycleListener.class);
+        final List<SpanLifecycleListener> good = Collections.singletonList(delegate);
+
+        // expect
+        assertThat(catchThrowable(() -> new AsyncSpanLifecycleListener((SpanLifecycleListener[]) null)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(
+            () -> new AsyncSpanLifecycleListener(Collections.<SpanLifecycleListener>emptyList(), 10,
+                                                 OverflowPolicy.DROP_NEWEST, 0, 10)
+        )).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(
+            () -> new AsyncSpanLifecycleListener(Arrays.asList(delegate, null), 10, OverflowPolicy.DROP_NEWEST, 0, 10)
+        )).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> new AsyncSpanLifecycleListener(good, 10, null, 0, 10)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> new AsyncSpanLifecycleListener(good, 10, OverflowPolicy.DROP_NEWEST, -1, 10)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> new AsyncSpanLifecycleListener(good, 10, OverflowPolicy.DROP_NEWEST, 0, 0)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void spanStarted_and_spanSampled_are_passed_through_synchronously() {
+        // given
+        SpanLifecycleListener delegate = mock(SpanLifecycleListener.class);
+        AsyncSpanLifecycleListener listener = track(new AsyncSpanLifecycleListener(delegate));
+        Span span = newSpan();
+
+        // when
+        listener.spanStarted(span);
+        listener.spanSampled(span);
+
+        // then
+        verify(delegate).spanStarted(span);
+        verify(delegate).spanSampled(span);
+    }
+
+    @Test
+    public void spanCompleted_is_delivered_to_all_delegates_on_dispatcher_thread_in_order() throws InterruptedException {
+        // given
+        RecordingListener delegate1 = new RecordingListener(null);
+        RecordingListener delegate2 = new RecordingListener(null);
+        AsyncSpanLifecycleListener listener = track(new AsyncSpanLifecycleListener(delegate1, delegate2));
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            spans.add(newSpan());
+        }
+
+        // when
+        for (Span span : spans) {
+            listener.spanCompleted(span);
+        }
+        listener.shutdown();
+        boolean terminated = listener.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(terminated).isTrue();
+        assertThat(delegate1.completedSpans).containsExactlyElementsOf(spans);
+        assertThat(delegate2.completedSpans).containsExactlyElementsOf(spans);
+        assertThat(delegate1.completedOnThreadNames).containsOnly(AsyncSpanLifecycleListener.DISPATCHER_THREAD_NAME);
+        assertThat(listener.getQueuedSpanCount()).isEqualTo(1000);
+        assertThat(listener.getDroppedSpanCount()).isEqualTo(0);
+        assertThat(listener.getPendingSpanCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void delegate_exceptions_do_not_stop_delivery_to_other_delegates_or_later_spans()
+        throws InterruptedException {
+        // given
+        SpanLifecycleListener explodingDelegate = mock(SpanLifecycleListener.class);
+        RecordingListener recordingDelegate = new RecordingListener(null);
+        AsyncSpanLifecycleListener listener = track(
+            new AsyncSpanLifecycleListener(explodingDelegate, recordingDelegate)
+        );
+        Span span1 = newSpan();
+        Span span2 = newSpan();
+        doThrow(new RuntimeException("intentional test exception")).when(explodingDelegate).spanCompleted(span1);
+
+        // when
+        listener.spanCompleted(span1);
+        listener.spanCompleted(span2);
+        listener.shutdown();
+        listener.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        verify(explodingDelegate).spanCompleted(span1);
+        verify(explodingDelegate).spanCompleted(span2);
+        assertThat(recordingDelegate.completedSpans).containsExactly(span1, span2);
+    }
+
+    @Test
+    public void spanCompleted_drops_newest_and_counts_drops_when_buffer_is_full() throws InterruptedException {
+        // given
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        RecordingListener blockingDelegate = new RecordingListener(releaseDelegate);
+        AsyncSpanLifecycleListener listener = track(
+            new AsyncSpanLifecycleListener(Collections.<SpanLifecycleListener>singletonList(blockingDelegate), 4,
+                                           OverflowPolicy.DROP_NEWEST, 0, 1)
+        );
+        // Get the dispatcher thread stuck in the delegate so the buffer fills up.
+        Span stuckSpan = newSpan();
+        listener.spanCompleted(stuckSpan);
+        assertThat(blockingDelegate.enteredLatch.await(10, TimeUnit.SECONDS)).isTrue();
+
+        List<Span> bufferedSpans = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Span span = newSpan();
+            bufferedSpans.add(span);
+            listener.spanCompleted(span);
+        }
+
+        // when
+        listener.spanCompleted(newSpan());
+        listener.spanCompleted(newSpan());
+
+        // then
+        assertThat(listener.getDroppedSpanCount()).isEqualTo(2);
+        assertThat(listener.getQueuedSpanCount()).isEqualTo(5);
+        assertThat(listener.getPendingSpanCount()).isEqualTo(4);
+
+        releaseDelegate.countDown();
+        listener.shutdown();
+        listener.awaitTermination(10, TimeUnit.SECONDS);
+        List<Span> expectedDelivered = new ArrayList<>();
+        expectedDelivered.add(stuckSpan);
+        expectedDelivered.addAll(bufferedSpans);
+        assertThat(blockingDelegate.completedSpans).containsExactlyElementsOf(expectedDelivered);
+    }
+
+    @Test
+    public void spanCompleted_drops_oldest_and_counts_drops_when_buffer_is_full() throws InterruptedException {
+        // given
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        RecordingListener blockingDelegate = new RecordingListener(releaseDelegate);
+        AsyncSpanLifecycleListener listener = track(
+            new AsyncSpanLifecycleListener(Collections.<SpanLifecycleListener>singletonList(blockingDelegate), 4,
+                                           OverflowPolicy.DROP_OLDEST, 0, 1)
+        );
+        Span stuckSpan = newSpan();
+        listener.spanCompleted(stuckSpan);
+        assertThat(blockingDelegate.enteredLatch.await(10, TimeUnit.SECONDS)).isTrue();
+
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Span span = newSpan();
+            spans.add(span);
+            listener.spanCompleted(span);
+        }
+
+        // then
+        assertThat(listener.getDroppedSpanCount()).isEqualTo(2);
+        assertThat(listener.getQueuedSpanCount()).isEqualTo(7);
+
+        releaseDelegate.countDown();
+        listener.shutdown();
+        listener.awaitTermination(10, TimeUnit.SECONDS);
+        List<Span> expectedDelivered = new ArrayList<>();
+        expectedDelivered.add(stuckSpan);
+        expectedDelivered.addAll(spans.subList(2, 6));
+        assertThat(blockingDelegate.completedSpans).containsExactlyElementsOf(expectedDelivered);
+    }
+
+    @Test
+    public void spanCompleted_after_shutdown_is_counted_as_dropped() throws InterruptedException {
+        // given
+        RecordingListener delegate = new RecordingListener(null);
+        AsyncSpanLifecycleListener listener = track(new AsyncSpanLifecycleListener(delegate));
+        listener.shutdown();
+        listener.awaitTermination(10, TimeUnit.SECONDS);
+
+        // when
+        listener.spanCompleted(newSpan());
+
+        // then
+        assertThat(listener.isShutdown()).isTrue();
+        assertThat(listener.getDroppedSpanCount()).isEqualTo(1);
+        assertThat(listener.getQueuedSpanCount()).isEqualTo(0);
+        assertThat(delegate.completedSpans).isEmpty();
+    }
+
+    private static class RecordingListener implements SpanLifecycleListener {
+
+        final List<Span> completedSpans = new CopyOnWriteArrayList<>();
+        final List<String> completedOnThreadNames = new CopyOnWriteArrayList<>();
+        final CountDownLatch enteredLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch;
+
+        RecordingListener(CountDownLatch releaseLatch) {
+            this.releaseLatch = releaseLatch;
+        }
+
+        @Override
+        public void spanStarted(Span span) {
+        }
+
+        @Override
+        public void spanSampled(Span span) {
+        }
+
+        @Override
+        public void spanCompleted(Span span) {
+            completedSpans.add(span);
+            completedOnThreadNames.add(Thread.currentThread().getName());
+            enteredLatch.countDown();
+            if (releaseLatch != null) {
+                try {
+                    releaseLatch.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+}
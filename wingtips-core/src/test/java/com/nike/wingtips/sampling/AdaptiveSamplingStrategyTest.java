@@ -0,0 +1,249 @@
+package com.nike.wingtips.sampling;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+import com.nike.wingtips.sampling.AdaptiveSamplingStrategy.BacklogSource;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the functionality of {@link AdaptiveSamplingStrategy}.
+ */
+@RunWith(DataProviderRunner.class)
+public class AdaptiveSamplingStrategyTest {
+
+    // Static so it's usable while the superclass constructor runs.
+    private static final AtomicLong fakeNanoTime = new AtomicLong();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final BacklogSource backlogSource = new BacklogSource() {
+        @Override
+        public int getBacklogSize() {
+            return backlog.get();
+        }
+    };
+
+    private static class FakeClockAdaptiveSamplingStrategy extends AdaptiveSamplingStrategy {
+        FakeClockAdaptiveSamplingStrategy(double targetSpansPerSecond, double initialProbability, double minProbability,
+                                          BacklogSource backlogSource, int maxBacklog) {
+            super(targetSpansPerSecond, initialProbability, minProbability, 1000, backlogSource, maxBacklog);
+        }
+
+        @Override
+        protected long currentTimeNanos() {
+            return fakeNanoTime.get();
+        }
+    }
+
+    @Before
+    public void beforeMethod() {
+        fakeNanoTime.set(TimeUnit.DAYS.toNanos(1));
+        backlog.set(0);
+    }
+
+    private Span sampledSpan() {
+        return Span.newBuilder("someSpan", SpanPurpose.SERVER).withSampleable(true).build();
+    }
+
+    private void completeSampledSpans(AdaptiveSamplingStrategy strategy, int numSpans) {
+        Span span = sampledSpan();
+        for (int i = 0; i < numSpans; i++) {
+            strategy.spanCompleted(span);
+        }
+    }
+
+    private void advanceOneIntervalAndAdjust(AdaptiveSamplingStrategy strategy) {
+        fakeNanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        strategy.isRootSpanSampleable(TraceAndSpanIdGenerator.generate64BitRandomLong(), "someSpan");
+    }
+
+    @DataProvider(value = {
+        "0      |   1.0     |   0.1     |   1000    |   false   |   0",
+        "10     |   1.0     |   0.0     |   1000    |   false   |   0",
+        "10     |   1.0     |   1.1     |   1000    |   false   |   0",
+        "10     |   0.05    |   0.1     |   1000    |   false   |   0",
+        "10     |   1.1     |   0.1     |   1000    |   false   |   0",
+        "10     |   1.0     |   0.1     |   0       |   false   |   0",
+        "10     |   1.0     |   0.1     |   1000    |   true    |   0"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_args(
+        double target, double initialProbability, double minProbability, long intervalMillis, boolean useBacklog, int maxBacklog
+    ) {
+        // when
+        Throwable ex = catchThrowable(() -> new AdaptiveSamplingStrategy(
+            target, initialProbability, minProbability, intervalMillis, useBacklog ? backlogSource : null, maxBacklog
+        ));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void convenience_constructor_uses_defaults() {
+        // when
+        AdaptiveSamplingStrategy strategy = new AdaptiveSamplingStrategy(42);
+
+        // then
+        assertThat(strategy.getTargetSpansPerSecond()).isEqualTo(42);
+        assertThat(strategy.getCurrentProbability()).isEqualTo(1.0);
+        assertThat(strategy.minProbability).isEqualTo(AdaptiveSamplingStrategy.DEFAULT_MIN_PROBABILITY);
+        assertThat(strategy.adjustmentIntervalNanos)
+            .isEqualTo(TimeUnit.MILLISECONDS.toNanos(AdaptiveSamplingStrategy.DEFAULT_ADJUSTMENT_INTERVAL_MILLIS));
+        assertThat(strategy.backlogSource).isNull();
+    }
+
+    @Test
+    public void does_not_adjust_before_interval_elapses() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 1.0, 0.001, null, 0);
+        completeSampledSpans(strategy, 10_000);
+
+        // when
+        fakeNanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        strategy.isNextRootSpanSampleable();
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isEqualTo(1.0);
+        assertThat(strategy.getObservedSpansPerSecond()).isZero();
+    }
+
+    @Test
+    public void backs_off_proportionally_when_throughput_exceeds_target() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 1.0, 0.001, null, 0);
+        completeSampledSpans(strategy, 1000);
+
+        // when
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getObservedSpansPerSecond()).isCloseTo(1000, within(0.001));
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.1, within(0.0001));
+    }
+
+    @Test
+    public void increases_by_at_most_MAX_INCREASE_FACTOR_per_interval_when_below_target() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 0.1, 0.001, null, 0);
+        completeSampledSpans(strategy, 10);
+
+        // when
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.2, within(0.0001));
+
+        // and when: a quiet interval with no spans at all
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getObservedSpansPerSecond()).isZero();
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.4, within(0.0001));
+    }
+
+    @Test
+    public void probability_stays_within_min_probability_and_one() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(1, 0.8, 0.01, null, 0);
+
+        // when
+        completeSampledSpans(strategy, 1_000_000);
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isEqualTo(0.01);
+
+        // and when: several quiet intervals
+        for (int i = 0; i < 10; i++) {
+            advanceOneIntervalAndAdjust(strategy);
+        }
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void unsampled_spans_are_not_counted() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 0.5, 0.001, null, 0);
+        Span unsampledSpan = Span.newBuilder("someSpan", SpanPurpose.SERVER).withSampleable(false).build();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            strategy.spanStarted(unsampledSpan);
+            strategy.spanSampled(unsampledSpan);
+            strategy.spanCompleted(unsampledSpan);
+        }
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getObservedSpansPerSecond()).isZero();
+        assertThat(strategy.getCurrentProbability()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void halves_probability_when_backlog_is_full_even_if_below_target() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 0.8, 0.001, backlogSource, 1000);
+        backlog.set(1000);
+        completeSampledSpans(strategy, 10);
+
+        // when
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.4, within(0.0001));
+    }
+
+    @Test
+    public void does_not_increase_probability_when_backlog_is_half_full() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 0.4, 0.001, backlogSource, 1000);
+        backlog.set(500);
+
+        // when
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isEqualTo(0.4);
+
+        // and when: the backlog drains
+        backlog.set(0);
+        advanceOneIntervalAndAdjust(strategy);
+
+        // then
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.8, within(0.0001));
+    }
+
+    @Test
+    public void sampling_decisions_follow_the_current_probability() {
+        // given
+        AdaptiveSamplingStrategy strategy = new FakeClockAdaptiveSamplingStrategy(100, 1.0, 0.001, null, 0);
+        completeSampledSpans(strategy, 400);
+        advanceOneIntervalAndAdjust(strategy);
+        assertThat(strategy.getCurrentProbability()).isCloseTo(0.25, within(0.0001));
+        ProbabilisticSamplingStrategy expected = new ProbabilisticSamplingStrategy(strategy.getCurrentProbability());
+
+        for (int i = 0; i < 1000; i++) {
+            long traceId = TraceAndSpanIdGenerator.generate64BitRandomLong();
+
+            // expect
+            assertThat(strategy.isRootSpanSampleable(traceId, "someSpan")).isEqualTo(expected.isTraceIdSampleable(traceId));
+        }
+    }
+}
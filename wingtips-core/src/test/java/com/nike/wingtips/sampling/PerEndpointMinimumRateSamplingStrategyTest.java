@@ -0,0 +1,121 @@
+package com.nike.wingtips.sampling;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the functionality of {@link PerEndpointMinimumRateSamplingStrategy}.
+ */
+@RunWith(DataProviderRunner.class)
+public class PerEndpointMinimumRateSamplingStrategyTest {
+
+    private static final RootSpanSamplingStrategy SAMPLE_NOTHING = new RootSpanSamplingStrategy() {
+        @Override
+        public boolean isNextRootSpanSampleable() {
+            return false;
+        }
+    };
+
+    @DataProvider(value = {
+        "true   |   1   |   1",
+        "false  |   -1  |   1",
+        "false  |   1   |   -1"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_args(boolean nullDelegate, int minRate, int maxEndpoints) {
+        // when
+        Throwable ex = catchThrowable(
+            () -> new PerEndpointMinimumRateSamplingStrategy(nullDelegate ? null : SAMPLE_NOTHING, minRate, maxEndpoints)
+        );
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void each_endpoint_gets_its_minimum_rate_even_when_delegate_samples_nothing() {
+        // given
+        PerEndpointMinimumRateSamplingStrategy strategy = new PerEndpointMinimumRateSamplingStrategy(SAMPLE_NOTHING, 5);
+        int fooSampled = 0;
+        int barSampled = 0;
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            if (strategy.isRootSpanSampleable(i, "foo"))
+                fooSampled++;
+            if (strategy.isRootSpanSampleable(i, "bar"))
+                barSampled++;
+        }
+
+        // then
+        assertThat(fooSampled).isEqualTo(5);
+        assertThat(barSampled).isEqualTo(5);
+    }
+
+    @Test
+    public void defers_to_trace_aware_delegate_once_endpoint_minimum_is_used_up() {
+        // given
+        TraceAwareRootSpanSamplingStrategy delegate = mock(TraceAwareRootSpanSamplingStrategy.class);
+        doReturn(true).when(delegate).isRootSpanSampleable(42L, "foo");
+        PerEndpointMinimumRateSamplingStrategy strategy = new PerEndpointMinimumRateSamplingStrategy(delegate, 1);
+        assertThat(strategy.isRootSpanSampleable(1L, "foo")).isTrue();
+        verify(delegate, never()).isRootSpanSampleable(1L, "foo");
+
+        // when
+        boolean result = strategy.isRootSpanSampleable(42L, "foo");
+
+        // then
+        assertThat(result).isTrue();
+        verify(delegate).isRootSpanSampleable(42L, "foo");
+    }
+
+    @Test
+    public void defers_to_non_trace_aware_delegate_for_unknown_endpoint_and_isNextRootSpanSampleable() {
+        // given
+        RootSpanSamplingStrategy delegate = mock(RootSpanSamplingStrategy.class);
+        doReturn(true).when(delegate).isNextRootSpanSampleable();
+        PerEndpointMinimumRateSamplingStrategy strategy = new PerEndpointMinimumRateSamplingStrategy(delegate, 1);
+
+        // expect
+        assertThat(strategy.isRootSpanSampleable(1L, null)).isTrue();
+        assertThat(strategy.isNextRootSpanSampleable()).isTrue();
+        assertThat(strategy.endpointReservoirs).isEmpty();
+    }
+
+    @Test
+    public void stops_tracking_new_endpoints_once_maxEndpoints_is_reached() {
+        // given
+        PerEndpointMinimumRateSamplingStrategy strategy = new PerEndpointMinimumRateSamplingStrategy(SAMPLE_NOTHING, 1, 2);
+
+        // when
+        boolean first = strategy.isRootSpanSampleable(1L, "first");
+        boolean second = strategy.isRootSpanSampleable(1L, "second");
+        boolean third = strategy.isRootSpanSampleable(1L, "third");
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(strategy.endpointReservoirs.keySet()).containsOnly("first", "second");
+    }
+
+    @Test
+    public void zero_minimum_rate_never_creates_reservoirs() {
+        // given
+        PerEndpointMinimumRateSamplingStrategy strategy = new PerEndpointMinimumRateSamplingStrategy(SAMPLE_NOTHING, 0);
+
+        // expect
+        assertThat(strategy.isRootSpanSampleable(1L, "foo")).isFalse();
+        assertThat(strategy.endpointReservoirs).isEmpty();
+    }
+}
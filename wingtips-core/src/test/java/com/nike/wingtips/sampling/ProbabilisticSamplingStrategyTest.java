@@ -0,0 +1,113 @@
+package com.nike.wingtips.sampling;
+
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the functionality of {@link ProbabilisticSamplingStrategy}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ProbabilisticSamplingStrategyTest {
+
+    @DataProvider(value = {
+        "-0.1",
+        "1.1",
+        "NaN"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_probability(double badProbability) {
+        // when
+        Throwable ex = catchThrowable(() -> new ProbabilisticSamplingStrategy(badProbability));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @DataProvider(value = {
+        "0.0",
+        "0.01",
+        "0.25",
+        "0.5",
+        "1.0"
+    }, splitBy = "\\|")
+    @Test
+    public void isRootSpanSampleable_samples_the_requested_fraction_of_random_trace_ids(double probability) {
+        // given
+        ProbabilisticSamplingStrategy strategy = new ProbabilisticSamplingStrategy(probability);
+        int numTraces = 100_000;
+        int numSampled = 0;
+
+        // when
+        for (int i = 0; i < numTraces; i++) {
+            if (strategy.isRootSpanSampleable(TraceAndSpanIdGenerator.generate64BitRandomLong(), "someSpan"))
+                numSampled++;
+        }
+
+        // then
+        assertThat((double) numSampled / numTraces).isCloseTo(probability, within(0.01));
+        assertThat(strategy.getProbability()).isEqualTo(probability);
+    }
+
+    @Test
+    public void isRootSpanSampleable_is_deterministic_for_a_given_trace_id_across_instances() {
+        // given
+        ProbabilisticSamplingStrategy strategy1 = new ProbabilisticSamplingStrategy(0.3);
+        ProbabilisticSamplingStrategy strategy2 = new ProbabilisticSamplingStrategy(0.3);
+
+        for (int i = 0; i < 1000; i++) {
+            long traceId = TraceAndSpanIdGenerator.generate64BitRandomLong();
+
+            // when
+            boolean first = strategy1.isRootSpanSampleable(traceId, "foo");
+            boolean second = strategy2.isRootSpanSampleable(traceId, "bar");
+
+            // then
+            assertThat(second).isEqualTo(first);
+            assertThat(strategy1.isRootSpanSampleable(traceId, "foo")).isEqualTo(first);
+        }
+    }
+
+    @DataProvider(value = {
+        "0.0    |   -9223372036854775808    |   false",
+        "0.0    |   0                       |   false",
+        "1.0    |   -9223372036854775808    |   true",
+        "1.0    |   9223372036854775807     |   true",
+        "0.5    |   0                       |   true",
+        "0.5    |   -1                      |   true",
+        "0.5    |   9223372036854775807     |   false",
+        "0.5    |   -9223372036854775807    |   false"
+    }, splitBy = "\\|")
+    @Test
+    public void isTraceIdSampleable_handles_edge_cases(double probability, long traceIdLow, boolean expected) {
+        // given
+        ProbabilisticSamplingStrategy strategy = new ProbabilisticSamplingStrategy(probability);
+
+        // expect
+        assertThat(strategy.isTraceIdSampleable(traceIdLow)).isEqualTo(expected);
+    }
+
+    @Test
+    public void isNextRootSpanSampleable_uses_random_trace_ids() {
+        // given
+        ProbabilisticSamplingStrategy strategy = new ProbabilisticSamplingStrategy(0.5);
+        int numSampled = 0;
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            if (strategy.isNextRootSpanSampleable())
+                numSampled++;
+        }
+
+        // then
+        assertThat(numSampled).isBetween(4000, 6000);
+    }
+}
@@ -0,0 +1,151 @@
+package com.nike.wingtips.sampling;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link RateLimitingSamplingStrategy}.
+ */
+@RunWith(DataProviderRunner.class)
+public class RateLimitingSamplingStrategyTest {
+
+    // Static so it's usable while the superclass constructor runs.
+    private static final AtomicLong fakeNanoTime = new AtomicLong();
+
+    private static class FakeClockRateLimitingSamplingStrategy extends RateLimitingSamplingStrategy {
+        FakeClockRateLimitingSamplingStrategy(int tracesPerSecond) {
+            super(tracesPerSecond);
+        }
+
+        @Override
+        protected long currentTimeNanos() {
+            return fakeNanoTime.get();
+        }
+    }
+
+    private int countSampled(RootSpanSamplingStrategy strategy, int attempts) {
+        int numSampled = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (strategy.isNextRootSpanSampleable())
+                numSampled++;
+        }
+        return numSampled;
+    }
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_negative_rate() {
+        // when
+        Throwable ex = catchThrowable(() -> new RateLimitingSamplingStrategy(-1));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void zero_rate_never_samples() {
+        // given
+        RateLimitingSamplingStrategy strategy = new RateLimitingSamplingStrategy(0);
+
+        // expect
+        assertThat(countSampled(strategy, 1000)).isZero();
+        assertThat(strategy.getTracesPerSecond()).isZero();
+    }
+
+    @DataProvider(value = {
+        "1",
+        "10",
+        "1000"
+    }, splitBy = "\\|")
+    @Test
+    public void allows_a_burst_of_one_seconds_worth_then_refills_at_the_configured_rate(int tracesPerSecond) {
+        // given
+        fakeNanoTime.set(TimeUnit.DAYS.toNanos(1));
+        RateLimitingSamplingStrategy strategy = new FakeClockRateLimitingSamplingStrategy(tracesPerSecond);
+
+        // expect: the initially full bucket allows a burst
+        assertThat(countSampled(strategy, tracesPerSecond * 3)).isEqualTo(tracesPerSecond);
+
+        // and when: half a second passes
+        fakeNanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        // then: half a second's worth of tokens is available
+        assertThat(countSampled(strategy, tracesPerSecond * 3)).isEqualTo(tracesPerSecond / 2);
+
+        // and when: a long time passes
+        fakeNanoTime.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        // then: the bucket holds no more than one second's worth
+        assertThat(countSampled(strategy, tracesPerSecond * 3)).isEqualTo(tracesPerSecond);
+    }
+
+    @Test
+    public void steady_traffic_is_limited_to_the_configured_rate() {
+        // given
+        fakeNanoTime.set(-TimeUnit.DAYS.toNanos(1));
+        RateLimitingSamplingStrategy strategy = new FakeClockRateLimitingSamplingStrategy(100);
+        // Drain the initial burst.
+        countSampled(strategy, 1000);
+        int numSampled = 0;
+
+        // when: 10 seconds of traffic at 10,000 requests per second
+        for (int i = 0; i < 100_000; i++) {
+            fakeNanoTime.addAndGet(TimeUnit.MICROSECONDS.toNanos(100));
+            if (strategy.isNextRootSpanSampleable())
+                numSampled++;
+        }
+
+        // then
+        assertThat(numSampled).isEqualTo(1000);
+    }
+
+    @Test
+    public void concurrent_callers_never_exceed_the_burst_size() throws Exception {
+        // given
+        fakeNanoTime.set(0);
+        final RateLimitingSamplingStrategy strategy = new FakeClockRateLimitingSamplingStrategy(500);
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        startLatch.await();
+                        return countSampled(strategy, 1000);
+                    }
+                }));
+            }
+
+            // when
+            startLatch.countDown();
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+
+            // then
+            assertThat(total).isEqualTo(500);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.nike.wingtips.util;
+
+import com.nike.wingtips.util.BoundedRingBuffer.OverflowPolicy;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link BoundedRingBuffer}.
+ */
+@RunWith(DataProviderRunner.class)
+public class BoundedRingBufferTest {
+
+    @DataProvider(value = {
+        "1      |   1",
+        "2      |   2",
+        "3      |   4",
+        "1000   |   1024",
+        "1024   |   1024",
+        "1025   |   2048"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_rounds_capacity_up_to_power_of_two(int requestedCapacity, int expectedCapacity) {
+        // when
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(requestedCapacity);
+
+        // then
+        assertThat(buffer.capacity()).isEqualTo(expectedCapacity);
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @DataProvider(value = {
+        "0",
+        "-1",
+        "1073741825"
+    })
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_capacity(int badCapacity) {
+        // when
+        Throwable ex = catchThrowable(() -> new BoundedRingBuffer<String>(badCapacity));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void offer_throws_NullPointerException_for_null_item() {
+        // given
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(4);
+
+        // when
+        Throwable ex = catchThrowable(() -> buffer.offer(null));
+
+        // then
+        assertThat(ex).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void offer_and_poll_are_fifo_and_wrap_around_the_buffer() {
+        // given
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+
+        // when
+        List<Integer> polled = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            assertThat(buffer.offer(i + 1000)).isTrue();
+            polled.add(buffer.poll());
+            polled.add(buffer.poll());
+        }
+
+        // then
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.poll()).isNull();
+        for (int i = 0; i < 20; i++) {
+            assertThat(polled.get(i * 2)).isEqualTo(i);
+            assertThat(polled.get((i * 2) + 1)).isEqualTo(i + 1000);
+        }
+    }
+
+    @Test
+    public void offer_returns_false_when_buffer_is_full() {
+        // given
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.offer(i);
+        }
+
+        // when
+        boolean result = buffer.offer(42);
+
+        // then
+        assertThat(result).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+        assertThat(buffer.poll()).isEqualTo(0);
+    }
+
+    @Test
+    public void offerWithOverflowPolicy_DROP_NEWEST_rejects_new_item_when_full() {
+        // given
+        BoundedRingBuffer<Integer> buffer = fullBufferOfSize4();
+
+        // when
+        int numDropped = buffer.offerWithOverflowPolicy(42, OverflowPolicy.DROP_NEWEST, 0);
+
+        // then
+        assertThat(numDropped).isEqualTo(1);
+        assertThat(drainAll(buffer)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void offerWithOverflowPolicy_DROP_OLDEST_evicts_oldest_item_when_full() {
+        // given
+        BoundedRingBuffer<Integer> buffer = fullBufferOfSize4();
+
+        // when
+        int numDropped = buffer.offerWithOverflowPolicy(42, OverflowPolicy.DROP_OLDEST, 0);
+
+        // then
+        assertThat(numDropped).isEqualTo(1);
+        assertThat(drainAll(buffer)).containsExactly(1, 2, 3, 42);
+    }
+
+    @Test
+    public void offerWithOverflowPolicy_BLOCK_WITH_TIMEOUT_rejects_new_item_after_timeout() {
+        // given
+        BoundedRingBuffer<Integer> buffer = fullBufferOfSize4();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(20);
+
+        // when
+        long start = System.nanoTime();
+        int numDropped = buffer.offerWithOverflowPolicy(42, OverflowPolicy.BLOCK_WITH_TIMEOUT, timeoutNanos);
+        long elapsed = System.nanoTime() - start;
+
+        // then
+        assertThat(numDropped).isEqualTo(1);
+        assertThat(elapsed).isGreaterThanOrEqualTo(timeoutNanos);
+        assertThat(drainAll(buffer)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void offerWithOverflowPolicy_BLOCK_WITH_TIMEOUT_succeeds_when_room_frees_up() throws InterruptedException {
+        // given
+        BoundedRingBuffer<Integer> buffer = fullBufferOfSize4();
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            buffer.poll();
+        });
+        consumer.start();
+
+        // when
+        int numDropped = buffer.offerWithOverflowPolicy(
+            42, OverflowPolicy.BLOCK_WITH_TIMEOUT, TimeUnit.SECONDS.toNanos(10)
+        );
+
+        // then
+        consumer.join();
+        assertThat(numDropped).isEqualTo(0);
+        assertThat(drainAll(buffer)).containsExactly(1, 2, 3, 42);
+    }
+
+    @Test
+    public void offerWithOverflowPolicy_adds_item_without_dropping_when_there_is_room() {
+        // given
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+
+        // when
+        int numDropped = buffer.offerWithOverflowPolicy(42, OverflowPolicy.DROP_OLDEST, 0);
+
+        // then
+        assertThat(numDropped).isEqualTo(0);
+        assertThat(drainAll(buffer)).containsExactly(42);
+    }
+
+    @Test
+    public void drainTo_respects_maxItems() {
+        // given
+        BoundedRingBuffer<Integer> buffer = fullBufferOfSize4();
+        List<Integer> target = new ArrayList<>();
+
+        // when
+        int drained = buffer.drainTo(target, 3);
+
+        // then
+        assertThat(drained).isEqualTo(3);
+        assertThat(target).containsExactly(0, 1, 2);
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrent_producers_and_consumer_do_not_lose_or_duplicate_items() throws InterruptedException {
+        // given
+        final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        final int numProducers = 4;
+        final int itemsPerProducer = 10000;
+        final CountDownLatch producersDone = new CountDownLatch(numProducers);
+        final Set<Integer> consumed = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        final AtomicBoolean duplicateSeen = new AtomicBoolean(false);
+
+        for (int p = 0; p < numProducers; p++) {
+            final int producerId = p;
+            new Thread(() -> {
+                for (int i = 0; i < itemsPerProducer; i++) {
+                    int item = (producerId * itemsPerProducer) + i;
+                    while (!buffer.offer(item)) {
+                        Thread.yield();
+                    }
+                }
+                producersDone.countDown();
+            }).start();
+        }
+
+        // when
+        Thread consumer = new Thread(() -> {
+            while (consumed.size() < numProducers * itemsPerProducer) {
+                Integer item = buffer.poll();
+                if (item == null) {
+                    Thread.yield();
+                    continue;
+                }
+                if (!consumed.add(item))
+                    duplicateSeen.set(true);
+            }
+        });
+        consumer.start();
+        producersDone.await(30, TimeUnit.SECONDS);
+        consumer.join(TimeUnit.SECONDS.toMillis(30));
+
+        // then
+        assertThat(duplicateSeen.get()).isFalse();
+        assertThat(consumed).hasSize(numProducers * itemsPerProducer);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    private BoundedRingBuffer<Integer> fullBufferOfSize4() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        return buffer;
+    }
+
+    private List<Integer> drainAll(BoundedRingBuffer<Integer> buffer) {
+        List<Integer> result = new ArrayList<>();
+        buffer.drainTo(result, Integer.MAX_VALUE);
+        return result;
+    }
+}
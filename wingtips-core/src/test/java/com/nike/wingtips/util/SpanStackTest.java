@@ -0,0 +1,382 @@
+package com.nike.wingtips.util;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link SpanStack}.
+ */
+@RunWith(DataProviderRunner.class)
+public class SpanStackTest {
+
+    private Span newSpan(String name) {
+        return Span.newBuilder(name, SpanPurpose.LOCAL_ONLY).build();
+    }
+
+    private List<Span> newSpans(int count) {
+        List<Span> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(newSpan("span-" + i));
+        }
+        return result;
+    }
+
+    @DataProvider(value = {
+        "0",
+        "1",
+        "2",
+        "8",
+        "9",
+        "40"
+    })
+    @Test
+    public void push_pop_and_peek_behave_exactly_like_LinkedList(int numSpans) {
+        // given
+        List<Span> spans = newSpans(numSpans);
+        SpanStack spanStack = new SpanStack();
+        Deque<Span> linkedList = new LinkedList<>();
+
+        // when
+        for (Span span : spans) {
+            spanStack.push(span);
+            linkedList.push(span);
+        }
+
+        // then
+        assertThat(spanStack).isEqualTo(linkedList);
+        assertThat(linkedList).isEqualTo(spanStack);
+        assertThat(spanStack.hashCode()).isEqualTo(linkedList.hashCode());
+        assertThat(spanStack).containsExactlyElementsOf(linkedList);
+        assertThat(spanStack.peek()).isSameAs(linkedList.peek());
+        assertThat(spanStack.peekLast()).isSameAs(linkedList.peekLast());
+        assertThat(spanStack.size()).isEqualTo(linkedList.size());
+
+        while (!linkedList.isEmpty()) {
+            assertThat(spanStack.pop()).isSameAs(linkedList.pop());
+        }
+        assertThat(spanStack.isEmpty()).isTrue();
+        assertThat(spanStack.peek()).isNull();
+        assertThat(spanStack.poll()).isNull();
+    }
+
+    @Test
+    public void collection_constructor_matches_LinkedList_copy_constructor_ordering() {
+        // given
+        Deque<Span> linkedList = new LinkedList<>();
+        for (Span span : newSpans(5)) {
+            linkedList.push(span);
+        }
+
+        // when
+        SpanStack spanStack = new SpanStack(linkedList);
+
+        // then
+        assertThat(spanStack).isEqualTo(new LinkedList<>(linkedList));
+        assertThat(spanStack.peek()).isSameAs(linkedList.peek());
+    }
+
+    @Test
+    public void addLast_and_pollLast_work_on_bottom_of_stack() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack spanStack = new SpanStack();
+        Deque<Span> linkedList = new LinkedList<>();
+
+        // when
+        for (Span span : spans) {
+            spanStack.addLast(span);
+            linkedList.addLast(span);
+        }
+        spanStack.offerLast(spans.get(0));
+        linkedList.offerLast(spans.get(0));
+
+        // then
+        assertThat(spanStack).isEqualTo(linkedList);
+        assertThat(spanStack.getLast()).isSameAs(spans.get(0));
+        assertThat(spanStack.pollLast()).isSameAs(linkedList.pollLast());
+        assertThat(spanStack.removeLast()).isSameAs(linkedList.removeLast());
+        assertThat(spanStack).isEqualTo(linkedList);
+    }
+
+    @Test
+    public void removeFirstOccurrence_and_removeLastOccurrence_work_like_LinkedList() {
+        // given
+        List<Span> spans = newSpans(3);
+        Deque<Span> linkedList = new LinkedList<>(Arrays.asList(
+            spans.get(0), spans.get(1), spans.get(2), spans.get(1), spans.get(0)
+        ));
+        SpanStack spanStack = new SpanStack(linkedList);
+
+        // when
+        boolean firstResult = spanStack.removeFirstOccurrence(spans.get(1));
+        boolean lastResult = spanStack.removeLastOccurrence(spans.get(0));
+        linkedList.removeFirstOccurrence(spans.get(1));
+        linkedList.removeLastOccurrence(spans.get(0));
+
+        // then
+        assertThat(firstResult).isTrue();
+        assertThat(lastResult).isTrue();
+        assertThat(spanStack).isEqualTo(linkedList);
+        assertThat(spanStack.removeFirstOccurrence(newSpan("notInStack"))).isFalse();
+        assertThat(spanStack.contains(spans.get(2))).isTrue();
+        assertThat(spanStack.remove(spans.get(2))).isTrue();
+        assertThat(spanStack.contains(spans.get(2))).isFalse();
+    }
+
+    @Test
+    public void empty_stack_methods_throw_NoSuchElementException_where_Deque_requires_it() {
+        // given
+        final SpanStack spanStack = new SpanStack();
+
+        // expect
+        assertThat(catchThrowable(spanStack::pop)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::removeFirst)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::removeLast)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::getFirst)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::getLast)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::element)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(spanStack::remove)).isInstanceOf(NoSuchElementException.class);
+        assertThat(catchThrowable(() -> spanStack.get(0))).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void snapshot_shares_spans_but_changes_to_either_stack_are_not_visible_to_the_other() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack original = new SpanStack();
+        for (Span span : spans) {
+            original.push(span);
+        }
+
+        // when
+        SpanStack snapshot = original.snapshot();
+
+        // then
+        assertThat(snapshot).isNotSameAs(original);
+        assertThat(snapshot).isEqualTo(original);
+        assertThat(snapshot.elements).isSameAs(original.elements);
+
+        // and when
+        Span poppedFromOriginal = original.pop();
+        Span newSpanForOriginal = newSpan("newForOriginal");
+        original.push(newSpanForOriginal);
+        Span newSpanForSnapshot = newSpan("newForSnapshot");
+        snapshot.push(newSpanForSnapshot);
+
+        // then
+        assertThat(poppedFromOriginal).isSameAs(spans.get(2));
+        assertThat(original).containsExactly(newSpanForOriginal, spans.get(1), spans.get(0));
+        assertThat(snapshot).containsExactly(newSpanForSnapshot, spans.get(2), spans.get(1), spans.get(0));
+        assertThat(snapshot.elements).isNotSameAs(original.elements);
+    }
+
+    @Test
+    public void popping_a_snapshot_does_not_affect_the_original() {
+        // given
+        List<Span> spans = newSpans(2);
+        SpanStack original = new SpanStack(spans);
+        SpanStack snapshot = original.snapshot();
+
+        // when
+        snapshot.pop();
+        snapshot.clear();
+
+        // then
+        assertThat(snapshot).isEmpty();
+        assertThat(original).containsExactlyElementsOf(spans);
+    }
+
+    @Test
+    public void clearing_the_original_does_not_affect_a_snapshot() {
+        // given
+        List<Span> spans = newSpans(2);
+        SpanStack original = new SpanStack(spans);
+        SpanStack snapshot = original.snapshot();
+
+        // when
+        original.clear();
+        original.push(newSpan("reused"));
+
+        // then
+        assertThat(snapshot).containsExactlyElementsOf(spans);
+        assertThat(original).hasSize(1);
+    }
+
+    @Test
+    public void snapshot_of_empty_stack_is_usable() {
+        // given
+        SpanStack snapshot = new SpanStack().snapshot();
+        Span span = newSpan("foo");
+
+        // when
+        snapshot.push(span);
+
+        // then
+        assertThat(snapshot).containsExactly(span);
+    }
+
+    @Test
+    public void copyOf_returns_null_for_null_snapshot_for_SpanStack_and_copy_for_other_Deques() {
+        // given
+        List<Span> spans = newSpans(2);
+        SpanStack spanStack = new SpanStack(spans);
+        Deque<Span> linkedList = new LinkedList<>(spans);
+
+        // when
+        SpanStack spanStackCopy = SpanStack.copyOf(spanStack);
+        SpanStack linkedListCopy = SpanStack.copyOf(linkedList);
+
+        // then
+        assertThat(SpanStack.copyOf(null)).isNull();
+        assertThat(spanStackCopy).isNotSameAs(spanStack).isEqualTo(spanStack);
+        assertThat(spanStackCopy.elements).isSameAs(spanStack.elements);
+        assertThat(linkedListCopy).isEqualTo(linkedList);
+    }
+
+    @Test
+    public void resetToCopyOf_reuses_instance_for_both_SpanStack_and_other_collections() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack reused = new SpanStack(newSpans(5));
+        SpanStack source = new SpanStack(spans);
+
+        // when
+        reused.resetToCopyOf(source);
+
+        // then
+        assertThat(reused).isEqualTo(source);
+        assertThat(reused.elements).isSameAs(source.elements);
+
+        // and when
+        reused.resetToCopyOf(new LinkedList<>(spans.subList(0, 2)));
+
+        // then
+        assertThat(reused).containsExactly(spans.get(0), spans.get(1));
+        assertThat(source).containsExactlyElementsOf(spans);
+
+        // and when
+        reused.resetToCopyOf(Collections.<Span>emptyList());
+
+        // then
+        assertThat(reused).isEmpty();
+    }
+
+    @Test
+    public void stack_grows_past_initial_capacity() {
+        // given
+        SpanStack spanStack = new SpanStack();
+        List<Span> spans = newSpans(SpanStack.DEFAULT_INITIAL_CAPACITY * 3);
+
+        // when
+        for (Span span : spans) {
+            spanStack.push(span);
+        }
+
+        // then
+        assertThat(spanStack).hasSize(spans.size());
+        assertThat(spanStack.peekLast()).isSameAs(spans.get(0));
+        assertThat(spanStack.peek()).isSameAs(spans.get(spans.size() - 1));
+    }
+
+    @Test
+    public void clear_nulls_out_references_so_spans_can_be_garbage_collected() {
+        // given
+        SpanStack spanStack = new SpanStack(newSpans(3));
+
+        // when
+        spanStack.clear();
+
+        // then
+        assertThat(spanStack).isEmpty();
+        assertThat(spanStack.elements).containsOnly((Span) null);
+    }
+
+    @Test
+    public void descendingIterator_iterates_from_bottom_to_top_and_supports_remove() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack spanStack = new SpanStack(spans);
+
+        // when
+        List<Span> iterated = new ArrayList<>();
+        Iterator<Span> iterator = spanStack.descendingIterator();
+        while (iterator.hasNext()) {
+            Span span = iterator.next();
+            iterated.add(span);
+            if (span == spans.get(1))
+                iterator.remove();
+        }
+
+        // then
+        assertThat(iterated).containsExactly(spans.get(2), spans.get(1), spans.get(0));
+        assertThat(spanStack).containsExactly(spans.get(0), spans.get(2));
+    }
+
+    @Test
+    public void iterator_is_fail_fast() {
+        // given
+        SpanStack spanStack = new SpanStack(newSpans(3));
+        Iterator<Span> iterator = spanStack.iterator();
+        iterator.next();
+
+        // when
+        spanStack.push(newSpan("foo"));
+        Throwable ex = catchThrowable(iterator::next);
+
+        // then
+        assertThat(ex).isInstanceOf(ConcurrentModificationException.class);
+    }
+
+    @Test
+    public void reversed_returns_reversed_copy() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack spanStack = new SpanStack(spans);
+
+        // when
+        SpanStack reversed = spanStack.reversed();
+
+        // then
+        assertThat(reversed).containsExactly(spans.get(2), spans.get(1), spans.get(0));
+        assertThat(spanStack).containsExactlyElementsOf(spans);
+    }
+
+    @Test
+    public void set_and_add_at_index_work_like_List() {
+        // given
+        List<Span> spans = newSpans(3);
+        SpanStack spanStack = new SpanStack(spans);
+        List<Span> expected = new ArrayList<>(spans);
+        Span replacement = newSpan("replacement");
+        Span inserted = newSpan("inserted");
+
+        // when
+        Span old = spanStack.set(1, replacement);
+        expected.set(1, replacement);
+        spanStack.add(1, inserted);
+        expected.add(1, inserted);
+
+        // then
+        assertThat(old).isSameAs(spans.get(1));
+        assertThat(spanStack).containsExactlyElementsOf(expected);
+    }
+}
@@ -0,0 +1,91 @@
+package com.nike.wingtips.util;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Constructor;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link Utf8Util}.
+ */
+@RunWith(DataProviderRunner.class)
+public class Utf8UtilTest {
+
+    @Test
+    public void constructor_is_private() throws Exception {
+        // given
+        Constructor<Utf8Util> constructor = Utf8Util.class.getDeclaredConstructor();
+
+        // when
+        Throwable ex = catchThrowable(constructor::newInstance);
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalAccessException.class);
+
+        // and when - code coverage
+        constructor.setAccessible(true);
+        assertThat(constructor.newInstance()).isNotNull();
+    }
+
+    @DataProvider(value = {
+        "",
+        "plain ascii",
+        "latin \u00e4\u00f6\u00fc",
+        "cjk \u6f22\u5b57",
+        "emoji \ud83d\ude00 surrogate pair",
+        "mixed \u007f\u0080\u07ff\u0800\uffff"
+    })
+    @Test
+    public void encode_and_encodedLength_match_String_getBytes(String value) {
+        // given
+        byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 1);
+        buffer.put((byte) 'x');
+
+        // when
+        int encodedLength = Utf8Util.encodedLength(new StringBuilder(value));
+        Utf8Util.encode(new StringBuilder(value), buffer);
+        byte[] toBytesResult = Utf8Util.toBytes(value);
+
+        // then
+        assertThat(encodedLength).isEqualTo(expected.length);
+        assertThat(buffer.position()).isEqualTo(expected.length + 1);
+        byte[] written = new byte[expected.length];
+        System.arraycopy(buffer.array(), 1, written, 0, expected.length);
+        assertThat(written).isEqualTo(expected);
+        assertThat(toBytesResult).isEqualTo(expected);
+    }
+
+    @DataProvider(value = {
+        "lone high \ud83d at end",
+        "lone low \ude00 in middle",
+        "trailing high \ud83d"
+    })
+    @Test
+    public void unpaired_surrogates_are_encoded_as_replacement_byte_like_String_getBytes(String value) {
+        // expect
+        assertThat(Utf8Util.toBytes(value)).isEqualTo(value.getBytes(StandardCharsets.UTF_8));
+        assertThat(Utf8Util.encodedLength(value)).isEqualTo(value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void encode_throws_BufferOverflowException_when_buffer_is_too_small() {
+        // given
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+
+        // when
+        Throwable ex = catchThrowable(() -> Utf8Util.encode("four", buffer));
+
+        // then
+        assertThat(ex).isInstanceOf(BufferOverflowException.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.nike.wingtips.util;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link VirtualThreadUtil}. Virtual threads themselves are covered by the wingtips-java21 module's tests.
+ */
+public class VirtualThreadUtilTest {
+
+    @Test
+    public void constructor_is_private() throws Exception {
+        // given
+        Constructor<VirtualThreadUtil> constructor = VirtualThreadUtil.class.getDeclaredConstructor();
+
+        // when
+        Throwable ex = catchThrowable(constructor::newInstance);
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalAccessException.class);
+
+        // and when - code coverage
+        constructor.setAccessible(true);
+        assertThat(constructor.newInstance()).isNotNull();
+    }
+
+    @Test
+    public void isCurrentThreadVirtual_returns_false_on_a_platform_thread() {
+        // expect
+        assertThat(VirtualThreadUtil.isCurrentThreadVirtual()).isFalse();
+    }
+
+    @Test
+    public void isVirtualThread_returns_false_for_a_new_platform_thread() throws InterruptedException {
+        // given
+        final AtomicBoolean result = new AtomicBoolean(true);
+        Thread thread = new Thread(() -> result.set(VirtualThreadUtil.isCurrentThreadVirtual()));
+
+        // when
+        thread.start();
+        thread.join();
+
+        // then
+        assertThat(VirtualThreadUtil.isVirtualThread(thread)).isFalse();
+        assertThat(result.get()).isFalse();
+    }
+
+    @Test
+    public void isVirtualThread_returns_false_for_null() {
+        // expect
+        assertThat(VirtualThreadUtil.isVirtualThread(null)).isFalse();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+
+import java.util.Deque;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link Callable} that wraps the given original so it runs in a new {@link ScopedValueContextStorage} context holding the given span stack. See
+ * {@link ScopedTracing#callWithSpanStack(Deque, Callable)}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CallableWithScopedTracing<U> implements Callable<U> {
+
+    protected final Callable<U> origCallable;
+    protected final Deque<Span> spanStackForExecution;
+
+    /**
+     * Constructor that captures the current thread's span stack using {@link Tracer#getCurrentSpanStackCopy()}, which is a cheap copy-on-write
+     * snapshot.
+     *
+     * <p>The operation you pass in cannot be null (an {@link IllegalArgumentException} will be thrown if you pass in null for the operation).
+     */
+    public CallableWithScopedTracing(Callable<U> origCallable) {
+        this(origCallable, Tracer.getInstance().getCurrentSpanStackCopy());
+    }
+
+    /**
+     * Constructor that uses the given span stack, which can be null.
+     *
+     * <p>The operation you pass in cannot be null (an {@link IllegalArgumentException} will be thrown if you pass in null for the operation).
+     */
+    public CallableWithScopedTracing(Callable<U> origCallable, Deque<Span> spanStackForExecution) {
+        if (origCallable == null)
+            throw new IllegalArgumentException("origCallable cannot be null");
+
+        this.origCallable = origCallable;
+        this.spanStackForExecution = spanStackForExecution;
+    }
+
+    /**
+     * Equivalent to calling {@code new CallableWithScopedTracing<>(origCallable)}.
+     */
+    public static <U> CallableWithScopedTracing<U> withTracing(Callable<U> origCallable) {
+        return new CallableWithScopedTracing<>(origCallable);
+    }
+
+    @Override
+    public U call() throws Exception {
+        return ScopedTracing.callWithSpanStack(spanStackForExecution, origCallable);
+    }
+}
@@ -0,0 +1,131 @@
+package com.nike.wingtips.scopedvalue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The {@link ScopedValueContextStorage} counterpart of {@link com.nike.wingtips.util.asynchelperwrapper.ExecutorServiceWithTracing}: a wrapper around
+ * any {@link ExecutorService} that makes submitted tasks run with a copy of the submitting thread's span stack, using {@link
+ * RunnableWithScopedTracing} and {@link CallableWithScopedTracing}. It's meant for {@link
+ * java.util.concurrent.Executors#newVirtualThreadPerTaskExecutor()} (see {@link ScopedTracing#newVirtualThreadPerTaskExecutor()}), but works with
+ * any delegate. Shutdown, termination, and {@link #close()} pass through to the delegate.
+ *
+ * <p>WARNING: As with {@code ExecutorServiceWithTracing}, don't use this for background work that shouldn't inherit the caller's trace.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ExecutorServiceWithScopedTracing implements ExecutorService {
+
+    protected final ExecutorService delegate;
+
+    /**
+     * @param delegate The {@link ExecutorService} to delegate all calls to.
+     */
+    public ExecutorServiceWithScopedTracing(ExecutorService delegate) {
+        if (delegate == null)
+            throw new IllegalArgumentException("delegate cannot be null");
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Equivalent to calling {@code new ExecutorServiceWithScopedTracing(delegate)}.
+     */
+    public static ExecutorServiceWithScopedTracing withTracing(ExecutorService delegate) {
+        return new ExecutorServiceWithScopedTracing(delegate);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(new CallableWithScopedTracing<>(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(new RunnableWithScopedTracing(task), result);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(new RunnableWithScopedTracing(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(convertToCallableWithScopedTracingList(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(
+        Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit
+    ) throws InterruptedException {
+        return delegate.invokeAll(convertToCallableWithScopedTracingList(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(convertToCallableWithScopedTracingList(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(
+        Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit
+    ) throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(convertToCallableWithScopedTracingList(tasks), timeout, unit);
+    }
+
+    protected <T> List<Callable<T>> convertToCallableWithScopedTracingList(Collection<? extends Callable<T>> tasks) {
+        if (tasks == null) {
+            return null;
+        }
+
+        List<Callable<T>> tasksWithTracing = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            Callable<T> taskWithTracing = (task == null) ? null : new CallableWithScopedTracing<>(task);
+            tasksWithTracing.add(taskWithTracing);
+        }
+
+        return tasksWithTracing;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(new RunnableWithScopedTracing(command));
+    }
+}
@@ -0,0 +1,52 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+
+import java.util.Deque;
+
+/**
+ * A {@link Runnable} that wraps the given original so it runs in a new {@link ScopedValueContextStorage} context holding the given span stack. See
+ * {@link ScopedTracing#runWithSpanStack(Deque, Runnable)}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RunnableWithScopedTracing implements Runnable {
+
+    protected final Runnable origRunnable;
+    protected final Deque<Span> spanStackForExecution;
+
+    /**
+     * Constructor that captures the current thread's span stack using {@link Tracer#getCurrentSpanStackCopy()}, which is a cheap copy-on-write
+     * snapshot.
+     *
+     * <p>The operation you pass in cannot be null (an {@link IllegalArgumentException} will be thrown if you pass in null for the operation).
+     */
+    public RunnableWithScopedTracing(Runnable origRunnable) {
+        this(origRunnable, Tracer.getInstance().getCurrentSpanStackCopy());
+    }
+
+    /**
+     * Constructor that uses the given span stack, which can be null.
+     *
+     * <p>The operation you pass in cannot be null (an {@link IllegalArgumentException} will be thrown if you pass in null for the operation).
+     */
+    public RunnableWithScopedTracing(Runnable origRunnable, Deque<Span> spanStackForExecution) {
+        if (origRunnable == null)
+            throw new IllegalArgumentException("origRunnable cannot be null");
+
+        this.origRunnable = origRunnable;
+        this.spanStackForExecution = spanStackForExecution;
+    }
+
+    /**
+     * Equivalent to calling {@code new RunnableWithScopedTracing(origRunnable)}.
+     */
+    public static RunnableWithScopedTracing withTracing(Runnable origRunnable) {
+        return new RunnableWithScopedTracing(origRunnable);
+    }
+
+    @Override
+    public void run() {
+        ScopedTracing.runWithSpanStack(spanStackForExecution, origRunnable);
+    }
+}
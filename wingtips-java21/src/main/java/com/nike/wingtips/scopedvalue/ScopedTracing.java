@@ -0,0 +1,120 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Static helpers for hopping tracing state onto virtual threads and {@link java.util.concurrent.StructuredTaskScope} subtasks when {@link Tracer}
+ * is using a {@link ScopedValueContextStorage}. Each helper runs the task in a new {@link ScopedValue}-bound context that holds a copy of the
+ * caller's span stack, so {@link Tracer#getCurrentSpan()} resolves to the caller's current span inside the task, and everything is gone when the
+ * task returns - there's nothing to clean up and nothing left behind on the thread.
+ *
+ * <p>Unlike the core {@link com.nike.wingtips.util.asynchelperwrapper.RunnableWithTracing} these helpers don't copy the MDC map. Only the Wingtips
+ * MDC keys are set, from the span that's current inside the task.
+ *
+ * <p>Structured concurrency usage example:
+ * <pre>
+ * try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+ *     Subtask&lt;Foo&gt; foo = scope.fork(ScopedTracing.callableWithTracing(() -&gt; fetchFoo()));
+ *     Subtask&lt;Bar&gt; bar = scope.fork(ScopedTracing.callableWithTracing(() -&gt; fetchBar()));
+ *     scope.join().throwIfFailed();
+ *     // ...
+ * }
+ * </pre>
+ * Subtasks that aren't wrapped start with a copy of the parent's span stack as of the first time they use {@link Tracer}, which costs a lookup on
+ * every {@link Tracer} call (see {@link ScopedValueContextStorage}).
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScopedTracing {
+
+    // Intentionally protected - use the static methods.
+    protected ScopedTracing() { /* do nothing */ }
+
+    /**
+     * @return A {@link Runnable} that runs the given one with a copy of the current thread's span stack - see {@link RunnableWithScopedTracing}.
+     */
+    public static Runnable runnableWithTracing(Runnable runnable) {
+        return new RunnableWithScopedTracing(runnable);
+    }
+
+    /**
+     * @return A {@link Callable} that calls the given one with a copy of the current thread's span stack - see {@link CallableWithScopedTracing}.
+     */
+    public static <T> Callable<T> callableWithTracing(Callable<T> callable) {
+        return new CallableWithScopedTracing<>(callable);
+    }
+
+    /**
+     * @return An {@link ExecutorService} that wraps the given one so submitted tasks run with a copy of the submitting thread's span stack - see
+     * {@link ExecutorServiceWithScopedTracing}.
+     */
+    public static ExecutorServiceWithScopedTracing executorServiceWithTracing(ExecutorService delegate) {
+        return new ExecutorServiceWithScopedTracing(delegate);
+    }
+
+    /**
+     * @return {@link Executors#newVirtualThreadPerTaskExecutor()} wrapped in an {@link ExecutorServiceWithScopedTracing}.
+     */
+    public static ExecutorServiceWithScopedTracing newVirtualThreadPerTaskExecutor() {
+        return new ExecutorServiceWithScopedTracing(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Runs the given task in a new {@link ScopedValueContextStorage} context with the given span stack registered. The span stack can be null, in
+     * which case the task runs with an empty stack.
+     */
+    public static void runWithSpanStack(final Deque<Span> spanStack, final Runnable task) {
+        ScopedValueContextStorage.runInNewContext(new Runnable() {
+            @Override
+            public void run() {
+                Tracer.getInstance().registerWithThread(spanStack);
+                try {
+                    task.run();
+                }
+                finally {
+                    Tracer.getInstance().unregisterFromThread();
+                }
+            }
+        });
+        restoreMdcForCurrentContext();
+    }
+
+    /**
+     * Calls the given task in a new {@link ScopedValueContextStorage} context with the given span stack registered, and returns its result. The span
+     * stack can be null, in which case the task runs with an empty stack.
+     */
+    public static <T> T callWithSpanStack(final Deque<Span> spanStack, final Callable<T> task) throws Exception {
+        try {
+            return ScopedValueContextStorage.callInNewContext(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    Tracer.getInstance().registerWithThread(spanStack);
+                    try {
+                        return task.call();
+                    }
+                    finally {
+                        Tracer.getInstance().unregisterFromThread();
+                    }
+                }
+            });
+        }
+        finally {
+            restoreMdcForCurrentContext();
+        }
+    }
+
+    /**
+     * The MDC is per-thread rather than per-context, so the inner context clears the Wingtips MDC keys when it ends. That's a no-op on a fresh
+     * virtual thread, but when the task ran on a thread that already had a span (e.g. a caller-runs executor) this puts that span's info back.
+     */
+    protected static void restoreMdcForCurrentContext() {
+        Tracer tracer = Tracer.getInstance();
+        if (tracer.getCurrentSpan() != null)
+            tracer.registerWithThread(tracer.unregisterFromThread());
+    }
+}
@@ -0,0 +1,54 @@
+package com.nike.wingtips.scopedvalue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * A servlet {@link Filter} that runs the rest of the filter chain in a new {@link ScopedValueContextStorage} context, so request threads start
+ * inside a {@link ScopedValue} binding. Without it the request span that {@code RequestTracingFilter} starts (and everything traced while
+ * handling the request) lives in the storage's fallback {@link ThreadLocal}, since nothing else binds a context for the request thread.
+ *
+ * <p>Register this ahead of {@code RequestTracingFilter}, for the same dispatcher types. Each dispatch gets its own binding, which ends when the
+ * dispatch returns - work that continues on other threads after {@code startAsync()} should be handed off with the {@link ScopedTracing}
+ * wrappers as usual.
+ */
+public class ScopedValueContextFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        // Nothing to do
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+        throws IOException, ServletException {
+        try {
+            ScopedValueContextStorage.callInNewContext(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    chain.doFilter(request, response);
+                    return null;
+                }
+            });
+        }
+        catch (IOException | ServletException | RuntimeException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            // FilterChain.doFilter() can't throw any other checked exception.
+            throw new ServletException(ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to do
+    }
+}
@@ -0,0 +1,120 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+import com.nike.wingtips.contextstorage.ThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link TracerContextStorage} for virtual threads that keeps {@link Tracer}'s context in a {@link ScopedValue} binding rather than a {@link
+ * ThreadLocal}. Code run via {@link #runInNewContext(Runnable)} or {@link #callInNewContext(Callable)} (which is what {@link ScopedTracing} and the
+ * {@code *WithScopedTracing} wrappers do) gets a fresh context that exists only for the duration of the call, so a short-lived virtual thread never
+ * allocates a {@link ThreadLocal} map entry for tracing. Code that isn't inside a binding uses the fallback storage given to the constructor (a
+ * {@link ThreadLocalContextStorage} by default).
+ *
+ * <p>Subtasks forked in a {@link java.util.concurrent.StructuredTaskScope} inherit their parent's bindings, but a context can only be used by the
+ * thread that bound it. So a bound context publishes a snapshot of its span stack every time a span is pushed or popped, and a subtask that uses
+ * {@link Tracer} gets a fork-local context (kept on the binding, not in a {@link ThreadLocal}) that starts out with the parent's span stack as of
+ * that first use. The fork-local stack shares the snapshot's spans until the subtask pushes or pops one of its own. Wrapping forked tasks with
+ * {@link ScopedTracing#callableWithTracing(Callable)} is still cheaper, since the subtask then gets its own binding and doesn't have to look its
+ * context up. Subtasks forked by an unwrapped subtask see the outermost parent's span stack, not their direct parent's.
+ *
+ * <p>Request threads need to start inside a binding too, or everything they trace (including the request span) uses the fallback storage.
+ * Register a {@link ScopedValueContextFilter} ahead of {@code RequestTracingFilter}, or run each request through {@link #runInNewContext(Runnable)}
+ * some other way.
+ *
+ * <p>Install it at startup with {@code Tracer.getInstance().setContextStorage(new ScopedValueContextStorage())}. The default ID generation strategy
+ * also keeps per-thread state in a {@link ThreadLocal}, so on virtual threads you'll want {@code
+ * TraceAndSpanIdGenerator.setIdGenerationStrategy(new ThreadLocalRandomIdGenerationStrategy())} as well.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScopedValueContextStorage implements TracerContextStorage {
+
+    protected static final ScopedValue<BoundContext> BOUND_CONTEXT = ScopedValue.newInstance();
+
+    protected final TracerContextStorage fallbackStorage;
+
+    /**
+     * Creates a new instance that uses a {@link ThreadLocalContextStorage} for code that isn't inside a binding.
+     */
+    public ScopedValueContextStorage() {
+        this(new ThreadLocalContextStorage());
+    }
+
+    /**
+     * Creates a new instance that uses the given storage for code that isn't inside a binding.
+     */
+    public ScopedValueContextStorage(TracerContextStorage fallbackStorage) {
+        if (fallbackStorage == null)
+            throw new IllegalArgumentException("fallbackStorage cannot be null");
+
+        this.fallbackStorage = fallbackStorage;
+    }
+
+    @Override
+    public SpanStackThreadContext get() {
+        if (BOUND_CONTEXT.isBound()) {
+            BoundContext boundContext = BOUND_CONTEXT.get();
+            // Forked subtasks inherit the binding, but the context is only safe to use on the thread that created it.
+            Thread currentThread = Thread.currentThread();
+            if (boundContext.owner == currentThread)
+                return boundContext.context;
+
+            return boundContext.getForkContext(currentThread);
+        }
+
+        return fallbackStorage.get();
+    }
+
+    /**
+     * Runs the given task with a new empty context bound to the current thread. This only affects {@link Tracer} if a {@link
+     * ScopedValueContextStorage} is its {@link Tracer#getContextStorage()}.
+     */
+    public static void runInNewContext(Runnable task) {
+        ScopedValue.where(BOUND_CONTEXT, new BoundContext(Thread.currentThread())).run(task);
+    }
+
+    /**
+     * Calls the given task with a new empty context bound to the current thread and returns its result. This only affects {@link Tracer} if a
+     * {@link ScopedValueContextStorage} is its {@link Tracer#getContextStorage()}.
+     */
+    public static <T> T callInNewContext(Callable<T> task) throws Exception {
+        return ScopedValue.where(BOUND_CONTEXT, new BoundContext(Thread.currentThread())).call(task::call);
+    }
+
+    /**
+     * A context bound by {@link #runInNewContext(Runnable)} or {@link #callInNewContext(Callable)}, along with the thread it belongs to and the
+     * contexts of any forked subtasks that inherited the binding.
+     */
+    protected static final class BoundContext {
+        final Thread owner;
+        // Publishes its span stack so forked subtasks can copy it.
+        final SpanStackThreadContext context = new SpanStackThreadContext(true);
+        // Created on first use, since most bindings are never used from a forked subtask. Weak keys so finished subtasks don't keep their contexts
+        //      around for the rest of the binding.
+        private Map<Thread, SpanStackThreadContext> forkContexts;
+
+        BoundContext(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * @return The given forked subtask's context, created from the owner's published span stack the first time the subtask asks for it.
+         */
+        synchronized SpanStackThreadContext getForkContext(Thread fork) {
+            if (forkContexts == null)
+                forkContexts = new WeakHashMap<>();
+
+            SpanStackThreadContext forkContext = forkContexts.get(fork);
+            if (forkContext == null) {
+                forkContext = context.copyPublishedSpanStackForNewThread();
+                forkContexts.put(fork, forkContext);
+            }
+            return forkContext;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ExecutorServiceWithScopedTracing}.
+ */
+public class ExecutorServiceWithScopedTracingTest {
+
+    private TracerContextStorage originalStorage;
+    private ExecutorService delegate;
+    private ExecutorServiceWithScopedTracing executor;
+    private Span parentSpan;
+
+    @Before
+    public void beforeMethod() {
+        originalStorage = Tracer.getInstance().getContextStorage();
+        Tracer.getInstance().setContextStorage(new ScopedValueContextStorage());
+        delegate = Executors.newFixedThreadPool(2);
+        executor = ExecutorServiceWithScopedTracing.withTracing(delegate);
+        parentSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+    }
+
+    @After
+    public void afterMethod() {
+        delegate.shutdownNow();
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setContextStorage(originalStorage);
+    }
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_delegate() {
+        // when
+        Throwable ex = catchThrowable(() -> new ExecutorServiceWithScopedTracing(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void submit_callable_runs_with_the_callers_span() throws Exception {
+        // when
+        Future<Span> future = executor.submit(() -> Tracer.getInstance().getCurrentSpan());
+
+        // then
+        assertThat(future.get()).isSameAs(parentSpan);
+    }
+
+    @Test
+    public void submit_runnable_runs_with_the_callers_span() throws Exception {
+        // given
+        final AtomicReference<Span> spanDuringTask = new AtomicReference<>();
+
+        // when
+        executor.submit(() -> spanDuringTask.set(Tracer.getInstance().getCurrentSpan())).get();
+
+        // then
+        assertThat(spanDuringTask.get()).isSameAs(parentSpan);
+    }
+
+    @Test
+    public void submit_runnable_with_result_runs_with_the_callers_span_and_returns_the_result() throws Exception {
+        // given
+        final AtomicReference<Span> spanDuringTask = new AtomicReference<>();
+
+        // when
+        String result = executor.submit(() -> spanDuringTask.set(Tracer.getInstance().getCurrentSpan()), "foo").get();
+
+        // then
+        assertThat(result).isEqualTo("foo");
+        assertThat(spanDuringTask.get()).isSameAs(parentSpan);
+    }
+
+    @Test
+    public void execute_runs_with_the_callers_span() throws Exception {
+        // given
+        final AtomicReference<Span> spanDuringTask = new AtomicReference<>();
+
+        // when
+        executor.execute(() -> spanDuringTask.set(Tracer.getInstance().getCurrentSpan()));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(spanDuringTask.get()).isSameAs(parentSpan);
+        assertThat(executor.isShutdown()).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+    }
+
+    @Test
+    public void invokeAll_and_invokeAny_run_with_the_callers_span() throws Exception {
+        // given
+        Callable<Span> task = () -> Tracer.getInstance().getCurrentSpan();
+        List<Callable<Span>> tasks = Arrays.asList(task, task);
+
+        // when
+        List<Future<Span>> all = executor.invokeAll(tasks);
+        List<Future<Span>> allWithTimeout = executor.invokeAll(tasks, 10, TimeUnit.SECONDS);
+        Span any = executor.invokeAny(tasks);
+        Span anyWithTimeout = executor.invokeAny(tasks, 10, TimeUnit.SECONDS);
+
+        // then
+        for (Future<Span> future : all) {
+            assertThat(future.get()).isSameAs(parentSpan);
+        }
+        for (Future<Span> future : allWithTimeout) {
+            assertThat(future.get()).isSameAs(parentSpan);
+        }
+        assertThat(any).isSameAs(parentSpan);
+        assertThat(anyWithTimeout).isSameAs(parentSpan);
+    }
+
+    @Test
+    public void convertToCallableWithScopedTracingList_handles_null() {
+        // expect
+        assertThat(executor.convertToCallableWithScopedTracingList(null)).isNull();
+    }
+
+    @Test
+    public void close_and_shutdownNow_pass_through_to_the_delegate() {
+        // when
+        executor.close();
+
+        // then
+        assertThat(delegate.isTerminated()).isTrue();
+        assertThat(executor.shutdownNow()).isEmpty();
+    }
+}
@@ -0,0 +1,222 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+import com.nike.wingtips.idgeneration.IdGenerationStrategy;
+import com.nike.wingtips.idgeneration.ThreadLocalRandomIdGenerationStrategy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ScopedTracing} and the {@link RunnableWithScopedTracing} and {@link CallableWithScopedTracing} wrappers.
+ */
+public class ScopedTracingTest {
+
+    private TracerContextStorage originalStorage;
+
+    @Before
+    public void beforeMethod() {
+        originalStorage = Tracer.getInstance().getContextStorage();
+        Tracer.getInstance().setContextStorage(new ScopedValueContextStorage());
+    }
+
+    @After
+    public void afterMethod() {
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setContextStorage(originalStorage);
+        MDC.clear();
+    }
+
+    @Test
+    public void RunnableWithScopedTracing_constructor_throws_IllegalArgumentException_if_passed_null_runnable() {
+        // when
+        Throwable ex = catchThrowable(() -> new RunnableWithScopedTracing(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void CallableWithScopedTracing_constructor_throws_IllegalArgumentException_if_passed_null_callable() {
+        // when
+        Throwable ex = catchThrowable(() -> new CallableWithScopedTracing<>(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void runWithSpanStack_registers_the_span_stack_only_for_the_duration_of_the_task() {
+        // given
+        Span span = Tracer.getInstance().startRequestWithRootSpan("root");
+        Deque<Span> spanStack = Tracer.getInstance().unregisterFromThread();
+        final AtomicReference<Span> spanDuringTask = new AtomicReference<>();
+        final AtomicReference<String> mdcTraceIdDuringTask = new AtomicReference<>();
+
+        // when
+        ScopedTracing.runWithSpanStack(spanStack, () -> {
+            spanDuringTask.set(Tracer.getInstance().getCurrentSpan());
+            mdcTraceIdDuringTask.set(MDC.get(Tracer.TRACE_ID_MDC_KEY));
+        });
+
+        // then
+        assertThat(spanDuringTask.get()).isSameAs(span);
+        assertThat(mdcTraceIdDuringTask.get()).isEqualTo(span.getTraceId());
+        assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
+        assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isNull();
+    }
+
+    @Test
+    public void callWithSpanStack_on_a_thread_with_its_own_span_leaves_that_span_and_its_MDC_alone() throws Exception {
+        // given
+        Span span = Tracer.getInstance().startRequestWithRootSpan("root");
+
+        // when
+        String innerSpanName = ScopedTracing.callWithSpanStack(Tracer.getInstance().getCurrentSpanStackCopy(), () -> {
+            Tracer.getInstance().startSubSpan("inner", SpanPurpose.LOCAL_ONLY);
+            return Tracer.getInstance().getCurrentSpan().getSpanName();
+        });
+
+        // then
+        assertThat(innerSpanName).isEqualTo("inner");
+        assertThat(Tracer.getInstance().getCurrentSpan()).isSameAs(span);
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(1);
+        assertThat(MDC.get(Tracer.TRACE_ID_MDC_KEY)).isEqualTo(span.getTraceId());
+    }
+
+    @Test
+    public void runWithSpanStack_works_with_a_null_span_stack() {
+        // given
+        final AtomicReference<Span> spanDuringTask = new AtomicReference<>();
+
+        // when
+        ScopedTracing.runWithSpanStack(null, () -> spanDuringTask.set(Tracer.getInstance().getCurrentSpan()));
+
+        // then
+        assertThat(spanDuringTask.get()).isNull();
+    }
+
+    @Test
+    public void newVirtualThreadPerTaskExecutor_propagates_the_callers_span_to_virtual_threads() throws Exception {
+        // given
+        final Span parentSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+        List<Future<Span>> futures = new ArrayList<>();
+
+        // when
+        try (ExecutorService executor = ScopedTracing.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> {
+                    assertThat(Thread.currentThread().isVirtual()).isTrue();
+                    assertThat(Tracer.getInstance().getCurrentSpan()).isSameAs(parentSpan);
+                    Span subSpan = Tracer.getInstance().startSubSpan("child", SpanPurpose.LOCAL_ONLY);
+                    Tracer.getInstance().completeSubSpan();
+                    return subSpan;
+                }));
+            }
+        }
+
+        // then
+        for (Future<Span> future : futures) {
+            Span subSpan = future.get();
+            assertThat(subSpan.getTraceId()).isEqualTo(parentSpan.getTraceId());
+            assertThat(subSpan.getParentSpanId()).isEqualTo(parentSpan.getSpanId());
+            assertThat(subSpan.isCompleted()).isTrue();
+        }
+        assertThat(Tracer.getInstance().getCurrentSpan()).isSameAs(parentSpan);
+        assertThat(Tracer.getInstance().getCurrentSpanStackSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void virtual_threads_get_unique_span_ids_from_ThreadLocalRandomIdGenerationStrategy() throws Exception {
+        // given
+        IdGenerationStrategy originalStrategy = TraceAndSpanIdGenerator.getIdGenerationStrategy();
+        TraceAndSpanIdGenerator.setIdGenerationStrategy(new ThreadLocalRandomIdGenerationStrategy());
+        final Span parentSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+        int numTasks = 1000;
+        List<Future<String>> futures = new ArrayList<>();
+        Set<String> spanIds = new HashSet<>();
+
+        // when
+        try (ExecutorService executor = ScopedTracing.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < numTasks; i++) {
+                futures.add(executor.submit(() -> {
+                    Span childSpan = Tracer.getInstance().startSubSpan("child", SpanPurpose.LOCAL_ONLY);
+                    Tracer.getInstance().completeSubSpan();
+                    return childSpan.getSpanId();
+                }));
+            }
+            for (Future<String> future : futures) {
+                spanIds.add(future.get());
+            }
+        }
+        finally {
+            TraceAndSpanIdGenerator.setIdGenerationStrategy(originalStrategy);
+        }
+
+        // then
+        assertThat(spanIds).hasSize(numTasks).doesNotContain(parentSpan.getSpanId());
+    }
+
+    @Test
+    public void callableWithTracing_makes_getCurrentSpan_resolve_in_forked_subtasks() throws Exception {
+        // given
+        final Span parentSpan = Tracer.getInstance().startRequestWithRootSpan("root");
+        Callable<Span> getCurrentSpan = () -> Tracer.getInstance().getCurrentSpan();
+
+        // when
+        Subtask<Span> wrapped;
+        Subtask<Span> unwrapped;
+        try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            wrapped = scope.fork(ScopedTracing.callableWithTracing(getCurrentSpan));
+            unwrapped = scope.fork(getCurrentSpan);
+            scope.join().throwIfFailed();
+        }
+
+        // then
+        assertThat(wrapped.get()).isSameAs(parentSpan);
+        // The parent isn't inside a binding here, so there's no published span stack for the unwrapped subtask to copy.
+        assertThat(unwrapped.get()).isNull();
+    }
+
+    @Test
+    public void forked_subtasks_inside_a_wrapped_task_see_the_wrapped_tasks_span() throws Exception {
+        // given
+        Tracer.getInstance().startRequestWithRootSpan("root");
+
+        // when
+        Span[] result = ScopedTracing.callableWithTracing(() -> {
+            Span childSpan = Tracer.getInstance().startSubSpan("child", SpanPurpose.LOCAL_ONLY);
+            try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                Subtask<Span> grandchild = scope.fork(ScopedTracing.callableWithTracing(
+                    () -> Tracer.getInstance().startSubSpan("grandchild", SpanPurpose.LOCAL_ONLY)
+                ));
+                scope.join().throwIfFailed();
+                return new Span[]{ childSpan, grandchild.get() };
+            }
+        }).call();
+
+        // then
+        assertThat(result[1].getParentSpanId()).isEqualTo(result[0].getSpanId());
+    }
+}
@@ -0,0 +1,87 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+import com.nike.wingtips.contextstorage.ThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ScopedValueContextFilter}.
+ */
+public class ScopedValueContextFilterTest {
+
+    private final TracerContextStorage fallbackStorage = new ThreadLocalContextStorage();
+    private final ScopedValueContextStorage storage = new ScopedValueContextStorage(fallbackStorage);
+    private final ScopedValueContextFilter filter = new ScopedValueContextFilter();
+    // The filter only passes these through to the chain.
+    private final ServletRequest request = null;
+    private final ServletResponse response = null;
+    private TracerContextStorage originalStorage;
+
+    @Before
+    public void beforeMethod() {
+        originalStorage = Tracer.getInstance().getContextStorage();
+        Tracer.getInstance().setContextStorage(storage);
+    }
+
+    @After
+    public void afterMethod() {
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setContextStorage(originalStorage);
+    }
+
+    @Test
+    public void doFilter_runs_the_rest_of_the_chain_in_a_new_binding() throws Exception {
+        // given
+        final AtomicReference<SpanStackThreadContext> contextDuringChain = new AtomicReference<>();
+        final AtomicReference<Span> spanDuringChain = new AtomicReference<>();
+        FilterChain chain = (req, res) -> {
+            contextDuringChain.set(storage.get());
+            spanDuringChain.set(Tracer.getInstance().startRequestWithRootSpan("request"));
+            Tracer.getInstance().completeRequestSpan();
+        };
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertThat(contextDuringChain.get()).isNotNull().isNotSameAs(fallbackStorage.get());
+        assertThat(spanDuringChain.get().isCompleted()).isTrue();
+        assertThat(storage.get()).isSameAs(fallbackStorage.get());
+        assertThat(Tracer.getInstance().getCurrentSpan()).isNull();
+    }
+
+    @Test
+    public void doFilter_propagates_exceptions_from_the_chain_unchanged() {
+        // given
+        final IOException ioException = new IOException("intentional test exception");
+        final ServletException servletException = new ServletException("intentional test exception");
+        final RuntimeException runtimeException = new RuntimeException("intentional test exception");
+
+        // when
+        Throwable first = catchThrowable(() -> filter.doFilter(request, response, (req, res) -> { throw ioException; }));
+        Throwable second = catchThrowable(() -> filter.doFilter(request, response, (req, res) -> { throw servletException; }));
+        Throwable third = catchThrowable(() -> filter.doFilter(request, response, (req, res) -> { throw runtimeException; }));
+
+        // then
+        assertThat(first).isSameAs(ioException);
+        assertThat(second).isSameAs(servletException);
+        assertThat(third).isSameAs(runtimeException);
+    }
+}
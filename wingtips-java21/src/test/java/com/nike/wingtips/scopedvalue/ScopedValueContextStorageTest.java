@@ -0,0 +1,176 @@
+package com.nike.wingtips.scopedvalue;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanStackThreadContext;
+import com.nike.wingtips.contextstorage.ThreadLocalContextStorage;
+import com.nike.wingtips.contextstorage.TracerContextStorage;
+
+import org.junit.Test;
+
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ScopedValueContextStorage}.
+ */
+public class ScopedValueContextStorageTest {
+
+    private final TracerContextStorage fallbackStorage = new ThreadLocalContextStorage();
+    private final ScopedValueContextStorage storage = new ScopedValueContextStorage(fallbackStorage);
+
+    @Test
+    public void constructor_throws_IllegalArgumentException_if_passed_null_fallbackStorage() {
+        // when
+        Throwable ex = catchThrowable(() -> new ScopedValueContextStorage(null));
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void get_uses_fallback_storage_outside_of_a_binding() {
+        // expect
+        assertThat(storage.get()).isSameAs(fallbackStorage.get());
+    }
+
+    @Test
+    public void default_constructor_uses_a_ThreadLocalContextStorage_fallback() {
+        // expect
+        assertThat(new ScopedValueContextStorage().fallbackStorage).isInstanceOf(ThreadLocalContextStorage.class);
+    }
+
+    @Test
+    public void runInNewContext_binds_a_new_context_for_the_duration_of_the_call() {
+        // given
+        final AtomicReference<SpanStackThreadContext> first = new AtomicReference<>();
+        final AtomicReference<SpanStackThreadContext> second = new AtomicReference<>();
+
+        // when
+        ScopedValueContextStorage.runInNewContext(() -> {
+            first.set(storage.get());
+            second.set(storage.get());
+        });
+
+        // then
+        assertThat(first.get()).isNotNull();
+        assertThat(first.get()).isSameAs(second.get());
+        assertThat(first.get()).isNotSameAs(fallbackStorage.get());
+        assertThat(storage.get()).isSameAs(fallbackStorage.get());
+    }
+
+    @Test
+    public void callInNewContext_binds_a_new_context_and_returns_the_result() throws Exception {
+        // when
+        SpanStackThreadContext result = ScopedValueContextStorage.callInNewContext(storage::get);
+
+        // then
+        assertThat(result).isNotNull();
+        assertThat(result).isNotSameAs(fallbackStorage.get());
+    }
+
+    @Test
+    public void nested_bindings_get_their_own_context() {
+        // given
+        final AtomicReference<SpanStackThreadContext> outer = new AtomicReference<>();
+        final AtomicReference<SpanStackThreadContext> inner = new AtomicReference<>();
+        final AtomicReference<SpanStackThreadContext> outerAfterInner = new AtomicReference<>();
+
+        // when
+        ScopedValueContextStorage.runInNewContext(() -> {
+            outer.set(storage.get());
+            ScopedValueContextStorage.runInNewContext(() -> inner.set(storage.get()));
+            outerAfterInner.set(storage.get());
+        });
+
+        // then
+        assertThat(inner.get()).isNotSameAs(outer.get());
+        assertThat(outerAfterInner.get()).isSameAs(outer.get());
+    }
+
+    @Test
+    public void forked_subtasks_do_not_share_the_parent_context() throws Exception {
+        // given
+        final AtomicReference<SpanStackThreadContext> parentContext = new AtomicReference<>();
+        final AtomicReference<SpanStackThreadContext> subtaskContext = new AtomicReference<>();
+
+        // when
+        ScopedValueContextStorage.callInNewContext(() -> {
+            parentContext.set(storage.get());
+            try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                Subtask<SpanStackThreadContext> subtask = scope.fork(storage::get);
+                scope.join().throwIfFailed();
+                subtaskContext.set(subtask.get());
+            }
+            return null;
+        });
+
+        // then
+        assertThat(subtaskContext.get()).isNotNull();
+        assertThat(subtaskContext.get()).isNotSameAs(parentContext.get());
+    }
+
+    @Test
+    public void forked_subtasks_reuse_their_fork_context_and_do_not_affect_the_parent() throws Exception {
+        // given
+        final AtomicReference<SpanStackThreadContext> parentContext = new AtomicReference<>();
+
+        // when
+        SpanStackThreadContext[] forkContexts = ScopedValueContextStorage.callInNewContext(() -> {
+            parentContext.set(storage.get());
+            try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                Subtask<SpanStackThreadContext[]> subtask = scope.fork(() -> new SpanStackThreadContext[]{ storage.get(), storage.get() });
+                scope.join().throwIfFailed();
+                return subtask.get();
+            }
+        });
+
+        // then
+        assertThat(forkContexts[0]).isNotNull();
+        assertThat(forkContexts[1]).isSameAs(forkContexts[0]);
+        assertThat(forkContexts[0]).isNotSameAs(parentContext.get());
+    }
+
+    @Test
+    public void forked_subtasks_see_the_parents_current_span_and_keep_their_own_spans_to_themselves() throws Exception {
+        // given
+        TracerContextStorage originalStorage = Tracer.getInstance().getContextStorage();
+        Tracer.getInstance().setContextStorage(storage);
+        final AtomicReference<Span> parentSpan = new AtomicReference<>();
+        final AtomicReference<Span> seenByFork = new AtomicReference<>();
+        final AtomicReference<Span> forkSubSpan = new AtomicReference<>();
+        final AtomicReference<Span> parentSpanAfterFork = new AtomicReference<>();
+
+        try {
+            // when
+            ScopedValueContextStorage.callInNewContext(() -> {
+                parentSpan.set(Tracer.getInstance().startRequestWithRootSpan("parent"));
+                try (StructuredTaskScope.ShutdownOnFailure scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                    scope.fork(() -> {
+                        seenByFork.set(Tracer.getInstance().getCurrentSpan());
+                        forkSubSpan.set(Tracer.getInstance().startSubSpan("fork-child", SpanPurpose.LOCAL_ONLY));
+                        Tracer.getInstance().completeSubSpan();
+                        return null;
+                    });
+                    scope.join().throwIfFailed();
+                }
+                parentSpanAfterFork.set(Tracer.getInstance().getCurrentSpan());
+                Tracer.getInstance().completeRequestSpan();
+                return null;
+            });
+        }
+        finally {
+            Tracer.getInstance().setContextStorage(originalStorage);
+        }
+
+        // then
+        assertThat(seenByFork.get()).isSameAs(parentSpan.get());
+        assertThat(forkSubSpan.get().getParentSpanId()).isEqualTo(parentSpan.get().getSpanId());
+        assertThat(parentSpanAfterFork.get()).isSameAs(parentSpan.get());
+    }
+}
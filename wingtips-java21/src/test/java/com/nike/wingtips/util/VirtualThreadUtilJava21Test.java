@@ -0,0 +1,68 @@
+package com.nike.wingtips.util;
+
+import com.nike.wingtips.Span;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link VirtualThreadUtil} and the code that uses it against real virtual threads.
+ */
+public class VirtualThreadUtilJava21Test {
+
+    @Test
+    public void isVirtualThread_returns_true_for_a_virtual_thread() throws InterruptedException {
+        // given
+        AtomicBoolean result = new AtomicBoolean(false);
+        Thread thread = Thread.ofVirtual().unstarted(() -> result.set(VirtualThreadUtil.isCurrentThreadVirtual()));
+
+        // when
+        thread.start();
+        thread.join();
+
+        // then
+        assertThat(VirtualThreadUtil.isVirtualThread(thread)).isTrue();
+        assertThat(result.get()).isTrue();
+    }
+
+    @Test
+    public void isVirtualThread_returns_false_for_a_platform_thread() {
+        // expect
+        assertThat(VirtualThreadUtil.isVirtualThread(Thread.ofPlatform().unstarted(() -> { }))).isFalse();
+    }
+
+    @Test
+    public void span_serializes_the_same_on_a_virtual_thread_as_on_a_platform_thread() throws InterruptedException {
+        // given
+        Span virtualThreadSpan = completedSpan();
+        Span platformThreadSpan = completedSpan();
+        AtomicReference<String> json = new AtomicReference<>();
+        AtomicReference<String> keyValue = new AtomicReference<>();
+
+        // when
+        Thread thread = Thread.ofVirtual().start(() -> {
+            json.set(virtualThreadSpan.toJSON());
+            keyValue.set(virtualThreadSpan.toKeyValueString());
+        });
+        thread.join();
+
+        // then
+        assertThat(json.get()).isEqualTo(platformThreadSpan.toJSON());
+        assertThat(keyValue.get()).isEqualTo(platformThreadSpan.toKeyValueString());
+    }
+
+    private static Span completedSpan() {
+        return Span.newBuilder("someSpan", Span.SpanPurpose.SERVER)
+                   .withTraceId(42L)
+                   .withSpanId(4242L)
+                   .withParentSpanId(7L)
+                   .withUserId("someUser")
+                   .withSpanStartTimeEpochMicros(1_700_000_000_000_000L)
+                   .withDurationNanos(1234L)
+                   .build();
+    }
+}
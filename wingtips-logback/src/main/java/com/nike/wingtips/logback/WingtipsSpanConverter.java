@@ -0,0 +1,94 @@
+package com.nike.wingtips.logback;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.MdcPopulationMode;
+import com.nike.wingtips.Tracer.SpanLoggingRepresentation;
+
+import java.util.Map;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * A logback pattern converter that outputs the current span as JSON (or key/value with a {@code KEY_VALUE} option), rendering it only when a log
+ * pattern actually uses it. This is intended to be used with {@link Tracer#setMdcPopulationMode(MdcPopulationMode)} set to {@link
+ * MdcPopulationMode#TRACE_ID_AND_SPAN_ID}, so that {@link Tracer} doesn't serialize every span that becomes the current span just in case a log
+ * message needs it - spans are serialized the first time a log message that uses this converter is output for them (and {@link Span} caches the
+ * result for any further log messages).
+ *
+ * <p>Register it in logback.xml and use it in place of {@code %X{spanJson}}:
+ * <pre>
+ *  &lt;conversionRule conversionWord="spanJson" converterClass="com.nike.wingtips.logback.WingtipsSpanConverter"/&gt;
+ *  &lt;conversionRule conversionWord="spanKeyValue" converterClass="com.nike.wingtips.logback.WingtipsSpanConverter"/&gt;
+ *  ...
+ *  &lt;pattern&gt;%d %-5level [%X{traceId}] %logger - %msg %spanJson%n&lt;/pattern&gt;
+ *  &lt;pattern&gt;%d %-5level %logger - %msg %spanKeyValue{KEY_VALUE}%n&lt;/pattern&gt;
+ * </pre>
+ *
+ * <p>The span is resolved as follows:
+ * <ul>
+ *     <li>
+ *         If the event's MDC contains {@link Tracer#SPAN_JSON_MDC_KEY} (i.e. the default {@link MdcPopulationMode#TRACE_ID_AND_SPAN_JSON} mode)
+ *         and JSON output was requested, that value is output as-is.
+ *     </li>
+ *     <li>
+ *         Otherwise {@link Tracer#getCurrentSpan()} is used, but only if it matches the {@link Tracer#TRACE_ID_MDC_KEY} (and {@link
+ *         Tracer#SPAN_ID_MDC_KEY} if present) captured in the event's MDC. This guards against outputting the wrong span when the event is
+ *         formatted on a different thread than the one that logged it (e.g. with an {@code AsyncAppender}) - in that case nothing is output, so
+ *         if you use asynchronous appenders either stick with the default MDC population mode or use {@code %X{traceId}} and {@code %X{spanId}}.
+ *     </li>
+ *     <li>
+ *         If there's no matching span an empty string is output.
+ *     </li>
+ * </ul>
+ */
+@SuppressWarnings("WeakerAccess")
+public class WingtipsSpanConverter extends ClassicConverter {
+
+    protected SpanLoggingRepresentation representation = SpanLoggingRepresentation.JSON;
+
+    @Override
+    public void start() {
+        String option = getFirstOption();
+        if (option != null) {
+            try {
+                representation = SpanLoggingRepresentation.valueOf(option.trim());
+            }
+            catch (IllegalArgumentException ex) {
+                addError("Invalid WingtipsSpanConverter option \"" + option + "\" - expected JSON or KEY_VALUE. Defaulting to JSON.");
+            }
+        }
+
+        super.start();
+    }
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        Map<String, String> mdc = event.getMDCPropertyMap();
+
+        if (representation == SpanLoggingRepresentation.JSON) {
+            String eagerJson = mdc.get(Tracer.SPAN_JSON_MDC_KEY);
+            if (eagerJson != null)
+                return eagerJson;
+        }
+
+        Span span = Tracer.getInstance().getCurrentSpan();
+        if (span == null || !spanMatchesEventMdc(span, mdc))
+            return "";
+
+        return (representation == SpanLoggingRepresentation.KEY_VALUE) ? span.toKeyValueString() : span.toJSON();
+    }
+
+    /**
+     * @return true if the given span is the one that was current when the event was logged, based on the IDs captured in the event's MDC.
+     */
+    protected boolean spanMatchesEventMdc(Span span, Map<String, String> mdc) {
+        String traceId = mdc.get(Tracer.TRACE_ID_MDC_KEY);
+        if (traceId == null || !traceId.equals(span.getTraceId()))
+            return false;
+
+        String spanId = mdc.get(Tracer.SPAN_ID_MDC_KEY);
+        return spanId == null || spanId.equals(span.getSpanId());
+    }
+}
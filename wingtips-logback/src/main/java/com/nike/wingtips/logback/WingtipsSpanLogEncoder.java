@@ -0,0 +1,129 @@
+package com.nike.wingtips.logback;
+
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanLogMessageArg;
+import com.nike.wingtips.util.Utf8Util;
+import com.nike.wingtips.util.VirtualThreadUtil;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/**
+ * A logback {@link ch.qos.logback.core.encoder.Encoder} for the {@code VALID_WINGTIPS_SPANS} and {@code INVALID_WINGTIPS_SPANS} loggers that
+ * writes completed spans straight into a reusable per-thread buffer (a new one on virtual threads) and encodes them as UTF-8, without ever
+ * creating the span's JSON or key/value String or the formatted log message String. The only allocation per span is the final byte array logback's {@code Encoder} API requires.
+ *
+ * <p>Each log event is output as its message followed by a line separator - there's no timestamp, level, or logger name prefix - which makes
+ * this encoder a good fit for an appender dedicated to spans (e.g. a file that is shipped to a span collector). Events that don't contain a
+ * {@link SpanLogMessageArg} (i.e. anything that wasn't logged by {@link Tracer} when completing a span) are output using their normal formatted
+ * message.
+ *
+ * <p>Example logback.xml configuration:
+ * <pre>
+ *  &lt;appender name="SPANS" class="ch.qos.logback.core.FileAppender"&gt;
+ *      &lt;file&gt;spans.log&lt;/file&gt;
+ *      &lt;encoder class="com.nike.wingtips.logback.WingtipsSpanLogEncoder"/&gt;
+ *  &lt;/appender&gt;
+ *
+ *  &lt;logger name="VALID_WINGTIPS_SPANS" additivity="false"&gt;
+ *      &lt;appender-ref ref="SPANS"/&gt;
+ *  &lt;/logger&gt;
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public class WingtipsSpanLogEncoder extends EncoderBase<ILoggingEvent> {
+
+    /**
+     * The largest per-thread buffer that will be kept around for reuse - anything bigger is thrown away after use so an unusually large event
+     * doesn't pin a big buffer to the thread forever.
+     */
+    protected static final int MAX_REUSABLE_BUFFER_CAPACITY = 16 * 1024;
+
+    protected final ThreadLocal<StringBuilder> reusableBufferThreadLocal = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(512);
+        }
+    };
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        StringBuilder buffer = obtainBuffer();
+
+        appendMessage(event, buffer);
+        buffer.append(CoreConstants.LINE_SEPARATOR);
+
+        return Utf8Util.toBytes(buffer);
+    }
+
+    /**
+     * @return An empty buffer - the current thread's reusable one, or a new one on a virtual thread (which rarely lives long enough to reuse a
+     * buffer, so a {@link ThreadLocal} entry would just be thrown away with it).
+     */
+    protected StringBuilder obtainBuffer() {
+        if (VirtualThreadUtil.isCurrentThreadVirtual())
+            return new StringBuilder(512);
+
+        StringBuilder buffer = reusableBufferThreadLocal.get();
+        if (buffer.capacity() > MAX_REUSABLE_BUFFER_CAPACITY) {
+            buffer = new StringBuilder(512);
+            reusableBufferThreadLocal.set(buffer);
+        }
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    /**
+     * Appends the given event's message to the given buffer. If the event's arguments contain a {@link SpanLogMessageArg} then the message
+     * pattern's {@code {}} placeholders are filled in here, with spans written straight into the buffer via {@link
+     * SpanLogMessageArg#appendTo(StringBuilder)}. Otherwise (or if the pattern contains SLF4J escape characters this simple substitution doesn't
+     * handle) the event's {@link ILoggingEvent#getFormattedMessage()} is used.
+     */
+    protected void appendMessage(ILoggingEvent event, StringBuilder buffer) {
+        String pattern = event.getMessage();
+        Object[] args = event.getArgumentArray();
+        if (pattern == null || !containsSpanLogMessageArg(args) || pattern.indexOf('\\') >= 0) {
+            buffer.append(event.getFormattedMessage());
+            return;
+        }
+
+        int patternIndex = 0;
+        for (Object arg : args) {
+            int placeholderIndex = pattern.indexOf("{}", patternIndex);
+            if (placeholderIndex < 0)
+                break;
+
+            buffer.append(pattern, patternIndex, placeholderIndex);
+            if (arg instanceof SpanLogMessageArg)
+                ((SpanLogMessageArg) arg).appendTo(buffer);
+            else
+                buffer.append(arg);
+
+            patternIndex = placeholderIndex + 2;
+        }
+        buffer.append(pattern, patternIndex, pattern.length());
+    }
+
+    protected boolean containsSpanLogMessageArg(Object[] args) {
+        if (args == null)
+            return false;
+
+        for (Object arg : args) {
+            if (arg instanceof SpanLogMessageArg)
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+package com.nike.wingtips.logback;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.MdcPopulationMode;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the functionality of {@link WingtipsSpanConverter}.
+ */
+@RunWith(DataProviderRunner.class)
+public class WingtipsSpanConverterTest {
+
+    private WingtipsSpanConverter converter;
+
+    @Before
+    public void beforeMethod() {
+        resetTracing();
+        converter = new WingtipsSpanConverter();
+    }
+
+    @After
+    public void afterMethod() {
+        resetTracing();
+    }
+
+    private void resetTracing() {
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setMdcPopulationMode(MdcPopulationMode.TRACE_ID_AND_SPAN_JSON);
+        MDC.clear();
+    }
+
+    private ILoggingEvent createEvent() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        return new LoggingEvent(getClass().getName(), loggerContext.getLogger("foo"), Level.INFO, "hello", null, null);
+    }
+
+    private ILoggingEvent createEventWithMdc(Map<String, String> mdc) {
+        ILoggingEvent event = mock(ILoggingEvent.class);
+        doReturn(mdc).when(event).getMDCPropertyMap();
+        return event;
+    }
+
+    @DataProvider(value = {
+        "null",
+        "JSON",
+        "KEY_VALUE"
+    }, splitBy = "\\|")
+    @Test
+    public void convert_renders_current_span_on_demand_when_MDC_only_has_ids(String option) {
+        // given
+        if (option != null)
+            converter.setOptionList(Collections.singletonList(option));
+        converter.start();
+        Tracer.getInstance().setMdcPopulationMode(MdcPopulationMode.TRACE_ID_AND_SPAN_ID);
+        Span span = Tracer.getInstance().startRequestWithRootSpan("someSpan");
+        assertThat(MDC.get(Tracer.SPAN_JSON_MDC_KEY)).isNull();
+
+        // when
+        String result = converter.convert(createEvent());
+
+        // then
+        assertThat(result).isEqualTo("KEY_VALUE".equals(option) ? span.toKeyValueString() : span.toJSON());
+    }
+
+    @Test
+    public void convert_uses_span_json_from_MDC_when_present() {
+        // given
+        converter.start();
+        Map<String, String> mdc = new HashMap<>();
+        mdc.put(Tracer.TRACE_ID_MDC_KEY, "someTraceId");
+        mdc.put(Tracer.SPAN_JSON_MDC_KEY, "{\"some\":\"json\"}");
+
+        // when
+        String result = converter.convert(createEventWithMdc(mdc));
+
+        // then
+        assertThat(result).isEqualTo("{\"some\":\"json\"}");
+    }
+
+    @DataProvider(value = {
+        "true   |   false",
+        "false  |   true",
+        "false  |   false"
+    }, splitBy = "\\|")
+    @Test
+    public void convert_returns_empty_string_when_current_span_does_not_match_event_MDC(
+        boolean wrongTraceId, boolean wrongSpanId
+    ) {
+        // given
+        converter.start();
+        Span span = Tracer.getInstance().startRequestWithRootSpan("someSpan");
+        Map<String, String> mdc = new HashMap<>();
+        if (wrongTraceId || wrongSpanId) {
+            mdc.put(Tracer.TRACE_ID_MDC_KEY, wrongTraceId ? "notTheTraceId" : span.getTraceId());
+            mdc.put(Tracer.SPAN_ID_MDC_KEY, wrongSpanId ? "notTheSpanId" : span.getSpanId());
+        }
+
+        // when
+        String result = converter.convert(createEventWithMdc(mdc));
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    public void convert_returns_empty_string_when_there_is_no_current_span() {
+        // given
+        converter.start();
+
+        // when
+        String result = converter.convert(createEvent());
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    public void start_defaults_to_JSON_for_invalid_option() {
+        // given
+        converter.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        converter.setOptionList(Collections.singletonList("garbage"));
+
+        // when
+        converter.start();
+
+        // then
+        assertThat(converter.representation).isEqualTo(Tracer.SpanLoggingRepresentation.JSON);
+    }
+
+    @Test
+    public void convert_works_for_sub_spans() {
+        // given
+        converter.start();
+        Tracer.getInstance().setMdcPopulationMode(MdcPopulationMode.TRACE_ID_AND_SPAN_ID);
+        Tracer.getInstance().startRequestWithRootSpan("root");
+        Span subSpan = Tracer.getInstance().startSubSpan("sub", SpanPurpose.LOCAL_ONLY);
+
+        // when
+        String result = converter.convert(createEvent());
+
+        // then
+        assertThat(result).isEqualTo(subSpan.toJSON());
+    }
+}
@@ -0,0 +1,132 @@
+package com.nike.wingtips.logback;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Tracer;
+import com.nike.wingtips.Tracer.SpanLoggingRepresentation;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.OutputStreamAppender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link WingtipsSpanLogEncoder}.
+ */
+@RunWith(DataProviderRunner.class)
+public class WingtipsSpanLogEncoderTest {
+
+    private WingtipsSpanLogEncoder encoder;
+    private Logger validSpanLogger;
+    private OutputStreamAppender<ILoggingEvent> appender;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void beforeMethod() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        encoder = new WingtipsSpanLogEncoder();
+        encoder.setContext(loggerContext);
+        encoder.start();
+
+        output = new ByteArrayOutputStream();
+        appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(output);
+        appender.start();
+
+        validSpanLogger = loggerContext.getLogger("VALID_WINGTIPS_SPANS");
+        validSpanLogger.setLevel(Level.INFO);
+        validSpanLogger.setAdditive(false);
+        validSpanLogger.addAppender(appender);
+
+        Tracer.getInstance().completeRequestSpan();
+    }
+
+    @After
+    public void afterMethod() {
+        validSpanLogger.detachAppender(appender);
+        validSpanLogger.setAdditive(true);
+        validSpanLogger.setLevel(null);
+        appender.stop();
+        Tracer.getInstance().completeRequestSpan();
+        Tracer.getInstance().setSpanLoggingRepresentation(SpanLoggingRepresentation.JSON);
+    }
+
+    @DataProvider(value = {
+        "JSON",
+        "KEY_VALUE"
+    })
+    @Test
+    public void encoder_writes_completed_spans_logged_by_Tracer(SpanLoggingRepresentation representation) {
+        // given
+        Tracer.getInstance().setSpanLoggingRepresentation(representation);
+        Span span = Tracer.getInstance().startRequestWithRootSpan("sp\u00e4n-\u6f22");
+
+        // when
+        Tracer.getInstance().completeRequestSpan();
+
+        // then
+        String expectedSpan = (representation == SpanLoggingRepresentation.JSON) ? span.toJSON() : span.toKeyValueString();
+        assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo("[DISTRIBUTED_TRACING] " + expectedSpan + CoreConstants.LINE_SEPARATOR);
+    }
+
+    @Test
+    public void encode_uses_formatted_message_for_events_without_spans() {
+        // given
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ILoggingEvent event = new LoggingEvent(
+            getClass().getName(), loggerContext.getLogger("foo"), Level.INFO, "hello {} and \\{}", null, new Object[]{ "world" }
+        );
+
+        // when
+        byte[] result = encoder.encode(event);
+
+        // then
+        assertThat(new String(result, StandardCharsets.UTF_8))
+            .isEqualTo(event.getFormattedMessage() + CoreConstants.LINE_SEPARATOR);
+    }
+
+    @Test
+    public void encode_returns_null_header_and_footer() {
+        // expect
+        assertThat(encoder.headerBytes()).isNull();
+        assertThat(encoder.footerBytes()).isNull();
+    }
+
+    @Test
+    public void encode_discards_reusable_buffer_that_grew_too_large() {
+        // given
+        StringBuilder hugeBuffer = new StringBuilder(WingtipsSpanLogEncoder.MAX_REUSABLE_BUFFER_CAPACITY + 1);
+        encoder.reusableBufferThreadLocal.set(hugeBuffer);
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ILoggingEvent event = new LoggingEvent(
+            getClass().getName(), loggerContext.getLogger("foo"), Level.INFO, "hello", null, null
+        );
+
+        // when
+        byte[] result = encoder.encode(event);
+
+        // then
+        assertThat(new String(result, StandardCharsets.UTF_8)).isEqualTo("hello" + CoreConstants.LINE_SEPARATOR);
+        assertThat(encoder.reusableBufferThreadLocal.get()).isNotSameAs(hugeBuffer);
+    }
+}
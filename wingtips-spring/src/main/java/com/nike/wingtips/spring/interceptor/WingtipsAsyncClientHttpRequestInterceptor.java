@@ -89,7 +89,10 @@ public class WingtipsAsyncClientHttpRequestInterceptor implements AsyncClientHtt
         // Handle subspan stuff if desired.
         SpanAroundAsyncCallFinisher subspanFinisher = null;
         TracingState originalThreadInfo = null;
-        if (surroundCallsWithSubspan) {
+        // An unsampled trace in LIGHTWEIGHT mode wouldn't get a real subspan anyway, so skip the span name and tracing state
+        //      copies entirely.
+        boolean createSubspan = surroundCallsWithSubspan && !tracer.isCurrentSpanLightweight();
+        if (createSubspan) {
             originalThreadInfo = TracingState.getCurrentThreadTracingState();
 
             // This will start a new trace if necessary, or a subspan if a trace is already in progress.
@@ -122,8 +125,8 @@ public class WingtipsAsyncClientHttpRequestInterceptor implements AsyncClientHtt
         }
         finally {
             // Reset back to the original tracing state that was on this thread when this method began (only relevant
-            //      if surroundCallsWithSubspan is true).
-            if (surroundCallsWithSubspan) {
+            //      if we created a subspan).
+            if (createSubspan) {
                 unlinkTracingFromCurrentThread(originalThreadInfo);
             }
         }
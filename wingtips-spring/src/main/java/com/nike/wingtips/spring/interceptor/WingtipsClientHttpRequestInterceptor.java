@@ -77,7 +77,8 @@ public class WingtipsClientHttpRequestInterceptor implements ClientHttpRequestIn
         Tracer tracer = Tracer.getInstance();
         Span spanAroundCall = null;
         try {
-            if (surroundCallsWithSubspan) {
+            // An unsampled trace in LIGHTWEIGHT mode wouldn't get a real subspan anyway, so skip building the span name.
+            if (surroundCallsWithSubspan && !tracer.isCurrentSpanLightweight()) {
                 // Will start a new trace if necessary, or a subspan if a trace is already in progress.
                 spanAroundCall = tracer.startSpanInCurrentContext(getSubspanSpanName(request), SpanPurpose.CLIENT);
             }
@@ -3,7 +3,11 @@ package com.nike.wingtips.springboot;
 import com.nike.wingtips.Tracer;
 import com.nike.wingtips.servlet.RequestTracingFilter;
 import com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener;
+import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanConverterDefaultImpl;
+import com.nike.wingtips.zipkin.util.ZipkinSpanSenderDefaultHttpImpl;
+import com.nike.wingtips.zipkin.util.ZipkinSpanTransportLoadBalancer;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -47,15 +51,24 @@ import org.springframework.context.annotation.Import;
  * None of those properties are required - if they are missing then {@link RequestTracingFilter} will be
  * registered, it will not look for any user ID headers, and JSON span logging format will be used.
  *
+ * <p>When the application context shuts down, the {@link WingtipsToZipkinLifecycleListener} is removed from {@link
+ * Tracer} and its {@link ZipkinSpanSenderDefaultHttpImpl} is closed, which sends any spans still queued. A refreshed
+ * context therefore doesn't leave the previous sender and its threads behind.
+ *
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 @Configuration
 @Import(WingtipsSpringBootConfiguration.class)
 @EnableConfigurationProperties(WingtipsZipkinProperties.class)
-public class WingtipsWithZipkinSpringBootConfiguration {
+public class WingtipsWithZipkinSpringBootConfiguration implements DisposableBean {
 
     @SuppressWarnings("WeakerAccess")
     protected WingtipsZipkinProperties wingtipsZipkinProperties;
+    // Both null unless init() registered a listener.
+    @SuppressWarnings("WeakerAccess")
+    protected ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender;
+    @SuppressWarnings("WeakerAccess")
+    protected WingtipsToZipkinLifecycleListener zipkinLifecycleListener;
 
     @Autowired
     @SuppressWarnings("WeakerAccess")
@@ -70,14 +83,39 @@ public class WingtipsWithZipkinSpringBootConfiguration {
      */
     private void init() {
         if (wingtipsZipkinProperties.shouldApplyWingtipsToZipkinLifecycleListener()) {
-            Tracer.getInstance().addSpanLifecycleListener(
-                new WingtipsToZipkinLifecycleListener(
-                    wingtipsZipkinProperties.getServiceName(),
-                    wingtipsZipkinProperties.getLocalComponentNamespace(),
-                    wingtipsZipkinProperties.getBaseUrl()
-                )
+            ZipkinSpanTransportLoadBalancer.Strategy loadBalancingStrategy =
+                wingtipsZipkinProperties.getLoadBalancingStrategy();
+            if (loadBalancingStrategy == null)
+                loadBalancingStrategy = ZipkinSpanTransportLoadBalancer.DEFAULT_STRATEGY;
+
+            zipkinSpanSender = ZipkinSpanSenderDefaultHttpImpl
+                .newBuilder(wingtipsZipkinProperties.getBaseUrls())
+                .withLoadBalancing(loadBalancingStrategy,
+                                   ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_FAILURE_THRESHOLD,
+                                   ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_MILLIS)
+                .build();
+
+            zipkinLifecycleListener = new WingtipsToZipkinLifecycleListener(
+                wingtipsZipkinProperties.getServiceName(),
+                wingtipsZipkinProperties.getLocalComponentNamespace(),
+                new WingtipsToZipkinSpanConverterDefaultImpl(),
+                zipkinSpanSender
             );
+            Tracer.getInstance().addSpanLifecycleListener(zipkinLifecycleListener);
         }
     }
 
+    /**
+     * Removes the Zipkin listener from {@link Tracer} (if one was registered) and closes its sender. Called by Spring
+     * when the application context shuts down.
+     */
+    @Override
+    public void destroy() {
+        if (zipkinLifecycleListener != null)
+            Tracer.getInstance().removeSpanLifecycleListener(zipkinLifecycleListener);
+
+        if (zipkinSpanSender != null)
+            zipkinSpanSender.close();
+    }
+
 }
@@ -2,9 +2,13 @@ package com.nike.wingtips.springboot;
 
 import com.nike.wingtips.Span.SpanPurpose;
 import com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener;
+import com.nike.wingtips.zipkin.util.ZipkinSpanTransportLoadBalancer;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A {@link ConfigurationProperties} companion for {@link WingtipsWithZipkinSpringBootConfiguration} that allows you to
  * specify the configuration of {@link WingtipsToZipkinLifecycleListener} via your Spring Boot application's properties
@@ -19,7 +23,14 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *     <li>
  *         wingtips.zipkin.base-url - <b>(REQUIRED)</b> The base URL of the Zipkin server to send Wingtips spans to.
  *         See <a href="http://zipkin.io/pages/quickstart">the Zipkin server quickstart page</a> for info on how to
- *         easily setup a local Zipkin server for testing (can be done with a single docker command).
+ *         easily setup a local Zipkin server for testing (can be done with a single docker command). To spread spans
+ *         across a cluster of Zipkin collectors, set this to a comma-separated list of their base URLs.
+ *     </li>
+ *     <li>
+ *         wingtips.zipkin.load-balancing-strategy - How batches are spread across the collectors when {@code
+ *         wingtips.zipkin.base-url} lists more than one: {@code ROUND_ROBIN} or {@code LEAST_OUTSTANDING}. See {@link
+ *         ZipkinSpanTransportLoadBalancer} for details. If you don't set this property then {@code ROUND_ROBIN} will be
+ *         used.
  *     </li>
  *     <li>
  *         wingtips.zipkin.service-name - The name of this service, used when sending Wingtips spans to Zipkin. See
@@ -57,9 +68,11 @@ public class WingtipsZipkinProperties {
     private String serviceName = "unknown";
     private String localComponentNamespace = "unknown";
     private String baseUrl;
+    private ZipkinSpanTransportLoadBalancer.Strategy loadBalancingStrategy =
+        ZipkinSpanTransportLoadBalancer.DEFAULT_STRATEGY;
 
     public boolean shouldApplyWingtipsToZipkinLifecycleListener() {
-        return (!zipkinDisabled && serviceName != null && localComponentNamespace != null && baseUrl != null);
+        return (!zipkinDisabled && serviceName != null && localComponentNamespace != null && !getBaseUrls().isEmpty());
     }
 
     public boolean isZipkinDisabled() {
@@ -93,4 +106,29 @@ public class WingtipsZipkinProperties {
     public void setBaseUrl(String baseUrl) {
         this.baseUrl = baseUrl;
     }
+
+    /**
+     * @return The base URLs listed in {@link #getBaseUrl()}, which may be a single URL or a comma-separated list of them.
+     * Blank entries are left out, and an empty list is returned if the base URL is null.
+     */
+    public List<String> getBaseUrls() {
+        List<String> baseUrls = new ArrayList<>();
+        if (baseUrl == null)
+            return baseUrls;
+
+        for (String url : baseUrl.split(",")) {
+            String trimmed = url.trim();
+            if (!trimmed.isEmpty())
+                baseUrls.add(trimmed);
+        }
+        return baseUrls;
+    }
+
+    public ZipkinSpanTransportLoadBalancer.Strategy getLoadBalancingStrategy() {
+        return loadBalancingStrategy;
+    }
+
+    public void setLoadBalancingStrategy(ZipkinSpanTransportLoadBalancer.Strategy loadBalancingStrategy) {
+        this.loadBalancingStrategy = loadBalancingStrategy;
+    }
 }
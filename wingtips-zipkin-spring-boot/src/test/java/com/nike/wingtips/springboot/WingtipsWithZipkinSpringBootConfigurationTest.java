@@ -7,6 +7,7 @@ import com.nike.wingtips.springboot.componenttest.manualimportandcomponentscan.C
 import com.nike.wingtips.springboot.componenttest.manualimportonly.ComponentTestMainManualImportOnly;
 import com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener;
 import com.nike.wingtips.zipkin.util.ZipkinSpanSenderDefaultHttpImpl;
+import com.nike.wingtips.zipkin.util.ZipkinSpanTransportLoadBalancer;
 
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
@@ -94,6 +95,33 @@ public class WingtipsWithZipkinSpringBootConfigurationTest {
             .isEqualTo(localComponentNamespace);
     }
 
+    @Test
+    public void constructor_registers_WingtipsToZipkinLifecycleListener_that_load_balances_across_all_base_urls() {
+        // given
+        WingtipsZipkinProperties props = generateProps(
+            false, "http://collector-1:9411, http://collector-2:9411", "some-service", "some-namespace"
+        );
+        props.setLoadBalancingStrategy(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING);
+
+        // when
+        new WingtipsWithZipkinSpringBootConfiguration(props);
+
+        // then
+        List<SpanLifecycleListener> listeners = Tracer.getInstance().getSpanLifecycleListeners();
+        assertThat(listeners).hasSize(1);
+        ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender =
+            (ZipkinSpanSenderDefaultHttpImpl) Whitebox.getInternalState(listeners.get(0), "zipkinSpanSender");
+        assertThat(zipkinSpanSender.getPostZipkinSpansUrls()).hasSize(2);
+        assertThat(zipkinSpanSender.getPostZipkinSpansUrls().get(0).toString())
+            .isEqualTo("http://collector-1:9411/api/v1/spans");
+        assertThat(zipkinSpanSender.getPostZipkinSpansUrls().get(1).toString())
+            .isEqualTo("http://collector-2:9411/api/v1/spans");
+        Object transport = Whitebox.getInternalState(zipkinSpanSender, "zipkinSpanTransport");
+        assertThat(transport).isInstanceOf(ZipkinSpanTransportLoadBalancer.class);
+        assertThat(((ZipkinSpanTransportLoadBalancer) transport).getStrategy())
+            .isEqualTo(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING);
+    }
+
     @Test
     public void constructor_does_not_register_WingtipsToZipkinLifecycleListener_when_props_shouldApplyWingtipsToZipkinLifecycleListener_returns_false() {
         // given
@@ -109,6 +137,37 @@ public class WingtipsWithZipkinSpringBootConfigurationTest {
         verifyNoMoreInteractions(props);
     }
 
+    @Test
+    public void destroy_removes_the_listener_and_closes_the_sender() {
+        // given
+        WingtipsZipkinProperties props = generateProps(false, "http://localhost:4242", "some-service", "some-namespace");
+        WingtipsWithZipkinSpringBootConfiguration config = new WingtipsWithZipkinSpringBootConfiguration(props);
+        ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender = config.zipkinSpanSender;
+        assertThat(Tracer.getInstance().getSpanLifecycleListeners()).containsExactly(config.zipkinLifecycleListener);
+
+        // when
+        config.destroy();
+
+        // then
+        assertThat(Tracer.getInstance().getSpanLifecycleListeners()).isEmpty();
+        assertThat(zipkinSpanSender.isClosed()).isTrue();
+    }
+
+    @Test
+    public void destroy_does_nothing_when_no_listener_was_registered() {
+        // given
+        WingtipsZipkinProperties props = mock(WingtipsZipkinProperties.class);
+        doReturn(false).when(props).shouldApplyWingtipsToZipkinLifecycleListener();
+        WingtipsWithZipkinSpringBootConfiguration config = new WingtipsWithZipkinSpringBootConfiguration(props);
+
+        // when
+        config.destroy();
+
+        // then
+        assertThat(config.zipkinSpanSender).isNull();
+        assertThat(Tracer.getInstance().getSpanLifecycleListeners()).isEmpty();
+    }
+
     private enum ComponentTestSetup {
         MANUAL_IMPORT_ONLY(ComponentTestMainManualImportOnly.class, false),
         COMPONENT_SCAN_ONLY(ComponentTestMainWithComponentScanOnly.class, true),
@@ -1,5 +1,7 @@
 package com.nike.wingtips.springboot;
 
+import com.nike.wingtips.zipkin.util.ZipkinSpanTransportLoadBalancer;
+
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 
@@ -7,6 +9,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -70,6 +75,15 @@ public class WingtipsZipkinPropertiesTest {
             assertThat(props.getServiceName()).isNull();
         }
 
+        // loadBalancingStrategy getter/setter
+        {
+            assertThat(props.getLoadBalancingStrategy()).isEqualTo(ZipkinSpanTransportLoadBalancer.DEFAULT_STRATEGY);
+
+            props.setLoadBalancingStrategy(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING);
+            assertThat(props.getLoadBalancingStrategy())
+                .isEqualTo(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING);
+        }
+
         // localComponentNamespace getter/setter
         {
             String nonNullLocalComponentNamespace = UUID.randomUUID().toString();
@@ -81,6 +95,34 @@ public class WingtipsZipkinPropertiesTest {
         }
     }
 
+    @DataProvider(value = {
+        "http://localhost:9411                          |   http://localhost:9411",
+        "http://zipkin-1:9411,http://zipkin-2:9411      |   http://zipkin-1:9411,http://zipkin-2:9411",
+        " http://zipkin-1:9411 ,, http://zipkin-2:9411, |   http://zipkin-1:9411,http://zipkin-2:9411",
+        "null                                           |   ",
+        " , ,                                           |   "
+    }, splitBy = "\\|")
+    @Test
+    public void getBaseUrls_splits_comma_separated_baseUrl(String baseUrl, String expectedBaseUrlsCommaSeparated) {
+        // given
+        props.setBaseUrl("null".equals(baseUrl) ? null : baseUrl);
+        List<String> expectedBaseUrls = (expectedBaseUrlsCommaSeparated.isEmpty())
+                                        ? Collections.<String>emptyList()
+                                        : Arrays.asList(expectedBaseUrlsCommaSeparated.split(","));
+
+        // expect
+        assertThat(props.getBaseUrls()).isEqualTo(expectedBaseUrls);
+    }
+
+    @Test
+    public void shouldApplyWingtipsToZipkinLifecycleListener_returns_false_if_baseUrl_contains_no_urls() {
+        // given
+        props.setBaseUrl(" , ");
+
+        // expect
+        assertThat(props.shouldApplyWingtipsToZipkinLifecycleListener()).isFalse();
+    }
+
     @DataProvider(value = {
         "true   |   true    |   true    |   true    |   false",
         "true   |   false   |   true    |   true    |   false",
@@ -4,6 +4,7 @@ import com.nike.wingtips.Span;
 import com.nike.wingtips.lifecyclelistener.SpanLifecycleListener;
 import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanConverter;
 import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanConverterDefaultImpl;
+import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanWireEncoder;
 import com.nike.wingtips.zipkin.util.ZipkinSpanSender;
 import com.nike.wingtips.zipkin.util.ZipkinSpanSenderDefaultHttpImpl;
 
@@ -28,6 +29,12 @@ import zipkin.Endpoint;
  *     constructor.
  * </p>
  * <p>
+ *     To take the conversion off the request thread entirely, build a {@link ZipkinSpanSenderDefaultHttpImpl} with
+ *     {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withWingtipsSpanEncoding(String, String)} and pass it to
+ *     {@link #WingtipsToZipkinLifecycleListener(ZipkinSpanSenderDefaultHttpImpl)}. Completed Wingtips spans are then just queued, and are
+ *     written straight to the Zipkin wire format on the sender's background threads without creating any intermediate Zipkin objects.
+ * </p>
+ * <p>
  *     Note that it's easy to create an adapter that allows you to have a {@code SpanCollector} from the Zipkin Brave libraries function
  *     as a {@link ZipkinSpanSender}. So if you're accustomed to using specific Zipkin {@code SpanCollector}s you can use them with
  *     Wingtips unchanged.
@@ -45,6 +52,8 @@ public class WingtipsToZipkinLifecycleListener implements SpanLifecycleListener
     protected final Endpoint zipkinEndpoint;
     protected final WingtipsToZipkinSpanConverter zipkinSpanConverter;
     protected final ZipkinSpanSender zipkinSpanSender;
+    // Only set when completed Wingtips spans are handed straight to the sender instead of being converted here.
+    protected final ZipkinSpanSenderDefaultHttpImpl wingtipsSpanSender;
 
     protected final AtomicLong spanHandlingErrorCounter = new AtomicLong(0);
     protected long lastSpanHandlingErrorLogTimeEpochMillis = 0;
@@ -70,6 +79,30 @@ public class WingtipsToZipkinLifecycleListener implements SpanLifecycleListener
         this.zipkinEndpoint = Endpoint.builder().serviceName(serviceName).build();
         this.zipkinSpanConverter = zipkinSpanConverter;
         this.zipkinSpanSender = zipkinSpanSender;
+        this.wingtipsSpanSender = null;
+    }
+
+    /**
+     * Constructor that hands completed Wingtips spans straight to the given sender, which converts and encodes them on its own threads. The
+     * service name and {@link zipkin.Constants#LOCAL_COMPONENT} namespace come from the sender's
+     * {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withWingtipsSpanEncoding(String, String)} settings.
+     *
+     * @param wingtipsSpanSender A sender built with {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withWingtipsSpanEncoding(String, String)}.
+     */
+    public WingtipsToZipkinLifecycleListener(ZipkinSpanSenderDefaultHttpImpl wingtipsSpanSender) {
+        if (wingtipsSpanSender == null || !wingtipsSpanSender.isWingtipsSpanEncodingEnabled()) {
+            throw new IllegalArgumentException(
+                "wingtipsSpanSender must be built with ZipkinSpanSenderDefaultHttpImpl.Builder.withWingtipsSpanEncoding()"
+            );
+        }
+
+        WingtipsToZipkinSpanWireEncoder encoder = wingtipsSpanSender.getWingtipsSpanEncoder();
+        this.zipkinEndpoint = encoder.getLocalEndpoint();
+        this.serviceName = zipkinEndpoint.serviceName;
+        this.localComponentNamespace = encoder.getLocalComponentNamespace();
+        this.zipkinSpanConverter = null;
+        this.zipkinSpanSender = wingtipsSpanSender;
+        this.wingtipsSpanSender = wingtipsSpanSender;
     }
 
     /**
@@ -107,6 +140,11 @@ public class WingtipsToZipkinLifecycleListener implements SpanLifecycleListener
     @Override
     public void spanCompleted(Span span) {
         try {
+            if (wingtipsSpanSender != null) {
+                wingtipsSpanSender.handleWingtipsSpan(span);
+                return;
+            }
+
             zipkin.Span zipkinSpan = zipkinSpanConverter.convertWingtipsSpanToZipkinSpan(span, zipkinEndpoint, localComponentNamespace);
             zipkinSpanSender.handleSpan(zipkinSpan);
         }
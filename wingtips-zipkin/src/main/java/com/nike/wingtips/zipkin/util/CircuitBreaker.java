@@ -0,0 +1,136 @@
+package com.nike.wingtips.zipkin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A simple lock-free circuit breaker used by {@link ZipkinSpanSenderDefaultHttpImpl} to stop sending spans to a Zipkin server that keeps
+ * failing.
+ *
+ * <p>The circuit starts out {@link State#CLOSED}. After {@code failureThreshold} consecutive failures it becomes {@link State#OPEN} and {@link
+ * #allowRequest()} returns false, until {@code openDurationMillis} has passed. At that point exactly one caller is allowed through as a
+ * probe and the circuit is {@link State#HALF_OPEN}. If the probe succeeds the circuit closes again, and if it fails the circuit goes back to
+ * open for another {@code openDurationMillis}. If a probe never reports back (e.g. it threw an unexpected exception) another probe is allowed
+ * through after {@code openDurationMillis}, so the circuit can't get stuck.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CircuitBreaker {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public enum State {
+        /**
+         * Everything is allowed through.
+         */
+        CLOSED,
+        /**
+         * Nothing is allowed through until the open duration has passed.
+         */
+        OPEN,
+        /**
+         * A single probe has been allowed through, and the circuit is waiting to hear whether it worked.
+         */
+        HALF_OPEN
+    }
+
+    protected final int failureThreshold;
+    protected final long openDurationNanos;
+
+    protected final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    protected final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    // Only meaningful when the circuit isn't closed - the earliest time the next probe is allowed through.
+    protected final AtomicLong nextProbeAtNanos = new AtomicLong(0);
+
+    /**
+     * @param failureThreshold The number of consecutive failures that opens the circuit - must be greater than 0.
+     * @param openDurationMillis How long the circuit stays open before a probe is allowed through - must be greater than 0.
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        if (failureThreshold < 1)
+            throw new IllegalArgumentException("failureThreshold must be greater than 0. Received: " + failureThreshold);
+
+        if (openDurationMillis <= 0)
+            throw new IllegalArgumentException("openDurationMillis must be greater than 0. Received: " + openDurationMillis);
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * @return true if the caller may go ahead with its request, false if the circuit is open (or half-open with a probe already in progress).
+     * When this returns true for a circuit that isn't closed, the caller is the probe and must report the outcome with {@link
+     * #recordSuccess()} or {@link #recordFailure()}.
+     */
+    public boolean allowRequest() {
+        if (state.get() == State.CLOSED)
+            return true;
+
+        long now = currentTimeNanos();
+        long nextProbeAt = nextProbeAtNanos.get();
+        if (now - nextProbeAt < 0)
+            return false;
+
+        if (!nextProbeAtNanos.compareAndSet(nextProbeAt, now + openDurationNanos))
+            return false;
+
+        state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        return true;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED)
+            logger.info("Zipkin server is accepting spans again - circuit closed.");
+    }
+
+    public void recordFailure() {
+        if (state.get() != State.CLOSED) {
+            // A failed probe (or a request that started before the circuit opened) - stay open for another full duration.
+            nextProbeAtNanos.set(currentTimeNanos() + openDurationNanos);
+            state.set(State.OPEN);
+            return;
+        }
+
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            nextProbeAtNanos.set(currentTimeNanos() + openDurationNanos);
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                logger.warn(
+                    "Zipkin server failed {} times in a row - circuit opened. Spans will not be sent for {} millis.",
+                    failureThreshold, TimeUnit.NANOSECONDS.toMillis(openDurationNanos)
+                );
+            }
+        }
+    }
+
+    /**
+     * @return true if the circuit is open or half-open, i.e. requests are currently being held back apart from the occasional probe.
+     */
+    public boolean isOpen() {
+        return state.get() != State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(openDurationNanos);
+    }
+
+    /**
+     * @return The current time in nanoseconds from an arbitrary origin - {@link System#nanoTime()} by default. Protected so tests can supply
+     * their own clock.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+}
@@ -25,17 +25,17 @@ public class WingtipsToZipkinSpanConverterDefaultImpl implements WingtipsToZipki
 
     @Override
     public zipkin.Span convertWingtipsSpanToZipkinSpan(Span wingtipsSpan, Endpoint zipkinEndpoint, String localComponentNamespace) {
-        String traceId = wingtipsSpan.getTraceId();
         long startEpochMicros = wingtipsSpan.getSpanStartTimeEpochMicros();
         long durationMicros = TimeUnit.NANOSECONDS.toMicros(wingtipsSpan.getDurationNanos());
 
+        // The Span's primitive ID accessors avoid parsing (and rendering) hex strings for IDs generated by wingtips.
         return createNewZipkinSpanBuilderWithSpanPurposeAnnotations(wingtipsSpan, startEpochMicros, durationMicros, zipkinEndpoint, localComponentNamespace)
-            .id(nullSafeLong(wingtipsSpan.getSpanId()))
+            .id(wingtipsSpan.getSpanIdAsLong())
             .name(wingtipsSpan.getSpanName())
-            .parentId(nullSafeLong(wingtipsSpan.getParentSpanId()))
+            .parentId(wingtipsSpan.getParentSpanIdAsLong())
             .timestamp(startEpochMicros)
-            .traceIdHigh(traceId.length() == 32 ? nullSafeLong(traceId, 0) : 0)
-            .traceId(nullSafeLong(traceId))
+            .traceIdHigh(wingtipsSpan.getTraceIdHighBits())
+            .traceId(wingtipsSpan.getTraceIdLowBits())
             .duration(durationMicros)
             .build();
     }
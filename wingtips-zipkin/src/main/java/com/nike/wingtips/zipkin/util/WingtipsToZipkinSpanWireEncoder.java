@@ -0,0 +1,426 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.Span;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import zipkin.Constants;
+import zipkin.Endpoint;
+
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.LIST_OF_SPANS_SPANS_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_DURATION_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_ID_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_KIND_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_LOCAL_ENDPOINT_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_NAME_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_PARENT_ID_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_TAG_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_TIMESTAMP_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.SPAN_TRACE_ID_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.TAG_KEY_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.TAG_VALUE_KEY;
+import static com.nike.wingtips.zipkin.util.ZipkinProto3SpanEncoder.sizeOfLengthDelimitedField;
+import static com.nike.wingtips.zipkin.util.ZipkinSpanWriteBuffer.utf8Length;
+import static com.nike.wingtips.zipkin.util.ZipkinSpanWriteBuffer.varintSize;
+
+/**
+ * <p>
+ *     Writes completed Wingtips {@link Span}s straight to a Zipkin wire format, producing the same spans that {@link
+ *     WingtipsToZipkinSpanConverterDefaultImpl} followed by the given {@link ZipkinSpanEncoding} would, but without creating any {@link
+ *     zipkin.Span}, {@link zipkin.Annotation}, or {@link zipkin.BinaryAnnotation} objects along the way. IDs are read with the span's primitive
+ *     ID accessors, and the parts of the output that are the same for every span from this service (the encoded endpoint, and the {@link
+ *     Constants#LOCAL_COMPONENT} annotation or tag) are encoded once up front and copied into each span.
+ * </p>
+ * <p>
+ *     {@link ZipkinSpanSenderDefaultHttpImpl} uses this when it's built with {@link
+ *     ZipkinSpanSenderDefaultHttpImpl.Builder#withWingtipsSpanEncoding(String, String)}, so that {@link
+ *     com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener} only has to queue the Wingtips span on the request thread and all the
+ *     conversion work happens on the sender's background threads.
+ * </p>
+ */
+@SuppressWarnings("WeakerAccess")
+public class WingtipsToZipkinSpanWireEncoder {
+
+    protected final ZipkinSpanEncoding encoding;
+    protected final Endpoint localEndpoint;
+    protected final String localComponentNamespace;
+
+    // The encoded local endpoint, in whatever form the encoding needs it in - see the constructor.
+    protected final byte[] endpointFragment;
+    // The encoded LOCAL_COMPONENT binary annotation (v1) or tag (v2), including its field name or key.
+    protected final byte[] localComponentFragment;
+
+    /**
+     * @param encoding The wire format to write.
+     * @param localEndpoint The endpoint of this service - see {@link WingtipsToZipkinSpanConverter}.
+     * @param localComponentNamespace The {@link Constants#LOCAL_COMPONENT} value for local spans - see {@link WingtipsToZipkinSpanConverter}.
+     */
+    public WingtipsToZipkinSpanWireEncoder(ZipkinSpanEncoding encoding, Endpoint localEndpoint, String localComponentNamespace) {
+        if (encoding == null)
+            throw new IllegalArgumentException("encoding cannot be null");
+
+        if (localEndpoint == null)
+            throw new IllegalArgumentException("localEndpoint cannot be null");
+
+        if (localComponentNamespace == null)
+            throw new IllegalArgumentException("localComponentNamespace cannot be null");
+
+        this.encoding = encoding;
+        this.localEndpoint = localEndpoint;
+        this.localComponentNamespace = localComponentNamespace;
+
+        ZipkinSpanWriteBuffer endpoint = ZipkinSpanWriteBuffer.withInitialCapacity(64);
+        ZipkinSpanWriteBuffer localComponent = ZipkinSpanWriteBuffer.withInitialCapacity(128);
+        switch (encoding) {
+            case JSON_V1:
+                // {"serviceName":...} - written after each annotation's timestamp and value.
+                writeV1JsonEndpoint(localEndpoint, endpoint);
+                localComponent.writeAscii(",\"binaryAnnotations\":[{\"key\":\"");
+                localComponent.writeAscii(Constants.LOCAL_COMPONENT);
+                localComponent.writeAscii("\",\"value\":\"");
+                localComponent.writeJsonEscaped(localComponentNamespace);
+                localComponent.writeAscii("\",\"endpoint\":");
+                writeV1JsonEndpoint(localEndpoint, localComponent);
+                localComponent.writeAscii("}]");
+                break;
+            case JSON_V2:
+                endpoint.writeAscii(",\"localEndpoint\":");
+                ZipkinV2JsonSpanEncoder.writeEndpoint(localEndpoint, endpoint);
+                localComponent.writeAscii(",\"tags\":{\"");
+                localComponent.writeAscii(Constants.LOCAL_COMPONENT);
+                localComponent.writeAscii("\":\"");
+                localComponent.writeJsonEscaped(localComponentNamespace);
+                localComponent.writeAscii("\"}");
+                break;
+            case PROTO3:
+                ZipkinProto3SpanEncoder.writeEndpoint(SPAN_LOCAL_ENDPOINT_KEY, localEndpoint, endpoint);
+                localComponent.writeByte(SPAN_TAG_KEY);
+                localComponent.writeVarint(
+                    sizeOfLengthDelimitedField(utf8Length(Constants.LOCAL_COMPONENT))
+                    + sizeOfLengthDelimitedField(utf8Length(localComponentNamespace))
+                );
+                ZipkinProto3SpanEncoder.writeString(TAG_KEY_KEY, Constants.LOCAL_COMPONENT, localComponent);
+                ZipkinProto3SpanEncoder.writeString(TAG_VALUE_KEY, localComponentNamespace, localComponent);
+                break;
+            default:
+                throw new IllegalArgumentException("Unhandled encoding: " + encoding);
+        }
+        this.endpointFragment = endpoint.toByteArray();
+        this.localComponentFragment = localComponent.toByteArray();
+    }
+
+    public ZipkinSpanEncoding getEncoding() {
+        return encoding;
+    }
+
+    public Endpoint getLocalEndpoint() {
+        return localEndpoint;
+    }
+
+    public String getLocalComponentNamespace() {
+        return localComponentNamespace;
+    }
+
+    /**
+     * @return The size of the given span in a payload, on the same terms as {@link ZipkinSpanEncoding#sizeInBytes(zipkin.Span)}.
+     */
+    public int sizeInBytes(Span span) {
+        if (encoding == ZipkinSpanEncoding.PROTO3)
+            return sizeOfLengthDelimitedField(proto3SpanSize(span, spanName(span)));
+
+        ZipkinSpanWriteBuffer counter = ZipkinSpanWriteBuffer.counting();
+        writeJsonSpan(span, counter);
+        return counter.size();
+    }
+
+    /**
+     * @return A payload holding the given spans, ready to be sent to the endpoint for {@link #getEncoding()}.
+     */
+    public byte[] encodeSpans(List<Span> spans) {
+        if (encoding == ZipkinSpanEncoding.PROTO3) {
+            ZipkinSpanWriteBuffer buffer = ZipkinSpanWriteBuffer.withInitialCapacity(spans.size() * (128 + endpointFragment.length));
+            for (int i = 0; i < spans.size(); i++) {
+                Span span = spans.get(i);
+                String name = spanName(span);
+                buffer.writeByte(LIST_OF_SPANS_SPANS_KEY);
+                buffer.writeVarint(proto3SpanSize(span, name));
+                writeProto3Span(span, name, buffer);
+            }
+            return buffer.toByteArray();
+        }
+
+        // v1 JSON repeats the endpoint on both annotations.
+        int estimatedSpanBytes = 192 + 2 * (endpointFragment.length + localComponentFragment.length);
+        ZipkinSpanWriteBuffer buffer = ZipkinSpanWriteBuffer.withInitialCapacity(2 + spans.size() * estimatedSpanBytes);
+        buffer.writeByte('[');
+        for (int i = 0; i < spans.size(); i++) {
+            if (i > 0)
+                buffer.writeByte(',');
+            writeJsonSpan(spans.get(i), buffer);
+        }
+        buffer.writeByte(']');
+        return buffer.toByteArray();
+    }
+
+    protected void writeJsonSpan(Span span, ZipkinSpanWriteBuffer buffer) {
+        if (encoding == ZipkinSpanEncoding.JSON_V1)
+            writeV1JsonSpan(span, buffer);
+        else
+            writeV2JsonSpan(span, buffer);
+    }
+
+    protected void writeV1JsonSpan(Span span, ZipkinSpanWriteBuffer buffer) {
+        long startEpochMicros = span.getSpanStartTimeEpochMicros();
+        long durationMicros = durationMicros(span);
+
+        writeJsonIds(span, buffer, true);
+
+        buffer.writeAscii(",\"name\":\"");
+        buffer.writeJsonEscaped(spanName(span));
+        buffer.writeByte('"');
+
+        writeJsonTimestampAndDuration(startEpochMicros, durationMicros, buffer);
+
+        switch (span.getSpanPurpose()) {
+            case SERVER:
+                writeV1JsonCoreAnnotations(startEpochMicros, durationMicros, Constants.SERVER_RECV, Constants.SERVER_SEND, buffer);
+                break;
+            case CLIENT:
+                writeV1JsonCoreAnnotations(startEpochMicros, durationMicros, Constants.CLIENT_SEND, Constants.CLIENT_RECV, buffer);
+                break;
+            default:
+                // LOCAL_ONLY and UNKNOWN are treated the same way, as they are by WingtipsToZipkinSpanConverterDefaultImpl.
+                buffer.writeBytes(localComponentFragment);
+        }
+
+        buffer.writeByte('}');
+    }
+
+    protected void writeV1JsonCoreAnnotations(long startEpochMicros, long durationMicros, String startValue, String endValue,
+                                              ZipkinSpanWriteBuffer buffer) {
+        buffer.writeAscii(",\"annotations\":[{\"timestamp\":");
+        buffer.writeDecimal(startEpochMicros);
+        buffer.writeAscii(",\"value\":\"");
+        buffer.writeAscii(startValue);
+        buffer.writeAscii("\",\"endpoint\":");
+        buffer.writeBytes(endpointFragment);
+        buffer.writeAscii("},{\"timestamp\":");
+        buffer.writeDecimal(startEpochMicros + durationMicros);
+        buffer.writeAscii(",\"value\":\"");
+        buffer.writeAscii(endValue);
+        buffer.writeAscii("\",\"endpoint\":");
+        buffer.writeBytes(endpointFragment);
+        buffer.writeAscii("}]");
+    }
+
+    /**
+     * Writes the same output as {@link ZipkinV2JsonSpanEncoder} does for the converted span.
+     */
+    protected void writeV2JsonSpan(Span span, ZipkinSpanWriteBuffer buffer) {
+        writeJsonIds(span, buffer, false);
+
+        String kind = v2Kind(span.getSpanPurpose());
+        if (kind != null) {
+            buffer.writeAscii(",\"kind\":\"");
+            buffer.writeAscii(kind);
+            buffer.writeByte('"');
+        }
+
+        String name = spanName(span);
+        if (!name.isEmpty()) {
+            buffer.writeAscii(",\"name\":\"");
+            buffer.writeJsonEscaped(name);
+            buffer.writeByte('"');
+        }
+
+        writeJsonTimestampAndDuration(span.getSpanStartTimeEpochMicros(), durationMicros(span), buffer);
+
+        buffer.writeBytes(endpointFragment);
+        if (kind == null)
+            buffer.writeBytes(localComponentFragment);
+
+        buffer.writeByte('}');
+    }
+
+    /**
+     * Writes the opening brace and the trace, parent, and span IDs. v1 JSON puts the span ID first, v2 JSON puts the parent ID first.
+     */
+    protected void writeJsonIds(Span span, ZipkinSpanWriteBuffer buffer, boolean spanIdBeforeParentId) {
+        buffer.writeAscii("{\"traceId\":\"");
+        long traceIdHigh = span.getTraceIdHighBits();
+        if (traceIdHigh != 0)
+            buffer.writeLowerHex(traceIdHigh);
+        buffer.writeLowerHex(span.getTraceIdLowBits());
+        buffer.writeByte('"');
+
+        if (spanIdBeforeParentId)
+            writeJsonSpanId(span, buffer);
+
+        Long parentId = span.getParentSpanIdAsLong();
+        if (parentId != null && parentId != 0) {
+            buffer.writeAscii(",\"parentId\":\"");
+            buffer.writeLowerHex(parentId);
+            buffer.writeByte('"');
+        }
+
+        if (!spanIdBeforeParentId)
+            writeJsonSpanId(span, buffer);
+    }
+
+    protected void writeJsonSpanId(Span span, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeAscii(",\"id\":\"");
+        buffer.writeLowerHex(span.getSpanIdAsLong());
+        buffer.writeByte('"');
+    }
+
+    protected void writeJsonTimestampAndDuration(long startEpochMicros, long durationMicros, ZipkinSpanWriteBuffer buffer) {
+        if (startEpochMicros != 0) {
+            buffer.writeAscii(",\"timestamp\":");
+            buffer.writeDecimal(startEpochMicros);
+        }
+
+        if (durationMicros != 0) {
+            buffer.writeAscii(",\"duration\":");
+            buffer.writeDecimal(durationMicros);
+        }
+    }
+
+    /**
+     * @return The size of the given span's proto3 {@code Span} message, not including its field key and length prefix.
+     */
+    protected int proto3SpanSize(Span span, String name) {
+        int size = sizeOfLengthDelimitedField((span.getTraceIdHighBits() != 0) ? 16 : 8);
+        Long parentId = span.getParentSpanIdAsLong();
+        if (parentId != null && parentId != 0)
+            size += sizeOfLengthDelimitedField(8);
+        size += sizeOfLengthDelimitedField(8);
+
+        ZipkinV2Span.Kind kind = proto3Kind(span.getSpanPurpose());
+        if (kind != null)
+            size += 1 + varintSize(kind.protoValue);
+        else
+            size += localComponentFragment.length;
+
+        if (!name.isEmpty())
+            size += sizeOfLengthDelimitedField(utf8Length(name));
+        if (span.getSpanStartTimeEpochMicros() != 0)
+            size += 1 + 8;
+        long durationMicros = durationMicros(span);
+        if (durationMicros != 0)
+            size += 1 + varintSize(durationMicros);
+
+        return size + endpointFragment.length;
+    }
+
+    /**
+     * Writes the same output as {@link ZipkinProto3SpanEncoder} does for the converted span.
+     */
+    protected void writeProto3Span(Span span, String name, ZipkinSpanWriteBuffer buffer) {
+        long traceIdHigh = span.getTraceIdHighBits();
+        buffer.writeByte(SPAN_TRACE_ID_KEY);
+        if (traceIdHigh != 0) {
+            buffer.writeVarint(16);
+            buffer.writeLongBigEndian(traceIdHigh);
+        }
+        else
+            buffer.writeVarint(8);
+        buffer.writeLongBigEndian(span.getTraceIdLowBits());
+
+        Long parentId = span.getParentSpanIdAsLong();
+        if (parentId != null && parentId != 0) {
+            buffer.writeByte(SPAN_PARENT_ID_KEY);
+            buffer.writeVarint(8);
+            buffer.writeLongBigEndian(parentId);
+        }
+
+        buffer.writeByte(SPAN_ID_KEY);
+        buffer.writeVarint(8);
+        buffer.writeLongBigEndian(span.getSpanIdAsLong());
+
+        ZipkinV2Span.Kind kind = proto3Kind(span.getSpanPurpose());
+        if (kind != null) {
+            buffer.writeByte(SPAN_KIND_KEY);
+            buffer.writeVarint(kind.protoValue);
+        }
+
+        if (!name.isEmpty())
+            ZipkinProto3SpanEncoder.writeString(SPAN_NAME_KEY, name, buffer);
+
+        long startEpochMicros = span.getSpanStartTimeEpochMicros();
+        if (startEpochMicros != 0) {
+            buffer.writeByte(SPAN_TIMESTAMP_KEY);
+            buffer.writeFixed64LittleEndian(startEpochMicros);
+        }
+
+        long durationMicros = durationMicros(span);
+        if (durationMicros != 0) {
+            buffer.writeByte(SPAN_DURATION_KEY);
+            buffer.writeVarint(durationMicros);
+        }
+
+        buffer.writeBytes(endpointFragment);
+        if (kind == null)
+            buffer.writeBytes(localComponentFragment);
+    }
+
+    protected static void writeV1JsonEndpoint(Endpoint endpoint, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeAscii("{\"serviceName\":\"");
+        buffer.writeJsonEscaped((endpoint.serviceName == null) ? "" : endpoint.serviceName);
+        buffer.writeByte('"');
+
+        if (endpoint.ipv4 != 0) {
+            buffer.writeAscii(",\"ipv4\":\"");
+            buffer.writeDecimal((endpoint.ipv4 >> 24) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal((endpoint.ipv4 >> 16) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal((endpoint.ipv4 >> 8) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal(endpoint.ipv4 & 0xff);
+            buffer.writeByte('"');
+        }
+
+        String ipv6 = ZipkinV2JsonSpanEncoder.ipv6String(endpoint.ipv6);
+        if (ipv6 != null) {
+            buffer.writeAscii(",\"ipv6\":\"");
+            buffer.writeAscii(ipv6);
+            buffer.writeByte('"');
+        }
+
+        if (endpoint.port != null && endpoint.port != 0) {
+            buffer.writeAscii(",\"port\":");
+            buffer.writeDecimal(endpoint.port & 0xffff);
+        }
+        buffer.writeByte('}');
+    }
+
+    protected static String v2Kind(Span.SpanPurpose spanPurpose) {
+        ZipkinV2Span.Kind kind = proto3Kind(spanPurpose);
+        return (kind == null) ? null : kind.name();
+    }
+
+    protected static ZipkinV2Span.Kind proto3Kind(Span.SpanPurpose spanPurpose) {
+        switch (spanPurpose) {
+            case SERVER:
+                return ZipkinV2Span.Kind.SERVER;
+            case CLIENT:
+                return ZipkinV2Span.Kind.CLIENT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return The span's name the way {@link zipkin.Span.Builder#name(String)} stores it - lower case, and never null.
+     */
+    protected static String spanName(Span span) {
+        String name = span.getSpanName();
+        return (name == null) ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    protected static long durationMicros(Span span) {
+        return TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos());
+    }
+}
@@ -0,0 +1,246 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.util.List;
+import java.util.Map;
+
+import zipkin.Annotation;
+import zipkin.Endpoint;
+
+import static com.nike.wingtips.zipkin.util.ZipkinSpanWriteBuffer.utf8Length;
+import static com.nike.wingtips.zipkin.util.ZipkinSpanWriteBuffer.varintSize;
+
+/**
+ * Writes spans in Zipkin's proto3 format ({@code zipkin2.proto3.ListOfSpans}) accepted by the {@code /api/v2/spans} endpoint with a
+ * {@code application/x-protobuf} content type. See {@link ZipkinSpanEncoding#PROTO3}.
+ *
+ * <p>IDs are written as raw bytes and timestamps as fixed or variable length integers, so this is the most compact encoding - usually less
+ * than a third the size of the v1 JSON format. The nested message sizes that proto3 needs up front are calculated directly from the span
+ * rather than by encoding it twice.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinProto3SpanEncoder {
+
+    // Field keys, i.e. (field number << 3) | wire type. Wire type 0 is varint, 1 is fixed64, and 2 is length-delimited.
+    static final int LIST_OF_SPANS_SPANS_KEY = (1 << 3) | 2;
+
+    static final int SPAN_TRACE_ID_KEY = (1 << 3) | 2;
+    static final int SPAN_PARENT_ID_KEY = (2 << 3) | 2;
+    static final int SPAN_ID_KEY = (3 << 3) | 2;
+    static final int SPAN_KIND_KEY = (4 << 3);
+    static final int SPAN_NAME_KEY = (5 << 3) | 2;
+    static final int SPAN_TIMESTAMP_KEY = (6 << 3) | 1;
+    static final int SPAN_DURATION_KEY = (7 << 3);
+    static final int SPAN_LOCAL_ENDPOINT_KEY = (8 << 3) | 2;
+    static final int SPAN_REMOTE_ENDPOINT_KEY = (9 << 3) | 2;
+    static final int SPAN_ANNOTATION_KEY = (10 << 3) | 2;
+    static final int SPAN_TAG_KEY = (11 << 3) | 2;
+    static final int SPAN_DEBUG_KEY = (12 << 3);
+    static final int SPAN_SHARED_KEY = (13 << 3);
+
+    static final int ENDPOINT_SERVICE_NAME_KEY = (1 << 3) | 2;
+    static final int ENDPOINT_IPV4_KEY = (2 << 3) | 2;
+    static final int ENDPOINT_IPV6_KEY = (3 << 3) | 2;
+    static final int ENDPOINT_PORT_KEY = (4 << 3);
+
+    static final int ANNOTATION_TIMESTAMP_KEY = (1 << 3) | 1;
+    static final int ANNOTATION_VALUE_KEY = (2 << 3) | 2;
+
+    static final int TAG_KEY_KEY = (1 << 3) | 2;
+    static final int TAG_VALUE_KEY = (2 << 3) | 2;
+
+    private ZipkinProto3SpanEncoder() {
+        // Do nothing
+    }
+
+    /**
+     * @return The exact number of bytes the given span adds to a {@code ListOfSpans}, including its field key and length prefix.
+     */
+    public static int sizeInBytes(zipkin.Span span) {
+        return sizeOfLengthDelimitedField(spanSize(ZipkinV2Span.fromV1(span)));
+    }
+
+    /**
+     * @return The given spans as a proto3 {@code ListOfSpans}.
+     */
+    public static byte[] encodeSpans(List<zipkin.Span> spans) {
+        int size = 0;
+        ZipkinV2Span[] v2Spans = new ZipkinV2Span[spans.size()];
+        int[] spanSizes = new int[spans.size()];
+        for (int i = 0; i < v2Spans.length; i++) {
+            v2Spans[i] = ZipkinV2Span.fromV1(spans.get(i));
+            spanSizes[i] = spanSize(v2Spans[i]);
+            size += sizeOfLengthDelimitedField(spanSizes[i]);
+        }
+
+        ZipkinSpanWriteBuffer buffer = ZipkinSpanWriteBuffer.withInitialCapacity(size);
+        for (int i = 0; i < v2Spans.length; i++) {
+            buffer.writeByte(LIST_OF_SPANS_SPANS_KEY);
+            buffer.writeVarint(spanSizes[i]);
+            writeSpan(v2Spans[i], buffer);
+        }
+        return buffer.toByteArray();
+    }
+
+    static int spanSize(ZipkinV2Span span) {
+        int size = sizeOfLengthDelimitedField((span.traceIdHigh != 0) ? 16 : 8);
+        if (span.parentId != null && span.parentId != 0)
+            size += sizeOfLengthDelimitedField(8);
+        size += sizeOfLengthDelimitedField(8);
+        if (span.kind != null)
+            size += 1 + varintSize(span.kind.protoValue);
+        if (span.name != null && !span.name.isEmpty())
+            size += sizeOfLengthDelimitedField(utf8Length(span.name));
+        if (span.timestamp != null && span.timestamp != 0)
+            size += 1 + 8;
+        if (span.duration != null && span.duration != 0)
+            size += 1 + varintSize(span.duration);
+        if (span.localEndpoint != null)
+            size += sizeOfLengthDelimitedField(endpointSize(span.localEndpoint));
+        if (span.remoteEndpoint != null)
+            size += sizeOfLengthDelimitedField(endpointSize(span.remoteEndpoint));
+        for (Annotation annotation : span.annotations) {
+            size += sizeOfLengthDelimitedField(annotationSize(annotation));
+        }
+        for (Map.Entry<String, String> tag : span.tags.entrySet()) {
+            size += sizeOfLengthDelimitedField(tagSize(tag));
+        }
+        if (span.debug)
+            size += 2;
+        if (span.shared)
+            size += 2;
+        return size;
+    }
+
+    static void writeSpan(ZipkinV2Span span, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeByte(SPAN_TRACE_ID_KEY);
+        if (span.traceIdHigh != 0) {
+            buffer.writeVarint(16);
+            buffer.writeLongBigEndian(span.traceIdHigh);
+        }
+        else
+            buffer.writeVarint(8);
+        buffer.writeLongBigEndian(span.traceId);
+
+        if (span.parentId != null && span.parentId != 0) {
+            buffer.writeByte(SPAN_PARENT_ID_KEY);
+            buffer.writeVarint(8);
+            buffer.writeLongBigEndian(span.parentId);
+        }
+
+        buffer.writeByte(SPAN_ID_KEY);
+        buffer.writeVarint(8);
+        buffer.writeLongBigEndian(span.id);
+
+        if (span.kind != null) {
+            buffer.writeByte(SPAN_KIND_KEY);
+            buffer.writeVarint(span.kind.protoValue);
+        }
+
+        if (span.name != null && !span.name.isEmpty())
+            writeString(SPAN_NAME_KEY, span.name, buffer);
+
+        if (span.timestamp != null && span.timestamp != 0) {
+            buffer.writeByte(SPAN_TIMESTAMP_KEY);
+            buffer.writeFixed64LittleEndian(span.timestamp);
+        }
+
+        if (span.duration != null && span.duration != 0) {
+            buffer.writeByte(SPAN_DURATION_KEY);
+            buffer.writeVarint(span.duration);
+        }
+
+        if (span.localEndpoint != null)
+            writeEndpoint(SPAN_LOCAL_ENDPOINT_KEY, span.localEndpoint, buffer);
+
+        if (span.remoteEndpoint != null)
+            writeEndpoint(SPAN_REMOTE_ENDPOINT_KEY, span.remoteEndpoint, buffer);
+
+        for (Annotation annotation : span.annotations) {
+            buffer.writeByte(SPAN_ANNOTATION_KEY);
+            buffer.writeVarint(annotationSize(annotation));
+            buffer.writeByte(ANNOTATION_TIMESTAMP_KEY);
+            buffer.writeFixed64LittleEndian(annotation.timestamp);
+            writeString(ANNOTATION_VALUE_KEY, annotation.value, buffer);
+        }
+
+        for (Map.Entry<String, String> tag : span.tags.entrySet()) {
+            buffer.writeByte(SPAN_TAG_KEY);
+            buffer.writeVarint(tagSize(tag));
+            writeString(TAG_KEY_KEY, tag.getKey(), buffer);
+            writeString(TAG_VALUE_KEY, tag.getValue(), buffer);
+        }
+
+        if (span.debug) {
+            buffer.writeByte(SPAN_DEBUG_KEY);
+            buffer.writeByte(1);
+        }
+
+        if (span.shared) {
+            buffer.writeByte(SPAN_SHARED_KEY);
+            buffer.writeByte(1);
+        }
+    }
+
+    static int endpointSize(Endpoint endpoint) {
+        int size = 0;
+        if (endpoint.serviceName != null && !endpoint.serviceName.isEmpty())
+            size += sizeOfLengthDelimitedField(utf8Length(endpoint.serviceName));
+        if (endpoint.ipv4 != 0)
+            size += sizeOfLengthDelimitedField(4);
+        if (endpoint.ipv6 != null && endpoint.ipv6.length == 16)
+            size += sizeOfLengthDelimitedField(16);
+        if (endpoint.port != null && endpoint.port != 0)
+            size += 1 + varintSize(endpoint.port & 0xffff);
+        return size;
+    }
+
+    static void writeEndpoint(int key, Endpoint endpoint, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeByte(key);
+        buffer.writeVarint(endpointSize(endpoint));
+
+        if (endpoint.serviceName != null && !endpoint.serviceName.isEmpty())
+            writeString(ENDPOINT_SERVICE_NAME_KEY, endpoint.serviceName, buffer);
+
+        if (endpoint.ipv4 != 0) {
+            buffer.writeByte(ENDPOINT_IPV4_KEY);
+            buffer.writeVarint(4);
+            buffer.writeByte(endpoint.ipv4 >> 24);
+            buffer.writeByte(endpoint.ipv4 >> 16);
+            buffer.writeByte(endpoint.ipv4 >> 8);
+            buffer.writeByte(endpoint.ipv4);
+        }
+
+        if (endpoint.ipv6 != null && endpoint.ipv6.length == 16) {
+            buffer.writeByte(ENDPOINT_IPV6_KEY);
+            buffer.writeVarint(16);
+            buffer.writeBytes(endpoint.ipv6);
+        }
+
+        if (endpoint.port != null && endpoint.port != 0) {
+            buffer.writeByte(ENDPOINT_PORT_KEY);
+            buffer.writeVarint(endpoint.port & 0xffff);
+        }
+    }
+
+    static int annotationSize(Annotation annotation) {
+        return 1 + 8 + sizeOfLengthDelimitedField(utf8Length(annotation.value));
+    }
+
+    static int tagSize(Map.Entry<String, String> tag) {
+        return sizeOfLengthDelimitedField(utf8Length(tag.getKey())) + sizeOfLengthDelimitedField(utf8Length(tag.getValue()));
+    }
+
+    static void writeString(int key, String value, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeByte(key);
+        buffer.writeVarint(utf8Length(value));
+        buffer.writeUtf8(value);
+    }
+
+    /**
+     * @return The size of a length-delimited field with the given content size - one byte for the key (every field number used here is
+     * below 16), plus the length prefix, plus the content.
+     */
+    static int sizeOfLengthDelimitedField(int contentSize) {
+        return 1 + varintSize(contentSize) + contentSize;
+    }
+}
@@ -0,0 +1,617 @@
+package com.nike.wingtips.zipkin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, disk-backed FIFO of encoded span batches, used by {@link ZipkinSpanSenderDefaultHttpImpl} to hold on to spans while the Zipkin
+ * server is unreachable (see {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withDiskSpool(ZipkinSpanDiskSpool)}). Batches are replayed in
+ * the order they were spooled once the server recovers, so a collector outage or maintenance window doesn't have to be ridden out on heap.
+ *
+ * <p>Batches are appended to segment files in the spool directory ({@code spans-<sequence>.spool}). A new segment is started once the
+ * current one reaches {@code maxSegmentBytes}, and a segment is deleted as soon as every batch in it has been replayed. Each record has a
+ * small header holding the payload length, span count, time it was written, and a CRC32 of the payload. How far replay has got is kept in a
+ * small {@code read.cursor} file, so batches that were already delivered aren't sent again after a restart.
+ *
+ * <p>Limits:
+ * <ul>
+ *     <li>{@code maxTotalBytes} - when an append would take the spool over this size, the oldest segments are deleted to make room. Their
+ *     spans are counted in {@link #getDroppedSpanCount()}.</li>
+ *     <li>{@code maxAgeMillis} - batches older than this are skipped instead of being replayed, and counted in {@link
+ *     #getExpiredSpanCount()}. Stale spans aren't useful to anyone and would only slow down the catch-up after an outage.</li>
+ * </ul>
+ *
+ * <p>Crash safety: on startup every existing segment is scanned and checked against its CRCs. A segment is truncated at the first record
+ * that is incomplete or corrupt (e.g. a torn write when the process died), so everything before it is kept and replayed. Writes aren't
+ * {@code fsync}ed, which means a process crash loses nothing that was appended, while an operating system crash can lose the most recent
+ * appends.
+ *
+ * <p>All methods are synchronized. Appends only happen while the Zipkin server is failing, and replays are done one batch at a time by a
+ * single sender thread, so contention isn't a concern.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinSpanDiskSpool implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    protected static final String SEGMENT_FILE_PREFIX = "spans-";
+    protected static final String SEGMENT_FILE_SUFFIX = ".spool";
+    protected static final String CURSOR_FILE_NAME = "read.cursor";
+
+    // Payload length (int), span count (int), written at millis (long), and CRC32 of the payload (int).
+    protected static final int RECORD_HEADER_BYTES = 4 + 4 + 8 + 4;
+    // Segment sequence (long), read offset (long), and CRC32 of those two values (int).
+    protected static final int CURSOR_BYTES = 8 + 8 + 4;
+
+    protected final File directory;
+    protected final long maxTotalBytes;
+    protected final long maxSegmentBytes;
+    protected final long maxAgeMillis;
+
+    // Oldest first. The last segment is the one being appended to.
+    protected final Deque<Segment> segments = new ArrayDeque<>();
+    protected final FileChannel cursorChannel;
+    // The offset of the next unread record in the head segment.
+    protected long readOffset;
+    protected long totalBytes;
+    protected long spooledSpanCount;
+    protected long nextSegmentSequence;
+    protected boolean closed;
+
+    protected final AtomicLong droppedSpanCount = new AtomicLong(0);
+    protected final AtomicLong expiredSpanCount = new AtomicLong(0);
+
+    /**
+     * Convenience constructor that calls the kitchen-sink constructor with {@link #DEFAULT_MAX_TOTAL_BYTES}, {@link
+     * #DEFAULT_MAX_SEGMENT_BYTES}, and {@link #DEFAULT_MAX_AGE_MILLIS}.
+     *
+     * @param directory The directory to keep the spool's files in. It's created if it doesn't exist. Must not be shared with another spool.
+     */
+    public ZipkinSpanDiskSpool(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_TOTAL_BYTES, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Kitchen-sink constructor. Recovers any segments left in the directory by a previous instance before returning.
+     *
+     * @param directory The directory to keep the spool's files in. It's created if it doesn't exist. Must not be shared with another spool.
+     * @param maxTotalBytes The max size of all segment files combined - must be greater than 0.
+     * @param maxSegmentBytes The size at which a new segment file is started - must be greater than 0. A single batch bigger than this gets
+     *                        a segment to itself.
+     * @param maxAgeMillis How long a spooled batch is worth replaying - must be greater than 0.
+     * @throws IOException if the directory can't be created, or the existing files can't be read.
+     */
+    public ZipkinSpanDiskSpool(File directory, long maxTotalBytes, long maxSegmentBytes, long maxAgeMillis) throws IOException {
+        if (directory == null)
+            throw new IllegalArgumentException("directory cannot be null");
+
+        if (maxTotalBytes <= 0)
+            throw new IllegalArgumentException("maxTotalBytes must be greater than 0. Received: " + maxTotalBytes);
+
+        if (maxSegmentBytes <= 0)
+            throw new IllegalArgumentException("maxSegmentBytes must be greater than 0. Received: " + maxSegmentBytes);
+
+        if (maxAgeMillis <= 0)
+            throw new IllegalArgumentException("maxAgeMillis must be greater than 0. Received: " + maxAgeMillis);
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create Zipkin span spool directory: " + directory.getAbsolutePath());
+
+        this.directory = directory;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.cursorChannel = FileChannel.open(
+            new File(directory, CURSOR_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+
+        try {
+            recover();
+        }
+        catch (IOException | RuntimeException ex) {
+            closeQuietly();
+            throw ex;
+        }
+    }
+
+    /**
+     * Appends the given encoded batch to the spool, making room by deleting the oldest segments if the spool is full.
+     *
+     * @param payload The encoded batch.
+     * @param spanCount The number of spans in the batch, for the spool's counters.
+     * @return true if the batch was spooled, false if it was dropped because it's bigger than {@link #maxTotalBytes} all on its own.
+     * @throws IOException if writing to the spool failed. The spool stays usable - the failed record is overwritten by the next append.
+     */
+    public synchronized boolean append(byte[] payload, int spanCount) throws IOException {
+        ensureOpen();
+        long recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (recordBytes > maxTotalBytes) {
+            droppedSpanCount.addAndGet(spanCount);
+            return false;
+        }
+
+        long now = currentTimeMillis();
+        deleteExpiredSegments(now);
+        while (totalBytes + recordBytes > maxTotalBytes && !segments.isEmpty()) {
+            Segment oldest = segments.peekFirst();
+            if (oldest.spanCount > 0) {
+                droppedSpanCount.addAndGet(oldest.spanCount);
+                logger.warn("Zipkin span spool is full - deleted oldest segment. dropped_span_count={}, spool_directory={}",
+                            oldest.spanCount, directory.getAbsolutePath());
+            }
+            deleteHeadSegment();
+        }
+
+        Segment tail = segments.peekLast();
+        if (tail == null || (tail.size > 0 && tail.size + recordBytes > maxSegmentBytes))
+            tail = startNewSegment();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        header.putInt(payload.length).putInt(spanCount).putLong(now).putInt((int) crc.getValue());
+        header.flip();
+
+        writeFully(tail.channel, new ByteBuffer[]{header, ByteBuffer.wrap(payload)}, tail.size);
+        tail.size += recordBytes;
+        tail.spanCount += spanCount;
+        tail.lastWriteMillis = now;
+        totalBytes += recordBytes;
+        spooledSpanCount += spanCount;
+        return true;
+    }
+
+    /**
+     * @return The oldest spooled batch that hasn't expired, or null if the spool is empty. The batch stays in the spool until it's passed to
+     * {@link #remove(SpooledBatch)}, so calling this again returns the same batch.
+     * @throws IOException if reading from the spool failed.
+     */
+    public synchronized SpooledBatch peek() throws IOException {
+        ensureOpen();
+        long expiredBefore = currentTimeMillis() - maxAgeMillis;
+        while (true) {
+            Segment head = segments.peekFirst();
+            if (head == null)
+                return null;
+
+            if (readOffset >= head.size) {
+                if (head == segments.peekLast())
+                    return null;
+
+                deleteHeadSegment();
+                continue;
+            }
+
+            SpooledBatch batch = readRecord(head, readOffset);
+            if (batch == null) {
+                // Only possible if the file was changed underneath us, since recovery validated every record.
+                logger.error("Corrupt record found in Zipkin span spool - skipping the rest of the segment. segment_file={}, offset={}",
+                             head.file.getAbsolutePath(), readOffset);
+                droppedSpanCount.addAndGet(head.spanCount);
+                spooledSpanCount -= head.spanCount;
+                head.spanCount = 0;
+                advanceReadOffset(head.size);
+                continue;
+            }
+
+            if (batch.writtenAtMillis < expiredBefore) {
+                expiredSpanCount.addAndGet(batch.spanCount);
+                consume(batch);
+                continue;
+            }
+
+            return batch;
+        }
+    }
+
+    /**
+     * Removes the given batch, which must be the one most recently returned by {@link #peek()}, because it has been delivered. Calls with any
+     * other batch are ignored.
+     *
+     * @throws IOException if the read cursor couldn't be saved.
+     */
+    public synchronized void remove(SpooledBatch batch) throws IOException {
+        ensureOpen();
+        Segment head = segments.peekFirst();
+        if (head == null || head.sequence != batch.segmentSequence || readOffset != batch.offset)
+            return;
+
+        consume(batch);
+    }
+
+    /**
+     * @return true if there's nothing left to replay (possibly apart from expired batches that {@link #peek()} hasn't skipped yet).
+     */
+    public synchronized boolean isEmpty() {
+        return spooledSpanCount == 0;
+    }
+
+    /**
+     * @return The number of spans waiting in the spool to be replayed.
+     */
+    public synchronized long getSpooledSpanCount() {
+        return spooledSpanCount;
+    }
+
+    /**
+     * @return The size of all the spool's segment files combined, including batches that were replayed but whose segment is still in use.
+     */
+    public synchronized long getSpooledBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The total number of spans that were thrown away because the spool was full (or a batch was too big for it).
+     */
+    public long getDroppedSpanCount() {
+        return droppedSpanCount.get();
+    }
+
+    /**
+     * @return The total number of spans that were skipped instead of replayed because they were older than {@code maxAgeMillis}.
+     */
+    public long getExpiredSpanCount() {
+        return expiredSpanCount.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Closes the spool's files. Everything that was spooled stays on disk and is recovered by the next instance that uses the directory.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        IOException firstFailure = null;
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            }
+            catch (IOException ex) {
+                if (firstFailure == null)
+                    firstFailure = ex;
+            }
+        }
+        segments.clear();
+        cursorChannel.close();
+
+        if (firstFailure != null)
+            throw firstFailure;
+    }
+
+    /**
+     * Loads the read cursor and every segment in {@link #directory}, truncating each segment at its first incomplete or corrupt record.
+     */
+    protected void recover() throws IOException {
+        long cursorSequence = -1;
+        long cursorOffset = 0;
+        ByteBuffer cursor = ByteBuffer.allocate(CURSOR_BYTES);
+        if (cursorChannel.size() >= CURSOR_BYTES && readFully(cursorChannel, cursor, 0)) {
+            cursor.flip();
+            long sequence = cursor.getLong();
+            long offset = cursor.getLong();
+            if (cursor.getInt() == cursorChecksum(sequence, offset)) {
+                cursorSequence = sequence;
+                cursorOffset = offset;
+            }
+        }
+
+        for (long sequence : findSegmentSequences()) {
+            nextSegmentSequence = sequence + 1;
+            File file = segmentFile(sequence);
+            if (sequence < cursorSequence) {
+                // Everything in it was replayed, we just didn't get as far as deleting it.
+                deleteFile(file);
+                continue;
+            }
+
+            Segment segment = new Segment(sequence, file, openSegmentChannel(file));
+            long unreadFrom = (sequence == cursorSequence) ? cursorOffset : 0;
+            scanSegment(segment, unreadFrom);
+            if (segment.size == 0) {
+                segment.channel.close();
+                deleteFile(file);
+                continue;
+            }
+
+            if (segments.isEmpty())
+                readOffset = Math.min(unreadFrom, segment.size);
+
+            segments.addLast(segment);
+            totalBytes += segment.size;
+            spooledSpanCount += segment.spanCount;
+        }
+
+        // Never reuse a sequence number at or below the cursor's, or the new segment would look like it had already been replayed.
+        nextSegmentSequence = Math.max(nextSegmentSequence, cursorSequence);
+
+        if (!segments.isEmpty()) {
+            logger.info("Recovered Zipkin span spool. spooled_span_count={}, spooled_bytes={}, segment_count={}, spool_directory={}",
+                        spooledSpanCount, totalBytes, segments.size(), directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Validates every record in the given segment, sets its size, unread span count, and last write time, and truncates the file after the
+     * last valid record.
+     */
+    protected void scanSegment(Segment segment, long unreadFrom) throws IOException {
+        long fileSize = segment.channel.size();
+        long position = 0;
+        while (position < fileSize) {
+            SpooledBatch batch = readRecord(segment, position, fileSize);
+            if (batch == null) {
+                logger.warn("Truncating incomplete or corrupt record in Zipkin span spool segment. segment_file={}, offset={}, "
+                            + "discarded_bytes={}", segment.file.getAbsolutePath(), position, fileSize - position);
+                segment.channel.truncate(position);
+                break;
+            }
+
+            if (position >= unreadFrom)
+                segment.spanCount += batch.spanCount;
+
+            segment.lastWriteMillis = batch.writtenAtMillis;
+            position = batch.nextOffset;
+        }
+        segment.size = position;
+    }
+
+    protected SpooledBatch readRecord(Segment segment, long offset) throws IOException {
+        return readRecord(segment, offset, segment.size);
+    }
+
+    /**
+     * @return The record at the given offset, or null if it's incomplete (runs past {@code limit}) or its CRC doesn't match.
+     */
+    protected SpooledBatch readRecord(Segment segment, long offset, long limit) throws IOException {
+        if (limit - offset < RECORD_HEADER_BYTES)
+            return null;
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        if (!readFully(segment.channel, header, offset))
+            return null;
+
+        header.flip();
+        int payloadLength = header.getInt();
+        int spanCount = header.getInt();
+        long writtenAtMillis = header.getLong();
+        int expectedCrc = header.getInt();
+        long payloadOffset = offset + RECORD_HEADER_BYTES;
+        if (payloadLength < 0 || spanCount < 0 || limit - payloadOffset < payloadLength)
+            return null;
+
+        byte[] payload = new byte[payloadLength];
+        if (!readFully(segment.channel, ByteBuffer.wrap(payload), payloadOffset))
+            return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payloadLength);
+        if ((int) crc.getValue() != expectedCrc)
+            return null;
+
+        return new SpooledBatch(payload, spanCount, writtenAtMillis, segment.sequence, offset, payloadOffset + payloadLength);
+    }
+
+    /**
+     * Moves the read cursor past the given batch (which must be the head segment's next unread record), deleting the head segment if that
+     * was its last record, or emptying the spool's only segment so its space is reused.
+     */
+    protected void consume(SpooledBatch batch) throws IOException {
+        Segment head = segments.peekFirst();
+        head.spanCount -= batch.spanCount;
+        spooledSpanCount -= batch.spanCount;
+        advanceReadOffset(batch.nextOffset);
+    }
+
+    protected void advanceReadOffset(long newReadOffset) throws IOException {
+        Segment head = segments.peekFirst();
+        readOffset = newReadOffset;
+        if (readOffset < head.size)
+            saveCursor(head.sequence, readOffset);
+        else if (head != segments.peekLast())
+            deleteHeadSegment();
+        else {
+            // Everything has been replayed - start the only segment over rather than letting it grow.
+            head.channel.truncate(0);
+            totalBytes -= head.size;
+            head.size = 0;
+            head.spanCount = 0;
+            readOffset = 0;
+            saveCursor(head.sequence, 0);
+        }
+    }
+
+    protected void deleteHeadSegment() throws IOException {
+        Segment head = segments.pollFirst();
+        spooledSpanCount -= head.spanCount;
+        totalBytes -= head.size;
+        readOffset = 0;
+        head.channel.close();
+        deleteFile(head.file);
+
+        Segment newHead = segments.peekFirst();
+        saveCursor((newHead == null) ? head.sequence + 1 : newHead.sequence, 0);
+    }
+
+    /**
+     * Deletes segments that only hold expired batches, so stale data doesn't use up space that newer batches could use.
+     */
+    protected void deleteExpiredSegments(long now) throws IOException {
+        Segment head;
+        while ((head = segments.peekFirst()) != null && head != segments.peekLast() && head.lastWriteMillis < now - maxAgeMillis) {
+            expiredSpanCount.addAndGet(head.spanCount);
+            deleteHeadSegment();
+        }
+    }
+
+    protected Segment startNewSegment() throws IOException {
+        long sequence = nextSegmentSequence++;
+        File file = segmentFile(sequence);
+        Segment segment = new Segment(sequence, file, openSegmentChannel(file));
+        // Any leftovers with this name can't be valid, since recovery only hands out sequence numbers after the existing files.
+        segment.channel.truncate(0);
+        segment.lastWriteMillis = currentTimeMillis();
+        if (segments.isEmpty()) {
+            readOffset = 0;
+            saveCursor(sequence, 0);
+        }
+        segments.addLast(segment);
+        return segment;
+    }
+
+    protected void saveCursor(long sequence, long offset) throws IOException {
+        ByteBuffer cursor = ByteBuffer.allocate(CURSOR_BYTES);
+        cursor.putLong(sequence).putLong(offset).putInt(cursorChecksum(sequence, offset));
+        cursor.flip();
+        writeFully(cursorChannel, new ByteBuffer[]{cursor}, 0);
+    }
+
+    protected static int cursorChecksum(long sequence, long offset) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(sequence).putLong(offset);
+        crc.update(buffer.array(), 0, 16);
+        return (int) crc.getValue();
+    }
+
+    protected List<Long> findSegmentSequences() {
+        List<Long> sequences = new ArrayList<>();
+        String[] fileNames = directory.list();
+        if (fileNames == null)
+            return sequences;
+
+        for (String fileName : fileNames) {
+            if (!fileName.startsWith(SEGMENT_FILE_PREFIX) || !fileName.endsWith(SEGMENT_FILE_SUFFIX))
+                continue;
+
+            String sequence = fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length());
+            try {
+                sequences.add(Long.parseLong(sequence));
+            }
+            catch (NumberFormatException ex) {
+                logger.warn("Ignoring unexpected file in Zipkin span spool directory. file_name={}", fileName);
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    protected File segmentFile(long sequence) {
+        // Zero-padded so a directory listing shows segments in order.
+        return new File(directory, String.format("%s%019d%s", SEGMENT_FILE_PREFIX, sequence, SEGMENT_FILE_SUFFIX));
+    }
+
+    protected FileChannel openSegmentChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    protected void deleteFile(File file) {
+        if (!file.delete() && file.exists())
+            logger.warn("Unable to delete Zipkin span spool segment. segment_file={}", file.getAbsolutePath());
+    }
+
+    protected static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                return false;
+
+            position += read;
+        }
+        return true;
+    }
+
+    protected static void writeFully(FileChannel channel, ByteBuffer[] buffers, long position) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    protected void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("This Zipkin span spool has been closed. spool_directory=" + directory.getAbsolutePath());
+    }
+
+    protected void closeQuietly() {
+        try {
+            close();
+        }
+        catch (IOException ex) {
+            logger.warn("Error closing Zipkin span spool. spool_directory={}", directory.getAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * @return The current wall clock time in milliseconds - {@link System#currentTimeMillis()} by default. Wall clock time (rather than
+     * {@link System#nanoTime()}) is needed since the write times are compared across restarts. Protected so tests can supply their own clock.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * One of the spool's segment files. Only accessed while holding the spool's lock.
+     */
+    protected static class Segment {
+        protected final long sequence;
+        protected final File file;
+        protected final FileChannel channel;
+        protected long size;
+        // The number of spans in records that haven't been replayed yet (for the head segment, the ones at or after readOffset).
+        protected long spanCount;
+        protected long lastWriteMillis;
+
+        protected Segment(long sequence, File file, FileChannel channel) {
+            this.sequence = sequence;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * An encoded batch of spans returned by {@link #peek()}.
+     */
+    public static class SpooledBatch {
+        public final byte[] payload;
+        public final int spanCount;
+        public final long writtenAtMillis;
+        protected final long segmentSequence;
+        protected final long offset;
+        protected final long nextOffset;
+
+        protected SpooledBatch(byte[] payload, int spanCount, long writtenAtMillis, long segmentSequence, long offset, long nextOffset) {
+            this.payload = payload;
+            this.spanCount = spanCount;
+            this.writtenAtMillis = writtenAtMillis;
+            this.segmentSequence = segmentSequence;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+        }
+    }
+}
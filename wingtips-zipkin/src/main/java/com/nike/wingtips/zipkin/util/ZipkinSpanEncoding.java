@@ -0,0 +1,90 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.util.List;
+
+import zipkin.Codec;
+
+/**
+ * The wire formats {@link ZipkinSpanSenderDefaultHttpImpl} can send spans in. Each one knows which Zipkin API endpoint accepts it and what
+ * content type to send. Pick one with {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withEncoding(ZipkinSpanEncoding)}.
+ *
+ * <p>{@link #JSON_V1} is the default, since it's accepted by every Zipkin server. {@link #JSON_V2} and {@link #PROTO3} need a Zipkin server
+ * that supports the {@code /api/v2/spans} endpoint (Zipkin 1.31 or later for JSON, 2.8 or later for proto3), and are much smaller - a
+ * typical Wingtips span is less than half the size in v2 JSON, and less than a third in proto3, than it is in v1 JSON.
+ */
+public enum ZipkinSpanEncoding {
+    /**
+     * The v1 JSON format, written by {@link Codec#JSON}.
+     */
+    JSON_V1("api/v1/spans", "application/json") {
+        @Override
+        public int sizeInBytes(zipkin.Span span) {
+            return Codec.JSON.sizeInBytes(span);
+        }
+
+        @Override
+        public byte[] encodeSpans(List<zipkin.Span> spans) {
+            return Codec.JSON.writeSpans(spans);
+        }
+    },
+    /**
+     * The v2 JSON format, written by {@link ZipkinV2JsonSpanEncoder}.
+     */
+    JSON_V2("api/v2/spans", "application/json") {
+        @Override
+        public int sizeInBytes(zipkin.Span span) {
+            return ZipkinV2JsonSpanEncoder.sizeInBytes(span);
+        }
+
+        @Override
+        public byte[] encodeSpans(List<zipkin.Span> spans) {
+            return ZipkinV2JsonSpanEncoder.encodeSpans(spans);
+        }
+    },
+    /**
+     * The v2 proto3 binary format, written by {@link ZipkinProto3SpanEncoder}.
+     */
+    PROTO3("api/v2/spans", "application/x-protobuf") {
+        @Override
+        public int sizeInBytes(zipkin.Span span) {
+            return ZipkinProto3SpanEncoder.sizeInBytes(span);
+        }
+
+        @Override
+        public byte[] encodeSpans(List<zipkin.Span> spans) {
+            return ZipkinProto3SpanEncoder.encodeSpans(spans);
+        }
+    };
+
+    private final String apiPath;
+    private final String contentType;
+
+    ZipkinSpanEncoding(String apiPath, String contentType) {
+        this.apiPath = apiPath;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return The path, relative to the Zipkin server's base URL, of the endpoint that accepts this encoding - e.g. {@code api/v2/spans}.
+     */
+    public String getApiPath() {
+        return apiPath;
+    }
+
+    /**
+     * @return The content type to send payloads in this encoding with.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The number of bytes the given span takes up in a payload in this encoding, give or take a separator.
+     */
+    public abstract int sizeInBytes(zipkin.Span span);
+
+    /**
+     * @return A payload holding the given spans in this encoding.
+     */
+    public abstract byte[] encodeSpans(List<zipkin.Span> spans);
+}
@@ -0,0 +1,172 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ *     Gzips span payloads for {@link ZipkinSpanSenderDefaultHttpImpl}. Each thread that uses an instance gets its own {@link Deflater} and
+ *     output buffer, which are reset and reused for every payload rather than being allocated (and, for the {@link Deflater}, finalized) per
+ *     batch like a new {@link java.util.zip.GZIPOutputStream} would be. Since the sender only compresses on its own background threads this
+ *     means one {@link Deflater} per in-flight batch.
+ * </p>
+ * <p>
+ *     {@link #gzipTo(byte[], OutputStream)} deflates the payload through the thread's output buffer straight into the request body of a
+ *     {@link ZipkinSpanStreamingTransport}, so the compressed payload is never held in memory at all. {@link #gzip(byte[])} is for transports
+ *     that need the compressed bytes up front - it deflates into the thread's output buffer (growing it as needed), with the gzip header and
+ *     trailer written around it, and returns an exact-size copy. Output buffers that had to grow past {@link #MAX_RETAINED_BUFFER_BYTES} for an
+ *     unusually large payload are dropped afterwards rather than being kept around.
+ * </p>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinSpanPayloadCompressor {
+
+    public static final int MAX_RETAINED_BUFFER_BYTES = 1024 * 1024;
+
+    protected static final int INITIAL_BUFFER_BYTES = 8 * 1024;
+    protected static final int GZIP_HEADER_BYTES = 10;
+    protected static final int GZIP_TRAILER_BYTES = 8;
+
+    protected final int compressionLevel;
+
+    protected final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(new Deflater(compressionLevel, true));
+        }
+    };
+
+    /**
+     * @param compressionLevel The deflate compression level - {@link Deflater#DEFAULT_COMPRESSION}, or 0 ({@link Deflater#NO_COMPRESSION})
+     *                         to 9 ({@link Deflater#BEST_COMPRESSION}). {@link Deflater#BEST_SPEED} is usually a good tradeoff for large
+     *                         batches, since span payloads are very repetitive and compress well even at the fastest level.
+     */
+    public ZipkinSpanPayloadCompressor(int compressionLevel) {
+        if (!isValidCompressionLevel(compressionLevel)) {
+            throw new IllegalArgumentException(
+                "compressionLevel must be Deflater.DEFAULT_COMPRESSION (-1) or between 0 and 9. Received: " + compressionLevel
+            );
+        }
+
+        this.compressionLevel = compressionLevel;
+    }
+
+    public static boolean isValidCompressionLevel(int compressionLevel) {
+        return compressionLevel == Deflater.DEFAULT_COMPRESSION
+               || (compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return The given payload in gzip format.
+     */
+    public byte[] gzip(byte[] payload) {
+        ThreadState state = threadState.get();
+        Deflater deflater = state.deflater;
+        byte[] buffer = state.buffer;
+        try {
+            writeGzipHeader(buffer);
+            int position = GZIP_HEADER_BYTES;
+
+            deflater.setInput(payload);
+            deflater.finish();
+            while (!deflater.finished()) {
+                // Always leave room for the trailer so it never needs its own resize.
+                if (buffer.length - position - GZIP_TRAILER_BYTES <= 0)
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                position += deflater.deflate(buffer, position, buffer.length - position - GZIP_TRAILER_BYTES);
+            }
+
+            state.crc.update(payload, 0, payload.length);
+            writeIntLittleEndian(buffer, position, (int) state.crc.getValue());
+            writeIntLittleEndian(buffer, position + 4, payload.length);
+            position += GZIP_TRAILER_BYTES;
+
+            return Arrays.copyOf(buffer, position);
+        }
+        finally {
+            deflater.reset();
+            state.crc.reset();
+            state.buffer = (buffer.length <= MAX_RETAINED_BUFFER_BYTES) ? buffer : new byte[INITIAL_BUFFER_BYTES];
+        }
+    }
+
+    /**
+     * Writes the given payload in gzip format to the given stream, one output buffer at a time. Nothing is allocated per payload, and the
+     * output buffer never grows.
+     */
+    public void gzipTo(byte[] payload, OutputStream out) throws IOException {
+        ThreadState state = threadState.get();
+        Deflater deflater = state.deflater;
+        byte[] buffer = state.buffer;
+        try {
+            writeGzipHeader(buffer);
+            int position = GZIP_HEADER_BYTES;
+
+            deflater.setInput(payload);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (position == buffer.length) {
+                    out.write(buffer, 0, position);
+                    position = 0;
+                }
+
+                position += deflater.deflate(buffer, position, buffer.length - position);
+            }
+
+            if (buffer.length - position < GZIP_TRAILER_BYTES) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+
+            state.crc.update(payload, 0, payload.length);
+            writeIntLittleEndian(buffer, position, (int) state.crc.getValue());
+            writeIntLittleEndian(buffer, position + 4, payload.length);
+            out.write(buffer, 0, position + GZIP_TRAILER_BYTES);
+        }
+        finally {
+            deflater.reset();
+            state.crc.reset();
+        }
+    }
+
+    protected static void writeGzipHeader(byte[] buffer) {
+        buffer[0] = (byte) 0x1f;    // Magic number
+        buffer[1] = (byte) 0x8b;
+        buffer[2] = Deflater.DEFLATED;
+        buffer[3] = 0;              // Flags
+        buffer[4] = 0;              // Modification time (none)
+        buffer[5] = 0;
+        buffer[6] = 0;
+        buffer[7] = 0;
+        buffer[8] = 0;              // Extra flags
+        buffer[9] = (byte) 0xff;    // OS (unknown)
+    }
+
+    protected static void writeIntLittleEndian(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+    /**
+     * The compression state owned by a single thread.
+     */
+    protected static class ThreadState {
+        protected final Deflater deflater;
+        protected final CRC32 crc = new CRC32();
+        protected byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+
+        protected ThreadState(Deflater deflater) {
+            this.deflater = deflater;
+        }
+    }
+}
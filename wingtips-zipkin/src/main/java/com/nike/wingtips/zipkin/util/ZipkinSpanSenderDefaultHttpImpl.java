@@ -1,50 +1,161 @@
 package com.nike.wingtips.zipkin.util;
 
+import com.nike.wingtips.Span;
+import com.nike.wingtips.sampling.AdaptiveSamplingStrategy;
+import com.nike.wingtips.util.BoundedRingBuffer;
+import com.nike.wingtips.util.BoundedRingBuffer.OverflowPolicy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
-import zipkin.Codec;
+import zipkin.Endpoint;
 
 /**
  * A default no-dependencies implementation of {@link ZipkinSpanSender} that collects spans into batches and sends them to the Zipkin server
  * at a regular intervals over HTTP.
  *
+ * <p>Spans waiting to be sent are held in a bounded, lock-free {@link BoundedRingBuffer}, so {@link #handleSpan(zipkin.Span)} never takes a
+ * lock or allocates a queue node, and request threads only contend on a single compare-and-set. The buffer holds at most {@code
+ * maxQueuedSpans} spans (rounded up to a power of two), and can optionally also be limited to {@code maxQueuedBytes} of (approximate) encoded
+ * payload. When either limit is hit the configured {@link OverflowPolicy} decides which span is dropped, and every dropped span is counted
+ * in {@link #getDroppedSpanCount()}. This means spans piling up while the Zipkin server is down or slow can never exhaust the heap.
+ *
+ * <p>Spans are sent in batches of at most {@code maxBatchSpans} spans (and, optionally, roughly {@code maxBatchBytes} of payload). Batches go
+ * out every {@code batchSendingPeriodMillis}, and also as soon as a full batch's worth of spans is queued, so bursts are sent in several
+ * reasonably sized requests instead of one huge payload at the end of the period. Up to {@code maxInFlightBatches} batches can be POSTed
+ * concurrently (each on its own {@code zipkin-span-sender} thread), so export throughput isn't capped at one round trip per period.
+ *
+ * <p>A batch that fails with an {@link IOException} is retried up to {@code maxSendRetries} times, with exponential backoff and jitter between
+ * attempts. A {@link CircuitBreaker} watches for consecutive failures. When it opens, spans are left in the queue rather than being serialized
+ * and sent, apart from one probe batch every {@code circuitBreakerOpenMillis}. Sending resumes as soon as a probe succeeds. Spans that arrive
+ * while the circuit is open are subject to the same queue limits as always, so a long outage drops spans rather than growing the heap.
+ *
+ * <p>Optionally, a {@link ZipkinSpanDiskSpool} can be supplied to ride out longer outages. Batches that still fail after their retries, and
+ * everything drained from the queue while the circuit is open, are written to the spool instead of being discarded. Once the Zipkin server
+ * accepts spans again the spooled batches are replayed, oldest first, before any new spans are sent.
+ *
+ * <p>Spans are sent in the v1 JSON format by default. {@link Builder#withEncoding(ZipkinSpanEncoding)} switches to the much more compact v2
+ * JSON or proto3 formats (see {@link ZipkinSpanEncoding}), which are POSTed to the {@code /api/v2/spans} endpoint instead.
+ *
+ * <p>With {@link Builder#withWingtipsSpanEncoding(String, String)} the sender also accepts completed Wingtips spans directly through {@link
+ * #handleWingtipsSpan(Span)}. They're queued as-is and written straight to the wire format on the sender threads by a {@link
+ * WingtipsToZipkinSpanWireEncoder}, so converting them costs the calling thread nothing. See {@link
+ * com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener#WingtipsToZipkinLifecycleListener(ZipkinSpanSenderDefaultHttpImpl)}.
+ *
+ * <p>{@link #newBuilder(List)} takes several collector base URLs instead of one. Batches are then spread across the collectors by a {@link
+ * ZipkinSpanTransportLoadBalancer}, which fails a batch over to the next collector when one fails and ejects collectors that keep failing
+ * until a probe batch succeeds again.
+ *
+ * <p>Health metrics (success, failure and drop counters, plus queue depth, batch size, payload size and send latency histograms) are
+ * recorded by a {@link ZipkinSpanSenderMetrics}. Poll them with {@link #getMetricsSnapshot()}, or over JMX by registering the sender as a
+ * {@link ZipkinSpanSenderMXBean} with {@link Builder#withMBeanRegistration(String)}.
+ *
+ * <p>{@link #close()} sends whatever is still queued, waiting at most {@code shutdownFlushTimeoutMillis}, and then stops the sender threads.
+ * Call it when your application shuts down, or have {@link Builder#withShutdownFlush(long, boolean)} register a JVM shutdown hook that calls
+ * it, so spans queued when the application exits aren't silently lost. The sender threads are daemon threads, so a sender that's never closed
+ * doesn't keep the JVM alive.
+ *
+ * <p>Use {@link #newBuilder(String)} to configure anything beyond the basic constructor options.
+ *
+ * <p>This is also an {@link AdaptiveSamplingStrategy.BacklogSource} that reports the number of spans waiting to be sent, so it can be passed to
+ * {@link AdaptiveSamplingStrategy} to make sampling back off when the Zipkin server can't keep up.
+ *
  * @author Nic Munroe
  */
-public class ZipkinSpanSenderDefaultHttpImpl implements ZipkinSpanSender {
+public class ZipkinSpanSenderDefaultHttpImpl
+    implements ZipkinSpanSender, AdaptiveSamplingStrategy.BacklogSource, ZipkinSpanSenderMXBean, Closeable {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     public static final int DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS = 1000;
     public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
     public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_MAX_QUEUED_SPANS = 16384;
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 0;
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_NEWEST;
+    public static final int DEFAULT_MAX_BATCH_SPANS = 1000;
+    public static final long DEFAULT_MAX_BATCH_BYTES = 0;
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 1;
+    public static final int DEFAULT_MAX_SEND_RETRIES = 2;
+    public static final long DEFAULT_INITIAL_RETRY_BACKOFF_MILLIS = 100;
+    public static final long DEFAULT_MAX_RETRY_BACKOFF_MILLIS = 2000;
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 10000;
+    public static final ZipkinSpanEncoding DEFAULT_ENCODING = ZipkinSpanEncoding.JSON_V1;
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    public static final long DEFAULT_SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 5000;
+    public static final String DEFAULT_MBEAN_OBJECT_NAME = "com.nike.wingtips.zipkin:type=ZipkinSpanSender";
 
+    // The first of postZipkinSpansUrls.
     protected final URL postZipkinSpansUrl;
+    protected final List<URL> postZipkinSpansUrls;
     protected final boolean compressZipkinSpanPayload;
+    // Null when compression is disabled.
+    protected final ZipkinSpanPayloadCompressor payloadCompressor;
+    protected final ZipkinSpanEncoding encoding;
     protected final int connectTimeoutMillis;
     protected final int readTimeoutMillis;
     protected final ZipkinSpanSenderJob senderJob;
 
-    protected final BlockingQueue<zipkin.Span> zipkinSpanSendingQueue = new LinkedBlockingQueue<>();
+    protected final BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue;
+    // Both null unless Wingtips span encoding is enabled.
+    protected final WingtipsToZipkinSpanWireEncoder wingtipsSpanEncoder;
+    protected final BoundedRingBuffer<Span> wingtipsSpanSendingQueue;
+    protected final long maxQueuedBytes;
+    protected final OverflowPolicy overflowPolicy;
+    protected final long blockTimeoutNanos;
+    protected final int maxBatchSpans;
+    protected final long maxBatchBytes;
+    protected final int maxInFlightBatches;
     protected final ScheduledExecutorService zipkinSpanSendingScheduler;
+    protected final ZipkinSpanTransport zipkinSpanTransport;
+    protected final int maxSendRetries;
+    protected final long initialRetryBackoffMillis;
+    protected final long maxRetryBackoffMillis;
+    // Null when circuit breaking is disabled.
+    protected final CircuitBreaker circuitBreaker;
+    // Null when spooling is disabled.
+    protected final ZipkinSpanDiskSpool diskSpool;
+    protected final AtomicBoolean replayingSpool = new AtomicBoolean(false);
+
+    // Only maintained when maxQueuedBytes is enabled (greater than 0).
+    protected final AtomicLong queuedBytes = new AtomicLong(0);
+    protected final AtomicLong droppedSpanCount = new AtomicLong(0);
+    protected final AtomicLong failedSpanCount = new AtomicLong(0);
+    protected final ZipkinSpanSenderMetrics metrics = new ZipkinSpanSenderMetrics();
+
+    protected final long shutdownFlushTimeoutMillis;
+    // Null when the shutdown hook is disabled. Set by registerShutdownHookAndMBean() once the sender is fully constructed.
+    protected volatile Thread shutdownHook;
+    // Null when JMX registration is disabled or failed. Set by registerShutdownHookAndMBean() once the sender is fully constructed.
+    protected volatile ObjectName mBeanObjectName;
+    protected final AtomicBoolean closed = new AtomicBoolean(false);
 
     /**
      * Kitchen-sink constructor that creates a new instance allowing you to specify all the given configuration options.
@@ -56,148 +167,1603 @@ public class ZipkinSpanSenderDefaultHttpImpl implements ZipkinSpanSender {
      * @param readTimeoutMillis The read timeout in milliseconds that should be used when waiting for a response from the Zipkin server.
      * @param batchSendingPeriodMillis The period in milliseconds that should be used between sending span batches to the Zipkin server. If you pass in
      *                                 0 it will disable automatic batch sending, at which point {@link #flush()} is the only
-     *                                 way to send spans. <b>IMPORTANT NOTE:</b> The queue that stores spans is unbounded, so make sure you
-     *                                 select a period that is short enough to keep the queue from getting too big and taking up too much memory on
-     *                                 your server.
+     *                                 way to send spans. Spans that arrive while the queue is full (see {@link #DEFAULT_MAX_QUEUED_SPANS}) are
+     *                                 dropped, so select a period that is short enough to keep up with your span volume.
      */
     public ZipkinSpanSenderDefaultHttpImpl(String postZipkinSpansBaseUrl, boolean compressZipkinSpanPayload, int connectTimeoutMillis, int readTimeoutMillis,
                                            int batchSendingPeriodMillis) {
+        this(newBuilder(postZipkinSpansBaseUrl)
+                 .withCompressZipkinSpanPayload(compressZipkinSpanPayload)
+                 .withConnectTimeoutMillis(connectTimeoutMillis)
+                 .withReadTimeoutMillis(readTimeoutMillis)
+                 .withBatchSendingPeriodMillis(batchSendingPeriodMillis));
+    }
+
+    /**
+     * Convenience constructor that calls the kitchen-sink constructor passing in {@link #DEFAULT_CONNECT_TIMEOUT_MILLIS},
+     * {@link #DEFAULT_READ_TIMEOUT_MILLIS}, and {@link #DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS} for the default connect timeout,
+     * read timeout, and span batching period respectively.
+     *
+     * @param postZipkinSpansBaseUrl The base URL of the Zipkin server. This should include the scheme, host, and port (if non-standard for the scheme).
+     *                               e.g. {@code http://localhost:9411}, or {@code https://zipkinserver.doesnotexist.com/}
+     * @param compressZipkinSpanPayload Pass in true if the payload sent to the Zipkin server should be gzipped, false to pass the payload uncompressed.
+     */
+    public ZipkinSpanSenderDefaultHttpImpl(String postZipkinSpansBaseUrl, boolean compressZipkinSpanPayload) {
+        this(postZipkinSpansBaseUrl, compressZipkinSpanPayload, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS,
+             DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS);
+    }
+
+    /**
+     * Creates a new instance from the given builder's settings. Protected so subclasses can be created from a {@link Builder} - everyone else
+     * should call {@link Builder#build()}. This doesn't register the builder's shutdown hook or JMX name, since neither should see the sender
+     * before it's fully constructed - {@link Builder#build()} calls {@link #registerShutdownHookAndMBean(Builder)} afterwards, and subclasses
+     * that want them should do the same.
+     */
+    protected ZipkinSpanSenderDefaultHttpImpl(Builder builder) {
+        this.encoding = builder.encoding;
+        List<URL> postZipkinSpansUrls = new ArrayList<>(builder.postZipkinSpansBaseUrls.size());
         try {
-            String urlString = postZipkinSpansBaseUrl + (postZipkinSpansBaseUrl.endsWith("/") ? "" : "/") + "api/v1/spans";
-            this.postZipkinSpansUrl = new URL(urlString);
+            for (String postZipkinSpansBaseUrl : builder.postZipkinSpansBaseUrls) {
+                String urlString = postZipkinSpansBaseUrl + (postZipkinSpansBaseUrl.endsWith("/") ? "" : "/") + encoding.getApiPath();
+                postZipkinSpansUrls.add(new URL(urlString));
+            }
         } catch (MalformedURLException e) {
             throw new RuntimeException(e);
         }
-        this.compressZipkinSpanPayload = compressZipkinSpanPayload;
-        this.connectTimeoutMillis = connectTimeoutMillis;
-        this.readTimeoutMillis = readTimeoutMillis;
-        this.senderJob = new ZipkinSpanSenderJob(this, zipkinSpanSendingQueue);
+        this.postZipkinSpansUrls = Collections.unmodifiableList(postZipkinSpansUrls);
+        this.postZipkinSpansUrl = postZipkinSpansUrls.get(0);
+        this.compressZipkinSpanPayload = builder.compressZipkinSpanPayload;
+        this.payloadCompressor = (compressZipkinSpanPayload) ? new ZipkinSpanPayloadCompressor(builder.compressionLevel) : null;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.zipkinSpanSendingQueue = new BoundedRingBuffer<>(builder.maxQueuedSpans);
+        if (builder.wingtipsSpanEncodingEnabled) {
+            this.wingtipsSpanEncoder = new WingtipsToZipkinSpanWireEncoder(
+                encoding, Endpoint.builder().serviceName(builder.wingtipsSpanServiceName).build(), builder.wingtipsSpanLocalComponentNamespace
+            );
+            this.wingtipsSpanSendingQueue = new BoundedRingBuffer<>(builder.maxQueuedSpans);
+        }
+        else {
+            this.wingtipsSpanEncoder = null;
+            this.wingtipsSpanSendingQueue = null;
+        }
+        this.maxQueuedBytes = builder.maxQueuedBytes;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.blockTimeoutNanos = builder.blockTimeoutNanos;
+        this.maxBatchSpans = builder.maxBatchSpans;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.maxInFlightBatches = builder.maxInFlightBatches;
+        this.zipkinSpanTransport = (builder.transport != null) ? builder.transport : createDefaultTransport(builder);
+        this.maxSendRetries = builder.maxSendRetries;
+        this.initialRetryBackoffMillis = builder.initialRetryBackoffMillis;
+        this.maxRetryBackoffMillis = builder.maxRetryBackoffMillis;
+        this.circuitBreaker = (builder.circuitBreakerFailureThreshold > 0)
+                              ? new CircuitBreaker(builder.circuitBreakerFailureThreshold, builder.circuitBreakerOpenMillis)
+                              : null;
+        this.diskSpool = builder.diskSpool;
+        this.shutdownFlushTimeoutMillis = builder.shutdownFlushTimeoutMillis;
 
         this.zipkinSpanSendingScheduler = configureScheduledExecutorServiceForBatching();
+        this.senderJob = new ZipkinSpanSenderJob(
+            this, zipkinSpanSendingQueue, maxBatchSpans, maxBatchBytes, maxInFlightBatches, zipkinSpanSendingScheduler, encoding,
+            wingtipsSpanSendingQueue, wingtipsSpanEncoder
+        );
 
+        int batchSendingPeriodMillis = builder.batchSendingPeriodMillis;
         if (batchSendingPeriodMillis > 0) {
             zipkinSpanSendingScheduler.scheduleAtFixedRate(senderJob, batchSendingPeriodMillis,
                                                            batchSendingPeriodMillis, TimeUnit.MILLISECONDS);
         }
+
     }
 
     /**
-     * Convenience constructor that calls the kitchen-sink constructor passing in {@link #DEFAULT_CONNECT_TIMEOUT_MILLIS},
-     * {@link #DEFAULT_READ_TIMEOUT_MILLIS}, and {@link #DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS} for the default connect timeout,
-     * read timeout, and span batching period respectively.
+     * Registers the JMX name and JVM shutdown hook the given builder asks for, if any. Called by {@link Builder#build()} once the sender is
+     * fully constructed, since both publish it to other threads. Does nothing if the sender has already been closed.
+     */
+    protected void registerShutdownHookAndMBean(Builder builder) {
+        if (closed.get())
+            return;
+
+        if (builder.mBeanObjectName != null && mBeanObjectName == null)
+            mBeanObjectName = registerMBean(builder.mBeanObjectName);
+
+        if (builder.registerShutdownHook && shutdownHook == null)
+            shutdownHook = registerShutdownHook();
+    }
+
+    /**
+     * Registers this sender with the platform MBean server under the given name.
      *
-     * @param postZipkinSpansBaseUrl The base URL of the Zipkin server. This should include the scheme, host, and port (if non-standard for the scheme).
-     *                               e.g. {@code http://localhost:9411}, or {@code https://zipkinserver.doesnotexist.com/}
-     * @param compressZipkinSpanPayload Pass in true if the payload sent to the Zipkin server should be gzipped, false to pass the payload uncompressed.
+     * @return The name this sender was registered under, or null if registration failed (which is logged rather than thrown, so a name clash
+     * doesn't stop spans being sent).
      */
-    public ZipkinSpanSenderDefaultHttpImpl(String postZipkinSpansBaseUrl, boolean compressZipkinSpanPayload) {
-        this(postZipkinSpansBaseUrl, compressZipkinSpanPayload, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS,
-             DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS);
+    protected ObjectName registerMBean(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            return name;
+        }
+        catch (Exception ex) {
+            logger.warn("Unable to register the Zipkin span sender with JMX. object_name={}, exception_cause=\"{}\"",
+                        objectName, ex.toString());
+            return null;
+        }
+    }
+
+    /**
+     * @return A JVM shutdown hook (already registered) that calls {@link #close()}.
+     */
+    protected Thread registerShutdownHook() {
+        Thread hook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        }, "zipkin-span-sender-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    /**
+     * @return The transport used when the builder wasn't given one - a {@link ZipkinSpanTransportDefaultHttpImpl} for the single Zipkin
+     * server, or a {@link ZipkinSpanTransportLoadBalancer} over one {@link ZipkinSpanTransportDefaultHttpImpl} per collector when there are
+     * several. Each collector gets one pooled connection per in-flight batch.
+     */
+    protected ZipkinSpanTransport createDefaultTransport(Builder builder) {
+        List<ZipkinSpanTransport> transports = new ArrayList<>(postZipkinSpansUrls.size());
+        for (URL url : postZipkinSpansUrls) {
+            transports.add(new ZipkinSpanTransportDefaultHttpImpl(
+                url, connectTimeoutMillis, readTimeoutMillis, maxInFlightBatches, ZipkinSpanTransportDefaultHttpImpl.DEFAULT_MAX_IDLE_MILLIS
+            ));
+        }
+
+        if (transports.size() == 1)
+            return transports.get(0);
+
+        return new ZipkinSpanTransportLoadBalancer(
+            transports, builder.loadBalancingStrategy, builder.ejectionFailureThreshold, builder.ejectionMillis
+        );
+    }
+
+    /**
+     * @param postZipkinSpansBaseUrl The base URL of the Zipkin server. This should include the scheme, host, and port (if non-standard for the
+     *                               scheme). e.g. {@code http://localhost:9411}, or {@code https://zipkinserver.doesnotexist.com/}
+     * @return A new {@link Builder} that defaults to the same settings as the
+     * {@link #ZipkinSpanSenderDefaultHttpImpl(String, boolean)} constructor with payload compression turned on.
+     */
+    public static Builder newBuilder(String postZipkinSpansBaseUrl) {
+        return new Builder(postZipkinSpansBaseUrl);
+    }
+
+    /**
+     * @param postZipkinSpansBaseUrls The base URLs of the Zipkin collectors to spread batches across, in the same format as {@link
+     *                                #newBuilder(String)} - must not be null or empty, or contain nulls. See {@link
+     *                                Builder#withLoadBalancing(ZipkinSpanTransportLoadBalancer.Strategy, int, long)} for how batches are
+     *                                distributed.
+     * @return A new {@link Builder} with the same defaults as {@link #newBuilder(String)}.
+     */
+    public static Builder newBuilder(List<String> postZipkinSpansBaseUrls) {
+        return new Builder(postZipkinSpansBaseUrls);
     }
 
     @Override
     public void handleSpan(zipkin.Span span) {
-        zipkinSpanSendingQueue.offer(span);
+        if (closed.get()) {
+            droppedSpanCount.incrementAndGet();
+            return;
+        }
+
+        boolean queued = (maxQueuedBytes > 0)
+                         ? queueSpanWithByteLimit(zipkinSpanSendingQueue, span, encoding.sizeInBytes(span))
+                         : queueSpan(zipkinSpanSendingQueue, span);
+
+        requestEarlyRunIfFullBatchQueued(queued);
     }
 
-    @Override
-    public void flush() {
-        zipkinSpanSendingScheduler.execute(senderJob);
+    /**
+     * Queues the given completed Wingtips span to be written to the wire format and sent on the sender threads. The span is subject to the
+     * same queue limits and {@link OverflowPolicy} as spans passed to {@link #handleSpan(zipkin.Span)}. The span must not be modified after it's
+     * handed over.
+     *
+     * @throws IllegalStateException if this sender wasn't built with {@link Builder#withWingtipsSpanEncoding(String, String)}.
+     * @throws IllegalArgumentException if the span hasn't been completed.
+     */
+    public void handleWingtipsSpan(Span span) {
+        if (wingtipsSpanSendingQueue == null) {
+            throw new IllegalStateException(
+                "Wingtips span encoding is not enabled for this sender - see ZipkinSpanSenderDefaultHttpImpl.Builder.withWingtipsSpanEncoding()"
+            );
+        }
+
+        if (span.getDurationNanos() == null)
+            throw new IllegalArgumentException("Only completed spans can be sent to Zipkin. span_id=" + span.getSpanId());
+
+        if (closed.get()) {
+            droppedSpanCount.incrementAndGet();
+            return;
+        }
+
+        boolean queued = (maxQueuedBytes > 0)
+                         ? queueSpanWithByteLimit(wingtipsSpanSendingQueue, span, wingtipsSpanEncoder.sizeInBytes(span))
+                         : queueSpan(wingtipsSpanSendingQueue, span);
+
+        requestEarlyRunIfFullBatchQueued(queued);
     }
 
-    protected ScheduledExecutorService configureScheduledExecutorServiceForBatching() {
-        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(final Runnable r) {
-                return new Thread(r, "zipkin-span-sender");
+    /**
+     * @return true if the given sender was built with {@link Builder#withWingtipsSpanEncoding(String, String)}, so it accepts spans through
+     * {@link #handleWingtipsSpan(Span)}.
+     */
+    public boolean isWingtipsSpanEncodingEnabled() {
+        return wingtipsSpanEncoder != null;
+    }
+
+    /**
+     * @return The encoder that writes spans passed to {@link #handleWingtipsSpan(Span)}, or null if Wingtips span encoding isn't enabled.
+     */
+    public WingtipsToZipkinSpanWireEncoder getWingtipsSpanEncoder() {
+        return wingtipsSpanEncoder;
+    }
+
+    /**
+     * @return The URLs spans are POSTed to - one per Zipkin collector. Not used if the builder was given its own transport.
+     */
+    public List<URL> getPostZipkinSpansUrls() {
+        return postZipkinSpansUrls;
+    }
+
+    protected void requestEarlyRunIfFullBatchQueued(boolean spanWasQueued) {
+        // While the circuit is open only the scheduled runs matter (to send probes), so don't bother asking for early runs - unless full
+        //      batches are being moved to the disk spool, in which case they should get off the heap as soon as possible.
+        if (spanWasQueued && isFullBatchQueued() && (circuitBreaker == null || !circuitBreaker.isOpen() || diskSpool != null))
+            senderJob.requestEarlyRun();
+    }
+
+    /**
+     * Queues the given span following the {@link #overflowPolicy} when {@link #maxQueuedBytes} isn't enabled.
+     *
+     * @return true if the given span was queued, false if it was dropped.
+     */
+    protected <T> boolean queueSpan(BoundedRingBuffer<T> queue, T span) {
+        int numDropped = queue.offerWithOverflowPolicy(span, overflowPolicy, blockTimeoutNanos);
+        if (numDropped > 0)
+            droppedSpanCount.addAndGet(numDropped);
+
+        // DROP_OLDEST always queues the given span.
+        return numDropped == 0 || overflowPolicy == OverflowPolicy.DROP_OLDEST;
+    }
+
+    /**
+     * @return true if there are enough spans queued to fill a batch (by span count, or by bytes when both {@code maxBatchBytes} and {@code
+     * maxQueuedBytes} are enabled), meaning they should be sent now rather than waiting for the next scheduled run.
+     */
+    protected boolean isFullBatchQueued() {
+        if (zipkinSpanSendingQueue.size() >= maxBatchSpans)
+            return true;
+
+        if (wingtipsSpanSendingQueue != null && wingtipsSpanSendingQueue.size() >= maxBatchSpans)
+            return true;
+
+        return maxBatchBytes > 0 && maxQueuedBytes > 0 && queuedBytes.get() >= maxBatchBytes;
+    }
+
+    /**
+     * Queues the given span while keeping the (approximate) serialized size of everything in the queue at or below {@link #maxQueuedBytes}.
+     * A span that's bigger than {@link #maxQueuedBytes} all on its own is always dropped. {@link OverflowPolicy#DROP_OLDEST} evicts old spans
+     * until there's room for the new one. The other policies drop the new span when the byte limit is hit (the byte limit never blocks - a
+     * {@link OverflowPolicy#BLOCK_WITH_TIMEOUT} policy only waits when the span count limit is hit).
+     *
+     * @return true if the given span was queued, false if it was dropped.
+     */
+    protected <T> boolean queueSpanWithByteLimit(BoundedRingBuffer<T> queue, T span, long spanSizeBytes) {
+        if (spanSizeBytes > maxQueuedBytes) {
+            droppedSpanCount.incrementAndGet();
+            return false;
+        }
+
+        while (!tryReserveQueuedBytes(spanSizeBytes)) {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST || !evictOldestSpan(queue)) {
+                droppedSpanCount.incrementAndGet();
+                return false;
             }
-        });
+        }
+
+        boolean queued;
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            // Evict through evictOldestSpan(queue) rather than letting the ring buffer do it, so the evicted spans' bytes are released.
+            while (!queue.offer(span)) {
+                evictOldestSpan(queue);
+            }
+            queued = true;
+        }
+        else {
+            int numDropped = queue.offerWithOverflowPolicy(span, overflowPolicy, blockTimeoutNanos);
+            queued = (numDropped == 0);
+        }
+
+        if (!queued) {
+            queuedBytes.addAndGet(-spanSizeBytes);
+            droppedSpanCount.incrementAndGet();
+        }
+        return queued;
     }
 
-    protected void sendSpans(List<zipkin.Span> spanList) {
+    /**
+     * @return true if there was room to add the given number of bytes to {@link #queuedBytes} (in which case they've been added), false if
+     * adding them would go over {@link #maxQueuedBytes}.
+     */
+    protected boolean tryReserveQueuedBytes(long numBytes) {
+        while (true) {
+            long current = queuedBytes.get();
+            long updated = current + numBytes;
+            if (updated > maxQueuedBytes)
+                return false;
+
+            if (queuedBytes.compareAndSet(current, updated))
+                return true;
+        }
+    }
+
+    /**
+     * Removes the oldest span from the given queue, counting it as dropped and releasing its bytes.
+     *
+     * @return true if a span was evicted, false if the queue was empty.
+     */
+    protected boolean evictOldestSpan(BoundedRingBuffer<?> queue) {
+        Object evicted = queue.poll();
+        if (evicted == null)
+            return false;
+
+        droppedSpanCount.incrementAndGet();
+        queuedBytes.addAndGet(-((evicted instanceof Span)
+                                ? wingtipsSpanEncoder.sizeInBytes((Span) evicted)
+                                : encoding.sizeInBytes((zipkin.Span) evicted)));
+        return true;
+    }
+
+    /**
+     * Called by {@link #senderJob} with the spans it just removed from the queue, before they're sent. Records the queue depth, and releases
+     * their bytes when {@link #maxQueuedBytes} is enabled.
+     */
+    protected void spansDrainedFromQueue(List<zipkin.Span> drainedSpans) {
+        metrics.recordQueueDepth(getBacklogSize() + drainedSpans.size());
+        if (maxQueuedBytes <= 0)
+            return;
+
+        long drainedBytes = 0;
+        for (int i = 0; i < drainedSpans.size(); i++) {
+            drainedBytes += encoding.sizeInBytes(drainedSpans.get(i));
+        }
+        queuedBytes.addAndGet(-drainedBytes);
+    }
+
+    /**
+     * The {@link #handleWingtipsSpan(Span)} equivalent of {@link #spansDrainedFromQueue(List)}.
+     */
+    protected void wingtipsSpansDrainedFromQueue(List<Span> drainedSpans) {
+        metrics.recordQueueDepth(getBacklogSize() + drainedSpans.size());
+        if (maxQueuedBytes <= 0)
+            return;
+
+        long drainedBytes = 0;
+        for (int i = 0; i < drainedSpans.size(); i++) {
+            drainedBytes += wingtipsSpanEncoder.sizeInBytes(drainedSpans.get(i));
+        }
+        queuedBytes.addAndGet(-drainedBytes);
+    }
+
+    /**
+     * Sends whatever is queued as soon as possible, without waiting for the next batch sending period. Does nothing once the sender has been
+     * closed.
+     */
+    @Override
+    public void flush() {
+        if (closed.get())
+            return;
+
         try {
-            sendSpans(Codec.JSON.writeSpans(spanList));
-        } catch (IOException e) {
-            Set<String> affectedTraceIds = new HashSet<>(spanList.size());
-            for (zipkin.Span span : spanList) {
-                affectedTraceIds.add(String.valueOf(span.traceId));
-            }
-            logger.error("An error occurred attempting to post Zipkin spans to the Zipkin server. affected_trace_ids={}, exception_cause=\"{}\"",
-                         affectedTraceIds.toString(), e.toString());
+            zipkinSpanSendingScheduler.execute(senderJob);
+        }
+        catch (RejectedExecutionException ex) {
+            // The sender was closed between the check and the execute - close() takes care of the queue.
         }
     }
 
     /**
-     * <p>
-     *     This method uses basic JDK classes to POST the given payload bytes (representing a list of Zipkin Spans that have been serialized to JSON)
-     *     to the Zipkin server endpoint at {@link #postZipkinSpansUrl}. This gives a simple workable implementation that requires no outside dependencies,
-     *     however it may lack some of the flexibility your project requires (e.g. around connection pooling). You can extend this class and override
-     *     this method to use a different HTTP client for sending spans to Zipkin if desired.
-     * </p>
-     * <p>
-     *     This code was derived from the Zipkin/Brave repository's brave-spancollector-http module v3.9.1
-     *     (https://github.com/openzipkin/brave/blob/master/brave-spancollector-http/src/main/java/com/github/kristofa/brave/http/HttpSpanCollector.java)
-     *     and licensed under the Apache License, Version 2.0 (http://www.apache.org/licenses/LICENSE-2.0).
-     * </p>
+     * Calls {@link #close(long)} with the {@code shutdownFlushTimeoutMillis} from the builder (default {@link
+     * #DEFAULT_SHUTDOWN_FLUSH_TIMEOUT_MILLIS}).
      */
-    protected void sendSpans(byte[] spanListJsonPayloadBytes) throws IOException {
-        logger.trace("Sending spans to zipkin");
+    @Override
+    public void close() {
+        close(shutdownFlushTimeoutMillis);
+    }
+
+    /**
+     * Shuts this sender down: stops accepting spans (any spans handed over from now on are counted as dropped), sends everything still queued
+     * on the sender threads, and then stops the sender threads, closes the transport, and unregisters the sender from JMX. No more than
+     * {@code flushTimeoutMillis} is spent sending - once it's up the sender threads are interrupted (which cuts short any retry backoff), and
+     * spans that are still queued are written to the disk spool if there is one, so they're replayed by the next sender that uses it. Anything
+     * else still queued at that point is lost, and logged. Only the first call does anything.
+     *
+     * @param flushTimeoutMillis The max time to spend sending queued spans. 0 skips straight to spooling (or dropping) them.
+     * @return true if every queued span was sent or spooled, false if some were lost or a batch was still being sent at the deadline (or if the
+     * sender had already been closed).
+     */
+    public boolean close(long flushTimeoutMillis) {
+        if (!closed.compareAndSet(false, true))
+            return false;
+
+        removeShutdownHook();
 
-        // intentionally not closing the connection, so as to use keep-alives
-        HttpURLConnection connection = (HttpURLConnection) postZipkinSpansUrl.openConnection();
-        connection.setConnectTimeout(connectTimeoutMillis);
-        connection.setReadTimeout(readTimeoutMillis);
-        connection.setRequestMethod("POST");
-        connection.addRequestProperty("Content-Type", "application/json");
-        if (compressZipkinSpanPayload) {
-            connection.addRequestProperty("Content-Encoding", "gzip");
-            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
-            try (GZIPOutputStream compressor = new GZIPOutputStream(gzipped)) {
-                compressor.write(spanListJsonPayloadBytes);
-            }
-            spanListJsonPayloadBytes = gzipped.toByteArray();
-        }
-        connection.setDoOutput(true);
-        connection.setFixedLengthStreamingMode(spanListJsonPayloadBytes.length);
-        connection.getOutputStream().write(spanListJsonPayloadBytes);
-
-        try (InputStream in = connection.getInputStream()) {
-            while (in.read() != -1) ; // skip
-        } catch (IOException e) {
-            try (InputStream err = connection.getErrorStream()) {
-                if (err != null) { // possible, if the connection was dropped
-                    while (err.read() != -1) ; // skip
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(flushTimeoutMillis, 0));
+        boolean terminated = false;
+        try {
+            zipkinSpanSendingScheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flushQueuedSpans(deadlineNanos);
                 }
+            });
+            zipkinSpanSendingScheduler.shutdown();
+            terminated = zipkinSpanSendingScheduler.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException ex) {
+            logger.warn("Unable to flush queued Zipkin spans while closing the sender. exception_cause=\"{}\"", ex.toString());
+        }
+        finally {
+            if (!terminated)
+                zipkinSpanSendingScheduler.shutdownNow();
+        }
+
+        if (diskSpool != null)
+            spoolQueuedSpans();
+
+        int lostSpans = getBacklogSize();
+        if (lostSpans > 0) {
+            logger.warn("The Zipkin span sender was closed before all queued spans could be sent - they have been lost. lost_span_count={}",
+                        lostSpans);
+        }
+
+        try {
+            zipkinSpanTransport.close();
+        }
+        catch (IOException ex) {
+            logger.warn("An error occurred closing the Zipkin span transport. exception_cause=\"{}\"", ex.toString());
+        }
+
+        unregisterMBean();
+        return terminated && lostSpans == 0;
+    }
+
+    /**
+     * @return true once {@link #close()} has been called.
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Runs on a sender thread during {@link #close(long)}. Keeps running {@link #senderJob} until the queues are empty or the deadline passes.
+     * Gives up early if a run makes no progress while no other sender thread is busy, which means the circuit is open and there's nowhere to
+     * spool to.
+     */
+    protected void flushQueuedSpans(long deadlineNanos) {
+        int backlogSize;
+        while ((backlogSize = getBacklogSize()) > 0 && System.nanoTime() - deadlineNanos < 0) {
+            senderJob.run();
+            if (getBacklogSize() >= backlogSize) {
+                // Other runs are still sending - give them a moment to finish so this one can take over the queue.
+                if (senderJob.activeRuns.get() == 0 || !sleepBeforeRetry(10))
+                    return;
             }
-            throw e;
         }
     }
 
-    protected static class ZipkinSpanSenderJob implements Runnable {
-        private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Moves everything still queued to the {@link #diskSpool}. Called by {@link #close(long)} once the sender threads have stopped.
+     */
+    protected void spoolQueuedSpans() {
+        int backlogSize;
+        while ((backlogSize = zipkinSpanSendingQueue.size()) > 0) {
+            senderJob.sendQueuedZipkinSpans(true);
+            if (zipkinSpanSendingQueue.size() >= backlogSize)
+                break;
+        }
 
-        protected final ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender;
-        protected final BlockingQueue<zipkin.Span> zipkinSpanSendingQueue;
+        if (wingtipsSpanSendingQueue == null)
+            return;
 
-        public ZipkinSpanSenderJob(ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender, BlockingQueue<zipkin.Span> zipkinSpanSendingQueue) {
-            this.zipkinSpanSender = zipkinSpanSender;
-            this.zipkinSpanSendingQueue = zipkinSpanSendingQueue;
+        while ((backlogSize = wingtipsSpanSendingQueue.size()) > 0) {
+            senderJob.sendQueuedWingtipsSpans(true);
+            if (wingtipsSpanSendingQueue.size() >= backlogSize)
+                break;
         }
+    }
 
-        @Override
-        public void run() {
-            try {
-                if (zipkinSpanSendingQueue.isEmpty())
-                    return;
+    protected void removeShutdownHook() {
+        if (shutdownHook == null || Thread.currentThread() == shutdownHook)
+            return;
 
-                List<zipkin.Span> drainedSpans = new ArrayList<>(zipkinSpanSendingQueue.size());
-                zipkinSpanSendingQueue.drainTo(drainedSpans);
-                if (!drainedSpans.isEmpty())
-                    zipkinSpanSender.sendSpans(drainedSpans);
-            }
-            catch(Throwable ex) {
-                logger.error("An unexpected error occurred attempting to post Zipkin spans to the Zipkin server.", ex);
-            }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException ex) {
+            // The JVM is already shutting down.
+        }
+    }
+
+    protected void unregisterMBean() {
+        if (mBeanObjectName == null)
+            return;
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(mBeanObjectName))
+                mBeanServer.unregisterMBean(mBeanObjectName);
+        }
+        catch (Exception ex) {
+            logger.warn("Unable to unregister the Zipkin span sender from JMX. object_name={}, exception_cause=\"{}\"",
+                        mBeanObjectName, ex.toString());
+        }
+    }
+
+    /**
+     * @return The number of spans that have been handed to {@link #handleSpan(zipkin.Span)} or {@link #handleWingtipsSpan(Span)} but not yet
+     * sent.
+     */
+    @Override
+    public int getBacklogSize() {
+        int backlogSize = zipkinSpanSendingQueue.size();
+        if (wingtipsSpanSendingQueue != null)
+            backlogSize += wingtipsSpanSendingQueue.size();
+        return backlogSize;
+    }
+
+    /**
+     * @return The total number of spans that were dropped because the queue was full (by span count or by {@code maxQueuedBytes}) and were
+     * therefore never sent to the Zipkin server.
+     */
+    @Override
+    public long getDroppedSpanCount() {
+        return droppedSpanCount.get();
+    }
+
+    /**
+     * @return The total number of spans in batches that couldn't be delivered to the Zipkin server even after retrying (or while the circuit
+     * was open), and were discarded because there's no disk spool or it couldn't be written to.
+     */
+    @Override
+    public long getFailedSpanCount() {
+        return failedSpanCount.get();
+    }
+
+    /**
+     * @return A point-in-time view of all of this sender's health metrics.
+     */
+    public ZipkinSpanSenderMetrics.Snapshot getMetricsSnapshot() {
+        return new ZipkinSpanSenderMetrics.Snapshot(
+            getBacklogSize(), getQueuedBytes(), metrics.getSentBatchCount(), metrics.getSentSpanCount(), metrics.getFailedSendAttemptCount(),
+            getFailedSpanCount(), getDroppedSpanCount(), metrics.getSpooledSpanCount(), isCircuitOpen(), metrics.getQueueDepth(),
+            metrics.getBatchSpanCount(), metrics.getBatchPayloadBytes(), metrics.getSendLatencyMicros()
+        );
+    }
+
+    /**
+     * @return The metrics this sender records as it sends batches.
+     */
+    public ZipkinSpanSenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public long getSentBatchCount() {
+        return metrics.getSentBatchCount();
+    }
+
+    @Override
+    public long getSentSpanCount() {
+        return metrics.getSentSpanCount();
+    }
+
+    @Override
+    public long getFailedSendAttemptCount() {
+        return metrics.getFailedSendAttemptCount();
+    }
+
+    @Override
+    public long getSpooledSpanCount() {
+        return metrics.getSpooledSpanCount();
+    }
+
+    /**
+     * @return true if the circuit breaker is open, or false if it's closed or circuit breaking is disabled.
+     */
+    @Override
+    public boolean isCircuitOpen() {
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    @Override
+    public ZipkinSpanSenderMetrics.HistogramSnapshot getQueueDepthHistogram() {
+        return metrics.getQueueDepth();
+    }
+
+    @Override
+    public ZipkinSpanSenderMetrics.HistogramSnapshot getBatchSpanCountHistogram() {
+        return metrics.getBatchSpanCount();
+    }
+
+    @Override
+    public ZipkinSpanSenderMetrics.HistogramSnapshot getBatchPayloadBytesHistogram() {
+        return metrics.getBatchPayloadBytes();
+    }
+
+    @Override
+    public ZipkinSpanSenderMetrics.HistogramSnapshot getSendLatencyMicrosHistogram() {
+        return metrics.getSendLatencyMicros();
+    }
+
+    /**
+     * @return The name this sender is registered under with the platform MBean server, or null if it isn't registered.
+     */
+    public ObjectName getMBeanObjectName() {
+        return mBeanObjectName;
+    }
+
+    /**
+     * @return The circuit breaker guarding the Zipkin server, or null if circuit breaking is disabled.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return The disk spool that holds batches while the Zipkin server is unreachable, or null if spooling is disabled.
+     */
+    public ZipkinSpanDiskSpool getDiskSpool() {
+        return diskSpool;
+    }
+
+    /**
+     * @return The approximate serialized size of the spans waiting to be sent, or 0 if {@code maxQueuedBytes} isn't enabled.
+     */
+    @Override
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * @return The max number of spans that can be waiting to be sent at any given time. When Wingtips span encoding is enabled, Wingtips spans
+     * have a separate queue with the same capacity.
+     */
+    public int getMaxQueuedSpans() {
+        return zipkinSpanSendingQueue.capacity();
+    }
+
+    /**
+     * @return The policy that is followed when a span is handed to {@link #handleSpan(zipkin.Span)} and the queue is full.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return The executor that runs {@link #senderJob}, both on its schedule and for early/concurrent runs. Has {@link #maxInFlightBatches}
+     * threads, since each thread sends at most one batch at a time. The threads are daemon threads - {@link #close()} (or the shutdown hook)
+     * is what makes sure queued spans are sent before the JVM exits.
+     */
+    protected ScheduledExecutorService configureScheduledExecutorServiceForBatching() {
+        return Executors.newScheduledThreadPool(maxInFlightBatches, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "zipkin-span-sender");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Called by {@link #senderJob} before it takes a batch off the queue.
+     *
+     * @return true if the circuit is open and this isn't the caller's turn to send a probe, meaning spans should stay in the queue for now.
+     * When this returns false for an open circuit, the caller is the probe and must send a batch via {@link #sendSpans(List)}.
+     */
+    protected boolean isSendingSuspended() {
+        return circuitBreaker != null && !circuitBreaker.allowRequest();
+    }
+
+    /**
+     * Serializes the given spans once, and then sends them with {@link #sendPayloadWithRetries(byte[])}. If every attempt fails the spans are
+     * written to the {@link #diskSpool} if there is one, otherwise they're discarded and logged.
+     */
+    protected void sendSpans(List<zipkin.Span> spanList) {
+        IOException failure = sendOrSpoolPayload(encoding.encodeSpans(spanList), spanList.size());
+        if (failure != null)
+            discardSpans(spanList, failure);
+    }
+
+    /**
+     * The {@link #handleWingtipsSpan(Span)} equivalent of {@link #sendSpans(List)}. The spans are written straight to the payload by {@link
+     * #wingtipsSpanEncoder}.
+     */
+    protected void sendWingtipsSpans(List<Span> spanList) {
+        IOException failure = sendOrSpoolPayload(wingtipsSpanEncoder.encodeSpans(spanList), spanList.size());
+        if (failure != null)
+            discardWingtipsSpans(spanList, failure);
+    }
+
+    /**
+     * Sends the given payload with {@link #sendPayloadWithRetries(byte[])}, falling back to the {@link #diskSpool} if every attempt fails.
+     *
+     * @return null if the payload was delivered or spooled, otherwise the failure from the last attempt (and the caller should discard it).
+     */
+    protected IOException sendOrSpoolPayload(byte[] payload, int spanCount) {
+        IOException failure = sendPayloadWithRetries(payload);
+        if (failure == null) {
+            metrics.recordBatchSent(spanCount, payload.length);
+            return null;
+        }
+
+        if (spoolPayload(payload, spanCount))
+            return null;
+
+        return failure;
+    }
+
+    /**
+     * Called by {@link #senderJob} instead of {@link #sendSpans(List)} for batches drained from the queue while the circuit is open. Only
+     * used when there's a {@link #diskSpool}.
+     */
+    protected void spoolSpans(List<zipkin.Span> spanList) {
+        if (!spoolPayload(encoding.encodeSpans(spanList), spanList.size()))
+            discardSpans(spanList, null);
+    }
+
+    /**
+     * The {@link #handleWingtipsSpan(Span)} equivalent of {@link #spoolSpans(List)}.
+     */
+    protected void spoolWingtipsSpans(List<Span> spanList) {
+        if (!spoolPayload(wingtipsSpanEncoder.encodeSpans(spanList), spanList.size()))
+            discardWingtipsSpans(spanList, null);
+    }
+
+    /**
+     * @return true if there's a {@link #diskSpool} and the given payload was written to it.
+     */
+    protected boolean spoolPayload(byte[] payload, int spanCount) {
+        if (diskSpool == null)
+            return false;
+
+        try {
+            boolean spooled = diskSpool.append(payload, spanCount);
+            if (spooled)
+                metrics.recordSpansSpooled(spanCount);
+            return spooled;
+        }
+        catch (IOException ex) {
+            logger.error("An error occurred attempting to write Zipkin spans to the disk spool. span_count={}, exception_cause=\"{}\"",
+                         spanCount, ex.toString());
+            return false;
+        }
+    }
+
+    protected void discardSpans(List<zipkin.Span> spanList, IOException failure) {
+        failedSpanCount.addAndGet(spanList.size());
+        Set<String> affectedTraceIds = new HashSet<>(spanList.size());
+        for (zipkin.Span span : spanList) {
+            affectedTraceIds.add(String.valueOf(span.traceId));
+        }
+        logger.error("An error occurred attempting to post Zipkin spans to the Zipkin server. affected_trace_ids={}, exception_cause=\"{}\"",
+                     affectedTraceIds.toString(), String.valueOf(failure));
+    }
+
+    protected void discardWingtipsSpans(List<Span> spanList, IOException failure) {
+        failedSpanCount.addAndGet(spanList.size());
+        Set<String> affectedTraceIds = new HashSet<>(spanList.size());
+        for (Span span : spanList) {
+            affectedTraceIds.add(span.getTraceId());
+        }
+        logger.error("An error occurred attempting to post Zipkin spans to the Zipkin server. affected_trace_ids={}, exception_cause=\"{}\"",
+                     affectedTraceIds.toString(), String.valueOf(failure));
+    }
+
+    /**
+     * Sends the given payload with {@link #sendSpans(byte[])}. An {@link IOException} is retried up to {@link #maxSendRetries} times (unless
+     * the circuit opens in the meantime), waiting {@link #calculateRetryBackoffMillis(int)} between attempts.
+     *
+     * @return null if the payload was delivered, otherwise the failure from the last attempt.
+     */
+    protected IOException sendPayloadWithRetries(byte[] payload) {
+        int attempt = 0;
+        while (true) {
+            IOException failure;
+            long startNanos = System.nanoTime();
+            try {
+                sendSpans(payload);
+                metrics.recordSendAttemptSucceeded(System.nanoTime() - startNanos);
+                if (circuitBreaker != null)
+                    circuitBreaker.recordSuccess();
+                return null;
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+
+            metrics.recordSendAttemptFailed();
+
+            if (circuitBreaker != null)
+                circuitBreaker.recordFailure();
+
+            boolean retry = attempt < maxSendRetries && (circuitBreaker == null || !circuitBreaker.isOpen());
+            if (retry) {
+                long backoffMillis = calculateRetryBackoffMillis(attempt);
+                logger.debug("Retrying failed post of Zipkin spans in {} millis. attempt={}, exception_cause=\"{}\"",
+                             backoffMillis, attempt + 1, failure.toString());
+                retry = sleepBeforeRetry(backoffMillis);
+            }
+
+            if (!retry) {
+                logger.debug("Giving up on post of Zipkin spans. attempts={}, exception_cause=\"{}\"", attempt + 1, failure.toString());
+                return failure;
+            }
+
+            attempt++;
+        }
+    }
+
+    /**
+     * @return true if there's a {@link #diskSpool} with batches waiting to be replayed.
+     */
+    protected boolean hasSpooledBatches() {
+        return diskSpool != null && !diskSpool.isEmpty();
+    }
+
+    protected boolean isSpoolingEnabled() {
+        return diskSpool != null;
+    }
+
+    /**
+     * Sends the batches in the {@link #diskSpool}, oldest first, until it's empty or a batch fails. Only one thread replays at a time - any
+     * other caller returns true straight away without waiting.
+     *
+     * @return false if a spooled batch couldn't be delivered (it stays in the spool), meaning the Zipkin server is still unhealthy.
+     */
+    protected boolean replaySpooledBatches() {
+        if (diskSpool == null || !replayingSpool.compareAndSet(false, true))
+            return true;
+
+        try {
+            ZipkinSpanDiskSpool.SpooledBatch batch;
+            while ((batch = diskSpool.peek()) != null) {
+                if (sendPayloadWithRetries(batch.payload) != null)
+                    return false;
+
+                metrics.recordBatchSent(batch.spanCount, batch.payload.length);
+                diskSpool.remove(batch);
+            }
+            return true;
+        }
+        catch (IOException ex) {
+            logger.error("An error occurred attempting to replay Zipkin spans from the disk spool. exception_cause=\"{}\"", ex.toString());
+            return false;
+        }
+        finally {
+            replayingSpool.set(false);
+        }
+    }
+
+    /**
+     * @param attempt The zero-based number of the attempt that just failed.
+     * @return How long to wait before the next attempt: {@link #initialRetryBackoffMillis} doubled for each previous attempt, capped at {@link
+     * #maxRetryBackoffMillis}, with the upper half of that randomized so a fleet of senders doesn't retry in lockstep.
+     */
+    protected long calculateRetryBackoffMillis(int attempt) {
+        long backoff = initialRetryBackoffMillis;
+        for (int i = 0; i < attempt && backoff < maxRetryBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxRetryBackoffMillis);
+
+        long halfBackoff = backoff / 2;
+        return halfBackoff + ThreadLocalRandom.current().nextLong(backoff - halfBackoff + 1);
+    }
+
+    /**
+     * Waits the given number of milliseconds before a retry. This only ever runs on a sender thread. Protected so tests can skip the wait.
+     *
+     * @return true if the retry should go ahead, false if the thread was interrupted (e.g. because the sender is being shut down).
+     */
+    protected boolean sleepBeforeRetry(long backoffMillis) {
+        try {
+            Thread.sleep(backoffMillis);
+            return true;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Compresses the given payload bytes (representing a list of Zipkin Spans that have been encoded with {@link #encoding}) with {@link
+     * #payloadCompressor} if {@link #compressZipkinSpanPayload} is true, and then sends them to the Zipkin server using {@link
+     * #zipkinSpanTransport}. You can supply a different {@link ZipkinSpanTransport} via {@link Builder#withTransport(ZipkinSpanTransport)} to
+     * use a different HTTP client.
+     *
+     * <p>The uncompressed payload is what gets retried and spooled, so it's compressed again for each attempt. That's cheap next to a failed
+     * request. If the transport is a {@link ZipkinSpanStreamingTransport} (the default one is) the payload is gzipped straight into the
+     * request body and no compressed copy is made at all - otherwise one compressed copy of a batch is held per sender thread.
+     */
+    protected void sendSpans(byte[] spanListPayloadBytes) throws IOException {
+        logger.trace("Sending spans to zipkin");
+
+        if (compressZipkinSpanPayload && zipkinSpanTransport instanceof ZipkinSpanStreamingTransport) {
+            ((ZipkinSpanStreamingTransport) zipkinSpanTransport).sendSpansGzipped(
+                spanListPayloadBytes, encoding.getContentType(), payloadCompressor
+            );
+            return;
+        }
+
+        if (compressZipkinSpanPayload)
+            spanListPayloadBytes = payloadCompressor.gzip(spanListPayloadBytes);
+
+        zipkinSpanTransport.sendSpans(spanListPayloadBytes, encoding.getContentType(), compressZipkinSpanPayload);
+    }
+
+    protected static class ZipkinSpanSenderJob implements Runnable {
+        private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+        protected final ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender;
+        protected final BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue;
+        protected final int maxBatchSpans;
+        protected final long maxBatchBytes;
+        protected final int maxConcurrentRuns;
+        protected final Executor runExecutor;
+        protected final ZipkinSpanEncoding encoding;
+        // Both null unless Wingtips span encoding is enabled.
+        protected final BoundedRingBuffer<Span> wingtipsSpanSendingQueue;
+        protected final WingtipsToZipkinSpanWireEncoder wingtipsSpanEncoder;
+
+        protected final AtomicInteger activeRuns = new AtomicInteger(0);
+        protected final AtomicBoolean earlyRunRequested = new AtomicBoolean(false);
+
+        /**
+         * Creates a job that sends everything in the queue as a single batch each time it runs, and never runs concurrently with itself.
+         */
+        public ZipkinSpanSenderJob(ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender,
+                                   BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue) {
+            this(zipkinSpanSender, zipkinSpanSendingQueue, Integer.MAX_VALUE, 0, 1, null);
+        }
+
+        /**
+         * @param zipkinSpanSender The sender to send batches with.
+         * @param zipkinSpanSendingQueue The queue to drain spans from.
+         * @param maxBatchSpans The max number of spans per batch.
+         * @param maxBatchBytes The approximate max v1 JSON size of each batch, or 0 for no limit. A batch is closed as soon as it reaches this
+         *                      size, so it can go over by at most one span.
+         * @param maxConcurrentRuns The max number of threads that can be running this job (and therefore sending a batch) at once.
+         * @param runExecutor The executor used to run this job early when a full batch is waiting, or null to only run when scheduled.
+         */
+        public ZipkinSpanSenderJob(ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender,
+                                   BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue,
+                                   int maxBatchSpans,
+                                   long maxBatchBytes,
+                                   int maxConcurrentRuns,
+                                   Executor runExecutor) {
+            this(zipkinSpanSender, zipkinSpanSendingQueue, maxBatchSpans, maxBatchBytes, maxConcurrentRuns, runExecutor, DEFAULT_ENCODING);
+        }
+
+        /**
+         * @param zipkinSpanSender The sender to send batches with.
+         * @param zipkinSpanSendingQueue The queue to drain spans from.
+         * @param maxBatchSpans The max number of spans per batch.
+         * @param maxBatchBytes The approximate max size of each batch in the given encoding, or 0 for no limit. A batch is closed as soon as
+         *                      it reaches this size, so it can go over by at most one span.
+         * @param maxConcurrentRuns The max number of threads that can be running this job (and therefore sending a batch) at once.
+         * @param runExecutor The executor used to run this job early when a full batch is waiting, or null to only run when scheduled.
+         * @param encoding The encoding {@code maxBatchBytes} is measured in.
+         */
+        public ZipkinSpanSenderJob(ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender,
+                                   BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue,
+                                   int maxBatchSpans,
+                                   long maxBatchBytes,
+                                   int maxConcurrentRuns,
+                                   Executor runExecutor,
+                                   ZipkinSpanEncoding encoding) {
+            this(zipkinSpanSender, zipkinSpanSendingQueue, maxBatchSpans, maxBatchBytes, maxConcurrentRuns, runExecutor, encoding, null, null);
+        }
+
+        /**
+         * @param zipkinSpanSender The sender to send batches with.
+         * @param zipkinSpanSendingQueue The queue to drain spans from.
+         * @param maxBatchSpans The max number of spans per batch.
+         * @param maxBatchBytes The approximate max size of each batch in the given encoding, or 0 for no limit. A batch is closed as soon as
+         *                      it reaches this size, so it can go over by at most one span.
+         * @param maxConcurrentRuns The max number of threads that can be running this job (and therefore sending a batch) at once.
+         * @param runExecutor The executor used to run this job early when a full batch is waiting, or null to only run when scheduled.
+         * @param encoding The encoding {@code maxBatchBytes} is measured in.
+         * @param wingtipsSpanSendingQueue The queue of Wingtips spans to drain after {@code zipkinSpanSendingQueue}, or null if Wingtips span
+         *                                 encoding isn't enabled.
+         * @param wingtipsSpanEncoder The encoder used to measure Wingtips spans against {@code maxBatchBytes}, or null if Wingtips span
+         *                            encoding isn't enabled.
+         */
+        public ZipkinSpanSenderJob(ZipkinSpanSenderDefaultHttpImpl zipkinSpanSender,
+                                   BoundedRingBuffer<zipkin.Span> zipkinSpanSendingQueue,
+                                   int maxBatchSpans,
+                                   long maxBatchBytes,
+                                   int maxConcurrentRuns,
+                                   Executor runExecutor,
+                                   ZipkinSpanEncoding encoding,
+                                   BoundedRingBuffer<Span> wingtipsSpanSendingQueue,
+                                   WingtipsToZipkinSpanWireEncoder wingtipsSpanEncoder) {
+            this.zipkinSpanSender = zipkinSpanSender;
+            this.zipkinSpanSendingQueue = zipkinSpanSendingQueue;
+            this.maxBatchSpans = maxBatchSpans;
+            this.maxBatchBytes = maxBatchBytes;
+            this.maxConcurrentRuns = maxConcurrentRuns;
+            this.runExecutor = runExecutor;
+            this.encoding = encoding;
+            this.wingtipsSpanSendingQueue = wingtipsSpanSendingQueue;
+            this.wingtipsSpanEncoder = wingtipsSpanEncoder;
+        }
+
+        /**
+         * Asks {@link #runExecutor} to run this job as soon as possible. Requests made while an earlier request is still waiting to start are
+         * collapsed into one, so calling this for every span when the queue is backed up doesn't flood the executor.
+         */
+        public void requestEarlyRun() {
+            if (runExecutor == null || !earlyRunRequested.compareAndSet(false, true))
+                return;
+
+            try {
+                runExecutor.execute(this);
+            }
+            catch (RejectedExecutionException ex) {
+                // The executor has been shut down - the spans will be sent by the next run, if there is one.
+                earlyRunRequested.set(false);
+            }
+        }
+
+        /**
+         * Replays anything in the sender's disk spool first (unless the circuit is open), so spooled spans go out in order before new ones.
+         * Then sends one batch of whatever is in the queue, then keeps sending batches for as long as there's a full batch waiting (so a burst is
+         * sent right away in full-sized batches, but a trickle of spans still waits for the next scheduled run). If another full batch is
+         * waiting after this thread drains one, another run is requested so it can be sent concurrently. Runs beyond {@link
+         * #maxConcurrentRuns} exit immediately - the runs already in progress will pick up their work. The Wingtips span queue (if there is
+         * one) is then handled the same way.
+         */
+        @Override
+        public void run() {
+            earlyRunRequested.set(false);
+            if (activeRuns.incrementAndGet() > maxConcurrentRuns) {
+                activeRuns.decrementAndGet();
+                return;
+            }
+
+            try {
+                boolean suspended = false;
+                if (zipkinSpanSender.hasSpooledBatches())
+                    suspended = zipkinSpanSender.isSendingSuspended() || !zipkinSpanSender.replaySpooledBatches();
+
+                suspended = sendQueuedZipkinSpans(suspended);
+
+                if (wingtipsSpanSendingQueue != null && !(suspended && !zipkinSpanSender.isSpoolingEnabled()))
+                    sendQueuedWingtipsSpans(suspended);
+            }
+            catch(Throwable ex) {
+                logger.error("An unexpected error occurred attempting to post Zipkin spans to the Zipkin server.", ex);
+            }
+            finally {
+                activeRuns.decrementAndGet();
+            }
+        }
+
+        /**
+         * @param suspended true if sending is already known to be suspended (spans should be spooled rather than sent).
+         * @return Whether sending is suspended after this call.
+         */
+        protected boolean sendQueuedZipkinSpans(boolean suspended) {
+            if (zipkinSpanSendingQueue.isEmpty())
+                return suspended;
+
+            do {
+                if (!suspended)
+                    suspended = zipkinSpanSender.isSendingSuspended();
+
+                if (suspended && !zipkinSpanSender.isSpoolingEnabled())
+                    return true;
+
+                List<zipkin.Span> batch = drainBatch();
+                if (batch.isEmpty())
+                    return suspended;
+
+                if (isFullBatchQueued() && activeRuns.get() < maxConcurrentRuns)
+                    requestEarlyRun();
+
+                zipkinSpanSender.spansDrainedFromQueue(batch);
+                if (suspended)
+                    zipkinSpanSender.spoolSpans(batch);
+                else
+                    zipkinSpanSender.sendSpans(batch);
+            } while (isFullBatchQueued());
+
+            return suspended;
+        }
+
+        /**
+         * The {@link #wingtipsSpanSendingQueue} equivalent of {@link #sendQueuedZipkinSpans(boolean)}.
+         */
+        protected void sendQueuedWingtipsSpans(boolean suspended) {
+            if (wingtipsSpanSendingQueue.isEmpty())
+                return;
+
+            do {
+                if (!suspended)
+                    suspended = zipkinSpanSender.isSendingSuspended();
+
+                if (suspended && !zipkinSpanSender.isSpoolingEnabled())
+                    return;
+
+                List<Span> batch = drainWingtipsBatch();
+                if (batch.isEmpty())
+                    return;
+
+                if (isFullWingtipsBatchQueued() && activeRuns.get() < maxConcurrentRuns)
+                    requestEarlyRun();
+
+                zipkinSpanSender.wingtipsSpansDrainedFromQueue(batch);
+                if (suspended)
+                    zipkinSpanSender.spoolWingtipsSpans(batch);
+                else
+                    zipkinSpanSender.sendWingtipsSpans(batch);
+            } while (isFullWingtipsBatchQueued());
+        }
+
+        protected boolean isFullBatchQueued() {
+            return maxBatchSpans != Integer.MAX_VALUE && zipkinSpanSendingQueue.size() >= maxBatchSpans;
+        }
+
+        protected boolean isFullWingtipsBatchQueued() {
+            return maxBatchSpans != Integer.MAX_VALUE && wingtipsSpanSendingQueue.size() >= maxBatchSpans;
+        }
+
+        /**
+         * @return The next batch of spans from the queue - at most {@link #maxBatchSpans} spans, stopping early once the batch reaches {@link
+         * #maxBatchBytes} if that's enabled. Only spans that are in the queue when this is called are drained, so a steady stream of new spans
+         * can't keep a batch growing.
+         */
+        protected List<zipkin.Span> drainBatch() {
+            int batchSize = Math.min(zipkinSpanSendingQueue.size(), maxBatchSpans);
+            List<zipkin.Span> batch = new ArrayList<>(batchSize);
+            if (maxBatchBytes <= 0) {
+                zipkinSpanSendingQueue.drainTo(batch, batchSize);
+                return batch;
+            }
+
+            long batchBytes = 0;
+            while (batch.size() < batchSize && batchBytes < maxBatchBytes) {
+                zipkin.Span span = zipkinSpanSendingQueue.poll();
+                if (span == null)
+                    break;
+
+                batch.add(span);
+                batchBytes += encoding.sizeInBytes(span);
+            }
+            return batch;
+        }
+
+        /**
+         * The {@link #wingtipsSpanSendingQueue} equivalent of {@link #drainBatch()}.
+         */
+        protected List<Span> drainWingtipsBatch() {
+            int batchSize = Math.min(wingtipsSpanSendingQueue.size(), maxBatchSpans);
+            List<Span> batch = new ArrayList<>(batchSize);
+            if (maxBatchBytes <= 0) {
+                wingtipsSpanSendingQueue.drainTo(batch, batchSize);
+                return batch;
+            }
+
+            long batchBytes = 0;
+            while (batch.size() < batchSize && batchBytes < maxBatchBytes) {
+                Span span = wingtipsSpanSendingQueue.poll();
+                if (span == null)
+                    break;
+
+                batch.add(span);
+                batchBytes += wingtipsSpanEncoder.sizeInBytes(span);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Builder for {@link ZipkinSpanSenderDefaultHttpImpl}. Create one with {@link ZipkinSpanSenderDefaultHttpImpl#newBuilder(String)}. Any
+     * option that isn't set uses the same default as the {@link ZipkinSpanSenderDefaultHttpImpl#ZipkinSpanSenderDefaultHttpImpl(String,
+     * boolean)} constructor, plus {@link #DEFAULT_MAX_QUEUED_SPANS}, no queued byte limit, {@link #DEFAULT_OVERFLOW_POLICY}, {@link
+     * #DEFAULT_MAX_BATCH_SPANS}, no batch byte limit, {@link #DEFAULT_MAX_IN_FLIGHT_BATCHES}, {@link #DEFAULT_MAX_SEND_RETRIES} retries
+     * starting at {@link #DEFAULT_INITIAL_RETRY_BACKOFF_MILLIS} and capped at {@link #DEFAULT_MAX_RETRY_BACKOFF_MILLIS}, and a circuit breaker
+     * that opens after {@link #DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD} consecutive failures for {@link
+     * #DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS}, no disk spool, {@link #DEFAULT_ENCODING}, {@link #DEFAULT_COMPRESSION_LEVEL}, no JMX
+     * registration, and no shutdown hook ({@link ZipkinSpanSenderDefaultHttpImpl#close()} flushes for up to {@link
+     * #DEFAULT_SHUTDOWN_FLUSH_TIMEOUT_MILLIS}). Builders with several base URLs default to the {@link ZipkinSpanTransportLoadBalancer} defaults.
+     */
+    public static class Builder {
+        protected final List<String> postZipkinSpansBaseUrls;
+        protected boolean compressZipkinSpanPayload = true;
+        protected int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        protected int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        protected int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+        protected int batchSendingPeriodMillis = DEFAULT_SPAN_BATCH_SENDING_PERIOD_MILLIS;
+        protected int maxQueuedSpans = DEFAULT_MAX_QUEUED_SPANS;
+        protected long maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+        protected OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+        protected long blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        protected int maxBatchSpans = DEFAULT_MAX_BATCH_SPANS;
+        protected long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        protected int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+        protected ZipkinSpanTransport transport;
+        protected int maxSendRetries = DEFAULT_MAX_SEND_RETRIES;
+        protected long initialRetryBackoffMillis = DEFAULT_INITIAL_RETRY_BACKOFF_MILLIS;
+        protected long maxRetryBackoffMillis = DEFAULT_MAX_RETRY_BACKOFF_MILLIS;
+        protected int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+        protected long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+        protected ZipkinSpanDiskSpool diskSpool;
+        protected ZipkinSpanEncoding encoding = DEFAULT_ENCODING;
+        protected boolean wingtipsSpanEncodingEnabled = false;
+        protected String wingtipsSpanServiceName;
+        protected String wingtipsSpanLocalComponentNamespace;
+        protected ZipkinSpanTransportLoadBalancer.Strategy loadBalancingStrategy = ZipkinSpanTransportLoadBalancer.DEFAULT_STRATEGY;
+        protected int ejectionFailureThreshold = ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_FAILURE_THRESHOLD;
+        protected long ejectionMillis = ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_MILLIS;
+        protected long shutdownFlushTimeoutMillis = DEFAULT_SHUTDOWN_FLUSH_TIMEOUT_MILLIS;
+        protected boolean registerShutdownHook = false;
+        protected String mBeanObjectName;
+
+        protected Builder(String postZipkinSpansBaseUrl) {
+            if (postZipkinSpansBaseUrl == null)
+                throw new IllegalArgumentException("postZipkinSpansBaseUrl cannot be null");
+
+            this.postZipkinSpansBaseUrls = Collections.singletonList(postZipkinSpansBaseUrl);
+        }
+
+        protected Builder(List<String> postZipkinSpansBaseUrls) {
+            if (postZipkinSpansBaseUrls == null || postZipkinSpansBaseUrls.isEmpty())
+                throw new IllegalArgumentException("postZipkinSpansBaseUrls cannot be null or empty");
+
+            if (postZipkinSpansBaseUrls.contains(null))
+                throw new IllegalArgumentException("postZipkinSpansBaseUrls cannot contain null");
+
+            this.postZipkinSpansBaseUrls = Collections.unmodifiableList(new ArrayList<>(postZipkinSpansBaseUrls));
+        }
+
+        /**
+         * @param compressZipkinSpanPayload Pass in true if the payload sent to the Zipkin server should be gzipped, false to pass the payload
+         *                                  uncompressed.
+         * @return a reference to this Builder
+         */
+        public Builder withCompressZipkinSpanPayload(boolean compressZipkinSpanPayload) {
+            this.compressZipkinSpanPayload = compressZipkinSpanPayload;
+            return this;
+        }
+
+        /**
+         * @param compressionLevel The gzip compression level used when {@link #withCompressZipkinSpanPayload(boolean)} is enabled - {@link
+         *                         Deflater#DEFAULT_COMPRESSION}, or 0 to 9. Lower levels use less CPU on the sender threads at the cost of
+         *                         somewhat larger payloads. See {@link ZipkinSpanPayloadCompressor}.
+         * @return a reference to this Builder
+         */
+        public Builder withCompressionLevel(int compressionLevel) {
+            if (!ZipkinSpanPayloadCompressor.isValidCompressionLevel(compressionLevel)) {
+                throw new IllegalArgumentException(
+                    "compressionLevel must be Deflater.DEFAULT_COMPRESSION (-1) or between 0 and 9. Received: " + compressionLevel
+                );
+            }
+
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * @param connectTimeoutMillis The timeout in milliseconds that should be used when attempting to connect to the Zipkin server.
+         * @return a reference to this Builder
+         */
+        public Builder withConnectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param readTimeoutMillis The read timeout in milliseconds that should be used when waiting for a response from the Zipkin server.
+         * @return a reference to this Builder
+         */
+        public Builder withReadTimeoutMillis(int readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param batchSendingPeriodMillis The period in milliseconds that should be used between sending span batches to the Zipkin server. If
+         *                                 you pass in 0 it will disable automatic batch sending, at which point {@link ZipkinSpanSenderDefaultHttpImpl#flush()} is the only
+         *                                 way to send spans.
+         * @return a reference to this Builder
+         */
+        public Builder withBatchSendingPeriodMillis(int batchSendingPeriodMillis) {
+            this.batchSendingPeriodMillis = batchSendingPeriodMillis;
+            return this;
+        }
+
+        /**
+         * @param maxQueuedSpans The max number of spans that can be waiting to be sent - must be greater than 0. Will be rounded up to the next
+         *                       power of two.
+         * @return a reference to this Builder
+         */
+        public Builder withMaxQueuedSpans(int maxQueuedSpans) {
+            if (maxQueuedSpans < 1)
+                throw new IllegalArgumentException("maxQueuedSpans must be greater than 0. Received: " + maxQueuedSpans);
+
+            this.maxQueuedSpans = maxQueuedSpans;
+            return this;
+        }
+
+        /**
+         * @param maxQueuedBytes The max total size of the spans waiting to be sent, measured as their size in the configured encoding, or 0
+         *                       for no byte limit. Enabling this costs a span size calculation on the calling thread for every span.
+         * @return a reference to this Builder
+         */
+        public Builder withMaxQueuedBytes(long maxQueuedBytes) {
+            if (maxQueuedBytes < 0)
+                throw new IllegalArgumentException("maxQueuedBytes cannot be negative. Received: " + maxQueuedBytes);
+
+            this.maxQueuedBytes = maxQueuedBytes;
+            return this;
+        }
+
+        /**
+         * @param overflowPolicy What to do when a span is handed to {@link ZipkinSpanSenderDefaultHttpImpl#handleSpan(zipkin.Span)} and the queue is full - cannot be null.
+         * @param blockTimeoutNanos The max time the calling thread will wait for room in the queue when {@code overflowPolicy} is {@link
+         *                          OverflowPolicy#BLOCK_WITH_TIMEOUT}. Ignored for other policies.
+         * @return a reference to this Builder
+         */
+        public Builder withOverflowPolicy(OverflowPolicy overflowPolicy, long blockTimeoutNanos) {
+            if (overflowPolicy == null)
+                throw new IllegalArgumentException("overflowPolicy cannot be null");
+
+            if (blockTimeoutNanos < 0)
+                throw new IllegalArgumentException("blockTimeoutNanos cannot be negative. Received: " + blockTimeoutNanos);
+
+            this.overflowPolicy = overflowPolicy;
+            this.blockTimeoutNanos = blockTimeoutNanos;
+            return this;
+        }
+
+        /**
+         * @param maxBatchSpans The max number of spans sent in a single request - must be greater than 0. As soon as this many spans are
+         *                      queued they're sent, without waiting for the next batch sending period.
+         * @return a reference to this Builder
+         */
+        public Builder withMaxBatchSpans(int maxBatchSpans) {
+            if (maxBatchSpans < 1)
+                throw new IllegalArgumentException("maxBatchSpans must be greater than 0. Received: " + maxBatchSpans);
+
+            this.maxBatchSpans = maxBatchSpans;
+            return this;
+        }
+
+        /**
+         * @param maxBatchBytes The approximate max (uncompressed) payload size of a single request, or 0 for no limit. A batch is closed as soon
+         *                      as it reaches this size, so it can go over by at most one span. If {@link #withMaxQueuedBytes(long)} is also
+         *                      enabled then spans are sent as soon as this many bytes are queued, without waiting for the next batch sending
+         *                      period.
+         * @return a reference to this Builder
+         */
+        public Builder withMaxBatchBytes(long maxBatchBytes) {
+            if (maxBatchBytes < 0)
+                throw new IllegalArgumentException("maxBatchBytes cannot be negative. Received: " + maxBatchBytes);
+
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * @param maxInFlightBatches The max number of requests that can be sending batches to the Zipkin server at the same time - must be
+         *                           greater than 0. This is also the number of sender threads.
+         * @return a reference to this Builder
+         */
+        public Builder withMaxInFlightBatches(int maxInFlightBatches) {
+            if (maxInFlightBatches < 1)
+                throw new IllegalArgumentException("maxInFlightBatches must be greater than 0. Received: " + maxInFlightBatches);
+
+            this.maxInFlightBatches = maxInFlightBatches;
+            return this;
+        }
+
+        /**
+         * @param transport The transport to send span payloads with, or null to use a {@link ZipkinSpanTransportDefaultHttpImpl} that POSTs to
+         *                  the encoding's endpoint (e.g. {@code api/v1/spans}) under the base URL, with the connect/read timeouts from this
+         *                  builder and one pooled connection per in-flight batch. When a transport is given the connect and read timeouts from
+         *                  this builder aren't used.
+         * @return a reference to this Builder
+         */
+        public Builder withTransport(ZipkinSpanTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * @param maxSendRetries The max number of times a batch that failed with an {@link IOException} is retried before it's discarded, or 0
+         *                       to never retry - must not be negative.
+         * @param initialRetryBackoffMillis The wait before the first retry. It's doubled for each subsequent retry, and randomized by up to half
+         *                                  to spread retries out - must be greater than 0.
+         * @param maxRetryBackoffMillis The max wait between retries - must be at least {@code initialRetryBackoffMillis}.
+         * @return a reference to this Builder
+         */
+        public Builder withRetries(int maxSendRetries, long initialRetryBackoffMillis, long maxRetryBackoffMillis) {
+            if (maxSendRetries < 0)
+                throw new IllegalArgumentException("maxSendRetries cannot be negative. Received: " + maxSendRetries);
+
+            if (initialRetryBackoffMillis <= 0) {
+                throw new IllegalArgumentException(
+                    "initialRetryBackoffMillis must be greater than 0. Received: " + initialRetryBackoffMillis
+                );
+            }
+
+            if (maxRetryBackoffMillis < initialRetryBackoffMillis) {
+                throw new IllegalArgumentException(
+                    "maxRetryBackoffMillis cannot be less than initialRetryBackoffMillis. Received: " + maxRetryBackoffMillis
+                );
+            }
+
+            this.maxSendRetries = maxSendRetries;
+            this.initialRetryBackoffMillis = initialRetryBackoffMillis;
+            this.maxRetryBackoffMillis = maxRetryBackoffMillis;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold The number of consecutive failed attempts (including retries) that opens the circuit, or 0 to disable circuit
+         *                         breaking - must not be negative.
+         * @param openDurationMillis How long the circuit stays open before a probe batch is sent - must be greater than 0. Ignored when
+         *                           {@code failureThreshold} is 0.
+         * @return a reference to this Builder
+         */
+        public Builder withCircuitBreaker(int failureThreshold, long openDurationMillis) {
+            if (failureThreshold < 0)
+                throw new IllegalArgumentException("failureThreshold cannot be negative. Received: " + failureThreshold);
+
+            if (failureThreshold > 0 && openDurationMillis <= 0)
+                throw new IllegalArgumentException("openDurationMillis must be greater than 0. Received: " + openDurationMillis);
+
+            this.circuitBreakerFailureThreshold = failureThreshold;
+            this.circuitBreakerOpenMillis = openDurationMillis;
+            return this;
+        }
+
+        /**
+         * @param encoding The wire format to send spans in - must not be null. This also decides which endpoint under the base URL spans are
+         *                 POSTed to, unless a transport is supplied with {@link #withTransport(ZipkinSpanTransport)} (in which case it's up to
+         *                 the transport to send them to the endpoint that accepts this encoding).
+         * @return a reference to this Builder
+         */
+        public Builder withEncoding(ZipkinSpanEncoding encoding) {
+            if (encoding == null)
+                throw new IllegalArgumentException("encoding cannot be null");
+
+            this.encoding = encoding;
+            return this;
+        }
+
+        /**
+         * @param diskSpool The spool to write batches to when they can't be delivered, so they can be replayed once the Zipkin server
+         *                  recovers. Pass null (the default) to discard undeliverable batches instead. The spool shouldn't be shared with
+         *                  another sender. Spooled batches are replayed with the sender's current encoding, so don't reuse a spool
+         *                  directory after changing the encoding.
+         * @return a reference to this Builder
+         */
+        public Builder withDiskSpool(ZipkinSpanDiskSpool diskSpool) {
+            this.diskSpool = diskSpool;
+            return this;
+        }
+
+        /**
+         * Lets the sender accept completed Wingtips spans directly through {@link
+         * ZipkinSpanSenderDefaultHttpImpl#handleWingtipsSpan(Span)}. They're written to the configured encoding on the sender threads by a
+         * {@link WingtipsToZipkinSpanWireEncoder}, with the same result as {@link WingtipsToZipkinSpanConverterDefaultImpl} would give. Use
+         * the sender with {@link com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener#WingtipsToZipkinLifecycleListener(
+         * ZipkinSpanSenderDefaultHttpImpl)} so the listener hands over Wingtips spans instead of converting them on the request thread.
+         *
+         * @param serviceName The name of this service, used for the Zipkin endpoint of every span - see {@link
+         *                    com.nike.wingtips.zipkin.WingtipsToZipkinLifecycleListener}.
+         * @param localComponentNamespace The {@link zipkin.Constants#LOCAL_COMPONENT} value for local spans - cannot be null.
+         * @return a reference to this Builder
+         */
+        public Builder withWingtipsSpanEncoding(String serviceName, String localComponentNamespace) {
+            if (localComponentNamespace == null)
+                throw new IllegalArgumentException("localComponentNamespace cannot be null");
+
+            this.wingtipsSpanEncodingEnabled = true;
+            this.wingtipsSpanServiceName = serviceName;
+            this.wingtipsSpanLocalComponentNamespace = localComponentNamespace;
+            return this;
+        }
+
+        /**
+         * Controls how batches are spread across the collectors when the builder was created with several base URLs. Ignored for a single
+         * base URL, or when a transport is supplied with {@link #withTransport(ZipkinSpanTransport)}.
+         *
+         * @param strategy How to choose the collector for each batch - cannot be null.
+         * @param ejectionFailureThreshold The number of consecutive failures that ejects a collector - must be greater than 0.
+         * @param ejectionMillis How long an ejected collector gets no batches before it's probed again - must be greater than 0.
+         * @return a reference to this Builder
+         */
+        public Builder withLoadBalancing(ZipkinSpanTransportLoadBalancer.Strategy strategy, int ejectionFailureThreshold,
+                                         long ejectionMillis) {
+            if (strategy == null)
+                throw new IllegalArgumentException("strategy cannot be null");
+
+            if (ejectionFailureThreshold < 1)
+                throw new IllegalArgumentException("ejectionFailureThreshold must be greater than 0. Received: " + ejectionFailureThreshold);
+
+            if (ejectionMillis <= 0)
+                throw new IllegalArgumentException("ejectionMillis must be greater than 0. Received: " + ejectionMillis);
+
+            this.loadBalancingStrategy = strategy;
+            this.ejectionFailureThreshold = ejectionFailureThreshold;
+            this.ejectionMillis = ejectionMillis;
+            return this;
+        }
+
+        /**
+         * @param shutdownFlushTimeoutMillis The max time {@link ZipkinSpanSenderDefaultHttpImpl#close()} (and the shutdown hook) spends sending
+         *                                   queued spans before giving up on them - must not be negative.
+         * @param registerShutdownHook Pass in true to call {@link ZipkinSpanSenderDefaultHttpImpl#close()} from a JVM shutdown hook, or false
+         *                             (the default) if you'll close the sender yourself. The hook keeps the sender reachable until it's
+         *                             closed, so only use it for senders that live as long as the JVM. It's removed when the sender is closed.
+         * @return a reference to this Builder
+         */
+        public Builder withShutdownFlush(long shutdownFlushTimeoutMillis, boolean registerShutdownHook) {
+            if (shutdownFlushTimeoutMillis < 0) {
+                throw new IllegalArgumentException(
+                    "shutdownFlushTimeoutMillis cannot be negative. Received: " + shutdownFlushTimeoutMillis
+                );
+            }
+
+            this.shutdownFlushTimeoutMillis = shutdownFlushTimeoutMillis;
+            this.registerShutdownHook = registerShutdownHook;
+            return this;
+        }
+
+        /**
+         * @param mBeanObjectName The JMX object name to register the sender under with the platform MBean server as a {@link
+         *                        ZipkinSpanSenderMXBean} (e.g. {@link #DEFAULT_MBEAN_OBJECT_NAME}), or null (the default) to not register it.
+         *                        Each sender needs its own name. The sender is unregistered when it's closed.
+         * @return a reference to this Builder
+         */
+        public Builder withMBeanRegistration(String mBeanObjectName) {
+            if (mBeanObjectName != null) {
+                try {
+                    new ObjectName(mBeanObjectName);
+                }
+                catch (MalformedObjectNameException ex) {
+                    throw new IllegalArgumentException("mBeanObjectName is not a valid JMX object name. Received: " + mBeanObjectName, ex);
+                }
+            }
+
+            this.mBeanObjectName = mBeanObjectName;
+            return this;
+        }
+
+        /**
+         * @return A new {@link ZipkinSpanSenderDefaultHttpImpl} with this builder's settings.
+         */
+        public ZipkinSpanSenderDefaultHttpImpl build() {
+            ZipkinSpanSenderDefaultHttpImpl sender = new ZipkinSpanSenderDefaultHttpImpl(this);
+            sender.registerShutdownHookAndMBean(this);
+            return sender;
         }
     }
 }
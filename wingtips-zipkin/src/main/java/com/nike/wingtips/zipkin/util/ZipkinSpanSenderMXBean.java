@@ -0,0 +1,41 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.zipkin.util.ZipkinSpanSenderMetrics.HistogramSnapshot;
+
+/**
+ * The JMX view of a {@link ZipkinSpanSenderDefaultHttpImpl}'s health. Register a sender with {@link
+ * ZipkinSpanSenderDefaultHttpImpl.Builder#withMBeanRegistration(String)}. The histograms show up as composite attributes with {@code count},
+ * {@code mean}, {@code max}, {@code p50}, {@code p90}, {@code p99} and {@code p999} items.
+ *
+ * <p>Each attribute is read live, so values can be slightly out of step with each other. Use {@link
+ * ZipkinSpanSenderDefaultHttpImpl#getMetricsSnapshot()} to poll everything at once from code.
+ */
+@SuppressWarnings("unused")
+public interface ZipkinSpanSenderMXBean {
+
+    int getBacklogSize();
+
+    long getQueuedBytes();
+
+    long getSentBatchCount();
+
+    long getSentSpanCount();
+
+    long getFailedSendAttemptCount();
+
+    long getFailedSpanCount();
+
+    long getDroppedSpanCount();
+
+    long getSpooledSpanCount();
+
+    boolean isCircuitOpen();
+
+    HistogramSnapshot getQueueDepthHistogram();
+
+    HistogramSnapshot getBatchSpanCountHistogram();
+
+    HistogramSnapshot getBatchPayloadBytesHistogram();
+
+    HistogramSnapshot getSendLatencyMicrosHistogram();
+}
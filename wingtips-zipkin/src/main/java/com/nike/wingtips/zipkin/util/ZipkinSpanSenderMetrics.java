@@ -0,0 +1,395 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ *     The health metrics recorded by a {@link ZipkinSpanSenderDefaultHttpImpl} as it sends batches: how many batches, spans and send attempts
+ *     succeeded or failed, how many spans went to the disk spool, and histograms of the queue depth, batch sizes, payload sizes and send
+ *     latency. Poll them with {@link ZipkinSpanSenderDefaultHttpImpl#getMetricsSnapshot()}, or over JMX through {@link
+ *     ZipkinSpanSenderMXBean}.
+ * </p>
+ * <p>
+ *     Recording is lock-free and allocation-free, and only ever happens on the sender threads - never on the threads that hand spans to the
+ *     sender.
+ * </p>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinSpanSenderMetrics {
+
+    protected final AtomicLong sentBatchCount = new AtomicLong(0);
+    protected final AtomicLong sentSpanCount = new AtomicLong(0);
+    protected final AtomicLong failedSendAttemptCount = new AtomicLong(0);
+    protected final AtomicLong spooledSpanCount = new AtomicLong(0);
+
+    protected final Histogram queueDepth = new Histogram();
+    protected final Histogram batchSpanCount = new Histogram();
+    protected final Histogram batchPayloadBytes = new Histogram();
+    protected final Histogram sendLatencyMicros = new Histogram();
+
+    /**
+     * Records the number of spans that were waiting to be sent when a batch was taken off the queue (including the batch itself).
+     */
+    public void recordQueueDepth(int queueDepth) {
+        this.queueDepth.record(queueDepth);
+    }
+
+    /**
+     * Records a batch that was delivered to the Zipkin server.
+     *
+     * @param spanCount The number of spans in the batch.
+     * @param payloadBytes The size of the batch's payload before compression.
+     */
+    public void recordBatchSent(int spanCount, int payloadBytes) {
+        sentBatchCount.incrementAndGet();
+        sentSpanCount.addAndGet(spanCount);
+        batchSpanCount.record(spanCount);
+        batchPayloadBytes.record(payloadBytes);
+    }
+
+    /**
+     * Records a single successful request to the Zipkin server.
+     */
+    public void recordSendAttemptSucceeded(long latencyNanos) {
+        sendLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * Records a single failed request to the Zipkin server. Failed requests aren't included in the send latency histogram, so a collector that
+     * times out doesn't hide the latency of the requests that get through.
+     */
+    public void recordSendAttemptFailed() {
+        failedSendAttemptCount.incrementAndGet();
+    }
+
+    /**
+     * Records spans that were written to the disk spool rather than sent.
+     */
+    public void recordSpansSpooled(int spanCount) {
+        spooledSpanCount.addAndGet(spanCount);
+    }
+
+    public long getSentBatchCount() {
+        return sentBatchCount.get();
+    }
+
+    public long getSentSpanCount() {
+        return sentSpanCount.get();
+    }
+
+    public long getFailedSendAttemptCount() {
+        return failedSendAttemptCount.get();
+    }
+
+    public long getSpooledSpanCount() {
+        return spooledSpanCount.get();
+    }
+
+    public HistogramSnapshot getQueueDepth() {
+        return queueDepth.snapshot();
+    }
+
+    public HistogramSnapshot getBatchSpanCount() {
+        return batchSpanCount.snapshot();
+    }
+
+    public HistogramSnapshot getBatchPayloadBytes() {
+        return batchPayloadBytes.snapshot();
+    }
+
+    public HistogramSnapshot getSendLatencyMicros() {
+        return sendLatencyMicros.snapshot();
+    }
+
+    /**
+     * <p>
+     *     A lock-free histogram of non-negative values. Values below 8 get their own bucket, and every power of two above that is split into 8
+     *     buckets, so a reported percentile is never more than 12.5% above the true value no matter how wide the range of values is. It takes a
+     *     fixed 4KB, and recording a value is a few atomic increments.
+     * </p>
+     * <p>
+     *     Negative values are recorded as 0.
+     * </p>
+     */
+    public static class Histogram {
+        protected static final int SUB_BUCKET_BITS = 3;
+        protected static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        protected static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+        protected final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+        protected final AtomicLong count = new AtomicLong(0);
+        protected final AtomicLong sum = new AtomicLong(0);
+        protected final AtomicLong max = new AtomicLong(0);
+
+        public void record(long value) {
+            if (value < 0)
+                value = 0;
+
+            bucketCounts.incrementAndGet(bucketIndex(value));
+            sum.addAndGet(value);
+            count.incrementAndGet();
+
+            long currentMax;
+            while (value > (currentMax = max.get())) {
+                if (max.compareAndSet(currentMax, value))
+                    break;
+            }
+        }
+
+        protected static int bucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT)
+                return (int) value;
+
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+            return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        /**
+         * @return The largest value that lands in the given bucket.
+         */
+        protected static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKET_COUNT)
+                return index;
+
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long lowerBound = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+
+        /**
+         * @return The current state of this histogram. Values recorded while the snapshot is being taken may or may not be included, so the
+         * count, mean and percentiles can be very slightly out of step with each other.
+         */
+        public HistogramSnapshot snapshot() {
+            long[] counts = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = bucketCounts.get(i);
+                total += counts[i];
+            }
+
+            if (total == 0)
+                return HistogramSnapshot.EMPTY;
+
+            long maxValue = max.get();
+            double mean = (double) sum.get() / count.get();
+            return new HistogramSnapshot(
+                total, mean, maxValue, percentile(counts, total, 0.5, maxValue), percentile(counts, total, 0.9, maxValue),
+                percentile(counts, total, 0.99, maxValue), percentile(counts, total, 0.999, maxValue)
+            );
+        }
+
+        protected static long percentile(long[] counts, long total, double percentile, long maxValue) {
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(bucketUpperBound(i), maxValue);
+            }
+            return maxValue;
+        }
+    }
+
+    /**
+     * An immutable point-in-time view of a {@link Histogram}. Percentiles are the upper bound of the bucket the percentile falls in (capped at
+     * the max), so they can overstate the true value by up to 12.5%, but never understate it.
+     */
+    public static class HistogramSnapshot {
+        public static final HistogramSnapshot EMPTY = new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0);
+
+        protected final long count;
+        protected final double mean;
+        protected final long max;
+        protected final long p50;
+        protected final long p90;
+        protected final long p99;
+        protected final long p999;
+
+        @ConstructorProperties({"count", "mean", "max", "p50", "p90", "p99", "p999"})
+        public HistogramSnapshot(long count, double mean, long max, long p50, long p90, long p99, long p999) {
+            this.count = count;
+            this.mean = mean;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        @Override
+        public String toString() {
+            return "HistogramSnapshot{count=" + count + ", mean=" + mean + ", max=" + max + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99
+                   + ", p999=" + p999 + "}";
+        }
+    }
+
+    /**
+     * An immutable point-in-time view of a sender's health, from {@link ZipkinSpanSenderDefaultHttpImpl#getMetricsSnapshot()}.
+     */
+    public static class Snapshot {
+        protected final int backlogSize;
+        protected final long queuedBytes;
+        protected final long sentBatchCount;
+        protected final long sentSpanCount;
+        protected final long failedSendAttemptCount;
+        protected final long failedSpanCount;
+        protected final long droppedSpanCount;
+        protected final long spooledSpanCount;
+        protected final boolean circuitOpen;
+        protected final HistogramSnapshot queueDepth;
+        protected final HistogramSnapshot batchSpanCount;
+        protected final HistogramSnapshot batchPayloadBytes;
+        protected final HistogramSnapshot sendLatencyMicros;
+
+        public Snapshot(int backlogSize, long queuedBytes, long sentBatchCount, long sentSpanCount, long failedSendAttemptCount,
+                        long failedSpanCount, long droppedSpanCount, long spooledSpanCount, boolean circuitOpen, HistogramSnapshot queueDepth,
+                        HistogramSnapshot batchSpanCount, HistogramSnapshot batchPayloadBytes, HistogramSnapshot sendLatencyMicros) {
+            this.backlogSize = backlogSize;
+            this.queuedBytes = queuedBytes;
+            this.sentBatchCount = sentBatchCount;
+            this.sentSpanCount = sentSpanCount;
+            this.failedSendAttemptCount = failedSendAttemptCount;
+            this.failedSpanCount = failedSpanCount;
+            this.droppedSpanCount = droppedSpanCount;
+            this.spooledSpanCount = spooledSpanCount;
+            this.circuitOpen = circuitOpen;
+            this.queueDepth = queueDepth;
+            this.batchSpanCount = batchSpanCount;
+            this.batchPayloadBytes = batchPayloadBytes;
+            this.sendLatencyMicros = sendLatencyMicros;
+        }
+
+        /**
+         * @return The number of spans waiting to be sent.
+         */
+        public int getBacklogSize() {
+            return backlogSize;
+        }
+
+        /**
+         * @return The approximate serialized size of the spans waiting to be sent, or 0 if {@code maxQueuedBytes} isn't enabled.
+         */
+        public long getQueuedBytes() {
+            return queuedBytes;
+        }
+
+        /**
+         * @return The number of batches delivered to the Zipkin server, including batches replayed from the disk spool.
+         */
+        public long getSentBatchCount() {
+            return sentBatchCount;
+        }
+
+        /**
+         * @return The number of spans in the batches counted by {@link #getSentBatchCount()}.
+         */
+        public long getSentSpanCount() {
+            return sentSpanCount;
+        }
+
+        /**
+         * @return The number of requests to the Zipkin server that failed, including ones that were later retried successfully.
+         */
+        public long getFailedSendAttemptCount() {
+            return failedSendAttemptCount;
+        }
+
+        /**
+         * @return The number of spans that couldn't be delivered or spooled, and were discarded.
+         */
+        public long getFailedSpanCount() {
+            return failedSpanCount;
+        }
+
+        /**
+         * @return The number of spans that were dropped because the queue was full, or because the sender was closed.
+         */
+        public long getDroppedSpanCount() {
+            return droppedSpanCount;
+        }
+
+        /**
+         * @return The number of spans written to the disk spool.
+         */
+        public long getSpooledSpanCount() {
+            return spooledSpanCount;
+        }
+
+        /**
+         * @return true if the circuit breaker is open, meaning the Zipkin server is considered unhealthy.
+         */
+        public boolean isCircuitOpen() {
+            return circuitOpen;
+        }
+
+        /**
+         * @return The number of spans waiting to be sent each time a batch was taken off the queue.
+         */
+        public HistogramSnapshot getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * @return The number of spans in each batch delivered to the Zipkin server.
+         */
+        public HistogramSnapshot getBatchSpanCount() {
+            return batchSpanCount;
+        }
+
+        /**
+         * @return The uncompressed payload size in bytes of each batch delivered to the Zipkin server.
+         */
+        public HistogramSnapshot getBatchPayloadBytes() {
+            return batchPayloadBytes;
+        }
+
+        /**
+         * @return The latency in microseconds of each successful request to the Zipkin server.
+         */
+        public HistogramSnapshot getSendLatencyMicros() {
+            return sendLatencyMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "ZipkinSpanSenderMetrics.Snapshot{backlogSize=" + backlogSize + ", queuedBytes=" + queuedBytes + ", sentBatchCount="
+                   + sentBatchCount + ", sentSpanCount=" + sentSpanCount + ", failedSendAttemptCount=" + failedSendAttemptCount
+                   + ", failedSpanCount=" + failedSpanCount + ", droppedSpanCount=" + droppedSpanCount + ", spooledSpanCount="
+                   + spooledSpanCount + ", circuitOpen=" + circuitOpen + ", queueDepth=" + queueDepth + ", batchSpanCount=" + batchSpanCount
+                   + ", batchPayloadBytes=" + batchPayloadBytes + ", sendLatencyMicros=" + sendLatencyMicros + "}";
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ *     A {@link ZipkinSpanTransport} that can gzip a payload as it writes the request body, rather than needing the whole compressed payload
+ *     up front. {@link ZipkinSpanSenderDefaultHttpImpl} uses {@link #sendSpansGzipped(byte[], String, ZipkinSpanPayloadCompressor)} instead
+ *     of {@link #sendSpans(byte[], String, boolean)} whenever its transport implements this and compression is enabled, so no compressed
+ *     copy of the batch is ever made.
+ * </p>
+ * <p>
+ *     {@link ZipkinSpanTransportDefaultHttpImpl} streams the compressed payload with {@code Transfer-Encoding: chunked}, and {@link
+ *     ZipkinSpanTransportLoadBalancer} passes the call on to whichever collector it picks.
+ * </p>
+ */
+public interface ZipkinSpanStreamingTransport extends ZipkinSpanTransport {
+
+    /**
+     * Sends the given payload to the Zipkin server gzipped with {@code Content-Encoding: gzip}, blocking until the server has responded.
+     * The same threading rules as {@link #sendSpans(byte[], String, boolean)} apply.
+     *
+     * @param payload The encoded, uncompressed span batch.
+     * @param contentType The media type of the encoded payload, e.g. {@code application/json}.
+     * @param compressor Used to gzip the payload, via {@link ZipkinSpanPayloadCompressor#gzipTo(byte[], java.io.OutputStream)} on the
+     *                   calling thread. The payload may be compressed more than once if the request has to be retried.
+     * @throws IOException if the payload could not be delivered, or the server responded with a non-2xx status.
+     */
+    void sendSpansGzipped(byte[] payload, String contentType, ZipkinSpanPayloadCompressor compressor) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * <p>
+ *     The transport {@link ZipkinSpanSenderDefaultHttpImpl} uses to deliver encoded span batches to the Zipkin server. The sender takes care of
+ *     queueing, batching, encoding, and compression - a transport only has to get the payload bytes to the server and report whether it worked.
+ * </p>
+ * <p>
+ *     {@link ZipkinSpanTransportDefaultHttpImpl} is a no-dependencies HTTP/1.1 implementation with an explicit pool of persistent connections.
+ *     If you need something it doesn't do (e.g. HTTP/2 multiplexing, proxy authentication, or a shared client that the rest of your application already
+ *     uses and monitors) you can implement this interface on top of the HTTP client of your choice and pass it to
+ *     {@link ZipkinSpanSenderDefaultHttpImpl.Builder#withTransport(ZipkinSpanTransport)}.
+ * </p>
+ * <p>
+ *     Implementations must be thread safe - {@link #sendSpans(byte[], String, boolean)} is called concurrently when the sender is allowed more
+ *     than one in-flight batch.
+ * </p>
+ */
+public interface ZipkinSpanTransport extends Closeable {
+
+    /**
+     * Sends the given payload to the Zipkin server, blocking until the server has responded. This is only ever called from the sender's
+     * background threads, never from application threads, so blocking here is expected.
+     *
+     * @param payload The encoded (and possibly compressed) span batch.
+     * @param contentType The media type of the encoded payload, e.g. {@code application/json}.
+     * @param gzipEncoded true if the payload has been gzipped and should be sent with {@code Content-Encoding: gzip}.
+     * @throws IOException if the payload could not be delivered, or the server responded with a non-2xx status.
+     */
+    void sendSpans(byte[] payload, String contentType, boolean gzipEncoded) throws IOException;
+
+    /**
+     * Releases any connections or other resources held by this transport. {@link #sendSpans(byte[], String, boolean)} should not be called
+     * after this.
+     */
+    @Override
+    void close() throws IOException;
+}
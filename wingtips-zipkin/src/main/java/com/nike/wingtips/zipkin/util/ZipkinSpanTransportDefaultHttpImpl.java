@@ -0,0 +1,678 @@
+package com.nike.wingtips.zipkin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * <p>
+ *     A no-dependencies {@link ZipkinSpanTransport} that POSTs span payloads over HTTP/1.1 (or HTTPS) using an explicit pool of persistent
+ *     keep-alive connections. Unlike {@link java.net.HttpURLConnection}, whose keep-alive cache is global, implicit, and can't be sized or
+ *     observed, this pool:
+ * </p>
+ * <ul>
+ *     <li>Never has more than {@code maxConnections} requests in flight. Callers wait up to the connect timeout for a connection to free up.</li>
+ *     <li>
+ *         Reuses the most recently used idle connection first, so a low request rate keeps only a few sockets warm. Connections that have been
+ *         idle longer than {@code maxIdleMillis} are closed instead of being reused.
+ *     </li>
+ *     <li>
+ *         Retries a request once on a brand new connection if a reused connection turns out to have been closed by the server before any of
+ *         the response was read (the usual keep-alive race).
+ *     </li>
+ *     <li>Reports how many connections are open and idle, and how many have been opened in total, so connection churn can be monitored.</li>
+ * </ul>
+ * <p>
+ *     Like {@link java.net.HttpURLConnection}, new connections go through the proxy {@link ProxySelector#getDefault()} picks for the URL (so
+ *     the {@code http.proxyHost}, {@code https.proxyHost}, {@code socksProxyHost} and {@code http.nonProxyHosts} system properties are
+ *     honored), and HTTPS connections use {@link HttpsURLConnection#getDefaultSSLSocketFactory()} and {@link
+ *     HttpsURLConnection#getDefaultHostnameVerifier()}. Requests through an HTTP proxy name the full URL, and HTTPS requests are tunneled with
+ *     {@code CONNECT}. Proxy authentication isn't supported. If a custom default {@link HostnameVerifier} is installed it's asked to verify
+ *     every new HTTPS connection, rather than only the ones whose certificate doesn't match the host name.
+ * </p>
+ * <p>
+ *     Requests use blocking socket I/O on the calling thread. That's only ever one of the sender's dedicated background threads, so it never
+ *     blocks application threads, and the number of sockets scales with the number of in-flight batches rather than with span volume. HTTP/2
+ *     isn't supported - implement {@link ZipkinSpanTransport} on top of a full-featured HTTP client if you need it.
+ * </p>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinSpanTransportDefaultHttpImpl implements ZipkinSpanStreamingTransport {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    protected static final Charset ASCII = Charset.forName("US-ASCII");
+    protected static final byte[] CRLF = "\r\n".getBytes(ASCII);
+    protected static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ASCII);
+    // Response status lines and headers longer than this are treated as a protocol error rather than read into memory.
+    protected static final int MAX_RESPONSE_LINE_LENGTH = 8192;
+
+    protected final URL url;
+    protected final boolean https;
+    protected final String host;
+    protected final int port;
+    protected final String requestTarget;
+    // The request target used for plain HTTP requests sent through an HTTP proxy.
+    protected final String absoluteRequestTarget;
+    protected final String hostHeader;
+    protected final int connectTimeoutMillis;
+    protected final int readTimeoutMillis;
+    protected final int maxConnections;
+    protected final long maxIdleNanos;
+
+    protected final Semaphore connectionPermits;
+    // Used as a stack - most recently returned connection at the end.
+    protected final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    protected final AtomicInteger openConnectionCount = new AtomicInteger(0);
+    protected final AtomicLong totalConnectionsOpened = new AtomicLong(0);
+    protected volatile boolean closed = false;
+
+    /**
+     * @param url The full URL to POST span payloads to, e.g. {@code http://localhost:9411/api/v1/spans}. Must be an http or https URL.
+     * @param connectTimeoutMillis The timeout for opening a new connection, and also the max time to wait for a connection to become
+     *                             available when all {@code maxConnections} are in use.
+     * @param readTimeoutMillis The timeout for reading the response from the server.
+     * @param maxConnections The max number of requests that can be in flight at the same time - must be greater than 0.
+     * @param maxIdleMillis How long a connection can sit idle in the pool before it's closed rather than reused - must not be negative.
+     */
+    public ZipkinSpanTransportDefaultHttpImpl(URL url, int connectTimeoutMillis, int readTimeoutMillis, int maxConnections,
+                                              long maxIdleMillis) {
+        if (url == null)
+            throw new IllegalArgumentException("url cannot be null");
+
+        String protocol = url.getProtocol().toLowerCase();
+        if (!"http".equals(protocol) && !"https".equals(protocol))
+            throw new IllegalArgumentException("url must be an http or https URL. Received: " + url);
+
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("maxConnections must be greater than 0. Received: " + maxConnections);
+
+        if (maxIdleMillis < 0)
+            throw new IllegalArgumentException("maxIdleMillis cannot be negative. Received: " + maxIdleMillis);
+
+        this.url = url;
+        this.https = "https".equals(protocol);
+        this.host = url.getHost();
+        this.port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+        String path = (url.getPath() == null || url.getPath().isEmpty()) ? "/" : url.getPath();
+        this.requestTarget = (url.getQuery() == null) ? path : path + "?" + url.getQuery();
+        this.hostHeader = (url.getPort() == -1) ? host : host + ":" + port;
+        this.absoluteRequestTarget = protocol + "://" + hostHeader + requestTarget;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxConnections = maxConnections;
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.connectionPermits = new Semaphore(maxConnections);
+    }
+
+    /**
+     * Convenience constructor that uses {@link #DEFAULT_MAX_CONNECTIONS} and {@link #DEFAULT_MAX_IDLE_MILLIS}.
+     */
+    public ZipkinSpanTransportDefaultHttpImpl(URL url, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(url, connectTimeoutMillis, readTimeoutMillis, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_IDLE_MILLIS);
+    }
+
+    @Override
+    public void sendSpans(byte[] payload, String contentType, boolean gzipEncoded) throws IOException {
+        send(payload, contentType, gzipEncoded, null);
+    }
+
+    /**
+     * Sends the payload with {@code Transfer-Encoding: chunked}, gzipping it straight into the connection's output stream.
+     */
+    @Override
+    public void sendSpansGzipped(byte[] payload, String contentType, ZipkinSpanPayloadCompressor compressor) throws IOException {
+        send(payload, contentType, true, compressor);
+    }
+
+    /**
+     * @param compressor If not null the payload is uncompressed, and is gzipped with this as the request body is written.
+     */
+    protected void send(byte[] payload, String contentType, boolean gzipEncoded, ZipkinSpanPayloadCompressor compressor)
+        throws IOException {
+        if (closed)
+            throw new IOException("This transport has been closed");
+
+        acquireConnectionPermit();
+        try {
+            PooledConnection connection = takeIdleConnection();
+            if (connection != null) {
+                try {
+                    executeRequest(connection, payload, contentType, gzipEncoded, compressor);
+                    return;
+                }
+                catch (StaleConnectionException ex) {
+                    // The server closed the idle connection before we used it - try again once on a fresh connection.
+                    logger.debug("Pooled connection to Zipkin server was stale, retrying on a new connection. cause=\"{}\"", ex.getMessage());
+                }
+            }
+
+            executeRequest(openConnection(), payload, contentType, gzipEncoded, compressor);
+        }
+        finally {
+            connectionPermits.release();
+        }
+    }
+
+    protected void acquireConnectionPermit() throws IOException {
+        try {
+            if (!connectionPermits.tryAcquire(connectTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException(
+                    "Timed out after " + connectTimeoutMillis + " millis waiting for one of the " + maxConnections
+                    + " connections to the Zipkin server to become available"
+                );
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to the Zipkin server", ex);
+        }
+    }
+
+    /**
+     * @return The most recently used idle connection that hasn't been idle for longer than {@link #maxIdleNanos}, or null if there isn't one.
+     * Expired connections found along the way are closed.
+     */
+    protected PooledConnection takeIdleConnection() {
+        long now = System.nanoTime();
+        PooledConnection connection;
+        while ((connection = idleConnections.pollLast()) != null) {
+            if (now - connection.lastUsedNanos <= maxIdleNanos && !connection.socket.isClosed())
+                return connection;
+
+            closeConnection(connection);
+        }
+        return null;
+    }
+
+    protected PooledConnection openConnection() throws IOException {
+        Proxy proxy = selectProxy();
+        boolean viaHttpProxy = proxy.type() == Proxy.Type.HTTP;
+        Socket socket = createSocket(proxy);
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(readTimeoutMillis);
+            socket.connect(getConnectAddress(proxy), connectTimeoutMillis);
+            if (https) {
+                if (viaHttpProxy)
+                    openTunnel(socket);
+
+                socket = upgradeToTls(socket);
+            }
+        }
+        catch (IOException | RuntimeException ex) {
+            closeQuietly(socket);
+            if (proxy.type() != Proxy.Type.DIRECT && ex instanceof IOException)
+                notifyProxyConnectFailed(proxy, (IOException) ex);
+
+            throw ex;
+        }
+
+        openConnectionCount.incrementAndGet();
+        totalConnectionsOpened.incrementAndGet();
+        // HTTPS requests are tunneled, so only plain HTTP requests need to tell the proxy where they're going.
+        return new PooledConnection(socket, (viaHttpProxy && !https) ? absoluteRequestTarget : requestTarget);
+    }
+
+    /**
+     * @return The first proxy {@link ProxySelector#getDefault()} returns for {@link #url}, or {@link Proxy#NO_PROXY} if there isn't a
+     * default selector or it doesn't return anything.
+     */
+    protected Proxy selectProxy() {
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector == null)
+            return Proxy.NO_PROXY;
+
+        try {
+            List<Proxy> proxies = proxySelector.select(url.toURI());
+            if (proxies != null && !proxies.isEmpty() && proxies.get(0) != null)
+                return proxies.get(0);
+        }
+        catch (URISyntaxException | RuntimeException ex) {
+            logger.debug("Unable to select a proxy for the Zipkin server, connecting directly. url={}, exception_cause=\"{}\"", url, ex.toString());
+        }
+
+        return Proxy.NO_PROXY;
+    }
+
+    protected void notifyProxyConnectFailed(Proxy proxy, IOException cause) {
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector == null)
+            return;
+
+        try {
+            proxySelector.connectFailed(url.toURI(), proxy.address(), cause);
+        }
+        catch (URISyntaxException | RuntimeException ex) {
+            // The selector only uses this as a hint, so there's nothing else to do.
+        }
+    }
+
+    /**
+     * @return A new unconnected socket that goes through the given proxy if it's a SOCKS proxy. HTTP proxies are handled by {@link
+     * #openConnection()} itself. Protected so subclasses can customize socket creation.
+     */
+    protected Socket createSocket(Proxy proxy) throws IOException {
+        return (proxy.type() == Proxy.Type.SOCKS) ? new Socket(proxy) : new Socket();
+    }
+
+    /**
+     * @return The address the socket for the given proxy should connect to - the proxy itself for an HTTP proxy, otherwise the Zipkin server.
+     */
+    protected InetSocketAddress getConnectAddress(Proxy proxy) {
+        if (proxy.type() == Proxy.Type.HTTP) {
+            InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
+            return (proxyAddress.isUnresolved()) ? new InetSocketAddress(proxyAddress.getHostString(), proxyAddress.getPort()) : proxyAddress;
+        }
+
+        // Leave the host unresolved for a SOCKS proxy so the proxy resolves it, like it would for HttpURLConnection.
+        return (proxy.type() == Proxy.Type.SOCKS) ? InetSocketAddress.createUnresolved(host, port) : new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Asks the HTTP proxy the given socket is connected to for a tunnel to the Zipkin server.
+     *
+     * @throws IOException if the proxy doesn't respond with a 2xx status.
+     */
+    protected void openTunnel(Socket socket) throws IOException {
+        String authority = host + ":" + port;
+        OutputStream out = socket.getOutputStream();
+        out.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(ASCII));
+        out.flush();
+
+        // Read straight from the socket rather than through a buffer, so nothing after the proxy's response is consumed before the TLS handshake.
+        InputStream in = socket.getInputStream();
+        String statusLine = readLine(in);
+        int statusCode = parseStatusCode(statusLine);
+        // A successful CONNECT response has no body - the tunnel starts right after the headers.
+        while (!readLine(in).isEmpty()) {
+            // skip
+        }
+
+        if (statusCode < 200 || statusCode > 299)
+            throw new IOException("Proxy refused to open a tunnel to the Zipkin server. status_line=\"" + statusLine + "\"");
+    }
+
+    protected Socket upgradeToTls(Socket plainSocket) throws IOException {
+        SSLSocketFactory sslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HostnameVerifier hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        boolean customHostnameVerifier = !isJdkDefaultHostnameVerifier(hostnameVerifier);
+
+        SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(plainSocket, host, port, true);
+        if (!customHostnameVerifier) {
+            // Raw SSLSockets don't verify the server's hostname unless asked to.
+            SSLParameters sslParameters = sslSocket.getSSLParameters();
+            sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslSocket.setSSLParameters(sslParameters);
+        }
+        sslSocket.startHandshake();
+
+        if (customHostnameVerifier && !hostnameVerifier.verify(host, sslSocket.getSession())) {
+            closeQuietly(sslSocket);
+            throw new SSLPeerUnverifiedException("The default HostnameVerifier rejected the Zipkin server's certificate. host=" + host);
+        }
+
+        return sslSocket;
+    }
+
+    /**
+     * @return true if the given verifier is the one {@link HttpsURLConnection} uses until {@link
+     * HttpsURLConnection#setDefaultHostnameVerifier(HostnameVerifier)} is called, which leaves hostname verification to the TLS handshake.
+     */
+    protected static boolean isJdkDefaultHostnameVerifier(HostnameVerifier hostnameVerifier) {
+        return "javax.net.ssl.HttpsURLConnection$DefaultHostnameVerifier".equals(hostnameVerifier.getClass().getName());
+    }
+
+    /**
+     * Sends the request on the given connection and reads the full response. The connection is returned to the idle pool if the response
+     * allows it to be reused, and closed otherwise.
+     *
+     * @throws StaleConnectionException if the connection was reused and the server closed it before sending any of the response.
+     * @throws IOException for any other failure, including a non-2xx response status.
+     */
+    protected void executeRequest(PooledConnection connection, byte[] payload, String contentType, boolean gzipEncoded,
+                                  ZipkinSpanPayloadCompressor compressor) throws IOException {
+        boolean reusable = false;
+        try {
+            String statusLine;
+            try {
+                writeRequest(connection, payload, contentType, gzipEncoded, compressor);
+                statusLine = readLine(connection.in);
+            }
+            catch (IOException ex) {
+                // A timeout means the server is slow rather than gone, so retrying would only add load.
+                if (connection.requestCount > 0 && !(ex instanceof SocketTimeoutException))
+                    throw new StaleConnectionException(ex);
+
+                throw ex;
+            }
+            connection.requestCount++;
+
+            int statusCode = parseStatusCode(statusLine);
+            // Interim responses (e.g. 100 Continue or 102 Processing) are followed by the final response on the same connection.
+            while (statusCode >= 100 && statusCode < 200 && statusCode != 101) {
+                readResponseHeadersAndBody(connection.in, statusCode);
+                statusLine = readLine(connection.in);
+                statusCode = parseStatusCode(statusLine);
+            }
+
+            // 101 Switching Protocols was never asked for, and nothing after it is HTTP/1.1.
+            reusable = readResponseHeadersAndBody(connection.in, statusCode) && statusCode != 101;
+
+            if (statusCode < 200 || statusCode > 299)
+                throw new IOException("Zipkin server responded with an error. status_line=\"" + statusLine + "\"");
+        }
+        finally {
+            if (reusable && !closed) {
+                connection.lastUsedNanos = System.nanoTime();
+                idleConnections.offerLast(connection);
+            }
+            else {
+                closeConnection(connection);
+            }
+        }
+    }
+
+    protected void writeRequest(PooledConnection connection, byte[] payload, String contentType, boolean gzipEncoded,
+                                ZipkinSpanPayloadCompressor compressor) throws IOException {
+        OutputStream out = connection.out;
+        StringBuilder headers = new StringBuilder(192);
+        headers.append("POST ").append(connection.requestTarget).append(" HTTP/1.1\r\n")
+               .append("Host: ").append(hostHeader).append("\r\n")
+               .append("Content-Type: ").append(contentType).append("\r\n");
+        if (compressor == null)
+            headers.append("Content-Length: ").append(payload.length).append("\r\n");
+        else
+            headers.append("Transfer-Encoding: chunked\r\n");
+        if (gzipEncoded)
+            headers.append("Content-Encoding: gzip\r\n");
+        headers.append("Connection: keep-alive\r\n\r\n");
+
+        out.write(headers.toString().getBytes(ASCII));
+        if (compressor == null) {
+            out.write(payload);
+        }
+        else {
+            ChunkedOutputStream chunkedOut = new ChunkedOutputStream(out);
+            compressor.gzipTo(payload, chunkedOut);
+            chunkedOut.finish();
+        }
+        out.flush();
+    }
+
+    protected int parseStatusCode(String statusLine) throws IOException {
+        // e.g. "HTTP/1.1 202 Accepted"
+        int firstSpace = statusLine.indexOf(' ');
+        if (!statusLine.startsWith("HTTP/") || firstSpace < 0 || statusLine.length() < firstSpace + 4)
+            throw new IOException("Malformed HTTP status line from Zipkin server: \"" + statusLine + "\"");
+
+        try {
+            return Integer.parseInt(statusLine.substring(firstSpace + 1, firstSpace + 4));
+        }
+        catch (NumberFormatException ex) {
+            throw new IOException("Malformed HTTP status line from Zipkin server: \"" + statusLine + "\"", ex);
+        }
+    }
+
+    /**
+     * Reads (and discards) the response headers and body.
+     *
+     * @return true if the response was fully read and the connection can be reused for another request, false otherwise.
+     */
+    protected boolean readResponseHeadersAndBody(InputStream in, int statusCode) throws IOException {
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean connectionClose = false;
+        String header;
+        while (!(header = readLine(in)).isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon <= 0)
+                continue;
+
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                try {
+                    contentLength = Long.parseLong(value);
+                }
+                catch (NumberFormatException ex) {
+                    throw new IOException("Malformed Content-Length header from Zipkin server: \"" + value + "\"", ex);
+                }
+            }
+            else if ("Transfer-Encoding".equalsIgnoreCase(name) && value.toLowerCase().contains("chunked"))
+                chunked = true;
+            else if ("Connection".equalsIgnoreCase(name) && "close".equalsIgnoreCase(value))
+                connectionClose = true;
+        }
+
+        boolean noBody = (statusCode >= 100 && statusCode < 200) || statusCode == 204 || statusCode == 304;
+        if (noBody)
+            return !connectionClose;
+
+        if (chunked) {
+            skipChunkedBody(in);
+            return !connectionClose;
+        }
+
+        if (contentLength >= 0) {
+            skipFully(in, contentLength);
+            return !connectionClose;
+        }
+
+        // No length information - the body runs until the server closes the connection.
+        while (in.read() != -1) {
+            // skip
+        }
+        return false;
+    }
+
+    protected void skipChunkedBody(InputStream in) throws IOException {
+        while (true) {
+            String sizeLine = readLine(in);
+            int extensionStart = sizeLine.indexOf(';');
+            String sizeHex = ((extensionStart >= 0) ? sizeLine.substring(0, extensionStart) : sizeLine).trim();
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(sizeHex, 16);
+            }
+            catch (NumberFormatException ex) {
+                throw new IOException("Malformed chunk size from Zipkin server: \"" + sizeLine + "\"", ex);
+            }
+
+            if (chunkSize == 0) {
+                // Skip any trailers up to the final blank line.
+                while (!readLine(in).isEmpty()) {
+                    // skip
+                }
+                return;
+            }
+
+            skipFully(in, chunkSize);
+            readLine(in);
+        }
+    }
+
+    protected void skipFully(InputStream in, long numBytes) throws IOException {
+        long remaining = numBytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() == -1)
+                    throw new EOFException("Zipkin server closed the connection before sending the full response body");
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * @return The next CRLF (or bare LF) terminated line from the given stream, without the line terminator.
+     * @throws EOFException if the stream ends before the line does.
+     */
+    protected String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1)
+                throw new EOFException("Zipkin server closed the connection before sending a full response");
+
+            if (line.length() >= MAX_RESPONSE_LINE_LENGTH)
+                throw new IOException("Response line from Zipkin server exceeded " + MAX_RESPONSE_LINE_LENGTH + " characters");
+
+            if (b != '\r')
+                line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    protected void closeConnection(PooledConnection connection) {
+        if (connection.closed)
+            return;
+
+        connection.closed = true;
+        openConnectionCount.decrementAndGet();
+        closeQuietly(connection.socket);
+    }
+
+    protected void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException ex) {
+            // Nothing useful to do - the socket is being discarded anyway.
+        }
+    }
+
+    /**
+     * @return The number of connections to the Zipkin server that are currently open, whether in use or idle.
+     */
+    public int getOpenConnectionCount() {
+        return openConnectionCount.get();
+    }
+
+    /**
+     * @return The number of open connections currently sitting in the pool waiting to be reused.
+     */
+    public int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return The total number of connections this transport has opened. If this keeps climbing at a steady request rate then connections
+     * aren't being reused (e.g. the server or a load balancer is closing them).
+     */
+    public long getTotalConnectionsOpened() {
+        return totalConnectionsOpened.get();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Closes all idle connections. Connections that are in use when this is called are closed as soon as their request finishes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idleConnections.pollLast()) != null) {
+            closeConnection(connection);
+        }
+    }
+
+    /**
+     * A persistent connection to the Zipkin server (possibly through a proxy), along with its buffered streams.
+     */
+    protected static class PooledConnection {
+        protected final Socket socket;
+        // The request target to put in the request line - absolute when the connection is to an HTTP proxy.
+        protected final String requestTarget;
+        protected final InputStream in;
+        protected final OutputStream out;
+        protected int requestCount = 0;
+        protected volatile long lastUsedNanos = System.nanoTime();
+        protected volatile boolean closed = false;
+
+        protected PooledConnection(Socket socket, String requestTarget) throws IOException {
+            this.socket = socket;
+            this.requestTarget = requestTarget;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+    }
+
+    /**
+     * Thrown when a reused connection turns out to have been closed by the server before the request could be sent and answered.
+     */
+    /**
+     * Writes each {@code write(...)} call as one chunk of a {@code Transfer-Encoding: chunked} body. {@link #finish()} writes the last
+     * chunk, and leaves the underlying stream open for the next request on the connection.
+     */
+    protected static class ChunkedOutputStream extends FilterOutputStream {
+        protected ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+
+            out.write((Integer.toHexString(len) + "\r\n").getBytes(ASCII));
+            out.write(b, off, len);
+            out.write(CRLF);
+        }
+
+        public void finish() throws IOException {
+            out.write(LAST_CHUNK);
+        }
+    }
+
+    protected static class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        protected StaleConnectionException(IOException cause) {
+            super(cause.toString(), cause);
+        }
+    }
+}
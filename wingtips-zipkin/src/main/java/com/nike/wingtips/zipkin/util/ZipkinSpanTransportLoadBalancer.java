@@ -0,0 +1,267 @@
+package com.nike.wingtips.zipkin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     A {@link ZipkinSpanTransport} that spreads span batches across several Zipkin collectors, each reached through its own delegate
+ *     transport (usually a {@link ZipkinSpanTransportDefaultHttpImpl} per collector, so each one gets its own connection pool). {@link
+ *     ZipkinSpanSenderDefaultHttpImpl} uses one automatically when it's given more than one base URL - see {@link
+ *     ZipkinSpanSenderDefaultHttpImpl#newBuilder(List)}.
+ * </p>
+ * <p>
+ *     Each batch goes to one collector, chosen by the {@link Strategy}. If that collector fails the batch is immediately tried on the next
+ *     one, so a single bad collector doesn't cost the sender a retry (or a step towards opening its circuit breaker). {@link
+ *     #sendSpans(byte[], String, boolean)} only throws once every available collector has failed the batch.
+ * </p>
+ * <p>
+ *     Every collector has its own {@link CircuitBreaker}. A collector that fails {@code ejectionFailureThreshold} times in a row is ejected,
+ *     and gets no batches for {@code ejectionMillis}. After that a single batch is sent to it as a probe (falling back to another collector if
+ *     the probe fails, so nothing is lost). A successful probe puts the collector back into rotation, and a failed one ejects it again.
+ * </p>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinSpanTransportLoadBalancer implements ZipkinSpanStreamingTransport {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public static final Strategy DEFAULT_STRATEGY = Strategy.ROUND_ROBIN;
+    public static final int DEFAULT_EJECTION_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_EJECTION_MILLIS = 30000;
+
+    public enum Strategy {
+        /**
+         * Each batch goes to the next collector in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Each batch goes to the collector with the fewest batches in flight, which steers traffic away from slow collectors when the sender
+         * has more than one in-flight batch.
+         */
+        LEAST_OUTSTANDING
+    }
+
+    protected final List<Collector> collectors;
+    protected final Strategy strategy;
+    protected final AtomicInteger nextIndex = new AtomicInteger(0);
+
+    /**
+     * @param delegates The transports for the individual collectors - must not be null or empty, or contain nulls.
+     * @param strategy How to choose the collector for each batch - must not be null.
+     * @param ejectionFailureThreshold The number of consecutive failures that ejects a collector - must be greater than 0.
+     * @param ejectionMillis How long an ejected collector is left out before it's probed again - must be greater than 0.
+     */
+    public ZipkinSpanTransportLoadBalancer(List<? extends ZipkinSpanTransport> delegates, Strategy strategy, int ejectionFailureThreshold,
+                                           long ejectionMillis) {
+        if (delegates == null || delegates.isEmpty())
+            throw new IllegalArgumentException("delegates cannot be null or empty");
+
+        if (strategy == null)
+            throw new IllegalArgumentException("strategy cannot be null");
+
+        List<Collector> collectors = new ArrayList<>(delegates.size());
+        for (ZipkinSpanTransport delegate : delegates) {
+            if (delegate == null)
+                throw new IllegalArgumentException("delegates cannot contain null");
+
+            collectors.add(new Collector(delegate, createCircuitBreaker(ejectionFailureThreshold, ejectionMillis)));
+        }
+
+        this.collectors = Collections.unmodifiableList(collectors);
+        this.strategy = strategy;
+    }
+
+    /**
+     * Convenience constructor that uses {@link #DEFAULT_STRATEGY}, {@link #DEFAULT_EJECTION_FAILURE_THRESHOLD}, and {@link
+     * #DEFAULT_EJECTION_MILLIS}.
+     */
+    public ZipkinSpanTransportLoadBalancer(List<? extends ZipkinSpanTransport> delegates) {
+        this(delegates, DEFAULT_STRATEGY, DEFAULT_EJECTION_FAILURE_THRESHOLD, DEFAULT_EJECTION_MILLIS);
+    }
+
+    /**
+     * @return The circuit breaker that decides when the given collector is ejected. Protected so tests can supply their own clock.
+     */
+    protected CircuitBreaker createCircuitBreaker(int ejectionFailureThreshold, long ejectionMillis) {
+        return new CircuitBreaker(ejectionFailureThreshold, ejectionMillis);
+    }
+
+    @Override
+    public void sendSpans(byte[] payload, String contentType, boolean gzipEncoded) throws IOException {
+        send(payload, contentType, gzipEncoded, null);
+    }
+
+    /**
+     * Collectors whose transport isn't a {@link ZipkinSpanStreamingTransport} are sent a copy gzipped with {@link
+     * ZipkinSpanPayloadCompressor#gzip(byte[])}.
+     */
+    @Override
+    public void sendSpansGzipped(byte[] payload, String contentType, ZipkinSpanPayloadCompressor compressor) throws IOException {
+        send(payload, contentType, true, compressor);
+    }
+
+    /**
+     * @param compressor If not null the payload is uncompressed, and each collector it's sent to gzips it with this.
+     */
+    protected void send(byte[] payload, String contentType, boolean gzipEncoded, ZipkinSpanPayloadCompressor compressor)
+        throws IOException {
+        boolean[] tried = new boolean[collectors.size()];
+        IOException lastFailure = null;
+        Collector collector;
+        while ((collector = chooseCollector(tried)) != null) {
+            collector.outstandingRequests.incrementAndGet();
+            try {
+                if (compressor == null)
+                    collector.delegate.sendSpans(payload, contentType, gzipEncoded);
+                else if (collector.delegate instanceof ZipkinSpanStreamingTransport)
+                    ((ZipkinSpanStreamingTransport) collector.delegate).sendSpansGzipped(payload, contentType, compressor);
+                else
+                    collector.delegate.sendSpans(compressor.gzip(payload), contentType, true);
+                collector.circuitBreaker.recordSuccess();
+                return;
+            }
+            catch (IOException ex) {
+                collector.circuitBreaker.recordFailure();
+                logger.debug("Zipkin collector failed to accept a batch - trying the next one.", ex);
+                lastFailure = ex;
+            }
+            finally {
+                collector.outstandingRequests.decrementAndGet();
+            }
+        }
+
+        if (lastFailure != null)
+            throw lastFailure;
+
+        throw new IOException("All " + collectors.size() + " Zipkin collectors are currently ejected.");
+    }
+
+    /**
+     * @param tried Which collectors have already been tried for the current batch. The chosen collector is marked as tried.
+     * @return The collector to send the current batch to next, or null if every collector has either been tried or is ejected. If the returned
+     * collector is ejected this batch is its probe, and the outcome must be reported to its circuit breaker.
+     */
+    protected Collector chooseCollector(boolean[] tried) {
+        int numCollectors = collectors.size();
+        int start = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % numCollectors;
+
+        if (strategy == Strategy.LEAST_OUTSTANDING) {
+            // Probes of ejected collectors go first so they're never starved by the healthy ones.
+            int chosen = -1;
+            int fewestOutstanding = Integer.MAX_VALUE;
+            for (int i = 0; i < numCollectors; i++) {
+                int index = (start + i) % numCollectors;
+                if (tried[index])
+                    continue;
+
+                Collector collector = collectors.get(index);
+                if (collector.circuitBreaker.isOpen()) {
+                    if (collector.circuitBreaker.allowRequest())
+                        return markTried(tried, index);
+
+                    continue;
+                }
+
+                int outstanding = collector.outstandingRequests.get();
+                if (outstanding < fewestOutstanding) {
+                    chosen = index;
+                    fewestOutstanding = outstanding;
+                }
+            }
+            return (chosen >= 0) ? markTried(tried, chosen) : null;
+        }
+
+        for (int i = 0; i < numCollectors; i++) {
+            int index = (start + i) % numCollectors;
+            if (!tried[index] && collectors.get(index).circuitBreaker.allowRequest())
+                return markTried(tried, index);
+        }
+        return null;
+    }
+
+    protected Collector markTried(boolean[] tried, int index) {
+        tried[index] = true;
+        return collectors.get(index);
+    }
+
+    /**
+     * Closes every delegate transport, even if closing one of them fails.
+     *
+     * @throws IOException the first failure, if closing any of the delegates failed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException firstFailure = null;
+        for (Collector collector : collectors) {
+            try {
+                collector.delegate.close();
+            }
+            catch (IOException ex) {
+                if (firstFailure == null)
+                    firstFailure = ex;
+            }
+        }
+
+        if (firstFailure != null)
+            throw firstFailure;
+    }
+
+    public List<Collector> getCollectors() {
+        return collectors;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return The number of collectors that aren't currently ejected.
+     */
+    public int getHealthyCollectorCount() {
+        int healthy = 0;
+        for (Collector collector : collectors) {
+            if (!collector.circuitBreaker.isOpen())
+                healthy++;
+        }
+        return healthy;
+    }
+
+    /**
+     * A single collector and its health.
+     */
+    public static class Collector {
+        protected final ZipkinSpanTransport delegate;
+        protected final CircuitBreaker circuitBreaker;
+        protected final AtomicInteger outstandingRequests = new AtomicInteger(0);
+
+        protected Collector(ZipkinSpanTransport delegate, CircuitBreaker circuitBreaker) {
+            this.delegate = delegate;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        public ZipkinSpanTransport getDelegate() {
+            return delegate;
+        }
+
+        /**
+         * @return true if this collector has been ejected (including while its probe is in flight).
+         */
+        public boolean isEjected() {
+            return circuitBreaker.isOpen();
+        }
+
+        /**
+         * @return The number of batches currently being sent to this collector.
+         */
+        public int getOutstandingRequests() {
+            return outstandingRequests.get();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.util.Arrays;
+
+/**
+ * A minimal growable byte buffer used by the span encoders. Everything is written straight to UTF-8 bytes, so encoding a batch doesn't build
+ * an intermediate {@code String} per span.
+ *
+ * <p>A buffer created with {@link #counting()} doesn't store anything - it only counts how many bytes would have been written, which lets the
+ * encoders work out a span's exact encoded size by running the same code that writes it.
+ */
+final class ZipkinSpanWriteBuffer {
+
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    // Null when only counting.
+    private byte[] bytes;
+    private int position;
+
+    private ZipkinSpanWriteBuffer(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    static ZipkinSpanWriteBuffer withInitialCapacity(int initialCapacity) {
+        return new ZipkinSpanWriteBuffer(new byte[Math.max(initialCapacity, 16)]);
+    }
+
+    static ZipkinSpanWriteBuffer counting() {
+        return new ZipkinSpanWriteBuffer(null);
+    }
+
+    int size() {
+        return position;
+    }
+
+    /**
+     * @return The bytes written so far, in an array of exactly that size.
+     */
+    byte[] toByteArray() {
+        return (bytes.length == position) ? bytes : Arrays.copyOf(bytes, position);
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (bytes != null && position + additionalBytes > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + additionalBytes));
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        if (bytes != null)
+            bytes[position] = (byte) b;
+        position++;
+    }
+
+    void writeBytes(byte[] value) {
+        ensureCapacity(value.length);
+        if (bytes != null)
+            System.arraycopy(value, 0, bytes, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * Writes the given string, which must only contain ASCII characters (e.g. a JSON field name).
+     */
+    void writeAscii(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        if (bytes != null) {
+            for (int i = 0; i < length; i++) {
+                bytes[position + i] = (byte) value.charAt(i);
+            }
+        }
+        position += length;
+    }
+
+    /**
+     * Writes the given string as UTF-8. Unpaired surrogates are written as {@code ?}, like {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    void writeUtf8(String value) {
+        writeUtf8(value, false);
+    }
+
+    /**
+     * Writes the given string as UTF-8 with the characters that aren't allowed in a JSON string escaped. The surrounding quotes aren't
+     * written.
+     */
+    void writeJsonEscaped(String value) {
+        writeUtf8(value, true);
+    }
+
+    private void writeUtf8(String value, boolean jsonEscape) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (jsonEscape && (c < 0x20 || c == '"' || c == '\\'))
+                    writeJsonEscape(c);
+                else
+                    writeByte(c);
+            }
+            else if (c < 0x800) {
+                writeByte(0xc0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xf0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) {
+                writeByte('?');
+            }
+            else {
+                writeByte(0xe0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3f));
+                writeByte(0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void writeJsonEscape(char c) {
+        writeByte('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                writeByte(c);
+                break;
+            case '\n':
+                writeByte('n');
+                break;
+            case '\r':
+                writeByte('r');
+                break;
+            case '\t':
+                writeByte('t');
+                break;
+            default:
+                writeAscii("u00");
+                writeByte(HEX_DIGITS[c >> 4]);
+                writeByte(HEX_DIGITS[c & 0xf]);
+        }
+    }
+
+    /**
+     * Writes the given value as 16 lower-case hex characters.
+     */
+    void writeLowerHex(long value) {
+        ensureCapacity(16);
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            if (bytes != null)
+                bytes[position] = HEX_DIGITS[(int) ((value >>> shift) & 0xf)];
+            position++;
+        }
+    }
+
+    void writeDecimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+
+        int digits = decimalDigits(value);
+        ensureCapacity(digits);
+        if (bytes != null) {
+            for (int i = position + digits - 1; i >= position; i--) {
+                bytes[i] = (byte) ('0' + (value % 10));
+                value /= 10;
+            }
+        }
+        position += digits;
+    }
+
+    void writeVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    void writeFixed64LittleEndian(long value) {
+        for (int i = 0; i < 8; i++) {
+            writeByte((int) (value >>> (i * 8)));
+        }
+    }
+
+    void writeLongBigEndian(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    static int decimalDigits(long nonNegativeValue) {
+        int digits = 1;
+        while (nonNegativeValue >= 10) {
+            nonNegativeValue /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of bytes {@link #writeUtf8(String)} writes for the given string.
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80)
+                utf8Length++;
+            else if (c < 0x800)
+                utf8Length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c))
+                utf8Length++;
+            else
+                utf8Length += 3;
+        }
+        return utf8Length;
+    }
+}
@@ -0,0 +1,188 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+
+import zipkin.Annotation;
+import zipkin.Endpoint;
+
+/**
+ * Writes spans in the Zipkin v2 JSON format accepted by the {@code /api/v2/spans} endpoint. See {@link ZipkinSpanEncoding#JSON_V2}.
+ *
+ * <p>Compared to the v1 format each endpoint is written once rather than on every annotation, and the core annotations are replaced by a
+ * {@code kind}, which makes a typical Wingtips span less than half the size.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinV2JsonSpanEncoder {
+
+    private ZipkinV2JsonSpanEncoder() {
+        // Do nothing
+    }
+
+    /**
+     * @return The exact size of the given span in v2 JSON, not counting the brackets and comma that separate spans in a list.
+     */
+    public static int sizeInBytes(zipkin.Span span) {
+        ZipkinSpanWriteBuffer counter = ZipkinSpanWriteBuffer.counting();
+        writeSpan(ZipkinV2Span.fromV1(span), counter);
+        return counter.size();
+    }
+
+    /**
+     * @return The given spans as a v2 JSON list.
+     */
+    public static byte[] encodeSpans(List<zipkin.Span> spans) {
+        // 300 bytes is about the size of a typical Wingtips span in v2 JSON, so most batches won't need to grow the buffer.
+        ZipkinSpanWriteBuffer buffer = ZipkinSpanWriteBuffer.withInitialCapacity(2 + spans.size() * 300);
+        buffer.writeByte('[');
+        for (int i = 0; i < spans.size(); i++) {
+            if (i > 0)
+                buffer.writeByte(',');
+            writeSpan(ZipkinV2Span.fromV1(spans.get(i)), buffer);
+        }
+        buffer.writeByte(']');
+        return buffer.toByteArray();
+    }
+
+    static void writeSpan(ZipkinV2Span span, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeAscii("{\"traceId\":\"");
+        if (span.traceIdHigh != 0)
+            buffer.writeLowerHex(span.traceIdHigh);
+        buffer.writeLowerHex(span.traceId);
+        buffer.writeByte('"');
+
+        if (span.parentId != null && span.parentId != 0) {
+            buffer.writeAscii(",\"parentId\":\"");
+            buffer.writeLowerHex(span.parentId);
+            buffer.writeByte('"');
+        }
+
+        buffer.writeAscii(",\"id\":\"");
+        buffer.writeLowerHex(span.id);
+        buffer.writeByte('"');
+
+        if (span.kind != null) {
+            buffer.writeAscii(",\"kind\":\"");
+            buffer.writeAscii(span.kind.name());
+            buffer.writeByte('"');
+        }
+
+        if (span.name != null && !span.name.isEmpty()) {
+            buffer.writeAscii(",\"name\":\"");
+            buffer.writeJsonEscaped(span.name);
+            buffer.writeByte('"');
+        }
+
+        if (span.timestamp != null && span.timestamp != 0) {
+            buffer.writeAscii(",\"timestamp\":");
+            buffer.writeDecimal(span.timestamp);
+        }
+
+        if (span.duration != null && span.duration != 0) {
+            buffer.writeAscii(",\"duration\":");
+            buffer.writeDecimal(span.duration);
+        }
+
+        if (span.localEndpoint != null) {
+            buffer.writeAscii(",\"localEndpoint\":");
+            writeEndpoint(span.localEndpoint, buffer);
+        }
+
+        if (span.remoteEndpoint != null) {
+            buffer.writeAscii(",\"remoteEndpoint\":");
+            writeEndpoint(span.remoteEndpoint, buffer);
+        }
+
+        if (!span.annotations.isEmpty()) {
+            buffer.writeAscii(",\"annotations\":[");
+            for (int i = 0; i < span.annotations.size(); i++) {
+                Annotation annotation = span.annotations.get(i);
+                if (i > 0)
+                    buffer.writeByte(',');
+                buffer.writeAscii("{\"timestamp\":");
+                buffer.writeDecimal(annotation.timestamp);
+                buffer.writeAscii(",\"value\":\"");
+                buffer.writeJsonEscaped(annotation.value);
+                buffer.writeAscii("\"}");
+            }
+            buffer.writeByte(']');
+        }
+
+        if (!span.tags.isEmpty()) {
+            buffer.writeAscii(",\"tags\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> tag : span.tags.entrySet()) {
+                if (!first)
+                    buffer.writeByte(',');
+                first = false;
+                buffer.writeByte('"');
+                buffer.writeJsonEscaped(tag.getKey());
+                buffer.writeAscii("\":\"");
+                buffer.writeJsonEscaped(tag.getValue());
+                buffer.writeByte('"');
+            }
+            buffer.writeByte('}');
+        }
+
+        if (span.debug)
+            buffer.writeAscii(",\"debug\":true");
+
+        if (span.shared)
+            buffer.writeAscii(",\"shared\":true");
+
+        buffer.writeByte('}');
+    }
+
+    static void writeEndpoint(Endpoint endpoint, ZipkinSpanWriteBuffer buffer) {
+        buffer.writeByte('{');
+        boolean empty = true;
+        if (endpoint.serviceName != null && !endpoint.serviceName.isEmpty()) {
+            buffer.writeAscii("\"serviceName\":\"");
+            buffer.writeJsonEscaped(endpoint.serviceName);
+            buffer.writeByte('"');
+            empty = false;
+        }
+
+        if (endpoint.ipv4 != 0) {
+            buffer.writeAscii(empty ? "\"ipv4\":\"" : ",\"ipv4\":\"");
+            buffer.writeDecimal((endpoint.ipv4 >> 24) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal((endpoint.ipv4 >> 16) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal((endpoint.ipv4 >> 8) & 0xff);
+            buffer.writeByte('.');
+            buffer.writeDecimal(endpoint.ipv4 & 0xff);
+            buffer.writeByte('"');
+            empty = false;
+        }
+
+        String ipv6 = ipv6String(endpoint.ipv6);
+        if (ipv6 != null) {
+            buffer.writeAscii(empty ? "\"ipv6\":\"" : ",\"ipv6\":\"");
+            buffer.writeAscii(ipv6);
+            buffer.writeByte('"');
+            empty = false;
+        }
+
+        if (endpoint.port != null && endpoint.port != 0) {
+            buffer.writeAscii(empty ? "\"port\":" : ",\"port\":");
+            buffer.writeDecimal(endpoint.port & 0xffff);
+        }
+        buffer.writeByte('}');
+    }
+
+    protected static String ipv6String(byte[] ipv6) {
+        if (ipv6 == null || ipv6.length != 16)
+            return null;
+
+        try {
+            return InetAddress.getByAddress(ipv6).getHostAddress();
+        }
+        catch (UnknownHostException ex) {
+            // Can't happen - the address is the right length.
+            return null;
+        }
+    }
+}
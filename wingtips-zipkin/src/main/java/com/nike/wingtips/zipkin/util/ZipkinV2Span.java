@@ -0,0 +1,205 @@
+package com.nike.wingtips.zipkin.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import zipkin.Annotation;
+import zipkin.BinaryAnnotation;
+import zipkin.Constants;
+import zipkin.Endpoint;
+
+/**
+ * A view of a (v1 model) {@link zipkin.Span} in the Zipkin v2 span model, which is what the {@link ZipkinSpanEncoding#JSON_V2} and {@link
+ * ZipkinSpanEncoding#PROTO3} encodings write. The zipkin library this module depends on predates the v2 model, so this does the conversion
+ * itself, following the same rules as Zipkin's own v1 to v2 converter:
+ *
+ * <ul>
+ *     <li>The core annotations ({@code sr}/{@code ss}, {@code cs}/{@code cr}, {@code ms}, {@code mr}) become the span's {@link Kind}, and
+ *     the endpoint they were logged with becomes the single {@code localEndpoint} instead of being repeated on every annotation.</li>
+ *     <li>Address binary annotations ({@code ca}, {@code sa}, {@code ma}) become the {@code remoteEndpoint}.</li>
+ *     <li>Other binary annotations become string tags, and other annotations are kept as (timestamp, value) pairs.</li>
+ *     <li>A server span without its own timestamp (i.e. one that shares its span ID with the client) is marked {@code shared}, and its
+ *     timestamp and duration are taken from its {@code sr} and {@code ss} annotations.</li>
+ * </ul>
+ *
+ * <p>A v1 span holding both client and server annotations would be split into two spans by Zipkin's converter. Wingtips never creates
+ * spans like that, so here the first core annotation wins and the other side's core annotations are dropped.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ZipkinV2Span {
+
+    public enum Kind {
+        CLIENT(1), SERVER(2), PRODUCER(3), CONSUMER(4);
+
+        /**
+         * The value of this kind in the proto3 {@code Span.Kind} enum.
+         */
+        public final int protoValue;
+
+        Kind(int protoValue) {
+            this.protoValue = protoValue;
+        }
+    }
+
+    public final long traceIdHigh;
+    public final long traceId;
+    public final Long parentId;
+    public final long id;
+    public final Kind kind;
+    public final String name;
+    public final Long timestamp;
+    public final Long duration;
+    public final Endpoint localEndpoint;
+    public final Endpoint remoteEndpoint;
+    public final List<Annotation> annotations;
+    public final Map<String, String> tags;
+    public final boolean debug;
+    public final boolean shared;
+
+    protected ZipkinV2Span(long traceIdHigh, long traceId, Long parentId, long id, Kind kind, String name, Long timestamp, Long duration,
+                           Endpoint localEndpoint, Endpoint remoteEndpoint, List<Annotation> annotations, Map<String, String> tags,
+                           boolean debug, boolean shared) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceId = traceId;
+        this.parentId = parentId;
+        this.id = id;
+        this.kind = kind;
+        this.name = name;
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.localEndpoint = localEndpoint;
+        this.remoteEndpoint = remoteEndpoint;
+        this.annotations = annotations;
+        this.tags = tags;
+        this.debug = debug;
+        this.shared = shared;
+    }
+
+    /**
+     * @return The v2 model view of the given v1 model span.
+     */
+    public static ZipkinV2Span fromV1(zipkin.Span span) {
+        Kind kind = null;
+        Endpoint localEndpoint = null;
+        Long startFromAnnotation = null;
+        Long endFromAnnotation = null;
+        List<Annotation> otherAnnotations = Collections.emptyList();
+
+        for (Annotation annotation : span.annotations) {
+            Kind annotationKind = coreAnnotationKind(annotation.value);
+            if (annotationKind == null) {
+                if (otherAnnotations.isEmpty())
+                    otherAnnotations = new ArrayList<>(span.annotations.size());
+                otherAnnotations.add(annotation);
+
+                if (localEndpoint == null)
+                    localEndpoint = annotation.endpoint;
+                continue;
+            }
+
+            if (kind != null && kind != annotationKind)
+                continue;
+
+            kind = annotationKind;
+            // The core annotations are always logged by the local service, so their endpoint beats any other.
+            if (annotation.endpoint != null)
+                localEndpoint = annotation.endpoint;
+
+            if (isStartAnnotation(annotation.value))
+                startFromAnnotation = annotation.timestamp;
+            else
+                endFromAnnotation = annotation.timestamp;
+        }
+
+        Endpoint remoteEndpoint = null;
+        Map<String, String> tags = Collections.emptyMap();
+        for (BinaryAnnotation binaryAnnotation : span.binaryAnnotations) {
+            if (binaryAnnotation.type == BinaryAnnotation.Type.BOOL && isAddressAnnotation(binaryAnnotation.key)) {
+                remoteEndpoint = binaryAnnotation.endpoint;
+                continue;
+            }
+
+            String tagValue = tagValue(binaryAnnotation);
+            if (tagValue == null)
+                continue;
+
+            if (tags.isEmpty())
+                tags = new LinkedHashMap<>();
+            tags.put(binaryAnnotation.key, tagValue);
+
+            if (localEndpoint == null)
+                localEndpoint = binaryAnnotation.endpoint;
+        }
+
+        Long timestamp = span.timestamp;
+        Long duration = span.duration;
+        boolean shared = false;
+        if (kind == Kind.SERVER && timestamp == null) {
+            shared = true;
+            timestamp = startFromAnnotation;
+            if (startFromAnnotation != null && endFromAnnotation != null)
+                duration = endFromAnnotation - startFromAnnotation;
+        }
+
+        return new ZipkinV2Span(
+            span.traceIdHigh, span.traceId, span.parentId, span.id, kind, span.name, timestamp, duration, localEndpoint, remoteEndpoint,
+            otherAnnotations, tags, Boolean.TRUE.equals(span.debug), shared
+        );
+    }
+
+    protected static Kind coreAnnotationKind(String value) {
+        if (value.length() != 2)
+            return null;
+
+        switch (value) {
+            case Constants.SERVER_RECV:
+            case Constants.SERVER_SEND:
+                return Kind.SERVER;
+            case Constants.CLIENT_SEND:
+            case Constants.CLIENT_RECV:
+                return Kind.CLIENT;
+            case "ms":
+                return Kind.PRODUCER;
+            case "mr":
+                return Kind.CONSUMER;
+            default:
+                return null;
+        }
+    }
+
+    protected static boolean isStartAnnotation(String value) {
+        return Constants.SERVER_RECV.equals(value) || Constants.CLIENT_SEND.equals(value) || "ms".equals(value) || "mr".equals(value);
+    }
+
+    protected static boolean isAddressAnnotation(String key) {
+        return Constants.CLIENT_ADDR.equals(key) || Constants.SERVER_ADDR.equals(key) || "ma".equals(key);
+    }
+
+    /**
+     * @return The given binary annotation's value as a v2 tag value, or null if it can't be represented as one (i.e. it's {@code BYTES}).
+     */
+    protected static String tagValue(BinaryAnnotation binaryAnnotation) {
+        byte[] value = binaryAnnotation.value;
+        switch (binaryAnnotation.type) {
+            case STRING:
+                return new String(value, StandardCharsets.UTF_8);
+            case BOOL:
+                return (value.length == 1 && value[0] == 1) ? "true" : "false";
+            case I16:
+                return String.valueOf(ByteBuffer.wrap(value).getShort());
+            case I32:
+                return String.valueOf(ByteBuffer.wrap(value).getInt());
+            case I64:
+                return String.valueOf(ByteBuffer.wrap(value).getLong());
+            case DOUBLE:
+                return String.valueOf(ByteBuffer.wrap(value).getDouble());
+            default:
+                return null;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.nike.wingtips.zipkin;
 import com.nike.wingtips.Span;
 import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanConverter;
 import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanConverterDefaultImpl;
+import com.nike.wingtips.zipkin.util.WingtipsToZipkinSpanWireEncoder;
+import com.nike.wingtips.zipkin.util.ZipkinSpanEncoding;
 import com.nike.wingtips.zipkin.util.ZipkinSpanSender;
 import com.nike.wingtips.zipkin.util.ZipkinSpanSenderDefaultHttpImpl;
 
@@ -27,6 +29,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -87,6 +90,64 @@ public class WingtipsToZipkinLifecycleListenerTest {
         assertThat(Whitebox.getInternalState(spanSender, "postZipkinSpansUrl")).isEqualTo(new URL(baseUrl + "/api/v1/spans"));
     }
 
+    @Test
+    public void wingtips_span_sender_constructor_sets_fields_from_sender() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl wingtipsSpanSender = ZipkinSpanSenderDefaultHttpImpl
+            .newBuilder("http://localhost:4242")
+            .withBatchSendingPeriodMillis(0)
+            .withWingtipsSpanEncoding(serviceName, localComponentNamespace)
+            .build();
+
+        // when
+        WingtipsToZipkinLifecycleListener listener = new WingtipsToZipkinLifecycleListener(wingtipsSpanSender);
+
+        // then
+        assertThat(listener.serviceName).isEqualTo(serviceName);
+        assertThat(listener.zipkinEndpoint.serviceName).isEqualTo(serviceName);
+        assertThat(listener.localComponentNamespace).isEqualTo(localComponentNamespace);
+        assertThat(listener.zipkinSpanConverter).isNull();
+        assertThat(listener.zipkinSpanSender).isSameAs(wingtipsSpanSender);
+        assertThat(listener.wingtipsSpanSender).isSameAs(wingtipsSpanSender);
+    }
+
+    @Test
+    public void wingtips_span_sender_constructor_throws_IllegalArgumentException_if_sender_does_not_accept_wingtips_spans() {
+        // given
+        final ZipkinSpanSenderDefaultHttpImpl senderMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(false).when(senderMock).isWingtipsSpanEncodingEnabled();
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                new WingtipsToZipkinLifecycleListener(senderMock);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void spanCompleted_passes_wingtips_span_to_wingtips_span_sender_without_converting_it() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(true).when(senderMock).isWingtipsSpanEncodingEnabled();
+        doReturn(new WingtipsToZipkinSpanWireEncoder(
+            ZipkinSpanEncoding.JSON_V1, Endpoint.builder().serviceName(serviceName).build(), localComponentNamespace
+        )).when(senderMock).getWingtipsSpanEncoder();
+        WingtipsToZipkinLifecycleListener listener = new WingtipsToZipkinLifecycleListener(senderMock);
+
+        // when
+        listener.spanCompleted(spanMock);
+
+        // then
+        verify(senderMock).handleWingtipsSpan(spanMock);
+        verify(senderMock, never()).handleSpan(any(zipkin.Span.class));
+        verifyZeroInteractions(spanMock);
+    }
+
     @Test
     public void spanStarted_does_nothing() {
         // when
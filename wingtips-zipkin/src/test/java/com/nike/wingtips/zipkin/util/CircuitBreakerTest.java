@@ -0,0 +1,188 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.zipkin.util.CircuitBreaker.State;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link CircuitBreaker}.
+ */
+@RunWith(DataProviderRunner.class)
+public class CircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MILLIS = 1000;
+
+    private CircuitBreakerForTesting circuitBreaker;
+
+    private static class CircuitBreakerForTesting extends CircuitBreaker {
+        public long nowNanos = 42;
+
+        CircuitBreakerForTesting(int failureThreshold, long openDurationMillis) {
+            super(failureThreshold, openDurationMillis);
+        }
+
+        @Override
+        protected long currentTimeNanos() {
+            return nowNanos;
+        }
+
+        void advanceMillis(long millis) {
+            nowNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    @Before
+    public void beforeMethod() {
+        circuitBreaker = new CircuitBreakerForTesting(3, OPEN_DURATION_MILLIS);
+    }
+
+    @DataProvider(value = {
+        "0  |   1000",
+        "-1 |   1000",
+        "3  |   0",
+        "3  |   -1"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_options(final int failureThreshold, final long openDurationMillis) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                new CircuitBreaker(failureThreshold, openDurationMillis);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void new_circuit_breaker_is_closed_and_allows_requests() {
+        // expect
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.isOpen()).isFalse();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.getFailureThreshold()).isEqualTo(3);
+        assertThat(circuitBreaker.getOpenDurationMillis()).isEqualTo(OPEN_DURATION_MILLIS);
+    }
+
+    @Test
+    public void circuit_opens_after_failureThreshold_consecutive_failures() {
+        // when
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+
+        // and when
+        circuitBreaker.recordFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.isOpen()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    public void success_resets_consecutive_failure_count() {
+        // given
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        // when
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < circuitBreaker.getFailureThreshold(); i++) {
+            circuitBreaker.recordFailure();
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    public void open_circuit_allows_exactly_one_probe_once_open_duration_has_passed() {
+        // given
+        openCircuit();
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS - 1);
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+
+        // when
+        circuitBreaker.advanceMillis(1);
+        boolean firstAllowed = circuitBreaker.allowRequest();
+        boolean secondAllowed = circuitBreaker.allowRequest();
+
+        // then
+        assertThat(firstAllowed).isTrue();
+        assertThat(secondAllowed).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    public void successful_probe_closes_circuit() {
+        // given
+        openCircuit();
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+
+        // when
+        circuitBreaker.recordSuccess();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void failed_probe_reopens_circuit_for_another_full_open_duration() {
+        // given
+        openCircuit();
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS / 2);
+
+        // when
+        circuitBreaker.recordFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS - 1);
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+        circuitBreaker.advanceMillis(1);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void another_probe_is_allowed_if_previous_probe_never_reports_back() {
+        // given
+        openCircuit();
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+
+        // when
+        circuitBreaker.advanceMillis(OPEN_DURATION_MILLIS);
+
+        // then
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    }
+}
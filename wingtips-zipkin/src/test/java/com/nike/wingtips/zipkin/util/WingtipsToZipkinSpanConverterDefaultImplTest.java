@@ -162,6 +162,31 @@ public class WingtipsToZipkinSpanConverterDefaultImplTest {
         assertThat(zipkinSpan.traceId).isEqualTo(unsignedLowerHexStringToLong(low64Bits));
     }
 
+    @Test
+    public void convertWingtipsSpanToZipkinSpan_uses_primitive_ids_from_span_built_with_longs() {
+        // given
+        long traceIdHigh = random.nextLong();
+        long traceIdLow = random.nextLong();
+        long spanId = random.nextLong();
+        long parentSpanId = random.nextLong();
+        Span wingtipsSpan = Span.newBuilder(UUID.randomUUID().toString(), Span.SpanPurpose.SERVER)
+                                .with128BitTraceId(traceIdHigh, traceIdLow)
+                                .withSpanId(spanId)
+                                .withParentSpanId(parentSpanId)
+                                .withDurationNanos(Math.abs(random.nextLong()))
+                                .build();
+        Endpoint zipkinEndpoint = Endpoint.create(UUID.randomUUID().toString(), 42);
+
+        // when
+        zipkin.Span zipkinSpan = impl.convertWingtipsSpanToZipkinSpan(wingtipsSpan, zipkinEndpoint, UUID.randomUUID().toString());
+
+        // then
+        assertThat(zipkinSpan.traceIdHigh).isEqualTo(traceIdHigh);
+        assertThat(zipkinSpan.traceId).isEqualTo(traceIdLow);
+        assertThat(zipkinSpan.id).isEqualTo(spanId);
+        assertThat(zipkinSpan.parentId).isEqualTo(parentSpanId);
+    }
+
     @DataProvider(value = {
         "                                      ", // empty trace ID
         "123e4567-e89b-12d3-a456-426655440000  "  // UUID format (hyphens and also >32 chars)
@@ -0,0 +1,192 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.Span;
+import com.nike.wingtips.Span.SpanPurpose;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import zipkin.Codec;
+import zipkin.Endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link WingtipsToZipkinSpanWireEncoder}.
+ */
+@RunWith(DataProviderRunner.class)
+public class WingtipsToZipkinSpanWireEncoderTest {
+
+    private static final Endpoint ENDPOINT = Endpoint.builder().serviceName("my-service").ipv4((127 << 24) | 1).port((short) 8080).build();
+    private static final String LOCAL_COMPONENT_NAMESPACE = "my-namespace \"quoted\"";
+    private static final String SPAN_NAME = "get /foo/caf\u00e9";
+    // Codec.JSON.readSpans() decodes with the platform default charset, so spans that are read back with it need an ASCII name.
+    private static final String ASCII_SPAN_NAME = "get /foo/cafe";
+
+    private final WingtipsToZipkinSpanConverterDefaultImpl converter = new WingtipsToZipkinSpanConverterDefaultImpl();
+
+    private static Span wingtipsSpan(String spanName, SpanPurpose spanPurpose, String parentSpanId, boolean traceId128Bit) {
+        String traceId = (traceId128Bit) ? "463ac35c9f6413ad48485a3953bb6124" : "48485a3953bb6124";
+        return new Span(traceId, parentSpanId, "72485a3953bb6124", spanName, true, null, spanPurpose, 1478000000123456L, null, 250123456L);
+    }
+
+    private List<Span> wingtipsSpans() {
+        return wingtipsSpans(SPAN_NAME);
+    }
+
+    private List<Span> wingtipsSpans(String spanName) {
+        List<Span> spans = new ArrayList<>();
+        for (SpanPurpose spanPurpose : SpanPurpose.values()) {
+            spans.add(wingtipsSpan(spanName, spanPurpose, "1234567890abcdef", false));
+            spans.add(wingtipsSpan(spanName, spanPurpose, null, true));
+        }
+        return spans;
+    }
+
+    private List<zipkin.Span> convert(List<Span> wingtipsSpans) {
+        List<zipkin.Span> zipkinSpans = new ArrayList<>(wingtipsSpans.size());
+        for (Span span : wingtipsSpans) {
+            zipkinSpans.add(converter.convertWingtipsSpanToZipkinSpan(span, ENDPOINT, LOCAL_COMPONENT_NAMESPACE));
+        }
+        return zipkinSpans;
+    }
+
+    @DataProvider(value = {
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void encodeSpans_writes_same_payload_as_converting_and_then_encoding(ZipkinSpanEncoding encoding) {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder = new WingtipsToZipkinSpanWireEncoder(encoding, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+        List<Span> spans = wingtipsSpans();
+
+        // expect
+        assertThat(encoder.encodeSpans(spans)).isEqualTo(encoding.encodeSpans(convert(spans)));
+    }
+
+    @Test
+    public void encodeSpans_writes_v1_json_that_decodes_to_converted_spans() {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder =
+            new WingtipsToZipkinSpanWireEncoder(ZipkinSpanEncoding.JSON_V1, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+        List<Span> spans = wingtipsSpans(ASCII_SPAN_NAME);
+
+        // when
+        byte[] payload = encoder.encodeSpans(spans);
+
+        // then
+        assertThat(Codec.JSON.readSpans(payload)).isEqualTo(convert(spans));
+    }
+
+    @Test
+    public void encodeSpans_writes_v1_json_strings_as_utf8() {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder =
+            new WingtipsToZipkinSpanWireEncoder(ZipkinSpanEncoding.JSON_V1, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+
+        // when
+        byte[] payload = encoder.encodeSpans(wingtipsSpans());
+
+        // then
+        assertThat(new String(payload, StandardCharsets.UTF_8)).contains("\"name\":\"" + SPAN_NAME + "\"");
+    }
+
+    @DataProvider(value = {
+        "JSON_V1",
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void sizeInBytes_matches_encoded_size(ZipkinSpanEncoding encoding) {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder = new WingtipsToZipkinSpanWireEncoder(encoding, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+        int listOverhead = (encoding == ZipkinSpanEncoding.PROTO3) ? 0 : 2;
+
+        // expect
+        for (Span span : wingtipsSpans()) {
+            int encodedSize = encoder.encodeSpans(Collections.singletonList(span)).length;
+            assertThat(encoder.sizeInBytes(span) + listOverhead).isEqualTo(encodedSize);
+            if (encoding != ZipkinSpanEncoding.JSON_V1) {
+                zipkin.Span converted = converter.convertWingtipsSpanToZipkinSpan(span, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+                assertThat(encoder.sizeInBytes(span)).isEqualTo(encoding.sizeInBytes(converted));
+            }
+        }
+    }
+
+    @DataProvider(value = {
+        "JSON_V1",
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void encodeSpans_handles_empty_list(ZipkinSpanEncoding encoding) {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder = new WingtipsToZipkinSpanWireEncoder(encoding, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+
+        // expect
+        assertThat(encoder.encodeSpans(Collections.<Span>emptyList()))
+            .isEqualTo(encoding.encodeSpans(Collections.<zipkin.Span>emptyList()));
+    }
+
+    @Test
+    public void getters_return_constructor_args() {
+        // when
+        WingtipsToZipkinSpanWireEncoder encoder =
+            new WingtipsToZipkinSpanWireEncoder(ZipkinSpanEncoding.PROTO3, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+
+        // then
+        assertThat(encoder.getEncoding()).isEqualTo(ZipkinSpanEncoding.PROTO3);
+        assertThat(encoder.getLocalEndpoint()).isSameAs(ENDPOINT);
+        assertThat(encoder.getLocalComponentNamespace()).isEqualTo(LOCAL_COMPONENT_NAMESPACE);
+    }
+
+    @DataProvider(value = {
+        "NULL_ENCODING",
+        "NULL_ENDPOINT",
+        "NULL_LOCAL_COMPONENT_NAMESPACE"
+    })
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_null_args(final String scenario) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                new WingtipsToZipkinSpanWireEncoder(
+                    "NULL_ENCODING".equals(scenario) ? null : ZipkinSpanEncoding.JSON_V2,
+                    "NULL_ENDPOINT".equals(scenario) ? null : ENDPOINT,
+                    "NULL_LOCAL_COMPONENT_NAMESPACE".equals(scenario) ? null : LOCAL_COMPONENT_NAMESPACE
+                );
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void encodeSpans_writes_large_batches_that_decode_in_order() {
+        // given
+        WingtipsToZipkinSpanWireEncoder encoder =
+            new WingtipsToZipkinSpanWireEncoder(ZipkinSpanEncoding.JSON_V1, ENDPOINT, LOCAL_COMPONENT_NAMESPACE);
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            spans.addAll(wingtipsSpans(ASCII_SPAN_NAME));
+        }
+
+        // expect
+        assertThat(Codec.JSON.readSpans(encoder.encodeSpans(spans))).isEqualTo(convert(spans));
+        assertThat(Arrays.equals(encoder.encodeSpans(spans), encoder.encodeSpans(spans))).isTrue();
+    }
+}
@@ -0,0 +1,392 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.zipkin.util.ZipkinSpanDiskSpool.SpooledBatch;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanDiskSpool}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanDiskSpoolTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File spoolDirectory;
+    private final List<ZipkinSpanDiskSpool> spoolsToClose = new ArrayList<>();
+
+    private static class ZipkinSpanDiskSpoolForTesting extends ZipkinSpanDiskSpool {
+        public long nowMillis = 1000000;
+
+        ZipkinSpanDiskSpoolForTesting(File directory, long maxTotalBytes, long maxSegmentBytes, long maxAgeMillis) throws IOException {
+            super(directory, maxTotalBytes, maxSegmentBytes, maxAgeMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return nowMillis;
+        }
+    }
+
+    @Before
+    public void beforeMethod() throws IOException {
+        spoolDirectory = new File(temporaryFolder.getRoot(), "spool");
+    }
+
+    @After
+    public void afterMethod() throws IOException {
+        for (ZipkinSpanDiskSpool spool : spoolsToClose) {
+            spool.close();
+        }
+    }
+
+    private ZipkinSpanDiskSpoolForTesting newSpool(long maxTotalBytes, long maxSegmentBytes) throws IOException {
+        ZipkinSpanDiskSpoolForTesting spool = new ZipkinSpanDiskSpoolForTesting(
+            spoolDirectory, maxTotalBytes, maxSegmentBytes, TimeUnit.HOURS.toMillis(1)
+        );
+        spoolsToClose.add(spool);
+        return spool;
+    }
+
+    private ZipkinSpanDiskSpoolForTesting newSpool() throws IOException {
+        return newSpool(1024 * 1024, 1024);
+    }
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String replayOne(ZipkinSpanDiskSpool spool) throws IOException {
+        SpooledBatch batch = spool.peek();
+        if (batch == null)
+            return null;
+
+        spool.remove(batch);
+        return new String(batch.payload, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> replayAll(ZipkinSpanDiskSpool spool) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        String payload;
+        while ((payload = replayOne(spool)) != null) {
+            replayed.add(payload);
+        }
+        return replayed;
+    }
+
+    private File[] segmentFiles() {
+        File[] files = spoolDirectory.listFiles();
+        List<File> segments = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(ZipkinSpanDiskSpool.SEGMENT_FILE_SUFFIX))
+                segments.add(file);
+        }
+        File[] result = segments.toArray(new File[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @DataProvider(value = {
+        "NULL_DIRECTORY",
+        "ZERO_MAX_TOTAL_BYTES",
+        "ZERO_MAX_SEGMENT_BYTES",
+        "ZERO_MAX_AGE"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_options(final String scenario) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                switch (scenario) {
+                    case "NULL_DIRECTORY":
+                        new ZipkinSpanDiskSpool(null, 1, 1, 1);
+                        break;
+                    case "ZERO_MAX_TOTAL_BYTES":
+                        new ZipkinSpanDiskSpool(spoolDirectory, 0, 1, 1);
+                        break;
+                    case "ZERO_MAX_SEGMENT_BYTES":
+                        new ZipkinSpanDiskSpool(spoolDirectory, 1, 0, 1);
+                        break;
+                    case "ZERO_MAX_AGE":
+                        new ZipkinSpanDiskSpool(spoolDirectory, 1, 1, 0);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unhandled scenario: " + scenario);
+                }
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void new_spool_creates_directory_and_is_empty() throws IOException {
+        // when
+        ZipkinSpanDiskSpool spool = newSpool();
+
+        // then
+        assertThat(spoolDirectory).isDirectory();
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(spool.peek()).isNull();
+        assertThat(spool.getSpooledSpanCount()).isZero();
+        assertThat(spool.getSpooledBytes()).isZero();
+    }
+
+    @Test
+    public void batches_are_replayed_in_the_order_they_were_appended() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool();
+
+        // when
+        assertThat(spool.append(payload("first"), 1)).isTrue();
+        assertThat(spool.append(payload("second"), 2)).isTrue();
+        assertThat(spool.append(payload("third"), 3)).isTrue();
+
+        // then
+        assertThat(spool.isEmpty()).isFalse();
+        assertThat(spool.getSpooledSpanCount()).isEqualTo(6);
+        assertThat(replayAll(spool)).containsExactly("first", "second", "third");
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(spool.getSpooledSpanCount()).isZero();
+    }
+
+    @Test
+    public void peek_returns_same_batch_until_it_is_removed() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool();
+        spool.append(payload("first"), 1);
+        spool.append(payload("second"), 1);
+
+        // when
+        SpooledBatch firstPeek = spool.peek();
+        SpooledBatch secondPeek = spool.peek();
+
+        // then
+        assertThat(firstPeek.payload).isEqualTo(payload("first"));
+        assertThat(secondPeek.payload).isEqualTo(payload("first"));
+        assertThat(firstPeek.spanCount).isEqualTo(1);
+
+        // and when
+        spool.remove(secondPeek);
+        spool.remove(firstPeek);
+
+        // then
+        assertThat(replayAll(spool)).containsExactly("second");
+    }
+
+    @Test
+    public void fully_replayed_segments_are_deleted() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool(1024 * 1024, 64);
+        for (int i = 0; i < 5; i++) {
+            spool.append(payload("batch-" + i + "-padded-to-fill-a-segment"), 1);
+        }
+        assertThat(segmentFiles()).hasSize(5);
+
+        // when
+        replayOne(spool);
+        replayOne(spool);
+
+        // then
+        assertThat(segmentFiles()).hasSize(3);
+        assertThat(replayAll(spool)).hasSize(3);
+        assertThat(spool.getSpooledBytes()).isZero();
+    }
+
+    @Test
+    public void append_deletes_oldest_segments_when_spool_is_full() throws IOException {
+        // given
+        byte[] payload = new byte[100 - ZipkinSpanDiskSpool.RECORD_HEADER_BYTES];
+        ZipkinSpanDiskSpool spool = newSpool(300, 100);
+        for (int i = 0; i < 3; i++) {
+            spool.append(payload, 10);
+        }
+        assertThat(spool.getSpooledBytes()).isEqualTo(300);
+
+        // when
+        boolean spooled = spool.append(payload, 10);
+
+        // then
+        assertThat(spooled).isTrue();
+        assertThat(spool.getSpooledBytes()).isEqualTo(300);
+        assertThat(spool.getSpooledSpanCount()).isEqualTo(30);
+        assertThat(spool.getDroppedSpanCount()).isEqualTo(10);
+        assertThat(segmentFiles()).hasSize(3);
+    }
+
+    @Test
+    public void append_rejects_batch_bigger_than_maxTotalBytes() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool(100, 100);
+
+        // when
+        boolean spooled = spool.append(new byte[100], 7);
+
+        // then
+        assertThat(spooled).isFalse();
+        assertThat(spool.getDroppedSpanCount()).isEqualTo(7);
+        assertThat(spool.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void expired_batches_are_skipped_instead_of_replayed() throws IOException {
+        // given
+        ZipkinSpanDiskSpoolForTesting spool = newSpool();
+        spool.append(payload("old"), 4);
+        spool.nowMillis += TimeUnit.MINUTES.toMillis(30);
+        spool.append(payload("newer"), 1);
+
+        // when
+        spool.nowMillis += TimeUnit.MINUTES.toMillis(31);
+
+        // then
+        assertThat(replayAll(spool)).containsExactly("newer");
+        assertThat(spool.getExpiredSpanCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void spooled_batches_survive_a_restart_and_replayed_batches_are_not_replayed_again() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool(1024 * 1024, 64);
+        for (int i = 0; i < 6; i++) {
+            spool.append(payload("batch-" + i), 1);
+        }
+        replayOne(spool);
+        replayOne(spool);
+        spool.close();
+
+        // when
+        ZipkinSpanDiskSpool recovered = newSpool(1024 * 1024, 64);
+
+        // then
+        assertThat(recovered.getSpooledSpanCount()).isEqualTo(4);
+        assertThat(replayAll(recovered)).containsExactly("batch-2", "batch-3", "batch-4", "batch-5");
+    }
+
+    @Test
+    public void recovery_truncates_segment_at_torn_record_and_keeps_everything_before_it() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool();
+        spool.append(payload("intact-1"), 1);
+        spool.append(payload("intact-2"), 1);
+        spool.append(payload("torn"), 1);
+        spool.close();
+        File segment = segmentFiles()[0];
+        long tornSize = segment.length() - 2;
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(tornSize);
+        }
+
+        // when
+        ZipkinSpanDiskSpool recovered = newSpool();
+
+        // then
+        assertThat(recovered.getSpooledSpanCount()).isEqualTo(2);
+        assertThat(segment.length()).isLessThan(tornSize);
+        recovered.append(payload("after-recovery"), 1);
+        assertThat(replayAll(recovered)).containsExactly("intact-1", "intact-2", "after-recovery");
+    }
+
+    @Test
+    public void recovery_truncates_segment_at_record_with_bad_checksum() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool();
+        spool.append(payload("intact"), 1);
+        spool.append(payload("corrupted"), 1);
+        spool.close();
+        File segment = segmentFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X');
+        }
+
+        // when
+        ZipkinSpanDiskSpool recovered = newSpool();
+
+        // then
+        assertThat(replayAll(recovered)).containsExactly("intact");
+    }
+
+    @Test
+    public void recovery_ignores_corrupt_cursor_and_replays_from_the_start() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool();
+        spool.append(payload("first"), 1);
+        spool.append(payload("second"), 1);
+        replayOne(spool);
+        spool.close();
+        try (RandomAccessFile file = new RandomAccessFile(new File(spoolDirectory, ZipkinSpanDiskSpool.CURSOR_FILE_NAME), "rw")) {
+            file.seek(0);
+            file.write(new byte[]{1, 2, 3});
+        }
+
+        // when
+        ZipkinSpanDiskSpool recovered = newSpool();
+
+        // then
+        assertThat(replayAll(recovered)).containsExactly("first", "second");
+    }
+
+    @Test
+    public void new_segments_after_a_fully_replayed_restart_are_not_mistaken_for_replayed_ones() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = newSpool(1024 * 1024, 32);
+        for (int i = 0; i < 3; i++) {
+            spool.append(payload("batch-padded-to-fill-a-segment-" + i), 1);
+        }
+        replayAll(spool);
+        spool.close();
+
+        ZipkinSpanDiskSpool restarted = newSpool(1024 * 1024, 32);
+        restarted.append(payload("after-restart"), 1);
+        restarted.close();
+
+        // when
+        ZipkinSpanDiskSpool recovered = newSpool(1024 * 1024, 32);
+
+        // then
+        assertThat(replayAll(recovered)).containsExactly("after-restart");
+    }
+
+    @Test
+    public void methods_throw_IOException_after_close() throws IOException {
+        // given
+        final ZipkinSpanDiskSpool spool = newSpool();
+        spool.close();
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                spool.append(payload("foo"), 1);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class);
+    }
+}
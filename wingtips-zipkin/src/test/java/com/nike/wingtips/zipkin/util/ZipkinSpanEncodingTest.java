@@ -0,0 +1,231 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import zipkin.Annotation;
+import zipkin.BinaryAnnotation;
+import zipkin.Codec;
+import zipkin.Constants;
+import zipkin.Endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanEncoding}, {@link ZipkinV2Span}, {@link ZipkinV2JsonSpanEncoder}, and {@link
+ * ZipkinProto3SpanEncoder}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanEncodingTest {
+
+    private static final Endpoint LOCAL_ENDPOINT = Endpoint.create("my-service", (127 << 24) | 1, 8080);
+    private static final Endpoint REMOTE_ENDPOINT = Endpoint.create("other-service", (10 << 24) | (1 << 16) | (2 << 8) | 3, 9090);
+
+    private static zipkin.Span serverSpan() {
+        return zipkin.Span.builder()
+                          .traceId(0x463ac35c9f6413adL)
+                          .id(0x72485a3953bb6124L)
+                          .parentId(0x1234L)
+                          .name("get /foo")
+                          .timestamp(1000000L)
+                          .duration(250L)
+                          .addAnnotation(Annotation.create(1000000L, Constants.SERVER_RECV, LOCAL_ENDPOINT))
+                          .addAnnotation(Annotation.create(1000250L, Constants.SERVER_SEND, LOCAL_ENDPOINT))
+                          .build();
+    }
+
+    private static zipkin.Span localSpan() {
+        return zipkin.Span.builder()
+                          .traceIdHigh(0x1L)
+                          .traceId(0x2L)
+                          .id(0x3L)
+                          .name("work")
+                          .timestamp(5L)
+                          .duration(7L)
+                          .addBinaryAnnotation(BinaryAnnotation.create(Constants.LOCAL_COMPONENT, "unknown", LOCAL_ENDPOINT))
+                          .build();
+    }
+
+    @Test
+    public void encodings_use_expected_endpoints_and_content_types() {
+        // expect
+        assertThat(ZipkinSpanEncoding.JSON_V1.getApiPath()).isEqualTo("api/v1/spans");
+        assertThat(ZipkinSpanEncoding.JSON_V1.getContentType()).isEqualTo("application/json");
+        assertThat(ZipkinSpanEncoding.JSON_V2.getApiPath()).isEqualTo("api/v2/spans");
+        assertThat(ZipkinSpanEncoding.JSON_V2.getContentType()).isEqualTo("application/json");
+        assertThat(ZipkinSpanEncoding.PROTO3.getApiPath()).isEqualTo("api/v2/spans");
+        assertThat(ZipkinSpanEncoding.PROTO3.getContentType()).isEqualTo("application/x-protobuf");
+    }
+
+    @Test
+    public void JSON_V1_matches_zipkin_codec() {
+        // given
+        List<zipkin.Span> spans = Arrays.asList(serverSpan(), localSpan());
+
+        // expect
+        assertThat(ZipkinSpanEncoding.JSON_V1.encodeSpans(spans)).isEqualTo(Codec.JSON.writeSpans(spans));
+        assertThat(ZipkinSpanEncoding.JSON_V1.sizeInBytes(serverSpan())).isEqualTo(Codec.JSON.sizeInBytes(serverSpan()));
+    }
+
+    @Test
+    public void fromV1_turns_core_annotations_into_kind_and_local_endpoint() {
+        // when
+        ZipkinV2Span v2Span = ZipkinV2Span.fromV1(serverSpan());
+
+        // then
+        assertThat(v2Span.kind).isEqualTo(ZipkinV2Span.Kind.SERVER);
+        assertThat(v2Span.localEndpoint).isEqualTo(LOCAL_ENDPOINT);
+        assertThat(v2Span.remoteEndpoint).isNull();
+        assertThat(v2Span.annotations).isEmpty();
+        assertThat(v2Span.tags).isEmpty();
+        assertThat(v2Span.timestamp).isEqualTo(1000000L);
+        assertThat(v2Span.duration).isEqualTo(250L);
+        assertThat(v2Span.shared).isFalse();
+    }
+
+    @Test
+    public void fromV1_turns_binary_annotations_into_tags_and_remote_endpoint() {
+        // given
+        zipkin.Span span = zipkin.Span.builder()
+                                      .traceId(1L)
+                                      .id(2L)
+                                      .name("call")
+                                      .addAnnotation(Annotation.create(10L, Constants.CLIENT_SEND, LOCAL_ENDPOINT))
+                                      .addAnnotation(Annotation.create(12L, "retried", LOCAL_ENDPOINT))
+                                      .addAnnotation(Annotation.create(20L, Constants.CLIENT_RECV, LOCAL_ENDPOINT))
+                                      .addBinaryAnnotation(BinaryAnnotation.create("http.path", "/foo", LOCAL_ENDPOINT))
+                                      .addBinaryAnnotation(BinaryAnnotation.address(Constants.SERVER_ADDR, REMOTE_ENDPOINT))
+                                      .debug(true)
+                                      .build();
+
+        // when
+        ZipkinV2Span v2Span = ZipkinV2Span.fromV1(span);
+
+        // then
+        assertThat(v2Span.kind).isEqualTo(ZipkinV2Span.Kind.CLIENT);
+        assertThat(v2Span.localEndpoint).isEqualTo(LOCAL_ENDPOINT);
+        assertThat(v2Span.remoteEndpoint).isEqualTo(REMOTE_ENDPOINT);
+        assertThat(v2Span.annotations).containsExactly(Annotation.create(12L, "retried", LOCAL_ENDPOINT));
+        assertThat(v2Span.tags).containsExactly(entry("http.path", "/foo"));
+        assertThat(v2Span.debug).isTrue();
+    }
+
+    @Test
+    public void fromV1_marks_server_span_without_timestamp_as_shared() {
+        // given
+        zipkin.Span span = zipkin.Span.builder()
+                                      .traceId(1L)
+                                      .id(2L)
+                                      .name("shared")
+                                      .addAnnotation(Annotation.create(100L, Constants.SERVER_RECV, LOCAL_ENDPOINT))
+                                      .addAnnotation(Annotation.create(130L, Constants.SERVER_SEND, LOCAL_ENDPOINT))
+                                      .build();
+
+        // when
+        ZipkinV2Span v2Span = ZipkinV2Span.fromV1(span);
+
+        // then
+        assertThat(v2Span.shared).isTrue();
+        assertThat(v2Span.timestamp).isEqualTo(100L);
+        assertThat(v2Span.duration).isEqualTo(30L);
+    }
+
+    @Test
+    public void JSON_V2_writes_expected_json() {
+        // when
+        byte[] payload = ZipkinSpanEncoding.JSON_V2.encodeSpans(Arrays.asList(serverSpan(), localSpan()));
+
+        // then
+        assertThat(new String(payload, StandardCharsets.UTF_8)).isEqualTo(
+            "[{\"traceId\":\"463ac35c9f6413ad\",\"parentId\":\"0000000000001234\",\"id\":\"72485a3953bb6124\",\"kind\":\"SERVER\","
+            + "\"name\":\"get /foo\",\"timestamp\":1000000,\"duration\":250,"
+            + "\"localEndpoint\":{\"serviceName\":\"my-service\",\"ipv4\":\"127.0.0.1\",\"port\":8080}},"
+            + "{\"traceId\":\"00000000000000010000000000000002\",\"id\":\"0000000000000003\",\"name\":\"work\",\"timestamp\":5,"
+            + "\"duration\":7,\"localEndpoint\":{\"serviceName\":\"my-service\",\"ipv4\":\"127.0.0.1\",\"port\":8080},"
+            + "\"tags\":{\"lc\":\"unknown\"}}]"
+        );
+    }
+
+    @Test
+    public void JSON_V2_escapes_strings() {
+        // given
+        zipkin.Span span = zipkin.Span.builder()
+                                      .traceId(1L)
+                                      .id(1L)
+                                      .name("quote\" slash\\ newline\n caf\u00e9")
+                                      .build();
+
+        // when
+        String json = new String(ZipkinSpanEncoding.JSON_V2.encodeSpans(Collections.singletonList(span)), StandardCharsets.UTF_8);
+
+        // then
+        assertThat(json).contains("\"name\":\"quote\\\" slash\\\\ newline\\n caf\u00e9\"");
+    }
+
+    @Test
+    public void PROTO3_writes_expected_bytes() {
+        // given
+        zipkin.Span span = zipkin.Span.builder()
+                                      .traceId(0x0102030405060708L)
+                                      .id(0x1112131415161718L)
+                                      .name("a")
+                                      .timestamp(1L)
+                                      .duration(300L)
+                                      .addAnnotation(Annotation.create(1L, Constants.CLIENT_SEND, Endpoint.create("s", 0)))
+                                      .addAnnotation(Annotation.create(301L, Constants.CLIENT_RECV, Endpoint.create("s", 0)))
+                                      .build();
+
+        // when
+        byte[] payload = ZipkinSpanEncoding.PROTO3.encodeSpans(Collections.singletonList(span));
+
+        // then
+        assertThat(payload).isEqualTo(new byte[]{
+            0x0a, 42,                                                       // ListOfSpans.spans, length 42
+            0x0a, 8, 1, 2, 3, 4, 5, 6, 7, 8,                                // trace_id
+            0x1a, 8, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18,        // id
+            0x20, 1,                                                        // kind = CLIENT
+            0x2a, 1, 'a',                                                   // name
+            0x31, 1, 0, 0, 0, 0, 0, 0, 0,                                   // timestamp (fixed64)
+            0x38, (byte) 0xac, 0x02,                                        // duration = 300 (varint)
+            0x42, 3, 0x0a, 1, 's'                                           // local_endpoint.service_name
+        });
+    }
+
+    @DataProvider(value = {
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void sizeInBytes_matches_encoded_size(ZipkinSpanEncoding encoding) {
+        // given
+        zipkin.Span span = serverSpan();
+        int listOverhead = (encoding == ZipkinSpanEncoding.JSON_V2) ? 2 : 0;
+
+        // expect
+        assertThat(encoding.sizeInBytes(span) + listOverhead).isEqualTo(encoding.encodeSpans(Collections.singletonList(span)).length);
+        assertThat(encoding.sizeInBytes(localSpan()) + listOverhead)
+            .isEqualTo(encoding.encodeSpans(Collections.singletonList(localSpan())).length);
+    }
+
+    @DataProvider(value = {
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void v2_encodings_are_smaller_than_v1_json(ZipkinSpanEncoding encoding) {
+        // given
+        List<zipkin.Span> spans = Arrays.asList(serverSpan(), localSpan(), serverSpan());
+
+        // expect
+        assertThat(encoding.encodeSpans(spans).length).isLessThan(ZipkinSpanEncoding.JSON_V1.encodeSpans(spans).length);
+    }
+}
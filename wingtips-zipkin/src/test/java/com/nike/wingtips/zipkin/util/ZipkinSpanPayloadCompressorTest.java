@@ -0,0 +1,180 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanPayloadCompressor}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanPayloadCompressorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] repetitivePayload(int numSpans) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < numSpans; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"traceId\":\"").append(Long.toHexString(i)).append("\",\"name\":\"get /foo\",\"timestamp\":").append(i).append('}');
+        }
+        return sb.append(']').toString().getBytes(UTF_8);
+    }
+
+    @DataProvider(value = {
+        "-1",
+        "0",
+        "1",
+        "9"
+    }, splitBy = "\\|")
+    @Test
+    public void gzip_output_decompresses_to_original_payload(int compressionLevel) throws IOException {
+        // given
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(compressionLevel);
+        byte[] payload = repetitivePayload(100);
+
+        // when
+        byte[] gzipped = compressor.gzip(payload);
+
+        // then
+        assertThat(gunzip(gzipped)).isEqualTo(payload);
+        if (compressionLevel != 0)
+            assertThat(gzipped.length).isLessThan(payload.length);
+    }
+
+    @Test
+    public void gzip_can_be_reused_for_many_payloads_of_different_sizes() throws IOException {
+        // given
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+
+        // expect
+        for (int numSpans : new int[]{ 0, 1000, 3, 50000, 10 }) {
+            byte[] payload = repetitivePayload(numSpans);
+            assertThat(gunzip(compressor.gzip(payload))).isEqualTo(payload);
+        }
+    }
+
+    @DataProvider(value = {
+        "0",
+        "3",
+        "1000",
+        "50000"
+    }, splitBy = "\\|")
+    @Test
+    public void gzipTo_writes_the_same_gzip_stream_as_gzip_without_growing_the_buffer(int numSpans) throws IOException {
+        // given
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+        byte[] payload = repetitivePayload(numSpans);
+        byte[] bufferBefore = compressor.threadState.get().buffer;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        compressor.gzipTo(payload, out);
+
+        // then
+        assertThat(compressor.threadState.get().buffer).isSameAs(bufferBefore);
+        assertThat(gunzip(out.toByteArray())).isEqualTo(payload);
+        assertThat(out.toByteArray()).isEqualTo(compressor.gzip(payload));
+    }
+
+    @Test
+    public void gzipTo_handles_payloads_that_do_not_compress() throws IOException {
+        // given
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+        byte[] payload = new byte[3 * ZipkinSpanPayloadCompressor.MAX_RETAINED_BUFFER_BYTES];
+        new Random(42).nextBytes(payload);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        compressor.gzipTo(payload, out);
+
+        // then
+        assertThat(gunzip(out.toByteArray())).isEqualTo(payload);
+        assertThat(compressor.threadState.get().buffer.length).isEqualTo(ZipkinSpanPayloadCompressor.INITIAL_BUFFER_BYTES);
+    }
+
+    @Test
+    public void gzip_handles_payloads_that_do_not_compress() throws IOException {
+        // given
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+        byte[] payload = new byte[3 * ZipkinSpanPayloadCompressor.MAX_RETAINED_BUFFER_BYTES];
+        new Random(42).nextBytes(payload);
+
+        // when
+        byte[] gzipped = compressor.gzip(payload);
+
+        // then
+        assertThat(gunzip(gzipped)).isEqualTo(payload);
+        assertThat(compressor.threadState.get().buffer.length).isLessThanOrEqualTo(ZipkinSpanPayloadCompressor.MAX_RETAINED_BUFFER_BYTES);
+    }
+
+    @Test
+    public void each_thread_gets_its_own_deflater() throws InterruptedException {
+        // given
+        final ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+        compressor.gzip(repetitivePayload(1));
+        final AtomicReference<ZipkinSpanPayloadCompressor.ThreadState> otherThreadState = new AtomicReference<>();
+
+        // when
+        Thread otherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                compressor.gzip(repetitivePayload(1));
+                otherThreadState.set(compressor.threadState.get());
+            }
+        });
+        otherThread.start();
+        otherThread.join();
+
+        // then
+        assertThat(compressor.threadState.get()).isSameAs(compressor.threadState.get());
+        assertThat(otherThreadState.get()).isNotNull();
+        assertThat(otherThreadState.get()).isNotSameAs(compressor.threadState.get());
+        assertThat(otherThreadState.get().deflater).isNotSameAs(compressor.threadState.get().deflater);
+    }
+
+    @DataProvider(value = {
+        "-2",
+        "10"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_compression_level(final int compressionLevel) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                new ZipkinSpanPayloadCompressor(compressionLevel);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,5 +1,10 @@
 package com.nike.wingtips.zipkin.util;
 
+import com.nike.wingtips.Span;
+import com.nike.wingtips.TraceAndSpanIdGenerator;
+import com.nike.wingtips.util.BoundedRingBuffer;
+import com.nike.wingtips.util.BoundedRingBuffer.OverflowPolicy;
+
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 
@@ -7,26 +12,39 @@ import org.assertj.core.api.ThrowableAssert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -37,12 +55,21 @@ import zipkin.junit.ZipkinRule;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
@@ -56,6 +83,9 @@ public class ZipkinSpanSenderDefaultHttpImplTest {
     @Rule
     public final ZipkinRule zipkinRule = new ZipkinRule();
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final Random random = new Random(System.nanoTime());
 
     private String baseUrl;
@@ -78,6 +108,17 @@ public class ZipkinSpanSenderDefaultHttpImplTest {
         }
     }
 
+    private static class BuilderBasedImplForTesting extends ZipkinSpanSenderDefaultHttpImpl {
+        BuilderBasedImplForTesting(Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        protected ScheduledExecutorService configureScheduledExecutorServiceForBatching() {
+            return mock(ScheduledExecutorService.class);
+        }
+    }
+
     @Before
     public void beforeMethod() {
         baseUrl = zipkinRule.httpUrl();
@@ -118,6 +159,9 @@ public class ZipkinSpanSenderDefaultHttpImplTest {
 
         assertThat(impl.senderJob.zipkinSpanSender).isSameAs(impl);
         assertThat(impl.senderJob.zipkinSpanSendingQueue).isSameAs(impl.zipkinSpanSendingQueue);
+        assertThat(impl.getMaxQueuedSpans()).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_QUEUED_SPANS);
+        assertThat(impl.maxQueuedBytes).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_QUEUED_BYTES);
+        assertThat(impl.getOverflowPolicy()).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_OVERFLOW_POLICY);
 
         if (batchSendingPeriodMillis > 0) {
             verify(schedulerMock).scheduleAtFixedRate(impl.senderJob, batchSendingPeriodMillis, batchSendingPeriodMillis, TimeUnit.MILLISECONDS);
@@ -183,243 +227,1579 @@ public class ZipkinSpanSenderDefaultHttpImplTest {
     public void handleSpan_offers_span_to_zipkinSpanSendingQueue() {
         // given
         zipkin.Span zipkinSpan = zipkinSpan(42, "foo");
-        assertThat(implSpy.zipkinSpanSendingQueue.isEmpty());
+        assertThat(implSpy.zipkinSpanSendingQueue.isEmpty()).isTrue();
 
         // when
         implSpy.handleSpan(zipkinSpan);
 
         // then
-        assertThat(implSpy.zipkinSpanSendingQueue)
-            .hasSize(1)
-            .contains(zipkinSpan);
+        assertThat(implSpy.zipkinSpanSendingQueue.size()).isEqualTo(1);
+        assertThat(implSpy.zipkinSpanSendingQueue.poll()).isSameAs(zipkinSpan);
     }
 
     @Test
-    public void flush_kicks_off_sender_job_immediately() {
+    public void builder_sets_all_options() throws MalformedURLException {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl.Builder builder = ZipkinSpanSenderDefaultHttpImpl
+            .newBuilder("http://localhost:4242")
+            .withCompressZipkinSpanPayload(false)
+            .withConnectTimeoutMillis(42)
+            .withReadTimeoutMillis(4242)
+            .withBatchSendingPeriodMillis(0)
+            .withMaxQueuedSpans(100)
+            .withMaxQueuedBytes(10000)
+            .withOverflowPolicy(OverflowPolicy.BLOCK_WITH_TIMEOUT, 1234)
+            .withMaxBatchSpans(10)
+            .withMaxBatchBytes(5000)
+            .withMaxInFlightBatches(3)
+            .withRetries(5, 10, 500)
+            .withCircuitBreaker(7, 3000)
+            .withEncoding(ZipkinSpanEncoding.PROTO3);
+
         // when
-        implSpy.flush();
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(builder);
 
         // then
-        verify(schedulerMock).execute(implSpy.senderJob);
+        assertThat(impl.postZipkinSpansUrl).isEqualTo(new URL("http://localhost:4242/api/v2/spans"));
+        assertThat(impl.encoding).isEqualTo(ZipkinSpanEncoding.PROTO3);
+        assertThat(impl.senderJob.encoding).isEqualTo(ZipkinSpanEncoding.PROTO3);
+        assertThat(impl.compressZipkinSpanPayload).isFalse();
+        assertThat(impl.connectTimeoutMillis).isEqualTo(42);
+        assertThat(impl.readTimeoutMillis).isEqualTo(4242);
+        assertThat(impl.getMaxQueuedSpans()).isEqualTo(128);
+        assertThat(impl.maxQueuedBytes).isEqualTo(10000);
+        assertThat(impl.getOverflowPolicy()).isEqualTo(OverflowPolicy.BLOCK_WITH_TIMEOUT);
+        assertThat(impl.blockTimeoutNanos).isEqualTo(1234);
+        assertThat(impl.maxBatchSpans).isEqualTo(10);
+        assertThat(impl.maxBatchBytes).isEqualTo(5000);
+        assertThat(impl.maxInFlightBatches).isEqualTo(3);
+        assertThat(impl.senderJob.maxBatchSpans).isEqualTo(10);
+        assertThat(impl.senderJob.maxBatchBytes).isEqualTo(5000);
+        assertThat(impl.senderJob.maxConcurrentRuns).isEqualTo(3);
+        assertThat(impl.senderJob.runExecutor).isSameAs(impl.zipkinSpanSendingScheduler);
+        assertThat(impl.maxSendRetries).isEqualTo(5);
+        assertThat(impl.initialRetryBackoffMillis).isEqualTo(10);
+        assertThat(impl.maxRetryBackoffMillis).isEqualTo(500);
+        assertThat(impl.getCircuitBreaker().getFailureThreshold()).isEqualTo(7);
+        assertThat(impl.getCircuitBreaker().getOpenDurationMillis()).isEqualTo(3000);
+        verifyZeroInteractions(impl.zipkinSpanSendingScheduler);
     }
 
     @Test
-    public void sendSpans_with_span_list_delegates_to_sendSpans_with_byte_array() throws IOException {
+    public void builder_sets_compression_level_on_payload_compressor() {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressionLevel(Deflater.BEST_SPEED)
+        );
+
+        // then
+        assertThat(impl.payloadCompressor.getCompressionLevel()).isEqualTo(Deflater.BEST_SPEED);
+    }
+
+    @Test
+    public void builder_does_not_create_payload_compressor_when_compression_is_disabled() {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressZipkinSpanPayload(false)
+        );
+
+        // then
+        assertThat(impl.payloadCompressor).isNull();
+    }
+
+    @Test
+    public void builder_disables_circuit_breaker_when_failure_threshold_is_zero() {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCircuitBreaker(0, 0)
+        );
+
+        // then
+        assertThat(impl.getCircuitBreaker()).isNull();
+        assertThat(impl.isSendingSuspended()).isFalse();
+    }
+
+    @Test
+    public void builder_build_uses_defaults_for_unset_options() {
         // given
-        List<zipkin.Span> zipkinSpans = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            zipkinSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        ZipkinSpanSenderDefaultHttpImpl.Builder builder = ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl);
+
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = builder.build();
+
+        // then
+        try {
+            assertThat(impl.compressZipkinSpanPayload).isTrue();
+            assertThat(impl.payloadCompressor.getCompressionLevel()).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+            assertThat(impl.encoding).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_ENCODING);
+            assertThat(impl.postZipkinSpansUrl.getPath()).isEqualTo("/api/v1/spans");
+            assertThat(impl.connectTimeoutMillis).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+            assertThat(impl.readTimeoutMillis).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_READ_TIMEOUT_MILLIS);
+            assertThat(impl.getMaxQueuedSpans()).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_QUEUED_SPANS);
+            assertThat(impl.getOverflowPolicy()).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_OVERFLOW_POLICY);
+            assertThat(impl.maxBatchSpans).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_BATCH_SPANS);
+            assertThat(impl.maxBatchBytes).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_BATCH_BYTES);
+            assertThat(impl.maxInFlightBatches).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_IN_FLIGHT_BATCHES);
+            assertThat(impl.zipkinSpanTransport).isInstanceOf(ZipkinSpanTransportDefaultHttpImpl.class);
+            assertThat(((ZipkinSpanTransportDefaultHttpImpl) impl.zipkinSpanTransport).getMaxConnections())
+                .isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_IN_FLIGHT_BATCHES);
+            assertThat(impl.maxSendRetries).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_SEND_RETRIES);
+            assertThat(impl.initialRetryBackoffMillis).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_INITIAL_RETRY_BACKOFF_MILLIS);
+            assertThat(impl.maxRetryBackoffMillis).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_RETRY_BACKOFF_MILLIS);
+            assertThat(impl.getCircuitBreaker().getFailureThreshold())
+                .isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+            assertThat(impl.getCircuitBreaker().getOpenDurationMillis())
+                .isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS);
         }
-        byte[] expectedBytesPayload = Codec.JSON.writeSpans(zipkinSpans);
+        finally {
+            impl.zipkinSpanSendingScheduler.shutdownNow();
+        }
+    }
 
+    @Test
+    public void builder_sizes_default_transport_connection_pool_to_max_in_flight_batches() throws MalformedURLException {
         // when
-        implSpy.sendSpans(zipkinSpans);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxInFlightBatches(3)
+        );
 
         // then
-        verify(implSpy).sendSpans(expectedBytesPayload);
+        ZipkinSpanTransportDefaultHttpImpl transport = (ZipkinSpanTransportDefaultHttpImpl) impl.zipkinSpanTransport;
+        assertThat(transport.getMaxConnections()).isEqualTo(3);
+        assertThat(transport.url).isEqualTo(new URL(baseUrl + "/api/v1/spans"));
     }
 
     @Test
-    public void sendSpans_with_span_list_does_not_propagate_IOException_error_thrown_by_sendSpans_with_byte_array() throws IOException {
+    public void builder_with_several_base_urls_load_balances_across_one_default_transport_per_collector() throws MalformedURLException {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(Arrays.asList("http://collector-1:9411", "http://collector-2:9411/"))
+                                           .withMaxInFlightBatches(3)
+                                           .withEncoding(ZipkinSpanEncoding.JSON_V2)
+                                           .withLoadBalancing(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING, 2, 5000)
+        );
+
+        // then
+        assertThat(impl.getPostZipkinSpansUrls()).containsExactly(
+            new URL("http://collector-1:9411/api/v2/spans"), new URL("http://collector-2:9411/api/v2/spans")
+        );
+        assertThat(impl.postZipkinSpansUrl).isEqualTo(new URL("http://collector-1:9411/api/v2/spans"));
+        assertThat(impl.zipkinSpanTransport).isInstanceOf(ZipkinSpanTransportLoadBalancer.class);
+        ZipkinSpanTransportLoadBalancer loadBalancer = (ZipkinSpanTransportLoadBalancer) impl.zipkinSpanTransport;
+        assertThat(loadBalancer.getStrategy()).isEqualTo(ZipkinSpanTransportLoadBalancer.Strategy.LEAST_OUTSTANDING);
+        assertThat(loadBalancer.getCollectors()).hasSize(2);
+        for (int i = 0; i < 2; i++) {
+            ZipkinSpanTransportLoadBalancer.Collector collector = loadBalancer.getCollectors().get(i);
+            ZipkinSpanTransportDefaultHttpImpl transport = (ZipkinSpanTransportDefaultHttpImpl) collector.getDelegate();
+            assertThat(transport.url).isEqualTo(impl.getPostZipkinSpansUrls().get(i));
+            assertThat(transport.getMaxConnections()).isEqualTo(3);
+            assertThat(collector.circuitBreaker.getFailureThreshold()).isEqualTo(2);
+            assertThat(collector.circuitBreaker.getOpenDurationMillis()).isEqualTo(5000);
+        }
+    }
+
+    @Test
+    public void builder_with_single_base_url_list_does_not_load_balance() {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(Collections.singletonList(baseUrl))
+        );
+
+        // then
+        assertThat(impl.getPostZipkinSpansUrls()).containsExactly(impl.postZipkinSpansUrl);
+        assertThat(impl.zipkinSpanTransport).isInstanceOf(ZipkinSpanTransportDefaultHttpImpl.class);
+    }
+
+    @Test
+    public void sendSpans_uses_transport_given_to_builder() throws IOException {
         // given
-        doThrow(new IOException("kaboom")).when(implSpy).sendSpans(any(byte[].class));
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressZipkinSpanPayload(false).withTransport(transportMock)
+        );
+        List<zipkin.Span> zipkinSpans = Collections.singletonList(zipkinSpan(42, "foo"));
 
         // when
-        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
-            @Override
-            public void call() throws Throwable {
-                implSpy.sendSpans(Collections.singletonList(zipkinSpan(42, "foo")));
-            }
-        });
+        impl.sendSpans(zipkinSpans);
 
         // then
-        verify(implSpy).sendSpans(any(byte[].class));
-        assertThat(ex).isNull();
+        verify(transportMock).sendSpans(Codec.JSON.writeSpans(zipkinSpans), "application/json", false);
+        assertThat(zipkinRule.httpRequestCount()).isEqualTo(0);
     }
 
     @Test
-    public void sendSpans_with_span_list_propagates_RuntimeExceptions_thrown_by_sendSpans_with_byte_array() throws IOException {
+    public void sendSpans_streams_compressed_payload_when_transport_supports_it() throws IOException {
         // given
-        RuntimeException runtimeException = new RuntimeException("kaboom");
-        doThrow(runtimeException).when(implSpy).sendSpans(any(byte[].class));
+        ZipkinSpanStreamingTransport transportMock = mock(ZipkinSpanStreamingTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressZipkinSpanPayload(true).withTransport(transportMock)
+        );
+        List<zipkin.Span> zipkinSpans = Collections.singletonList(zipkinSpan(42, "foo"));
+
+        // when
+        impl.sendSpans(zipkinSpans);
+
+        // then
+        verify(transportMock).sendSpansGzipped(Codec.JSON.writeSpans(zipkinSpans), "application/json", impl.payloadCompressor);
+        verify(transportMock, never()).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+    }
 
+    @DataProvider(value = {
+        "JSON_V1",
+        "JSON_V2",
+        "PROTO3"
+    })
+    @Test
+    public void sendSpans_encodes_payload_with_configured_encoding(ZipkinSpanEncoding encoding) throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                           .withCompressZipkinSpanPayload(false)
+                                           .withTransport(transportMock)
+                                           .withEncoding(encoding)
+        );
+        List<zipkin.Span> zipkinSpans = Arrays.asList(zipkinSpan(42, "foo"), zipkinSpan(43, "bar"));
+
+        // when
+        impl.sendSpans(zipkinSpans);
+
+        // then
+        verify(transportMock).sendSpans(encoding.encodeSpans(zipkinSpans), encoding.getContentType(), false);
+    }
+
+    @DataProvider(value = {
+        "NULL_URL",
+        "ZERO_MAX_QUEUED_SPANS",
+        "NEGATIVE_MAX_QUEUED_BYTES",
+        "NULL_OVERFLOW_POLICY",
+        "NEGATIVE_BLOCK_TIMEOUT",
+        "ZERO_MAX_BATCH_SPANS",
+        "NEGATIVE_MAX_BATCH_BYTES",
+        "ZERO_MAX_IN_FLIGHT_BATCHES",
+        "NEGATIVE_MAX_SEND_RETRIES",
+        "ZERO_INITIAL_RETRY_BACKOFF",
+        "MAX_RETRY_BACKOFF_LESS_THAN_INITIAL",
+        "NEGATIVE_CIRCUIT_BREAKER_FAILURE_THRESHOLD",
+        "ZERO_CIRCUIT_BREAKER_OPEN_DURATION",
+        "NULL_ENCODING",
+        "COMPRESSION_LEVEL_TOO_LOW",
+        "COMPRESSION_LEVEL_TOO_HIGH",
+        "NULL_LOCAL_COMPONENT_NAMESPACE",
+        "NULL_URL_LIST",
+        "EMPTY_URL_LIST",
+        "URL_LIST_CONTAINS_NULL",
+        "NULL_LOAD_BALANCING_STRATEGY",
+        "ZERO_EJECTION_FAILURE_THRESHOLD",
+        "ZERO_EJECTION_MILLIS",
+        "NEGATIVE_SHUTDOWN_FLUSH_TIMEOUT",
+        "INVALID_MBEAN_OBJECT_NAME"
+    }, splitBy = "\\|")
+    @Test
+    public void builder_throws_IllegalArgumentException_for_invalid_options(final String scenario) {
         // when
         Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
             @Override
             public void call() throws Throwable {
-                implSpy.sendSpans(Collections.singletonList(zipkinSpan(42, "foo")));
+                switch (scenario) {
+                    case "NULL_URL":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder((String) null);
+                        break;
+                    case "ZERO_MAX_QUEUED_SPANS":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxQueuedSpans(0);
+                        break;
+                    case "NEGATIVE_MAX_QUEUED_BYTES":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxQueuedBytes(-1);
+                        break;
+                    case "NULL_OVERFLOW_POLICY":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withOverflowPolicy(null, 0);
+                        break;
+                    case "NEGATIVE_BLOCK_TIMEOUT":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withOverflowPolicy(OverflowPolicy.DROP_NEWEST, -1);
+                        break;
+                    case "ZERO_MAX_BATCH_SPANS":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxBatchSpans(0);
+                        break;
+                    case "NEGATIVE_MAX_BATCH_BYTES":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxBatchBytes(-1);
+                        break;
+                    case "ZERO_MAX_IN_FLIGHT_BATCHES":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxInFlightBatches(0);
+                        break;
+                    case "NEGATIVE_MAX_SEND_RETRIES":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withRetries(-1, 100, 100);
+                        break;
+                    case "ZERO_INITIAL_RETRY_BACKOFF":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withRetries(1, 0, 100);
+                        break;
+                    case "MAX_RETRY_BACKOFF_LESS_THAN_INITIAL":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withRetries(1, 100, 99);
+                        break;
+                    case "NEGATIVE_CIRCUIT_BREAKER_FAILURE_THRESHOLD":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCircuitBreaker(-1, 1000);
+                        break;
+                    case "ZERO_CIRCUIT_BREAKER_OPEN_DURATION":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCircuitBreaker(5, 0);
+                        break;
+                    case "NULL_ENCODING":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withEncoding(null);
+                        break;
+                    case "COMPRESSION_LEVEL_TOO_LOW":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressionLevel(-2);
+                        break;
+                    case "COMPRESSION_LEVEL_TOO_HIGH":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withCompressionLevel(10);
+                        break;
+                    case "NULL_LOCAL_COMPONENT_NAMESPACE":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withWingtipsSpanEncoding("foo", null);
+                        break;
+                    case "NULL_URL_LIST":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder((List<String>) null);
+                        break;
+                    case "EMPTY_URL_LIST":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(Collections.<String>emptyList());
+                        break;
+                    case "URL_LIST_CONTAINS_NULL":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(Arrays.asList(baseUrl, null));
+                        break;
+                    case "NULL_LOAD_BALANCING_STRATEGY":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withLoadBalancing(null, 1, 1000);
+                        break;
+                    case "ZERO_EJECTION_FAILURE_THRESHOLD":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                                       .withLoadBalancing(ZipkinSpanTransportLoadBalancer.Strategy.ROUND_ROBIN, 0, 1000);
+                        break;
+                    case "ZERO_EJECTION_MILLIS":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                                       .withLoadBalancing(ZipkinSpanTransportLoadBalancer.Strategy.ROUND_ROBIN, 1, 0);
+                        break;
+                    case "NEGATIVE_SHUTDOWN_FLUSH_TIMEOUT":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withShutdownFlush(-1, true);
+                        break;
+                    case "INVALID_MBEAN_OBJECT_NAME":
+                        ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMBeanRegistration("not an object name");
+                        break;
+                    default:
+                        throw new IllegalStateException("Unhandled scenario: " + scenario);
+                }
             }
         });
 
         // then
-        verify(implSpy).sendSpans(any(byte[].class));
-        assertThat(ex).isSameAs(runtimeException);
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
     }
 
+    @DataProvider(value = {
+        "DROP_NEWEST",
+        "DROP_OLDEST",
+        "BLOCK_WITH_TIMEOUT"
+    }, splitBy = "\\|")
     @Test
-    public void sendSpans_sends_to_zipkin_server_as_expected() {
+    public void handleSpan_applies_overflow_policy_and_counts_drops_when_queue_is_full(OverflowPolicy overflowPolicy) {
         // given
-        List<zipkin.Span> zipkinSpans = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            zipkinSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxQueuedSpans(4).withOverflowPolicy(overflowPolicy, 1000)
+        );
+        List<zipkin.Span> spans = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            spans.add(zipkinSpan(i + 1, "span-" + i));
         }
 
         // when
-        implSpy.sendSpans(zipkinSpans);
+        for (zipkin.Span span : spans) {
+            impl.handleSpan(span);
+        }
 
         // then
-        assertThat(zipkinRule.httpRequestCount()).isEqualTo(1);
-        // Each span has its own trace ID
-        List<zipkin.Span>[] expectedTraces = new List[zipkinSpans.size()];
-        for (int i = 0; i < zipkinSpans.size(); i++) {
-            zipkin.Span span = zipkinSpans.get(i);
-            expectedTraces[i] = Collections.singletonList(span);
-        }
-        assertThat(zipkinRule.getTraces()).contains(expectedTraces);
+        assertThat(impl.getDroppedSpanCount()).isEqualTo(2);
+        assertThat(impl.getBacklogSize()).isEqualTo(4);
+        List<zipkin.Span> expectedQueuedSpans = (overflowPolicy == OverflowPolicy.DROP_OLDEST)
+                                                ? spans.subList(2, 6)
+                                                : spans.subList(0, 4);
+        List<zipkin.Span> queuedSpans = new ArrayList<>();
+        impl.zipkinSpanSendingQueue.drainTo(queuedSpans, 100);
+        assertThat(queuedSpans).isEqualTo(expectedQueuedSpans);
     }
 
     @DataProvider(value = {
-        "true",
-        "false"
+        "DROP_NEWEST",
+        "DROP_OLDEST",
+        "BLOCK_WITH_TIMEOUT"
     }, splitBy = "\\|")
     @Test
-    public void sendSpans_sends_compressed_and_uncompressed_span_payloads_as_expected(boolean compressPayload) throws IOException, InterruptedException {
-        MockWebServer zipkinServer = new MockWebServer();
-        try {
-            // given
-            zipkinServer.start(0);
-            zipkinServer.enqueue(new MockResponse());
+    public void handleSpan_enforces_maxQueuedBytes(OverflowPolicy overflowPolicy) {
+        // given
+        List<zipkin.Span> spans = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            spans.add(zipkinSpan(i + 1, "span-" + i));
+        }
+        int spanSize = Codec.JSON.sizeInBytes(spans.get(0));
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                           .withMaxQueuedBytes(spanSize * 3)
+                                           .withOverflowPolicy(overflowPolicy, 1000)
+        );
 
-            Whitebox.setInternalState(implSpy, "compressZipkinSpanPayload", compressPayload);
-            Whitebox.setInternalState(implSpy, "postZipkinSpansUrl", new URL(zipkinServer.url("/api/v1/spans").toString()));
+        // when
+        for (zipkin.Span span : spans) {
+            impl.handleSpan(span);
+        }
 
-            List<zipkin.Span> sentSpans = new ArrayList<>();
-            for (int i = 0; i < 10; i++) {
-                sentSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        // then
+        assertThat(impl.getDroppedSpanCount()).isEqualTo(2);
+        assertThat(impl.getBacklogSize()).isEqualTo(3);
+        assertThat(impl.getQueuedBytes()).isEqualTo(spanSize * 3);
+        List<zipkin.Span> expectedQueuedSpans = (overflowPolicy == OverflowPolicy.DROP_OLDEST)
+                                                ? spans.subList(2, 5)
+                                                : spans.subList(0, 3);
+        List<zipkin.Span> queuedSpans = new ArrayList<>();
+        impl.zipkinSpanSendingQueue.drainTo(queuedSpans, 100);
+        assertThat(queuedSpans).isEqualTo(expectedQueuedSpans);
+    }
+
+    @Test
+    public void handleSpan_drops_span_that_is_larger_than_maxQueuedBytes_by_itself() {
+        // given
+        zipkin.Span span = zipkinSpan(42, "foo");
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                           .withMaxQueuedBytes(Codec.JSON.sizeInBytes(span) - 1)
+                                           .withOverflowPolicy(OverflowPolicy.DROP_OLDEST, 0)
+        );
+
+        // when
+        impl.handleSpan(span);
+
+        // then
+        assertThat(impl.getDroppedSpanCount()).isEqualTo(1);
+        assertThat(impl.getBacklogSize()).isZero();
+        assertThat(impl.getQueuedBytes()).isZero();
+    }
+
+    @Test
+    public void sender_job_releases_queued_bytes_for_drained_spans() {
+        // given
+        final List<zipkin.Span> sentSpans = new ArrayList<>();
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxQueuedBytes(100000)
+        ) {
+            @Override
+            protected void sendSpans(List<zipkin.Span> spanList) {
+                sentSpans.addAll(spanList);
             }
-            long expectedUncompressedPayloadSize = Codec.JSON.writeSpans(sentSpans).length;
+        };
+        impl.handleSpan(zipkinSpan(42, "foo"));
+        impl.handleSpan(zipkinSpan(43, "bar"));
+        assertThat(impl.getQueuedBytes()).isGreaterThan(0);
 
-            // when
-            implSpy.sendSpans(sentSpans);
+        // when
+        impl.senderJob.run();
 
-            // then
-            RecordedRequest zipkinServerReq = zipkinServer.takeRequest();
-            long receivedByteCount = zipkinServerReq.getBodySize();
-            if (compressPayload)
-                assertThat(receivedByteCount).isLessThan(expectedUncompressedPayloadSize);
-            else
-                assertThat(receivedByteCount).isEqualTo(expectedUncompressedPayloadSize);
+        // then
+        assertThat(impl.getQueuedBytes()).isZero();
+        assertThat(impl.getBacklogSize()).isZero();
+        assertThat(sentSpans).hasSize(2);
+    }
 
-            byte[] receivedPayloadBytes = zipkinServerReq.getBody().readByteArray();
-            byte[] deserializableBytes = (compressPayload) ? unGzip(receivedPayloadBytes) : receivedPayloadBytes;
+    @Test
+    public void handleSpan_requests_early_run_once_a_full_batch_is_queued() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxBatchSpans(3)
+        );
 
-            List<zipkin.Span> receivedSpans = Codec.JSON.readSpans(deserializableBytes);
-            assertThat(receivedSpans).isEqualTo(sentSpans);
-        } finally {
-            zipkinServer.shutdown();
-        }
+        // when
+        impl.handleSpan(zipkinSpan(1, "foo"));
+        impl.handleSpan(zipkinSpan(2, "foo"));
+
+        // then
+        verify(impl.zipkinSpanSendingScheduler, never()).execute(any(Runnable.class));
+
+        // and when
+        impl.handleSpan(zipkinSpan(3, "foo"));
+        impl.handleSpan(zipkinSpan(4, "foo"));
+
+        // then: the second request is collapsed into the first since the job hasn't started yet
+        verify(impl.zipkinSpanSendingScheduler).execute(impl.senderJob);
+        assertThat(impl.senderJob.earlyRunRequested.get()).isTrue();
     }
 
-    private byte[] unGzip(byte[] orig) throws IOException {
-        ByteArrayInputStream gzippedBytes = new ByteArrayInputStream(orig);
-        GZIPInputStream gzipInputStream = new GZIPInputStream(gzippedBytes);
-        ByteArrayOutputStream ungzippedBytes = new ByteArrayOutputStream();
+    @Test
+    public void handleSpan_requests_early_run_once_a_full_batch_of_bytes_is_queued() {
+        // given
+        zipkin.Span span = zipkinSpan(42, "foo");
+        int spanSize = Codec.JSON.sizeInBytes(span);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxQueuedBytes(100000).withMaxBatchBytes(spanSize * 2)
+        );
 
-        int res = 0;
-        byte buf[] = new byte[1024];
-        while (res >= 0) {
-            res = gzipInputStream.read(buf, 0, buf.length);
-            if (res > 0) {
-                ungzippedBytes.write(buf, 0, res);
-            }
-        }
-        return ungzippedBytes.toByteArray();
+        // when
+        impl.handleSpan(span);
+
+        // then
+        verify(impl.zipkinSpanSendingScheduler, never()).execute(any(Runnable.class));
+
+        // and when
+        impl.handleSpan(span);
+
+        // then
+        verify(impl.zipkinSpanSendingScheduler).execute(impl.senderJob);
     }
 
     @Test
-    public void ZipkinSpanSenderJob_drains_from_blocking_queue_and_calls_sendSpans_method() {
+    public void requestEarlyRun_resets_flag_if_executor_rejects_the_job() {
         // given
-        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
-        BlockingQueue<zipkin.Span> spanBlockingQueueSpy = spy(new LinkedBlockingQueue<zipkin.Span>());
-        List<zipkin.Span> zipkinSpans = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            zipkinSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl));
+        doThrow(new RejectedExecutionException("shut down")).when(impl.zipkinSpanSendingScheduler).execute(any(Runnable.class));
+
+        // when
+        impl.senderJob.requestEarlyRun();
+
+        // then
+        assertThat(impl.senderJob.earlyRunRequested.get()).isFalse();
+    }
+
+    private ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJobWithQueuedSpans(
+        ZipkinSpanSenderDefaultHttpImpl sender, List<zipkin.Span> spans, int maxBatchSpans, long maxBatchBytes, int maxConcurrentRuns,
+        Executor runExecutor
+    ) {
+        BoundedRingBuffer<zipkin.Span> queue = new BoundedRingBuffer<>(64);
+        for (zipkin.Span span : spans) {
+            queue.offer(span);
+        }
+        return new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(
+            sender, queue, maxBatchSpans, maxBatchBytes, maxConcurrentRuns, runExecutor
+        );
+    }
+
+    private List<zipkin.Span> zipkinSpans(int numSpans) {
+        List<zipkin.Span> spans = new ArrayList<>();
+        for (int i = 0; i < numSpans; i++) {
+            spans.add(zipkinSpan(i + 1, "span-" + i));
         }
-        spanBlockingQueueSpy.addAll(zipkinSpans);
+        return spans;
+    }
 
+    @Test
+    public void ZipkinSpanSenderJob_sends_full_batches_and_leaves_partial_batch_for_next_run() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        List<zipkin.Span> spans = zipkinSpans(7);
         ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
-            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueSpy);
+            senderJobWithQueuedSpans(senderImplMock, spans, 3, 0, 1, mock(Executor.class));
 
         // when
         senderJob.run();
 
         // then
-        verify(spanBlockingQueueSpy).drainTo(any(Collection.class));
-        verify(senderImplMock).sendSpans(zipkinSpans);
+        verify(senderImplMock).sendSpans(spans.subList(0, 3));
+        verify(senderImplMock).sendSpans(spans.subList(3, 6));
+        verify(senderImplMock, times(2)).sendSpans(any(List.class));
+        assertThat(senderJob.zipkinSpanSendingQueue.size()).isEqualTo(1);
+        verifyZeroInteractions(senderJob.runExecutor);
+        assertThat(senderJob.activeRuns.get()).isZero();
+
+        // and when: the next run
+        senderJob.run();
+
+        // then
+        verify(senderImplMock).sendSpans(spans.subList(6, 7));
     }
 
     @Test
-    public void ZipkinSpanSenderJob_does_nothing_if_blocking_queue_is_empty() {
+    public void ZipkinSpanSenderJob_closes_batch_once_it_reaches_maxBatchBytes() {
         // given
         ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
-        BlockingQueue<zipkin.Span> emptySpanBlockingQueueSpy = spy(new LinkedBlockingQueue<zipkin.Span>());
+        List<zipkin.Span> spans = zipkinSpans(5);
+        long maxBatchBytes = Codec.JSON.sizeInBytes(spans.get(0)) + 1;
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            senderJobWithQueuedSpans(senderImplMock, spans, 100, maxBatchBytes, 1, null);
 
+        // when
+        senderJob.run();
+
+        // then: the batch goes over by at most one span
+        verify(senderImplMock).sendSpans(spans.subList(0, 2));
+        assertThat(senderJob.zipkinSpanSendingQueue.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_requests_concurrent_run_when_another_full_batch_is_waiting() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        Executor executorMock = mock(Executor.class);
+        List<zipkin.Span> spans = zipkinSpans(6);
         ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
-            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, emptySpanBlockingQueueSpy);
+            senderJobWithQueuedSpans(senderImplMock, spans, 3, 0, 2, executorMock);
 
         // when
         senderJob.run();
 
         // then
-        verify(emptySpanBlockingQueueSpy).isEmpty();
-        verify(emptySpanBlockingQueueSpy, never()).drainTo(any(Collection.class));
-        verifyZeroInteractions(senderImplMock);
+        verify(executorMock).execute(senderJob);
+        verify(senderImplMock).sendSpans(spans.subList(0, 3));
+        verify(senderImplMock).sendSpans(spans.subList(3, 6));
     }
 
     @Test
-    public void ZipkinSpanSenderJob_does_nothing_if_blocking_queue_isEmpty_method_returns_false_but_queue_empties_before_draining() {
+    public void ZipkinSpanSenderJob_does_nothing_when_maxConcurrentRuns_are_already_active() {
         // given
         ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
-        BlockingQueue<zipkin.Span> spanBlockingQueueMock = mock(BlockingQueue.class);
-        doReturn(false).when(spanBlockingQueueMock).isEmpty();
-        doReturn(0).when(spanBlockingQueueMock).drainTo(any(Collection.class));
-
         ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
-            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueMock);
+            senderJobWithQueuedSpans(senderImplMock, zipkinSpans(6), 3, 0, 2, null);
+        senderJob.activeRuns.set(2);
+        senderJob.earlyRunRequested.set(true);
 
         // when
         senderJob.run();
 
         // then
-        verify(spanBlockingQueueMock).isEmpty();
-        verify(spanBlockingQueueMock).drainTo(any(Collection.class));
         verifyZeroInteractions(senderImplMock);
+        assertThat(senderJob.activeRuns.get()).isEqualTo(2);
+        assertThat(senderJob.earlyRunRequested.get()).isFalse();
+        assertThat(senderJob.zipkinSpanSendingQueue.size()).isEqualTo(6);
     }
 
     @Test
-    public void ZipkinSpanSenderJob_does_not_propagate_any_errors() {
+    public void concurrent_batches_are_all_delivered_to_zipkin_server() throws InterruptedException {
         // given
-        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
-        BlockingQueue<zipkin.Span> spanBlockingQueueMock = mock(BlockingQueue.class);
-        doThrow(new RuntimeException("kaboom")).when(spanBlockingQueueMock).isEmpty();
+        ZipkinSpanSenderDefaultHttpImpl impl = ZipkinSpanSenderDefaultHttpImpl
+            .newBuilder(baseUrl)
+            .withBatchSendingPeriodMillis(0)
+            .withMaxBatchSpans(10)
+            .withMaxInFlightBatches(4)
+            .build();
+        List<zipkin.Span> spans = zipkinSpans(95);
 
-        final ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
-            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueMock);
+        try {
+            // when
+            for (zipkin.Span span : spans) {
+                impl.handleSpan(span);
+            }
+            impl.flush();
 
-        // when
-        Throwable propagatedEx = catchThrowable(new ThrowableAssert.ThrowingCallable() {
-            @Override
-            public void call() throws Throwable {
-                senderJob.run();
+            // then
+            long deadline = System.currentTimeMillis() + 10000;
+            while (zipkinRule.collectorMetrics().spans() < spans.size() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
             }
-        });
+            assertThat(zipkinRule.collectorMetrics().spans()).isEqualTo(spans.size());
+            assertThat(zipkinRule.httpRequestCount()).isGreaterThanOrEqualTo(10);
+        }
+        finally {
+            impl.zipkinSpanSendingScheduler.shutdownNow();
+        }
+    }
 
-        // then
-        verify(spanBlockingQueueMock).isEmpty();
-        assertThat(propagatedEx).isNull();
+    @Test
+    public void getBacklogSize_returns_number_of_spans_waiting_to_be_sent() {
+        // given
+        assertThat(implSpy.getBacklogSize()).isZero();
 
-        verify(spanBlockingQueueMock, never()).drainTo(any(Collection.class));
-        verifyZeroInteractions(senderImplMock);
+        // when
+        implSpy.handleSpan(zipkinSpan(42, "foo"));
+        implSpy.handleSpan(zipkinSpan(43, "bar"));
+
+        // then
+        assertThat(implSpy.getBacklogSize()).isEqualTo(2);
+    }
+
+    private Span completedWingtipsSpan(String spanName) {
+        return new Span(
+            TraceAndSpanIdGenerator.generateId(), null, TraceAndSpanIdGenerator.generateId(), spanName, true, null,
+            Span.SpanPurpose.LOCAL_ONLY, System.currentTimeMillis() * 1000, null, 42000L
+        );
+    }
+
+    private ZipkinSpanSenderDefaultHttpImpl wingtipsSpanEncodingImpl(ZipkinSpanTransport transport) {
+        return new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                           .withCompressZipkinSpanPayload(false)
+                                           .withTransport(transport)
+                                           .withEncoding(ZipkinSpanEncoding.JSON_V2)
+                                           .withWingtipsSpanEncoding("my-service", "unknown")
+        );
+    }
+
+    @Test
+    public void builder_withWingtipsSpanEncoding_creates_encoder_and_queue() {
+        // when
+        ZipkinSpanSenderDefaultHttpImpl impl = wingtipsSpanEncodingImpl(mock(ZipkinSpanTransport.class));
+
+        // then
+        assertThat(impl.isWingtipsSpanEncodingEnabled()).isTrue();
+        assertThat(impl.getWingtipsSpanEncoder().getEncoding()).isEqualTo(ZipkinSpanEncoding.JSON_V2);
+        assertThat(impl.getWingtipsSpanEncoder().getLocalEndpoint().serviceName).isEqualTo("my-service");
+        assertThat(impl.getWingtipsSpanEncoder().getLocalComponentNamespace()).isEqualTo("unknown");
+        assertThat(impl.senderJob.wingtipsSpanSendingQueue).isSameAs(impl.wingtipsSpanSendingQueue);
+        assertThat(implSpy.isWingtipsSpanEncodingEnabled()).isFalse();
+        assertThat(implSpy.getWingtipsSpanEncoder()).isNull();
+    }
+
+    @Test
+    public void handleWingtipsSpan_queues_span_and_counts_it_in_backlog() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = wingtipsSpanEncodingImpl(mock(ZipkinSpanTransport.class));
+        Span span = completedWingtipsSpan("foo");
+
+        // when
+        impl.handleSpan(zipkinSpan(42, "bar"));
+        impl.handleWingtipsSpan(span);
+
+        // then
+        assertThat(impl.wingtipsSpanSendingQueue.size()).isEqualTo(1);
+        assertThat(impl.zipkinSpanSendingQueue.size()).isEqualTo(1);
+        assertThat(impl.getBacklogSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void handleWingtipsSpan_throws_IllegalStateException_if_wingtips_span_encoding_is_not_enabled() {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                implSpy.handleWingtipsSpan(completedWingtipsSpan("foo"));
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void handleWingtipsSpan_throws_IllegalArgumentException_if_span_is_not_completed() {
+        // given
+        final ZipkinSpanSenderDefaultHttpImpl impl = wingtipsSpanEncodingImpl(mock(ZipkinSpanTransport.class));
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                impl.handleWingtipsSpan(Span.newBuilder("foo", Span.SpanPurpose.LOCAL_ONLY).build());
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+        assertThat(impl.getBacklogSize()).isZero();
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_sends_queued_wingtips_spans_encoded_by_wire_encoder() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = wingtipsSpanEncodingImpl(transportMock);
+        List<Span> spans = Arrays.asList(completedWingtipsSpan("foo"), completedWingtipsSpan("bar"));
+        for (Span span : spans) {
+            impl.handleWingtipsSpan(span);
+        }
+
+        // when
+        impl.senderJob.run();
+
+        // then
+        verify(transportMock).sendSpans(impl.getWingtipsSpanEncoder().encodeSpans(spans), "application/json", false);
+        assertThat(impl.getBacklogSize()).isZero();
+    }
+
+    @Test
+    public void flush_kicks_off_sender_job_immediately() {
+        // when
+        implSpy.flush();
+
+        // then
+        verify(schedulerMock).execute(implSpy.senderJob);
+    }
+
+    @Test
+    public void flush_does_nothing_once_sender_is_closed() {
+        // given
+        implSpy.close(0);
+        reset(schedulerMock);
+
+        // when
+        implSpy.flush();
+
+        // then
+        verifyZeroInteractions(schedulerMock);
+    }
+
+    private ZipkinSpanSenderDefaultHttpImpl closeableImpl(ZipkinSpanTransport transport, ZipkinSpanDiskSpool spool) {
+        return ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                              .withCompressZipkinSpanPayload(false)
+                                              .withTransport(transport)
+                                              .withBatchSendingPeriodMillis(0)
+                                              .withMaxBatchSpans(10)
+                                              .withRetries(0, 100, 100)
+                                              .withCircuitBreaker(1, 60000)
+                                              .withDiskSpool(spool)
+                                              .withShutdownFlush(5000, false)
+                                              .build();
+    }
+
+    @Test
+    public void close_sends_queued_spans_then_closes_transport() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(transportMock, null);
+        List<zipkin.Span> spans = zipkinSpans(5);
+        for (zipkin.Span span : spans) {
+            impl.handleSpan(span);
+        }
+
+        // when
+        boolean flushed = impl.close(5000);
+
+        // then
+        assertThat(flushed).isTrue();
+        assertThat(impl.isClosed()).isTrue();
+        assertThat(impl.getBacklogSize()).isZero();
+        verify(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        verify(transportMock).close();
+        assertThat(impl.zipkinSpanSendingScheduler.isTerminated()).isTrue();
+        assertThat(impl.getSentSpanCount()).isEqualTo(5);
+        assertThat(impl.getSentBatchCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void close_gives_up_once_flush_timeout_passes() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(60000);
+                return null;
+            }
+        }).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(transportMock, null);
+        for (zipkin.Span span : zipkinSpans(5)) {
+            impl.handleSpan(span);
+        }
+        long startMillis = System.currentTimeMillis();
+
+        // when
+        boolean flushed = impl.close(100);
+
+        // then
+        assertThat(flushed).isFalse();
+        assertThat(System.currentTimeMillis() - startMillis).isLessThan(5000);
+        assertThat(impl.getSentSpanCount()).isZero();
+        verify(transportMock).close();
+    }
+
+    @Test
+    public void close_spools_spans_that_can_not_be_sent() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = new ZipkinSpanDiskSpool(temporaryFolder.newFolder("spool"));
+        try {
+            ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+            ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(transportMock, spool);
+            impl.getCircuitBreaker().recordFailure();
+            for (zipkin.Span span : zipkinSpans(5)) {
+                impl.handleSpan(span);
+            }
+
+            // when
+            boolean flushed = impl.close(5000);
+
+            // then
+            assertThat(flushed).isTrue();
+            assertThat(impl.getBacklogSize()).isZero();
+            assertThat(spool.getSpooledSpanCount()).isEqualTo(5);
+            assertThat(impl.getSpooledSpanCount()).isEqualTo(5);
+            verify(transportMock, never()).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        }
+        finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void handleSpan_drops_spans_once_sender_is_closed() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(mock(ZipkinSpanTransport.class), null);
+        impl.close();
+
+        // when
+        impl.handleSpan(zipkinSpan(42, "foo"));
+
+        // then
+        assertThat(impl.getBacklogSize()).isZero();
+        assertThat(impl.getDroppedSpanCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void close_only_does_anything_the_first_time() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(transportMock, null);
+        assertThat(impl.close(5000)).isTrue();
+
+        // when
+        boolean secondClose = impl.close(5000);
+
+        // then
+        assertThat(secondClose).isFalse();
+        verify(transportMock).close();
+    }
+
+    @Test
+    public void builder_only_registers_shutdown_hook_when_asked_and_close_removes_it() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withShutdownFlush(0, true).build();
+        ZipkinSpanSenderDefaultHttpImpl defaultImpl = ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).build();
+        ZipkinSpanSenderDefaultHttpImpl legacyImpl = new ZipkinSpanSenderDefaultHttpImpl(baseUrl, false);
+        assertThat(impl.shutdownHook).isNotNull();
+        assertThat(impl.shutdownFlushTimeoutMillis).isZero();
+        assertThat(defaultImpl.shutdownHook).isNull();
+        assertThat(defaultImpl.shutdownFlushTimeoutMillis).isEqualTo(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+        assertThat(legacyImpl.shutdownHook).isNull();
+        defaultImpl.close(0);
+        legacyImpl.close(0);
+
+        // when
+        impl.close();
+
+        // then
+        assertThat(Runtime.getRuntime().removeShutdownHook(impl.shutdownHook)).isFalse();
+    }
+
+    @Test
+    public void configureScheduledExecutorServiceForBatching_uses_daemon_threads() throws Exception {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = closeableImpl(mock(ZipkinSpanTransport.class), null);
+        try {
+            // when
+            Thread senderThread = impl.zipkinSpanSendingScheduler.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+
+            // then
+            assertThat(senderThread.isDaemon()).isTrue();
+            assertThat(senderThread.getName()).isEqualTo("zipkin-span-sender");
+        }
+        finally {
+            impl.close();
+        }
+    }
+
+    @Test
+    public void sendSpans_records_batch_attempt_and_latency_metrics() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).doNothing()
+            .when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = retryingImplSpy(transportMock, 3, 10);
+        List<zipkin.Span> spans = zipkinSpans(5);
+
+        // when
+        impl.sendSpans(spans);
+
+        // then
+        ZipkinSpanSenderMetrics.Snapshot snapshot = impl.getMetricsSnapshot();
+        assertThat(snapshot.getSentBatchCount()).isEqualTo(1);
+        assertThat(snapshot.getSentSpanCount()).isEqualTo(5);
+        assertThat(snapshot.getFailedSendAttemptCount()).isEqualTo(1);
+        assertThat(snapshot.getFailedSpanCount()).isZero();
+        assertThat(snapshot.getBatchSpanCount().getCount()).isEqualTo(1);
+        assertThat(snapshot.getBatchSpanCount().getMax()).isEqualTo(5);
+        assertThat(snapshot.getBatchPayloadBytes().getMax()).isEqualTo(Codec.JSON.writeSpans(spans).length);
+        assertThat(snapshot.getSendLatencyMicros().getCount()).isEqualTo(1);
+        assertThat(snapshot.isCircuitOpen()).isFalse();
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_records_queue_depth_when_draining_batches() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withTransport(mock(ZipkinSpanTransport.class)).withMaxBatchSpans(2)
+        );
+        for (zipkin.Span span : zipkinSpans(5)) {
+            impl.handleSpan(span);
+        }
+
+        // when
+        impl.senderJob.run();
+
+        // then
+        ZipkinSpanSenderMetrics.HistogramSnapshot queueDepth = impl.getMetricsSnapshot().getQueueDepth();
+        assertThat(queueDepth.getCount()).isEqualTo(2);
+        assertThat(queueDepth.getMax()).isEqualTo(5);
+        assertThat(impl.getBacklogSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void builder_withMBeanRegistration_registers_sender_with_platform_MBean_server_until_closed() throws Exception {
+        // given
+        String objectName = ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MBEAN_OBJECT_NAME + ",name=" + UUID.randomUUID().toString();
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        // when
+        ZipkinSpanSenderDefaultHttpImpl.Builder builder =
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMBeanRegistration(objectName).withShutdownFlush(0, false);
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(builder);
+        assertThat(impl.getMBeanObjectName()).isNull();
+        impl.registerShutdownHookAndMBean(builder);
+        impl.handleSpan(zipkinSpan(42, "foo"));
+        impl.getMetrics().recordSendAttemptSucceeded(TimeUnit.MILLISECONDS.toNanos(3));
+
+        // then
+        ObjectName name = new ObjectName(objectName);
+        assertThat(impl.getMBeanObjectName()).isEqualTo(name);
+        assertThat(mBeanServer.getAttribute(name, "BacklogSize")).isEqualTo(1);
+        assertThat(mBeanServer.getAttribute(name, "CircuitOpen")).isEqualTo(false);
+        CompositeData latency = (CompositeData) mBeanServer.getAttribute(name, "SendLatencyMicrosHistogram");
+        assertThat(latency.get("count")).isEqualTo(1L);
+        assertThat(latency.get("max")).isEqualTo(3000L);
+
+        // and when
+        impl.close();
+
+        // then
+        assertThat(mBeanServer.isRegistered(name)).isFalse();
+    }
+
+    @Test
+    public void registerMBean_returns_null_instead_of_throwing_when_name_is_taken() {
+        // given
+        String objectName = ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MBEAN_OBJECT_NAME + ",name=" + UUID.randomUUID().toString();
+        ZipkinSpanSenderDefaultHttpImpl.Builder builder =
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMBeanRegistration(objectName).withShutdownFlush(0, false);
+        ZipkinSpanSenderDefaultHttpImpl first = new BuilderBasedImplForTesting(builder);
+        first.registerShutdownHookAndMBean(builder);
+
+        try {
+            // when
+            ZipkinSpanSenderDefaultHttpImpl second = new BuilderBasedImplForTesting(builder);
+            second.registerShutdownHookAndMBean(builder);
+
+            // then
+            assertThat(first.getMBeanObjectName()).isNotNull();
+            assertThat(second.getMBeanObjectName()).isNull();
+        }
+        finally {
+            first.close();
+        }
+    }
+
+    @Test
+    public void sendSpans_with_span_list_delegates_to_sendSpans_with_byte_array() throws IOException {
+        // given
+        List<zipkin.Span> zipkinSpans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            zipkinSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        }
+        byte[] expectedBytesPayload = Codec.JSON.writeSpans(zipkinSpans);
+
+        // when
+        implSpy.sendSpans(zipkinSpans);
+
+        // then
+        verify(implSpy).sendSpans(expectedBytesPayload);
+    }
+
+    @Test
+    public void sendSpans_with_span_list_does_not_propagate_IOException_error_thrown_by_sendSpans_with_byte_array() throws IOException {
+        // given
+        doThrow(new IOException("kaboom")).when(implSpy).sendSpans(any(byte[].class));
+        doReturn(true).when(implSpy).sleepBeforeRetry(anyLong());
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                implSpy.sendSpans(Collections.singletonList(zipkinSpan(42, "foo")));
+            }
+        });
+
+        // then
+        verify(implSpy, times(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_MAX_SEND_RETRIES + 1)).sendSpans(any(byte[].class));
+        assertThat(ex).isNull();
+        assertThat(implSpy.getFailedSpanCount()).isEqualTo(1);
+    }
+
+    private ZipkinSpanSenderDefaultHttpImpl retryingImplSpy(ZipkinSpanTransport transport, int maxSendRetries, int failureThreshold) {
+        ZipkinSpanSenderDefaultHttpImpl impl = spy(new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                           .withTransport(transport)
+                                           .withRetries(maxSendRetries, 100, 400)
+                                           .withCircuitBreaker(failureThreshold, 60000)
+        ));
+        doReturn(true).when(impl).sleepBeforeRetry(anyLong());
+        return impl;
+    }
+
+    @Test
+    public void sendSpans_retries_IOException_and_stops_once_an_attempt_succeeds() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).doThrow(new IOException("kaboom")).doNothing()
+            .when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = retryingImplSpy(transportMock, 3, 10);
+
+        // when
+        impl.sendSpans(zipkinSpans(5));
+
+        // then
+        verify(transportMock, times(3)).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        verify(impl, times(2)).sleepBeforeRetry(anyLong());
+        assertThat(impl.getFailedSpanCount()).isEqualTo(0);
+        assertThat(impl.getCircuitBreaker().consecutiveFailures.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void sendSpans_serializes_span_list_only_once_across_retries() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = retryingImplSpy(transportMock, 2, 10);
+        ArgumentCaptor<byte[]> payloadCaptor = ArgumentCaptor.forClass(byte[].class);
+
+        // when
+        impl.sendSpans(zipkinSpans(5));
+
+        // then
+        verify(impl, times(3)).sendSpans(payloadCaptor.capture());
+        assertThat(payloadCaptor.getAllValues().get(1)).isSameAs(payloadCaptor.getAllValues().get(0));
+        assertThat(payloadCaptor.getAllValues().get(2)).isSameAs(payloadCaptor.getAllValues().get(0));
+        assertThat(impl.getFailedSpanCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void sendSpans_stops_retrying_once_circuit_opens() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = retryingImplSpy(transportMock, 10, 2);
+
+        // when
+        impl.sendSpans(zipkinSpans(3));
+
+        // then
+        verify(transportMock, times(2)).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        assertThat(impl.getCircuitBreaker().isOpen()).isTrue();
+        assertThat(impl.getFailedSpanCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void sendSpans_does_not_retry_when_sleep_is_interrupted() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanSenderDefaultHttpImpl impl = retryingImplSpy(transportMock, 5, 10);
+        doReturn(false).when(impl).sleepBeforeRetry(anyLong());
+
+        // when
+        impl.sendSpans(zipkinSpans(1));
+
+        // then
+        verify(transportMock, times(1)).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        assertThat(impl.getFailedSpanCount()).isEqualTo(1);
+    }
+
+    @DataProvider(value = {
+        "0  |   50      |   100",
+        "1  |   100     |   200",
+        "2  |   200     |   400",
+        "3  |   200     |   400",
+        "10 |   200     |   400"
+    }, splitBy = "\\|")
+    @Test
+    public void calculateRetryBackoffMillis_doubles_per_attempt_with_jitter_and_cap(int attempt, long expectedMin, long expectedMax) {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withRetries(3, 100, 400)
+        );
+
+        for (int i = 0; i < 100; i++) {
+            // when
+            long backoff = impl.calculateRetryBackoffMillis(attempt);
+
+            // then
+            assertThat(backoff).isBetween(expectedMin, expectedMax);
+        }
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_leaves_spans_queued_while_circuit_is_open_and_sends_probe_once_open_duration_passes() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(true).doReturn(false).when(senderImplMock).isSendingSuspended();
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            senderJobWithQueuedSpans(senderImplMock, zipkinSpans(3), 10, 0, 1, mock(Executor.class));
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(senderImplMock, never()).sendSpans(any(List.class));
+        assertThat(senderJob.zipkinSpanSendingQueue.size()).isEqualTo(3);
+
+        // and when
+        senderJob.run();
+
+        // then
+        verify(senderImplMock).sendSpans(any(List.class));
+        assertThat(senderJob.zipkinSpanSendingQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void sendSpans_spools_batch_that_still_fails_after_retries() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanDiskSpool spoolMock = mock(ZipkinSpanDiskSpool.class);
+        doReturn(true).when(spoolMock).append(any(byte[].class), anyInt());
+        ZipkinSpanSenderDefaultHttpImpl impl = spy(new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withTransport(transportMock).withDiskSpool(spoolMock)
+        ));
+        doReturn(true).when(impl).sleepBeforeRetry(anyLong());
+        List<zipkin.Span> spans = zipkinSpans(3);
+
+        // when
+        impl.sendSpans(spans);
+
+        // then
+        verify(spoolMock).append(Codec.JSON.writeSpans(spans), 3);
+        assertThat(impl.getFailedSpanCount()).isZero();
+    }
+
+    @Test
+    public void sendSpans_discards_batch_when_spool_does_not_accept_it() throws IOException {
+        // given
+        ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+        doThrow(new IOException("kaboom")).when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+        ZipkinSpanDiskSpool spoolMock = mock(ZipkinSpanDiskSpool.class);
+        doThrow(new IOException("disk full")).when(spoolMock).append(any(byte[].class), anyInt());
+        ZipkinSpanSenderDefaultHttpImpl impl = spy(new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withTransport(transportMock).withDiskSpool(spoolMock)
+        ));
+        doReturn(true).when(impl).sleepBeforeRetry(anyLong());
+
+        // when
+        impl.sendSpans(zipkinSpans(3));
+
+        // then
+        assertThat(impl.getFailedSpanCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_spools_batches_while_circuit_is_open_when_spooling_is_enabled() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(true).when(senderImplMock).isSendingSuspended();
+        doReturn(true).when(senderImplMock).isSpoolingEnabled();
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            senderJobWithQueuedSpans(senderImplMock, zipkinSpans(7), 3, 0, 1, mock(Executor.class));
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(senderImplMock, times(2)).spoolSpans(any(List.class));
+        verify(senderImplMock, never()).sendSpans(any(List.class));
+        assertThat(senderJob.zipkinSpanSendingQueue.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_replays_spooled_batches_before_sending_queued_spans() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(true).when(senderImplMock).hasSpooledBatches();
+        doReturn(true).when(senderImplMock).replaySpooledBatches();
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            senderJobWithQueuedSpans(senderImplMock, zipkinSpans(2), 10, 0, 1, mock(Executor.class));
+
+        // when
+        senderJob.run();
+
+        // then
+        InOrder inOrder = inOrder(senderImplMock);
+        inOrder.verify(senderImplMock).replaySpooledBatches();
+        inOrder.verify(senderImplMock).sendSpans(any(List.class));
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_spools_queued_spans_when_replay_fails() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(true).when(senderImplMock).hasSpooledBatches();
+        doReturn(false).when(senderImplMock).replaySpooledBatches();
+        doReturn(true).when(senderImplMock).isSpoolingEnabled();
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            senderJobWithQueuedSpans(senderImplMock, zipkinSpans(2), 10, 0, 1, mock(Executor.class));
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(senderImplMock).spoolSpans(any(List.class));
+        verify(senderImplMock, never()).sendSpans(any(List.class));
+    }
+
+    @Test
+    public void replaySpooledBatches_sends_spooled_batches_in_order_and_stops_at_first_failure() throws IOException {
+        // given
+        ZipkinSpanDiskSpool spool = new ZipkinSpanDiskSpool(temporaryFolder.newFolder("spool"));
+        try {
+            ZipkinSpanTransport transportMock = mock(ZipkinSpanTransport.class);
+            ZipkinSpanSenderDefaultHttpImpl impl = spy(new BuilderBasedImplForTesting(
+                ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl)
+                                               .withCompressZipkinSpanPayload(false)
+                                               .withTransport(transportMock)
+                                               .withRetries(0, 100, 100)
+                                               .withDiskSpool(spool)
+            ));
+            byte[] first = Codec.JSON.writeSpans(zipkinSpans(1));
+            byte[] second = Codec.JSON.writeSpans(zipkinSpans(2));
+            byte[] third = Codec.JSON.writeSpans(zipkinSpans(3));
+            spool.append(first, 1);
+            spool.append(second, 2);
+            spool.append(third, 3);
+            doNothing().doThrow(new IOException("kaboom"))
+                .when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+
+            // when
+            boolean replayed = impl.replaySpooledBatches();
+
+            // then
+            assertThat(replayed).isFalse();
+            InOrder inOrder = inOrder(transportMock);
+            inOrder.verify(transportMock).sendSpans(first, "application/json", false);
+            inOrder.verify(transportMock).sendSpans(second, "application/json", false);
+            assertThat(spool.getSpooledSpanCount()).isEqualTo(5);
+
+            // and when
+            doNothing().when(transportMock).sendSpans(any(byte[].class), any(String.class), anyBoolean());
+            replayed = impl.replaySpooledBatches();
+
+            // then
+            assertThat(replayed).isTrue();
+            inOrder.verify(transportMock).sendSpans(second, "application/json", false);
+            inOrder.verify(transportMock).sendSpans(third, "application/json", false);
+            assertThat(spool.isEmpty()).isTrue();
+            assertThat(impl.hasSpooledBatches()).isFalse();
+        }
+        finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void handleSpan_does_not_request_early_run_while_circuit_is_open() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl impl = new BuilderBasedImplForTesting(
+            ZipkinSpanSenderDefaultHttpImpl.newBuilder(baseUrl).withMaxBatchSpans(2).withCircuitBreaker(1, 60000)
+        );
+        impl.getCircuitBreaker().recordFailure();
+
+        // when
+        impl.handleSpan(zipkinSpan(1, "foo"));
+        impl.handleSpan(zipkinSpan(2, "bar"));
+
+        // then
+        verify(impl.zipkinSpanSendingScheduler, never()).execute(any(Runnable.class));
+        assertThat(impl.getBacklogSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void sendSpans_with_span_list_propagates_RuntimeExceptions_thrown_by_sendSpans_with_byte_array() throws IOException {
+        // given
+        RuntimeException runtimeException = new RuntimeException("kaboom");
+        doThrow(runtimeException).when(implSpy).sendSpans(any(byte[].class));
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                implSpy.sendSpans(Collections.singletonList(zipkinSpan(42, "foo")));
+            }
+        });
+
+        // then
+        verify(implSpy).sendSpans(any(byte[].class));
+        assertThat(ex).isSameAs(runtimeException);
+    }
+
+    @Test
+    public void sendSpans_sends_to_zipkin_server_as_expected() {
+        // given
+        List<zipkin.Span> zipkinSpans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            zipkinSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+        }
+
+        // when
+        implSpy.sendSpans(zipkinSpans);
+
+        // then
+        assertThat(zipkinRule.httpRequestCount()).isEqualTo(1);
+        // Each span has its own trace ID
+        List<zipkin.Span>[] expectedTraces = new List[zipkinSpans.size()];
+        for (int i = 0; i < zipkinSpans.size(); i++) {
+            zipkin.Span span = zipkinSpans.get(i);
+            expectedTraces[i] = Collections.singletonList(span);
+        }
+        assertThat(zipkinRule.getTraces()).contains(expectedTraces);
+    }
+
+    @DataProvider(value = {
+        "true",
+        "false"
+    }, splitBy = "\\|")
+    @Test
+    public void sendSpans_sends_compressed_and_uncompressed_span_payloads_as_expected(boolean compressPayload) throws IOException, InterruptedException {
+        MockWebServer zipkinServer = new MockWebServer();
+        try {
+            // given
+            zipkinServer.start(0);
+            zipkinServer.enqueue(new MockResponse());
+
+            Whitebox.setInternalState(implSpy, "compressZipkinSpanPayload", compressPayload);
+            Whitebox.setInternalState(implSpy, "zipkinSpanTransport", new ZipkinSpanTransportDefaultHttpImpl(
+                new URL(zipkinServer.url("/api/v1/spans").toString()), 5000, 5000
+            ));
+
+            List<zipkin.Span> sentSpans = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                sentSpans.add(zipkinSpan(random.nextLong(), UUID.randomUUID().toString()));
+            }
+            long expectedUncompressedPayloadSize = Codec.JSON.writeSpans(sentSpans).length;
+
+            // when
+            implSpy.sendSpans(sentSpans);
+
+            // then
+            RecordedRequest zipkinServerReq = zipkinServer.takeRequest();
+            long receivedByteCount = zipkinServerReq.getBodySize();
+            if (compressPayload)
+                assertThat(receivedByteCount).isLessThan(expectedUncompressedPayloadSize);
+            else
+                assertThat(receivedByteCount).isEqualTo(expectedUncompressedPayloadSize);
+
+            byte[] receivedPayloadBytes = zipkinServerReq.getBody().readByteArray();
+            byte[] deserializableBytes = (compressPayload) ? unGzip(receivedPayloadBytes) : receivedPayloadBytes;
+
+            List<zipkin.Span> receivedSpans = Codec.JSON.readSpans(deserializableBytes);
+            assertThat(receivedSpans).isEqualTo(sentSpans);
+        } finally {
+            zipkinServer.shutdown();
+        }
+    }
+
+    private byte[] unGzip(byte[] orig) throws IOException {
+        ByteArrayInputStream gzippedBytes = new ByteArrayInputStream(orig);
+        GZIPInputStream gzipInputStream = new GZIPInputStream(gzippedBytes);
+        ByteArrayOutputStream ungzippedBytes = new ByteArrayOutputStream();
+
+        int res = 0;
+        byte buf[] = new byte[1024];
+        while (res >= 0) {
+            res = gzipInputStream.read(buf, 0, buf.length);
+            if (res > 0) {
+                ungzippedBytes.write(buf, 0, res);
+            }
+        }
+        return ungzippedBytes.toByteArray();
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_drains_from_blocking_queue_and_calls_sendSpans_method() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        BoundedRingBuffer<zipkin.Span> spanBlockingQueueSpy = spy(new BoundedRingBuffer<zipkin.Span>(16));
+        List<zipkin.Span> zipkinSpans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            zipkin.Span zipkinSpan = zipkinSpan(random.nextLong(), UUID.randomUUID().toString());
+            zipkinSpans.add(zipkinSpan);
+            spanBlockingQueueSpy.offer(zipkinSpan);
+        }
+
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueSpy);
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(spanBlockingQueueSpy).drainTo(any(Collection.class), anyInt());
+        verify(senderImplMock).spansDrainedFromQueue(zipkinSpans);
+        verify(senderImplMock).sendSpans(zipkinSpans);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_does_nothing_if_blocking_queue_is_empty() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(false).when(senderImplMock).hasSpooledBatches();
+        BoundedRingBuffer<zipkin.Span> emptySpanBlockingQueueSpy = spy(new BoundedRingBuffer<zipkin.Span>(16));
+
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, emptySpanBlockingQueueSpy);
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(emptySpanBlockingQueueSpy).isEmpty();
+        verify(emptySpanBlockingQueueSpy, never()).drainTo(any(Collection.class), anyInt());
+        verify(senderImplMock).hasSpooledBatches();
+        verifyNoMoreInteractions(senderImplMock);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_does_nothing_if_blocking_queue_isEmpty_method_returns_false_but_queue_empties_before_draining() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(false).when(senderImplMock).hasSpooledBatches();
+        BoundedRingBuffer<zipkin.Span> spanBlockingQueueMock = mock(BoundedRingBuffer.class);
+        doReturn(false).when(spanBlockingQueueMock).isEmpty();
+        doReturn(0).when(spanBlockingQueueMock).drainTo(any(Collection.class), anyInt());
+
+        ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueMock);
+
+        // when
+        senderJob.run();
+
+        // then
+        verify(spanBlockingQueueMock).isEmpty();
+        verify(spanBlockingQueueMock).drainTo(any(Collection.class), anyInt());
+        verify(senderImplMock).hasSpooledBatches();
+        verify(senderImplMock).isSendingSuspended();
+        verifyNoMoreInteractions(senderImplMock);
+    }
+
+    @Test
+    public void ZipkinSpanSenderJob_does_not_propagate_any_errors() {
+        // given
+        ZipkinSpanSenderDefaultHttpImpl senderImplMock = mock(ZipkinSpanSenderDefaultHttpImpl.class);
+        doReturn(false).when(senderImplMock).hasSpooledBatches();
+        BoundedRingBuffer<zipkin.Span> spanBlockingQueueMock = mock(BoundedRingBuffer.class);
+        doThrow(new RuntimeException("kaboom")).when(spanBlockingQueueMock).isEmpty();
+
+        final ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob senderJob =
+            new ZipkinSpanSenderDefaultHttpImpl.ZipkinSpanSenderJob(senderImplMock, spanBlockingQueueMock);
+
+        // when
+        Throwable propagatedEx = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                senderJob.run();
+            }
+        });
+
+        // then
+        verify(spanBlockingQueueMock).isEmpty();
+        assertThat(propagatedEx).isNull();
+
+        verify(spanBlockingQueueMock, never()).drainTo(any(Collection.class), anyInt());
+        verify(senderImplMock).hasSpooledBatches();
+        verifyNoMoreInteractions(senderImplMock);
     }
 
     @Test
@@ -0,0 +1,163 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.zipkin.util.ZipkinSpanSenderMetrics.Histogram;
+import com.nike.wingtips.zipkin.util.ZipkinSpanSenderMetrics.HistogramSnapshot;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanSenderMetrics}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanSenderMetricsTest {
+
+    @Test
+    public void empty_histogram_snapshot_is_all_zeros() {
+        // when
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+
+        // then
+        assertThat(snapshot).isSameAs(HistogramSnapshot.EMPTY);
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.getMax()).isZero();
+        assertThat(snapshot.getP99()).isZero();
+    }
+
+    @DataProvider(value = {
+        "0",
+        "1",
+        "7",
+        "8",
+        "15",
+        "16",
+        "1000",
+        "123456789",
+        "9223372036854775807"
+    })
+    @Test
+    public void bucket_upper_bound_is_within_an_eighth_of_every_value_in_the_bucket(long value) {
+        // when
+        int index = Histogram.bucketIndex(value);
+        long upperBound = Histogram.bucketUpperBound(index);
+
+        // then
+        assertThat(index).isBetween(0, Histogram.BUCKET_COUNT - 1);
+        assertThat(upperBound).isGreaterThanOrEqualTo(value);
+        assertThat((double) (upperBound - value)).isLessThanOrEqualTo(value / 8.0);
+        if (index > 0)
+            assertThat(Histogram.bucketUpperBound(index - 1)).isLessThan(value);
+    }
+
+    @Test
+    public void histogram_percentiles_are_accurate_to_an_eighth() {
+        // given
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        // when
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        // then
+        assertThat(snapshot.getCount()).isEqualTo(10000);
+        assertThat(snapshot.getMean()).isEqualTo(5000.5);
+        assertThat(snapshot.getMax()).isEqualTo(10000);
+        assertThat(snapshot.getP50()).isBetween(5000L, 5625L);
+        assertThat(snapshot.getP90()).isBetween(9000L, 10000L);
+        assertThat(snapshot.getP99()).isBetween(9900L, 10000L);
+        assertThat(snapshot.getP999()).isBetween(9990L, 10000L);
+    }
+
+    @Test
+    public void histogram_records_negative_values_as_zero() {
+        // given
+        Histogram histogram = new Histogram();
+
+        // when
+        histogram.record(-42);
+
+        // then
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.getMax()).isZero();
+        assertThat(snapshot.getP50()).isZero();
+    }
+
+    @Test
+    public void histogram_does_not_lose_values_recorded_concurrently() throws InterruptedException {
+        // given
+        final Histogram histogram = new Histogram();
+        final int numThreads = 4;
+        final int valuesPerThread = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            final int threadNum = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    for (int i = 0; i < valuesPerThread; i++) {
+                        histogram.record(threadNum * valuesPerThread + i);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // when
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(numThreads * valuesPerThread);
+        assertThat(snapshot.getMax()).isEqualTo(numThreads * valuesPerThread - 1);
+    }
+
+    @Test
+    public void metrics_record_counters_and_histograms() {
+        // given
+        ZipkinSpanSenderMetrics metrics = new ZipkinSpanSenderMetrics();
+
+        // when
+        metrics.recordQueueDepth(42);
+        metrics.recordBatchSent(10, 2048);
+        metrics.recordBatchSent(5, 1024);
+        metrics.recordSendAttemptSucceeded(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.recordSendAttemptFailed();
+        metrics.recordSpansSpooled(7);
+
+        // then
+        assertThat(metrics.getSentBatchCount()).isEqualTo(2);
+        assertThat(metrics.getSentSpanCount()).isEqualTo(15);
+        assertThat(metrics.getFailedSendAttemptCount()).isEqualTo(1);
+        assertThat(metrics.getSpooledSpanCount()).isEqualTo(7);
+        assertThat(metrics.getQueueDepth().getMax()).isEqualTo(42);
+        assertThat(metrics.getBatchSpanCount().getCount()).isEqualTo(2);
+        assertThat(metrics.getBatchSpanCount().getMax()).isEqualTo(10);
+        assertThat(metrics.getBatchPayloadBytes().getMean()).isEqualTo(1536.0);
+        assertThat(metrics.getSendLatencyMicros().getCount()).isEqualTo(1);
+        assertThat(metrics.getSendLatencyMicros().getMax()).isEqualTo(2000);
+    }
+}
@@ -0,0 +1,407 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanTransportDefaultHttpImpl}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanTransportDefaultHttpImplTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MockWebServer zipkinServer;
+    private URL url;
+    private ZipkinSpanTransportDefaultHttpImpl transport;
+
+    @Before
+    public void beforeMethod() throws IOException {
+        zipkinServer = new MockWebServer();
+        zipkinServer.start(0);
+        url = new URL(zipkinServer.url("/api/v1/spans").toString());
+        transport = new ZipkinSpanTransportDefaultHttpImpl(url, 5000, 5000);
+    }
+
+    @After
+    public void afterMethod() throws IOException {
+        transport.close();
+        zipkinServer.shutdown();
+    }
+
+    @DataProvider(value = {
+        "true",
+        "false"
+    }, splitBy = "\\|")
+    @Test
+    public void sendSpans_posts_payload_with_expected_headers(boolean gzipEncoded) throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().setResponseCode(202));
+        byte[] payload = "[{\"some\":\"span\"}]".getBytes(UTF_8);
+
+        // when
+        transport.sendSpans(payload, "application/json", gzipEncoded);
+
+        // then
+        RecordedRequest request = zipkinServer.takeRequest();
+        assertThat(request.getMethod()).isEqualTo("POST");
+        assertThat(request.getPath()).isEqualTo("/api/v1/spans");
+        assertThat(request.getHeader("Content-Type")).isEqualTo("application/json");
+        assertThat(request.getHeader("Content-Encoding")).isEqualTo(gzipEncoded ? "gzip" : null);
+        assertThat(request.getBody().readByteArray()).isEqualTo(payload);
+    }
+
+    @Test
+    public void sendSpansGzipped_streams_the_gzipped_payload_with_chunked_transfer_encoding() throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().setResponseCode(202));
+        zipkinServer.enqueue(new MockResponse().setResponseCode(202));
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            sb.append("{\"some\":\"span").append(i).append("\"},");
+        }
+        byte[] payload = sb.append("{}]").toString().getBytes(UTF_8);
+
+        // when
+        transport.sendSpansGzipped(payload, "application/json", compressor);
+        transport.sendSpans(new byte[]{1}, "application/json", false);
+
+        // then
+        RecordedRequest request = zipkinServer.takeRequest();
+        assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+        assertThat(request.getHeader("Content-Length")).isNull();
+        assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(request.getChunkSizes().size()).isGreaterThan(1);
+        assertThat(gunzip(request.getBody().readByteArray())).isEqualTo(payload);
+        assertThat(zipkinServer.takeRequest().getBody().readByteArray()).isEqualTo(new byte[]{1});
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(1);
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void sendSpans_reuses_a_single_persistent_connection_for_sequential_requests() throws Exception {
+        // given
+        int numRequests = 5;
+        for (int i = 0; i < numRequests; i++) {
+            zipkinServer.enqueue(new MockResponse().setBody("ok"));
+        }
+
+        // when
+        for (int i = 0; i < numRequests; i++) {
+            transport.sendSpans(new byte[]{(byte) i}, "application/json", false);
+        }
+
+        // then
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(1);
+        assertThat(transport.getOpenConnectionCount()).isEqualTo(1);
+        assertThat(transport.getIdleConnectionCount()).isEqualTo(1);
+        for (int i = 0; i < numRequests; i++) {
+            assertThat(zipkinServer.takeRequest().getSequenceNumber()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void sendSpans_reads_chunked_response_bodies_and_keeps_the_connection() throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().setChunkedBody("some chunked response body", 5));
+        zipkinServer.enqueue(new MockResponse());
+
+        // when
+        transport.sendSpans(new byte[]{1}, "application/json", false);
+        transport.sendSpans(new byte[]{2}, "application/json", false);
+
+        // then
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(1);
+        assertThat(zipkinServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void sendSpans_does_not_reuse_connection_when_server_says_connection_close() throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().addHeader("Connection", "close"));
+        zipkinServer.enqueue(new MockResponse());
+
+        // when
+        transport.sendSpans(new byte[]{1}, "application/json", false);
+        int idleAfterFirstRequest = transport.getIdleConnectionCount();
+        transport.sendSpans(new byte[]{2}, "application/json", false);
+
+        // then
+        assertThat(idleAfterFirstRequest).isEqualTo(0);
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(2);
+    }
+
+    @Test
+    public void sendSpans_retries_once_on_a_new_connection_when_pooled_connection_is_stale() throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+        zipkinServer.enqueue(new MockResponse());
+        transport.sendSpans(new byte[]{1}, "application/json", false);
+        assertThat(transport.getIdleConnectionCount()).isEqualTo(1);
+
+        // when
+        transport.sendSpans(new byte[]{2}, "application/json", false);
+
+        // then
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(2);
+        assertThat(zipkinServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @DataProvider(value = {
+        "400",
+        "500",
+        "503"
+    }, splitBy = "\\|")
+    @Test
+    public void sendSpans_throws_IOException_for_non_2xx_responses_and_keeps_connection_usable(int statusCode) throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse().setResponseCode(statusCode).setBody("nope"));
+        zipkinServer.enqueue(new MockResponse());
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                transport.sendSpans(new byte[]{1}, "application/json", false);
+            }
+        });
+        transport.sendSpans(new byte[]{2}, "application/json", false);
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class).hasMessageContaining(String.valueOf(statusCode));
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(1);
+    }
+
+    @Test
+    public void sendSpans_throws_IOException_when_no_connection_becomes_available_in_time() throws Exception {
+        // given
+        final ZipkinSpanTransportDefaultHttpImpl singleConnectionTransport = new ZipkinSpanTransportDefaultHttpImpl(url, 50, 5000, 1, 1000);
+        singleConnectionTransport.connectionPermits.acquire();
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                singleConnectionTransport.sendSpans(new byte[]{1}, "application/json", false);
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class).hasMessageContaining("Timed out");
+        assertThat(zipkinServer.getRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void sendSpans_does_not_reuse_connections_that_have_been_idle_too_long() throws Exception {
+        // given
+        ZipkinSpanTransportDefaultHttpImpl noIdleTransport = new ZipkinSpanTransportDefaultHttpImpl(url, 5000, 5000, 1, 0);
+        zipkinServer.enqueue(new MockResponse());
+        zipkinServer.enqueue(new MockResponse());
+
+        // when
+        noIdleTransport.sendSpans(new byte[]{1}, "application/json", false);
+        Thread.sleep(5);
+        noIdleTransport.sendSpans(new byte[]{2}, "application/json", false);
+
+        // then
+        assertThat(noIdleTransport.getTotalConnectionsOpened()).isEqualTo(2);
+        assertThat(noIdleTransport.getOpenConnectionCount()).isEqualTo(1);
+        noIdleTransport.close();
+    }
+
+    @Test
+    public void close_closes_idle_connections_and_rejects_further_sends() throws Exception {
+        // given
+        zipkinServer.enqueue(new MockResponse());
+        transport.sendSpans(new byte[]{1}, "application/json", false);
+        assertThat(transport.getOpenConnectionCount()).isEqualTo(1);
+
+        // when
+        transport.close();
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                transport.sendSpans(new byte[]{2}, "application/json", false);
+            }
+        });
+
+        // then
+        assertThat(transport.getOpenConnectionCount()).isEqualTo(0);
+        assertThat(transport.getIdleConnectionCount()).isEqualTo(0);
+        assertThat(ex).isInstanceOf(IOException.class);
+    }
+
+    @DataProvider(value = {
+        "NULL_URL",
+        "NON_HTTP_URL",
+        "ZERO_MAX_CONNECTIONS",
+        "NEGATIVE_MAX_IDLE"
+    }, splitBy = "\\|")
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_arguments(final String scenario) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                switch (scenario) {
+                    case "NULL_URL":
+                        new ZipkinSpanTransportDefaultHttpImpl(null, 5000, 5000);
+                        break;
+                    case "NON_HTTP_URL":
+                        new ZipkinSpanTransportDefaultHttpImpl(new URL("ftp://localhost/api/v1/spans"), 5000, 5000);
+                        break;
+                    case "ZERO_MAX_CONNECTIONS":
+                        new ZipkinSpanTransportDefaultHttpImpl(url, 5000, 5000, 0, 1000);
+                        break;
+                    case "NEGATIVE_MAX_IDLE":
+                        new ZipkinSpanTransportDefaultHttpImpl(url, 5000, 5000, 1, -1);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unhandled scenario: " + scenario);
+                }
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void sendSpans_skips_interim_1xx_responses_and_uses_the_final_status() throws Exception {
+        // given
+        // MockWebServer can't send two responses to one request, so the final response rides along as the interim response's body.
+        zipkinServer.enqueue(new MockResponse()
+                                 .setStatus("HTTP/1.1 102 Processing")
+                                 .setBody("HTTP/1.1 500 Server Error\r\nContent-Length: 0\r\n\r\n"));
+        zipkinServer.enqueue(new MockResponse().setResponseCode(202));
+        final byte[] payload = "[{\"some\":\"span\"}]".getBytes(UTF_8);
+
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                transport.sendSpans(payload, "application/json", false);
+            }
+        });
+        transport.sendSpans(payload, "application/json", false);
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class).hasMessageContaining("500");
+        assertThat(zipkinServer.getRequestCount()).isEqualTo(2);
+        assertThat(transport.getTotalConnectionsOpened()).isEqualTo(1);
+    }
+
+    @Test
+    public void sendSpans_sends_plain_http_requests_with_an_absolute_target_through_the_default_http_proxy() throws Exception {
+        // given
+        final InetSocketAddress proxyAddress = new InetSocketAddress(zipkinServer.getHostName(), zipkinServer.getPort());
+        zipkinServer.enqueue(new MockResponse().setResponseCode(202));
+        ZipkinSpanTransportDefaultHttpImpl proxiedTransport =
+            new ZipkinSpanTransportDefaultHttpImpl(new URL("http://zipkin.invalid:9411/api/v1/spans"), 5000, 5000);
+        ProxySelector originalProxySelector = ProxySelector.getDefault();
+        ProxySelector.setDefault(new FixedProxySelector(new Proxy(Proxy.Type.HTTP, proxyAddress)));
+
+        // when
+        try {
+            proxiedTransport.sendSpans(new byte[]{1}, "application/json", false);
+        }
+        finally {
+            ProxySelector.setDefault(originalProxySelector);
+            proxiedTransport.close();
+        }
+
+        // then
+        RecordedRequest request = zipkinServer.takeRequest();
+        assertThat(request.getRequestLine()).isEqualTo("POST http://zipkin.invalid:9411/api/v1/spans HTTP/1.1");
+        assertThat(request.getHeader("Host")).isEqualTo("zipkin.invalid:9411");
+    }
+
+    @Test
+    public void sendSpans_tunnels_https_through_the_default_http_proxy_and_throws_IOException_when_the_proxy_refuses() throws Exception {
+        // given
+        final InetSocketAddress proxyAddress = new InetSocketAddress(zipkinServer.getHostName(), zipkinServer.getPort());
+        zipkinServer.enqueue(new MockResponse().setResponseCode(407));
+        final ZipkinSpanTransportDefaultHttpImpl proxiedTransport =
+            new ZipkinSpanTransportDefaultHttpImpl(new URL("https://zipkin.invalid/api/v1/spans"), 5000, 5000);
+        ProxySelector originalProxySelector = ProxySelector.getDefault();
+        ProxySelector.setDefault(new FixedProxySelector(new Proxy(Proxy.Type.HTTP, proxyAddress)));
+
+        // when
+        Throwable ex;
+        try {
+            ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+                @Override
+                public void call() throws Throwable {
+                    proxiedTransport.sendSpans(new byte[]{1}, "application/json", false);
+                }
+            });
+        }
+        finally {
+            ProxySelector.setDefault(originalProxySelector);
+            proxiedTransport.close();
+        }
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class).hasMessageContaining("407");
+        assertThat(zipkinServer.takeRequest().getRequestLine()).isEqualTo("CONNECT zipkin.invalid:443 HTTP/1.1");
+        assertThat(proxiedTransport.getOpenConnectionCount()).isEqualTo(0);
+    }
+
+    private static class FixedProxySelector extends ProxySelector {
+        private final Proxy proxy;
+
+        FixedProxySelector(Proxy proxy) {
+            this.proxy = proxy;
+        }
+
+        @Override
+        public List<Proxy> select(URI uri) {
+            return Collections.singletonList(proxy);
+        }
+
+        @Override
+        public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            // Nothing to do.
+        }
+    }
+}
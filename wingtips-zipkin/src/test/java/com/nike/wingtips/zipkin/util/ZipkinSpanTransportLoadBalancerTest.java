@@ -0,0 +1,349 @@
+package com.nike.wingtips.zipkin.util;
+
+import com.nike.wingtips.zipkin.util.ZipkinSpanTransportLoadBalancer.Strategy;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+
+import org.assertj.core.api.ThrowableAssert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the functionality of {@link ZipkinSpanTransportLoadBalancer}.
+ */
+@RunWith(DataProviderRunner.class)
+public class ZipkinSpanTransportLoadBalancerTest {
+
+    private static final long EJECTION_MILLIS = 1000;
+    private static final byte[] PAYLOAD = new byte[]{ 1, 2, 3 };
+    private static final String CONTENT_TYPE = "application/json";
+
+    private long nowNanos = 42;
+    private ZipkinSpanTransport transportA;
+    private ZipkinSpanTransport transportB;
+    private ZipkinSpanTransport transportC;
+
+    private class LoadBalancerForTesting extends ZipkinSpanTransportLoadBalancer {
+        LoadBalancerForTesting(List<? extends ZipkinSpanTransport> delegates, Strategy strategy, int ejectionFailureThreshold) {
+            super(delegates, strategy, ejectionFailureThreshold, EJECTION_MILLIS);
+        }
+
+        @Override
+        protected CircuitBreaker createCircuitBreaker(int ejectionFailureThreshold, long ejectionMillis) {
+            return new CircuitBreaker(ejectionFailureThreshold, ejectionMillis) {
+                @Override
+                protected long currentTimeNanos() {
+                    return nowNanos;
+                }
+            };
+        }
+    }
+
+    @Before
+    public void beforeMethod() {
+        transportA = mock(ZipkinSpanTransport.class);
+        transportB = mock(ZipkinSpanTransport.class);
+        transportC = mock(ZipkinSpanTransport.class);
+    }
+
+    private ZipkinSpanTransportLoadBalancer loadBalancer(Strategy strategy, int ejectionFailureThreshold) {
+        return new LoadBalancerForTesting(Arrays.asList(transportA, transportB, transportC), strategy, ejectionFailureThreshold);
+    }
+
+    private void advanceMillis(long millis) {
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void convenience_constructor_uses_defaults() {
+        // when
+        ZipkinSpanTransportLoadBalancer loadBalancer = new ZipkinSpanTransportLoadBalancer(Arrays.asList(transportA, transportB));
+
+        // then
+        assertThat(loadBalancer.getStrategy()).isEqualTo(ZipkinSpanTransportLoadBalancer.DEFAULT_STRATEGY);
+        assertThat(loadBalancer.getCollectors()).hasSize(2);
+        assertThat(loadBalancer.getCollectors().get(0).getDelegate()).isSameAs(transportA);
+        assertThat(loadBalancer.getCollectors().get(1).getDelegate()).isSameAs(transportB);
+        assertThat(loadBalancer.getCollectors().get(0).circuitBreaker.getFailureThreshold())
+            .isEqualTo(ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_FAILURE_THRESHOLD);
+        assertThat(loadBalancer.getCollectors().get(0).circuitBreaker.getOpenDurationMillis())
+            .isEqualTo(ZipkinSpanTransportLoadBalancer.DEFAULT_EJECTION_MILLIS);
+        assertThat(loadBalancer.getHealthyCollectorCount()).isEqualTo(2);
+    }
+
+    @DataProvider(value = {
+        "NULL_DELEGATES",
+        "EMPTY_DELEGATES",
+        "NULL_DELEGATE",
+        "NULL_STRATEGY",
+        "ZERO_EJECTION_FAILURE_THRESHOLD",
+        "ZERO_EJECTION_MILLIS"
+    })
+    @Test
+    public void constructor_throws_IllegalArgumentException_for_invalid_options(final String scenario) {
+        // when
+        Throwable ex = catchThrowable(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                List<ZipkinSpanTransport> delegates = Collections.singletonList(transportA);
+                switch (scenario) {
+                    case "NULL_DELEGATES":
+                        new ZipkinSpanTransportLoadBalancer(null);
+                        break;
+                    case "EMPTY_DELEGATES":
+                        new ZipkinSpanTransportLoadBalancer(Collections.<ZipkinSpanTransport>emptyList());
+                        break;
+                    case "NULL_DELEGATE":
+                        new ZipkinSpanTransportLoadBalancer(Arrays.asList(transportA, null));
+                        break;
+                    case "NULL_STRATEGY":
+                        new ZipkinSpanTransportLoadBalancer(delegates, null, 1, 1000);
+                        break;
+                    case "ZERO_EJECTION_FAILURE_THRESHOLD":
+                        new ZipkinSpanTransportLoadBalancer(delegates, Strategy.ROUND_ROBIN, 0, 1000);
+                        break;
+                    case "ZERO_EJECTION_MILLIS":
+                        new ZipkinSpanTransportLoadBalancer(delegates, Strategy.ROUND_ROBIN, 1, 0);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unhandled scenario: " + scenario);
+                }
+            }
+        });
+
+        // then
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @DataProvider(value = {
+        "ROUND_ROBIN",
+        "LEAST_OUTSTANDING"
+    })
+    @Test
+    public void sendSpans_spreads_batches_evenly_across_collectors(Strategy strategy) throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(strategy, 1);
+
+        // when
+        for (int i = 0; i < 6; i++) {
+            loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, true);
+        }
+
+        // then
+        verify(transportA, times(2)).sendSpans(PAYLOAD, CONTENT_TYPE, true);
+        verify(transportB, times(2)).sendSpans(PAYLOAD, CONTENT_TYPE, true);
+        verify(transportC, times(2)).sendSpans(PAYLOAD, CONTENT_TYPE, true);
+    }
+
+    @Test
+    public void sendSpansGzipped_streams_to_streaming_collectors_and_sends_a_gzipped_copy_to_the_others() throws IOException {
+        // given
+        ZipkinSpanStreamingTransport streamingTransport = mock(ZipkinSpanStreamingTransport.class);
+        ZipkinSpanTransportLoadBalancer loadBalancer = new LoadBalancerForTesting(
+            Arrays.asList(streamingTransport, transportB), Strategy.ROUND_ROBIN, 1
+        );
+        ZipkinSpanPayloadCompressor compressor = new ZipkinSpanPayloadCompressor(ZipkinSpanSenderDefaultHttpImpl.DEFAULT_COMPRESSION_LEVEL);
+
+        // when
+        loadBalancer.sendSpansGzipped(PAYLOAD, CONTENT_TYPE, compressor);
+        loadBalancer.sendSpansGzipped(PAYLOAD, CONTENT_TYPE, compressor);
+
+        // then
+        verify(streamingTransport).sendSpansGzipped(PAYLOAD, CONTENT_TYPE, compressor);
+        verify(streamingTransport, never()).sendSpans(any(byte[].class), anyString(), anyBoolean());
+        verify(transportB).sendSpans(compressor.gzip(PAYLOAD), CONTENT_TYPE, true);
+    }
+
+    @Test
+    public void LEAST_OUTSTANDING_sends_to_collector_with_fewest_batches_in_flight() throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(Strategy.LEAST_OUTSTANDING, 1);
+        loadBalancer.getCollectors().get(0).outstandingRequests.set(2);
+        loadBalancer.getCollectors().get(1).outstandingRequests.set(1);
+        loadBalancer.getCollectors().get(2).outstandingRequests.set(3);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        }
+
+        // then
+        verify(transportB, times(3)).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportA, never()).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportC, never()).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        assertThat(loadBalancer.getCollectors().get(1).getOutstandingRequests()).isEqualTo(1);
+    }
+
+    @DataProvider(value = {
+        "ROUND_ROBIN",
+        "LEAST_OUTSTANDING"
+    })
+    @Test
+    public void sendSpans_fails_batch_over_to_another_collector(Strategy strategy) throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(strategy, 5);
+        doThrow(new IOException("intentional test exception")).when(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+
+        // when
+        loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+
+        // then
+        verify(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportB).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportC, never()).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        assertThat(loadBalancer.getCollectors().get(0).isEjected()).isFalse();
+        assertThat(loadBalancer.getCollectors().get(0).circuitBreaker.consecutiveFailures.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void sendSpans_throws_last_failure_once_every_collector_has_failed() throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(Strategy.ROUND_ROBIN, 5);
+        IOException lastFailure = new IOException("intentional test exception C");
+        doThrow(new IOException("intentional test exception A")).when(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        doThrow(new IOException("intentional test exception B")).when(transportB).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        doThrow(lastFailure).when(transportC).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+
+        // when
+        Throwable ex = catchThrowable(sendCallable(loadBalancer));
+
+        // then
+        assertThat(ex).isSameAs(lastFailure);
+        verify(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportB).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportC).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+    }
+
+    private ThrowableAssert.ThrowingCallable sendCallable(final ZipkinSpanTransportLoadBalancer loadBalancer) {
+        return new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+            }
+        };
+    }
+
+    @DataProvider(value = {
+        "ROUND_ROBIN",
+        "LEAST_OUTSTANDING"
+    })
+    @Test
+    public void failing_collector_is_ejected_then_probed_and_restored(Strategy strategy) throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(strategy, 1);
+        doThrow(new IOException("intentional test exception")).when(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        }
+        assertThat(loadBalancer.getCollectors().get(0).isEjected()).isTrue();
+        assertThat(loadBalancer.getHealthyCollectorCount()).isEqualTo(2);
+
+        // when: the collector is still ejected
+        for (int i = 0; i < 4; i++) {
+            loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        }
+
+        // then: nothing else was sent to it
+        verify(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+
+        // and when: the ejection has expired and the collector has recovered
+        advanceMillis(EJECTION_MILLIS);
+        doNothing().when(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        }
+
+        // then: it was probed, and is back in rotation
+        verify(transportA, atLeast(2)).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        assertThat(loadBalancer.getCollectors().get(0).isEjected()).isFalse();
+        assertThat(loadBalancer.getHealthyCollectorCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void failed_probe_is_failed_over_and_collector_stays_ejected() throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(Strategy.LEAST_OUTSTANDING, 1);
+        doThrow(new IOException("intentional test exception")).when(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        loadBalancer.getCollectors().get(1).outstandingRequests.set(1);
+        loadBalancer.getCollectors().get(2).outstandingRequests.set(1);
+        loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        assertThat(loadBalancer.getCollectors().get(0).isEjected()).isTrue();
+        advanceMillis(EJECTION_MILLIS);
+
+        // when
+        loadBalancer.sendSpans(PAYLOAD, CONTENT_TYPE, false);
+
+        // then
+        verify(transportA, times(2)).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        assertThat(loadBalancer.getCollectors().get(0).isEjected()).isTrue();
+        assertThat(loadBalancer.getHealthyCollectorCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void sendSpans_throws_IOException_when_every_collector_is_ejected() throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(Strategy.ROUND_ROBIN, 1);
+        for (ZipkinSpanTransport transport : Arrays.asList(transportA, transportB, transportC)) {
+            doThrow(new IOException("intentional test exception")).when(transport).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        }
+        catchThrowable(sendCallable(loadBalancer));
+        assertThat(loadBalancer.getHealthyCollectorCount()).isZero();
+
+        // when
+        Throwable ex = catchThrowable(sendCallable(loadBalancer));
+
+        // then
+        assertThat(ex).isInstanceOf(IOException.class).hasMessageContaining("All 3 Zipkin collectors are currently ejected");
+        verify(transportA).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportB).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+        verify(transportC).sendSpans(PAYLOAD, CONTENT_TYPE, false);
+    }
+
+    @Test
+    public void close_closes_every_delegate_and_throws_first_failure() throws IOException {
+        // given
+        ZipkinSpanTransportLoadBalancer loadBalancer = loadBalancer(Strategy.ROUND_ROBIN, 1);
+        IOException firstFailure = new IOException("intentional test exception B");
+        doThrow(firstFailure).when(transportB).close();
+        doThrow(new IOException("intentional test exception C")).when(transportC).close();
+
+        // when
+        Throwable ex = catchThrowable(closeCallable(loadBalancer));
+
+        // then
+        assertThat(ex).isSameAs(firstFailure);
+        verify(transportA).close();
+        verify(transportB).close();
+        verify(transportC).close();
+    }
+
+    private ThrowableAssert.ThrowingCallable closeCallable(final ZipkinSpanTransportLoadBalancer loadBalancer) {
+        return new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                loadBalancer.close();
+            }
+        };
+    }
+}